@@ -120,7 +120,7 @@ public class SoundUnitDecoder {
         public final int[]    aiUnRangedSamples;
         public final double[] adblDecodedPcmSamples;
 
-        private Telemetry(@Nonnull IContextCopier loggingContext, int _iFilter, int _iRange) {
+        Telemetry(@Nonnull IContextCopier loggingContext, int _iFilter, int _iRange) {
             _loggingContext = loggingContext;
             iFilter         = _iFilter;
             iRange          = _iRange;
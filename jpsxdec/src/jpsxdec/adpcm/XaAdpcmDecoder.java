@@ -37,7 +37,6 @@
 
 package jpsxdec.adpcm;
 
-import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -45,6 +44,7 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.sound.sampled.AudioFormat;
 import jpsxdec.util.IO;
+import jpsxdec.util.Maths;
 
 /** The ultimate XA ADPCM decoder. Based on the code and documentation by
  * Jonathan Atkins and Jac Goudsmit (http://freshmeat.net/projects/cdxa/).
@@ -72,7 +72,8 @@ import jpsxdec.util.IO;
  *<li>Make it work like the rest of the Java audio system and have the class
  *    implement TargetDataLine.
  *</ol>
- * This has been implemented using the 3rd method, in little-endian order.
+ * This has been implemented using both the 1st method, and the 3rd method
+ * in little-endian order.
  */
 public class XaAdpcmDecoder {
 
@@ -118,29 +119,58 @@ public class XaAdpcmDecoder {
     // =========================================================================
     // instance
 
+    /** Number of ADPCM bytes decoded per sector:
+     * 18 sound groups * 128 bytes = 2304. */
+    public static final int SIZEOF_SECTOR_ADPCM = ADPCM_SOUND_GROUPS_PER_SECTOR * SIZEOF_SOUND_GROUP;
+
+    /** Bytes between consecutive samples of the same sound unit. Both 4 and
+     * 8 bits/sample interleave 4 bytes for every sample index. */
+    private static final int SOUND_UNIT_SAMPLE_STRIDE = 4;
+
+    /** Fractional bits of the fixed-point decoding history. All the XA filters
+     * are in 64ths, so every sample adds 6 fractional bits. Keeping 32 of them
+     * produces output identical to decoding with doubles, while leaving
+     * plenty of room for the largest values the filters can reach
+     * (about 2^22). */
+    private static final int FRACTION_BITS = 32;
+    private static final long FRACTION_HALF = 1L << (FRACTION_BITS - 1);
+    private static final double FIXED_TO_DOUBLE = 1.0 / (1L << FRACTION_BITS);
+
+    /** {@link K0K1Filter#XA} in 64ths. */
+    private static final int[] K0_64THS = new int[K0K1Filter.XA.getCount()];
+    private static final int[] K1_64THS = new int[K0K1Filter.XA.getCount()];
+    static {
+        for (int i = 0; i < K0_64THS.length; i++) {
+            K0_64THS[i] = (int) (K0K1Filter.XA.getK0(i) * 64);
+            K1_64THS[i] = (int) (K0K1Filter.XA.getK1(i) * 64);
+        }
+    }
+
+    /** Maintains the previous two decoded PCM samples of a channel
+     * in fixed-point with {@link #FRACTION_BITS} fractional bits. */
+    private static class FixedContext {
+        public long lngPreviousPCMSample1 = 0;
+        public long lngPreviousPCMSample2 = 0;
+    }
+
     private final boolean _blnIsStereo;
     private final int _iAdpcmBitsPerSample;
+    private final int _iSoundUnitsPerSoundGroup;
+    /** How much to scale the PCM samples before clamping. */
+    private final double _dblVolume;
     
     /** Context for the left channel when stereo, or the only channel when mono. */
     @Nonnull
-    private final AdpcmContext _leftOrMonoContext;
+    private final FixedContext _leftOrMonoContext = new FixedContext();
     /** Context for the right channel when stereo. */
     @CheckForNull
-    private final AdpcmContext _rightContext;
+    private final FixedContext _rightContext;
 
-    /** Buffer decoded PCM audio for the left channel when stereo or only channel when mono. */
-    @Nonnull
-    private final short[] _asiLeftOrMonoPcmBuffer;
-    /** Buffer decoded PCM audio for the right channel when stereo. */
+    /** Buffers for the stream and byte array decode methods. */
     @CheckForNull
-    private final short[] _asiRightPcmBuffer;
-
-    /** Length will be the number of sound units per sound group. 
-     * @see #SOUND_UNITS_IN_4_BIT_SOUND_GROUP
-     * @see #SOUND_UNITS_IN_8_BIT_SOUND_GROUP */
-    @Nonnull
-    private final XaAdpcmSoundUnitDecoder[] _aoSoundUnitDecoders;
-    private final byte[] _abParameterBuffer = new byte[16];
+    private byte[] _abAdpcmBuffer, _abPcmBuffer;
+    @CheckForNull
+    private short[] _asiPcmBuffer;
 
     /** Keeps track of the state of the decoding process so loggers can
      * more clearly report the state. */
@@ -211,39 +241,27 @@ public class XaAdpcmDecoder {
     public XaAdpcmDecoder(int iAdpcmBitsPerSample, boolean blnIsStereo, double dblVolume)
     {
         // bits/sample determines the number of sound units per sound group
-        int iSoundUnitsPerSoundGroup;
         if (iAdpcmBitsPerSample == 8)
-            iSoundUnitsPerSoundGroup = SOUND_UNITS_IN_8_BIT_SOUND_GROUP;
+            _iSoundUnitsPerSoundGroup = SOUND_UNITS_IN_8_BIT_SOUND_GROUP;
         else if (iAdpcmBitsPerSample == 4)
-            iSoundUnitsPerSoundGroup = SOUND_UNITS_IN_4_BIT_SOUND_GROUP;
+            _iSoundUnitsPerSoundGroup = SOUND_UNITS_IN_4_BIT_SOUND_GROUP;
         else
             throw new IllegalArgumentException("Invalid bits per sample " + iAdpcmBitsPerSample);
 
-        _aoSoundUnitDecoders = new XaAdpcmSoundUnitDecoder[iSoundUnitsPerSoundGroup];
-        for (int iSoundUnitIndex = 0; iSoundUnitIndex < _aoSoundUnitDecoders.length; iSoundUnitIndex++) {
-            _aoSoundUnitDecoders[iSoundUnitIndex] = new XaAdpcmSoundUnitDecoder(iSoundUnitIndex);
-        }
-        
         _iAdpcmBitsPerSample = iAdpcmBitsPerSample;
         _blnIsStereo = blnIsStereo;
+        _dblVolume = dblVolume;
 
         // create a context for each channel (one for mono, two for stereo)
-        _leftOrMonoContext = new AdpcmContext(dblVolume);
-        _asiLeftOrMonoPcmBuffer = new short[SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT];
-        if (_blnIsStereo) {
-            _rightContext = new AdpcmContext(dblVolume);
-            _asiRightPcmBuffer = new short[SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT];
-        } else {
+        if (_blnIsStereo)
+            _rightContext = new FixedContext();
+        else
             _rightContext = null;
-            _asiRightPcmBuffer = null;
-        }
-        
     }
 
     /** Returns the volume scale that PCM samples are multiplied by before being clamped. */
     public double getVolume() {
-        // assume same volume for right channel as well (if it has one)
-        return _leftOrMonoContext.getVolumeScale();
+        return _dblVolume;
     }
 
     public int getAdpcmBitsPerSample() {
@@ -259,9 +277,22 @@ public class XaAdpcmDecoder {
         return isStereo() ? 4 : 2;
     }
 
+    /** Number of PCM samples (not sample frames) generated by decoding
+     * one sector: either 2016 or 4032. */
+    public int getPcmSamplesPerSector() {
+        return ADPCM_SOUND_GROUPS_PER_SECTOR *
+               SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT *
+               _iSoundUnitsPerSoundGroup;
+    }
+
+    /** Number of bytes of PCM audio generated by decoding one sector:
+     * either 4032 or 8064. */
+    public int getPcmBytesPerSector() {
+        return getPcmSamplesPerSector() * 2;
+    }
+
     /** Returns the number of PCM sample frames that have been written to the
-     * output stream (i.e. a stereo sample frame is only 1 sample frame).
-     * Reset when {@link #resetContext()} is called. */
+     * output stream (i.e. a stereo sample frame is only 1 sample frame). */
     public long getSampleFramesWritten() {
         return _logContext.lngSampleFramesWritten;
     }
@@ -288,206 +319,220 @@ public class XaAdpcmDecoder {
                        int iSourceSector)
             throws IOException
     {
+        if (_abAdpcmBuffer == null)
+            _abAdpcmBuffer = new byte[SIZEOF_SECTOR_ADPCM];
+        if (_abPcmBuffer == null)
+            _abPcmBuffer = new byte[getPcmBytesPerSector()];
+        IO.readByteArray(inStream, _abAdpcmBuffer);
+        int iLength = decode(_abAdpcmBuffer, 0, _abPcmBuffer, 0, iSourceSector);
+        out.write(_abPcmBuffer, 0, iLength);
+    }
+
+    /** Decodes a sector's worth of ADPCM data directly from a byte array
+     * into little-endian 16-bit PCM.
+     * Reads 2304 bytes and writes either 4032 or 8064 bytes.
+     * @param iSourceSector Optional original sector the ADPCM data came from.
+     *                      Only used for logging.
+     * @return the number of bytes written.
+     * @throws IndexOutOfBoundsException if either array is too small.
+     */
+    public int decode(@Nonnull byte[] abAdpcm, int iAdpcmOffset,
+                      @Nonnull byte[] abPcmOut, int iPcmOutOffset,
+                      int iSourceSector)
+    {
+        int iSampleCount = getPcmSamplesPerSector();
+        if (iPcmOutOffset < 0 || iPcmOutOffset + iSampleCount * 2 > abPcmOut.length)
+            throw new IndexOutOfBoundsException();
+        if (_asiPcmBuffer == null)
+            _asiPcmBuffer = new short[iSampleCount];
+        decode(abAdpcm, iAdpcmOffset, _asiPcmBuffer, 0, iSourceSector);
+        for (int i = 0, iOut = iPcmOutOffset; i < iSampleCount; i++, iOut += 2) {
+            short si = _asiPcmBuffer[i];
+            abPcmOut[iOut  ] = (byte)si;
+            abPcmOut[iOut+1] = (byte)(si >> 8);
+        }
+        return iSampleCount * 2;
+    }
+
+    /** Decodes a sector's worth of ADPCM data directly from a byte array
+     * into PCM samples, interleaved left/right when stereo.
+     * Reads 2304 bytes and writes either 2016 or 4032 samples.
+     * @param iSourceSector Optional original sector the ADPCM data came from.
+     *                      Only used for logging.
+     * @return the number of samples written.
+     * @throws IndexOutOfBoundsException if either array is too small.
+     */
+    public int decode(@Nonnull byte[] abAdpcm, int iAdpcmOffset,
+                      @Nonnull short[] asiPcmOut, int iPcmOutOffset,
+                      int iSourceSector)
+    {
+        int iSampleCount = getPcmSamplesPerSector();
+        if (iAdpcmOffset  < 0 || iAdpcmOffset  + SIZEOF_SECTOR_ADPCM > abAdpcm.length ||
+            iPcmOutOffset < 0 || iPcmOutOffset + iSampleCount        > asiPcmOut.length)
+            throw new IndexOutOfBoundsException();
+
         _logContext.decodeReset(iSourceSector);
         // There are 18 sound groups,
         // each having  16 bytes of interleaved sound parameters,
         //         and 112 bytes of interleaved ADPCM data
-        // ( 18*(16+112) = 2304 bytes will be read )
+        int iOut = iPcmOutOffset;
         for (_logContext.iSoundGroup = 0;
              _logContext.iSoundGroup < ADPCM_SOUND_GROUPS_PER_SECTOR;
              _logContext.iSoundGroup++)
         {
-            decodeSoundGroup(inStream, out);
+            int iSoundGroupStart = iAdpcmOffset + _logContext.iSoundGroup * SIZEOF_SOUND_GROUP;
+            if (_blnIsStereo) {
+                for (int iSoundUnit = 0; iSoundUnit < _iSoundUnitsPerSoundGroup; iSoundUnit+=2) {
+                    // left and right sound units are written into every other sample
+                    decodeSoundUnit(abAdpcm, iSoundGroupStart, iSoundUnit,
+                                    _leftOrMonoContext, asiPcmOut, iOut, 2);
+                    decodeSoundUnit(abAdpcm, iSoundGroupStart, iSoundUnit+1,
+                                    _rightContext, asiPcmOut, iOut+1, 2);
+                    _logContext.iSoundUnit = -1;
+                    iOut += SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT * 2;
+                    _logContext.lngSampleFramesWritten += SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
+                }
+            } else {
+                for (int iSoundUnit = 0; iSoundUnit < _iSoundUnitsPerSoundGroup; iSoundUnit++) {
+                    decodeSoundUnit(abAdpcm, iSoundGroupStart, iSoundUnit,
+                                    _leftOrMonoContext, asiPcmOut, iOut, 1);
+                    _logContext.iSoundUnit = -1;
+                    iOut += SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
+                    _logContext.lngSampleFramesWritten += SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
+                }
+            }
         }
         _logContext.iSourceSector = -1;
         _logContext.iSoundGroup = -1;
+        return iSampleCount;
     }
 
-    /** Reads 16 bytes of interleaved sound parameters, followed by
-     *  112 bytes of interleaved ADPCM sound units. */
-    private void decodeSoundGroup(@Nonnull InputStream inStream,
-                                  @Nonnull OutputStream out)
-            throws IOException
+    /** Decodes one sound unit straight out of the interleaved sound group.
+     * @param iOutStride Distance between samples written to the output. */
+    private void decodeSoundUnit(@Nonnull byte[] abAdpcm, int iSoundGroupStart,
+                                 int iSoundUnit, @Nonnull FixedContext context,
+                                 @Nonnull short[] asiPcmOut, int iOut, int iOutStride)
     {
-        IO.readByteArray(inStream, _abParameterBuffer);
-        
-        if (_iAdpcmBitsPerSample == 4)
-            deinterleave4BitsPerSampleSoundGroup(inStream);
-        else // == 8
-            deinterleave8BitsPerSampleSoundGroup(inStream);
-
-        // read decoded samples and write them to the output stream
-        if (_blnIsStereo) {
-            for (int iSoundUnit = 0; iSoundUnit < _aoSoundUnitDecoders.length; iSoundUnit+=2) {
-                _logContext.iSoundUnit = iSoundUnit;
-                XaAdpcmSoundUnitDecoder leftSoundUnit  = _aoSoundUnitDecoders[iSoundUnit];
-                leftSoundUnit.decodeSoundUnit(_leftOrMonoContext, _asiLeftOrMonoPcmBuffer, _logContext);
-
-                _logContext.iSoundUnit = iSoundUnit+1;
-                XaAdpcmSoundUnitDecoder rightSoundUnit = _aoSoundUnitDecoders[iSoundUnit+1];
-                rightSoundUnit.decodeSoundUnit(_rightContext, _asiRightPcmBuffer, _logContext);
-
-                _logContext.iSoundUnit = -1;
-                
-                for (int iSample = 0;
-                     iSample < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
-                     iSample++, _logContext.lngSampleFramesWritten++)
-                {
-                    IO.writeInt16LE(out, _asiLeftOrMonoPcmBuffer[iSample]);
-                    IO.writeInt16LE(out, _asiRightPcmBuffer[iSample]);
-                }
-
-            }
+        _logContext.iSoundUnit = iSoundUnit;
+        int iParameter = readSoundParameter(abAdpcm, iSoundGroupStart, iSoundUnit);
+        int iFilterIndex = (iParameter >> 4) & 0xf;
+        int iRange = iParameter & 0xf;
+        int iK0 = K0_64THS[iFilterIndex];
+        int iK1 = K1_64THS[iFilterIndex];
+
+        // sound unit bytes are interleaved like this:
+        //  4 bits/sample: 1 byte has 2 samples, 
+        //                 high nibble: sound unit 1, low nibble: sound unit 0
+        //                 high nibble: sound unit 3, low nibble: sound unit 2
+        //                 ...
+        //  8 bits/sample: sound unit 0, sound unit 1, sound unit 2, sound unit 3
+        int iIn = iSoundGroupStart + 16;
+        int iShift, iMask;
+        if (_iAdpcmBitsPerSample == 4) {
+            iIn += iSoundUnit >> 1;
+            iShift = (iSoundUnit & 1) == 0 ? 12 : 8;
+            iMask = 0xf000;
         } else {
-            for (int iSoundUnit = 0; iSoundUnit < _aoSoundUnitDecoders.length; iSoundUnit++) {
-                _logContext.iSoundUnit = iSoundUnit;
-                XaAdpcmSoundUnitDecoder soundUnit = _aoSoundUnitDecoders[iSoundUnit];
-                soundUnit.decodeSoundUnit(_leftOrMonoContext, _asiLeftOrMonoPcmBuffer, _logContext);
-                
-                _logContext.iSoundUnit = -1;
-
-                for (int iSample = 0; 
-                     iSample < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
-                     iSample++, _logContext.lngSampleFramesWritten++)
-                {
-                    IO.writeInt16LE(out, _asiLeftOrMonoPcmBuffer[iSample]);
-                }
-            }
+            iIn += iSoundUnit;
+            iShift = 8;
+            iMask = 0xff00;
         }
-    }
 
-    /** Reads the sound parameters and ADPCM data for sound groups with
-     * 4 bits per sample and stores the result in the {@link #_aoSoundUnitDecoders}
-     * array. */
-    private void deinterleave4BitsPerSampleSoundGroup(@Nonnull InputStream inStream)
-            throws EOFException, IOException
-    {
-        // Process the 16 byte sound parameters at the
-        // start of each sound group
-        // the 8 sound parameters (one for each sound unit)
-        // are repeated twice, and are ordered like this:
-        // 0,1,2,3, 0,1,2,3, 4,5,6,7, 4,5,6,7
-        for (int iSoundUnit = 0; iSoundUnit < 4; iSoundUnit++) {
-            _logContext.iSoundUnit = iSoundUnit;
-            _aoSoundUnitDecoders[iSoundUnit].addSoundParamter(_abParameterBuffer[iSoundUnit] & 0xff);
-            _aoSoundUnitDecoders[iSoundUnit].addSoundParamter(_abParameterBuffer[iSoundUnit+4] & 0xff);
-
-            _logContext.iSoundUnit = iSoundUnit + 4;
-            _aoSoundUnitDecoders[iSoundUnit+4].addSoundParamter(_abParameterBuffer[iSoundUnit+8] & 0xff);
-            _aoSoundUnitDecoders[iSoundUnit+4].addSoundParamter(_abParameterBuffer[iSoundUnit+12] & 0xff);
-        }
-        _logContext.iSoundUnit = -1;
-        
-        // de-interleave the sound units
-        for (int iSampleIdx = 0; iSampleIdx < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT; iSampleIdx++)
-        {
-            // read a sample for each of the 8 sound units
-            // 1 byte produces 2 samples, but for different sound units
-            // sound unit nibbles are interleaved like this:
-            // high nibble: sound unit 1, low nibble: sound unit 0
-            // high nibble: sound unit 3, low nibble: sound unit 2
-            // high nibble: sound unit 5, low nibble: sound unit 4
-            // high nibble: sound unit 7, low nibble: sound unit 6
-            // high nibble: sound unit 1, low nibble: sound unit 0
-            // ...
-            for (_logContext.iSoundUnit = 0; _logContext.iSoundUnit < 8;)
-            {
-                int iByte = inStream.read();
-                if (iByte < 0)
-                    throw new EOFException();
-
-                short siADPCMSample;
-                // shift the nibble into the top of a short
-                siADPCMSample = (short)((iByte & 0x0F) << 12);
-                _aoSoundUnitDecoders[_logContext.iSoundUnit].addShiftedAdpcmSample(siADPCMSample);
-                _logContext.iSoundUnit++;
-                // shift the nibble into the top of a short
-                siADPCMSample = (short)((iByte & 0xF0) << 8);
-                _aoSoundUnitDecoders[_logContext.iSoundUnit].addShiftedAdpcmSample(siADPCMSample);
-                _logContext.iSoundUnit++;
-            }
-            _logContext.iSoundUnit = -1;
-        }
-    }
+        SoundUnitDecoder.Telemetry telemetry = null;
+        if (SoundUnitDecoder.TELEMETRY_LISTENER != null)
+            telemetry = new SoundUnitDecoder.Telemetry(_logContext, iFilterIndex, iRange);
 
-    /** Reads the sound parameters and ADPCM data for sound groups with
-     * 8 bits per sample and stores the result in the {@link #_aoSoundUnitDecoders}
-     * array. */
-    private void deinterleave8BitsPerSampleSoundGroup(@Nonnull InputStream inStream)
-            throws EOFException, IOException
-    {
-        // Process the 16 byte sound parameters at the
-        // start of each sound group
-        // the 4 sound parameters (one for each sound unit)
-        // are repeated four times and are ordered like this:
-        // 0,1,2,3, 0,1,2,3, 0,1,2,3, 0,1,2,3
-        for (_logContext.iSoundUnit = 0; _logContext.iSoundUnit < 4; _logContext.iSoundUnit++) {
-            XaAdpcmSoundUnitDecoder soundUnit = _aoSoundUnitDecoders[_logContext.iSoundUnit];
-            for (int iRepeat = _logContext.iSoundUnit; iRepeat < 16; iRepeat+=4) {
-                soundUnit.addSoundParamter(_abParameterBuffer[iRepeat] & 0xff);
-            }
-        }
-        _logContext.iSoundUnit = -1;
-        
-        // de-interleave the sound units
-        for (int iSampleIdx = 0; iSampleIdx < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT; iSampleIdx++)
+        long lngPrev1 = context.lngPreviousPCMSample1;
+        long lngPrev2 = context.lngPreviousPCMSample2;
+        for (int i = 0; i < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
+             i++, iIn += SOUND_UNIT_SAMPLE_STRIDE, iOut += iOutStride)
         {
-            // read a sample for each of the 4 sound units
-            // 1 byte produces 1 sample
-            // sound unit bytes are interleaved like this:
-            // sound unit 0, sound unit 1, sound unit 2, sound unit 3,
-            // sound unit 0, sound unit 1, sound unit 2, sound unit 3,
-            // ...
-            for (_logContext.iSoundUnit = 0; _logContext.iSoundUnit < 4; _logContext.iSoundUnit++)
-            {
-                int iByte = inStream.read();
-                if (iByte < 0)
-                    throw new EOFException();
-
-                _aoSoundUnitDecoders[_logContext.iSoundUnit].addShiftedAdpcmSample(
-                        (short)(iByte << 8)); // shift the byte into the top of a short
+            // shift the nibble or byte into the top of a short
+            short siAdpcmShortTopSample = (short)((abAdpcm[iIn] << iShift) & iMask);
+
+            // shift sound data according to the range, extending the sign
+            int iUnRanged = siAdpcmShortTopSample >> iRange;
+
+            // adjust according to the filter, rounding the products of the 64ths
+            long lngDecodedPcm = ((long)iUnRanged << FRACTION_BITS) +
+                                 ((iK0 * lngPrev1 + iK1 * lngPrev2 + 32) >> 6);
+
+            if (telemetry != null) {
+                telemetry.asiSourceAdpcmSamples[i] = siAdpcmShortTopSample;
+                telemetry.aiUnRangedSamples[i] = iUnRanged;
+                telemetry.adblPrev1Samples[i] = lngPrev1 * FIXED_TO_DOUBLE;
+                telemetry.adblPrev2Samples[i] = lngPrev2 * FIXED_TO_DOUBLE;
+                telemetry.adblDecodedPcmSamples[i] = lngDecodedPcm * FIXED_TO_DOUBLE;
             }
-            _logContext.iSoundUnit = -1;
-        }
-    }
 
-
-    /** Sound unit found in a sound group.
-     * Feed it parameters and ADPCM samples then decode the result. */
-    private static class XaAdpcmSoundUnitDecoder {
-
-        /** Not used, but useful when debugging. */
-        private final int _iSoundUnitIndex;
-        private final SoundUnitDecoder _soundUnitDecoder = new SoundUnitDecoder(K0K1Filter.XA);
-        
-        private XaAdpcmSoundUnit.Builder _soundUnitBuilder = new XaAdpcmSoundUnit.Builder();
-
-        /** @param iSoundUnitIndex Sound unit number. */
-        public XaAdpcmSoundUnitDecoder(int iSoundUnitIndex) {
-            _iSoundUnitIndex = iSoundUnitIndex;
+            lngPrev2 = lngPrev1;
+            lngPrev1 = lngDecodedPcm;
+            asiPcmOut[iOut] = scaleRoundClamp(lngDecodedPcm);
         }
+        context.lngPreviousPCMSample1 = lngPrev1;
+        context.lngPreviousPCMSample2 = lngPrev2;
 
-        /** @param iSoundParameter  An unsigned byte value as read from the
-         *                          source stream, holding the range and
-         *                          filter parameters for this sound unit. */
-        public void addSoundParamter(int iSoundParameter) {
-            _soundUnitBuilder.addRedundantParameter(iSoundParameter);
-        }
+        if (telemetry != null && SoundUnitDecoder.TELEMETRY_LISTENER != null)
+            SoundUnitDecoder.TELEMETRY_LISTENER.soundUnitDecoded(telemetry);
+    }
 
-        private void addShiftedAdpcmSample(short s) {
-            _soundUnitBuilder.addShiftedAdpcmSample(s);
+    /** Scales, rounds, and clamps the fixed-point sample the same way
+     * {@link AdpcmContext#saveScaleRoundClampPCMSample(double)} does. */
+    private short scaleRoundClamp(long lngFixedPcm) {
+        long lngSample;
+        if (_dblVolume == 1.0) {
+            // round half away from zero
+            if (lngFixedPcm > 0)
+                lngSample =   (lngFixedPcm + FRACTION_HALF) >> FRACTION_BITS;
+            else
+                lngSample = -((FRACTION_HALF - lngFixedPcm) >> FRACTION_BITS);
+        } else {
+            lngSample = Maths.round(lngFixedPcm * FIXED_TO_DOUBLE * _dblVolume);
         }
+        if (lngSample > Short.MAX_VALUE)
+            return Short.MAX_VALUE;
+        else if (lngSample < Short.MIN_VALUE)
+            return Short.MIN_VALUE;
+        else
+            return (short) lngSample;
+    }
 
-        private void decodeSoundUnit(@Nonnull AdpcmContext context,
-                                     @Nonnull short[] asiOutPcmBuffer,
-                                     @Nonnull LogContext logContext)
-        {
-            XaAdpcmSoundUnit su = _soundUnitBuilder.build(logContext);
-            _soundUnitDecoder.decodeSoundUnit(context, su, asiOutPcmBuffer, logContext);
-            // reset the builder
-            _soundUnitBuilder = new XaAdpcmSoundUnit.Builder();
+    /** Picks the sound parameter for a sound unit out of the 16 bytes of
+     * interleaved sound parameters at the start of each sound group.
+     * When the redundant copies agree and are valid that is the parameter,
+     * otherwise {@link XaAdpcmSoundUnit.Builder} chooses the best one
+     * and reports the corruption. */
+    private int readSoundParameter(@Nonnull byte[] abAdpcm, int iSoundGroupStart, int iSoundUnit) {
+        XaAdpcmSoundUnit.Builder builder;
+        if (_iAdpcmBitsPerSample == 4) {
+            // the 8 sound parameters (one for each sound unit)
+            // are repeated twice, and are ordered like this:
+            // 0,1,2,3, 0,1,2,3, 4,5,6,7, 4,5,6,7
+            int iFirst = iSoundGroupStart + (iSoundUnit & 3) + (iSoundUnit & 4) * 2;
+            int iParam1 = abAdpcm[iFirst    ] & 0xff;
+            int iParam2 = abAdpcm[iFirst + 4] & 0xff;
+            if (iParam1 == iParam2 && (iParam1 & 0xC0) == 0)
+                return iParam1;
+            builder = new XaAdpcmSoundUnit.Builder();
+            builder.addRedundantParameter(iParam1);
+            builder.addRedundantParameter(iParam2);
+        } else {
+            // the 4 sound parameters (one for each sound unit)
+            // are repeated four times and are ordered like this:
+            // 0,1,2,3, 0,1,2,3, 0,1,2,3, 0,1,2,3
+            int iFirst = iSoundGroupStart + iSoundUnit;
+            int iParam1 = abAdpcm[iFirst] & 0xff;
+            if ((iParam1 & 0xC0) == 0 &&
+                abAdpcm[iFirst +  4] == abAdpcm[iFirst] &&
+                abAdpcm[iFirst +  8] == abAdpcm[iFirst] &&
+                abAdpcm[iFirst + 12] == abAdpcm[iFirst])
+                return iParam1;
+            builder = new XaAdpcmSoundUnit.Builder();
+            for (int iRepeat = 0; iRepeat < 16; iRepeat+=4)
+                builder.addRedundantParameter(abAdpcm[iFirst + iRepeat] & 0xff);
         }
-
+        XaAdpcmSoundUnit su = builder.build(_logContext);
+        return (su.getUncorruptedFilterIndex() << 4) | su.getRange();
     }
 
 }
@@ -38,10 +38,13 @@
 package jpsxdec.cdreaders;
 
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -52,6 +55,7 @@ import jpsxdec.i18n.ILocalizedMessage;
 import jpsxdec.i18n.exception.LocalizedDeserializationFail;
 import jpsxdec.i18n.log.ProgressLogger;
 import jpsxdec.util.IO;
+import jpsxdec.util.Metrics;
 import jpsxdec.util.Misc;
 import jpsxdec.util.TaskCanceledException;
 
@@ -167,6 +171,8 @@ public class CdFileSectorReader implements Closeable {
     private final int _iSectorCount;
 
     private int _iCachedSectorStart;
+    /** Number of sectors in {@link #_abBulkReadCache}. */
+    private int _iCachedSectorCount;
     private int _iSectorsToCache;
     @CheckForNull
     private byte[] _abBulkReadCache;
@@ -366,6 +372,29 @@ public class CdFileSectorReader implements Closeable {
 
     }
 
+    /** Opens the same disc image again for reading only. */
+    private CdFileSectorReader(@Nonnull CdFileSectorReader other)
+            throws CdFileNotFoundException
+    {
+        _sourceFile = other._sourceFile;
+        _sectorFactory = other._sectorFactory;
+        _iSectorCount = other._iSectorCount;
+        _iSectorsToCache = other._iSectorsToCache;
+
+        try {
+            _inputFile = new RandomAccessFile(_sourceFile, "r");
+        } catch (FileNotFoundException ex) {
+            throw new CdFileNotFoundException(_sourceFile, ex);
+        }
+    }
+
+    /** Opens another read-only reader of the same disc image.
+     * Readers are not thread-safe, so each thread needs its own.
+     * Patches in progress are not visible to the copy. */
+    public @Nonnull CdFileSectorReader openReadOnlyCopy() throws CdFileNotFoundException {
+        return new CdFileSectorReader(this);
+    }
+
     private int calculateSectorCount() throws CdReadException {
         try {
             return (int)((_inputFile.length() - _sectorFactory.get1stSectorOffset())
@@ -451,26 +480,39 @@ public class CdFileSectorReader implements Closeable {
     //..........................................................................
 
     public @Nonnull CdSector getSector(int iSector) throws CdReadException {
+        long lngStart = Metrics.start();
+        CdSector sector = readSector(iSector);
+        Metrics.CD_READ.stop(lngStart, _sectorFactory.getRawSectorSize());
+        return sector;
+    }
+
+    private @Nonnull CdSector readSector(int iSector) throws CdReadException {
         if (iSector < 0 || iSector >= _iSectorCount)
             throw new IndexOutOfBoundsException("Sector "+iSector+" not in bounds of CD");
 
-        if (iSector >= _iCachedSectorStart + _iSectorsToCache || iSector < _iCachedSectorStart || _abBulkReadCache == null) {
+        if (iSector >= _iCachedSectorStart + _iCachedSectorCount || iSector < _iCachedSectorStart || _abBulkReadCache == null) {
+            // Reading on from the end of the last read is probably a
+            // sequential scan, so read a block of sectors. Anything else is
+            // probably jumping around the disc, so only read the one sector.
+            boolean blnSequential = iSector == _iCachedSectorStart + _iCachedSectorCount;
+
             _abBulkReadCache = null; // in case of failure, make sure we aren't left with some invalid cache
 
-            _iCachedSectorStart = iSector;
-            _lngCacheFileOffset = getFilePointer(iSector);
+            int iSectorsToRead = blnSequential ? Math.min(_iSectorsToCache, _iSectorCount - iSector) : 1;
+            long lngFileOffset = getFilePointer(iSector);
 
-            byte[] abBulkReadCache = new byte[_sectorFactory.getRawSectorSize() * _iSectorsToCache];
+            // sectors keep a reference to this instead of a copy of their part
+            byte[] abBulkReadCache = new byte[_sectorFactory.getRawSectorSize() * iSectorsToRead];
             try {
-                _inputFile.seek(_lngCacheFileOffset);
-                int iBytesRead = IO.readByteArrayMax(_inputFile, abBulkReadCache, 0, abBulkReadCache.length);
-                if (iBytesRead < _sectorFactory.getRawSectorSize())
-                    throw new RuntimeException("Should have already verified this should not happen");
+                readFully(lngFileOffset, abBulkReadCache);
             } catch (IOException ex) {
                 throw new CdReadException(_sourceFile, ex);
             }
 
             // made sure everything is good before we save the cache
+            _iCachedSectorStart = iSector;
+            _iCachedSectorCount = iSectorsToRead;
+            _lngCacheFileOffset = lngFileOffset;
             _abBulkReadCache = abBulkReadCache;
         }
 
@@ -479,27 +521,51 @@ public class CdFileSectorReader implements Closeable {
         return _sectorFactory.createSector(iSector, _abBulkReadCache, iOffset, _lngCacheFileOffset + iOffset);
     }
 
+    /** Reads with the file channel at the given position instead of seeking.
+     * The disc image isn't memory-mapped because a mapping can't be released
+     * when the file is closed, which keeps the file locked on Windows, and
+     * every reader mapping the whole disc image would quickly use up the
+     * address space of a 32-bit JVM. */
+    private void readFully(long lngFilePointer, @Nonnull byte[] abOut) throws IOException {
+        FileChannel channel = _inputFile.getChannel();
+        ByteBuffer buffer = ByteBuffer.wrap(abOut);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, lngFilePointer + buffer.position()) < 0)
+                throw new EOFException();
+        }
+    }
+
     //..........................................................................
 
-    /** Will fail if CD was not opened with write access. */
-    void writeSector(int iSector, @Nonnull byte[] abSrcUserData)
-            throws CdReadException, CdWriteException
+    /** Reads {@code iCount} consecutive raw sectors directly from the file,
+     * including anything between them (e.g. sub-channel data). */
+    void readRawSectors(int iStartSector, int iCount, @Nonnull byte[] abOut)
+            throws CdReadException
     {
-        CdSector cdSector = getSector(iSector);
-
-        if (cdSector.getCdUserDataSize() != abSrcUserData.length)
-            throw new IllegalArgumentException("Data to write is not the right size.");
-        
-        byte[] abRawData = cdSector.rebuildRawSector(abSrcUserData);
+        try {
+            _inputFile.seek(getFilePointer(iStartSector));
+            IO.readByteArray(_inputFile, abOut, 0, iCount * _sectorFactory.getRawSectorSize());
+        } catch (IOException ex) {
+            throw new CdReadException(_sourceFile, ex);
+        }
+    }
 
-        long lngOffset = (long)_sectorFactory.get1stSectorOffset() + 
-                         (long)_sectorFactory.getRawSectorSize() * iSector;
+    /** Creates a sector of this disc image's type from raw sector data
+     * read by {@link #readRawSectors(int, int, byte[])}. */
+    @Nonnull CdSector createSector(int iSector, @Nonnull byte[] abRawSectors, int iOffset) {
+        return _sectorFactory.createSector(iSector, abRawSectors, iOffset, getFilePointer(iSector));
+    }
 
+    /** Writes {@code iCount} consecutive raw sectors in one go.
+     * Will fail if CD was not opened with write access. */
+    void writeRawSectors(int iStartSector, int iCount, @Nonnull byte[] abRawSectors)
+            throws CdWriteException
+    {
+        // sectors read after this need to see the new data
+        _abBulkReadCache = null;
         try {
-            _inputFile.seek(lngOffset);
-            _inputFile.write(abRawData);
-            // clearing the cache could be done here, but it wouldn't
-            // affect anything that has already been read (which is most things)
+            _inputFile.seek(getFilePointer(iStartSector));
+            _inputFile.write(abRawSectors, 0, iCount * _sectorFactory.getRawSectorSize());
         } catch (IOException ex) {
             throw new CdWriteException(_sourceFile, ex);
         }
@@ -160,6 +160,33 @@ public abstract class CdSector {
                                   _iByteStartOffset+getRawCdSectorSize());
     }
 
+    /** Checks the sector's EDC and ECC (if it has them) against its data,
+     * directly in the sector buffer. */
+    final public @Nonnull SectorErrorCorrection.Status checkErrorCorrection() {
+        int iSectorStart;
+        switch (getRawCdSectorSize()) {
+            case SECTOR_SIZE_2352_BIN:
+                iSectorStart = _iByteStartOffset;
+                break;
+            case SECTOR_SIZE_2336_BIN_NOSYNC:
+                // missing the sync and header, which mode 2 doesn't check
+                iSectorStart = _iByteStartOffset - 16;
+                break;
+            default:
+                return SectorErrorCorrection.Status.NOT_AVAILABLE;
+        }
+        switch (getType()) {
+            case MODE1:
+                return SectorErrorCorrection.checkMode1(_abSectorBytes, iSectorStart);
+            case MODE2FORM1:
+                return SectorErrorCorrection.checkMode2Form1(_abSectorBytes, iSectorStart);
+            case MODE2FORM2:
+                return SectorErrorCorrection.checkMode2Form2(_abSectorBytes, iSectorStart);
+            default:
+                return SectorErrorCorrection.Status.NOT_AVAILABLE;
+        }
+    }
+
     /** Returns an InputStream of the 'user data' portion of the sector. */
     final public @Nonnull ByteArrayFPIS getCdUserDataStream() {
         int iStart = _iByteStartOffset + getHeaderDataSize();
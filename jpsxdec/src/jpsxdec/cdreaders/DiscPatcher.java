@@ -37,15 +37,23 @@
 
 package jpsxdec.cdreaders;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import jpsxdec.i18n.I;
 import jpsxdec.i18n.UnlocalizedMessage;
 import jpsxdec.i18n.log.ProgressLogger;
 import jpsxdec.util.IO;
@@ -222,7 +230,28 @@ public class DiscPatcher {
         }
     }
 
+    /** Most consecutive patched sectors read, rebuilt, and written at once. */
+    private static final int MAX_RUN_SECTORS = 256;
+
+    /** Applies the patches with a thread for every processor.
+     * @see #applyPatches(CdFileSectorReader, ProgressLogger, int) */
+    public void applyPatches(@Nonnull CdFileSectorReader cd, @Nonnull ProgressLogger pl)
+            throws CdFileSectorReader.CdReopenException,
+                   CdFileSectorReader.CdReadException,
+                   CdFileSectorReader.CdWriteException,
+                   PatchReadException,
+                   TaskCanceledException
+    {
+        applyPatches(cd, pl, Runtime.getRuntime().availableProcessors());
+    }
+
     /**
+     * Patched sectors are handled in runs of consecutive sectors: each run is
+     * read with one read, the error correction of its sectors is rebuilt
+     * by {@code iThreads} threads, and then it is written with one write.
+     * Afterwards every patched sector is read back to check that its
+     * error correction is correct.
+     *
      * @throws jpsxdec.cdreaders.CdFileSectorReader.CdReopenException
      *         error reopening cd for writing
      * @throws jpsxdec.cdreaders.CdFileSectorReader.CdReadException
@@ -233,7 +262,8 @@ public class DiscPatcher {
      *         error reading temp patch file while patching
      * @throws TaskCanceledException n/a
      */
-    public void applyPatches(@Nonnull CdFileSectorReader cd, @Nonnull ProgressLogger pl)
+    public void applyPatches(@Nonnull CdFileSectorReader cd, @Nonnull ProgressLogger pl,
+                             int iThreads)
             throws CdFileSectorReader.CdReopenException,
                    CdFileSectorReader.CdReadException,
                    CdFileSectorReader.CdWriteException,
@@ -243,54 +273,171 @@ public class DiscPatcher {
         if (cd.getSectorCount() != _iSectorCount)
             throw new IllegalArgumentException();
 
-        Iterator<PatchEntry> it = _patches.iterator();
+        long lngStart = System.currentTimeMillis();
+
+        // group the patches by sector, and the sectors into consecutive runs
+        List<List<PatchEntry>> sectorPatches = new ArrayList<List<PatchEntry>>();
+        for (PatchEntry patch : _patches) {
+            if (sectorPatches.isEmpty() ||
+                sectorPatches.get(sectorPatches.size() - 1).get(0).iSector != patch.iSector)
+                sectorPatches.add(new ArrayList<PatchEntry>());
+            sectorPatches.get(sectorPatches.size() - 1).add(patch);
+        }
 
-        pl.progressStart(_patches.size());
+        pl.progressStart(sectorPatches.size());
 
         cd.reopenForWriting();
 
-        CdSector sector = null;
-        byte[] abUserData = null;
-        for (int i = 0; it.hasNext(); i++) {
-            PatchEntry patch = it.next();
-
-            if (sector != null) {
-                // don't apply the changes until a sector is fully patched
-                if (patch.iSector != sector.getSectorIndexFromStart()) {
-                    // write
-                    pl.log(Level.INFO, new UnlocalizedMessage("Writing patched sector " + sector.getSectorIndexFromStart()));
-                    assert abUserData != null; // is not null if sector is not null
-                    cd.writeSector(sector.getSectorIndexFromStart(), abUserData);
-                    sector = null;
-                    abUserData = null;
+        ExecutorService executor = iThreads > 1 ? Executors.newFixedThreadPool(iThreads) : null;
+        try {
+            PatchFileReader patchReader = new PatchFileReader();
+            byte[] abRun = new byte[MAX_RUN_SECTORS * cd.getRawSectorSize()];
+            int iSectorsDone = 0;
+            while (iSectorsDone < sectorPatches.size()) {
+                int iRunSize = 1;
+                int iRunStart = sectorPatches.get(iSectorsDone).get(0).iSector;
+                while (iRunSize < MAX_RUN_SECTORS &&
+                       iSectorsDone + iRunSize < sectorPatches.size() &&
+                       sectorPatches.get(iSectorsDone + iRunSize).get(0).iSector == iRunStart + iRunSize)
+                {
+                    iRunSize++;
+                }
+
+                pl.log(Level.INFO, new UnlocalizedMessage("Writing patched sectors " +
+                        iRunStart + "-" + (iRunStart + iRunSize - 1)));
+                cd.readRawSectors(iRunStart, iRunSize, abRun);
+                RunSector[] aoRun = new RunSector[iRunSize];
+                for (int i = 0; i < iRunSize; i++) {
+                    CdSector sector = cd.createSector(iRunStart + i, abRun, i * cd.getRawSectorSize());
+                    byte[] abUserData = sector.getCdUserDataCopy();
+                    for (PatchEntry patch : sectorPatches.get(iSectorsDone + i)) {
+                        patchReader.read(patch.lngOffsetInPatchFile, abUserData,
+                                         patch.iOffsetInSector, patch.iNumberOfBytesToReplace);
+                    }
+                    aoRun[i] = new RunSector(sector, abUserData, abRun, i * cd.getRawSectorSize());
                 }
+                rebuild(aoRun, executor, iThreads);
+                cd.writeRawSectors(iRunStart, iRunSize, abRun);
+
+                iSectorsDone += iRunSize;
+                if (pl.isSeekingEvent())
+                    pl.event(new UnlocalizedMessage("Applying patch " + iSectorsDone + " of " + sectorPatches.size()));
+                pl.progressUpdate(iSectorsDone);
             }
-            
-            if (sector == null) {
-                sector = cd.getSector(patch.iSector);
-                abUserData = sector.getCdUserDataCopy();
+        } finally {
+            if (executor != null)
+                executor.shutdownNow();
+        }
+
+        // read back what was written
+        for (List<PatchEntry> patches : sectorPatches) {
+            int iSector = patches.get(0).iSector;
+            if (cd.getSector(iSector).checkErrorCorrection().isDamaged())
+                pl.log(Level.SEVERE, I.PATCH_VERIFY_FAILED(iSector));
+        }
+
+        long lngMillis = Math.max(1, System.currentTimeMillis() - lngStart);
+        pl.log(Level.INFO, I.PATCH_SECTORS_WRITTEN(sectorPatches.size(), lngMillis / 1000.0,
+                                                   sectorPatches.size() * 1000.0 / lngMillis));
+
+        pl.progressEnd();
+        IO.closeSilently(_patchFile, LOG); // the patches were applied, don't care thes close fails
+    }
+
+    /** Rebuilds the raw sectors of a run, split evenly between threads. */
+    private static void rebuild(@Nonnull final RunSector[] aoRun,
+                                @CheckForNull ExecutorService executor, int iThreads)
+    {
+        if (executor == null || aoRun.length < 2) {
+            for (RunSector runSector : aoRun) {
+                runSector.rebuild();
             }
+            return;
+        }
 
+        int iPerThread = (aoRun.length + iThreads - 1) / iThreads;
+        List<Future<?>> tasks = new ArrayList<Future<?>>(iThreads);
+        for (int iStart = 0; iStart < aoRun.length; iStart += iPerThread) {
+            final int iFrom = iStart, iTo = Math.min(aoRun.length, iStart + iPerThread);
+            tasks.add(executor.submit(new Runnable() {
+                public void run() {
+                    for (int i = iFrom; i < iTo; i++) {
+                        aoRun[i].rebuild();
+                    }
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
             try {
-                _patchFile.seek(patch.lngOffsetInPatchFile);
-                assert abUserData != null; // is not null if sector is not null
-                IO.readByteArray(_patchFile, abUserData, patch.iOffsetInSector, patch.iNumberOfBytesToReplace);
-            } catch (IOException ex) {
-                throw new PatchReadException(_patchFileName, ex);
+                task.get();
+            } catch (InterruptedException ex) {
+                throw new RuntimeException("Interrupted while rebuilding sectors", ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                if (cause instanceof Error)
+                    throw (Error) cause;
+                throw new RuntimeException(cause);
             }
+        }
+    }
+
+    /** A patched sector in a run, rebuilt back into the run's buffer. */
+    private static class RunSector {
+        @Nonnull
+        private final CdSector _sector;
+        @Nonnull
+        private final byte[] _abUserData;
+        @Nonnull
+        private final byte[] _abRun;
+        private final int _iOffset;
 
-            if (pl.isSeekingEvent())
-                pl.event(new UnlocalizedMessage("Applying patch " + i + " of " + _patches.size()));
-            pl.progressUpdate(i);
+        public RunSector(@Nonnull CdSector sector, @Nonnull byte[] abUserData,
+                         @Nonnull byte[] abRun, int iOffset)
+        {
+            _sector = sector;
+            _abUserData = abUserData;
+            _abRun = abRun;
+            _iOffset = iOffset;
         }
-        if (sector != null) {
-            // final write
-            assert abUserData != null; // is not null if sector is not null
-            cd.writeSector(sector.getSectorIndexFromStart(), abUserData);
+
+        public void rebuild() {
+            byte[] abRaw = _sector.rebuildRawSector(_abUserData);
+            System.arraycopy(abRaw, 0, _abRun, _iOffset, abRaw.length);
         }
+    }
 
-        pl.progressEnd();
-        IO.closeSilently(_patchFile, LOG); // the patches were applied, don't care thes close fails
+    /** Reads the patch file through a buffer, since patches added one after
+     * another are usually applied one after another. */
+    private class PatchFileReader {
+        private final byte[] _abBuffer = new byte[64 * 1024];
+        private long _lngBufferStart = -1;
+        private int _iBufferSize = 0;
+
+        public void read(long lngOffset, @Nonnull byte[] abOut, int iOutPos, int iLength)
+                throws PatchReadException
+        {
+            try {
+                if (iLength > _abBuffer.length) {
+                    _patchFile.seek(lngOffset);
+                    IO.readByteArray(_patchFile, abOut, iOutPos, iLength);
+                    return;
+                }
+                if (lngOffset < _lngBufferStart ||
+                    lngOffset + iLength > _lngBufferStart + _iBufferSize)
+                {
+                    _patchFile.seek(lngOffset);
+                    _lngBufferStart = lngOffset;
+                    _iBufferSize = IO.readByteArrayMax(_patchFile, _abBuffer, 0, _abBuffer.length);
+                    if (_iBufferSize < iLength)
+                        throw new EOFException();
+                }
+                System.arraycopy(_abBuffer, (int)(lngOffset - _lngBufferStart), abOut, iOutPos, iLength);
+            } catch (IOException ex) {
+                throw new PatchReadException(_patchFileName, ex);
+            }
+        }
     }
 
     public void cancel() {
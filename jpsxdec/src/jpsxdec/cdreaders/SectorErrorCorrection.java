@@ -16,6 +16,7 @@
 package jpsxdec.cdreaders;
 
 import java.util.Arrays;
+import javax.annotation.Nonnull;
 
 /**
  * Code ported from sector.d from project http://code.google.com/p/dutils/
@@ -109,18 +110,71 @@ public class SectorErrorCorrection {
     private static final int RS_L12_BITS = 8;
     private static final int L2_P = 43 * 2 * 2;
     private static final int L2_Q = 26 * 2 * 2;
+
+    /** {@link #EDC_crctable} extended to consume 8 bytes at a time
+     * (slice-by-8). Table {@code k} is at {@code k * 256}. */
+    private static final int[] EDC_SLICE8 = new int[8 * 256];
+    /** Products of every byte value with each ECC P coefficient,
+     * {@code [(t * 24 + i) * 256 + byte]}. */
+    private static final byte[] ECC_P_PRODUCTS = new byte[2 * 24 * 256];
+    /** Products of every byte value with each ECC Q coefficient,
+     * {@code [(t * 43 + i) * 256 + byte]}. */
+    private static final byte[] ECC_Q_PRODUCTS = new byte[2 * 43 * 256];
+    static {
+        for (int i = 0; i < 256; i++)
+            EDC_SLICE8[i] = (int)EDC_crctable[i];
+        for (int k = 1; k < 8; k++) {
+            for (int i = 0; i < 256; i++) {
+                int iPrev = EDC_SLICE8[(k - 1) * 256 + i];
+                EDC_SLICE8[k * 256 + i] = (iPrev >>> 8) ^ EDC_SLICE8[iPrev & 0xff];
+            }
+        }
+
+        for (int t = 0; t < 2; t++) {
+            for (int i = 0; i < 24; i++)
+                fillProducts(ECC_P_PRODUCTS, (t * 24 + i) * 256, DP[t][i]);
+            for (int i = 0; i < 43; i++)
+                fillProducts(ECC_Q_PRODUCTS, (t * 43 + i) * 256, DQ[t][i]);
+        }
+    }
+
+    private static void fillProducts(byte[] abProducts, int iStart, int iCoefficientLog) {
+        // 0 stays 0
+        for (int iByte = 1; iByte < 256; iByte++) {
+            int sum = rs_l12_log[iByte] + iCoefficientLog;
+            if (sum >= ((1 << RS_L12_BITS) - 1)) {
+                sum -= (1 << RS_L12_BITS) - 1;
+            }
+            abProducts[iStart + iByte] = (byte)rs_l12_alog[sum];
+        }
+    }
     
 
     /** Generate sector EDC. It is a 32-but value, unsigned in a long. */
     public static long generateErrorDetectionAndCorrection(byte[] data, 
                                                            int iStart, int iEnd)
     {
-        long edc_i = 0;
-        for (int i = iStart; i < iEnd; i++) {
-            edc_i = EDC_crctable[(int)((edc_i ^ data[i]) & 0xFF)] ^ (edc_i >> 8);
-        }
+        return edc(data, iStart, iEnd) & 0xffffffffL;
+    }
 
-        return edc_i;
+    /** Same as {@link #generateErrorDetectionAndCorrection(byte[], int, int)}
+     * but 8 bytes at a time, and the 32-bit value is left in an int. */
+    private static int edc(byte[] data, int iStart, int iEnd) {
+        final int[] T = EDC_SLICE8;
+        int edc = 0;
+        int i = iStart;
+        for (int iEnd8 = iEnd - 7; i < iEnd8; i += 8) {
+            int a = edc ^ ((data[i  ] & 0xff)       | (data[i+1] & 0xff) <<  8 |
+                           (data[i+2] & 0xff) << 16 | (data[i+3] & 0xff) << 24);
+            edc = T[7*256 + (a         & 0xff)] ^ T[6*256 + ((a >>  8) & 0xff)] ^
+                  T[5*256 + ((a >> 16) & 0xff)] ^ T[4*256 + (a >>> 24)        ] ^
+                  T[3*256 + (data[i+4] & 0xff)] ^ T[2*256 + (data[i+5] & 0xff)] ^
+                  T[1*256 + (data[i+6] & 0xff)] ^ T[          data[i+7] & 0xff ];
+        }
+        for (; i < iEnd; i++) {
+            edc = T[(edc ^ data[i]) & 0xff] ^ (edc >>> 8);
+        }
+        return edc;
     }
     
     /** Generate sector ECC P.
@@ -133,23 +187,15 @@ public class SectorErrorCorrection {
         assert output.length - output_p >= L2_P;
 
         for (int j = 0; j < 43; j++, output_p += 2, data_p += 2) {
-            for (int i = 0; i < 24; i++) {
-                for (int n = 0; n < 2; n++) {
+            for (int n = 0; n < 2; n++) {
+                int p0 = 0, p1 = 0;
+                for (int i = 0; i < 24; i++) {
                     int cdata = data[data_p+ i * 2 * 43 + n] & 0xff;
-                    if (cdata == 0) {
-                        continue;
-                    }
-
-                    int base = rs_l12_log[cdata];
-
-                    for (int t = 0; t < 2; t++) {
-                        int sum = base + DP[t][i];
-                        if (sum >= ((1 << RS_L12_BITS) - 1)) {
-                            sum -= (1 << RS_L12_BITS) - 1;
-                        }
-                        output[output_p+ 43 * 2 * t + n] ^= rs_l12_alog[sum];
-                    }
+                    p0 ^= ECC_P_PRODUCTS[(     i) * 256 + cdata];
+                    p1 ^= ECC_P_PRODUCTS[(24 + i) * 256 + cdata];
                 }
+                output[output_p+ n] ^= p0;
+                output[output_p+ 43 * 2 + n] ^= p1;
             }
         }
     }
@@ -163,25 +209,20 @@ public class SectorErrorCorrection {
         assert data.length - data_p >= 4 + 0x800 + 4 + 8 + L2_P;
         assert output.length - output_p >= L2_Q;
 
+        final int Q_DATA_SIZE = 4 + 0x800 + 4 + 8 + L2_P;
         for (int j = 0; j < 26; j++, output_p += 2) {
-            for (int i = 0; i < 43; i++) {
-                for (int n = 0; n < 2; n++) {
-                    int cdata = data[data_p+ (j * 43 * 2 + i * 2 * 44 + n) % (4 + 0x800 + 4 + 8 + L2_P)] & 0xff;
-                    if (cdata == 0) {
-                        continue;
-                    }
-
-                    int base = rs_l12_log[cdata];
-
-                    for (int t = 0; t < 2; t++) {
-                        int sum = base + DQ[t][i];
-                        if (sum >= ((1 << RS_L12_BITS) - 1)) {
-                            sum -= (1 << RS_L12_BITS) - 1;
-                        }
-                        output[output_p+ 26 * 2 * t + n] ^= rs_l12_alog[sum];
-
-                    }
+            for (int n = 0; n < 2; n++) {
+                int q0 = 0, q1 = 0;
+                int iOfs = j * 43 * 2 + n;
+                for (int i = 0; i < 43; i++, iOfs += 2 * 44) {
+                    if (iOfs >= Q_DATA_SIZE)
+                        iOfs -= Q_DATA_SIZE;
+                    int cdata = data[data_p+ iOfs] & 0xff;
+                    q0 ^= ECC_Q_PRODUCTS[(     i) * 256 + cdata];
+                    q1 ^= ECC_Q_PRODUCTS[(43 + i) * 256 + cdata];
                 }
+                output[output_p+ n] ^= q0;
+                output[output_p+ 26 * 2 + n] ^= q1;
             }
         }
     }
@@ -249,5 +290,124 @@ public class SectorErrorCorrection {
         }
     }
 
+    // ------------------------------------------------------------------------
+    // Verification
+
+    /** Result of checking a sector's error detection and correction codes. */
+    public enum Status {
+        /** The sector has no error detection or correction codes to check
+         * (CD audio, or a disc image without them). */
+        NOT_AVAILABLE,
+        /** Everything that was checked matched. */
+        OK,
+        /** The EDC does not match the data. */
+        BAD_EDC,
+        /** The ECC P or Q parity does not match the data. */
+        BAD_ECC,
+        /** Neither the EDC nor ECC match the data. */
+        BAD_EDC_AND_ECC;
+
+        public boolean isDamaged() {
+            return this == BAD_EDC || this == BAD_ECC || this == BAD_EDC_AND_ECC;
+        }
+
+        private static @Nonnull Status of(boolean blnEdcOk, boolean blnEccOk) {
+            if (blnEdcOk)
+                return blnEccOk ? OK : BAD_ECC;
+            else
+                return blnEccOk ? BAD_EDC : BAD_EDC_AND_ECC;
+        }
+    }
+
+    /** Checks a Mode 1 sector. The EDC covers the sync and header too.
+     * @param iSectorStart Where the 2352 byte sector starts in the array. */
+    public static @Nonnull Status checkMode1(byte[] abSector, int iSectorStart) {
+        boolean blnEdcOk = edc(abSector, iSectorStart, iSectorStart + 0x810) ==
+                           readInt32LE(abSector, iSectorStart + 0x810);
+        boolean blnEccOk = checkErrorCorrectionCode(abSector, iSectorStart, false);
+        return Status.of(blnEdcOk, blnEccOk);
+    }
+
+    /** Checks a Mode 2 Form 1 sector. The header is treated as zeroes for the ECC.
+     * @param iSectorStart Where the 2352 byte sector would start in the array.
+     *                     The sync and header are never read, so for images
+     *                     without them this may point before the sector data. */
+    public static @Nonnull Status checkMode2Form1(byte[] abSector, int iSectorStart) {
+        boolean blnEdcOk = edc(abSector, iSectorStart + 0x10, iSectorStart + 0x818) ==
+                           readInt32LE(abSector, iSectorStart + 0x818);
+        boolean blnEccOk = checkErrorCorrectionCode(abSector, iSectorStart, true);
+        return Status.of(blnEdcOk, blnEccOk);
+    }
+
+    /** Checks a Mode 2 Form 2 sector, which has no ECC, and the EDC is optional
+     * (0 when not used).
+     * @param iSectorStart Same as {@link #checkMode2Form1(byte[], int)}. */
+    public static @Nonnull Status checkMode2Form2(byte[] abSector, int iSectorStart) {
+        int iStoredEdc = readInt32LE(abSector, iSectorStart + 0x92C);
+        if (iStoredEdc == 0)
+            return Status.NOT_AVAILABLE;
+        boolean blnEdcOk = edc(abSector, iSectorStart + 0x10, iSectorStart + 0x92C) == iStoredEdc;
+        return Status.of(blnEdcOk, true);
+    }
+
+    /** Recalculates the ECC P and Q parity of a sector and compares it
+     * with what is stored at 0x81C and 0x8C8, without changing or copying
+     * the sector.
+     * @param iSectorStart Where the 2352 byte sector starts in the array.
+     * @param blnZeroAddress If the 4 header bytes should be treated as zeroes
+     *                       (Mode 2), otherwise they are used as-is (Mode 1).
+     * @return if both P and Q match. */
+    public static boolean checkErrorCorrectionCode(byte[] abSector, int iSectorStart,
+                                                   boolean blnZeroAddress)
+    {
+        final int iData = iSectorStart + 12;
+        // with the address zeroed, the first 4 bytes of data are skipped
+        final int iFirstData = blnZeroAddress ? 4 : 0;
+
+        // P: 43 columns of 24 bytes, for each of the 2 bytes in a word
+        for (int j = 0; j < 43; j++) {
+            for (int n = 0; n < 2; n++) {
+                int p0 = 0, p1 = 0;
+                for (int i = 0; i < 24; i++) {
+                    int iOfs = i * 2 * 43 + j * 2 + n;
+                    if (iOfs < iFirstData)
+                        continue;
+                    int cdata = abSector[iData + iOfs] & 0xff;
+                    p0 ^= ECC_P_PRODUCTS[(     i) * 256 + cdata];
+                    p1 ^= ECC_P_PRODUCTS[(24 + i) * 256 + cdata];
+                }
+                int iParity = iSectorStart + 0x81C + j * 2 + n;
+                if ((byte)p0 != abSector[iParity] || (byte)p1 != abSector[iParity + 43 * 2])
+                    return false;
+            }
+        }
+
+        // Q: 26 diagonals of 43 bytes, which include the P parity
+        final int Q_DATA_SIZE = 4 + 0x800 + 4 + 8 + L2_P;
+        for (int j = 0; j < 26; j++) {
+            for (int n = 0; n < 2; n++) {
+                int q0 = 0, q1 = 0;
+                int iOfs = j * 43 * 2 + n;
+                for (int i = 0; i < 43; i++, iOfs += 2 * 44) {
+                    if (iOfs >= Q_DATA_SIZE)
+                        iOfs -= Q_DATA_SIZE;
+                    if (iOfs < iFirstData)
+                        continue;
+                    int cdata = abSector[iData + iOfs] & 0xff;
+                    q0 ^= ECC_Q_PRODUCTS[(     i) * 256 + cdata];
+                    q1 ^= ECC_Q_PRODUCTS[(43 + i) * 256 + cdata];
+                }
+                int iParity = iSectorStart + 0x8C8 + j * 2 + n;
+                if ((byte)q0 != abSector[iParity] || (byte)q1 != abSector[iParity + 26 * 2])
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readInt32LE(byte[] ab, int i) {
+        return (ab[i] & 0xff) | (ab[i+1] & 0xff) << 8 | (ab[i+2] & 0xff) << 16 | (ab[i+3] & 0xff) << 24;
+    }
+
 
 }
@@ -0,0 +1,203 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.cdreaders;
+
+import java.io.Closeable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.util.IO;
+import jpsxdec.util.player.ClosableBoundedBlockingQueue;
+
+/** Reads sectors in order on a background thread so the disc can be read
+ * while the sectors before are being processed.
+ *<p>
+ * Sectors are read in blocks using a separate reader of the same disc image,
+ * and at most a given number of blocks are waiting at any time.
+ * {@link #getSector(int)} is meant to be called with each sector in order.
+ * If a different sector is requested, or anything goes wrong with reading
+ * ahead (including opening the disc image again), it falls back to reading
+ * the sector from the original reader.
+ *<p>
+ * Always {@link #close()} when done to stop the thread. */
+public class SectorReadAhead implements Runnable, Closeable {
+
+    private static final Logger LOG = Logger.getLogger(SectorReadAhead.class.getName());
+
+    /** Default number of sectors read at a time. */
+    public static final int DEFAULT_BLOCK_SECTORS = 64;
+    /** Default number of blocks that can be waiting to be used. */
+    public static final int DEFAULT_DEPTH = 8;
+
+    /** Sectors read by the background thread. */
+    private static class Block {
+        public final int iStartSector;
+        @Nonnull
+        public final CdSector[] aoSectors;
+        /** Number of sectors read. Less than the array size if there was an error. */
+        public int iCount = 0;
+
+        public Block(int iStartSector, int iSectorCount) {
+            this.iStartSector = iStartSector;
+            aoSectors = new CdSector[iSectorCount];
+        }
+
+        public boolean contains(int iSector) {
+            return iSector >= iStartSector && iSector < iStartSector + iCount;
+        }
+    }
+
+    /** Used if a sector isn't read ahead. */
+    @Nonnull
+    private final CdFileSectorReader _cd;
+    /** Only used by the background thread. */
+    @CheckForNull
+    private final CdFileSectorReader _readAheadCd;
+    private final int _iStartSector;
+    /** Exclusive. */
+    private final int _iEndSector;
+    private final int _iBlockSectors;
+    @Nonnull
+    private final ClosableBoundedBlockingQueue<Block> _queue;
+
+    @CheckForNull
+    private Block _currentBlock;
+    /** The next block to take from the queue should start at this sector. */
+    private int _iNextBlockStart;
+    /** Once a sector is not where it's expected, stop using the read-ahead. */
+    private boolean _blnInOrder = true;
+
+    public SectorReadAhead(@Nonnull CdFileSectorReader cd) {
+        this(cd, 0, cd.getSectorCount() - 1, DEFAULT_BLOCK_SECTORS, DEFAULT_DEPTH);
+    }
+
+    /** Starts reading sectors in the background right away.
+     * @param iBlockSectors Number of sectors read at a time.
+     * @param iDepth Number of blocks that can be waiting to be used. */
+    public SectorReadAhead(@Nonnull CdFileSectorReader cd,
+                           int iStartSector, int iEndSectorInclusive,
+                           int iBlockSectors, int iDepth)
+    {
+        if (iBlockSectors < 1 || iDepth < 1)
+            throw new IllegalArgumentException();
+        _cd = cd;
+        _iStartSector = _iNextBlockStart = iStartSector;
+        _iEndSector = iEndSectorInclusive + 1;
+        _iBlockSectors = iBlockSectors;
+        _queue = new ClosableBoundedBlockingQueue<Block>(iDepth);
+        CdFileSectorReader readAheadCd = null;
+        try {
+            readAheadCd = cd.openReadOnlyCopy();
+        } catch (CdFileSectorReader.CdFileNotFoundException ex) {
+            LOG.log(Level.WARNING, "Unable to open disc image again to read ahead", ex);
+            _blnInOrder = false;
+        }
+        _readAheadCd = readAheadCd;
+        if (readAheadCd != null) {
+            Thread thread = new Thread(this, getClass().getSimpleName() + " " + cd.getSourceFile());
+            // don't keep the program running if someone forgets to close
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public void run() {
+        try {
+            for (int iBlockStart = _iStartSector; iBlockStart < _iEndSector; iBlockStart += _iBlockSectors) {
+                Block block = new Block(iBlockStart, Math.min(_iBlockSectors, _iEndSector - iBlockStart));
+                try {
+                    while (block.iCount < block.aoSectors.length) {
+                        block.aoSectors[block.iCount] = _readAheadCd.getSector(iBlockStart + block.iCount);
+                        block.iCount++;
+                    }
+                } catch (CdFileSectorReader.CdReadException ex) {
+                    // let the original reader run into the error
+                    LOG.log(Level.WARNING, "Read-ahead stopped", ex);
+                    if (block.iCount > 0)
+                        _queue.add(block);
+                    break;
+                }
+                if (!_queue.add(block))
+                    break; // closed
+            }
+        } catch (InterruptedException ex) {
+            // closing
+        } catch (RuntimeException ex) {
+            // the original reader will be used instead
+            LOG.log(Level.SEVERE, "Read-ahead failed", ex);
+        } finally {
+            _queue.closeWhenEmpty();
+            IO.closeSilently(_readAheadCd, LOG);
+        }
+    }
+
+    /** Returns the sector, ideally already read by the background thread. */
+    public @Nonnull CdSector getSector(int iSector) throws CdFileSectorReader.CdReadException {
+        if (_blnInOrder) {
+            if (_currentBlock != null && _currentBlock.contains(iSector))
+                return _currentBlock.aoSectors[iSector - _currentBlock.iStartSector];
+
+            if (iSector == _iNextBlockStart) {
+                Block block = null;
+                try {
+                    block = _queue.take();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                if (block != null) {
+                    _currentBlock = block;
+                    _iNextBlockStart = block.iStartSector + block.iCount;
+                    return block.aoSectors[0];
+                }
+            }
+
+            // out of order, or nothing more was read ahead
+            close();
+        }
+        return _cd.getSector(iSector);
+    }
+
+    /** Stops reading ahead. Sectors can still be read, but directly
+     * from the original reader. */
+    public void close() {
+        _blnInOrder = false;
+        _currentBlock = null;
+        _queue.closeNow();
+    }
+}
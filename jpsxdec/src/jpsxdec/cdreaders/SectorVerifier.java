@@ -0,0 +1,289 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.cdreaders;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nonnull;
+import jpsxdec.util.IO;
+
+/** Checks the EDC and ECC of every sector in a range of a disc image,
+ * splitting the range between threads that each read their own
+ * copy of the disc image. */
+public class SectorVerifier {
+
+    private static final Logger LOG = Logger.getLogger(SectorVerifier.class.getName());
+
+    /** A sector whose EDC or ECC does not match its data. */
+    public static class BadSector {
+        public final int iSector;
+        @Nonnull
+        public final SectorErrorCorrection.Status status;
+
+        public BadSector(int iSector, @Nonnull SectorErrorCorrection.Status status) {
+            this.iSector = iSector;
+            this.status = status;
+        }
+
+        @Override
+        public String toString() {
+            return iSector + " " + status;
+        }
+    }
+
+    /** Totals of a verification. */
+    public static class Result {
+        /** Sorted by sector. */
+        @Nonnull
+        public final List<BadSector> badSectors;
+        /** Sectors that had EDC or ECC to check. */
+        public final int iVerifiedCount;
+        /** Sectors without any EDC or ECC (CD audio, Form 2 without EDC,
+         * or images without raw sectors). */
+        public final int iNotAvailableCount;
+
+        private Result(@Nonnull List<BadSector> badSectors,
+                       int iVerifiedCount, int iNotAvailableCount)
+        {
+            this.badSectors = badSectors;
+            this.iVerifiedCount = iVerifiedCount;
+            this.iNotAvailableCount = iNotAvailableCount;
+        }
+    }
+
+    /** Verifies sectors {@code iStartSector} to {@code iEndSector} inclusive.
+     * If the disc image can't be opened again for each thread,
+     * falls back to 1 thread. */
+    public static @Nonnull Result verify(@Nonnull CdFileSectorReader cd,
+                                         int iStartSector, int iEndSector,
+                                         int iThreads)
+            throws CdFileSectorReader.CdReadException
+    {
+        int iSectorCount = iEndSector - iStartSector + 1;
+        int iPartCount = Math.max(1, Math.min(iThreads, iSectorCount / MIN_SECTORS_PER_PART));
+        if (iPartCount < 2)
+            return new Part(cd, iStartSector, iEndSector).call();
+
+        List<Part> parts = new ArrayList<Part>(iPartCount);
+        try {
+            int iPartSize = iSectorCount / iPartCount;
+            for (int i = 0; i < iPartCount; i++) {
+                int iPartStart = iStartSector + i * iPartSize;
+                int iPartEnd = (i == iPartCount - 1) ? iEndSector : iPartStart + iPartSize - 1;
+                CdFileSectorReader cdCopy;
+                try {
+                    cdCopy = cd.openReadOnlyCopy();
+                } catch (CdFileSectorReader.CdFileNotFoundException ex) {
+                    LOG.log(Level.WARNING, "Unable to open disc image again to verify in parallel", ex);
+                    return new Part(cd, iStartSector, iEndSector).call();
+                }
+                parts.add(new Part(cdCopy, iPartStart, iPartEnd));
+            }
+            return verifyParts(parts);
+        } finally {
+            for (Part part : parts) {
+                IO.closeSilently(part._cd, LOG);
+            }
+        }
+    }
+
+    /** Parts smaller than this aren't worth their own thread. */
+    private static final int MIN_SECTORS_PER_PART = 1000;
+
+    private static @Nonnull Result verifyParts(@Nonnull List<Part> parts)
+            throws CdFileSectorReader.CdReadException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(parts.size());
+        try {
+            List<Future<Result>> tasks = new ArrayList<Future<Result>>(parts.size());
+            for (Part part : parts) {
+                tasks.add(executor.submit(part));
+            }
+            // parts are in sector order, so the bad sectors stay sorted
+            List<BadSector> badSectors = new ArrayList<BadSector>();
+            int iVerifiedCount = 0, iNotAvailableCount = 0;
+            for (Future<Result> task : tasks) {
+                Result result;
+                try {
+                    result = task.get();
+                } catch (InterruptedException ex) {
+                    throw new RuntimeException("Interrupted while verifying sectors", ex);
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof CdFileSectorReader.CdReadException)
+                        throw (CdFileSectorReader.CdReadException) cause;
+                    if (cause instanceof RuntimeException)
+                        throw (RuntimeException) cause;
+                    if (cause instanceof Error)
+                        throw (Error) cause;
+                    throw new RuntimeException(cause);
+                }
+                badSectors.addAll(result.badSectors);
+                iVerifiedCount += result.iVerifiedCount;
+                iNotAvailableCount += result.iNotAvailableCount;
+            }
+            return new Result(badSectors, iVerifiedCount, iNotAvailableCount);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class Part implements Callable<Result> {
+        @Nonnull
+        private final CdFileSectorReader _cd;
+        private final int _iStartSector, _iEndSector;
+
+        public Part(@Nonnull CdFileSectorReader cd, int iStartSector, int iEndSector) {
+            _cd = cd;
+            _iStartSector = iStartSector;
+            _iEndSector = iEndSector;
+        }
+
+        public @Nonnull Result call() throws CdFileSectorReader.CdReadException {
+            List<BadSector> badSectors = new ArrayList<BadSector>();
+            int iVerifiedCount = 0, iNotAvailableCount = 0;
+            for (int iSector = _iStartSector; iSector <= _iEndSector; iSector++) {
+                SectorErrorCorrection.Status status = _cd.getSector(iSector).checkErrorCorrection();
+                if (status == SectorErrorCorrection.Status.NOT_AVAILABLE) {
+                    iNotAvailableCount++;
+                } else {
+                    iVerifiedCount++;
+                    if (status.isDamaged())
+                        badSectors.add(new BadSector(iSector, status));
+                }
+            }
+            return new Result(badSectors, iVerifiedCount, iNotAvailableCount);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Bad sector map
+
+    /** Writes the bad sectors as a text file, one sector per line
+     * followed by what was wrong with it. Lines starting with # are ignored
+     * by {@link #readBadSectorMap(java.io.File)}. */
+    public static void writeBadSectorMap(@Nonnull List<BadSector> badSectors,
+                                         @Nonnull File mapFile,
+                                         @Nonnull String sSourceFile)
+            throws IOException
+    {
+        PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(mapFile), "UTF-8"));
+        try {
+            pw.println("# " + sSourceFile);
+            for (BadSector badSector : badSectors) {
+                pw.println(badSector);
+            }
+            if (pw.checkError())
+                throw new IOException("Error writing " + mapFile);
+        } finally {
+            pw.close();
+        }
+    }
+
+    /** Reads a bad sector map written by
+     * {@link #writeBadSectorMap(java.util.List, java.io.File, java.lang.String)}.
+     * @return The sorted bad sector numbers. */
+    public static @Nonnull int[] readBadSectorMap(@Nonnull File mapFile) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(mapFile), "UTF-8"));
+        try {
+            int[] aiSectors = new int[16];
+            int iCount = 0;
+            String sLine;
+            int iLine = 0;
+            while ((sLine = reader.readLine()) != null) {
+                iLine++;
+                sLine = sLine.trim();
+                if (sLine.length() == 0 || sLine.startsWith("#"))
+                    continue;
+                String sSector = sLine.split("\\s+", 2)[0];
+                int iSector;
+                try {
+                    iSector = Integer.parseInt(sSector);
+                } catch (NumberFormatException ex) {
+                    throw new IOException("Invalid sector \"" + sSector + "\" on line " + iLine + " of " + mapFile, ex);
+                }
+                if (iCount == aiSectors.length)
+                    aiSectors = Arrays.copyOf(aiSectors, iCount * 2);
+                aiSectors[iCount++] = iSector;
+            }
+            aiSectors = Arrays.copyOf(aiSectors, iCount);
+            Arrays.sort(aiSectors);
+            return aiSectors;
+        } finally {
+            IO.closeSilently(reader, LOG);
+        }
+    }
+
+    /** Counts how many of the sorted bad sectors are within
+     * {@code iStartSector} to {@code iEndSector} inclusive. */
+    public static int countBadSectors(@Nonnull int[] aiSortedBadSectors,
+                                      int iStartSector, int iEndSector)
+    {
+        return lowerBound(aiSortedBadSectors, iEndSector + 1) -
+               lowerBound(aiSortedBadSectors, iStartSector);
+    }
+
+    /** Index of the first element >= {@code iValue}. */
+    private static int lowerBound(@Nonnull int[] aiSorted, int iValue) {
+        int iLow = 0, iHigh = aiSorted.length;
+        while (iLow < iHigh) {
+            int iMid = (iLow + iHigh) >>> 1;
+            if (aiSorted[iMid] < iValue)
+                iLow = iMid + 1;
+            else
+                iHigh = iMid;
+        }
+        return iLow;
+    }
+}
@@ -68,19 +68,36 @@ public abstract class Command {
     private StringHolder inputFileArg, indexFileArg;
     @Nonnull
     protected FeedbackStream _fbs;
+    /** Threads to use if an index needs to be built, or to save items with. */
+    private int _iThreads = 1;
 
     final public Command init(@Nonnull ArgParser ap,
                               @Nonnull StringHolder inputFileArg,
                               @Nonnull StringHolder indexFileArg,
                               @Nonnull FeedbackStream fbs)
+    {
+        return init(ap, inputFileArg, indexFileArg, 1, fbs);
+    }
+
+    final public Command init(@Nonnull ArgParser ap,
+                              @Nonnull StringHolder inputFileArg,
+                              @Nonnull StringHolder indexFileArg,
+                              int iThreads,
+                              @Nonnull FeedbackStream fbs)
     {
         _receiver = ap.addStringOption(_asFlags);
         this.inputFileArg = inputFileArg;
         this.indexFileArg = indexFileArg;
+        _iThreads = iThreads;
         _fbs = fbs;
         return this;
     }
 
+    /** Number of threads requested with {@code -threads}. */
+    protected int getThreads() {
+        return _iThreads;
+    }
+
     final public boolean found() {
         return _receiver.value != null;
     }
@@ -95,6 +112,11 @@ public abstract class Command {
         *  Returns {@code null} if OK, or error message if invalid. */
     abstract protected @CheckForNull ILocalizedMessage validate(@Nonnull String sOptionValue);
 
+    /** Index file given with {@code -x}, if any. */
+    protected @CheckForNull String getIndexFileArg() {
+        return indexFileArg.value;
+    }
+
     protected @Nonnull CdFileSectorReader getCdReader() throws CommandLineException {
         if (inputFileArg.value != null) {
             return CommandLine.loadDisc(inputFileArg.value, _fbs);
@@ -151,7 +173,7 @@ public abstract class Command {
                     _fbs.println(I.CMD_USING_SRC_FILE(index.getSourceCd().getSourceFile()));
                     _fbs.println(I.CMD_ITEMS_LOADED(index.size()));
                 } else {
-                    index = CommandLine.buildIndex(cd, _fbs);
+                    index = CommandLine.buildIndex(cd, _iThreads, _fbs);
                     CommandLine.saveIndex(index, indexFileArg.value, _fbs);
                 }
             } else {
@@ -178,7 +200,7 @@ public abstract class Command {
         } else {
             if (inputFileArg.value != null) {
                 CdFileSectorReader cd = CommandLine.loadDisc(inputFileArg.value, _fbs);
-                index = CommandLine.buildIndex(cd, _fbs);
+                index = CommandLine.buildIndex(cd, _iThreads, _fbs);
             } else {
                 throw new CommandLineException(I.CMD_NEED_INPUT_OR_INDEX());
             }
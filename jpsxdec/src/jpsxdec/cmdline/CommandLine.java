@@ -37,9 +37,14 @@
 
 package jpsxdec.cmdline;
 
+import argparser.BooleanHolder;
 import argparser.StringHolder;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
 import java.util.Iterator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -47,14 +52,19 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import jpsxdec.Version;
 import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.cdreaders.SectorVerifier;
+import jpsxdec.discitems.DiscItem;
 import jpsxdec.i18n.FeedbackStream;
 import jpsxdec.i18n.I;
 import jpsxdec.i18n.ILocalizedMessage;
 import jpsxdec.i18n.MiscResources;
 import jpsxdec.i18n.log.ConsoleProgressLogger;
 import jpsxdec.indexing.DiscIndex;
+import jpsxdec.indexing.IdentificationCache;
+import jpsxdec.modules.video.save.VideoSaverBuilder;
 import jpsxdec.util.ArgParser;
 import jpsxdec.util.IO;
+import jpsxdec.util.Metrics;
 import jpsxdec.util.TaskCanceledException;
 
 
@@ -64,26 +74,48 @@ public class CommandLine {
 
     public static int main(@Nonnull ArgParser ap) {
 
-        FeedbackStream Feedback = new FeedbackStream(System.out, FeedbackStream.NORM);
+        // keep stdout clean when a stream is being written to it
+        FeedbackStream Feedback = new FeedbackStream(isStreamingToStdout(ap) ? System.err : System.out,
+                                                     FeedbackStream.NORM);
 
         checkVerbosity(ap, Feedback);
+        int iIndexThreads = checkIndexThreads(ap, Feedback);
 
+        BooleanHolder metricsArg = ap.addBoolOption("-metrics");
+        StringHolder metricsJsonArg = ap.addStringOption("-metricsjson");
+        ap.match();
+        boolean blnMetrics = metricsArg.value || metricsJsonArg.value != null;
+        Metrics.setEnabled(blnMetrics);
+        try {
+            return runCommand(ap, iIndexThreads, Feedback);
+        } finally {
+            if (blnMetrics)
+                reportMetrics(metricsArg.value, metricsJsonArg.value, Feedback);
+        }
+    }
+
+    private static int runCommand(@Nonnull ArgParser ap, int iIndexThreads,
+                                  @Nonnull FeedbackStream Feedback)
+    {
         Feedback.println(I.JPSXDEC_VERSION_NON_COMMERCIAL(Version.Version));
 
         StringHolder inputFileArg = ap.addStringOption("-f","-file");
         StringHolder indexFileArg = ap.addStringOption("-x","-index");
+        StringHolder idCacheArg = ap.addStringOption("-idcache");
 
         Command[] aoCommands = {
+            new Command_ConvertIndex(),
             new Command_CopySect(),
             new Command_SectorDump(),
             new Command_Static(),
+            new Command_Verify(),
             new Command_Visualize(),
             new Command_Items.Command_Item(),
             new Command_Items.Command_All(),
         };
 
         for (Command command : aoCommands) {
-            command.init(ap, inputFileArg, indexFileArg, Feedback);
+            command.init(ap, inputFileArg, indexFileArg, iIndexThreads, Feedback);
         }
 
         ap.match();
@@ -106,7 +138,11 @@ public class CommandLine {
                     printMainHelp(Feedback);
                 } else {
                     if (inputFileArg.value != null && indexFileArg.value != null) {
-                        createAndSaveIndex(inputFileArg.value, indexFileArg.value, Feedback);
+                        StringHolder badMapArg = ap.addStringOption("-badmap");
+                        ap.match();
+                        createAndSaveIndex(inputFileArg.value, indexFileArg.value,
+                                           idCacheArg.value, badMapArg.value,
+                                           iIndexThreads, Feedback);
                     } else {
                         Feedback.printlnErr(I.CMD_NEED_MAIN_COMMAND());
                         Feedback.printlnErr(I.CMD_TRY_HELP());
@@ -158,6 +194,65 @@ public class CommandLine {
         }
     }
     
+    /** If video or audio will be written to stdout. */
+    private static boolean isStreamingToStdout(@Nonnull ArgParser ap) {
+        // leave the options for the saver to use
+        ArgParser streamAp = ap.copy();
+        StringHolder y4mOut = streamAp.addStringOption("-y4mout");
+        StringHolder wavOut = streamAp.addStringOption("-wavout");
+        streamAp.match();
+        return VideoSaverBuilder.STDOUT.equals(y4mOut.value) ||
+               VideoSaverBuilder.STDOUT.equals(wavOut.value);
+    }
+
+    /** @return Number of threads to use when building an index. */
+    private static int checkIndexThreads(@Nonnull ArgParser ap,
+                                         @Nonnull FeedbackStream fbs)
+    {
+        // leave -threads for the saver options to use too
+        ArgParser threadsAp = ap.copy();
+        StringHolder threads = threadsAp.addStringOption("-threads");
+        threadsAp.match();
+
+        if (threads.value != null) {
+            try {
+                int iValue = Integer.parseInt(threads.value);
+                if (iValue >= 1)
+                    return iValue;
+                else
+                    fbs.printlnWarn(I.CMD_INVALID_VALUE_FOR_CMD(threads.value, "-threads"));
+            } catch (NumberFormatException ex) {
+                fbs.printlnWarn(I.CMD_INVALID_VALUE_FOR_CMD(threads.value, "-threads"));
+            }
+        }
+        return 1;
+    }
+
+    /** Prints the table of {@link Metrics} and/or saves them as JSON. */
+    private static void reportMetrics(boolean blnPrintTable, @CheckForNull String sJsonFile,
+                                      @Nonnull FeedbackStream fbs)
+    {
+        if (blnPrintTable)
+            Metrics.printTable(fbs.getUnderlyingStream());
+        if (sJsonFile != null) {
+            PrintStream ps = null;
+            try {
+                ps = new PrintStream(new FileOutputStream(sJsonFile), false, "UTF-8");
+                Metrics.printJson(ps);
+                if (ps.checkError())
+                    fbs.printlnWarn(I.IO_WRITING_TO_FILE_ERROR_NAME(sJsonFile));
+            } catch (FileNotFoundException ex) {
+                fbs.printlnWarn(I.IO_OPENING_FILE_ERROR_NAME(sJsonFile));
+                LOG.log(Level.WARNING, null, ex);
+            } catch (UnsupportedEncodingException ex) {
+                throw new RuntimeException("UTF-8 should always be supported", ex);
+            } finally {
+                if (ps != null)
+                    ps.close();
+            }
+        }
+    }
+
     private static void printMainHelp(@Nonnull FeedbackStream fbs) {
         Iterator<ILocalizedMessage> helpLines = MiscResources.main_cmdline_help();
         while (helpLines.hasNext()) {
@@ -169,18 +264,70 @@ public class CommandLine {
 
     private static void createAndSaveIndex(@CheckForNull String sDiscFile,
                                            @Nonnull String sIndexFile,
+                                           @CheckForNull String sIdCacheFile,
+                                           @CheckForNull String sBadMapFile,
+                                           int iThreads,
                                            @Nonnull FeedbackStream Feedback)
             throws CommandLineException
     {
+        int[] aiBadSectors = null;
+        if (sBadMapFile != null)
+            aiBadSectors = loadBadSectorMap(sBadMapFile);
         CdFileSectorReader cd = loadDisc(sDiscFile, Feedback);
         try {
-            DiscIndex index = buildIndex(cd, Feedback);
+            DiscIndex index;
+            if (sIdCacheFile == null) {
+                index = buildIndex(cd, iThreads, Feedback);
+            } else {
+                File idCacheFile = new File(sIdCacheFile);
+                IdentificationCache cache = IdentificationCache.load(idCacheFile, cd);
+                // the cache follows the sectors in order as they are identified
+                if (iThreads > 1)
+                    Feedback.printlnWarn(I.CMD_INDEXING_WITH_1_THREAD_FOR_IDCACHE());
+                index = buildIndex(cd, 1, cache, Feedback);
+                try {
+                    cache.save(idCacheFile);
+                } catch (IOException ex) {
+                    Feedback.printlnWarn(I.IO_WRITING_TO_FILE_ERROR_NAME(sIdCacheFile));
+                    LOG.log(Level.WARNING, null, ex);
+                }
+            }
+            if (aiBadSectors != null)
+                warnAboutBadSectors(index, aiBadSectors, Feedback);
             saveIndex(index, sIndexFile, Feedback);
         } finally {
             IO.closeSilently(cd, LOG);
         }
     }
 
+    /** Reads the bad sector map saved by {@code -verify}. */
+    private static @Nonnull int[] loadBadSectorMap(@Nonnull String sBadMapFile)
+            throws CommandLineException
+    {
+        try {
+            return SectorVerifier.readBadSectorMap(new File(sBadMapFile));
+        } catch (FileNotFoundException ex) {
+            throw new CommandLineException(I.IO_OPENING_FILE_NOT_FOUND_NAME(sBadMapFile), ex);
+        } catch (IOException ex) {
+            throw new CommandLineException(I.IO_READING_FROM_FILE_ERROR_NAME(sBadMapFile), ex);
+        }
+    }
+
+    /** Warns about every item that contains one of the bad sectors. */
+    private static void warnAboutBadSectors(@Nonnull DiscIndex index,
+                                            @Nonnull int[] aiBadSectors,
+                                            @Nonnull FeedbackStream Feedback)
+    {
+        for (DiscItem item : index) {
+            int iCount = SectorVerifier.countBadSectors(aiBadSectors,
+                                                        item.getStartSector(),
+                                                        item.getEndSector());
+            if (iCount > 0)
+                Feedback.printlnWarn(I.CMD_ITEM_HAS_BAD_SECTORS(item.getIndex(),
+                                                                 item.getIndexId().getId(), iCount));
+        }
+    }
+
     static @Nonnull CdFileSectorReader loadDisc(@CheckForNull String sDiscFile,
                                                 @Nonnull FeedbackStream Feedback)
             throws CommandLineException
@@ -201,8 +348,15 @@ public class CommandLine {
         }
     }
 
-    static DiscIndex buildIndex(@Nonnull CdFileSectorReader cd,
+    static DiscIndex buildIndex(@Nonnull CdFileSectorReader cd, int iThreads,
                                 @Nonnull FeedbackStream fbs)
+    {
+        return buildIndex(cd, iThreads, null, fbs);
+    }
+
+    private static DiscIndex buildIndex(@Nonnull CdFileSectorReader cd, int iThreads,
+                                        @CheckForNull IdentificationCache cache,
+                                        @Nonnull FeedbackStream fbs)
     {
         fbs.println(I.CMD_BUILDING_INDEX());
         DiscIndex index = null;
@@ -210,7 +364,10 @@ public class CommandLine {
                 I.INDEX_LOG_FILE_BASE_NAME().getLocalizedMessage(), fbs.getUnderlyingStream());
         try {
             cpl.log(Level.INFO, I.CMD_GUI_INDEXING(cd.toString()));
-            index = new DiscIndex(cd, cpl);
+            if (cache == null)
+                index = new DiscIndex(cd, iThreads, cpl);
+            else
+                index = new DiscIndex(cd, cache, cpl);
         } catch (TaskCanceledException ex) {
             throw new RuntimeException("Impossible TaskCanceledException during commandline indexing", ex);
         } finally {
@@ -0,0 +1,89 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.cmdline;
+
+import java.io.File;
+import java.io.IOException;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.i18n.I;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.i18n.exception.LocalizedDeserializationFail;
+import jpsxdec.indexing.DiscIndex;
+import jpsxdec.util.ArgParser;
+
+
+/** Command to convert between text and binary index files. */
+class Command_ConvertIndex extends Command {
+
+    public Command_ConvertIndex() {
+        super("-convertindex");
+    }
+    @Nonnull
+    private String _sOutputFile;
+
+    protected @CheckForNull ILocalizedMessage validate(@Nonnull String s) {
+        _sOutputFile = s;
+        return null;
+    }
+
+    public void execute(@Nonnull ArgParser ap) throws CommandLineException {
+        String sIndexFile = getIndexFileArg();
+        if (sIndexFile == null)
+            throw new CommandLineException(I.CMD_INDEX_FILE_REQUIRED());
+
+        boolean blnBinary;
+        try {
+            blnBinary = DiscIndex.convertIndex(new File(sIndexFile), new File(_sOutputFile));
+        } catch (DiscIndex.IndexNotFoundException ex) {
+            throw new CommandLineException(I.IO_OPENING_FILE_ERROR_NAME(ex.getFile().toString()), ex);
+        } catch (DiscIndex.IndexReadException ex) {
+            throw new CommandLineException(I.IO_READING_FROM_FILE_ERROR_NAME(ex.getFile().toString()), ex);
+        } catch (LocalizedDeserializationFail ex) {
+            throw new CommandLineException(I.ERR_LOADING_INDEX_FILE_REASON(ex.getSourceMessage()), ex);
+        } catch (IOException ex) {
+            throw new CommandLineException(I.IO_WRITING_TO_FILE_ERROR_NAME(_sOutputFile), ex);
+        }
+
+        if (blnBinary)
+            _fbs.println(I.CMD_CONVERTED_INDEX_TO_BINARY(sIndexFile, _sOutputFile));
+        else
+            _fbs.println(I.CMD_CONVERTED_INDEX_TO_TEXT(sIndexFile, _sOutputFile));
+    }
+
+}
@@ -49,6 +49,7 @@ import javax.annotation.Nonnull;
 import jpsxdec.cdreaders.CdFileSectorReader;
 import jpsxdec.cdreaders.CdRiffHeader;
 import jpsxdec.cdreaders.CdSector;
+import jpsxdec.cdreaders.SectorReadAhead;
 import jpsxdec.i18n.I;
 import jpsxdec.i18n.ILocalizedMessage;
 import jpsxdec.util.ArgParser;
@@ -92,6 +93,7 @@ class Command_CopySect extends Command {
         }
         
         OutputStream os = null;
+        SectorReadAhead sectors = null;
         try {
             os = new BufferedOutputStream(fos);
             int iRawSectorSize = cdReader.getRawSectorSize();
@@ -111,8 +113,11 @@ class Command_CopySect extends Command {
                 long lngFileSize = (_aiStartEndSectors[1] - _aiStartEndSectors[0] + 1) * (long) iRawSectorSize;
                 CdRiffHeader.write(os, lngFileSize);
             }
+            sectors = new SectorReadAhead(cdReader, _aiStartEndSectors[0], _aiStartEndSectors[1],
+                                          SectorReadAhead.DEFAULT_BLOCK_SECTORS,
+                                          SectorReadAhead.DEFAULT_DEPTH);
             for (int i = _aiStartEndSectors[0]; i <= _aiStartEndSectors[1]; i++) {
-                CdSector sector = cdReader.getSector(i);
+                CdSector sector = sectors.getSector(i);
                 os.write(sector.getRawSectorDataCopy());
             }
         } catch (CdFileSectorReader.CdReadException ex) {
@@ -121,13 +126,15 @@ class Command_CopySect extends Command {
         } catch (IOException ex) {
             throw new CommandLineException(I.IO_WRITING_TO_FILE_ERROR_NAME(sOutputFile), ex);
         } finally {
+            if (sectors != null)
+                sectors.close();
             IO.closeSilently(os, LOG);
         }
     }
 
     /** Parse a number range. e.g. 5-10
      * @return Array of 2 elements, or null on error. */
-    private static @CheckForNull int[] parseNumberRange(@Nonnull String s) {
+    static @CheckForNull int[] parseNumberRange(@Nonnull String s) {
         int iStart, iEnd;
         String[] split = s.split("-");
         try {
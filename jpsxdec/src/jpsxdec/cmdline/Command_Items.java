@@ -39,12 +39,15 @@ package jpsxdec.cmdline;
 
 import argparser.BooleanHolder;
 import argparser.StringHolder;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import jpsxdec.discitems.BatchSaver;
 import jpsxdec.discitems.DiscItem;
 import jpsxdec.discitems.DiscItemSaverBuilder;
 import jpsxdec.i18n.FeedbackStream;
@@ -54,6 +57,7 @@ import jpsxdec.i18n.UnlocalizedMessage;
 import jpsxdec.i18n.exception.ILocalizedException;
 import jpsxdec.i18n.exception.LoggedFailure;
 import jpsxdec.i18n.log.ConsoleProgressLogger;
+import jpsxdec.i18n.log.ProgressLogger;
 import jpsxdec.indexing.DiscIndex;
 import jpsxdec.modules.tim.DiscItemTim;
 import jpsxdec.modules.video.DiscItemVideoStream;
@@ -132,6 +136,11 @@ class Command_Items {
         public void execute(@Nonnull ArgParser ap) throws CommandLineException {
             DiscIndex discIndex = getIndex();
 
+            if (getThreads() > 1 && new ItemOptions(ap.copy()).isOnlySaving()) {
+                saveInParallel(discIndex, ap);
+                return;
+            }
+
             boolean blnFound = false;
             ConsoleProgressLogger saveLog = new ConsoleProgressLogger(
                     I.SAVE_LOG_FILE_BASE_NAME().getLocalizedMessage(), _fbs.getUnderlyingStream());
@@ -158,6 +167,141 @@ class Command_Items {
                 _fbs.println(I.CMD_ALL_ITEMS_COMPLETE());
             }
         }
+
+        /** Saves the items using several threads. Each item's output is
+         * held until it is done, and printed in the same order as
+         * saving them one at a time. */
+        private void saveInParallel(@Nonnull DiscIndex discIndex, @Nonnull ArgParser ap)
+                throws CommandLineException
+        {
+            ArrayList<AllItemJob> jobs = new ArrayList<AllItemJob>();
+            for (DiscItem item : discIndex) {
+                if (item.getType().getName().equalsIgnoreCase(_sType))
+                    jobs.add(new AllItemJob(item, ap.copy(), _fbs));
+            }
+
+            if (jobs.isEmpty()) {
+                _fbs.println(I.CMD_NO_ITEMS_OF_TYPE(_sType));
+                return;
+            }
+
+            ConsoleProgressLogger saveLog = new ConsoleProgressLogger(
+                    I.SAVE_LOG_FILE_BASE_NAME().getLocalizedMessage(), _fbs.getUnderlyingStream());
+            try {
+                new BatchSaver(discIndex, getThreads()).save(jobs, saveLog);
+            } finally {
+                saveLog.close();
+            }
+
+            for (AllItemJob job : jobs) {
+                if (job._failure != null)
+                    throw job._failure;
+            }
+            _fbs.println(I.CMD_ALL_ITEMS_COMPLETE());
+        }
+    }
+
+    /** Saves one item of {@link Command_All}, holding its console output
+     * until it is finished. */
+    private static class AllItemJob extends BatchSaver.Job {
+        @Nonnull
+        private final ArgParser _ap;
+        @Nonnull
+        private final FeedbackStream _fbs;
+        @Nonnull
+        private final ByteArrayOutputStream _output = new ByteArrayOutputStream();
+        @Nonnull
+        private final FeedbackStream _itemFbs;
+        @CheckForNull
+        private CommandLineException _failure;
+
+        public AllItemJob(@Nonnull DiscItem item, @Nonnull ArgParser ap, @Nonnull FeedbackStream fbs) {
+            super(item);
+            _ap = ap;
+            _fbs = fbs;
+            _itemFbs = new FeedbackStream(new PrintStream(_output, true), fbs.getLevel());
+        }
+
+        protected @Nonnull ProgressLogger getProgressDisplay() {
+            // nothing is logged to it, so it won't create a log file
+            return new ConsoleProgressLogger(I.SAVE_LOG_FILE_BASE_NAME().getLocalizedMessage(),
+                                             _itemFbs.getUnderlyingStream());
+        }
+
+        protected void save(@Nonnull DiscItem item, @Nonnull ProgressLogger pl)
+                throws LoggedFailure
+        {
+            ItemOptions options = new ItemOptions(_ap);
+            try {
+                decodeDiscItem(item, options.getDirectory(), _ap, _itemFbs, pl);
+            } catch (RuntimeException ex) {
+                pl.log(Level.SEVERE, I.CMD_ERR_EX_CLASS(ex, ex.getClass().getSimpleName()), ex);
+                throw ex;
+            }
+            _itemFbs.println(I.CMD_PROCESS_COMPLETE());
+        }
+
+        protected boolean finished(@CheckForNull Exception failure) {
+            _fbs.getUnderlyingStream().print(_output.toString());
+            if (failure != null) {
+                if (failure instanceof ILocalizedException) {
+                    _failure = new CommandLineException(((ILocalizedException)failure).getSourceMessage());
+                } else {
+                    ILocalizedMessage msg = I.CMD_ERR_EX_CLASS(failure, failure.getClass().getSimpleName());
+                    _failure = new CommandLineException(msg, failure);
+                }
+                return false;
+            }
+            _fbs.println(I.CMD_ITEM_COMPLETE());
+            _fbs.println();
+            return true;
+        }
+    }
+
+    /** Options for what to do with each item. */
+    private static class ItemOptions {
+        @Nonnull
+        public final BooleanHolder fpsDumpArg;
+        @Nonnull
+        public final BooleanHolder itemHelpArg;
+        @Nonnull
+        public final BooleanHolder frameInfoArg;
+        @Nonnull
+        public final StringHolder replaceFrames;
+        @Nonnull
+        public final StringHolder replaceTim;
+        @Nonnull
+        public final StringHolder replaceXa;
+        @Nonnull
+        public final StringHolder xaNum;
+        @Nonnull
+        public final StringHolder directory;
+
+        public ItemOptions(@Nonnull ArgParser ap) {
+            fpsDumpArg = ap.addBoolOption("-fpsdump");
+            itemHelpArg = ap.addHelp();
+            frameInfoArg = ap.addBoolOption("-frameinfodump");
+            replaceFrames = ap.addStringOption("-replaceframes");
+            replaceTim = ap.addStringOption("-replacetim");
+            replaceXa = ap.addStringOption("-replacexa");
+            xaNum = ap.addStringOption("-xa");
+            directory = ap.addStringOption("-dir");
+            ap.match();
+        }
+
+        /** If the item is just going to be saved. */
+        public boolean isOnlySaving() {
+            return !fpsDumpArg.value && !itemHelpArg.value && !frameInfoArg.value &&
+                   replaceFrames.value == null && replaceTim.value == null &&
+                   replaceXa.value == null;
+        }
+
+        public @CheckForNull File getDirectory() {
+            if (directory.value != null)
+                return new File(directory.value);
+            else
+                return null;
+        }
     }
 
     private static void handleItem(@Nonnull DiscItem item,
@@ -167,15 +311,14 @@ class Command_Items {
                                    @Nonnull ConsoleProgressLogger replaceLog)
             throws CommandLineException
     {
-        BooleanHolder fpsDumpArg = ap.addBoolOption("-fpsdump");
-        BooleanHolder itemHelpArg = ap.addHelp();
-        BooleanHolder frameInfoArg = ap.addBoolOption("-frameinfodump");
-        StringHolder replaceFrames = ap.addStringOption("-replaceframes");
-        StringHolder replaceTim = ap.addStringOption("-replacetim");
-        StringHolder replaceXa = ap.addStringOption("-replacexa");
-        StringHolder xaNum = ap.addStringOption("-xa");
-        StringHolder directory = ap.addStringOption("-dir");
-        ap.match();
+        ItemOptions options = new ItemOptions(ap);
+        BooleanHolder fpsDumpArg = options.fpsDumpArg;
+        BooleanHolder itemHelpArg = options.itemHelpArg;
+        BooleanHolder frameInfoArg = options.frameInfoArg;
+        StringHolder replaceFrames = options.replaceFrames;
+        StringHolder replaceTim = options.replaceTim;
+        StringHolder replaceXa = options.replaceXa;
+        StringHolder xaNum = options.xaNum;
 
         try {
             if (fpsDumpArg.value) {
@@ -252,13 +395,8 @@ class Command_Items {
                     xaItem.getSourceCd().applyPatches(replaceLog);
                 }
             } else {
-                File dir;
-                if (directory.value != null)
-                    dir = new File(directory.value);
-                else
-                    dir = null;
                 // decode/extract the desired disc item
-                decodeDiscItem(item, dir, ap, fbs, saveLog);
+                decodeDiscItem(item, options.getDirectory(), ap, fbs, saveLog);
                 fbs.println(I.CMD_PROCESS_COMPLETE());
             }
 
@@ -274,7 +412,7 @@ class Command_Items {
     private static void decodeDiscItem(@Nonnull DiscItem item, @CheckForNull File dir,
                                        @Nonnull ArgParser ap,
                                        @Nonnull FeedbackStream fbs,
-                                       @Nonnull ConsoleProgressLogger cpl)
+                                       @Nonnull ProgressLogger cpl)
             throws LoggedFailure
     {
 
@@ -44,6 +44,7 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import jpsxdec.cdreaders.CdFileSectorReader;
 import jpsxdec.cdreaders.CdSector;
+import jpsxdec.cdreaders.SectorReadAhead;
 import jpsxdec.i18n.I;
 import jpsxdec.i18n.ILocalizedMessage;
 import jpsxdec.i18n.log.DebugLogger;
@@ -70,6 +71,7 @@ class Command_SectorDump extends Command {
         CdFileSectorReader cdReader = getCdReader();
         _fbs.println(I.CMD_GENERATING_SECTOR_LIST());
         PrintStream ps = null;
+        SectorClaimSystem it = null;
         try {
             if (_sOutfile.equals("-")) {
                 ps = System.out;
@@ -81,7 +83,8 @@ class Command_SectorDump extends Command {
                 }
             }
             SectorCounter counter = new SectorCounter();
-            SectorClaimSystem it = SectorClaimSystem.create(cdReader);
+            it = SectorClaimSystem.create(cdReader);
+            it.startReadAhead(SectorReadAhead.DEFAULT_DEPTH);
             while (it.hasNext()) {
                 SectorClaimSystem.ClaimedSector cs = it.next(DebugLogger.Log);
                 IIdentifiedSector idSect = cs.getClaimer();
@@ -105,6 +108,8 @@ class Command_SectorDump extends Command {
         } catch (CdFileSectorReader.CdReadException ex) {
             throw new CommandLineException(I.IO_READING_FROM_FILE_ERROR_NAME(ex.getFile().toString()), ex);
         } finally {
+            if (it != null)
+                it.stopReadAhead();
             if (ps != null) {
                 ps.flush();
                 if (!ps.equals(System.out)) {
@@ -0,0 +1,134 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.cmdline;
+
+import argparser.StringHolder;
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.cdreaders.SectorVerifier;
+import jpsxdec.i18n.I;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.util.ArgParser;
+import jpsxdec.util.IO;
+
+
+/** Command to check the EDC and ECC of sectors in a disc image. */
+class Command_Verify extends Command {
+
+    private static final Logger LOG = Logger.getLogger(Command_Verify.class.getName());
+
+    public Command_Verify() {
+        super("-verify");
+    }
+    /** Start and end sector, or null for the whole disc. */
+    @CheckForNull
+    private int[] _aiStartEndSectors;
+
+    protected @CheckForNull ILocalizedMessage validate(@Nonnull String s) {
+        if (s.equalsIgnoreCase("all")) {
+            _aiStartEndSectors = null;
+            return null;
+        }
+        _aiStartEndSectors = Command_CopySect.parseNumberRange(s);
+        if (_aiStartEndSectors == null ||
+            _aiStartEndSectors[0] < 0 || _aiStartEndSectors[1] < _aiStartEndSectors[0])
+        {
+            return I.CMD_SECTOR_RANGE_INVALID(s);
+        } else {
+            return null;
+        }
+    }
+
+    public void execute(@Nonnull ArgParser ap) throws CommandLineException {
+        StringHolder badMap = ap.addStringOption("-badmap");
+        ap.match();
+
+        CdFileSectorReader cdReader = getCdReader();
+        try {
+            int iStartSector = 0, iEndSector = cdReader.getSectorCount() - 1;
+            if (_aiStartEndSectors != null) {
+                iStartSector = _aiStartEndSectors[0];
+                iEndSector = Math.min(_aiStartEndSectors[1], iEndSector);
+            }
+
+            _fbs.println(I.CMD_VERIFYING_SECTORS(iStartSector, iEndSector, getThreads()));
+
+            SectorVerifier.Result result;
+            try {
+                result = SectorVerifier.verify(cdReader, iStartSector, iEndSector, getThreads());
+            } catch (CdFileSectorReader.CdReadException ex) {
+                throw new CommandLineException(I.IO_READING_FROM_FILE_ERROR_NAME(
+                                               ex.getFile().toString()), ex);
+            }
+
+            for (SectorVerifier.BadSector badSector : result.badSectors) {
+                switch (badSector.status) {
+                    case BAD_EDC:
+                        _fbs.printlnWarn(I.CMD_VERIFY_BAD_EDC(badSector.iSector));
+                        break;
+                    case BAD_ECC:
+                        _fbs.printlnWarn(I.CMD_VERIFY_BAD_ECC(badSector.iSector));
+                        break;
+                    default:
+                        _fbs.printlnWarn(I.CMD_VERIFY_BAD_EDC_AND_ECC(badSector.iSector));
+                        break;
+                }
+            }
+            _fbs.println(I.CMD_VERIFY_SUMMARY(result.iVerifiedCount,
+                                              result.badSectors.size(),
+                                              result.iNotAvailableCount));
+
+            if (badMap.value != null) {
+                _fbs.println(I.CMD_SAVING_BAD_SECTOR_MAP(badMap.value));
+                try {
+                    SectorVerifier.writeBadSectorMap(result.badSectors, new File(badMap.value),
+                                                     cdReader.getSourceFile().getPath());
+                } catch (IOException ex) {
+                    throw new CommandLineException(I.IO_WRITING_TO_FILE_ERROR_NAME(badMap.value), ex);
+                }
+            }
+        } finally {
+            IO.closeSilently(cdReader, LOG);
+        }
+    }
+
+}
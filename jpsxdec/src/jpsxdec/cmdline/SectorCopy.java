@@ -42,6 +42,7 @@ import java.io.IOException;
 import javax.annotation.Nonnull;
 import jpsxdec.cdreaders.CdFileSectorReader;
 import jpsxdec.cdreaders.DiscPatcher;
+import jpsxdec.cdreaders.SectorReadAhead;
 import jpsxdec.i18n.log.ConsoleProgressLogger;
 import jpsxdec.util.TaskCanceledException;
 
@@ -78,10 +79,15 @@ public class SectorCopy {
 
         dest.beginPatching();
 
-        for (int iOfsSect = 0; iOfsSect < src.getSectorCount(); iOfsSect++) {
-            byte[] abSrcUserData = src.getSector(iOfsSect).getCdUserDataCopy();
-            System.out.println("Overriting sector " + (iDestStartSector + iOfsSect));
-            dest.addPatch(iDestStartSector + iOfsSect, 0, abSrcUserData);
+        SectorReadAhead srcSectors = new SectorReadAhead(src);
+        try {
+            for (int iOfsSect = 0; iOfsSect < src.getSectorCount(); iOfsSect++) {
+                byte[] abSrcUserData = srcSectors.getSector(iOfsSect).getCdUserDataCopy();
+                System.out.println("Overriting sector " + (iDestStartSector + iOfsSect));
+                dest.addPatch(iDestStartSector + iOfsSect, 0, abSrcUserData);
+            }
+        } finally {
+            srcSectors.close();
         }
         
         System.out.println(src.getSectorCount() + " sectors overwritten.");
@@ -0,0 +1,349 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.discitems;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.i18n.exception.LoggedFailure;
+import jpsxdec.i18n.log.ILocalizedLogger;
+import jpsxdec.i18n.log.ProgressLogger;
+import jpsxdec.i18n.log.UserFriendlyLogger;
+import jpsxdec.indexing.DiscIndex;
+import jpsxdec.util.IO;
+import jpsxdec.util.TaskCanceledException;
+
+/** Saves a batch of disc items, optionally several at the same time.
+ *<p>
+ * Disc readers are not thread-safe, so each worker thread gets its own
+ * read-only copy of the disc, and each job a copy of its item that reads
+ * from it. Everything a job logs is held until the job is done, then
+ * written to the batch log all at once. Jobs are finished in the order
+ * they were given, on the thread that called {@link #save(List, ILocalizedLogger)},
+ * so the log and any output is the same no matter how many threads are used. */
+public class BatchSaver {
+
+    private static final Logger LOG = Logger.getLogger(BatchSaver.class.getName());
+
+    /** One disc item to save. */
+    public static abstract class Job {
+        @Nonnull
+        private final DiscItem _item;
+
+        public Job(@Nonnull DiscItem item) {
+            _item = item;
+        }
+
+        public @Nonnull DiscItem getDiscItem() {
+            return _item;
+        }
+
+        /** Where the progress of this job is shown while it is saving.
+         * Only its progress methods are used, messages go to the batch log.
+         * If it is also a {@link UserFriendlyLogger.OnWarnErr}, it is told
+         * of warnings and errors as they happen.
+         * Called on the worker thread. */
+        abstract protected @Nonnull ProgressLogger getProgressDisplay();
+
+        /** Saves the item. Called on the worker thread.
+         * @param item The disc item of this job, or the worker's copy of it.
+         * @param pl Holds messages for the batch log. */
+        abstract protected void save(@Nonnull DiscItem item, @Nonnull ProgressLogger pl)
+                throws LoggedFailure, TaskCanceledException;
+
+        /** Called on the thread saving the batch, in the order of the jobs,
+         * after the job's messages have been written to the batch log.
+         * @param failure What was thrown while saving, if anything.
+         *                Errors are not caught, they end the batch.
+         * @return If the rest of the batch should be saved. */
+        abstract protected boolean finished(@CheckForNull Exception failure);
+    }
+
+    /** Holds the messages logged by a job, passing on its progress as it happens. */
+    private static class JobLog extends ProgressLogger {
+
+        private static class Entry {
+            @Nonnull
+            public final Level level;
+            @Nonnull
+            public final ILocalizedMessage msg;
+            @CheckForNull
+            public final Throwable debugException;
+
+            public Entry(@Nonnull Level level, @Nonnull ILocalizedMessage msg,
+                         @CheckForNull Throwable debugException)
+            {
+                this.level = level;
+                this.msg = msg;
+                this.debugException = debugException;
+            }
+        }
+
+        private final ArrayList<Entry> _entries = new ArrayList<Entry>();
+        @Nonnull
+        private final ProgressLogger _display;
+
+        public JobLog(@Nonnull ProgressLogger display) {
+            super(BatchSaver.class.getSimpleName());
+            _display = display;
+        }
+
+        @Override
+        public void log(@Nonnull Level level, @Nonnull ILocalizedMessage msg) {
+            log(level, msg, null);
+        }
+
+        @Override
+        public void log(@Nonnull Level level, @Nonnull ILocalizedMessage msg,
+                        @CheckForNull Throwable debugException)
+        {
+            _entries.add(new Entry(level, msg, debugException));
+            if (_display instanceof UserFriendlyLogger.OnWarnErr) {
+                UserFriendlyLogger.OnWarnErr listener = (UserFriendlyLogger.OnWarnErr) _display;
+                if (level == Level.WARNING)
+                    listener.onWarn(msg);
+                else if (level == Level.SEVERE)
+                    listener.onErr(msg);
+            }
+        }
+
+        public void replay(@Nonnull ILocalizedLogger log) {
+            for (Entry entry : _entries) {
+                log.log(entry.level, entry.msg, entry.debugException);
+            }
+        }
+
+        protected void handleProgressStart() throws TaskCanceledException {
+            _display.progressStart(1);
+        }
+
+        protected void handleProgressUpdate(double dblPercentComplete) throws TaskCanceledException {
+            _display.progressUpdate(dblPercentComplete);
+        }
+
+        protected void handleProgressEnd() throws TaskCanceledException {
+            _display.progressEnd();
+        }
+
+        public boolean isSeekingEvent() {
+            return _display.isSeekingEvent();
+        }
+
+        public void event(@Nonnull ILocalizedMessage msg) {
+            _display.event(msg);
+        }
+    }
+
+    /** What happened when saving a job. */
+    private static class Result {
+        @Nonnull
+        public final JobLog log;
+        @CheckForNull
+        public final Exception failure;
+
+        public Result(@Nonnull JobLog log, @CheckForNull Exception failure) {
+            this.log = log;
+            this.failure = failure;
+        }
+    }
+
+
+    @CheckForNull
+    private final DiscIndex _index;
+    private final int _iThreads;
+
+    /** Saves one item at a time, on the thread calling
+     * {@link #save(List, ILocalizedLogger)}. */
+    public BatchSaver() {
+        _index = null;
+        _iThreads = 1;
+    }
+
+    /** Saves up to the given number of items at the same time.
+     * @param index The index the items to save are from. */
+    public BatchSaver(@Nonnull DiscIndex index, int iThreads) {
+        _index = index;
+        _iThreads = Math.max(1, iThreads);
+    }
+
+    /** Saves all the jobs, stopping early if a job says to. */
+    public void save(@Nonnull List<? extends Job> jobs, @Nonnull ILocalizedLogger batchLog) {
+        if (_index == null || _iThreads < 2 || jobs.size() < 2) {
+            for (Job job : jobs) {
+                JobLog jobLog = new JobLog(job.getProgressDisplay());
+                if (!finish(job, runJob(job, job.getDiscItem(), jobLog), batchLog))
+                    break;
+            }
+            return;
+        }
+
+        final DiscIndex sourceIndex = _index;
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        final ThreadLocal<CdFileSectorReader> workerCd = new ThreadLocal<CdFileSectorReader>();
+        final List<CdFileSectorReader> workerCds =
+                Collections.synchronizedList(new ArrayList<CdFileSectorReader>());
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(_iThreads, jobs.size()),
+                                                                new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Batch saver");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        try {
+            ArrayList<Future<Result>> results = new ArrayList<Future<Result>>(jobs.size());
+            for (final Job job : jobs) {
+                results.add(executor.submit(new Callable<Result>() {
+                    /** @return null if skipped because saving stopped. */
+                    public @CheckForNull Result call() {
+                        if (stop.get())
+                            return null;
+                        JobLog jobLog = new JobLog(job.getProgressDisplay());
+                        DiscItem item;
+                        try {
+                            CdFileSectorReader cd = workerCd.get();
+                            if (cd == null) {
+                                cd = sourceIndex.getSourceCd().openReadOnlyCopy();
+                                workerCds.add(cd);
+                                workerCd.set(cd);
+                            }
+                            item = DiscIndex.copyItem(job.getDiscItem(), cd, jobLog);
+                            if (item == null)
+                                throw new IllegalStateException("Unable to copy " + job.getDiscItem());
+                        } catch (Exception ex) {
+                            return new Result(jobLog, ex);
+                        }
+                        return runJob(job, item, jobLog);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < jobs.size(); i++) {
+                Result result = waitForJob(results.get(i));
+                // a skipped job means saving has already stopped
+                if (result == null || !finish(jobs.get(i), result, batchLog))
+                    break;
+            }
+        } finally {
+            // jobs that haven't started yet won't
+            stop.set(true);
+            executor.shutdown();
+            // but the rest need to finish before their discs are closed
+            awaitTermination(executor);
+            synchronized (workerCds) {
+                for (CdFileSectorReader cd : workerCds) {
+                    IO.closeSilently(cd, LOG);
+                }
+            }
+        }
+    }
+
+    private static @Nonnull Result runJob(@Nonnull Job job, @Nonnull DiscItem item,
+                                          @Nonnull JobLog jobLog)
+    {
+        try {
+            job.save(item, jobLog);
+            return new Result(jobLog, null);
+        } catch (Exception ex) {
+            return new Result(jobLog, ex);
+        }
+    }
+
+    private static boolean finish(@Nonnull Job job, @Nonnull Result result,
+                                  @Nonnull ILocalizedLogger batchLog)
+    {
+        result.log.replay(batchLog);
+        return job.finished(result.failure);
+    }
+
+    /** Waits for a job to finish, even if interrupted.
+     * @return null if the job was skipped. */
+    private static @CheckForNull Result waitForJob(@Nonnull Future<Result> job) {
+        boolean blnInterrupted = false;
+        try {
+            while (true) {
+                try {
+                    return job.get();
+                } catch (InterruptedException ex) {
+                    blnInterrupted = true;
+                } catch (ExecutionException ex) {
+                    // jobs catch every Exception, so only Errors get here
+                    if (ex.getCause() instanceof Error)
+                        throw (Error) ex.getCause();
+                    throw new RuntimeException(ex.getCause());
+                }
+            }
+        } finally {
+            if (blnInterrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitTermination(@Nonnull ExecutorService executor) {
+        boolean blnInterrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (executor.awaitTermination(1, TimeUnit.SECONDS))
+                        return;
+                } catch (InterruptedException ex) {
+                    blnInterrupted = true;
+                }
+            }
+        } finally {
+            if (blnInterrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+}
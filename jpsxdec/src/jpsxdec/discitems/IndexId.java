@@ -177,6 +177,15 @@ public class IndexId {
         return false;
     }
 
+    /** The id of the direct parent, or null if this is a root id. */
+    public @CheckForNull IndexId getParentId() {
+        if (isRoot())
+            return null;
+        if (_aiTreeIndexes.length == 1)
+            return new IndexId(_sourceFile);
+        return new IndexId(_sourceFile, Arrays.copyOf(_aiTreeIndexes, _aiTreeIndexes.length - 1));
+    }
+
     public boolean isRoot() {
         if (_aiTreeIndexes == null)
             return true;
@@ -221,6 +230,7 @@ public class IndexId {
     public int hashCode() {
         int hash = 5;
         hash = 89 * hash + (_sourceFile != null ? _sourceFile.hashCode() : 0);
+        hash = 89 * hash + Arrays.hashCode(_aiTreeIndexes);
         return hash;
     }
 
@@ -0,0 +1,117 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpsxdec.formats;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.annotation.Nonnull;
+import jpsxdec.util.IO;
+
+/** Writes 24-bit BMP images straight from an array of 0xRRGGBB pixels,
+ * the same layout ImageIO writes (bottom-up rows, BITMAPINFOHEADER).
+ * The row buffer is reused between images, so an instance should only be
+ * used by one thread at a time. */
+public class BmpEncoder {
+
+    private static final int SIZEOF_FILE_HEADER = 14;
+    private static final int SIZEOF_INFO_HEADER = 40;
+    private static final int HEADERS_SIZE = SIZEOF_FILE_HEADER + SIZEOF_INFO_HEADER;
+
+    @Nonnull
+    private byte[] _abRow = new byte[HEADERS_SIZE];
+
+    /** Writes the image as a BMP.
+     * @param aiRgb Pixels in 0xRRGGBB format, any alpha is ignored.
+     * @param iStart Index of the upper-left pixel.
+     * @param iStride Distance between rows in the array. */
+    public void write(@Nonnull int[] aiRgb, int iStart, int iStride,
+                      int iWidth, int iHeight, @Nonnull OutputStream out)
+            throws IOException
+    {
+        if (iWidth < 1 || iHeight < 1)
+            throw new IllegalArgumentException("Invalid dimensions " + iWidth + "x" + iHeight);
+
+        // rows are padded to 4 bytes
+        int iRowSize = (iWidth * 3 + 3) & ~3;
+        if (_abRow.length < Math.max(iRowSize, HEADERS_SIZE))
+            _abRow = new byte[Math.max(iRowSize, HEADERS_SIZE)];
+        byte[] ab = _abRow;
+
+        int iImageSize = iRowSize * iHeight;
+        // BITMAPFILEHEADER
+        ab[0] = 'B';
+        ab[1] = 'M';
+        IO.writeInt32LE(ab, 2, HEADERS_SIZE + iImageSize);
+        IO.writeInt32LE(ab, 6, 0); // reserved
+        IO.writeInt32LE(ab, 10, HEADERS_SIZE); // offset to pixels
+        // BITMAPINFOHEADER
+        IO.writeInt32LE(ab, 14, SIZEOF_INFO_HEADER);
+        IO.writeInt32LE(ab, 18, iWidth);
+        IO.writeInt32LE(ab, 22, iHeight); // positive = bottom-up
+        ab[26] = 1; ab[27] = 0; // planes
+        ab[28] = 24; ab[29] = 0; // bits/pixel
+        IO.writeInt32LE(ab, 30, 0); // BI_RGB
+        IO.writeInt32LE(ab, 34, iImageSize);
+        IO.writeInt32LE(ab, 38, 0); // horizontal pixels/meter
+        IO.writeInt32LE(ab, 42, 0); // vertical pixels/meter
+        IO.writeInt32LE(ab, 46, 0); // colors used
+        IO.writeInt32LE(ab, 50, 0); // important colors
+        out.write(ab, 0, HEADERS_SIZE);
+
+        // padding is always 0
+        for (int i = iWidth * 3; i < iRowSize; i++)
+            ab[i] = 0;
+        for (int y = iHeight - 1; y >= 0; y--) {
+            int iIn = iStart + y * iStride;
+            for (int x = 0, i = 0; x < iWidth; x++) {
+                int iRgb = aiRgb[iIn + x];
+                ab[i++] = (byte) iRgb;
+                ab[i++] = (byte)(iRgb >>  8);
+                ab[i++] = (byte)(iRgb >> 16);
+            }
+            out.write(ab, 0, iRowSize);
+        }
+    }
+
+    /** Same as {@link #write(int[], int, int, int, int, OutputStream)}
+     * for pixels filling the array row after row. */
+    public void write(@Nonnull int[] aiRgb, int iWidth, int iHeight, @Nonnull OutputStream out)
+            throws IOException
+    {
+        write(aiRgb, 0, iWidth, iWidth, iHeight, out);
+    }
+}
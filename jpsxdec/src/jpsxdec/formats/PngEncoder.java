@@ -0,0 +1,307 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpsxdec.formats;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/** Writes 24-bit truecolor PNG images straight from an array of
+ * 0xRRGGBB pixels, much faster than going through a BufferedImage and
+ * ImageIO. Buffers and the {@link Deflater} are reused between images, so
+ * an instance should only be used by one thread at a time.
+ * Call {@link #close()} when done to release the {@link Deflater}. */
+public class PngEncoder {
+
+    private static final byte[] SIGNATURE = {
+        (byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'
+    };
+    private static final int COLOR_TYPE_TRUECOLOR = 2;
+    private static final int BYTES_PER_PIXEL = 3;
+    /** Size of the IDAT chunks written. */
+    private static final int IDAT_SIZE = 64 * 1024;
+
+    /** How each row is filtered before compressing. */
+    public enum Filter {
+        NONE(0), SUB(1), UP(2), AVERAGE(3), PAETH(4),
+        /** Try every filter on each row and use the one with the smallest
+         * sum of absolute differences. Best compression, but slowest. */
+        ADAPTIVE(-1);
+
+        private final int _iType;
+        private Filter(int iType) {
+            _iType = iType;
+        }
+
+        public @Nonnull String getCmdLine() {
+            return name().toLowerCase();
+        }
+
+        /** @return null if no match. */
+        public static @CheckForNull Filter fromCmdLine(@Nonnull String sCmdLine) {
+            for (Filter filter : values()) {
+                if (filter.getCmdLine().equalsIgnoreCase(sCmdLine))
+                    return filter;
+            }
+            return null;
+        }
+    }
+
+    public static final int DEFAULT_COMPRESSION_LEVEL = 4;
+    @Nonnull
+    public static final Filter DEFAULT_FILTER = Filter.SUB;
+
+    private int _iCompressionLevel = DEFAULT_COMPRESSION_LEVEL;
+    @Nonnull
+    private Filter _filter = DEFAULT_FILTER;
+
+    @Nonnull
+    private final Deflater _deflater = new Deflater();
+    private final CRC32 _crc = new CRC32();
+    /** Chunk length, type, data, and room for the crc. */
+    private final byte[] _abChunk = new byte[8 + IDAT_SIZE + 4];
+
+    private byte[] _abPrevRow = new byte[0], _abCurRow = new byte[0];
+    /** Filter type byte + filtered row, one for each filter type. */
+    private byte[][] _aabFiltered = new byte[5][1];
+
+    /** Zlib compression level 0 (none) to 9 (best). Default is 4. */
+    public void setCompressionLevel(int iLevel) {
+        if (iLevel < Deflater.NO_COMPRESSION || iLevel > Deflater.BEST_COMPRESSION)
+            throw new IllegalArgumentException("Invalid compression level " + iLevel);
+        _iCompressionLevel = iLevel;
+    }
+
+    public int getCompressionLevel() {
+        return _iCompressionLevel;
+    }
+
+    /** Default is {@link Filter#SUB}, which compresses decoded video well
+     * for the time it takes. */
+    public void setFilter(@Nonnull Filter filter) {
+        _filter = filter;
+    }
+
+    public @Nonnull Filter getFilter() {
+        return _filter;
+    }
+
+    /** Writes the image as a PNG.
+     * @param aiRgb Pixels in 0xRRGGBB format, any alpha is ignored.
+     * @param iStart Index of the upper-left pixel.
+     * @param iStride Distance between rows in the array. */
+    public void write(@Nonnull int[] aiRgb, int iStart, int iStride,
+                      int iWidth, int iHeight, @Nonnull OutputStream out)
+            throws IOException
+    {
+        if (iWidth < 1 || iHeight < 1)
+            throw new IllegalArgumentException("Invalid dimensions " + iWidth + "x" + iHeight);
+
+        int iRowSize = iWidth * BYTES_PER_PIXEL;
+        if (_abCurRow.length != iRowSize) {
+            _abPrevRow = new byte[iRowSize];
+            _abCurRow = new byte[iRowSize];
+            for (int i = 0; i < _aabFiltered.length; i++)
+                _aabFiltered[i] = new byte[iRowSize + 1];
+        }
+
+        out.write(SIGNATURE);
+
+        // IHDR
+        writeInt(_abChunk, 8, iWidth);
+        writeInt(_abChunk, 12, iHeight);
+        _abChunk[16] = 8; // bit depth
+        _abChunk[17] = COLOR_TYPE_TRUECOLOR;
+        _abChunk[18] = 0; // compression
+        _abChunk[19] = 0; // filter
+        _abChunk[20] = 0; // interlace
+        writeChunk(out, 'I', 'H', 'D', 'R', 13);
+
+        _deflater.reset();
+        _deflater.setLevel(_iCompressionLevel);
+        int iChunkFill = 0;
+        Arrays.fill(_abPrevRow, (byte)0);
+        for (int y = 0, iRowStart = iStart; y < iHeight; y++, iRowStart += iStride) {
+            byte[] abRow = _abCurRow;
+            for (int x = 0, i = 0; x < iWidth; x++) {
+                int iRgb = aiRgb[iRowStart + x];
+                abRow[i++] = (byte)(iRgb >> 16);
+                abRow[i++] = (byte)(iRgb >>  8);
+                abRow[i++] = (byte) iRgb;
+            }
+
+            byte[] abFiltered = filterRow(abRow, _abPrevRow, iRowSize);
+            _deflater.setInput(abFiltered, 0, iRowSize + 1);
+            while (!_deflater.needsInput()) {
+                iChunkFill += _deflater.deflate(_abChunk, 8 + iChunkFill, IDAT_SIZE - iChunkFill);
+                if (iChunkFill == IDAT_SIZE) {
+                    writeChunk(out, 'I', 'D', 'A', 'T', iChunkFill);
+                    iChunkFill = 0;
+                }
+            }
+
+            _abCurRow = _abPrevRow;
+            _abPrevRow = abRow;
+        }
+        _deflater.finish();
+        while (!_deflater.finished()) {
+            iChunkFill += _deflater.deflate(_abChunk, 8 + iChunkFill, IDAT_SIZE - iChunkFill);
+            if (iChunkFill == IDAT_SIZE) {
+                writeChunk(out, 'I', 'D', 'A', 'T', iChunkFill);
+                iChunkFill = 0;
+            }
+        }
+        if (iChunkFill > 0)
+            writeChunk(out, 'I', 'D', 'A', 'T', iChunkFill);
+
+        writeChunk(out, 'I', 'E', 'N', 'D', 0);
+    }
+
+    /** Same as {@link #write(int[], int, int, int, int, OutputStream)}
+     * for pixels filling the array row after row. */
+    public void write(@Nonnull int[] aiRgb, int iWidth, int iHeight, @Nonnull OutputStream out)
+            throws IOException
+    {
+        write(aiRgb, 0, iWidth, iWidth, iHeight, out);
+    }
+
+    /** Releases the {@link Deflater}. The encoder can't be used afterward. */
+    public void close() {
+        _deflater.end();
+    }
+
+    /** @return the filter type byte followed by the filtered row. */
+    private @Nonnull byte[] filterRow(@Nonnull byte[] abRow, @Nonnull byte[] abPrev, int iRowSize) {
+        if (_filter != Filter.ADAPTIVE)
+            return filterRow(_filter._iType, abRow, abPrev, iRowSize);
+
+        byte[] abBest = null;
+        long lngBestSum = Long.MAX_VALUE;
+        for (int iType = 0; iType < _aabFiltered.length; iType++) {
+            byte[] abFiltered = filterRow(iType, abRow, abPrev, iRowSize);
+            // treat the bytes as signed, the usual heuristic
+            long lngSum = 0;
+            for (int i = 1; i <= iRowSize; i++)
+                lngSum += Math.abs(abFiltered[i]);
+            if (lngSum < lngBestSum) {
+                lngBestSum = lngSum;
+                abBest = abFiltered;
+            }
+        }
+        return abBest;
+    }
+
+    private @Nonnull byte[] filterRow(int iType, @Nonnull byte[] abRow,
+                                      @Nonnull byte[] abPrev, int iRowSize)
+    {
+        byte[] abOut = _aabFiltered[iType];
+        abOut[0] = (byte)iType;
+        int iBpp = BYTES_PER_PIXEL;
+        switch (iType) {
+            case 0:
+                System.arraycopy(abRow, 0, abOut, 1, iRowSize);
+                break;
+            case 1:
+                System.arraycopy(abRow, 0, abOut, 1, iBpp);
+                for (int i = iBpp; i < iRowSize; i++)
+                    abOut[i+1] = (byte)(abRow[i] - abRow[i-iBpp]);
+                break;
+            case 2:
+                for (int i = 0; i < iRowSize; i++)
+                    abOut[i+1] = (byte)(abRow[i] - abPrev[i]);
+                break;
+            case 3:
+                for (int i = 0; i < iBpp; i++)
+                    abOut[i+1] = (byte)(abRow[i] - ((abPrev[i] & 0xff) >> 1));
+                for (int i = iBpp; i < iRowSize; i++)
+                    abOut[i+1] = (byte)(abRow[i] - (((abRow[i-iBpp] & 0xff) + (abPrev[i] & 0xff)) >> 1));
+                break;
+            case 4:
+                for (int i = 0; i < iBpp; i++)
+                    abOut[i+1] = (byte)(abRow[i] - abPrev[i]); // paeth of (0, up, 0) is up
+                for (int i = iBpp; i < iRowSize; i++)
+                    abOut[i+1] = (byte)(abRow[i] - paeth(abRow[i-iBpp] & 0xff,
+                                                         abPrev[i] & 0xff,
+                                                         abPrev[i-iBpp] & 0xff));
+                break;
+            default:
+                throw new IllegalArgumentException();
+        }
+        return abOut;
+    }
+
+    private static int paeth(int iLeft, int iUp, int iUpLeft) {
+        int p = iLeft + iUp - iUpLeft;
+        int pa = Math.abs(p - iLeft);
+        int pb = Math.abs(p - iUp);
+        int pc = Math.abs(p - iUpLeft);
+        if (pa <= pb && pa <= pc)
+            return iLeft;
+        else if (pb <= pc)
+            return iUp;
+        else
+            return iUpLeft;
+    }
+
+    /** Writes the chunk whose data is already in {@link #_abChunk} at
+     * offset 8. */
+    private void writeChunk(@Nonnull OutputStream out, char c1, char c2, char c3, char c4,
+                            int iLength)
+            throws IOException
+    {
+        writeInt(_abChunk, 0, iLength);
+        _abChunk[4] = (byte)c1;
+        _abChunk[5] = (byte)c2;
+        _abChunk[6] = (byte)c3;
+        _abChunk[7] = (byte)c4;
+        _crc.reset();
+        _crc.update(_abChunk, 4, 4 + iLength);
+        writeInt(_abChunk, 8 + iLength, (int)_crc.getValue());
+        out.write(_abChunk, 0, 8 + iLength + 4);
+    }
+
+    private static void writeInt(@Nonnull byte[] ab, int i, int iValue) {
+        ab[i  ] = (byte)(iValue >> 24);
+        ab[i+1] = (byte)(iValue >> 16);
+        ab[i+2] = (byte)(iValue >>  8);
+        ab[i+3] = (byte) iValue;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.formats;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import javax.annotation.Nonnull;
+import javax.sound.sampled.AudioFormat;
+import jpsxdec.util.IO;
+import jpsxdec.util.Metrics;
+
+/** Streams PCM audio as a WAV without knowing the length ahead of time,
+ * so it can be written to stdout or a named pipe.
+ * The header sizes start as the maximum (how streamed WAVs are commonly
+ * marked). If the output turns out to be a regular file, the sizes are
+ * corrected on close. */
+public class WavWriter implements Closeable {
+
+    private static final int HEADER_SIZE = 44;
+    private static final int SILENCE_BUFFER_SIZE = 4096;
+
+    @Nonnull
+    private final OutputStream _out;
+    @Nonnull
+    private final AudioFormat _format;
+    private final int _iFrameSize;
+    private long _lngDataSize = 0;
+
+    /** Writes the header.
+     * @param format Must be signed little-endian PCM. */
+    public WavWriter(@Nonnull OutputStream out, @Nonnull AudioFormat format) throws IOException {
+        if (!AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding()) ||
+            format.isBigEndian() || format.getSampleSizeInBits() != 16)
+            throw new IllegalArgumentException("Only 16-bit signed little-endian PCM is supported " + format);
+        _out = out;
+        _format = format;
+        _iFrameSize = format.getFrameSize();
+        _out.write(makeHeader(0xffffffffL));
+    }
+
+    private @Nonnull byte[] makeHeader(long lngDataSize) {
+        byte[] ab = new byte[HEADER_SIZE];
+        ab[0] = 'R'; ab[1] = 'I'; ab[2] = 'F'; ab[3] = 'F';
+        IO.writeInt32LE(ab, 4, Math.min(lngDataSize + HEADER_SIZE - 8, 0xffffffffL));
+        ab[8] = 'W'; ab[9] = 'A'; ab[10] = 'V'; ab[11] = 'E';
+        ab[12] = 'f'; ab[13] = 'm'; ab[14] = 't'; ab[15] = ' ';
+        IO.writeInt32LE(ab, 16, 16);
+        IO.writeInt16LE(ab, 20, (short)1); // PCM
+        IO.writeInt16LE(ab, 22, (short)_format.getChannels());
+        int iSampleRate = (int)_format.getSampleRate();
+        IO.writeInt32LE(ab, 24, iSampleRate);
+        IO.writeInt32LE(ab, 28, iSampleRate * _iFrameSize); // bytes/second
+        IO.writeInt16LE(ab, 32, (short)_iFrameSize);
+        IO.writeInt16LE(ab, 34, (short)_format.getSampleSizeInBits());
+        ab[36] = 'd'; ab[37] = 'a'; ab[38] = 't'; ab[39] = 'a';
+        IO.writeInt32LE(ab, 40, lngDataSize);
+        return ab;
+    }
+
+    public @Nonnull AudioFormat getFormat() {
+        return _format;
+    }
+
+    public long getSampleFramesWritten() {
+        return _lngDataSize / _iFrameSize;
+    }
+
+    /** @param iLen Must be a multiple of the frame size. */
+    public void write(@Nonnull byte[] abData, int iOfs, int iLen) throws IOException {
+        if (iLen % _iFrameSize != 0)
+            throw new IllegalArgumentException("Data is not a whole number of sample frames " + iLen);
+        long lngStart = Metrics.start();
+        _out.write(abData, iOfs, iLen);
+        Metrics.FILE_WRITE.stop(lngStart, iLen);
+        _lngDataSize += iLen;
+    }
+
+    public void writeSilentSamples(long lngSampleFrames) throws IOException {
+        byte[] abSilence = new byte[(int)Math.min(SILENCE_BUFFER_SIZE, lngSampleFrames * _iFrameSize)];
+        long lngRemaining = lngSampleFrames * _iFrameSize;
+        while (lngRemaining > 0) {
+            int iLen = (int)Math.min(abSilence.length, lngRemaining);
+            _out.write(abSilence, 0, iLen);
+            lngRemaining -= iLen;
+        }
+        _lngDataSize += lngSampleFrames * _iFrameSize;
+    }
+
+    public void flush() throws IOException {
+        _out.flush();
+    }
+
+    /** Corrects the header sizes if the output is a regular file,
+     * then closes it. */
+    public void close() throws IOException {
+        try {
+            _out.flush();
+            if (_out instanceof FileOutputStream && _lngDataSize <= 0xffffffffL - HEADER_SIZE) {
+                FileChannel channel = ((FileOutputStream)_out).getChannel();
+                try {
+                    channel.write(ByteBuffer.wrap(makeHeader(_lngDataSize)), 0);
+                } catch (IOException ex) {
+                    // pipes can't seek, so the streaming sizes stay
+                }
+            }
+        } finally {
+            _out.close();
+        }
+    }
+}
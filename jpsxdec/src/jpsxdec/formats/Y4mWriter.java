@@ -0,0 +1,156 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.formats;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import javax.annotation.Nonnull;
+import jpsxdec.util.Metrics;
+import jpsxdec.util.Misc;
+
+/** Streams 4:2:0 YCbCr frames as YUV4MPEG2, the raw format most encoders
+ * accept from a pipe. Nothing is ever seeked, so the output can be
+ * stdout or a named pipe.
+ * Frames are Rec.601 limited range with the chroma centered between the
+ * luma samples (as MDEC and JPEG do). */
+public class Y4mWriter implements Closeable {
+
+    private static final byte[] FRAME_HEADER = Misc.stringToAscii("FRAME\n");
+
+    @Nonnull
+    private final OutputStream _out;
+    private final int _iWidth, _iHeight;
+    /** "FRAME\n" followed by the Y, Cb, and Cr planes of the last frame,
+     * so repeating it is a single write. */
+    @Nonnull
+    private final byte[] _abFrame;
+    private long _lngFramesWritten = 0;
+
+    /** Writes the stream header.
+     * @param lngFpsNum Frames/second numerator.
+     * @param lngFpsDenom Frames/second denominator. */
+    public Y4mWriter(@Nonnull OutputStream out, int iWidth, int iHeight,
+                     long lngFpsNum, long lngFpsDenom)
+            throws IOException
+    {
+        if (iWidth < 2 || iHeight < 2 || (iWidth % 2) != 0 || (iHeight % 2) != 0)
+            throw new IllegalArgumentException("Dimensions must be even " + iWidth + "x" + iHeight);
+        if (lngFpsNum > Integer.MAX_VALUE || lngFpsDenom > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Frame rate too precise " + lngFpsNum + "/" + lngFpsDenom);
+        _out = out;
+        _iWidth = iWidth;
+        _iHeight = iHeight;
+        _abFrame = new byte[FRAME_HEADER.length + iWidth * iHeight * 3 / 2];
+        System.arraycopy(FRAME_HEADER, 0, _abFrame, 0, FRAME_HEADER.length);
+
+        String sHeader = String.format("YUV4MPEG2 W%d H%d F%d:%d Ip A1:1 C420jpeg XYSCSS=420JPEG XCOLORRANGE=LIMITED\n",
+                                       iWidth, iHeight, lngFpsNum, lngFpsDenom);
+        _out.write(Misc.stringToAscii(sHeader));
+    }
+
+    public int getWidth() {
+        return _iWidth;
+    }
+
+    public int getHeight() {
+        return _iHeight;
+    }
+
+    public long getFramesWritten() {
+        return _lngFramesWritten;
+    }
+
+    /** Writes the planes of a frame the size given in the constructor. */
+    public void writeFrame(@Nonnull byte[] abY, @Nonnull byte[] abCb, @Nonnull byte[] abCr)
+            throws IOException
+    {
+        int iLumaSize = _iWidth * _iHeight;
+        int iChromaSize = iLumaSize / 4;
+        int iPos = FRAME_HEADER.length;
+        System.arraycopy(abY, 0, _abFrame, iPos, iLumaSize);
+        iPos += iLumaSize;
+        System.arraycopy(abCb, 0, _abFrame, iPos, iChromaSize);
+        iPos += iChromaSize;
+        System.arraycopy(abCr, 0, _abFrame, iPos, iChromaSize);
+        writeBuffer();
+    }
+
+    /** Writes the frame as {@link YCbCrImage} has it. */
+    public void writeFrame(@Nonnull YCbCrImage ycc) throws IOException {
+        if (ycc.getWidth() != _iWidth || ycc.getHeight() != _iHeight)
+            throw new IllegalArgumentException("Frame is " + ycc.getWidth() + "x" + ycc.getHeight() +
+                                               " but stream is " + _iWidth + "x" + _iHeight);
+        writeFrame(ycc.getY(), ycc.getCb(), ycc.getCr());
+    }
+
+    /** Writes the last frame again. Writes black if there wasn't one. */
+    public void repeatPreviousFrame() throws IOException {
+        if (_lngFramesWritten == 0)
+            fillBlank();
+        writeBuffer();
+    }
+
+    /** Writes a black frame. */
+    public void writeBlankFrame() throws IOException {
+        fillBlank();
+        writeBuffer();
+    }
+
+    private void writeBuffer() throws IOException {
+        long lngStart = Metrics.start();
+        _out.write(_abFrame);
+        Metrics.FILE_WRITE.stop(lngStart, _abFrame.length);
+        _lngFramesWritten++;
+    }
+
+    private void fillBlank() {
+        int iLumaEnd = FRAME_HEADER.length + _iWidth * _iHeight;
+        Arrays.fill(_abFrame, FRAME_HEADER.length, iLumaEnd, (byte)16);
+        Arrays.fill(_abFrame, iLumaEnd, _abFrame.length, (byte)128);
+    }
+
+    public void flush() throws IOException {
+        _out.flush();
+    }
+
+    public void close() throws IOException {
+        _out.close();
+    }
+}
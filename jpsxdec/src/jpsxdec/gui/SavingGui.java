@@ -105,9 +105,9 @@ public class SavingGui extends javax.swing.JDialog implements PropertyChangeList
             _guiStartCancelCloseBtn.setEnabled(true);
             ILocalizedMessage result;
             if (_saveAll.isCancelled())
-                result = I.GUI_SAVE_STATUS_OVERALL_CANCELED(_saveAll._progressLog.getFileName());
+                result = I.GUI_SAVE_STATUS_OVERALL_CANCELED(_saveAll._saveLog.getFileName());
             else
-                result = I.GUI_SAVE_STATUS_OVERALL_COMPLETE(_saveAll._progressLog.getFileName());
+                result = I.GUI_SAVE_STATUS_OVERALL_COMPLETE(_saveAll._saveLog.getFileName());
             _guiResultLbl.setText(result.getLocalizedMessage());
         }
     }
@@ -44,6 +44,8 @@ import java.util.List;
 import java.util.logging.Level;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import jpsxdec.discitems.BatchSaver;
+import jpsxdec.discitems.DiscItem;
 import jpsxdec.gui.SavingGuiTable.Row;
 import jpsxdec.i18n.I;
 import jpsxdec.i18n.ILocalizedMessage;
@@ -54,52 +56,104 @@ import jpsxdec.i18n.log.UserFriendlyLogger;
 import jpsxdec.util.TaskCanceledException;
 import org.jdesktop.swingworker.SwingWorker;
 
-public class SavingGuiTask extends SwingWorker<Void, SavingGuiTask.Event_Message> 
-        implements UserFriendlyLogger.OnWarnErr
-{
+public class SavingGuiTask extends SwingWorker<Void, SavingGuiTask.Event_Message> {
     public static final String ALL_DONE = "alldone";
 
     @Nonnull
     private final ArrayList<Row> _rows;
     @CheckForNull
     private final File _outputDir;
-    @CheckForNull
-    private Row _currentRow;
 
-    
-    final ProgressLogger _progressLog = new ProgressLogger(I.SAVE_LOG_FILE_BASE_NAME().getLocalizedMessage())
-    {
+    final UserFriendlyLogger _saveLog = new UserFriendlyLogger(I.SAVE_LOG_FILE_BASE_NAME().getLocalizedMessage());
+
+    /** Shows the progress of saving a row. */
+    private class RowProgress extends ProgressLogger implements UserFriendlyLogger.OnWarnErr {
+
+        @Nonnull
+        private final Row _row;
+
+        public RowProgress(@Nonnull Row row) {
+            super(I.SAVE_LOG_FILE_BASE_NAME().getLocalizedMessage());
+            _row = row;
+        }
 
         protected void handleProgressStart() throws TaskCanceledException {
             if (isCancelled())
                 throw new TaskCanceledException();
-            if (_currentRow != null)
-                EventQueue.invokeLater(new Event_Progress(_currentRow, SavingGuiTable.PROGRESS_STARTED));
+            EventQueue.invokeLater(new Event_Progress(_row, SavingGuiTable.PROGRESS_STARTED));
         }
 
         protected void handleProgressEnd() throws TaskCanceledException {
-            if (_currentRow != null)
-                EventQueue.invokeLater(new Event_Progress(_currentRow, SavingGuiTable.PROGRESS_DONE));
+            EventQueue.invokeLater(new Event_Progress(_row, SavingGuiTable.PROGRESS_DONE));
         }
 
         protected void handleProgressUpdate(double dblPercentComplete) throws TaskCanceledException {
             if (isCancelled())
                 throw new TaskCanceledException();
-            if (_currentRow != null)
-                EventQueue.invokeLater(new Event_Progress(_currentRow,
-                                                          (int)Math.round(dblPercentComplete * 100)));
+            EventQueue.invokeLater(new Event_Progress(_row,
+                                                      (int)Math.round(dblPercentComplete * 100)));
         }
 
         public void event(@Nonnull ILocalizedMessage msg) {
-            if (_currentRow != null)
-                publish(new Event_Message(_currentRow, msg));
+            publish(new Event_Message(_row, msg));
         }
 
         public boolean isSeekingEvent() {
             // TODO: only seek event after so many seconds
             return true;
         }
-    };
+
+        public void onWarn(@Nonnull ILocalizedMessage msg) {
+            EventQueue.invokeLater(new Event_Warning(_row));
+        }
+        public void onErr(@Nonnull ILocalizedMessage msg) {
+            EventQueue.invokeLater(new Event_Error(_row));
+        }
+    }
+
+    /** Saves a row. The builders are tied to the items shown in the GUI,
+     * so rows are saved one at a time with those items. */
+    private class RowJob extends BatchSaver.Job {
+
+        @Nonnull
+        private final Row _row;
+
+        public RowJob(@Nonnull Row row) {
+            super(row._builder.getDiscItem());
+            _row = row;
+        }
+
+        protected @Nonnull ProgressLogger getProgressDisplay() {
+            return new RowProgress(_row);
+        }
+
+        protected void save(@Nonnull DiscItem item, @Nonnull ProgressLogger pl)
+                throws LoggedFailure, TaskCanceledException
+        {
+            pl.log(Level.INFO, new UnlocalizedMessage(item.toString()));
+            _row._builder.startSave(pl, _outputDir);
+        }
+
+        protected boolean finished(@CheckForNull Exception failure) {
+            if (failure == null) {
+                EventQueue.invokeLater(new Event_Progress(_row, SavingGuiTable.PROGRESS_DONE));
+                return true;
+            } else if (failure instanceof TaskCanceledException) {
+                // cool
+                EventQueue.invokeLater(new Event_Progress(_row, SavingGuiTable.PROGRESS_CANCELED));
+                return false;
+            } else if (failure instanceof LoggedFailure) {
+                // uncool
+                EventQueue.invokeLater(new Event_Progress(_row, SavingGuiTable.PROGRESS_FAILED));
+                return true;
+            } else {
+                // uh oh...
+                _saveLog.log(Level.SEVERE, I.GUI_UNHANDLED_ERROR(), failure);
+                EventQueue.invokeLater(new Event_Progress(_row, SavingGuiTable.PROGRESS_FAILED));
+                return !(failure instanceof InterruptedException);
+            }
+        }
+    }
 
 
     public SavingGuiTask(@Nonnull ArrayList<Row> rows, @Nonnull String sCd,
@@ -107,47 +161,21 @@ public class SavingGuiTask extends SwingWorker<Void, SavingGuiTask.Event_Message
     {
         _rows = rows;
         _outputDir = outputDir;
-        _progressLog.log(Level.INFO, new UnlocalizedMessage(sCd));
-        _progressLog.setListener(this);
-    }
-
-    public void onWarn(@Nonnull ILocalizedMessage msg) {
-        if (_currentRow != null)
-            EventQueue.invokeLater(new Event_Warning(_currentRow));
-    }
-    public void onErr(@Nonnull ILocalizedMessage msg) {
-        if (_currentRow != null)
-            EventQueue.invokeLater(new Event_Error(_currentRow));
+        _saveLog.log(Level.INFO, new UnlocalizedMessage(sCd));
     }
 
     @Override
     protected Void doInBackground() {
+        ArrayList<RowJob> jobs = new ArrayList<RowJob>(_rows.size());
         for (Row row : _rows) {
-            _currentRow = row;
-            try {
-                _progressLog.log(Level.INFO, new UnlocalizedMessage(row._builder.getDiscItem().toString()));
-                row._builder.startSave(_progressLog, _outputDir);
-            } catch (TaskCanceledException ex) {
-                // cool
-                EventQueue.invokeLater(new Event_Progress(row, SavingGuiTable.PROGRESS_CANCELED));
-                break;
-            } catch (LoggedFailure ex) {
-                // uncool
-                EventQueue.invokeLater(new Event_Progress(row, SavingGuiTable.PROGRESS_FAILED));
-                continue;
-            } catch (Throwable ex) {
-                // uh oh...
-                _progressLog.log(Level.SEVERE, I.GUI_UNHANDLED_ERROR(), ex);
-                EventQueue.invokeLater(new Event_Progress(row, SavingGuiTable.PROGRESS_FAILED));
-                if (ex instanceof InterruptedException)
-                    break;
-                else
-                    continue;
-            }
-            EventQueue.invokeLater(new Event_Progress(row, SavingGuiTable.PROGRESS_DONE));
+            jobs.add(new RowJob(row));
+        }
+        try {
+            new BatchSaver().save(jobs, _saveLog);
+        } finally {
+            firePropertyChange(ALL_DONE, null, null);
+            _saveLog.close();
         }
-        firePropertyChange(ALL_DONE, null, null);
-        _progressLog.close();
 
         return null;
     }
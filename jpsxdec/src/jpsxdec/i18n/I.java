@@ -85,6 +85,19 @@ public class I {
         return msg("CMD_DISC_FILE_REQUIRED", "Input file disc image required for this command.");
     }
 
+    /**
+    <table border="1"><tr><td>
+    <pre>Index file required for this command.</pre>
+    </td></tr></table>
+    <p>-x command is required</p>
+    <ul>
+       <li>Command_ConvertIndex.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_INDEX_FILE_REQUIRED() {
+        return msg("CMD_INDEX_FILE_REQUIRED", "Index file required for this command.");
+    }
+
     /**
     <table border="1"><tr><td>
     <pre>Input file is required for this command.</pre>
@@ -798,6 +811,114 @@ public class I {
         return msg("CMD_SAVING_INDEX", "Saving index as {0}", fileName);
     }
 
+    /**
+    <table border="1"><tr><td>
+    <pre>Converted index {0} to binary index {1}</pre>
+    </td></tr></table>
+    <ul>
+       <li>Command_ConvertIndex.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_CONVERTED_INDEX_TO_BINARY(@Nonnull String inFileName, @Nonnull String outFileName) {
+        return msg("CMD_CONVERTED_INDEX_TO_BINARY", "Converted index {0} to binary index {1}", inFileName, outFileName);
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>Converted binary index {0} to text index {1}</pre>
+    </td></tr></table>
+    <ul>
+       <li>Command_ConvertIndex.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_CONVERTED_INDEX_TO_TEXT(@Nonnull String inFileName, @Nonnull String outFileName) {
+        return msg("CMD_CONVERTED_INDEX_TO_TEXT", "Converted binary index {0} to text index {1}", inFileName, outFileName);
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>Verifying EDC/ECC of sectors {0,number,#} - {1,number,#} with {2,number,#} thread(s)</pre>
+    </td></tr></table>
+    <ul>
+       <li>Command_Verify.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_VERIFYING_SECTORS(int startSector, int endSector, int threadCount) {
+        return msg("CMD_VERIFYING_SECTORS", "Verifying EDC/ECC of sectors {0,number,#} - {1,number,#} with {2,number,#} thread(s)", startSector, endSector, threadCount);
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>Sector {0,number,#}: EDC does not match</pre>
+    </td></tr></table>
+    <ul>
+       <li>Command_Verify.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_VERIFY_BAD_EDC(int sector) {
+        return msg("CMD_VERIFY_BAD_EDC", "Sector {0,number,#}: EDC does not match", sector);
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>Sector {0,number,#}: ECC does not match</pre>
+    </td></tr></table>
+    <ul>
+       <li>Command_Verify.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_VERIFY_BAD_ECC(int sector) {
+        return msg("CMD_VERIFY_BAD_ECC", "Sector {0,number,#}: ECC does not match", sector);
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>Sector {0,number,#}: EDC and ECC do not match</pre>
+    </td></tr></table>
+    <ul>
+       <li>Command_Verify.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_VERIFY_BAD_EDC_AND_ECC(int sector) {
+        return msg("CMD_VERIFY_BAD_EDC_AND_ECC", "Sector {0,number,#}: EDC and ECC do not match", sector);
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>{0,number,#} sectors verified, {1,number,#} damaged, {2,number,#} without EDC/ECC</pre>
+    </td></tr></table>
+    <ul>
+       <li>Command_Verify.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_VERIFY_SUMMARY(int verifiedCount, int damagedCount, int notAvailableCount) {
+        return msg("CMD_VERIFY_SUMMARY", "{0,number,#} sectors verified, {1,number,#} damaged, {2,number,#} without EDC/ECC", verifiedCount, damagedCount, notAvailableCount);
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>Saving bad sector map as {0}</pre>
+    </td></tr></table>
+    <ul>
+       <li>Command_Verify.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_SAVING_BAD_SECTOR_MAP(@Nonnull String fileName) {
+        return msg("CMD_SAVING_BAD_SECTOR_MAP", "Saving bad sector map as {0}", fileName);
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>Item #{0,number,#} {1} contains {2,number,#} damaged sector(s)</pre>
+    </td></tr></table>
+    <ul>
+       <li>CommandLine.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_ITEM_HAS_BAD_SECTORS(int itemIndex, @Nonnull String itemId, int badSectorCount) {
+        return msg("CMD_ITEM_HAS_BAD_SECTORS", "Item #{0,number,#} {1} contains {2,number,#} damaged sector(s)", itemIndex, itemId, badSectorCount);
+    }
+
     /**
     <table border="1"><tr><td>
     <pre>Try -? for help.</pre>
@@ -2250,6 +2371,18 @@ Do you want to replace it?</pre>
         return msg("INDEX_SECTOR_ITEM_PROGRESS", "Sector {0,number,#} / {1,number,#} {2,number,#} items found", currentSectorNumber, totalSectorCount, itemsFound);
     }
 
+    /**
+    <table border="1"><tr><td>
+    <pre>Reused what was found in {0,number,#} of {1,number,#} sectors</pre>
+    </td></tr></table>
+    <ul>
+       <li>DiscIndex.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage INDEX_CACHE_SECTORS_REUSED(int reusedSectorCount, int totalSectorCount) {
+        return msg("INDEX_CACHE_SECTORS_REUSED", "Reused what was found in {0,number,#} of {1,number,#} sectors", reusedSectorCount, totalSectorCount);
+    }
+
     /**
     <table border="1"><tr><td>
     <pre>{0} Lines that begin with {0} are ignored</pre>
@@ -2622,6 +2755,18 @@ Do you want to replace it?</pre>
         return msg("CMD_VOLUME_PERCENT", "Volume: {0,number,#%}%", volumeLevelPercent);
     }
 
+    /**
+    <table border="1"><tr><td>
+    <pre>Sample rate: {0,number,#} Hz</pre>
+    </td></tr></table>
+    <ul>
+       <li>SpuSaverBuilder.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_SAMPLE_RATE(int sampleRate) {
+        return msg("CMD_SAMPLE_RATE", "Sample rate: {0,number,#} Hz", sampleRate);
+    }
+
     /**
     <table border="1"><tr><td>
     <pre>Filename: {0}</pre>
@@ -2690,6 +2835,31 @@ Do you want to replace it?</pre>
         return msg("CMD_AUDIO_VOL_HELP", "Adjust volume (default {0,number,#}).", defaultVolumeLevel);
     }
 
+    /**
+    <table border="1"><tr><td>
+    <pre>-samplerate &lt;Hz&gt;</pre>
+    </td></tr></table>
+    <p>Note that the command -samplerate is hard-coded</p>
+    <ul>
+       <li>SpuSaverBuilder.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_SPU_SAMPLERATE() {
+        return msg("CMD_SPU_SAMPLERATE", "-samplerate <Hz>");
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>Sample rate to save at. SPU clips do not say what it is (default is from the index).</pre>
+    </td></tr></table>
+    <ul>
+       <li>SpuSaverBuilder.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_SPU_SAMPLERATE_HELP() {
+        return msg("CMD_SPU_SAMPLERATE_HELP", "Sample rate to save at. SPU clips do not say what it is (default is from the index).");
+    }
+
     /**
     <table border="1"><tr><td>
     <pre>Ignoring invalid format {0}</pre>
@@ -2882,6 +3052,30 @@ Do you want to replace it?</pre>
         return msg("CMD_PATCHING_WITH_DISC_ITEM", "with {0}", otherDiscItemDescription);
     }
 
+    /**
+    <table border="1"><tr><td>
+    <pre>Patched {0,number,#} sectors in {1,number,#.##} seconds ({2,number,#} sectors/second)</pre>
+    </td></tr></table>
+    <ul>
+       <li>DiscPatcher.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage PATCH_SECTORS_WRITTEN(int sectorCount, double seconds, double sectorsPerSecond) {
+        return msg("PATCH_SECTORS_WRITTEN", "Patched {0,number,#} sectors in {1,number,#.##} seconds ({2,number,#} sectors/second)", sectorCount, seconds, sectorsPerSecond);
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>Patched sector {0,number,#} failed verification</pre>
+    </td></tr></table>
+    <ul>
+       <li>DiscPatcher.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage PATCH_VERIFY_FAILED(int sector) {
+        return msg("PATCH_VERIFY_FAILED", "Patched sector {0,number,#} failed verification", sector);
+    }
+
     /**
     <table border="1"><tr><td>
     <pre>XA audio mismatch: new XA audio ({0,number,#} bits/sample, {1,number} {2,choice,1#Mono|2#Stereo} samples at {3,number}Hz) does not match existing XA audio ({4,number,#} bits/sample, {5,number} {6,choice,1#Mono|2#Stereo} samples at {7,number}Hz)</pre>
@@ -3133,6 +3327,31 @@ Do you want to replace it?</pre>
         return msg("QUALITY_PSX_COMMAND", "psx");
     }
 
+    /**
+    <table border="1"><tr><td>
+    <pre>Emulate PSX quality (faster)</pre>
+    </td></tr></table>
+    <ul>
+       <li>MdecDecodeQuality.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage QUALITY_PSX_FAST_DESCRIPTION() {
+        return msg("QUALITY_PSX_FAST_DESCRIPTION", "Emulate PSX quality (faster)");
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>psxfast</pre>
+    </td></tr></table>
+    <p>1 word (no spaces) user can type on command-line. Not case sensitive</p>
+    <ul>
+       <li>MdecDecodeQuality.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage QUALITY_PSX_FAST_COMMAND() {
+        return msg("QUALITY_PSX_FAST_COMMAND", "psxfast");
+    }
+
     /**
     <table border="1"><tr><td>
     <pre>Bicubic</pre>
@@ -3742,6 +3961,18 @@ Do you want to replace it?</pre>
         return msg("TRYING_QSCALE", "Trying {0,number,#}", quantizationScale);
     }
 
+    /**
+    <table border="1"><tr><td>
+    <pre>New frame {0} took {1,number,#} trial encodes</pre>
+    </td></tr></table>
+    <ul>
+       <li>QscaleSearch.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage QSCALE_SEARCH_TRIALS(@Nonnull String frameNumber, int trialCount) {
+        return msg("QSCALE_SEARCH_TRIALS", "New frame {0} took {1,number,#} trial encodes", frameNumber, trialCount);
+    }
+
     /**
     <table border="1"><tr><td>
     <pre>End of stream</pre>
@@ -4077,6 +4308,18 @@ Do you want to replace it?</pre>
         return msg("JPEG_ENCODER_FRAME_FAIL_NO_FRAME", "The simple jPSXdec JPEG encoder can't handle frame. Please save in a different format.");
     }
 
+    /**
+    <table border="1"><tr><td>
+    <pre>Encoded {0,number,#} frames at {1,number,#.##} fps</pre>
+    </td></tr></table>
+    <ul>
+       <li>VDP.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage MJPG_FRAMES_PER_SECOND(int frameCount, double framesPerSecond) {
+        return msg("MJPG_FRAMES_PER_SECOND", "Encoded {0,number,#} frames at {1,number,#.##} fps", frameCount, framesPerSecond);
+    }
+
     /**
     <table border="1"><tr><td>
     <pre>Writing {0,number,#} blank {0,choice,1#frame|2#frames} to align audio/video playback.</pre>
@@ -4363,6 +4606,30 @@ Do you want to replace it?</pre>
         return msg("VID_AVI_YUV_COMMAND", "avi:yuv");
     }
 
+    /**
+    <table border="1"><tr><td>
+    <pre>YUV4MPEG2 stream</pre>
+    </td></tr></table>
+    <ul>
+       <li>VideoFormat.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage VID_Y4M_DESCRIPTION() {
+        return msg("VID_Y4M_DESCRIPTION", "YUV4MPEG2 stream");
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>y4m</pre>
+    </td></tr></table>
+    <ul>
+       <li>VideoFormat.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage VID_Y4M_COMMAND() {
+        return msg("VID_Y4M_COMMAND", "y4m");
+    }
+
     /**
     <table border="1"><tr><td>
     <pre>{0}-{1}</pre>
@@ -4550,6 +4817,42 @@ Do you want to replace it?</pre>
         return msg("CMD_DIMENSIONS", "Dimensions: {0,number,#}x{1,number,#}", width, height);
     }
 
+    /**
+    <table border="1"><tr><td>
+    <pre>Decoding threads: {0,number,#}</pre>
+    </td></tr></table>
+    <ul>
+       <li>VideoSaverBuilder.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_DECODE_THREADS(int threadCount) {
+        return msg("CMD_DECODE_THREADS", "Decoding threads: {0,number,#}", threadCount);
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>Writing OpenDML (AVI 2.0)</pre>
+    </td></tr></table>
+    <ul>
+       <li>VideoSaverBuilder.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_OPENDML() {
+        return msg("CMD_OPENDML", "Writing OpenDML (AVI 2.0)");
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>PNG compression level {0,number,#}, filter {1}</pre>
+    </td></tr></table>
+    <ul>
+       <li>VideoSaverBuilder.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_PNG_OPTIONS(int compressionLevel, @Nonnull String filter) {
+        return msg("CMD_PNG_OPTIONS", "PNG compression level {0,number,#}, filter {1}", compressionLevel, filter);
+    }
+
     /**
     <table border="1"><tr><td>
     <pre>Error closing AVI</pre>
@@ -4741,6 +5044,154 @@ Do you want to replace it?</pre>
         return msg("CMD_VIDEO_FRAMES_HELP", "Process only frames in range.");
     }
 
+    /**
+    <table border="1"><tr><td>
+    <pre>-threads #</pre>
+    </td></tr></table>
+    <p>Note that the command -threads is hard-coded</p>
+    <ul>
+       <li>VideoSaverBuilder.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_VIDEO_THREADS() {
+        return msg("CMD_VIDEO_THREADS", "-threads #");
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>Use # threads (default 1) to decode frames, or with avi:mjpg, to convert frames to JPEG.</pre>
+    </td></tr></table>
+    <ul>
+       <li>VideoSaverBuilder.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_VIDEO_THREADS_HELP() {
+        return msg("CMD_VIDEO_THREADS_HELP", "Use # threads (default 1) to decode frames, or with avi:mjpg, to convert frames to JPEG.");
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>-opendml</pre>
+    </td></tr></table>
+    <p>Note that the command -opendml is hard-coded</p>
+    <ul>
+       <li>VideoSaverBuilder.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_VIDEO_OPENDML() {
+        return msg("CMD_VIDEO_OPENDML", "-opendml");
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>Write an OpenDML (AVI 2.0) AVI, which removes the 2-4GB RIFF size limit of a regular AVI.</pre>
+    </td></tr></table>
+    <ul>
+       <li>VideoSaverBuilder.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_VIDEO_OPENDML_HELP() {
+        return msg("CMD_VIDEO_OPENDML_HELP", "Write an OpenDML (AVI 2.0) AVI, which removes the 2-4GB RIFF size limit of a regular AVI.");
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>-pngcompress &lt;0-9&gt;</pre>
+    </td></tr></table>
+    <p>Note that the command -pngcompress is hard-coded</p>
+    <ul>
+       <li>VideoSaverBuilder.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_VIDEO_PNGCOMPRESS() {
+        return msg("CMD_VIDEO_PNGCOMPRESS", "-pngcompress <0-9>");
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>PNG compression level, from 0 (fastest) to 9 (smallest) (default {0,number,#}).</pre>
+    </td></tr></table>
+    <ul>
+       <li>VideoSaverBuilder.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_VIDEO_PNGCOMPRESS_HELP(int defaultLevel) {
+        return msg("CMD_VIDEO_PNGCOMPRESS_HELP", "PNG compression level, from 0 (fastest) to 9 (smallest) (default {0,number,#}).", defaultLevel);
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>-pngfilter &lt;filter&gt;</pre>
+    </td></tr></table>
+    <p>Note that the command -pngfilter is hard-coded</p>
+    <ul>
+       <li>VideoSaverBuilder.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_VIDEO_PNGFILTER() {
+        return msg("CMD_VIDEO_PNGFILTER", "-pngfilter <filter>");
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>PNG row filter (default {0}). Options:</pre>
+    </td></tr></table>
+    <ul>
+       <li>VideoSaverBuilder.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_VIDEO_PNGFILTER_HELP(@Nonnull String defaultFilter) {
+        return msg("CMD_VIDEO_PNGFILTER_HELP", "PNG row filter (default {0}). Options:", defaultFilter);
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>-y4mout &lt;file, -&gt;</pre>
+    </td></tr></table>
+    <ul>
+       <li>VideoSaverBuilder.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_VIDEO_Y4MOUT() {
+        return msg("CMD_VIDEO_Y4MOUT", "-y4mout <file, ->");
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>Write the y4m video to &lt;file&gt; or named pipe, or - for standard output.</pre>
+    </td></tr></table>
+    <ul>
+       <li>VideoSaverBuilder.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_VIDEO_Y4MOUT_HELP() {
+        return msg("CMD_VIDEO_Y4MOUT_HELP", "Write the y4m video to <file> or named pipe, or - for standard output.");
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>-wavout &lt;file, -&gt;</pre>
+    </td></tr></table>
+    <ul>
+       <li>VideoSaverBuilder.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_VIDEO_WAVOUT() {
+        return msg("CMD_VIDEO_WAVOUT", "-wavout <file, ->");
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>Write the audio saved with y4m video to &lt;file&gt; or named pipe, or - for standard output.</pre>
+    </td></tr></table>
+    <ul>
+       <li>VideoSaverBuilder.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_VIDEO_WAVOUT_HELP() {
+        return msg("CMD_VIDEO_WAVOUT_HELP", "Write the audio saved with y4m video to <file> or named pipe, or - for standard output.");
+    }
+
     /**
     <table border="1"><tr><td>
     <pre>-num &lt;type&gt;</pre>
@@ -5318,6 +5769,18 @@ to: {1}</pre>
         return msg("CMD_IGNORING_INVALID_VALUE_FOR_CMD", "Ignoring invalid value \"{0}\" for {1}", invalidValue, command);
     }
 
+    /**
+    <table border="1"><tr><td>
+    <pre>Indexing with 1 thread to use the identification cache</pre>
+    </td></tr></table>
+    <ul>
+       <li>CommandLine.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_INDEXING_WITH_1_THREAD_FOR_IDCACHE() {
+        return msg("CMD_INDEXING_WITH_1_THREAD_FOR_IDCACHE", "Indexing with 1 thread to use the identification cache");
+    }
+
     /**
     <table border="1"><tr><td>
     <pre>Opening file {0}</pre>
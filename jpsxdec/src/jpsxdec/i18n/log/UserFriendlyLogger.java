@@ -159,8 +159,20 @@ public class UserFriendlyLogger implements ILocalizedLogger, Closeable {
 
     /** Attempts to open the target log file.
      * If fails, tries to create a temp file with the same base name.
-     * If that fails, logs to System.err.  */
+     * If that fails, logs to System.err.
+     * If the log file was already opened and then closed, it is added to. */
     private void openOutputFile() {
+        if (_file != null) {
+            try {
+                _logStream = new PrintStream(new BufferedOutputStream(new FileOutputStream(_file, true)), true, "UTF-8");
+            } catch (FileNotFoundException ex) {
+                Misc.log(LOG, Level.SEVERE, ex, "Unable to open log file {0}", _file);
+                _logStream = System.err;
+            } catch (UnsupportedEncodingException ex) {
+                throw new RuntimeException("Every implementation of the Java platform is required to support UTF-8", ex);
+            }
+            return;
+        }
         File file = new File(_sBaseName + ".log");
         FileOutputStream fos = null;
         try {
@@ -195,9 +207,13 @@ public class UserFriendlyLogger implements ILocalizedLogger, Closeable {
         ps.println(_dateFormat.format(Calendar.getInstance().getTime()));
     }
 
+    /** Closes the log file. Logging anything after this will open it again
+     * and add to it. */
     public void close() {
-        if (_file != null)
+        if (_file != null && _logStream != null && _logStream != System.err) {
             _logStream.close();
+            _logStream = null;
+        }
     }
 
 }
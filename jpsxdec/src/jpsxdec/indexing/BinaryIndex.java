@@ -0,0 +1,367 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.indexing;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.Version;
+import jpsxdec.discitems.IndexId;
+import jpsxdec.discitems.SerializedDiscItem;
+import jpsxdec.i18n.I;
+import jpsxdec.i18n.exception.LocalizedDeserializationFail;
+import jpsxdec.util.IO;
+
+/** Index file that can be opened without reading all the items.
+ *<p>
+ * It holds the same lines as a text index, in three parts:
+ * <ol>
+ * <li>Header: {@link #MAGIC}, format version, item count, where the item
+ *     table and string pool start, and the index header and disc lines.
+ * <li>Item table: for each item, its type, sector range, parent item,
+ *     id, serialized line, and index number. Every entry is
+ *     {@link #ITEM_SIZE} bytes so any item can be found right away.
+ * <li>String pool: every string, as its UTF-8 length followed by the bytes.
+ *     The header and item table refer to strings by their offset in the file.
+ * </ol>
+ * The file is read in one go, but the item lines are only decoded
+ * when the item is needed. It isn't memory-mapped because a mapping can't
+ * be released, and Windows would keep the file locked. */
+class BinaryIndex {
+
+    private static final Logger LOG = Logger.getLogger(BinaryIndex.class.getName());
+
+    /** "jPXI", which a text index can never start with. */
+    private static final int MAGIC = 0x6A505849;
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int HEADER_ITEM_COUNT = 8;
+    private static final int HEADER_TABLE_START = 12;
+    private static final int HEADER_POOL_START = 16;
+    private static final int HEADER_INDEX_HEADER = 20;
+    private static final int HEADER_CD = 24;
+
+    private static final int ITEM_SIZE = 28;
+    private static final int ITEM_TYPE = 0;
+    private static final int ITEM_START_SECTOR = 4;
+    private static final int ITEM_END_SECTOR = 8;
+    private static final int ITEM_PARENT = 12;
+    private static final int ITEM_ID = 16;
+    private static final int ITEM_LINE = 20;
+    private static final int ITEM_NUMBER = 24;
+
+    /** If the file starts like a binary index. */
+    public static boolean isBinaryIndex(@Nonnull File indexFile) throws IOException {
+        DataInputStream dis = new DataInputStream(new FileInputStream(indexFile));
+        try {
+            return dis.readInt() == MAGIC;
+        } catch (EOFException ex) {
+            return false;
+        } finally {
+            IO.closeSilently(dis, LOG);
+        }
+    }
+
+    /** Writes a binary index with the given disc and item lines. */
+    public static void write(@Nonnull File indexFile, @Nonnull String sSourceCdLine,
+                             @Nonnull List<String> itemLines)
+            throws LocalizedDeserializationFail, FileNotFoundException, IOException
+    {
+        // the parent of an item is the item with the parent id
+        HashMap<String, Integer> idToItem = new HashMap<String, Integer>();
+        SerializedDiscItem[] aoItems = new SerializedDiscItem[itemLines.size()];
+        for (int i = 0; i < aoItems.length; i++) {
+            aoItems[i] = new SerializedDiscItem(itemLines.get(i));
+            // the first item with an id wins, same as building the tree from a text index
+            if (!idToItem.containsKey(aoItems[i].getId()))
+                idToItem.put(aoItems[i].getId(), Integer.valueOf(i));
+        }
+
+        StringPool pool = new StringPool(HEADER_SIZE + aoItems.length * ITEM_SIZE);
+        ByteBuffer table = ByteBuffer.allocate(aoItems.length * ITEM_SIZE);
+        for (int i = 0; i < aoItems.length; i++) {
+            SerializedDiscItem item = aoItems[i];
+            IndexId parentId = new IndexId(item.getId()).getParentId();
+            Integer parent = parentId == null ? null : idToItem.get(parentId.serialize());
+            int[] aiSectors = item.getSectorRange();
+            table.putInt(pool.add(item.getType()));
+            table.putInt(aiSectors[0]);
+            table.putInt(aiSectors[1]);
+            table.putInt(parent == null ? -1 : parent.intValue());
+            table.putInt(pool.add(item.getId()));
+            table.putInt(pool.add(itemLines.get(i)));
+            table.putInt(item.getIndex());
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(FORMAT_VERSION);
+        header.putInt(aoItems.length);
+        header.putInt(HEADER_SIZE);
+        header.putInt(HEADER_SIZE + table.capacity());
+        header.putInt(pool.add(Version.IndexHeader));
+        header.putInt(pool.add(sSourceCdLine));
+
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+        try {
+            dos.write(header.array());
+            dos.write(table.array());
+            pool.writeTo(dos);
+        } finally {
+            dos.close();
+        }
+    }
+
+    /** Strings to be written after the item table, each written only once. */
+    private static class StringPool {
+        private final HashMap<String, Integer> _offsets = new HashMap<String, Integer>();
+        private final ArrayList<byte[]> _strings = new ArrayList<byte[]>();
+        private int _iNextOffset;
+
+        public StringPool(int iStartOffset) {
+            _iNextOffset = iStartOffset;
+        }
+
+        /** @return Offset of the string in the file. */
+        public int add(@Nonnull String s) {
+            Integer offset = _offsets.get(s);
+            if (offset == null) {
+                byte[] ab = utf8(s);
+                offset = Integer.valueOf(_iNextOffset);
+                _offsets.put(s, offset);
+                _strings.add(ab);
+                _iNextOffset += 4 + ab.length;
+            }
+            return offset.intValue();
+        }
+
+        public void writeTo(@Nonnull DataOutputStream dos) throws IOException {
+            for (byte[] ab : _strings) {
+                dos.writeInt(ab.length);
+                dos.write(ab);
+            }
+        }
+    }
+
+    private static @Nonnull byte[] utf8(@Nonnull String s) {
+        try {
+            return s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new RuntimeException("Every implementation of the Java platform is required to support UTF-8", ex);
+        }
+    }
+
+    // =========================================================================
+
+    @Nonnull
+    private final File _file;
+    @Nonnull
+    private final ByteBuffer _buffer;
+    private final int _iItemCount;
+    private final int _iTableStart;
+    @Nonnull
+    private final String _sSourceCdLine;
+    /** Children of each item, created when first needed. */
+    @CheckForNull
+    private int[] _aiFirstChild, _aiNextSibling;
+    /** Item with each id or index number, created when first needed. */
+    @CheckForNull
+    private HashMap<String, Integer> _idToItem;
+    @CheckForNull
+    private HashMap<Integer, Integer> _numberToItem;
+
+    /** Reads the index file and checks the header.
+     * @throws LocalizedDeserializationFail if the file isn't a valid binary index. */
+    public BinaryIndex(@Nonnull File indexFile)
+            throws FileNotFoundException, IOException, LocalizedDeserializationFail
+    {
+        _file = indexFile;
+        _buffer = ByteBuffer.wrap(IO.readFile(indexFile));
+
+        try {
+            if (_buffer.getInt(0) != MAGIC || _buffer.getInt(4) != FORMAT_VERSION)
+                throw new LocalizedDeserializationFail(I.INDEX_HEADER_MISSING());
+            if (!Version.IndexHeader.equals(getString(_buffer.getInt(HEADER_INDEX_HEADER))))
+                throw new LocalizedDeserializationFail(I.INDEX_HEADER_MISSING());
+            _iItemCount = _buffer.getInt(HEADER_ITEM_COUNT);
+            _iTableStart = _buffer.getInt(HEADER_TABLE_START);
+            if (_iItemCount < 0 || _iTableStart < HEADER_SIZE ||
+                (long)_iTableStart + (long)_iItemCount * ITEM_SIZE > _buffer.getInt(HEADER_POOL_START) ||
+                _buffer.getInt(HEADER_POOL_START) > _buffer.limit())
+                throw new LocalizedDeserializationFail(I.INDEX_HEADER_MISSING());
+            _sSourceCdLine = getString(_buffer.getInt(HEADER_CD));
+        } catch (IndexOutOfBoundsException ex) {
+            throw new LocalizedDeserializationFail(I.INDEX_HEADER_MISSING(), ex);
+        }
+    }
+
+    public @Nonnull File getFile() {
+        return _file;
+    }
+
+    public int getItemCount() {
+        return _iItemCount;
+    }
+
+    public @Nonnull String getSourceCdLine() {
+        return _sSourceCdLine;
+    }
+
+    public @Nonnull String getItemLine(int iItem) throws LocalizedDeserializationFail {
+        return getString(getItemInt(iItem, ITEM_LINE));
+    }
+
+    /** The item's index number, which may not be the same as its
+     * position in the table. */
+    public int getItemNumber(int iItem) {
+        return getItemInt(iItem, ITEM_NUMBER);
+    }
+
+    /** @return Index of the parent item, or -1 if it has no parent. */
+    public int getParent(int iItem) {
+        return getItemInt(iItem, ITEM_PARENT);
+    }
+
+    /** Finds the item with the id. The first time, every id is decoded.
+     * @return Index of the item, or -1 if none. */
+    public int findId(@Nonnull String sId) throws LocalizedDeserializationFail {
+        if (_idToItem == null) {
+            HashMap<String, Integer> idToItem = new HashMap<String, Integer>(_iItemCount * 2);
+            for (int i = 0; i < _iItemCount; i++) {
+                // the last item with an id wins, same as a text index
+                idToItem.put(getString(getItemInt(i, ITEM_ID)), Integer.valueOf(i));
+            }
+            _idToItem = idToItem;
+        }
+        Integer item = _idToItem.get(sId);
+        return item == null ? -1 : item.intValue();
+    }
+
+    /** Finds the item with the index number.
+     * @return Index of the item, or -1 if none. */
+    public int findNumber(int iNumber) {
+        if (_numberToItem == null) {
+            HashMap<Integer, Integer> numberToItem = new HashMap<Integer, Integer>(_iItemCount * 2);
+            for (int i = 0; i < _iItemCount; i++) {
+                // the last item with a number wins, same as a text index
+                numberToItem.put(Integer.valueOf(getItemNumber(i)), Integer.valueOf(i));
+            }
+            _numberToItem = numberToItem;
+        }
+        Integer item = _numberToItem.get(Integer.valueOf(iNumber));
+        return item == null ? -1 : item.intValue();
+    }
+
+    /** Indexes of the direct children of the item, in order. */
+    public @Nonnull int[] getChildren(int iItem) {
+        if (_aiFirstChild == null) {
+            int[] aiFirstChild = new int[_iItemCount];
+            int[] aiNextSibling = new int[_iItemCount];
+            Arrays.fill(aiFirstChild, -1);
+            // go backwards so the children end up in order
+            for (int i = _iItemCount - 1; i >= 0; i--) {
+                int iParent = getParent(i);
+                if (iParent >= 0 && iParent < _iItemCount) {
+                    aiNextSibling[i] = aiFirstChild[iParent];
+                    aiFirstChild[iParent] = i;
+                } else {
+                    aiNextSibling[i] = -1;
+                }
+            }
+            _aiFirstChild = aiFirstChild;
+            _aiNextSibling = aiNextSibling;
+        }
+        int iCount = 0;
+        for (int i = _aiFirstChild[iItem]; i >= 0; i = _aiNextSibling[i])
+            iCount++;
+        int[] aiChildren = new int[iCount];
+        iCount = 0;
+        for (int i = _aiFirstChild[iItem]; i >= 0; i = _aiNextSibling[i])
+            aiChildren[iCount++] = i;
+        return aiChildren;
+    }
+
+    /** All the item lines, in order. */
+    public @Nonnull List<String> getItemLines() throws LocalizedDeserializationFail {
+        ArrayList<String> lines = new ArrayList<String>(_iItemCount);
+        for (int i = 0; i < _iItemCount; i++) {
+            lines.add(getItemLine(i));
+        }
+        return lines;
+    }
+
+    private int getItemInt(int iItem, int iField) {
+        if (iItem < 0 || iItem >= _iItemCount)
+            throw new IndexOutOfBoundsException(String.valueOf(iItem));
+        return _buffer.getInt(_iTableStart + iItem * ITEM_SIZE + iField);
+    }
+
+    /** @throws LocalizedDeserializationFail if the string isn't in the file. */
+    private @Nonnull String getString(int iOffset) throws LocalizedDeserializationFail {
+        if (iOffset < HEADER_SIZE || iOffset > _buffer.limit() - 4)
+            throw new LocalizedDeserializationFail(I.INDEX_INCONSTSTENCIES());
+        int iLength = _buffer.getInt(iOffset);
+        if (iLength < 0 || iLength > _buffer.limit() - iOffset - 4)
+            throw new LocalizedDeserializationFail(I.INDEX_INCONSTSTENCIES());
+        byte[] ab = new byte[iLength];
+        ByteBuffer string = _buffer.duplicate();
+        string.position(iOffset + 4);
+        string.get(ab);
+        try {
+            return new String(ab, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new RuntimeException("Every implementation of the Java platform is required to support UTF-8", ex);
+        }
+    }
+}
@@ -46,9 +46,11 @@ import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -61,15 +63,21 @@ import jpsxdec.Version;
 import jpsxdec.cdreaders.CdFileSectorReader;
 import jpsxdec.cdreaders.CdSector;
 import jpsxdec.cdreaders.CdSectorHeader;
+import jpsxdec.cdreaders.SectorReadAhead;
 import jpsxdec.discitems.DiscItem;
 import jpsxdec.discitems.IndexId;
 import jpsxdec.discitems.SerializedDiscItem;
 import jpsxdec.i18n.I;
+import jpsxdec.i18n.ILocalizedMessage;
 import jpsxdec.i18n.exception.LocalizedDeserializationFail;
 import jpsxdec.i18n.log.ILocalizedLogger;
 import jpsxdec.i18n.log.ProgressLogger;
 import jpsxdec.modules.SectorClaimSystem;
+import jpsxdec.modules.iso9660.DiscIndexerISO9660;
 import jpsxdec.modules.iso9660.DiscItemISO9660File;
+import jpsxdec.modules.iso9660.SectorClaimToSectorISO9660;
+import jpsxdec.modules.iso9660.SectorISO9660DirectoryRecords;
+import jpsxdec.modules.iso9660.SectorISO9660VolumePrimaryDescriptor;
 import jpsxdec.modules.sharedaudio.DiscItemAudioStream;
 import jpsxdec.modules.strvideo.DiscItemStrVideoStream;
 import jpsxdec.util.IO;
@@ -121,56 +129,76 @@ public class DiscIndex implements Iterable<DiscItem> {
     private final CdFileSectorReader _sourceCD;
     @CheckForNull
     private String _sDiscName = null;
-    @Nonnull
-    private final ArrayList<DiscItem> _root;
+    /** Only null while items from a binary index haven't all been created. */
+    @CheckForNull
+    private ArrayList<DiscItem> _root;
     private final List<DiscItem> _iterate = new LinkedList<DiscItem>();
 
     private final LinkedHashMap<Object, DiscItem> _lookup = new LinkedHashMap<Object, DiscItem>();
 
+    /** When opened from a binary index, the items that haven't been
+     * created yet. Null once they all have. */
+    @CheckForNull
+    private BinaryItems _binaryItems;
+
     /** Finds all the interesting items on the CD. */
     public DiscIndex(@Nonnull CdFileSectorReader cdReader, @Nonnull final ProgressLogger pl) 
             throws TaskCanceledException
+    {
+        this(cdReader, 1, pl);
+    }
+
+    /** Finds all the interesting items on the CD, using the given number of
+     * threads if the disc is big enough to benefit from it. */
+    public DiscIndex(@Nonnull CdFileSectorReader cdReader, int iThreads,
+                     @Nonnull final ProgressLogger pl)
+            throws TaskCanceledException
+    {
+        this(cdReader, iThreads, null, pl);
+    }
+
+    /** Finds all the interesting items on the CD, reusing what was found
+     * the last time wherever the disc hasn't changed.
+     * The cache is updated with what is found this time. */
+    public DiscIndex(@Nonnull CdFileSectorReader cdReader,
+                     @Nonnull IdentificationCache cache,
+                     @Nonnull final ProgressLogger pl)
+            throws TaskCanceledException
+    {
+        this(cdReader, 1, cache, pl);
+    }
+
+    private DiscIndex(@Nonnull CdFileSectorReader cdReader, int iThreads,
+                      @CheckForNull IdentificationCache cache,
+                      @Nonnull final ProgressLogger pl)
+            throws TaskCanceledException
     {
         _sourceCD = cdReader;
-        
-        final List<DiscIndexer> indexers = DiscIndexer.createIndexers(pl);
 
+        CountingLog log = new CountingLog(pl);
+        final List<DiscIndexer> indexers = DiscIndexer.createIndexers(log);
+
+        DiscIndexerISO9660 isoIndexer = null;
         for (DiscIndexer indexer : indexers) {
             indexer.indexInit(_iterate, _sourceCD);
+            if (indexer instanceof DiscIndexerISO9660)
+                isoIndexer = (DiscIndexerISO9660) indexer;
         }
 
-        SectorHeaderChecker checker = new SectorHeaderChecker(pl);
-
         int iEndSector = cdReader.getSectorCount() - 1;
         pl.progressStart(iEndSector);
 
-        @Nonnull
-        SectorClaimSystem sectorIter = SectorClaimSystem.create(cdReader);
-        for (DiscIndexer indexer : indexers) {
-            indexer.attachToSectorClaimer(sectorIter);
-        }
-
         long lngStart, lngEnd;
         lngStart = System.currentTimeMillis();
 
-
-        try {
-            while (sectorIter.hasNext()) {
-                SectorClaimSystem.ClaimedSector cs = sectorIter.next(pl);
-                checker.indexingSectorRead(cs.getSector());
-                int iSector = cs.getSector().getSectorIndexFromStart();
-                pl.progressUpdate(iSector);
-
-                if (pl.isSeekingEvent())
-                    pl.event(I.INDEX_SECTOR_ITEM_PROGRESS(iSector, iEndSector, _iterate.size()));
-            }
-            
-            sectorIter.close(pl);
-        } catch (CdFileSectorReader.CdReadException ex) {
-            pl.log(Level.SEVERE, I.IO_READING_FROM_FILE_ERROR_NAME(ex.getFile().toString()), ex);
+        if (cache != null && isoIndexer != null) {
+            indexSectors(cdReader, indexers, isoIndexer, cache, log, pl);
+        } else if (iThreads < 2 || isoIndexer == null ||
+                   !ParallelIndexer.index(cdReader, iThreads, _iterate, isoIndexer, pl))
+        {
+            indexSectors(cdReader, indexers, pl);
         }
 
-
         for (DiscIndexer indexer : indexers) {
             indexer.listPostProcessing(_iterate);
         }
@@ -195,6 +223,11 @@ public class DiscIndex implements Iterable<DiscItem> {
             indexer.indexGenerated(this);
         }
 
+        if (cache != null) {
+            cache.indexGenerated(_iterate);
+            pl.log(Level.INFO, I.INDEX_CACHE_SECTORS_REUSED(cache.getSectorsReused(), cdReader.getSectorCount()));
+        }
+
         if (pl.isSeekingEvent())
             pl.event(I.INDEX_SECTOR_ITEM_PROGRESS(iEndSector, iEndSector, _iterate.size()));
 
@@ -205,14 +238,166 @@ public class DiscIndex implements Iterable<DiscItem> {
     }
 
 
+    /** Indexes all the sectors of the disc with one thread. */
+    private void indexSectors(@Nonnull CdFileSectorReader cdReader,
+                              @Nonnull List<DiscIndexer> indexers,
+                              @Nonnull ProgressLogger pl)
+            throws TaskCanceledException
+    {
+        SectorHeaderChecker checker = new SectorHeaderChecker(pl);
+
+        int iEndSector = cdReader.getSectorCount() - 1;
+
+        @Nonnull
+        SectorClaimSystem sectorIter = SectorClaimSystem.create(cdReader);
+        for (DiscIndexer indexer : indexers) {
+            indexer.attachToSectorClaimer(sectorIter);
+        }
+        try {
+            sectorIter.startReadAhead(SectorReadAhead.DEFAULT_DEPTH);
+            while (sectorIter.hasNext()) {
+                SectorClaimSystem.ClaimedSector cs = sectorIter.next(pl);
+                checker.indexingSectorRead(cs.getSector());
+                int iSector = cs.getSector().getSectorIndexFromStart();
+                pl.progressUpdate(iSector);
+
+                if (pl.isSeekingEvent())
+                    pl.event(I.INDEX_SECTOR_ITEM_PROGRESS(iSector, iEndSector, _iterate.size()));
+            }
+            
+            sectorIter.close(pl);
+        } catch (CdFileSectorReader.CdReadException ex) {
+            pl.log(Level.SEVERE, I.IO_READING_FROM_FILE_ERROR_NAME(ex.getFile().toString()), ex);
+        } finally {
+            sectorIter.stopReadAhead();
+        }
+    }
+
+    /** Indexes all the sectors of the disc with one thread, skipping
+     * the parts the cache says haven't changed since the last time. */
+    private void indexSectors(@Nonnull CdFileSectorReader cdReader,
+                              @Nonnull List<DiscIndexer> indexers,
+                              @Nonnull DiscIndexerISO9660 isoIndexer,
+                              @Nonnull IdentificationCache cache,
+                              @Nonnull CountingLog log,
+                              @Nonnull ProgressLogger pl)
+            throws TaskCanceledException
+    {
+        SectorHeaderChecker checker = new SectorHeaderChecker(log);
+
+        int iSectorCount = cdReader.getSectorCount();
+
+        @Nonnull
+        SectorClaimSystem sectorIter = startSectorClaimSystem(cdReader, 0, indexers);
+        try {
+            cache.startIndexing(IdentificationCache.signature(sectorIter, indexers));
+            int iSector = 0;
+            while (iSector < iSectorCount) {
+                if (iSector % IdentificationCache.BLOCK_SECTORS == 0 &&
+                    isIdleAt(sectorIter, indexers, iSector))
+                {
+                    cache.idleAt(iSector, log.getCount());
+                    int iEndSector = cache.findUnchanged(iSector, cdReader);
+                    if (iEndSector >= 0) {
+                        // the claimers are idle, so new ones can pick up after the skipped sectors
+                        sectorIter.closeForReplacement();
+                        reuseSectors(iSector, iEndSector, cdReader, indexers, isoIndexer, cache, checker, log);
+                        sectorIter = startSectorClaimSystem(cdReader, iEndSector, indexers);
+                        iSector = iEndSector;
+                        pl.progressUpdate(iSector - 1);
+                        continue;
+                    }
+                }
+
+                SectorClaimSystem.ClaimedSector cs = sectorIter.next(log);
+                checker.indexingSectorRead(cs.getSector());
+                cache.sectorIdentified(cs.getSector(), cs.getClaimer());
+                pl.progressUpdate(iSector);
+
+                if (pl.isSeekingEvent())
+                    pl.event(I.INDEX_SECTOR_ITEM_PROGRESS(iSector, iSectorCount - 1, _iterate.size()));
+                iSector++;
+            }
+
+            if (isIdleAt(sectorIter, indexers, iSectorCount))
+                cache.idleAt(iSectorCount, log.getCount());
+            sectorIter.close(log);
+        } catch (CdFileSectorReader.CdReadException ex) {
+            pl.log(Level.SEVERE, I.IO_READING_FROM_FILE_ERROR_NAME(ex.getFile().toString()), ex);
+        } finally {
+            sectorIter.stopReadAhead();
+        }
+    }
+
+    private static @Nonnull SectorClaimSystem startSectorClaimSystem(@Nonnull CdFileSectorReader cdReader,
+                                                                     int iStartSector,
+                                                                     @Nonnull List<DiscIndexer> indexers)
+    {
+        SectorClaimSystem scs = SectorClaimSystem.create(cdReader, iStartSector);
+        for (DiscIndexer indexer : indexers) {
+            indexer.attachToSectorClaimer(scs);
+        }
+        if (iStartSector < cdReader.getSectorCount())
+            scs.startReadAhead(SectorReadAhead.DEFAULT_DEPTH);
+        return scs;
+    }
+
+    private static boolean isIdleAt(@Nonnull SectorClaimSystem scs,
+                                    @Nonnull List<DiscIndexer> indexers, int iSector)
+    {
+        if (!scs.isIdle())
+            return false;
+        for (DiscIndexer indexer : indexers) {
+            if (!indexer.isIdleAt(iSector))
+                return false;
+        }
+        return true;
+    }
+
+    /** Adds the items the cache found in the sectors, and gives the
+     * ISO9660 indexer and header checker what they would have seen. */
+    private void reuseSectors(int iStartSector, int iEndSector,
+                              @Nonnull CdFileSectorReader cdReader,
+                              @Nonnull List<DiscIndexer> indexers,
+                              @Nonnull DiscIndexerISO9660 isoIndexer,
+                              @Nonnull IdentificationCache cache,
+                              @Nonnull SectorHeaderChecker checker,
+                              @Nonnull ILocalizedLogger log)
+            throws CdFileSectorReader.CdReadException
+    {
+        for (String sItemLine : cache.getPreviousItems(iStartSector)) {
+            DiscItem item = deserializeItem(sItemLine, indexers, log);
+            if (item != null)
+                _iterate.add(item);
+        }
+
+        String sPrimaryDescriptor = SectorISO9660VolumePrimaryDescriptor.class.getName();
+        String sDirectoryRecords = SectorISO9660DirectoryRecords.class.getName();
+        for (int iSector = iStartSector; iSector < iEndSector; iSector++) {
+            String sClaimer = cache.getClaimer(iSector);
+            if (sClaimer.equals(sPrimaryDescriptor) || sClaimer.equals(sDirectoryRecords)) {
+                CdSector cdSector = cdReader.getSector(iSector);
+                isoIndexer.isoSectorRead(cdSector, SectorClaimToSectorISO9660.identify(cdSector));
+            } else {
+                isoIndexer.sectorTypeRead(iSector, cache.getSectorType(iSector));
+            }
+            checker.sectorSkipped(cache.getSectorType(iSector));
+        }
+        checker.startAfter(cdReader.getSector(iEndSector - 1));
+    }
+
     private @Nonnull ArrayList<DiscItem> buildTree(@Nonnull Collection<DiscItem> allItems) {
 
         ArrayList<DiscItem> rootItems = new ArrayList<DiscItem>();
 
+        // an item can only be the parent of items it shares sectors with,
+        // so only those need to be rated
+        SectorRangeIndex<DiscItem> bySector = SectorRangeIndex.ofItems(allItems);
+
         for (DiscItem child : allItems) {
             DiscItem bestParent = null;
             int iBestParentRating = 0;
-            for (DiscItem parent : allItems) {
+            for (DiscItem parent : bySector.findOverlapping(child.getStartSector(), child.getEndSector())) {
                 int iRating = parent.getParentRating(child);
                 if (iRating > iBestParentRating) {
                     bestParent = parent;
@@ -314,6 +499,64 @@ public class DiscIndex implements Iterable<DiscItem> {
     {
         File indexFile = new File(sIndexFile);
 
+        String sSourceCdLine;
+        ArrayList<String> serializedLines = new ArrayList<String>();
+        BinaryIndex binary = openBinaryIndex(indexFile);
+        if (binary != null)
+            sSourceCdLine = binary.getSourceCdLine();
+        else
+            sSourceCdLine = readTextIndex(indexFile, serializedLines);
+
+        // ..........................................................
+        // open or compare the serialized CD
+        if (sSourceCdLine == null) {
+            throw new LocalizedDeserializationFail(I.INDEX_NO_CD(CdFileSectorReader.SERIALIZATION_START));
+        } else {
+            if (cdReader != null) {
+                // verify that the source file matches
+                if (!cdReader.matchesSerialization(sSourceCdLine)) {
+                    errLog.log(Level.WARNING, I.CD_FORMAT_MISMATCH(cdReader.serialize(), sSourceCdLine));
+                }
+                _sourceCD = cdReader;
+            } else {
+                _sourceCD = new CdFileSectorReader(sSourceCdLine, blnAllowWrites);
+            }
+        }
+
+        if (binary != null) {
+            // the items are created when they are needed
+            _binaryItems = new BinaryItems(binary, errLog);
+            for (DiscIndexer indexer : _binaryItems._indexers) {
+                indexer.indexGenerated(this);
+            }
+            return;
+        }
+
+        boolean blnExceptionThrown = true;
+        try {
+            _root = deserializeItems(serializedLines, errLog);
+
+            // no exception thrown, don't close the CD in finally block
+            blnExceptionThrown = false;
+        } finally {
+            if (blnExceptionThrown) {
+                // something bad happened? close CD reader only if we opened it
+                if (cdReader == null)
+                    IO.closeSilently(_sourceCD, LOG);
+            }
+        }
+    }
+
+    /** Reads the lines of a text index, ignoring comments and empty lines.
+     * Only checks that the header is correct and that there is no more
+     * than 1 serialized CD line.
+     * @return The serialized CD line, or null if there is none. */
+    private static @CheckForNull String readTextIndex(@Nonnull File indexFile,
+                                                      @Nonnull List<String> serializedLines)
+            throws IndexNotFoundException,
+                   IndexReadException,
+                   LocalizedDeserializationFail
+    {
         FileInputStream fis;
         try {
             fis = new FileInputStream(indexFile);
@@ -329,13 +572,7 @@ public class DiscIndex implements Iterable<DiscItem> {
         }
 
         String sSourceCdLine = null;
-        ArrayList<String> serializedLines = new ArrayList<String>();
 
-        // ..........................................................
-        // read all lines first, ignoring commemts and empty lines
-        // Only check that:
-        // * header is correct
-        // * there is 1 and only 1 serialized CD line
         try {
             // make sure the first line matches the current version
             String sLine;
@@ -382,121 +619,319 @@ public class DiscIndex implements Iterable<DiscItem> {
         } finally {
             IO.closeSilently(reader, LOG);
         }
+        return sSourceCdLine;
+    }
 
-        // ..........................................................
-        // open or compare the serialized CD
-        if (sSourceCdLine == null) {
-            throw new LocalizedDeserializationFail(I.INDEX_NO_CD(CdFileSectorReader.SERIALIZATION_START));
-        } else {
-            if (cdReader != null) {
-                // verify that the source file matches
-                if (!cdReader.matchesSerialization(sSourceCdLine)) {
-                    errLog.log(Level.WARNING, I.CD_FORMAT_MISMATCH(cdReader.serialize(), sSourceCdLine));
-                }
-                _sourceCD = cdReader;
-            } else {
-                _sourceCD = new CdFileSectorReader(sSourceCdLine, blnAllowWrites);
+    /** @return null if the file is not a binary index. */
+    private static @CheckForNull BinaryIndex openBinaryIndex(@Nonnull File indexFile)
+            throws IndexNotFoundException,
+                   IndexReadException,
+                   LocalizedDeserializationFail
+    {
+        try {
+            if (!BinaryIndex.isBinaryIndex(indexFile))
+                return null;
+            return new BinaryIndex(indexFile);
+        } catch (FileNotFoundException ex) {
+            throw new IndexNotFoundException(indexFile, ex);
+        } catch (IOException ex) {
+            throw new IndexReadException(indexFile, ex);
+        }
+    }
+
+    /** Converts a text index to a binary index, or a binary index to a
+     * text index. The disc is not opened and the items are not checked.
+     * @return If the new index is binary. */
+    public static boolean convertIndex(@Nonnull File inFile, @Nonnull File outFile)
+            throws IndexNotFoundException,
+                   IndexReadException,
+                   LocalizedDeserializationFail,
+                   IOException
+    {
+        BinaryIndex binary = openBinaryIndex(inFile);
+        if (binary != null) {
+            List<String> itemLines = binary.getItemLines();
+            PrintStream ps = openPrintStream(outFile);
+            try {
+                serializeIndex(ps, binary.getSourceCdLine(), itemLines);
+            } finally {
+                ps.close();
             }
+            if (ps.checkError())
+                throw new IOException("Error writing " + outFile);
+            return false;
+        } else {
+            ArrayList<String> serializedLines = new ArrayList<String>();
+            String sSourceCdLine = readTextIndex(inFile, serializedLines);
+            if (sSourceCdLine == null)
+                throw new LocalizedDeserializationFail(I.INDEX_NO_CD(CdFileSectorReader.SERIALIZATION_START));
+            BinaryIndex.write(outFile, sSourceCdLine, serializedLines);
+            return true;
         }
+    }
 
-        boolean blnExceptionThrown = true;
-        try {
-            // setup indexers
-            List<DiscIndexer> indexers = DiscIndexer.createIndexers(errLog);
-            for (DiscIndexer indexer : indexers) {
-                indexer.indexInit(_iterate, _sourceCD);
+    /** Creates a copy of an item, and its children, that reads from a
+     * different disc reader. Since readers are not thread-safe, this lets
+     * another thread save the same item.
+     * @return null if the item couldn't be recreated. */
+    public static @CheckForNull DiscItem copyItem(@Nonnull DiscItem item,
+                                                  @Nonnull CdFileSectorReader cdReader,
+                                                  @Nonnull ILocalizedLogger errLog)
+    {
+        ArrayList<String> serializedLines = new ArrayList<String>();
+        serializeTree(item, serializedLines);
+
+        ArrayList<DiscItem> copies = new ArrayList<DiscItem>(serializedLines.size());
+        List<DiscIndexer> indexers = DiscIndexer.createIndexers(errLog);
+        for (DiscIndexer indexer : indexers) {
+            indexer.indexInit(copies, cdReader);
+        }
+        for (String sItemLine : serializedLines) {
+            DiscItem copy = deserializeItem(sItemLine, indexers, errLog);
+            if (copy != null)
+                copies.add(copy);
+        }
+        recreateTree(copies, errLog);
+
+        for (DiscItem copy : copies) {
+            if (copy.getIndex() == item.getIndex())
+                return copy;
+        }
+        return null;
+    }
+
+    private static void serializeTree(@Nonnull DiscItem item, @Nonnull List<String> serializedLines) {
+        serializedLines.add(item.serialize().serialize());
+        Iterable<? extends DiscItem> children = item.getChildren();
+        if (children != null) {
+            for (DiscItem child : children) {
+                serializeTree(child, serializedLines);
             }
+        }
+    }
+
+    /** Creates the disc items from their serialized lines.
+     * @return The root items. */
+    private @Nonnull ArrayList<DiscItem> deserializeItems(@Nonnull List<String> serializedLines,
+                                                          @Nonnull ILocalizedLogger errLog)
+    {
+        // setup indexers
+        List<DiscIndexer> indexers = DiscIndexer.createIndexers(errLog);
+        for (DiscIndexer indexer : indexers) {
+            indexer.indexInit(_iterate, _sourceCD);
+        }
 
-            // ..........................................................
-            // now create the disc items
-            for (String sItemLine : serializedLines) {
+        // ..........................................................
+        // now create the disc items
+        for (String sItemLine : serializedLines) {
+            DiscItem item = deserializeItem(sItemLine, indexers, errLog);
+            if (item != null)
+                _iterate.add(item);
+        }
 
-                SerializedDiscItem deserializedLine;
-                // malformed line?
-                try {
-                    deserializedLine = new SerializedDiscItem(sItemLine);
-                } catch (LocalizedDeserializationFail ex) {
-                    errLog.log(Level.WARNING, I.INDEX_PARSE_LINE_FAIL(sItemLine, ex.getSourceMessage()), ex);
-                    continue;
-                }
+        ArrayList<DiscItem> root = recreateTree(_iterate, errLog);
 
-                // try to find an indexer that recognises the line
-                boolean blnLineHandled = false;
-                for (DiscIndexer indexer : indexers) {
-                    try {
-                        DiscItem item = indexer.deserializeLineRead(deserializedLine);
-                        if (item != null) {
-                            blnLineHandled = true;
+        // ..........................................................
+        // copy the items to this class
+        for (DiscItem item : _iterate) {
+            addLookupItem(item);
+        }
 
-                            if (item.notEntirelyInCd()) {
-                                errLog.log(Level.SEVERE, I.NOT_CONTAINED_IN_DISC(item.getIndexId().toString()));
-                            }
+        // ..........................................................
+        // notify the indexers that the list has been generated
+        for (DiscIndexer indexer : indexers) {
+            indexer.indexGenerated(this);
+        }
 
-                            _iterate.add(item);
-                        }
-                    } catch (LocalizedDeserializationFail ex) {
-                        errLog.log(Level.WARNING, I.INDEX_PARSE_LINE_FAIL(sItemLine, ex.getSourceMessage()), ex);
-                        blnLineHandled = true;
+        // ..........................................................
+        // debug print the list contents
+        if (LOG.isLoggable(Level.FINE)) {
+            for (DiscItem item : this) LOG.fine(item.toString());
+        }
+
+        return root;
+    }
+
+    /** Has the indexers create the disc item from its serialized line.
+     * @return null if the line couldn't be deserialized. */
+    private static @CheckForNull DiscItem deserializeItem(@Nonnull String sItemLine,
+                                                          @Nonnull List<DiscIndexer> indexers,
+                                                          @Nonnull ILocalizedLogger errLog)
+    {
+        SerializedDiscItem deserializedLine;
+        // malformed line?
+        try {
+            deserializedLine = new SerializedDiscItem(sItemLine);
+        } catch (LocalizedDeserializationFail ex) {
+            errLog.log(Level.WARNING, I.INDEX_PARSE_LINE_FAIL(sItemLine, ex.getSourceMessage()), ex);
+            return null;
+        }
+
+        // try to find an indexer that recognises the line
+        boolean blnLineHandled = false;
+        DiscItem created = null;
+        for (DiscIndexer indexer : indexers) {
+            try {
+                DiscItem item = indexer.deserializeLineRead(deserializedLine);
+                if (item != null) {
+                    blnLineHandled = true;
+
+                    if (item.notEntirelyInCd()) {
+                        errLog.log(Level.SEVERE, I.NOT_CONTAINED_IN_DISC(item.getIndexId().toString()));
                     }
+
+                    created = item;
                 }
-                if (!blnLineHandled)
-                    errLog.log(Level.WARNING, I.INDEX_UNHANDLED_LINE(sItemLine));
+            } catch (LocalizedDeserializationFail ex) {
+                errLog.log(Level.WARNING, I.INDEX_PARSE_LINE_FAIL(sItemLine, ex.getSourceMessage()), ex);
+                blnLineHandled = true;
             }
+        }
+        if (!blnLineHandled)
+            errLog.log(Level.WARNING, I.INDEX_UNHANDLED_LINE(sItemLine));
+        return created;
+    }
 
-            _root = recreateTree(_iterate, errLog);
+    /** Creates items from a binary index as they are needed.
+     * An item is always created along with the rest of its tree,
+     * so parents have their children, and children know their parent. */
+    private class BinaryItems {
+        @Nonnull
+        private final BinaryIndex _index;
+        @Nonnull
+        private final DiscItem[] _aoItems;
+        private final BitSet _created = new BitSet();
+        @Nonnull
+        private final List<DiscIndexer> _indexers;
+        /** The log passed when opening the index. */
+        @Nonnull
+        private final ILocalizedLogger _log;
 
-            // ..........................................................
-            // copy the items to this class
-            for (DiscItem item : _iterate) {
-                addLookupItem(item);
+        public BinaryItems(@Nonnull BinaryIndex index, @Nonnull ILocalizedLogger log) {
+            _index = index;
+            _log = log;
+            _aoItems = new DiscItem[index.getItemCount()];
+            _indexers = DiscIndexer.createIndexers(log);
+            for (DiscIndexer indexer : _indexers) {
+                indexer.indexInit(_iterate, _sourceCD);
             }
+        }
 
-            // ..........................................................
-            // notify the indexers that the list has been generated
-            for (DiscIndexer indexer : indexers) {
-                indexer.indexGenerated(this);
+        public int size() {
+            return _aoItems.length;
+        }
+
+        /** @param iItem Position of the item in the index.
+         * @return null if the item couldn't be created. */
+        public @CheckForNull DiscItem get(int iItem) {
+            if (!_created.get(iItem)) {
+                // start from the top of the tree, stopping if a bad index loops
+                int iTop = iItem;
+                for (int i = 0; i < _aoItems.length; i++) {
+                    int iParent = _index.getParent(iTop);
+                    if (iParent < 0 || iParent >= _aoItems.length || _created.get(iParent))
+                        break;
+                    iTop = iParent;
+                }
+                create(iTop);
             }
+            return _aoItems[iItem];
+        }
 
-            // ..........................................................
-            // debug print the list contents
-            if (LOG.isLoggable(Level.FINE)) {
-                for (DiscItem item : this) LOG.fine(item.toString());
+        private void create(int iItem) {
+            _created.set(iItem);
+            DiscItem item;
+            try {
+                item = deserializeItem(_index.getItemLine(iItem), _indexers, _log);
+            } catch (LocalizedDeserializationFail ex) {
+                _log.log(Level.WARNING, ex.getSourceMessage(), ex);
+                item = null;
+            }
+            _aoItems[iItem] = item;
+            for (int iChild : _index.getChildren(iItem)) {
+                if (_created.get(iChild))
+                    continue;
+                create(iChild);
+                DiscItem child = _aoItems[iChild];
+                if (item != null && child != null && !item.addChild(child)) {
+                    _log.log(Level.WARNING, I.INDEX_INCONSTSTENCIES());
+                    LOG.log(Level.WARNING, "{0} rejected {1}", new Object[]{item, child});
+                }
             }
+        }
 
-            // no exception thrown, don't close the CD in finally block
-            blnExceptionThrown = false;
-        } finally {
-            if (blnExceptionThrown) {
-                // something bad happened? close CD reader only if we opened it
-                if (cdReader == null)
-                    IO.closeSilently(_sourceCD, LOG);
+        /** @param iNumber The item's index number. */
+        public @CheckForNull DiscItem getByNumber(int iNumber) {
+            int iItem = _index.findNumber(iNumber);
+            return iItem < 0 ? null : get(iItem);
+        }
+
+        public boolean hasNumber(int iNumber) {
+            return _index.findNumber(iNumber) >= 0;
+        }
+
+        public @CheckForNull DiscItem getById(@Nonnull String sId) {
+            int iItem;
+            try {
+                iItem = _index.findId(sId);
+            } catch (LocalizedDeserializationFail ex) {
+                _log.log(Level.WARNING, ex.getSourceMessage(), ex);
+                return null;
+            }
+            return iItem < 0 ? null : get(iItem);
+        }
+
+        /** Creates the rest of the items and builds the index from them. */
+        public void createAll() {
+            ArrayList<DiscItem> root = new ArrayList<DiscItem>();
+            for (int i = 0; i < _aoItems.length; i++) {
+                DiscItem item = get(i);
+                if (item == null)
+                    continue;
+                _iterate.add(item);
+                addLookupItem(item);
+                int iParent = _index.getParent(i);
+                if (iParent < 0 || iParent >= _aoItems.length || get(iParent) == null)
+                    root.add(item);
             }
+            _root = root;
+        }
+    }
+
+    /** Makes sure every item from a binary index has been created. */
+    private void createAllItems() {
+        if (_binaryItems != null) {
+            BinaryItems binaryItems = _binaryItems;
+            _binaryItems = null;
+            binaryItems.createAll();
         }
     }
 
     private static @Nonnull ArrayList<DiscItem> recreateTree(@Nonnull Collection<DiscItem> allItems, @Nonnull ILocalizedLogger log) {
         ArrayList<DiscItem> rootItems = new ArrayList<DiscItem>();
 
-        Outside:
+        HashMap<IndexId, DiscItem> byId = new HashMap<IndexId, DiscItem>(allItems.size() * 2);
+        for (DiscItem item : allItems) {
+            // the first item with an id wins, same as a linear search
+            if (!byId.containsKey(item.getIndexId()))
+                byId.put(item.getIndexId(), item);
+        }
+
         for (DiscItem child : allItems) {
             IndexId itemId = child.getIndexId();
             if (itemId.isRoot()) {
                 rootItems.add(child);
                 continue;
             }
-            
-            for (DiscItem possibleParent : allItems) {
-                if (possibleParent == child)
-                    continue;
-                if (itemId.isParent(possibleParent.getIndexId())) {
-                    if (!possibleParent.addChild(child)) {
-                        log.log(Level.WARNING, I.INDEX_INCONSTSTENCIES());
-                        LOG.log(Level.WARNING, "{0} rejected {1}", new Object[]{possibleParent, child});
-                    }
-                    continue Outside;
-                }
+
+            IndexId parentId = itemId.getParentId();
+            DiscItem parent = parentId == null ? null : byId.get(parentId);
+            if (parent == null || parent == child) {
+                rootItems.add(child);
+            } else if (!parent.addChild(child)) {
+                log.log(Level.WARNING, I.INDEX_INCONSTSTENCIES());
+                LOG.log(Level.WARNING, "{0} rejected {1}", new Object[]{parent, child});
             }
-            rootItems.add(child);
         }
 
         return rootItems;
@@ -514,27 +949,38 @@ public class DiscIndex implements Iterable<DiscItem> {
     public void serializeIndex(@Nonnull File file)
             throws FileNotFoundException
     {
-        PrintStream ps;
-        try {
-            ps = new PrintStream(file, "UTF-8");
-        } catch (UnsupportedEncodingException ex) {
-            throw new RuntimeException("Every implementation of the Java platform is required to support UTF-8", ex);
+        ArrayList<String> serializedLines = new ArrayList<String>(size());
+        for (DiscItem item : this) {
+            serializedLines.add(item.serialize().serialize());
         }
+        PrintStream ps = openPrintStream(file);
         try {
-            serializeIndex(ps);
+            // TODO: Serialize the CD file location relative to where this index file is being saved
+            serializeIndex(ps, _sourceCD.serialize(), serializedLines);
         } finally {
             ps.close();
         }
     }
+
+    private static @Nonnull PrintStream openPrintStream(@Nonnull File file)
+            throws FileNotFoundException
+    {
+        try {
+            return new PrintStream(file, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new RuntimeException("Every implementation of the Java platform is required to support UTF-8", ex);
+        }
+    }
     
-    /** Serializes the list of disc items to a stream. */
-    private void serializeIndex(@Nonnull PrintStream ps) {
+    /** Serializes the disc and items to a stream. */
+    private static void serializeIndex(@Nonnull PrintStream ps, @Nonnull String sSourceCdLine,
+                                       @Nonnull List<String> serializedLines)
+    {
         ps.println(Version.IndexHeader);
         ps.println(I.INDEX_COMMENT(COMMENT_LINE_START));
-        // TODO: Serialize the CD file location relative to where this index file is being saved
-        ps.println(_sourceCD.serialize());
-        for (DiscItem item : this) {
-            ps.println(item.serialize().serialize());
+        ps.println(sSourceCdLine);
+        for (String sItemLine : serializedLines) {
+            ps.println(sItemLine);
         }
     }
 
@@ -543,18 +989,25 @@ public class DiscIndex implements Iterable<DiscItem> {
     }
 
     public @Nonnull List<DiscItem> getRoot() {
+        createAllItems();
         return _root;
     }
 
     public @CheckForNull DiscItem getByIndex(int iIndex) {
+        if (_binaryItems != null)
+            return _binaryItems.getByNumber(iIndex);
         return _lookup.get(Integer.valueOf(iIndex));
     }
 
     public @CheckForNull DiscItem getById(@Nonnull String sId) {
+        if (_binaryItems != null)
+            return _binaryItems.getById(sId);
         return _lookup.get(sId);
     }
     
     public boolean hasIndex(int iIndex) {
+        if (_binaryItems != null)
+            return _binaryItems.hasNumber(iIndex);
         return _lookup.containsKey(Integer.valueOf(iIndex));
     }
 
@@ -563,21 +1016,24 @@ public class DiscIndex implements Iterable<DiscItem> {
     }
     
     public int size() {
+        if (_binaryItems != null)
+            return _binaryItems.size();
         return _iterate.size();
     }
     
     //[implements Iterable]
     public @Nonnull Iterator<DiscItem> iterator() {
+        createAllItems();
         return _iterate.iterator();
     }
 
     @Override
     public String toString() {
-        return String.format("%s (%s) %d items", _sourceCD.getSourceFile(), _sDiscName, _iterate.size());
+        return String.format("%s (%s) %d items", _sourceCD.getSourceFile(), _sDiscName, size());
     }
 
     /** Partial indexer to monitor sector headers and warn if anything fishy is detected. */
-    private static class SectorHeaderChecker {
+    static class SectorHeaderChecker {
 
         @Nonnull
         private final ILocalizedLogger _log;
@@ -585,8 +1041,30 @@ public class DiscIndex implements Iterable<DiscItem> {
         private int _iMode1Count = 0;
         private int _iMode2Count = 0;
 
-        public SectorHeaderChecker(@Nonnull ProgressLogger pl) {
-            _log = pl;
+        public SectorHeaderChecker(@Nonnull ILocalizedLogger log) {
+            _log = log;
+        }
+
+        /** When starting in the middle of the disc, pass the sector just
+         * before the start so the first sector header can be checked. */
+        public void startAfter(@Nonnull CdSector cdSector) {
+            CdSectorHeader h = cdSector.getHeader();
+            if (h != null)
+                _iCurrentHeaderSectorNumber = h.calculateSectorNumber();
+        }
+
+        /** Counts a sector that was skipped over. */
+        public void sectorSkipped(@Nonnull CdSector.Type type) {
+            switch (type) {
+                case MODE1:
+                    _iMode1Count++;
+                    break;
+                case UNKNOWN2048:
+                case MODE2FORM1:
+                case MODE2FORM2:
+                    _iMode2Count++;
+                    break;
+            }
         }
 
         public void indexingSectorRead(@Nonnull CdSector cdSector) {
@@ -631,4 +1109,31 @@ public class DiscIndex implements Iterable<DiscItem> {
         }
 
     }
+
+    /** Passes messages along, keeping count of how many there were. */
+    private static class CountingLog implements ILocalizedLogger {
+        @Nonnull
+        private final ILocalizedLogger _log;
+        private int _iCount = 0;
+
+        public CountingLog(@Nonnull ILocalizedLogger log) {
+            _log = log;
+        }
+
+        public void log(@Nonnull Level level, @Nonnull ILocalizedMessage msg) {
+            _iCount++;
+            _log.log(level, msg);
+        }
+
+        public void log(@Nonnull Level level, @Nonnull ILocalizedMessage msg,
+                        @CheckForNull Throwable debugException)
+        {
+            _iCount++;
+            _log.log(level, msg, debugException);
+        }
+
+        public int getCount() {
+            return _iCount;
+        }
+    }
 }
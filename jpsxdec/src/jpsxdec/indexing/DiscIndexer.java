@@ -125,6 +125,14 @@ public abstract class DiscIndexer {
 
     abstract public void listPostProcessing(@Nonnull Collection<DiscItem> allItems);
 
+    /** If nothing seen before {@code iSector} could affect the items found
+     * from {@code iSector} onward, i.e. this indexer would find exactly
+     * what a new indexer starting at {@code iSector} would.
+     * Anything still being built must have no chance of continuing.
+     * Used to find where separately indexed parts of a disc can be joined.
+     * When unsure, return false. */
+    abstract public boolean isIdleAt(int iSector);
+
     /** Called after the entire indexing process is complete. The DiscIndex
      * will not be changing any further, but indexers can tweak individual items
      * as necessary. */
@@ -0,0 +1,602 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.indexing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.Version;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.cdreaders.CdSector;
+import jpsxdec.discitems.DiscItem;
+import jpsxdec.modules.IIdentifiedSector;
+import jpsxdec.modules.SectorClaimSystem;
+import jpsxdec.modules.iso9660.DiscItemISO9660File;
+import jpsxdec.util.IO;
+import jpsxdec.util.Misc;
+
+/** Remembers what was found in each part of a disc when it was indexed,
+ * so indexing the same disc again only needs to examine the parts
+ * that have changed.
+ *<p>
+ * For every sector it keeps the sector type and the kind of sector it was
+ * claimed as, and a hash of every {@link #BLOCK_SECTORS} sectors.
+ * The disc is split into spans that begin and end where indexing was idle
+ * (see {@link SectorClaimSystem#isIdle()} and {@link DiscIndexer#isIdleAt(int)}),
+ * and the items that start in each span are saved with it.
+ * Nothing before an idle sector can change what is found after it, so
+ * if none of a span's sectors have changed, its items can be used as-is
+ * and its sectors skipped.
+ *<p>
+ * ISO9660 files are not saved since they depend on the whole disc.
+ * Instead the file system sectors in skipped spans are read again
+ * so the file system is built as usual.
+ *<p>
+ * Spans where anything was logged are not saved, so indexing with the
+ * cache reports the same problems. The whole cache is ignored if the
+ * jPSXdec version, the claimers or indexers, or any of the compiled code,
+ * are different. Development builds keep the same version while the
+ * identification code changes, so the version alone isn't enough. */
+public class IdentificationCache {
+
+    private static final Logger LOG = Logger.getLogger(IdentificationCache.class.getName());
+
+    /** Number of sectors hashed together.
+     * Spans can only start at the beginning of a block. */
+    public static final int BLOCK_SECTORS = 16;
+    /** Idle sectors closer than this to the start of a span are ignored
+     * so there aren't too many tiny spans. */
+    private static final int MIN_SPAN_SECTORS = 256;
+
+    private static final int MAGIC = 0x4A504943; // "JPIC"
+    private static final int FORMAT_VERSION = 1;
+
+    /** Sector type of a sector that wasn't indexed. */
+    private static final byte NOT_INDEXED = -1;
+
+    /** Sectors between idle points, and the items that start in them. */
+    private static class Span {
+        public final int iStartSector;
+        /** Exclusive. */
+        public final int iEndSector;
+        /** Items can use sectors after the span, so those sectors need
+         * to be unchanged too. Exclusive. */
+        public int iHashEndSector;
+        @Nonnull
+        public final List<String> items = new ArrayList<String>();
+
+        public Span(int iStartSector, int iEndSector) {
+            this.iStartSector = iStartSector;
+            this.iEndSector = iEndSector;
+            iHashEndSector = iEndSector;
+        }
+    }
+
+    /** What is known about every sector of the disc. */
+    private static class Contents {
+        @Nonnull
+        public String sSignature = "";
+        public final int iSectorCount;
+        /** {@link CdSector.Type} ordinal, or {@link #NOT_INDEXED}. */
+        @Nonnull
+        public final byte[] abSectorTypes;
+        /** Index into {@link #claimerNames}, unsigned. */
+        @Nonnull
+        public final byte[] abClaimers;
+        /** Class name of the sector claimed, "" if unclaimed. */
+        public final ArrayList<String> claimerNames = new ArrayList<String>();
+        private final HashMap<String, Integer> _claimerIds = new HashMap<String, Integer>();
+        @Nonnull
+        public final long[] alngBlockHashes;
+        public final BitSet blocksHashed = new BitSet();
+        public final TreeMap<Integer, Span> spans = new TreeMap<Integer, Span>();
+
+        public Contents(int iSectorCount) {
+            this.iSectorCount = iSectorCount;
+            abSectorTypes = new byte[iSectorCount];
+            Arrays.fill(abSectorTypes, NOT_INDEXED);
+            abClaimers = new byte[iSectorCount];
+            alngBlockHashes = new long[(iSectorCount + BLOCK_SECTORS - 1) / BLOCK_SECTORS];
+            claimerId("");
+        }
+
+        public byte claimerId(@Nonnull String sClaimer) {
+            Integer id = _claimerIds.get(sClaimer);
+            if (id == null) {
+                if (claimerNames.size() > 0xff)
+                    throw new IllegalStateException("Too many kinds of sectors");
+                id = Integer.valueOf(claimerNames.size());
+                claimerNames.add(sClaimer);
+                _claimerIds.put(sClaimer, id);
+            }
+            return (byte) id.intValue();
+        }
+
+        public @Nonnull String getClaimer(int iSector) {
+            return claimerNames.get(abClaimers[iSector] & 0xff);
+        }
+
+        public void setBlockHash(int iBlock, long lngHash) {
+            alngBlockHashes[iBlock] = lngHash;
+            blocksHashed.set(iBlock);
+        }
+
+        public void write(@Nonnull DataOutputStream dos) throws IOException {
+            dos.writeInt(MAGIC);
+            dos.writeInt(FORMAT_VERSION);
+            dos.writeUTF(sSignature);
+            dos.writeInt(iSectorCount);
+            dos.write(abSectorTypes);
+            dos.writeInt(claimerNames.size());
+            for (String sClaimer : claimerNames) {
+                dos.writeUTF(sClaimer);
+            }
+            dos.write(abClaimers);
+            for (int iBlock = 0; iBlock < alngBlockHashes.length; iBlock++) {
+                dos.writeBoolean(blocksHashed.get(iBlock));
+                dos.writeLong(alngBlockHashes[iBlock]);
+            }
+            dos.writeInt(spans.size());
+            for (Span span : spans.values()) {
+                dos.writeInt(span.iStartSector);
+                dos.writeInt(span.iEndSector);
+                dos.writeInt(span.iHashEndSector);
+                dos.writeInt(span.items.size());
+                for (String sItem : span.items) {
+                    dos.writeUTF(sItem);
+                }
+            }
+        }
+
+        /** Everything read is checked before it is used, so a damaged
+         * file can't be mistaken for a cache.
+         * @param iSectorCount Sectors in the disc being indexed.
+         * @return null if it isn't a cache for a disc with that many sectors.
+         * @throws IOException if the file is truncated or has invalid values. */
+        public static @CheckForNull Contents read(@Nonnull DataInputStream dis, int iSectorCount)
+                throws IOException
+        {
+            if (dis.readInt() != MAGIC || dis.readInt() != FORMAT_VERSION) {
+                LOG.info("Not an identification cache");
+                return null;
+            }
+            String sSignature = dis.readUTF();
+            int iCacheSectorCount = dis.readInt();
+            if (iCacheSectorCount != iSectorCount) {
+                LOG.log(Level.INFO, "Identification cache is for a disc with {0} sectors, not {1}",
+                        new Object[]{iCacheSectorCount, iSectorCount});
+                return null;
+            }
+            Contents contents = new Contents(iSectorCount);
+            contents.sSignature = sSignature;
+            dis.readFully(contents.abSectorTypes);
+            int iTypeCount = CdSector.Type.values().length;
+            for (int i = 0; i < iSectorCount; i++) {
+                byte bType = contents.abSectorTypes[i];
+                if (bType != NOT_INDEXED && (bType < 0 || bType >= iTypeCount))
+                    throw new IOException("Invalid type " + bType + " of sector " + i);
+            }
+            int iClaimerCount = dis.readInt();
+            if (iClaimerCount < 1 || iClaimerCount > 0x100)
+                throw new IOException("Invalid number of claimers " + iClaimerCount);
+            contents.claimerNames.clear();
+            contents._claimerIds.clear();
+            for (int i = 0; i < iClaimerCount; i++) {
+                String sClaimer = dis.readUTF();
+                if (contents._claimerIds.containsKey(sClaimer))
+                    throw new IOException("Duplicate claimer " + sClaimer);
+                contents.claimerId(sClaimer);
+            }
+            dis.readFully(contents.abClaimers);
+            for (int i = 0; i < iSectorCount; i++) {
+                if ((contents.abClaimers[i] & 0xff) >= iClaimerCount)
+                    throw new IOException("Invalid claimer of sector " + i);
+            }
+            for (int iBlock = 0; iBlock < contents.alngBlockHashes.length; iBlock++) {
+                boolean blnHashed = dis.readBoolean();
+                long lngHash = dis.readLong();
+                if (blnHashed)
+                    contents.setBlockHash(iBlock, lngHash);
+            }
+            int iSpanCount = dis.readInt();
+            for (int i = 0; i < iSpanCount; i++) {
+                Span span = new Span(dis.readInt(), dis.readInt());
+                span.iHashEndSector = dis.readInt();
+                int iItemCount = dis.readInt();
+                for (int j = 0; j < iItemCount; j++) {
+                    span.items.add(dis.readUTF());
+                }
+                if (span.iStartSector < 0 || span.iEndSector <= span.iStartSector ||
+                    span.iHashEndSector < span.iEndSector ||
+                    span.iHashEndSector > contents.iSectorCount)
+                    throw new IOException("Invalid span " + span.iStartSector + "-" + span.iEndSector);
+                // the span's sectors are copied from the cache when it is reused
+                for (int iSector = span.iStartSector; iSector < span.iEndSector; iSector++) {
+                    if (contents.abSectorTypes[iSector] == NOT_INDEXED)
+                        throw new IOException("Span " + span.iStartSector + "-" + span.iEndSector +
+                                              " has a sector that wasn't indexed");
+                }
+                contents.spans.put(Integer.valueOf(span.iStartSector), span);
+            }
+            return contents;
+        }
+    }
+
+    // =========================================================================
+
+    /** Reads a cache that was saved for the disc.
+     * If it doesn't exist or can't be used, for any reason,
+     * an empty cache is returned. */
+    public static @Nonnull IdentificationCache load(@Nonnull File cacheFile,
+                                                    @Nonnull CdFileSectorReader cd)
+    {
+        IdentificationCache cache = new IdentificationCache(cd);
+        if (!cacheFile.exists())
+            return cache;
+
+        DataInputStream dis = null;
+        try {
+            dis = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+            Contents previous = Contents.read(dis, cd.getSectorCount());
+            if (previous == null)
+                LOG.log(Level.INFO, "Not using {0}", cacheFile);
+            else
+                cache._previous = previous;
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Unable to read identification cache " + cacheFile, ex);
+        } finally {
+            if (dis != null)
+                IO.closeSilently(dis, LOG);
+        }
+        return cache;
+    }
+
+    /** The names of everything that affects what is found,
+     * in the order they are used, and a hash of the compiled code.
+     * @return null if the code couldn't be hashed, so nothing should be
+     *         reused. */
+    static @CheckForNull String signature(@Nonnull SectorClaimSystem scs,
+                                          @Nonnull List<DiscIndexer> indexers)
+    {
+        String sCodeHash = getCodeHash();
+        if (sCodeHash == null)
+            return null;
+        StringBuilder sb = new StringBuilder(Version.Version);
+        sb.append(';').append(sCodeHash);
+        for (SectorClaimSystem.SectorClaimer claimer : scs.getClaimers()) {
+            sb.append(';').append(claimer.getClass().getName());
+        }
+        for (DiscIndexer indexer : indexers) {
+            sb.append(';').append(indexer.getClass().getName());
+        }
+        return sb.toString();
+    }
+
+    private static boolean _blnCodeHashed = false;
+    @CheckForNull
+    private static String _sCodeHash;
+
+    /** The claimers use many other classes to identify sectors, so rather
+     * than trying to find them all, every class jPSXdec was loaded from
+     * is hashed. Only done once.
+     * @return null if the classes couldn't be read. */
+    static synchronized @CheckForNull String getCodeHash() {
+        if (!_blnCodeHashed) {
+            _blnCodeHashed = true;
+            CodeSource src = IdentificationCache.class.getProtectionDomain().getCodeSource();
+            try {
+                if (src == null || src.getLocation() == null)
+                    throw new IOException("Unknown code location");
+                _sCodeHash = hashCode(new File(src.getLocation().toURI()));
+            } catch (URISyntaxException ex) {
+                LOG.log(Level.WARNING, "Unable to find the classes to hash, identification cache disabled", ex);
+            } catch (IllegalArgumentException ex) {
+                LOG.log(Level.WARNING, "Unable to find the classes to hash, identification cache disabled", ex);
+            } catch (IOException ex) {
+                LOG.log(Level.WARNING, "Unable to hash the classes, identification cache disabled", ex);
+            }
+        }
+        return _sCodeHash;
+    }
+
+    /** Replaces the hash of the compiled code, for testing. */
+    static synchronized void setCodeHash(@CheckForNull String sCodeHash) {
+        _blnCodeHashed = true;
+        _sCodeHash = sCodeHash;
+    }
+
+    /** Hashes a .jar file, or every .class file in a directory
+     * of classes and their paths. */
+    static @Nonnull String hashCode(@Nonnull File codeLocation) throws IOException {
+        MessageDigest digest = newDigest();
+        if (codeLocation.isDirectory()) {
+            List<String> classFiles = new ArrayList<String>();
+            listClassFiles(codeLocation, "", classFiles);
+            Collections.sort(classFiles);
+            for (String sClassFile : classFiles) {
+                digest.update(Misc.stringToAscii(sClassFile));
+                hashFile(new File(codeLocation, sClassFile), digest);
+            }
+        } else {
+            hashFile(codeLocation, digest);
+        }
+        return Long.toHexString(finishBlockHash(digest));
+    }
+
+    private static void listClassFiles(@Nonnull File dir, @Nonnull String sPath,
+                                       @Nonnull List<String> classFiles)
+            throws IOException
+    {
+        File[] aoFiles = dir.listFiles();
+        if (aoFiles == null)
+            throw new IOException("Unable to list " + dir);
+        for (File f : aoFiles) {
+            if (f.isDirectory())
+                listClassFiles(f, sPath + f.getName() + "/", classFiles);
+            else if (f.getName().endsWith(".class"))
+                classFiles.add(sPath + f.getName());
+        }
+    }
+
+    private static void hashFile(@Nonnull File file, @Nonnull MessageDigest digest)
+            throws IOException
+    {
+        InputStream is = new FileInputStream(file);
+        try {
+            byte[] abBuf = new byte[64 * 1024];
+            int iRead;
+            while ((iRead = is.read(abBuf)) > 0) {
+                digest.update(abBuf, 0, iRead);
+            }
+        } finally {
+            IO.closeSilently(is, LOG);
+        }
+    }
+
+    private static long finishBlockHash(@Nonnull MessageDigest digest) {
+        byte[] abHash = digest.digest();
+        long lngHash = 0;
+        for (int i = 0; i < 8; i++) {
+            lngHash = (lngHash << 8) | (abHash[i] & 0xff);
+        }
+        return lngHash;
+    }
+
+    private static @Nonnull MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException("Every implementation of the Java platform is required to support MD5", ex);
+        }
+    }
+
+    /** From the last time the disc was indexed, if there was one. */
+    @CheckForNull
+    private Contents _previous;
+    /** What is found this time. */
+    @Nonnull
+    private final Contents _current;
+    @Nonnull
+    private final MessageDigest _digest = newDigest();
+
+    /** Start of the span being indexed, or -1 if none. */
+    private int _iSpanStartSector = -1;
+    /** Number of messages logged when the span started. */
+    private int _iSpanLogCount;
+    private int _iSectorsReused = 0;
+
+    /** Creates an empty cache for the disc. */
+    public IdentificationCache(@Nonnull CdFileSectorReader cd) {
+        _current = new Contents(cd.getSectorCount());
+    }
+
+    /** Saves what was found the last time the disc was indexed. */
+    public void save(@Nonnull File cacheFile) throws IOException {
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cacheFile)));
+        try {
+            _current.write(dos);
+        } finally {
+            dos.close();
+        }
+    }
+
+    /** Number of sectors whose items were taken from the cache. */
+    public int getSectorsReused() {
+        return _iSectorsReused;
+    }
+
+    // -------------------------------------------------------------------------
+    // Used while indexing
+
+    /** Called before indexing starts.
+     * Nothing will be reused if the signature is different.
+     * @param sSignature null if nothing should be reused. The cache will
+     *                   then never match. */
+    void startIndexing(@CheckForNull String sSignature) {
+        if (sSignature == null) {
+            _previous = null;
+            _current.sSignature = "";
+            return;
+        }
+        if (_previous != null && !_previous.sSignature.equals(sSignature)) {
+            LOG.info("Identification cache was made with different code, claimers or indexers");
+            _previous = null;
+        }
+        _current.sSignature = sSignature;
+    }
+
+    /** Records what a sector was identified as.
+     * Every sector of a block must be passed in order. */
+    void sectorIdentified(@Nonnull CdSector sector, @CheckForNull IIdentifiedSector claimer) {
+        int iSector = sector.getSectorIndexFromStart();
+        _current.abSectorTypes[iSector] = (byte) sector.getType().ordinal();
+        _current.abClaimers[iSector] = _current.claimerId(claimer == null ? "" : claimer.getClass().getName());
+
+        if (iSector % BLOCK_SECTORS == 0)
+            _digest.reset();
+        _digest.update(sector.getRawSectorDataCopy());
+        if ((iSector + 1) % BLOCK_SECTORS == 0 || iSector + 1 == _current.iSectorCount)
+            _current.setBlockHash(iSector / BLOCK_SECTORS, finishBlockHash(_digest));
+    }
+
+    /** Called at the start of every block where indexing was idle,
+     * and at the end of the disc if indexing ended idle.
+     * Ends the current span if it is long enough.
+     * @param iLogCount Number of messages logged so far. */
+    void idleAt(int iSector, int iLogCount) {
+        if (_iSpanStartSector >= 0) {
+            if (iSector - _iSpanStartSector < MIN_SPAN_SECTORS && iSector < _current.iSectorCount)
+                return;
+            if (iLogCount == _iSpanLogCount && iSector > _iSpanStartSector)
+                _current.spans.put(Integer.valueOf(_iSpanStartSector), new Span(_iSpanStartSector, iSector));
+        }
+        _iSpanStartSector = iSector;
+        _iSpanLogCount = iLogCount;
+    }
+
+    /** If the disc was indexed before with a span starting at this sector,
+     * and none of the sectors used by the span have changed,
+     * returns the end of the span. What is known about the
+     * sectors is kept for the next time.
+     * @return The sector after the span, or -1 if it can't be reused. */
+    int findUnchanged(int iSector, @Nonnull CdFileSectorReader cd)
+            throws CdFileSectorReader.CdReadException
+    {
+        if (_previous == null)
+            return -1;
+        Span span = _previous.spans.get(Integer.valueOf(iSector));
+        if (span == null)
+            return -1;
+
+        int iStartBlock = span.iStartSector / BLOCK_SECTORS;
+        int iEndBlock = (span.iHashEndSector + BLOCK_SECTORS - 1) / BLOCK_SECTORS;
+        for (int iBlock = iStartBlock; iBlock < iEndBlock; iBlock++) {
+            if (!_previous.blocksHashed.get(iBlock))
+                return -1;
+            MessageDigest digest = newDigest();
+            int iBlockEnd = Math.min((iBlock + 1) * BLOCK_SECTORS, _previous.iSectorCount);
+            for (int i = iBlock * BLOCK_SECTORS; i < iBlockEnd; i++) {
+                digest.update(cd.getSector(i).getRawSectorDataCopy());
+            }
+            if (finishBlockHash(digest) != _previous.alngBlockHashes[iBlock]) {
+                LOG.log(Level.FINE, "Sectors {0}-{1} changed", new Object[]{iBlock * BLOCK_SECTORS, iBlockEnd - 1});
+                return -1;
+            }
+        }
+
+        for (int iBlock = iStartBlock; iBlock < iEndBlock; iBlock++) {
+            _current.setBlockHash(iBlock, _previous.alngBlockHashes[iBlock]);
+        }
+        for (int i = span.iStartSector; i < span.iEndSector; i++) {
+            _current.abSectorTypes[i] = _previous.abSectorTypes[i];
+            _current.abClaimers[i] = _current.claimerId(_previous.getClaimer(i));
+        }
+        _iSectorsReused += span.iEndSector - span.iStartSector;
+        return span.iEndSector;
+    }
+
+    /** Items found in a span from {@link #findUnchanged}. */
+    @Nonnull List<String> getPreviousItems(int iStartSector) {
+        return _previous.spans.get(Integer.valueOf(iStartSector)).items;
+    }
+
+    /** Type of a sector in a span from {@link #findUnchanged}. */
+    @Nonnull CdSector.Type getSectorType(int iSector) {
+        return CdSector.Type.values()[_current.abSectorTypes[iSector]];
+    }
+
+    /** Class name of the sector claimed, or "" if it wasn't claimed. */
+    @Nonnull String getClaimer(int iSector) {
+        return _current.getClaimer(iSector);
+    }
+
+    /** Called once indexing is done, with every item found. */
+    void indexGenerated(@Nonnull Collection<DiscItem> allItems) {
+        for (Span span : _current.spans.values()) {
+            span.items.clear();
+            span.iHashEndSector = span.iEndSector;
+        }
+        for (DiscItem item : allItems) {
+            // the file system is built from the whole disc
+            if (item instanceof DiscItemISO9660File)
+                continue;
+            Map.Entry<Integer, Span> entry = _current.spans.floorEntry(Integer.valueOf(item.getStartSector()));
+            if (entry == null)
+                continue;
+            Span span = entry.getValue();
+            if (item.getStartSector() >= span.iEndSector)
+                continue;
+            span.items.add(item.serialize().serialize());
+            int iItemEnd = Math.min(item.getEndSector() + 1, _current.iSectorCount);
+            span.iHashEndSector = Math.max(span.iHashEndSector, iItemEnd);
+        }
+
+        // every block the items used must have been seen
+        for (Iterator<Span> it = _current.spans.values().iterator(); it.hasNext();) {
+            Span span = it.next();
+            int iEndBlock = (span.iHashEndSector + BLOCK_SECTORS - 1) / BLOCK_SECTORS;
+            int iUnhashed = _current.blocksHashed.nextClearBit(span.iStartSector / BLOCK_SECTORS);
+            if (iUnhashed < iEndBlock)
+                it.remove();
+        }
+    }
+}
@@ -0,0 +1,444 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.indexing;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.discitems.DiscItem;
+import jpsxdec.i18n.I;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.i18n.log.ILocalizedLogger;
+import jpsxdec.i18n.log.ProgressLogger;
+import jpsxdec.modules.SectorClaimSystem;
+import jpsxdec.modules.iso9660.DiscIndexerISO9660;
+import jpsxdec.modules.iso9660.SectorClaimToSectorISO9660;
+import jpsxdec.util.IO;
+import jpsxdec.util.TaskCanceledException;
+
+/** Indexes a disc with several threads.
+ *<p>
+ * The disc is split into equal parts, and each part is indexed with its own
+ * {@link SectorClaimSystem} and {@link DiscIndexer}s. Items on the disc don't
+ * care about those boundaries, so after a part is indexed, its indexing
+ * continues into the following parts until it reaches a sector where both
+ * it and the part that sector is in were idle
+ * (see {@link SectorClaimSystem#isIdle()} and {@link DiscIndexer#isIdleAt(int)}).
+ * From there on the two would find exactly the same items, so that
+ * part takes over. The result is the same as indexing with one thread.
+ *<p>
+ * How much this helps depends on the disc. Stretches of the disc that are
+ * never idle (e.g. Square audio continues until the next movie) end up
+ * being indexed by only one thread.
+ *<p>
+ * The ISO9660 file system is different. Every part just collects the
+ * file system sectors, which are all put together at the end. */
+class ParallelIndexer {
+
+    private static final Logger LOG = Logger.getLogger(ParallelIndexer.class.getName());
+
+    /** Only check for idle indexing every this many sectors. */
+    private static final int IDLE_CHECK_INTERVAL = 16;
+    /** Splitting the disc into parts smaller than this isn't worth it. */
+    private static final int MIN_SECTORS_PER_PART = 2000;
+    /** How often to update progress while waiting for the threads. */
+    private static final int PROGRESS_UPDATE_MILLIS = 100;
+
+    /** How many parts to split the disc into, or 1 to index it all at once. */
+    public static int calculatePartCount(int iSectorCount, int iThreads) {
+        return Math.max(1, Math.min(iThreads, iSectorCount / MIN_SECTORS_PER_PART));
+    }
+
+    /** Log messages are held until it's known which part will be used for each sector. */
+    private static class BufferedLog implements ILocalizedLogger {
+
+        private static class Entry {
+            public final int iSector;
+            @Nonnull
+            public final Level level;
+            @Nonnull
+            public final ILocalizedMessage msg;
+            @CheckForNull
+            public final Throwable debugException;
+
+            public Entry(int iSector, @Nonnull Level level, @Nonnull ILocalizedMessage msg,
+                         @CheckForNull Throwable debugException)
+            {
+                this.iSector = iSector;
+                this.level = level;
+                this.msg = msg;
+                this.debugException = debugException;
+            }
+        }
+
+        private final ArrayList<Entry> _entries = new ArrayList<Entry>();
+        /** Sector being indexed, which is attached to any messages. */
+        private int _iSector;
+
+        public void setSector(int iSector) {
+            _iSector = iSector;
+        }
+
+        public void log(@Nonnull Level level, @Nonnull ILocalizedMessage msg) {
+            log(level, msg, null);
+        }
+
+        public void log(@Nonnull Level level, @Nonnull ILocalizedMessage msg,
+                        @CheckForNull Throwable debugException)
+        {
+            _entries.add(new Entry(_iSector, level, msg, debugException));
+        }
+
+        /** Passes on the messages logged while indexing the given range of sectors. */
+        public void replay(@Nonnull ILocalizedLogger log, int iStartSector, int iEndSector) {
+            for (Entry entry : _entries) {
+                if (entry.iSector >= iStartSector && entry.iSector < iEndSector)
+                    log.log(entry.level, entry.msg, entry.debugException);
+            }
+        }
+    }
+
+    /** The indexing of one part of the disc. */
+    private class Part {
+        /** Always a multiple of {@link #IDLE_CHECK_INTERVAL}. */
+        private final int _iStartSector;
+        /** Exclusive. */
+        private final int _iEndSector;
+        /** Every thread needs its own reader. */
+        @Nonnull
+        private final CdFileSectorReader _cd;
+        @Nonnull
+        private final SectorClaimSystem _scs;
+        @Nonnull
+        private final List<DiscIndexer> _indexers;
+        @Nonnull
+        private final DiscIndexerISO9660 _isoIndexer;
+        private final ArrayList<DiscItem> _items = new ArrayList<DiscItem>();
+        private final BufferedLog _log = new BufferedLog();
+        @Nonnull
+        private final DiscIndex.SectorHeaderChecker _checker = new DiscIndex.SectorHeaderChecker(_log);
+        /** If indexing was idle before each {@link #IDLE_CHECK_INTERVAL}
+         * sector in this part. */
+        private final BitSet _idleAt = new BitSet();
+
+        /** Where indexing stopped (exclusive). */
+        private int _iStopSector;
+        @CheckForNull
+        private CdFileSectorReader.CdReadException _readFailure;
+
+        private volatile int _iSectorsIndexed = 0;
+        private volatile int _iItemsFound = 0;
+
+        public Part(int iStartSector, int iEndSector, @Nonnull CdFileSectorReader cd) {
+            _iStartSector = iStartSector;
+            _iEndSector = iEndSector;
+            _cd = cd;
+
+            _indexers = DiscIndexer.createIndexers(_log);
+            DiscIndexerISO9660 isoIndexer = null;
+            for (DiscIndexer indexer : _indexers) {
+                // the items will use the original reader
+                indexer.indexInit(_items, _sourceCd);
+                if (indexer instanceof DiscIndexerISO9660)
+                    isoIndexer = (DiscIndexerISO9660) indexer;
+            }
+            if (isoIndexer == null)
+                throw new RuntimeException("ISO9660 indexer should always be created");
+            _isoIndexer = isoIndexer;
+
+            _scs = SectorClaimSystem.create(_cd, iStartSector);
+            for (DiscIndexer indexer : _indexers) {
+                indexer.attachToSectorClaimer(_scs);
+            }
+        }
+
+        public boolean contains(int iSector) {
+            return iSector >= _iStartSector && iSector < _iEndSector;
+        }
+
+        /** Indexes the sectors of this part, noting where indexing was idle. */
+        public void indexPart() {
+            try {
+                if (_iStartSector > 0)
+                    _checker.startAfter(_cd.getSector(_iStartSector - 1));
+                for (int iSector = _iStartSector; iSector < _iEndSector && !_blnCanceled; iSector++) {
+                    if ((iSector - _iStartSector) % IDLE_CHECK_INTERVAL == 0)
+                        _idleAt.set((iSector - _iStartSector) / IDLE_CHECK_INTERVAL, isIdleAt(iSector));
+                    indexSector(iSector);
+                }
+            } catch (CdFileSectorReader.CdReadException ex) {
+                _readFailure = ex;
+            }
+        }
+
+        /** Continues indexing after the end of this part until it can be
+         * joined with the part that follows. */
+        public void indexUntilJoined() {
+            int iSector = _iEndSector;
+            if (_readFailure == null) {
+                try {
+                    for (; iSector < _iDiscEndSector && !_blnCanceled; iSector++) {
+                        if (iSector % IDLE_CHECK_INTERVAL == 0 &&
+                            findPart(iSector).wasIdleAt(iSector) &&
+                            isIdleAt(iSector))
+                        {
+                            break;
+                        }
+                        indexSector(iSector);
+                    }
+                } catch (CdFileSectorReader.CdReadException ex) {
+                    _readFailure = ex;
+                }
+            }
+            _iStopSector = iSector;
+
+            if (_readFailure == null) {
+                // the file system is built after all the parts are put together
+                _scs.getClaimer(SectorClaimToSectorISO9660.class).setListener(null);
+                _log.setSector(_iStopSector - 1);
+                _scs.close(_log);
+                _iItemsFound = _items.size();
+            }
+        }
+
+        private void indexSector(int iSector) throws CdFileSectorReader.CdReadException {
+            _log.setSector(iSector);
+            SectorClaimSystem.ClaimedSector cs = _scs.next(_log);
+            _checker.indexingSectorRead(cs.getSector());
+            _iSectorsIndexed++;
+            _iItemsFound = _items.size();
+        }
+
+        private boolean isIdleAt(int iSector) {
+            if (!_scs.isIdle())
+                return false;
+            for (DiscIndexer indexer : _indexers) {
+                if (!indexer.isIdleAt(iSector))
+                    return false;
+            }
+            return true;
+        }
+
+        private boolean wasIdleAt(int iSector) {
+            return _idleAt.get((iSector - _iStartSector) / IDLE_CHECK_INTERVAL);
+        }
+    }
+
+    @Nonnull
+    private final CdFileSectorReader _sourceCd;
+    private final int _iDiscEndSector;
+    private final ArrayList<Part> _parts = new ArrayList<Part>();
+    private volatile boolean _blnCanceled = false;
+
+    private ParallelIndexer(@Nonnull CdFileSectorReader cd) {
+        _sourceCd = cd;
+        _iDiscEndSector = cd.getSectorCount();
+    }
+
+    /** Indexes the sectors of the disc with the given number of threads,
+     * adding the items found to the list. The ISO9660 files are built
+     * by the given ISO9660 indexer.
+     * @return false if the disc could not be indexed in parallel,
+     *         and nothing was done. */
+    public static boolean index(@Nonnull CdFileSectorReader cd, int iThreads,
+                                @Nonnull Collection<DiscItem> items,
+                                @Nonnull DiscIndexerISO9660 isoIndexer,
+                                @Nonnull ProgressLogger pl)
+            throws TaskCanceledException
+    {
+        int iPartCount = calculatePartCount(cd.getSectorCount(), iThreads);
+        if (iPartCount < 2)
+            return false;
+
+        ParallelIndexer indexer = new ParallelIndexer(cd);
+        try {
+            if (!indexer.createParts(iPartCount))
+                return false;
+            indexer.indexParts(pl);
+            indexer.joinParts(items, isoIndexer, pl);
+        } finally {
+            for (Part part : indexer._parts) {
+                IO.closeSilently(part._cd, LOG);
+            }
+        }
+        return true;
+    }
+
+    private boolean createParts(int iPartCount) {
+        int iPartSize = _iDiscEndSector / iPartCount;
+        iPartSize -= iPartSize % IDLE_CHECK_INTERVAL;
+        for (int i = 0; i < iPartCount; i++) {
+            int iStartSector = i * iPartSize;
+            int iEndSector = (i == iPartCount - 1) ? _iDiscEndSector : iStartSector + iPartSize;
+            CdFileSectorReader cdCopy;
+            try {
+                cdCopy = _sourceCd.openReadOnlyCopy();
+            } catch (CdFileSectorReader.CdFileNotFoundException ex) {
+                LOG.log(Level.WARNING, "Unable to open disc image again for parallel indexing", ex);
+                return false;
+            }
+            _parts.add(new Part(iStartSector, iEndSector, cdCopy));
+        }
+        return true;
+    }
+
+    private @Nonnull Part findPart(int iSector) {
+        for (Part part : _parts) {
+            if (part.contains(iSector))
+                return part;
+        }
+        throw new IllegalArgumentException("Sector " + iSector + " is not in any part");
+    }
+
+    private void indexParts(@Nonnull ProgressLogger pl) throws TaskCanceledException {
+        ExecutorService executor = Executors.newFixedThreadPool(_parts.size());
+        try {
+            // all parts need to know where they are idle before they can be joined
+            List<Future<?>> tasks = new ArrayList<Future<?>>(_parts.size());
+            for (final Part part : _parts) {
+                tasks.add(executor.submit(new Runnable() {
+                    public void run() {
+                        part.indexPart();
+                    }
+                }));
+            }
+            waitFor(tasks, pl);
+
+            tasks.clear();
+            for (final Part part : _parts) {
+                tasks.add(executor.submit(new Runnable() {
+                    public void run() {
+                        part.indexUntilJoined();
+                    }
+                }));
+            }
+            waitFor(tasks, pl);
+        } catch (TaskCanceledException ex) {
+            _blnCanceled = true;
+            throw ex;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void waitFor(@Nonnull List<Future<?>> tasks, @Nonnull ProgressLogger pl)
+            throws TaskCanceledException
+    {
+        for (Future<?> task : tasks) {
+            while (true) {
+                try {
+                    task.get(PROGRESS_UPDATE_MILLIS, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException ex) {
+                    updateProgress(pl);
+                } catch (InterruptedException ex) {
+                    _blnCanceled = true;
+                    throw new TaskCanceledException();
+                } catch (ExecutionException ex) {
+                    _blnCanceled = true;
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof RuntimeException)
+                        throw (RuntimeException) cause;
+                    if (cause instanceof Error)
+                        throw (Error) cause;
+                    throw new RuntimeException(cause);
+                }
+            }
+        }
+        updateProgress(pl);
+    }
+
+    private void updateProgress(@Nonnull ProgressLogger pl) throws TaskCanceledException {
+        int iSectorsIndexed = 0;
+        int iItemsFound = 0;
+        for (Part part : _parts) {
+            iSectorsIndexed += part._iSectorsIndexed;
+            iItemsFound += part._iItemsFound;
+        }
+        // parts may index the same sectors
+        iSectorsIndexed = Math.min(iSectorsIndexed, _iDiscEndSector - 1);
+        pl.progressUpdate(iSectorsIndexed);
+        if (pl.isSeekingEvent())
+            pl.event(I.INDEX_SECTOR_ITEM_PROGRESS(iSectorsIndexed, _iDiscEndSector - 1, iItemsFound));
+    }
+
+    /** Starting with the first part, takes the items of each part up to
+     * where it was joined to the next part. */
+    private void joinParts(@Nonnull Collection<DiscItem> items,
+                           @Nonnull DiscIndexerISO9660 isoIndexer,
+                           @Nonnull ProgressLogger pl)
+    {
+        int iStartSector = 0;
+        Part part = _parts.get(0);
+        while (true) {
+            int iEndSector = part._iStopSector;
+            part._log.replay(pl, iStartSector, iEndSector);
+            for (DiscItem item : part._items) {
+                if (item.getStartSector() >= iStartSector && item.getStartSector() < iEndSector)
+                    items.add(item);
+            }
+            isoIndexer.addSectorsFrom(part._isoIndexer, iStartSector, iEndSector - 1);
+
+            if (part._readFailure != null) {
+                // like with 1 thread, stop at the first error
+                CdFileSectorReader.CdReadException ex = part._readFailure;
+                pl.log(Level.SEVERE, I.IO_READING_FROM_FILE_ERROR_NAME(ex.getFile().toString()), ex);
+                return;
+            }
+            if (iEndSector >= _iDiscEndSector)
+                break;
+
+            iStartSector = iEndSector;
+            part = findPart(iStartSector);
+        }
+        isoIndexer.endOfSectors(pl);
+    }
+
+}
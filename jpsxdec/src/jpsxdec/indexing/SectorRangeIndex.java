@@ -0,0 +1,227 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.indexing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.discitems.DiscItem;
+
+/** Finds which values cover a range of sectors in logarithmic time.
+ *
+ * Values are added with the inclusive sector range they cover, then the
+ * index is built on the first query. Internally the ranges are sorted by
+ * start sector and a segment tree holds the greatest end sector of
+ * each span of them, so whole spans that end before the query can be
+ * skipped.
+ *
+ * Query results are always returned in the order the values were added,
+ * so code that used to walk a list and take the first match gets the
+ * same answer. */
+public class SectorRangeIndex<T> {
+
+    @Nonnull
+    private final ArrayList<T> _values = new ArrayList<T>();
+    @Nonnull
+    private int[] _aiStarts = new int[16];
+    @Nonnull
+    private int[] _aiEnds = new int[16];
+
+    /** Order the values were added, sorted by start sector.
+     * Null when the index needs to be (re)built. */
+    @CheckForNull
+    private int[] _aiByStart;
+    /** Start sectors in {@link #_aiByStart} order. */
+    private int[] _aiSortedStarts;
+    /** Segment tree of the greatest end sector in {@link #_aiByStart} order. */
+    private int[] _aiMaxEnds;
+
+    public SectorRangeIndex() {
+    }
+
+    /** Indexes the items by the sectors they span. */
+    public static @Nonnull <T extends DiscItem> SectorRangeIndex<T> ofItems(
+            @Nonnull Iterable<T> items)
+    {
+        SectorRangeIndex<T> index = new SectorRangeIndex<T>();
+        for (T item : items) {
+            index.add(item.getStartSector(), item.getEndSector(), item);
+        }
+        return index;
+    }
+
+    /** @param iEndSector inclusive. */
+    public void add(int iStartSector, int iEndSector, @Nonnull T value) {
+        if (iEndSector < iStartSector)
+            throw new IllegalArgumentException("Invalid sector range " + iStartSector + "-" + iEndSector);
+        int i = _values.size();
+        if (i == _aiStarts.length) {
+            _aiStarts = Arrays.copyOf(_aiStarts, i * 2);
+            _aiEnds = Arrays.copyOf(_aiEnds, i * 2);
+        }
+        _aiStarts[i] = iStartSector;
+        _aiEnds[i] = iEndSector;
+        _values.add(value);
+        _aiByStart = null;
+    }
+
+    public int size() {
+        return _values.size();
+    }
+
+    /** Returns the values whose ranges share at least one sector with
+     * the inclusive range, in the order they were added. */
+    public @Nonnull List<T> findOverlapping(int iStartSector, int iEndSector) {
+        int[] aiFound = findIndexes(iStartSector, iEndSector);
+        if (aiFound.length == 0)
+            return Collections.emptyList();
+        ArrayList<T> found = new ArrayList<T>(aiFound.length);
+        for (int i : aiFound) {
+            found.add(_values.get(i));
+        }
+        return found;
+    }
+
+    /** Returns the first value added whose range includes the sector. */
+    public @CheckForNull T findFirstAt(int iSector) {
+        int[] aiFound = findIndexes(iSector, iSector);
+        if (aiFound.length == 0)
+            return null;
+        return _values.get(aiFound[0]);
+    }
+
+    private @Nonnull int[] findIndexes(int iStartSector, int iEndSector) {
+        build();
+        // only ranges that start before the end of the query can overlap it
+        int iCandidates = upperBound(_aiSortedStarts, iEndSector);
+        if (iCandidates == 0)
+            return new int[0];
+        IntList found = new IntList();
+        collect(1, 0, _aiByStart.length - 1, iCandidates - 1, iStartSector, found);
+        int[] aiFound = found.toArray();
+        Arrays.sort(aiFound);
+        return aiFound;
+    }
+
+    private void collect(int iNode, int iLo, int iHi, int iLastCandidate,
+                         int iStartSector, @Nonnull IntList found)
+    {
+        if (iLo > iLastCandidate || _aiMaxEnds[iNode] < iStartSector)
+            return;
+        if (iLo == iHi) {
+            found.add(_aiByStart[iLo]);
+            return;
+        }
+        int iMid = (iLo + iHi) >>> 1;
+        collect(iNode * 2, iLo, iMid, iLastCandidate, iStartSector, found);
+        collect(iNode * 2 + 1, iMid + 1, iHi, iLastCandidate, iStartSector, found);
+    }
+
+    private void build() {
+        if (_aiByStart != null)
+            return;
+        int iCount = _values.size();
+        Integer[] aoOrder = new Integer[iCount];
+        for (int i = 0; i < iCount; i++) {
+            aoOrder[i] = Integer.valueOf(i);
+        }
+        // stable sort keeps values with the same start in the order added
+        Arrays.sort(aoOrder, new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                int i1 = _aiStarts[o1.intValue()], i2 = _aiStarts[o2.intValue()];
+                return i1 < i2 ? -1 : (i1 == i2 ? 0 : 1);
+            }
+        });
+        int[] aiByStart = new int[iCount];
+        _aiSortedStarts = new int[iCount];
+        for (int i = 0; i < iCount; i++) {
+            aiByStart[i] = aoOrder[i].intValue();
+            _aiSortedStarts[i] = _aiStarts[aiByStart[i]];
+        }
+        int iTreeSize = 1;
+        while (iTreeSize < iCount)
+            iTreeSize <<= 1;
+        _aiMaxEnds = new int[iTreeSize * 2];
+        _aiByStart = aiByStart;
+        if (iCount > 0)
+            buildMaxEnds(1, 0, iCount - 1);
+    }
+
+    private int buildMaxEnds(int iNode, int iLo, int iHi) {
+        int iMax;
+        if (iLo == iHi) {
+            iMax = _aiEnds[_aiByStart[iLo]];
+        } else {
+            int iMid = (iLo + iHi) >>> 1;
+            iMax = Math.max(buildMaxEnds(iNode * 2, iLo, iMid),
+                            buildMaxEnds(iNode * 2 + 1, iMid + 1, iHi));
+        }
+        _aiMaxEnds[iNode] = iMax;
+        return iMax;
+    }
+
+    /** Number of values in the sorted array that are &lt;= the key. */
+    private static int upperBound(@Nonnull int[] ai, int iKey) {
+        int iLo = 0, iHi = ai.length;
+        while (iLo < iHi) {
+            int iMid = (iLo + iHi) >>> 1;
+            if (ai[iMid] <= iKey)
+                iLo = iMid + 1;
+            else
+                iHi = iMid;
+        }
+        return iLo;
+    }
+
+    private static class IntList {
+        private int[] _ai = new int[8];
+        private int _iSize = 0;
+        public void add(int i) {
+            if (_iSize == _ai.length)
+                _ai = Arrays.copyOf(_ai, _iSize * 2);
+            _ai[_iSize++] = i;
+        }
+        public @Nonnull int[] toArray() {
+            return Arrays.copyOf(_ai, _iSize);
+        }
+    }
+}
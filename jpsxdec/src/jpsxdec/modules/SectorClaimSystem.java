@@ -40,10 +40,15 @@ package jpsxdec.modules;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import jpsxdec.cdreaders.CdFileSectorReader;
 import jpsxdec.cdreaders.CdSector;
+import jpsxdec.cdreaders.SectorReadAhead;
 import jpsxdec.i18n.log.ILocalizedLogger;
 import jpsxdec.modules.ac3.SectorClaimToSectorAc3Video;
 import jpsxdec.modules.cdaudio.SectorClaimToSectorCdAudio;
@@ -55,8 +60,8 @@ import jpsxdec.modules.roadrash.SectorClaimToRoadRash;
 import jpsxdec.modules.square.SectorClaimToSquareAudioSector;
 import jpsxdec.modules.strvideo.SectorClaimToStrVideoSector;
 import jpsxdec.modules.xa.SectorClaimToSectorXaAudio;
-import jpsxdec.util.BufferedIOIterator;
 import jpsxdec.util.IOIterator;
+import jpsxdec.util.Metrics;
 
 /** The final and universal way to identify and handle CD sectors.
  * <p>
@@ -72,6 +77,19 @@ import jpsxdec.util.IOIterator;
  * <p>
  * The "claimers" are prompted in the order they are added to this system.
  * Once a sector is claimed, later claimers will know and can respond accordingly.
+ * <p>
+ * The work is split into two passes.
+ * <ol>
+ * <li>Identify: each claimer is given each sector (and can peek ahead)
+ *     to claim it and attach any data it processed along the way
+ *     ({@link SectorClaimer#sectorRead}).
+ * <li>Process: once every claimer has seen a sector, each claimer is given
+ *     the final claimed sector, in sector order, to pass the attached data
+ *     to its listeners ({@link SectorClaimer#sectorClaimed}).
+ * </ol>
+ * Sectors live in a ring that every claimer indexes into, so there is
+ * no per-sector allocation and no nesting of iterators. The ring grows
+ * to fit however far ahead the claimers peek.
  */
 public class SectorClaimSystem {
 
@@ -104,22 +122,45 @@ public class SectorClaimSystem {
         return scs;
     }
 
-    /** On each {@link #next(jpsxdec.util.ILocalizedLogger)}, a sector claimer
-     * will be fed the 'current' sector. 
+    /** On each {@link #next(jpsxdec.i18n.log.ILocalizedLogger)}, a sector claimer
+     * will be fed the 'current' sector twice: first to identify it, then
+     * after all claimers have identified it, to process it.
      * The claimer can peek ahead as much as it likes and claim those. */
     public static abstract class SectorClaimer {
         private int _iStartSector = 0;
         private int _iEndSectorInclusive = Integer.MAX_VALUE;
-        
-        /** Called once for every sector, regardless of whether future sectors were peeked. */
+        /** Position of this claimer in the system, used to find its attachments. */
+        private int _iClaimerIndex = -1;
+
+        /** Identification pass.
+         * Called once for every sector, regardless of whether future sectors were peeked.
+         * Claim the sector and {@link ClaimableSector#attach(SectorClaimer, Object)}
+         * anything that will be needed when the sector is processed,
+         * but do not feed listeners here. */
         abstract public void sectorRead(@Nonnull ClaimableSector cs,
                                         @Nonnull IOIterator<ClaimableSector> peekIt,
                                         @Nonnull ILocalizedLogger log)
                 throws IOException, ClaimerFailure;
 
+        /** Processing pass.
+         * Called once for every sector, in order, after every claimer has
+         * identified it. Here is where listeners are fed. */
+        abstract public void sectorClaimed(@Nonnull ClaimedSector cs,
+                                           @Nonnull ILocalizedLogger log)
+                throws ClaimerFailure;
+
         abstract public void endOfSectors(@Nonnull ILocalizedLogger log)
                 throws ClaimerFailure;
 
+        /** If nothing from the sectors before {@code iSector} could change
+         * how {@code iSector} and the sectors after it are identified or
+         * processed, i.e. this claimer would behave exactly like a new one
+         * starting at {@code iSector}.
+         * Only called between sectors, when no sector after
+         * {@code iSector} has been identified yet.
+         * When unsure, return false. */
+        abstract public boolean isIdleAt(int iSector);
+
         final public void setRangeLimit(int iStartSector, int iEndSectorInclusive) {
             _iStartSector = iStartSector;
             _iEndSectorInclusive = iEndSectorInclusive;
@@ -130,43 +171,53 @@ public class SectorClaimSystem {
         }
     }
 
-    private static class InternalSector {
+    /** A sector in the process of being claimed.
+     * These are recycled as the ring of sectors advances, so do not hold onto them. */
+    public static class ClaimableSector {
         @Nonnull
-        public final CdSector sector;
+        private CdSector _sector;
         @CheckForNull
-        public IIdentifiedSector claimer;
-        public InternalSector(CdSector sector) {
-            this.sector = sector;
-        }
-    }
-
-    /** A sector in the process of being claimed. */
-    public static class ClaimableSector {
+        private IIdentifiedSector _claimer;
+        /** Data attached by each claimer, indexed by {@link SectorClaimer#_iClaimerIndex}. */
         @Nonnull
-        private final InternalSector _inner;
-        private ClaimableSector(@Nonnull InternalSector inner) {
-            _inner = inner;
+        private final Object[] _aoAttachments;
+        @Nonnull
+        private final ClaimedSector _claimed = new ClaimedSector(this);
+
+        private ClaimableSector(@Nonnull CdSector sector, int iClaimerCount) {
+            _sector = sector;
+            _aoAttachments = new Object[iClaimerCount];
+        }
+        private void reset(@Nonnull CdSector sector) {
+            _sector = sector;
+            _claimer = null;
+            Arrays.fill(_aoAttachments, null);
         }
         public @Nonnull CdSector getSector() {
-            return _inner.sector;
+            return _sector;
         }
         public @CheckForNull IIdentifiedSector getClaimer() {
-            return _inner.claimer;
+            return _claimer;
         }
         public boolean isClaimed() {
-            return _inner.claimer != null;
+            return _claimer != null;
         }
         public void claim(@Nonnull IIdentifiedSector claimer) {
-            _inner.claimer = claimer;
+            _claimer = claimer;
+        }
+        /** Attach data processed while identifying the sector
+         * so it can be picked up again in {@link SectorClaimer#sectorClaimed}. */
+        public void attach(@Nonnull SectorClaimer claimer, @CheckForNull Object data) {
+            _aoAttachments[claimer._iClaimerIndex] = data;
         }
         @Override
         public String toString() {
             StringBuilder sb = new StringBuilder();
-            sb.append(_inner.sector);
-            if (_inner.claimer == null)
+            sb.append(_sector);
+            if (_claimer == null)
                 sb.append(" unclaimed");
             else
-                sb.append(_inner.claimer);
+                sb.append(_claimer);
             return sb.toString();
         }
     }
@@ -177,39 +228,67 @@ public class SectorClaimSystem {
         }
     }
 
-    /** The final sector after being processed by all claimers. */
+    /** The final sector after being processed by all claimers.
+     * Only valid until the next call to {@link #next(jpsxdec.i18n.log.ILocalizedLogger)}. */
     public static class ClaimedSector {
         @Nonnull
-        private final InternalSector _inner;
-        private ClaimedSector(@Nonnull InternalSector inner) {
+        private final ClaimableSector _inner;
+        private ClaimedSector(@Nonnull ClaimableSector inner) {
             _inner = inner;
         }
         public @Nonnull CdSector getSector() {
-            return _inner.sector;
+            return _inner._sector;
         }
         public @CheckForNull IIdentifiedSector getClaimer() {
-            return _inner.claimer;
+            return _inner._claimer;
+        }
+        /** Data the claimer attached while identifying the sector. */
+        public @CheckForNull Object getAttachment(@Nonnull SectorClaimer claimer) {
+            return _inner._aoAttachments[claimer._iClaimerIndex];
         }
         @Override
         public String toString() {
-            StringBuilder sb = new StringBuilder();
-            sb.append(_inner.sector);
-            if (_inner.claimer == null)
-                sb.append(" unclaimed");
-            else
-                sb.append(_inner.claimer);
-            return sb.toString();
+            return _inner.toString();
         }
     }
 
     // =========================================================================
-    
+
+    private static final int INITIAL_RING_SIZE = 32;
+
     @Nonnull
     private final CdFileSectorReader _cd;
     @Nonnull
-    private final ArrayList<SectorClaimInception> _iterators = new ArrayList<SectorClaimInception>();
+    private final ArrayList<SectorClaimer> _claimers = new ArrayList<SectorClaimer>();
+    /** One reusable peek iterator for each claimer. */
+    @Nonnull
+    private final ArrayList<PeekIterator> _peekers = new ArrayList<PeekIterator>();
+    /** Time each claimer spends identifying sectors. Includes the time the
+     * claimers before it spend on any sectors it peeks at. */
+    @Nonnull
+    private final ArrayList<Metrics.Metric> _readMetrics = new ArrayList<Metrics.Metric>();
+    /** Time each claimer spends handling claimed sectors. Includes the time
+     * its listeners spend, such as decoding and saving. */
+    @Nonnull
+    private final ArrayList<Metrics.Metric> _claimedMetrics = new ArrayList<Metrics.Metric>();
+    /** The next sector each claimer will identify. */
+    @Nonnull
+    private int[] _aiClaimerNextSector = new int[0];
+
+    /** Power of 2 sized ring, indexed by sector number. */
     @Nonnull
-    private BufferedIOIterator<ClaimableSector> _outerMostIterator;
+    private ClaimableSector[] _aoRing = new ClaimableSector[INITIAL_RING_SIZE];
+    /** The next sector to be returned by {@link #next(jpsxdec.i18n.log.ILocalizedLogger)},
+     * and the oldest sector in the ring. */
+    private int _iNextSector;
+    /** Sectors up to (but not including) this one have been read into the ring. */
+    private int _iReadEndSector;
+    /** Exclusive. */
+    private final int _iEndSector;
+    /** Source of sectors when reading ahead. */
+    @CheckForNull
+    private SectorReadAhead _readAhead;
+
     @Nonnull // only non-null when being used
     private ILocalizedLogger _log;
 
@@ -221,106 +300,197 @@ public class SectorClaimSystem {
                               int iEndSectorInclusive)
     {
         _cd = cd;
-        CoreSectorIterator core = new CoreSectorIterator(cd, iStartSector, iEndSectorInclusive+1);
-        _outerMostIterator = new BufferedIOIterator<ClaimableSector>(core);
+        _iNextSector = _iReadEndSector = iStartSector;
+        _iEndSector = iEndSectorInclusive + 1;
     }
 
     void addClaimer(@Nonnull SectorClaimer claimer) {
-        SectorClaimInception wrapping = new SectorClaimInception(_outerMostIterator, claimer);
-        _outerMostIterator = new BufferedIOIterator<ClaimableSector>(wrapping);
-        _iterators.add(wrapping);
+        if (_iReadEndSector != _iNextSector || _aoRing[0] != null)
+            throw new IllegalStateException("Claimers must be added before reading sectors");
+        claimer._iClaimerIndex = _claimers.size();
+        _claimers.add(claimer);
+        _peekers.add(new PeekIterator(claimer._iClaimerIndex));
+        String sName = claimer.getClass().getSimpleName();
+        _readMetrics.add(Metrics.get("claimer." + sName + ".read"));
+        _claimedMetrics.add(Metrics.get("claimer." + sName + ".claimed"));
+        _aiClaimerNextSector = Arrays.copyOf(_aiClaimerNextSector, _claimers.size());
+        _aiClaimerNextSector[claimer._iClaimerIndex] = _iNextSector;
     }
 
     @SuppressWarnings("unchecked")
     public @Nonnull <T extends SectorClaimer> T getClaimer(@Nonnull Class<T> clazz) {
-        for (SectorClaimInception iterator : _iterators) {
-            if (iterator._claimer.getClass() == clazz) {
-                return (T) iterator._claimer;
+        for (SectorClaimer claimer : _claimers) {
+            if (claimer.getClass() == clazz) {
+                return (T) claimer;
             }
         }
         // TODO: any way to register claimers such that this is never the case
         throw new RuntimeException("All possible claimers should have been registered");
     }
     
+    /** All the claimers, in the order they are prompted. */
+    public @Nonnull List<SectorClaimer> getClaimers() {
+        return Collections.unmodifiableList(_claimers);
+    }
+
     public @Nonnull File getSourceCdFile() {
         return _cd.getSourceFile();
     }
 
-    /** You can continue to call {@link #next(jpsxdec.util.ILocalizedLogger)} until this returns false. */
+    /** You can continue to call {@link #next(jpsxdec.i18n.log.ILocalizedLogger)} until this returns false. */
     public boolean hasNext() {
-        return _outerMostIterator.hasNext();
+        return _iNextSector < _iEndSector;
     }
     
+    /** The returned sector is only valid until the next call to this method. */
     public @Nonnull ClaimedSector next(@Nonnull ILocalizedLogger log) 
             throws CdFileSectorReader.CdReadException, ClaimerFailure
     {
+        if (!hasNext())
+            throw new NoSuchElementException();
         try {
             _log = log;
-            ClaimableSector next;
+            ClaimableSector cs;
             try {
-                next = _outerMostIterator.next();
+                identifyThrough(_iNextSector, _claimers.size());
+                cs = getRingSector(_iNextSector);
             } catch (IOException ex) {
                 if (ex instanceof CdFileSectorReader.CdReadException)
                     throw (CdFileSectorReader.CdReadException)ex;
                 throw new CdFileSectorReader.CdReadException(getSourceCdFile(), ex);
             }
-            return new ClaimedSector(next._inner);
+            for (int iClaimer = 0; iClaimer < _claimers.size(); iClaimer++) {
+                long lngStart = Metrics.start();
+                _claimers.get(iClaimer).sectorClaimed(cs._claimed, log);
+                _claimedMetrics.get(iClaimer).stop(lngStart);
+            }
+            _iNextSector++;
+            return cs._claimed;
         } finally {
             _log = null;
         }
     }
 
+    /** If the system could be replaced by a new one starting at the next sector
+     * without changing anything. That is, no claimer has identified ahead
+     * of the next sector, and every claimer is
+     * {@link SectorClaimer#isIdleAt(int)}. */
+    public boolean isIdle() {
+        for (int iClaimer = 0; iClaimer < _claimers.size(); iClaimer++) {
+            if (_aiClaimerNextSector[iClaimer] != _iNextSector ||
+                !_claimers.get(iClaimer).isIdleAt(_iNextSector))
+                return false;
+        }
+        return true;
+    }
+
+    /** Reads the upcoming sectors on a background thread while the current
+     * ones are being identified. Best when going through all the sectors.
+     * Stopped by {@link #close(jpsxdec.i18n.log.ILocalizedLogger)}, otherwise
+     * be sure to call {@link #stopReadAhead()}.
+     * @param iDepth Number of blocks of sectors to read ahead. */
+    public void startReadAhead(int iDepth) {
+        if (_readAhead == null)
+            _readAhead = new SectorReadAhead(_cd, _iReadEndSector, _iEndSector - 1,
+                                             SectorReadAhead.DEFAULT_BLOCK_SECTORS, iDepth);
+    }
+
+    public void stopReadAhead() {
+        if (_readAhead != null) {
+            _readAhead.close();
+            _readAhead = null;
+        }
+    }
+
     public void close(@Nonnull ILocalizedLogger log) {
-        for (SectorClaimInception claimer : _iterators) {
-            claimer._claimer.endOfSectors(log);
+        stopReadAhead();
+        for (SectorClaimer claimer : _claimers) {
+            claimer.endOfSectors(log);
         }
     }
 
+    /** Closes the system so a new one can continue from the next sector,
+     * as {@link #isIdle()} allows. Unlike
+     * {@link #close(jpsxdec.i18n.log.ILocalizedLogger)}, the claimers are
+     * not told the sectors have ended, since that would end anything their
+     * listeners are still collecting, such as the file system.
+     * @throws IllegalStateException if the system is not idle. */
+    public void closeForReplacement() {
+        if (!isIdle())
+            throw new IllegalStateException("Only an idle system can be replaced");
+        stopReadAhead();
+        Arrays.fill(_aoRing, null);
+    }
+
     // =========================================================================
 
-    /** Core iterator that reads directly from the CD. */
-    private static class CoreSectorIterator implements IOIterator<ClaimableSector> {
-        @Nonnull
-        private final CdFileSectorReader _cd;
-        private int _iSector;
-        private final int _iEndSector;
-
-        public CoreSectorIterator(@Nonnull CdFileSectorReader cd, int iStartSector, int iEndSector) {
-            _cd = cd;
-            _iSector = iStartSector;
-            _iEndSector = iEndSector;
+    /** Has the first {@code iClaimerCount} claimers identify every sector
+     * up to and including {@code iSector}.
+     * Claimers only ever peek at sectors that the claimers before them have
+     * identified, so this recursion is never deeper than the number of claimers. */
+    private void identifyThrough(int iSector, int iClaimerCount) throws IOException {
+        for (int iClaimer = 0; iClaimer < iClaimerCount; iClaimer++) {
+            while (_aiClaimerNextSector[iClaimer] <= iSector) {
+                int iClaimerSector = _aiClaimerNextSector[iClaimer];
+                ClaimableSector cs = getRingSector(iClaimerSector);
+                PeekIterator peekIt = _peekers.get(iClaimer);
+                peekIt.reset(iClaimerSector + 1);
+                long lngStart = Metrics.start();
+                _claimers.get(iClaimer).sectorRead(cs, peekIt, _log);
+                _readMetrics.get(iClaimer).stop(lngStart, cs.getSector().getCdUserDataSize());
+                _aiClaimerNextSector[iClaimer] = iClaimerSector + 1;
+            }
         }
-        public boolean hasNext() {
-            return _iSector < _iEndSector;
+    }
+
+    /** Returns the sector in the ring, reading it (and any before it) from
+     * the disc if it hasn't been read yet. */
+    private @Nonnull ClaimableSector getRingSector(int iSector) throws CdFileSectorReader.CdReadException {
+        while (_iReadEndSector <= iSector) {
+            if (_iReadEndSector - _iNextSector >= _aoRing.length)
+                growRing();
+            CdSector cdSector = _readAhead != null ? _readAhead.getSector(_iReadEndSector)
+                                                   : _cd.getSector(_iReadEndSector);
+            int iRingIndex = _iReadEndSector & (_aoRing.length - 1);
+            ClaimableSector cs = _aoRing[iRingIndex];
+            if (cs == null)
+                _aoRing[iRingIndex] = new ClaimableSector(cdSector, _claimers.size());
+            else
+                cs.reset(cdSector);
+            _iReadEndSector++;
         }
-        public @Nonnull ClaimableSector next() throws IOException {
-            return new ClaimableSector(new InternalSector(_cd.getSector(_iSector++)));
+        return _aoRing[iSector & (_aoRing.length - 1)];
+    }
+
+    private void growRing() {
+        ClaimableSector[] aoNewRing = new ClaimableSector[_aoRing.length * 2];
+        for (int iSector = _iNextSector; iSector < _iReadEndSector; iSector++) {
+            aoNewRing[iSector & (aoNewRing.length - 1)] = _aoRing[iSector & (_aoRing.length - 1)];
         }
+        _aoRing = aoNewRing;
     }
 
-    /** Recursively wraps iterators around each other,
-     * each one feeding off the nested one, and each buffering as it goes. */
-    private class SectorClaimInception implements IOIterator<ClaimableSector> {
-        @Nonnull
-        private final BufferedIOIterator<ClaimableSector> _nestedIter;
-        @Nonnull
-        private final SectorClaimer _claimer;
+    /** Lets a claimer look at the sectors after the one it is identifying.
+     * Before a peeked sector is returned, all the claimers before this one
+     * have a chance to identify it. */
+    private class PeekIterator implements IOIterator<ClaimableSector> {
+        private final int _iClaimerIndex;
+        private int _iPeekSector;
 
-        public SectorClaimInception(@Nonnull BufferedIOIterator<ClaimableSector> nested,
-                                    @Nonnull SectorClaimer claimer)
-        {
-            _nestedIter = nested;
-            _claimer = claimer;
+        public PeekIterator(int iClaimerIndex) {
+            _iClaimerIndex = iClaimerIndex;
+        }
+        void reset(int iPeekSector) {
+            _iPeekSector = iPeekSector;
         }
-
         public boolean hasNext() {
-            return _nestedIter.hasNext();
+            return _iPeekSector < _iEndSector;
         }
-        public @Nonnull ClaimableSector next() throws IOException {
-            BufferedIOIterator<ClaimableSector> copy = _nestedIter.copy();
-            ClaimableSector cs = copy.next();
-            _claimer.sectorRead(cs, copy, _log);
-            return _nestedIter.next();
+        public @Nonnull ClaimableSector next() throws NoSuchElementException, IOException {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            identifyThrough(_iPeekSector, _iClaimerIndex);
+            return getRingSector(_iPeekSector++);
         }
     }
 
@@ -72,6 +72,12 @@ public class SectorClaimToUnidentifiedSector extends SectorClaimSystem.SectorCla
                            @Nonnull IOIterator<SectorClaimSystem.ClaimableSector> peekIt,
                            @Nonnull ILocalizedLogger log)
             throws IOException
+    {
+        // this claimer doesn't claim anything
+    }
+
+    public void sectorClaimed(@Nonnull SectorClaimSystem.ClaimedSector cs,
+                              @Nonnull ILocalizedLogger log)
     {
         CdSector cdSector = cs.getSector();
         IIdentifiedSector idSector = cs.getClaimer();
@@ -95,4 +101,10 @@ public class SectorClaimToUnidentifiedSector extends SectorClaimSystem.SectorCla
             listener.endOfUnidentified();
         }
     }
+
+    public boolean isIdleAt(int iSector) {
+        // at worst the listeners are told about an extra break,
+        // which they should ignore when they are idle
+        return true;
+    }
 }
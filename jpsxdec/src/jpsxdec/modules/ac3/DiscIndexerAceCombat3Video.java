@@ -37,8 +37,8 @@
 
 package jpsxdec.modules.ac3;
 
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.TreeMap;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
@@ -66,6 +66,10 @@ public class DiscIndexerAceCombat3Video extends DiscIndexer implements SectorCla
 
     private static class VidBuilder {
 
+        /** A frame starting more than this many sectors after the end of
+         * the video starts a new video. */
+        private static final int MAX_FRAME_GAP = 100;
+
         @Nonnull
         private final IndexSectorFrameNumber.Format.Builder _indexSectorFrameNumberBuilder;
         @Nonnull
@@ -92,7 +96,7 @@ public class DiscIndexerAceCombat3Video extends DiscIndexer implements SectorCla
         public boolean addFrame(@Nonnull DemuxedAc3Frame frame) {
             if (frame.getWidth() != _strInfoBuilder.getWidth() ||
                 frame.getHeight() != _strInfoBuilder.getHeight() ||
-                frame.getStartSector() > _strInfoBuilder.getEndSector() + 100 ||
+                frame.getStartSector() > _strInfoBuilder.getEndSector() + MAX_FRAME_GAP ||
                 frame.getInvertedHeaderFrameNumber() > _iPrevInvertedFrameNumber)
             {
                 return false;
@@ -104,6 +108,11 @@ public class DiscIndexerAceCombat3Video extends DiscIndexer implements SectorCla
             return true;
         }
 
+        /** If a frame starting at or after the sector could not be added. */
+        public boolean cannotContinueAt(int iSector) {
+            return iSector > _strInfoBuilder.getEndSector() + MAX_FRAME_GAP;
+        }
+
         public @Nonnull DiscItemAceCombat3VideoStream endOfMovie(@Nonnull CdFileSectorReader cd) {
             return new DiscItemAceCombat3VideoStream(cd,
                     _strInfoBuilder.getStartSector(), _strInfoBuilder.getEndSector(),
@@ -144,12 +153,16 @@ public class DiscIndexerAceCombat3Video extends DiscIndexer implements SectorCla
                 _videoBuilder = new VidBuilder(frame);
         }
 
+        public boolean isIdleAt(int iSector) {
+            return _sac3v2dac3frame.isIdle() &&
+                   (_videoBuilder == null || _videoBuilder.cannotContinueAt(iSector));
+        }
+
         public void endVideo() {
             if (_videoBuilder == null)
                 return;
 
             DiscItemAceCombat3VideoStream video = _videoBuilder.endOfMovie(_indexer.getCd());
-            _indexer._completedVideos.add(video);
             _indexer.addDiscItem(video);
             _videoBuilder = null;
         }
@@ -161,7 +174,6 @@ public class DiscIndexerAceCombat3Video extends DiscIndexer implements SectorCla
     @Nonnull
     private final ILocalizedLogger _errLog;
     private final TreeMap<Integer, Ac3Channel> _activeStreams = new TreeMap<Integer, Ac3Channel>();
-    private final Collection<DiscItemAceCombat3VideoStream> _completedVideos = new ArrayList<DiscItemAceCombat3VideoStream>();
 
     public DiscIndexerAceCombat3Video(@Nonnull ILocalizedLogger errLog) {
         _errLog = errLog;
@@ -204,10 +216,21 @@ public class DiscIndexerAceCombat3Video extends DiscIndexer implements SectorCla
         _activeStreams.clear();
     }
 
+    @Override
+    public boolean isIdleAt(int iSector) {
+        for (Ac3Channel channel : _activeStreams.values()) {
+            if (!channel.isIdleAt(iSector))
+                return false;
+        }
+        return true;
+    }
+
     @Override
     public void listPostProcessing(@Nonnull Collection<DiscItem> allItems) {
-        if (_completedVideos.size() > 0)
-            DiscIndexerStrVideo.audioSplit(_completedVideos, allItems);
+        List<DiscItemAceCombat3VideoStream> videos =
+                DiscIndexerStrVideo.videosOfType(allItems, DiscItemAceCombat3VideoStream.class);
+        if (videos.size() > 0)
+            DiscIndexerStrVideo.audioSplit(videos, allItems);
     }
 
     @Override
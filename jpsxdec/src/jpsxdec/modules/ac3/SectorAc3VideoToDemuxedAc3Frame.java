@@ -100,6 +100,11 @@ public class SectorAc3VideoToDemuxedAc3Frame implements SectorClaimToSectorAc3Vi
         _currentFrame = null;
     }
 
+    /** If there is no frame in the middle of being demuxed. */
+    public boolean isIdle() {
+        return _currentFrame == null;
+    }
+
 
 }
 
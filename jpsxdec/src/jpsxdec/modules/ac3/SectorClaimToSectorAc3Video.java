@@ -75,9 +75,9 @@ public class SectorClaimToSectorAc3Video extends SectorClaimSystem.SectorClaimer
         _listener = listener;
     }
 
-   public void sectorRead(@Nonnull SectorClaimSystem.ClaimableSector cs,
-                          @Nonnull IOIterator<SectorClaimSystem.ClaimableSector> peekIt,
-                          @Nonnull ILocalizedLogger log)
+    public void sectorRead(@Nonnull SectorClaimSystem.ClaimableSector cs,
+                           @Nonnull IOIterator<SectorClaimSystem.ClaimableSector> peekIt,
+                           @Nonnull ILocalizedLogger log)
             throws IOException, SectorClaimSystem.ClaimerFailure
     {
         if (cs.isClaimed())
@@ -86,8 +86,17 @@ public class SectorClaimToSectorAc3Video extends SectorClaimSystem.SectorClaimer
         if (vidSect == null)
             return;
         cs.claim(vidSect);
+        cs.attach(this, vidSect);
+    }
 
-        if (_listener != null && sectorIsInRange(cs.getSector().getSectorIndexFromStart())) {
+    public void sectorClaimed(@Nonnull SectorClaimSystem.ClaimedSector cs,
+                              @Nonnull ILocalizedLogger log)
+            throws SectorClaimSystem.ClaimerFailure
+    {
+        SectorAceCombat3Video vidSect = (SectorAceCombat3Video) cs.getAttachment(this);
+        if (vidSect != null && _listener != null &&
+            sectorIsInRange(cs.getSector().getSectorIndexFromStart()))
+        {
             try {
                 _listener.feedSector(vidSect, log);
             } catch (LoggedFailure ex) {
@@ -108,4 +117,8 @@ public class SectorClaimToSectorAc3Video extends SectorClaimSystem.SectorClaimer
         }
     }
 
+    public boolean isIdleAt(int iSector) {
+        return true;
+    }
+
 }
@@ -61,6 +61,9 @@ public class SectorClaimToSectorCdAudio extends SectorClaimSystem.SectorClaimer
         return null;
     }
 
+    /** Attached to sectors that were claimed before this claimer saw them. */
+    private static final Object CLAIMED_BEFORE = new Object();
+
     private boolean _blnInCdAudio = false;
 
     public SectorClaimToSectorCdAudio() {
@@ -76,18 +79,28 @@ public class SectorClaimToSectorCdAudio extends SectorClaimSystem.SectorClaimer
                            @Nonnull IOIterator<SectorClaimSystem.ClaimableSector> peekIt,
                            @Nonnull ILocalizedLogger log)
     {
-        if (cs.getClaimer() != null) {
-            if (_blnInCdAudio && _listener != null)
-                _listener.endOfCdAudio();
-            _blnInCdAudio = false;
-        }
+        if (cs.getClaimer() != null)
+            cs.attach(this, CLAIMED_BEFORE);
 
         SectorCdAudio cdAudio = id(cs.getSector());
         if (cdAudio != null) {
             cs.claim(cdAudio);
+            cs.attach(this, cdAudio);
+        }
+    }
+
+    public void sectorClaimed(@Nonnull SectorClaimSystem.ClaimedSector cs,
+                              @Nonnull ILocalizedLogger log)
+    {
+        Object attached = cs.getAttachment(this);
+        if (attached == CLAIMED_BEFORE) {
+            if (_blnInCdAudio && _listener != null)
+                _listener.endOfCdAudio();
+            _blnInCdAudio = false;
+        } else if (attached != null) {
             _blnInCdAudio = true;
             if (_listener != null && sectorIsInRange(cs.getSector().getSectorIndexFromStart()))
-                _listener.feedSector(cdAudio);
+                _listener.feedSector((SectorCdAudio) attached);
         }
     }
 
@@ -96,4 +109,8 @@ public class SectorClaimToSectorCdAudio extends SectorClaimSystem.SectorClaimer
             _listener.endOfCdAudio();
     }
 
+    public boolean isIdleAt(int iSector) {
+        return _listener == null || !_blnInCdAudio;
+    }
+
 }
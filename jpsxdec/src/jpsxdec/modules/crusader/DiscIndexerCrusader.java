@@ -317,6 +317,11 @@ public class DiscIndexerCrusader extends DiscIndexer implements SectorClaimToSec
         }
     }
 
+    @Override
+    public boolean isIdleAt(int iSector) {
+        return _currentStream == null;
+    }
+
     @Override
     public void listPostProcessing(@Nonnull Collection<DiscItem> allItems) {
     }
@@ -79,8 +79,17 @@ public class SectorClaimToSectorCrusader extends SectorClaimSystem.SectorClaimer
             return;
 
         cs.claim(sector);
+        cs.attach(this, sector);
+    }
 
-        if (_listener != null && sectorIsInRange(cs.getSector().getSectorIndexFromStart())) {
+    public void sectorClaimed(@Nonnull SectorClaimSystem.ClaimedSector cs,
+                              @Nonnull ILocalizedLogger log)
+            throws SectorClaimSystem.ClaimerFailure
+    {
+        SectorCrusader sector = (SectorCrusader) cs.getAttachment(this);
+        if (sector != null && _listener != null &&
+            sectorIsInRange(cs.getSector().getSectorIndexFromStart()))
+        {
             try {
                 _listener.sectorRead(sector, log);
             } catch (LoggedFailure ex) {
@@ -101,4 +110,8 @@ public class SectorClaimToSectorCrusader extends SectorClaimSystem.SectorClaimer
         }
     }
 
+    public boolean isIdleAt(int iSector) {
+        return true;
+    }
+
 }
@@ -37,8 +37,8 @@
 
 package jpsxdec.modules.dredd;
 
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import jpsxdec.cdreaders.CdFileSectorReader;
@@ -59,6 +59,10 @@ public class DiscIndexerDredd extends DiscIndexer implements SectorClaimToDreddF
 
     private static class VidBuilder {
 
+        /** A frame starting more than this many sectors after the end of
+         * the video starts a new video. */
+        private static final int MAX_FRAME_GAP = 100;
+
         @Nonnull
         private final IndexSectorFrameNumber.Format.Builder _indexSectorFrameNumberBuilder;
         @Nonnull
@@ -75,7 +79,7 @@ public class DiscIndexerDredd extends DiscIndexer implements SectorClaimToDreddF
         public boolean addFrame(@Nonnull DemuxedDreddFrame frame) {
             if (frame.getWidth() != _strInfoBuilder.getWidth() ||
                 frame.getHeight() != _strInfoBuilder.getHeight() ||
-                frame.getStartSector() > _strInfoBuilder.getEndSector() + 100)
+                frame.getStartSector() > _strInfoBuilder.getEndSector() + MAX_FRAME_GAP)
             {
                 return false;
             }
@@ -84,6 +88,11 @@ public class DiscIndexerDredd extends DiscIndexer implements SectorClaimToDreddF
             return true;
         }
 
+        /** If a frame starting at or after the sector could not be added. */
+        public boolean cannotContinueAt(int iSector) {
+            return iSector > _strInfoBuilder.getEndSector() + MAX_FRAME_GAP;
+        }
+
         public @Nonnull DiscItemDreddVideoStream endOfMovie(@Nonnull CdFileSectorReader cd) {
             return new DiscItemDreddVideoStream(cd,
                     _strInfoBuilder.getStartSector(), _strInfoBuilder.getEndSector(),
@@ -95,7 +104,6 @@ public class DiscIndexerDredd extends DiscIndexer implements SectorClaimToDreddF
 
     @Nonnull
     private final ILocalizedLogger _errLog;
-    private final Collection<DiscItemDreddVideoStream> _completedVideos = new ArrayList<DiscItemDreddVideoStream>();
     @CheckForNull
     private VidBuilder _videoBuilder;
 
@@ -132,7 +140,6 @@ public class DiscIndexerDredd extends DiscIndexer implements SectorClaimToDreddF
             return;
 
         DiscItemDreddVideoStream video = _videoBuilder.endOfMovie(getCd());
-        _completedVideos.add(video);
         addDiscItem(video);
         _videoBuilder = null;
     }
@@ -141,10 +148,17 @@ public class DiscIndexerDredd extends DiscIndexer implements SectorClaimToDreddF
         videoBreak(log);
     }
 
+    @Override
+    public boolean isIdleAt(int iSector) {
+        return _videoBuilder == null || _videoBuilder.cannotContinueAt(iSector);
+    }
+
     @Override
     public void listPostProcessing(@Nonnull Collection<DiscItem> allItems) {
-        if (_completedVideos.size() > 0)
-            DiscIndexerStrVideo.audioSplit(_completedVideos, allItems);
+        List<DiscItemDreddVideoStream> videos =
+                DiscIndexerStrVideo.videosOfType(allItems, DiscItemDreddVideoStream.class);
+        if (videos.size() > 0)
+            DiscIndexerStrVideo.audioSplit(videos, allItems);
     }
 
     @Override
@@ -121,29 +121,6 @@ public class SectorClaimToDreddFrame extends SectorClaimSystem.SectorClaimer {
                            @Nonnull IOIterator<SectorClaimSystem.ClaimableSector> peekIt,
                            @Nonnull ILocalizedLogger log)
             throws IOException, SectorClaimSystem.ClaimerFailure
-    {
-        try {
-            beforeEofCheck(cs, peekIt, log);
-        } catch (LoggedFailure ex) {
-            throw new SectorClaimSystem.ClaimerFailure(ex);
-        }
-        // after processing the current sector, always check the EOF flag
-        // the only way to know a video ends is by the EOF marker
-        CdSectorXaSubHeader sh = cs.getSector().getSubHeader();
-        if (sh != null &&
-            sh.getSubMode().mask(CdSectorXaSubHeader.SubMode.MASK_EOF_MARKER) != 0)
-        {
-            if (_listener != null)
-                _listener.videoBreak(log);
-        }
-    }
-
-    /** Guts moved to this method so the caller can always check the EOF flag
-     * at the end of handling the current sector. */
-    private void beforeEofCheck(@Nonnull SectorClaimSystem.ClaimableSector cs,
-                                @Nonnull IOIterator<SectorClaimSystem.ClaimableSector> peekIt,
-                                @Nonnull ILocalizedLogger log)
-            throws IOException, LoggedFailure
     {
         // claimed? ignore
         if (cs.isClaimed())
@@ -159,11 +136,9 @@ public class SectorClaimToDreddFrame extends SectorClaimSystem.SectorClaimer {
                 cs.claim(dreddSector);
             }
 
-            // all sectors claimed? finally send the frame
+            // all sectors claimed? the frame will be sent when this sector is processed
             if (_claimedSectors.allClaimed()) {
-                if (_listener != null && sectorIsInRange(cs.getSector().getSectorIndexFromStart())) {
-                    _listener.frameComplete(_claimedSectors.getFrame(), log);
-                }
+                cs.attach(this, _claimedSectors.getFrame());
                 _claimedSectors = null;
             }
             return;
@@ -216,6 +191,31 @@ public class SectorClaimToDreddFrame extends SectorClaimSystem.SectorClaimer {
         // wait until all the frame sectors have been read to send frame to listener
     }
 
+    public void sectorClaimed(@Nonnull SectorClaimSystem.ClaimedSector cs,
+                              @Nonnull ILocalizedLogger log)
+            throws SectorClaimSystem.ClaimerFailure
+    {
+        DemuxedDreddFrame frame = (DemuxedDreddFrame) cs.getAttachment(this);
+        if (frame != null && _listener != null &&
+            sectorIsInRange(cs.getSector().getSectorIndexFromStart()))
+        {
+            try {
+                _listener.frameComplete(frame, log);
+            } catch (LoggedFailure ex) {
+                throw new SectorClaimSystem.ClaimerFailure(ex);
+            }
+        }
+        // after processing the current sector, always check the EOF flag
+        // the only way to know a video ends is by the EOF marker
+        CdSectorXaSubHeader sh = cs.getSector().getSubHeader();
+        if (sh != null &&
+            sh.getSubMode().mask(CdSectorXaSubHeader.SubMode.MASK_EOF_MARKER) != 0)
+        {
+            if (_listener != null)
+                _listener.videoBreak(log);
+        }
+    }
+
     public void endOfSectors(@Nonnull ILocalizedLogger log) {
         // the end of sectors should not have moved since the frame was built
         // so there should never be a need to flush an existing frame
@@ -225,4 +225,8 @@ public class SectorClaimToDreddFrame extends SectorClaimSystem.SectorClaimer {
             _listener.endOfSectors(log);
         
     }
+
+    public boolean isIdleAt(int iSector) {
+        return _claimedSectors == null && _nextDemuxer == null;
+    }
 }
@@ -54,6 +54,7 @@ import jpsxdec.i18n.exception.LocalizedDeserializationFail;
 import jpsxdec.i18n.log.ILocalizedLogger;
 import jpsxdec.indexing.DiscIndex;
 import jpsxdec.indexing.DiscIndexer;
+import jpsxdec.indexing.SectorRangeIndex;
 import jpsxdec.iso9660.DirectoryRecord;
 import jpsxdec.modules.IdentifiedSector;
 import jpsxdec.modules.SectorClaimSystem;
@@ -69,6 +70,9 @@ public class DiscIndexerISO9660 extends DiscIndexer implements SectorClaimToSect
     private final ArrayList<SectorISO9660VolumePrimaryDescriptor> _primaryDescriptors =
             new ArrayList<SectorISO9660VolumePrimaryDescriptor>();
     private final BitSet _sectorTypes = new BitSet();
+    /** {@link #_dirRecords} by sector number, built when the file system is. */
+    @CheckForNull
+    private SectorRangeIndex<SectorISO9660DirectoryRecords> _dirRecordsBySector;
 
     private static final int MODE2FORM1 = 0; // assume all sectors are this
     private static final int MODE2FORM2 = 1;
@@ -105,8 +109,23 @@ public class DiscIndexerISO9660 extends DiscIndexer implements SectorClaimToSect
     }
 
     public void isoSectorRead(CdSector cdSector, IdentifiedSector idSector) {
+        sectorTypeRead(cdSector.getSectorIndexFromStart(), cdSector.getType());
+
+        if (idSector instanceof SectorISO9660DirectoryRecords) {
+            SectorISO9660DirectoryRecords dirRectSect =
+                    (SectorISO9660DirectoryRecords) idSector;
+            _dirRecords.add(dirRectSect);
+        } else if (idSector instanceof SectorISO9660VolumePrimaryDescriptor) {
+            SectorISO9660VolumePrimaryDescriptor volDescriptSect =
+                    (SectorISO9660VolumePrimaryDescriptor) idSector;
+            _primaryDescriptors.add(volDescriptSect);
+        }
+    }
+
+    /** Notes the type of a sector that isn't part of the file system. */
+    public void sectorTypeRead(int iSector, @Nonnull CdSector.Type type) {
         int iSectorType;
-        switch (cdSector.getType()) {
+        switch (type) {
             case CD_AUDIO:
                 iSectorType = CD_AUDIO;
                 break;
@@ -127,16 +146,31 @@ public class DiscIndexerISO9660 extends DiscIndexer implements SectorClaimToSect
             default:
                 throw new RuntimeException();
         }
-        setSectorType(cdSector.getSectorIndexFromStart(), iSectorType);
+        setSectorType(iSector, iSectorType);
+    }
 
-        if (idSector instanceof SectorISO9660DirectoryRecords) {
-            SectorISO9660DirectoryRecords dirRectSect =
-                    (SectorISO9660DirectoryRecords) idSector;
-            _dirRecords.add(dirRectSect);
-        } else if (idSector instanceof SectorISO9660VolumePrimaryDescriptor) {
-            SectorISO9660VolumePrimaryDescriptor volDescriptSect =
-                    (SectorISO9660VolumePrimaryDescriptor) idSector;
-            _primaryDescriptors.add(volDescriptSect);
+    /** Takes everything another indexer collected from the given range of
+     * sectors, as if this indexer had seen those sectors itself.
+     * Ranges must be added in order. */
+    public void addSectorsFrom(@Nonnull DiscIndexerISO9660 other,
+                               int iStartSector, int iEndSectorInclusive)
+    {
+        int iEndBit = (iEndSectorInclusive+1) * 2;
+        for (int iBit = other._sectorTypes.nextSetBit(iStartSector * 2);
+             iBit >= 0 && iBit < iEndBit;
+             iBit = other._sectorTypes.nextSetBit(iBit + 1))
+        {
+            _sectorTypes.set(iBit);
+        }
+        for (SectorISO9660DirectoryRecords dirRecSect : other._dirRecords) {
+            int iSector = dirRecSect.getSectorNumber();
+            if (iSector >= iStartSector && iSector <= iEndSectorInclusive)
+                _dirRecords.add(dirRecSect);
+        }
+        for (SectorISO9660VolumePrimaryDescriptor priDesc : other._primaryDescriptors) {
+            int iSector = priDesc.getSectorNumber();
+            if (iSector >= iStartSector && iSector <= iEndSectorInclusive)
+                _primaryDescriptors.add(priDesc);
         }
     }
 
@@ -185,6 +219,12 @@ public class DiscIndexerISO9660 extends DiscIndexer implements SectorClaimToSect
                 _iSectorNumberDiff = iHeaderSector - cdSector.getSectorIndexFromStart();
         }
 
+        _dirRecordsBySector = new SectorRangeIndex<SectorISO9660DirectoryRecords>();
+        for (SectorISO9660DirectoryRecords dirRecSect : _dirRecords) {
+            int iSector = dirRecSect.getSectorNumber();
+            _dirRecordsBySector.add(iSector, iSector, dirRecSect);
+        }
+
         // recursively build the file system
         DirectoryRecord rootDirRec = priDesc.getVPD().root_directory_record;
         if ((rootDirRec.flags & DirectoryRecord.FileFlags.Directory) == 0) {
@@ -246,11 +286,7 @@ public class DiscIndexerISO9660 extends DiscIndexer implements SectorClaimToSect
     /** Try to find a {@link SectorISO9660DirectoryRecords} with the given
      * sector index among all the directory records collected. */
     private @CheckForNull SectorISO9660DirectoryRecords getDirRecSector(int iSector) {
-        for (SectorISO9660DirectoryRecords dirRec : _dirRecords) {
-            if (dirRec.getSectorNumber() == iSector)
-                return dirRec;
-        }
-        return null;
+        return _dirRecordsBySector.findFirstAt(iSector);
     }
 
     private void processDirectoryRecord_File(@Nonnull DirectoryRecord fileDirRec, @Nonnull File filePath) {
@@ -327,4 +363,10 @@ public class DiscIndexerISO9660 extends DiscIndexer implements SectorClaimToSect
     public void listPostProcessing(Collection<DiscItem> allItems) {
     }
 
+    @Override
+    public boolean isIdleAt(int iSector) {
+        // only collects sectors until the end
+        return true;
+    }
+
 }
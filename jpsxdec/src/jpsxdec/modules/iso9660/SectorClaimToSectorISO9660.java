@@ -56,7 +56,8 @@ public class SectorClaimToSectorISO9660 extends SectorClaimSystem.SectorClaimer
         void endOfSectors(@Nonnull ILocalizedLogger log);
     }
 
-    private static @CheckForNull IdentifiedSector id(@Nonnull CdSector sector) {
+    /** Identifies the sector as one of the ISO9660 sectors the listener wants. */
+    public static @CheckForNull IdentifiedSector identify(@Nonnull CdSector sector) {
         IdentifiedSector id;
         if ((id = new SectorISO9660VolumePrimaryDescriptor(sector)).getProbability() > 0) return id;
         if ((id = new SectorISO9660DirectoryRecords(sector)).getProbability() > 0) return id;
@@ -71,7 +72,7 @@ public class SectorClaimToSectorISO9660 extends SectorClaimSystem.SectorClaimer
     public SectorClaimToSectorISO9660(@Nonnull Listener listener) {
         _listener = listener;
     }
-    public void setListener(@Nonnull Listener listener) {
+    public void setListener(@CheckForNull Listener listener) {
         _listener = listener;
     }
 
@@ -80,21 +81,28 @@ public class SectorClaimToSectorISO9660 extends SectorClaimSystem.SectorClaimer
                            @Nonnull ILocalizedLogger log)
             throws IOException
     {
-        IdentifiedSector idSector;
-        if (cs.isClaimed()) {
-            idSector = null;
-        } else {
-            idSector = id(cs.getSector());
-            if (idSector != null)
-                cs.claim(idSector);
+        if (cs.isClaimed())
+            return;
+        IdentifiedSector idSector = identify(cs.getSector());
+        if (idSector != null) {
+            cs.claim(idSector);
+            cs.attach(this, idSector);
         }
+    }
 
+    public void sectorClaimed(@Nonnull SectorClaimSystem.ClaimedSector cs,
+                              @Nonnull ILocalizedLogger log)
+    {
         if (_listener != null && sectorIsInRange(cs.getSector().getSectorIndexFromStart()))
-            _listener.isoSectorRead(cs.getSector(), idSector);
+            _listener.isoSectorRead(cs.getSector(), (IdentifiedSector) cs.getAttachment(this));
     }
 
     public void endOfSectors(@Nonnull ILocalizedLogger log) {
         if (_listener != null)
             _listener.endOfSectors(log);
     }
+
+    public boolean isIdleAt(int iSector) {
+        return true;
+    }
 }
@@ -154,6 +154,11 @@ public class DiscIndexerPolicenauts extends DiscIndexer implements SectorClaimTo
         }
     }
 
+    @Override
+    public boolean isIdleAt(int iSector) {
+        return _currentVid == null && _dims == null;
+    }
+
     @Override
     public void listPostProcessing(@Nonnull Collection<DiscItem> allItems) {
     }
@@ -129,8 +129,7 @@ public class SectorClaimToPolicenauts extends SectorClaimSystem.SectorClaimer  {
         if (vmnkSector.getProbability() == 100) {
             checkCorruptionIfExistingKlbs(log);
             cs.claim(vmnkSector);
-            if (_listener != null)
-                _listener.videoStart(vmnkSector.getWidth(), vmnkSector.getHeight(), log);
+            cs.attach(this, vmnkSector);
         } else {
             SectorPolicenauts pnSector = null;
 
@@ -140,7 +139,6 @@ public class SectorClaimToPolicenauts extends SectorClaimSystem.SectorClaimer  {
                 // new KLBS, set things up
                 pnSector = klbsSector;
                 _currentKlbs = new KlbsSectorRange(klbsSector, log);
-                cs.claim(klbsSector);
             } else if (_currentKlbs != null) {
                 pnSector = _currentKlbs.readSector(cs.getSector(), log);
                 // all done?
@@ -148,23 +146,37 @@ public class SectorClaimToPolicenauts extends SectorClaimSystem.SectorClaimer  {
                     _currentKlbs = null;
             }
 
-            if (pnSector != null)
+            if (pnSector != null) {
                 cs.claim(pnSector);
+                cs.attach(this, pnSector);
+            }
+        }
+    }
 
-            // notify listeners
-            if (_listener != null && pnSector != null) {
-                for (SPacketData sPacketData : pnSector) {
-
-                    // Only send packets that are fully in the active sector range
-                    // (in practice there should never be a packet crossing the border)
-                    if (sectorIsInRange(sPacketData.getStartSector()) &&
-                        sectorIsInRange(sPacketData.getEndSectorInclusive()))
-                    {
-                        try {
-                            _listener.feedPacket(sPacketData, log);
-                        } catch (LoggedFailure ex) {
-                            throw new SectorClaimSystem.ClaimerFailure(ex);
-                        }
+    @Override
+    public void sectorClaimed(@Nonnull SectorClaimSystem.ClaimedSector cs,
+                              @Nonnull ILocalizedLogger log)
+            throws SectorClaimSystem.ClaimerFailure
+    {
+        if (_listener == null)
+            return;
+
+        Object attached = cs.getAttachment(this);
+        if (attached instanceof SectorPN_VMNK) {
+            SectorPN_VMNK vmnkSector = (SectorPN_VMNK) attached;
+            _listener.videoStart(vmnkSector.getWidth(), vmnkSector.getHeight(), log);
+        } else if (attached instanceof SectorPolicenauts) {
+            for (SPacketData sPacketData : (SectorPolicenauts) attached) {
+
+                // Only send packets that are fully in the active sector range
+                // (in practice there should never be a packet crossing the border)
+                if (sectorIsInRange(sPacketData.getStartSector()) &&
+                    sectorIsInRange(sPacketData.getEndSectorInclusive()))
+                {
+                    try {
+                        _listener.feedPacket(sPacketData, log);
+                    } catch (LoggedFailure ex) {
+                        throw new SectorClaimSystem.ClaimerFailure(ex);
                     }
                 }
             }
@@ -185,4 +197,9 @@ public class SectorClaimToPolicenauts extends SectorClaimSystem.SectorClaimer  {
             _listener.endOfSectors(log);
     }
 
+    @Override
+    public boolean isIdleAt(int iSector) {
+        return _currentKlbs == null;
+    }
+
 }
@@ -72,6 +72,11 @@ public class DiscIndexerRoadRash extends DiscIndexer implements SectorClaimToRoa
         return null;
     }
 
+    @Override
+    public boolean isIdleAt(int iSector) {
+        return _movieBuilder == null;
+    }
+
     @Override
     public void listPostProcessing(@Nonnull Collection<DiscItem> allItems) {
     }
@@ -72,6 +72,21 @@ public class SectorClaimToRoadRash extends SectorClaimSystem.SectorClaimer {
         _listener = listener;
     }
 
+    /** What happened in a sector, attached to it while identifying. */
+    private static class SectorEvents {
+        /** If the listener should be told an existing video ended. */
+        public final boolean blnEndVideo;
+        @CheckForNull
+        public final SectorRoadRash rrSector;
+
+        public SectorEvents(boolean blnEndVideo, @CheckForNull SectorRoadRash rrSector) {
+            this.blnEndVideo = blnEndVideo;
+            this.rrSector = rrSector;
+        }
+    }
+
+    private static final SectorEvents END_VIDEO = new SectorEvents(true, null);
+
     @CheckForNull
     private RoadRashStreamReader _sectorStream;
 
@@ -83,13 +98,17 @@ public class SectorClaimToRoadRash extends SectorClaimSystem.SectorClaimer {
         CdSector cdSector = cs.getSector();
         if (cs.getClaimer() != null || cdSector.isCdAudioSector()) {
             // close any existing stream
-            endVideo(log);
+            if (_sectorStream != null) {
+                _sectorStream = null;
+                cs.attach(this, END_VIDEO);
+            }
             return;
         }
 
         try {
 
             SectorRoadRash rrSector = null;
+            boolean blnNewVideo = false;
 
             if (_sectorStream == null) {
                 // No current movie
@@ -108,8 +127,7 @@ public class SectorClaimToRoadRash extends SectorClaimSystem.SectorClaimer {
                         _sectorStream = new RoadRashStreamReader();
                         rrSector = _sectorStream.readSectorPackets(cdSector, RoadRashPacket.VLC0.SIZEOF, vlc);
                         // tell listener to end any existing videos
-                        if (_listener != null)
-                            _listener.endVideo(log);
+                        blnNewVideo = true;
                     }
                 }
 
@@ -119,40 +137,49 @@ public class SectorClaimToRoadRash extends SectorClaimSystem.SectorClaimer {
             }
 
             if (rrSector != null) {
-
                 cs.claim(rrSector);
-
-                for (RoadRashPacketSectors finishedPacket : rrSector) {
-                    
-
-                    if (_listener != null) {
-                        // Only send packets that are fully in the active sector range
-                        // (in practice there should never be a packet crossing the border)
-                        if (sectorIsInRange(finishedPacket.iStartSector) &&
-                            sectorIsInRange(finishedPacket.iEndSector))
-                        {
-                            try {
-                                _listener.feedPacket(finishedPacket, log);
-                            } catch (LoggedFailure ex) {
-                                throw new SectorClaimSystem.ClaimerFailure(ex);
-                            }
-                        }
-                    }
-
-                }
+                cs.attach(this, new SectorEvents(blnNewVideo, rrSector));
+            } else if (blnNewVideo) {
+                cs.attach(this, END_VIDEO);
             }
 
-            if (_sectorStream != null && _sectorStream.isEnd()) {
+            if (_sectorStream != null && _sectorStream.isEnd())
                 _sectorStream = null;
-                endVideo(log);
-            }
         } catch (BinaryDataNotRecognized ex) {
             log.log(Level.SEVERE, I.ROADRASH_DATA_CORRUPTION(), ex);
             _sectorStream = null;
         }
     }
 
-    private void endVideo(@Nonnull ILocalizedLogger log) {
+    public void sectorClaimed(@Nonnull SectorClaimSystem.ClaimedSector cs,
+                              @Nonnull ILocalizedLogger log)
+            throws SectorClaimSystem.ClaimerFailure
+    {
+        SectorEvents events = (SectorEvents) cs.getAttachment(this);
+        if (events == null || _listener == null)
+            return;
+
+        if (events.blnEndVideo)
+            _listener.endVideo(log);
+
+        if (events.rrSector != null) {
+            for (RoadRashPacketSectors finishedPacket : events.rrSector) {
+                // Only send packets that are fully in the active sector range
+                // (in practice there should never be a packet crossing the border)
+                if (sectorIsInRange(finishedPacket.iStartSector) &&
+                    sectorIsInRange(finishedPacket.iEndSector))
+                {
+                    try {
+                        _listener.feedPacket(finishedPacket, log);
+                    } catch (LoggedFailure ex) {
+                        throw new SectorClaimSystem.ClaimerFailure(ex);
+                    }
+                }
+            }
+        }
+    }
+
+    public void endOfSectors(@Nonnull ILocalizedLogger log) {
         if (_sectorStream != null) {
             _sectorStream = null;
             if (_listener != null)
@@ -160,7 +187,7 @@ public class SectorClaimToRoadRash extends SectorClaimSystem.SectorClaimer {
         }
     }
 
-    public void endOfSectors(@Nonnull ILocalizedLogger log) {
-        endVideo(log);
+    public boolean isIdleAt(int iSector) {
+        return _sectorStream == null;
     }
 }
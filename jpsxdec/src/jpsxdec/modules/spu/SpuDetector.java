@@ -0,0 +1,240 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.modules.spu;
+
+import javax.annotation.Nonnull;
+
+/** Finds runs of SPU ADPCM sound units in the data of consecutive sectors.
+ * <p>
+ * A sound unit is 16 bytes: a filter/range byte, a flags byte, then
+ * 14 bytes of samples. Sound units are only searched for every 4 bytes,
+ * so there are 4 possible alignments (phases) for units to be in. Each
+ * phase is tracked at the same time in a few bits and primitive arrays,
+ * instead of an object per phase.
+ * <p>
+ * The first 2 bytes of every 4 are checked against a table, so validating
+ * a possible sound unit header is a single lookup.
+ * <p>
+ * From http://problemkaputt.de/psx-spx.htm#soundprocessingunitspu
+ * <pre>
+ * Flag Bits (in 2nd byte of ADPCM Header)
+ *
+ * 0 Loop End (0=No change, 1=Set ENDX flag and Jump to [1F801C0Eh+N*10h])
+ * 1 Loop Repeat (0=Force Release and set ADSR Level to Zero; only if Bit0=1)
+ * 2 Loop Start (0=No change, 1=Copy current address to [1F801C0Eh+N*10h])
+ * 3-7 Unknown (usually 0)
+ *
+ * Possible combinations for Bit0-1 are:
+ *
+ * Code 0 = Normal (continue at next 16-byte block)
+ * Code 1 = End+Mute (jump to Loop-address, set ENDX flag, Release, Env=0000h)
+ * Code 2 = Ignored (same as Code 0)
+ * Code 3 = End+Repeat (jump to Loop-address, set ENDX flag)
+ * </pre>
+ * A run starts with a non-zero filter/range, and ends with the sound unit
+ * with the Loop End flag. Runs shorter than {@link #MIN_SOUND_UNIT_COUNT}
+ * or that are nothing but silence are ignored.
+ * <p>
+ * The samples of real sound units hardly ever look like headers, so while
+ * a real run is going the other phases rarely get far. Regular data,
+ * like image pixels, can look like sound units at every alignment at once,
+ * so runs that spent most of their non-zero words alongside runs in other
+ * phases are ignored too. Silence is valid at every phase, so it isn't
+ * counted against a run.
+ */
+public class SpuDetector {
+
+    public interface Listener {
+        /** @param iEndOffset offset of the last byte of the run in the end sector. */
+        void runFound(int iStartSector, int iStartOffset,
+                      int iEndSector, int iEndOffset,
+                      int iSoundUnitCount);
+    }
+
+    public static final int MIN_SOUND_UNIT_COUNT = 16;
+
+    /** Header is a valid sound unit header. */
+    private static final int VALID = 1;
+    /** Header is valid and has the Loop End flag. */
+    private static final int END = 2;
+    /** Header is valid, not the end, and has a non-zero filter/range. */
+    private static final int CAN_START = 4;
+
+    /** Checks for the first 2 bytes of a possible sound unit, as a
+     * big-endian 16-bit index. */
+    private static final byte[] HEADER_CHECKS = new byte[65536];
+    static {
+        for (int iFilterRange = 0; iFilterRange < 256; iFilterRange++) {
+            int iFilter = iFilterRange >> 4;
+            int iRange = iFilterRange & 0xf;
+            for (int iFlags = 0; iFlags < 256; iFlags++) {
+                int iCheck = 0;
+                if (iFilter <= 4 && iRange <= 12 && iFlags <= 7) {
+                    iCheck = VALID;
+                    if ((iFlags & 1) != 0)
+                        iCheck |= END;
+                    else if (iFilterRange != 0)
+                        iCheck |= CAN_START;
+                }
+                HEADER_CHECKS[(iFilterRange << 8) | iFlags] = (byte)iCheck;
+            }
+        }
+    }
+
+    private static final int PHASES = 4;
+    private static final int SOUND_UNIT_WORDS = 16 / 4;
+
+    @Nonnull
+    private final Listener _listener;
+
+    /** Count of 4 byte words seen since the last reset. The phase whose
+     * sound unit header is the current word is the lower 2 bits. */
+    private int _iWord = 0;
+
+    // bit masks of the phases
+    private int _iInRun = 0;
+    private int _iLastSoundUnit = 0;
+    private int _iOnlyZeroes = 0;
+
+    private final int[] _aiStartSector = new int[PHASES];
+    private final int[] _aiStartOffset = new int[PHASES];
+    private final int[] _aiEndSector = new int[PHASES];
+    private final int[] _aiEndOffset = new int[PHASES];
+    private final int[] _aiSoundUnitCount = new int[PHASES];
+    /** Non-zero words seen while the phase was in a run along with another phase. */
+    private final int[] _aiOverlapWords = new int[PHASES];
+
+    public SpuDetector(@Nonnull Listener listener) {
+        _listener = listener;
+    }
+
+    /** Searches the data of the next sector.
+     * @param iSize must be a multiple of 4. */
+    public void feed(@Nonnull byte[] abData, int iSize, int iSector) {
+        int iWord = _iWord;
+        for (int iOfs = 0; iOfs < iSize; iOfs += 4, iWord++) {
+            int iCheck = HEADER_CHECKS[((abData[iOfs] & 0xff) << 8) | (abData[iOfs+1] & 0xff)];
+            int iPhase = iWord & (PHASES - 1);
+            int iPhaseBit = 1 << iPhase;
+
+            if (_iInRun == 0) {
+                // the usual case: only need to check for a new run
+                if ((iCheck & CAN_START) != 0)
+                    startRun(iPhase, iSector, iOfs, (abData[iOfs+2] | abData[iOfs+3]) == 0);
+                continue;
+            }
+
+            // this word is the sound unit header of this phase
+            if ((_iInRun & iPhaseBit) != 0) {
+                if ((iCheck & VALID) == 0)
+                    _iInRun &= ~iPhaseBit;
+                else if ((iCheck & END) != 0)
+                    _iLastSoundUnit |= iPhaseBit;
+            } else if ((iCheck & CAN_START) != 0) {
+                startRun(iPhase, iSector, iOfs, (abData[iOfs+2] | abData[iOfs+3]) == 0);
+            }
+
+            // and sample data of the other phases
+            boolean blnZero = (abData[iOfs] | abData[iOfs+1] | abData[iOfs+2] | abData[iOfs+3]) == 0;
+            if (!blnZero)
+                _iOnlyZeroes &= iPhaseBit;
+
+            // Zeroes are valid sound units at every phase, so silence
+            // doesn't count, or a false start just before the silence in a
+            // real run would follow it to the end.
+            if (!blnZero && (_iInRun & (_iInRun - 1)) != 0) {
+                // more than 1 phase in a run
+                for (int i = 0; i < PHASES; i++) {
+                    if ((_iInRun & (1 << i)) != 0)
+                        _aiOverlapWords[i]++;
+                }
+            }
+
+            // and the last word of the sound unit of the next phase
+            int iEndPhase = (iPhase + 1) & (PHASES - 1);
+            int iEndBit = 1 << iEndPhase;
+            if ((_iInRun & iEndBit) != 0) {
+                _aiEndSector[iEndPhase] = iSector;
+                _aiEndOffset[iEndPhase] = iOfs + 3;
+                _aiSoundUnitCount[iEndPhase]++;
+                if ((_iLastSoundUnit & iEndBit) != 0)
+                    endRun(iEndPhase);
+            }
+        }
+        _iWord = iWord;
+    }
+
+    private void startRun(int iPhase, int iSector, int iOffset, boolean blnZeroes) {
+        int iPhaseBit = 1 << iPhase;
+        _iInRun |= iPhaseBit;
+        _iLastSoundUnit &= ~iPhaseBit;
+        if (blnZeroes)
+            _iOnlyZeroes |= iPhaseBit;
+        else
+            _iOnlyZeroes &= ~iPhaseBit;
+        _aiStartSector[iPhase] = iSector;
+        _aiStartOffset[iPhase] = iOffset;
+        _aiSoundUnitCount[iPhase] = 0;
+        _aiOverlapWords[iPhase] = 0;
+    }
+
+    private void endRun(int iPhase) {
+        int iPhaseBit = 1 << iPhase;
+        _iInRun &= ~iPhaseBit;
+        int iSoundUnitCount = _aiSoundUnitCount[iPhase];
+        if (iSoundUnitCount >= MIN_SOUND_UNIT_COUNT &&
+            (_iOnlyZeroes & iPhaseBit) == 0 &&
+            _aiOverlapWords[iPhase] < iSoundUnitCount * (SOUND_UNIT_WORDS / 2))
+        {
+            _listener.runFound(_aiStartSector[iPhase], _aiStartOffset[iPhase],
+                               _aiEndSector[iPhase], _aiEndOffset[iPhase],
+                               _aiSoundUnitCount[iPhase]);
+        }
+    }
+
+    /** Drops any runs in progress, for when the data is no longer contiguous. */
+    public void reset() {
+        _iInRun = 0;
+        _iWord = 0;
+    }
+
+    /** If no run is in progress. */
+    public boolean isIdle() {
+        return _iInRun == 0;
+    }
+}
@@ -281,8 +281,9 @@ public class SpuSaverBuilder extends DiscItemSaverBuilder {
         tfb.newRow();
 
         tfb.addCell(I.CMD_AUDIO_VOL()).addCell(I.CMD_AUDIO_VOL_HELP(100));
+        tfb.newRow();
 
-        // TODO add sample rate
+        tfb.addCell(I.CMD_SPU_SAMPLERATE()).addCell(I.CMD_SPU_SAMPLERATE_HELP());
 
         tfb.write(fbs.getUnderlyingStream());
     }
@@ -316,7 +317,14 @@ public class SpuSaverBuilder extends DiscItemSaverBuilder {
         }
 
         if (sampleRate.value != null) {
-            // TODO
+            try {
+                int iSampleRate = Integer.parseInt(sampleRate.value);
+                if (iSampleRate <= 0)
+                    throw new NumberFormatException();
+                setSampleRate(iSampleRate);
+            } catch (NumberFormatException ex) {
+                fbs.printlnWarn(I.CMD_IGNORING_INVALID_VALUE_FOR_CMD(sampleRate.value, "-samplerate"));
+            }
         }
     }
     public void printSelectedOptions(@Nonnull ILocalizedLogger log) {
@@ -326,6 +334,7 @@ public class SpuSaverBuilder extends DiscItemSaverBuilder {
             log.log(Level.INFO, I.CMD_VOLUME_PERCENT(_dblVolume));
             log.log(Level.INFO, I.CMD_AUDIO_FORMAT(jFmt.getCmdId()));
         }
+        log.log(Level.INFO, I.CMD_SAMPLE_RATE(getSampleRate()));
         log.log(Level.INFO, I.CMD_FILENAME(getFileRelativePath()));
     }
 
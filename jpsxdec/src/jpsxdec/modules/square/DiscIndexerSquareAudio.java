@@ -158,6 +158,12 @@ public class DiscIndexerSquareAudio extends DiscIndexer
     }
 
 
+    @Override
+    public boolean isIdleAt(int iSector) {
+        // any later pair may continue the audio stream
+        return _sas2sasp.isIdle() && _audBldr == null;
+    }
+
     @Override
     public void listPostProcessing(Collection<DiscItem> allItems) {
     }
@@ -86,7 +86,17 @@ public class SectorClaimToSquareAudioSector extends SectorClaimSystem.SectorClai
         if (audSector == null)
             return;
         cs.claim(audSector);
-        if (_listener != null && sectorIsInRange(cs.getSector().getSectorIndexFromStart())) {
+        cs.attach(this, audSector);
+    }
+
+    public void sectorClaimed(@Nonnull SectorClaimSystem.ClaimedSector cs,
+                              @Nonnull ILocalizedLogger log)
+            throws SectorClaimSystem.ClaimerFailure
+    {
+        ISquareAudioSector audSector = (ISquareAudioSector) cs.getAttachment(this);
+        if (audSector != null && _listener != null &&
+            sectorIsInRange(cs.getSector().getSectorIndexFromStart()))
+        {
             try {
                 _listener.sectorRead(audSector, log);
             } catch (LoggedFailure ex) {
@@ -107,4 +117,8 @@ public class SectorClaimToSquareAudioSector extends SectorClaimSystem.SectorClai
         }
     }
 
+    public boolean isIdleAt(int iSector) {
+        return true;
+    }
+
 }
@@ -132,4 +132,9 @@ public class SquareAudioSectorToSquareAudioSectorPair implements SectorClaimToSq
         _leftAudioSector = null;
     }
 
+    /** If not waiting on the right sector of a pair. */
+    public boolean isIdle() {
+        return _leftAudioSector == null;
+    }
+
 }
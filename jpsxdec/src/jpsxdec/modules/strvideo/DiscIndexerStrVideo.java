@@ -66,6 +66,10 @@ public class DiscIndexerStrVideo extends DiscIndexer implements DemuxedFrameWith
     /** Builds a single stream. */
     private static class VidBuilder {
 
+        /** A frame starting more than this many sectors after the end of
+         * the video starts a new video. */
+        private static final int MAX_FRAME_GAP = 100;
+
         @Nonnull
         private final IndexSectorFrameNumber.Format.Builder _indexSectorFrameNumberBuilder;
         @Nonnull
@@ -90,7 +94,7 @@ public class DiscIndexerStrVideo extends DiscIndexer implements DemuxedFrameWith
         public boolean addFrame(@Nonnull DemuxedFrameWithNumberAndDims frame) {
             if (frame.getWidth() != _vidInfoBuilder.getWidth() ||
                 frame.getHeight() != _vidInfoBuilder.getHeight() ||
-                frame.getStartSector() > _vidInfoBuilder.getEndSector() + 100 ||
+                frame.getStartSector() > _vidInfoBuilder.getEndSector() + MAX_FRAME_GAP ||
                 frame.getHeaderFrameNumber() < _iLastFrameNumber ||
                 frame.getHeaderFrameNumber() > _iLastFrameNumber + 1000) // **
             {
@@ -108,6 +112,11 @@ public class DiscIndexerStrVideo extends DiscIndexer implements DemuxedFrameWith
             return true;
         }
 
+        /** If a frame starting at or after the sector could not be added. */
+        public boolean cannotContinueAt(int iSector) {
+            return iSector > _vidInfoBuilder.getEndSector() + MAX_FRAME_GAP;
+        }
+
         public @Nonnull DiscItemSectorBasedVideoStream endOfMovie(@Nonnull CdFileSectorReader cd) {
             return new DiscItemStrVideoStream(cd,
                     _vidInfoBuilder.getStartSector(), _vidInfoBuilder.getEndSector(),
@@ -122,7 +131,6 @@ public class DiscIndexerStrVideo extends DiscIndexer implements DemuxedFrameWith
 
     @Nonnull
     private final ILocalizedLogger _errLog;
-    private final Collection<DiscItemSectorBasedVideoStream> _completedVideos = new ArrayList<DiscItemSectorBasedVideoStream>();
     private final StrVideoSectorToDemuxedStrFrame _videoDemuxer = new StrVideoSectorToDemuxedStrFrame(this);
     @CheckForNull
     private VidBuilder _videoBuilder;
@@ -157,7 +165,6 @@ public class DiscIndexerStrVideo extends DiscIndexer implements DemuxedFrameWith
             return;
 
         DiscItemSectorBasedVideoStream video = _videoBuilder.endOfMovie(getCd());
-        _completedVideos.add(video);
         addDiscItem(video);
         _videoBuilder = null;
     }
@@ -165,11 +172,30 @@ public class DiscIndexerStrVideo extends DiscIndexer implements DemuxedFrameWith
         endOfVideo(log);
     }
 
+    @Override
+    public boolean isIdleAt(int iSector) {
+        return _videoDemuxer.isIdle() &&
+               (_videoBuilder == null || _videoBuilder.cannotContinueAt(iSector));
+    }
+
 
     @Override
     public void listPostProcessing(@Nonnull Collection<DiscItem> allItems) {
-        if (_completedVideos.size() > 0)
-            audioSplit(_completedVideos, allItems);
+        List<DiscItemStrVideoStream> videos = videosOfType(allItems, DiscItemStrVideoStream.class);
+        if (videos.size() > 0)
+            audioSplit(videos, allItems);
+    }
+
+    /** Pulls the videos of a type from the list of items, in the order they were added. */
+    public static @Nonnull <T extends DiscItemSectorBasedVideoStream> List<T> videosOfType(
+            @Nonnull Collection<DiscItem> allItems, @Nonnull Class<T> videoType)
+    {
+        List<T> videos = new ArrayList<T>();
+        for (DiscItem item : allItems) {
+            if (videoType.isInstance(item))
+                videos.add(videoType.cast(item));
+        }
+        return videos;
     }
 
     // TODO probably should move this to a shared place
@@ -78,7 +78,15 @@ public class SectorClaimToStrVideoSector extends SectorClaimSystem.SectorClaimer
         if (cs.isClaimed())
             return;
         ISelfDemuxingVideoSector vidSector = VideoSectorIdentifier.idAndClaim(cs);
+        if (vidSector != null)
+            cs.attach(this, vidSector);
+    }
 
+    public void sectorClaimed(@Nonnull SectorClaimSystem.ClaimedSector cs,
+                              @Nonnull ILocalizedLogger log)
+            throws SectorClaimSystem.ClaimerFailure
+    {
+        ISelfDemuxingVideoSector vidSector = (ISelfDemuxingVideoSector) cs.getAttachment(this);
         if (vidSector != null && _listener != null && 
             sectorIsInRange(cs.getSector().getSectorIndexFromStart()))
         {
@@ -101,4 +109,8 @@ public class SectorClaimToStrVideoSector extends SectorClaimSystem.SectorClaimer
             }
         }
     }
+
+    public boolean isIdleAt(int iSector) {
+        return true;
+    }
 }
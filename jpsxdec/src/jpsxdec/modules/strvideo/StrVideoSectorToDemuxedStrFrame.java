@@ -104,5 +104,10 @@ public class StrVideoSectorToDemuxedStrFrame implements SectorClaimToStrVideoSec
             _listener.endOfSectors(log);
     }
 
+    /** If there is no frame in the middle of being demuxed. */
+    public boolean isIdle() {
+        return _currentFrame == null;
+    }
+
 }
 
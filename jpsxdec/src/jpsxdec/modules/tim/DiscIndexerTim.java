@@ -82,15 +82,62 @@ public class DiscIndexerTim extends DiscIndexer implements SectorClaimToUnidenti
     @CheckForNull
     private DemuxPushInputStream<CdSectorDemuxPiece> _stream;
 
+    /** Copy of the data in {@link #_stream} that hasn't been read yet,
+     * spanning the run of unidentified sectors. Scanning this directly
+     * is much faster than probing the stream at every offset, so the
+     * stream is only used to check the few possible Tims it finds. */
+    @Nonnull
+    private byte[] _abWindow = new byte[CdSector.SECTOR_USER_DATA_SIZE_MODE2FORM2 * 4];
+    /** Position in {@link #_abWindow} of the stream read position. */
+    private int _iWindowPos;
+    /** End of the data in {@link #_abWindow}. */
+    private int _iWindowEnd;
+
     public void feedSector(CdSector sector) {
         CdSectorDemuxPiece piece = new CdSectorDemuxPiece(sector);
-        if (_stream == null)
+        if (_stream == null) {
             _stream = new DemuxPushInputStream<CdSectorDemuxPiece>(piece);
-        else
+            _iWindowPos = _iWindowEnd = 0;
+        } else {
             _stream.addPiece(piece);
+        }
+        appendToWindow(piece);
         findTims();
     }
 
+    private void appendToWindow(@Nonnull CdSectorDemuxPiece piece) {
+        int iSize = piece.getDemuxPieceSize();
+        if (_iWindowEnd + iSize > _abWindow.length) {
+            // drop what has already been read, and grow if still needed
+            int iUnread = _iWindowEnd - _iWindowPos;
+            byte[] abDest = _abWindow;
+            if (iUnread + iSize > _abWindow.length)
+                abDest = new byte[Math.max(_abWindow.length * 2, iUnread + iSize)];
+            System.arraycopy(_abWindow, _iWindowPos, abDest, 0, iUnread);
+            _abWindow = abDest;
+            _iWindowPos = 0;
+            _iWindowEnd = iUnread;
+        }
+        piece.copyDemuxPieceData(_abWindow, _iWindowEnd);
+        _iWindowEnd += iSize;
+    }
+
+    /** Skips the stream past every 4 byte word that can't be the start of a
+     * Tim, stopping at the first one that might be, or when there are no
+     * longer more than {@code iMinRemaining} bytes after the word. */
+    private void skipToPossibleTim(int iMinRemaining) {
+        int i = Tim.findTimStart(_abWindow, _iWindowPos, _iWindowEnd - iMinRemaining);
+        if (i == _iWindowPos)
+            return;
+        try {
+            IO.skip(_stream, i - _iWindowPos);
+        } catch (IOException ex) {
+            // never skips more than is available
+            throw new RuntimeException(ex);
+        }
+        _iWindowPos = i;
+    }
+
     public void endOfUnidentified() {
         exhaustStream();
     }
@@ -101,6 +148,9 @@ public class DiscIndexerTim extends DiscIndexer implements SectorClaimToUnidenti
         // read loop
         while (_stream.available() > Tim.MINIMUM_TIM_SIZE) {
             // ^ no sense looking for Tims if there isn't enough left to contain one
+            skipToPossibleTim(Tim.MINIMUM_TIM_SIZE + 1);
+            if (_stream.available() <= Tim.MINIMUM_TIM_SIZE)
+                break;
             _stream.mark(Integer.MAX_VALUE);
             try {
                 TimInfo ti = Tim.isTim(_stream);
@@ -133,6 +183,7 @@ public class DiscIndexerTim extends DiscIndexer implements SectorClaimToUnidenti
                 // should not happen
                 throw new RuntimeException(ex);
             }
+            _iWindowPos += 4;
         }
     }
 
@@ -144,6 +195,10 @@ public class DiscIndexerTim extends DiscIndexer implements SectorClaimToUnidenti
         while (_stream.available() > 2) {
             // ^ if the first 2 bytes of a Tim are found at the very end of the stream,
             //   it's stilly to assume we were in the middle of a possible Tim
+            // only skip words that have all 8 bytes to check
+            skipToPossibleTim(8 - 1);
+            if (_stream.available() <= 2)
+                break;
             _stream.mark(Integer.MAX_VALUE);
             try {
                 TimInfo ti = Tim.isTim(_stream);
@@ -170,6 +225,7 @@ public class DiscIndexerTim extends DiscIndexer implements SectorClaimToUnidenti
                 // should not happen
                 throw new RuntimeException(ex);
             }
+            _iWindowPos += 4;
         }
         _stream = null;
     }
@@ -183,6 +239,22 @@ public class DiscIndexerTim extends DiscIndexer implements SectorClaimToUnidenti
                 tim.iPixelWidth, tim.iPixelHeight));
     }
 
+    /** Idle if there is no chance of finding a Tim in what is left of the
+     * stream. Since the stream is only searched every 4 bytes,
+     * that means none of the remaining 4 byte words are the Tim tag. */
+    @Override
+    public boolean isIdleAt(int iSector) {
+        if (_stream == null)
+            return true;
+        int i = _iWindowPos;
+        for (; i + 4 <= _iWindowEnd; i += 4) {
+            if (IO.readSInt32LE(_abWindow, i) == Tim.START_MAGIC32LE)
+                return false;
+        }
+        // a partial word could still be the start of a Tim
+        return i == _iWindowEnd;
+    }
+
     @Override
     public void listPostProcessing(@Nonnull Collection<DiscItem> allItems) {
     }
@@ -93,7 +93,7 @@ public class PacketBasedVideoSaverBuilder extends VideoSaverBuilder {
     // .........................................................................
 
     public boolean getSavingAudio_enabled() {
-        return hasAudio() && getVideoFormat().isAvi() && getSaveStartFrame() == null;
+        return hasAudio() && getVideoFormat().isSingleFile() && getSaveStartFrame() == null;
     }
 
     public boolean hasAudio() {
@@ -73,7 +73,7 @@ public class AutowireVDP {
 
     public void autowire() throws IllegalStateException {
         _bitstreamListener = chooseOnlyOne(_bitstream2File, _bitstream2Mdec);
-        _mdecListener = chooseOnlyOne(_mdec2Decoded, _mdec2File, _mdec2Jpeg, _mdec2MjpegAvi);
+        _mdecListener = chooseOnlyOne(_mdec2Decoded, _mdec2DecodedParallel, _mdec2File, _mdec2Jpeg, _mdec2MjpegAvi);
 
         if (_frame2Bitstream != null) {
             _frame2Bitstream.setListener(_bitstreamListener);
@@ -95,12 +95,16 @@ public class AutowireVDP {
             _bitstream2File.setGenFileListener(_generatedFileListener);
         if (_decoded2JavaImage != null)
             _decoded2JavaImage.setGenFileListener(_generatedFileListener);
+        if (_decoded2ImageFiles != null)
+            _decoded2ImageFiles.setGenFileListener(_generatedFileListener);
         if (_decoded2JYuvAvi != null)
             _decoded2JYuvAvi.setGenFileListener(_generatedFileListener);
         if (_decoded2RgbAvi != null)
             _decoded2RgbAvi.setGenFileListener(_generatedFileListener);
         if (_decoded2YuvAvi != null)
             _decoded2YuvAvi.setGenFileListener(_generatedFileListener);
+        if (_decoded2Y4m != null)
+            _decoded2Y4m.setGenFileListener(_generatedFileListener);
         if (_mdec2File != null)
             _mdec2File.setGenFileListener(_generatedFileListener);
         if (_mdec2Jpeg != null)
@@ -110,7 +114,7 @@ public class AutowireVDP {
     }
 
     private void wireMdecIntoBitstream() {
-        VDP.IMdecListener mdecListener = chooseOnlyOne(_mdec2Decoded, _mdec2File, _mdec2Jpeg, _mdec2MjpegAvi);
+        VDP.IMdecListener mdecListener = chooseOnlyOne(_mdec2Decoded, _mdec2DecodedParallel, _mdec2File, _mdec2Jpeg, _mdec2MjpegAvi);
         if (_bitstream2Mdec == null)
             return;
         if (mdecListener != null)
@@ -119,11 +123,13 @@ public class AutowireVDP {
 
     private void wireDecodedIntoMdec() {
         if (_decodedListener == null)
-            _decodedListener = chooseOnlyOne(_decoded2JYuvAvi, _decoded2JavaImage, _decoded2RgbAvi, _decoded2YuvAvi);
+            _decodedListener = chooseOnlyOne(_decoded2JYuvAvi, _decoded2JavaImage, _decoded2ImageFiles, _decoded2RgbAvi, _decoded2YuvAvi, _decoded2Y4m);
         if (_decodedListener == null)
             return;
         if (_mdec2Decoded != null)
             _mdec2Decoded.setDecoded(_decodedListener);
+        if (_mdec2DecodedParallel != null)
+            _mdec2DecodedParallel.setDecoded(_decodedListener);
     }
 
     private static @CheckForNull <T> T chooseOnlyOne(T... elements) {
@@ -234,6 +240,20 @@ public class AutowireVDP {
         _decoded2JavaImage = decoded2JavaImage;
     }
 
+    @CheckForNull
+    private VDP.Decoded2ImageFiles _decoded2ImageFiles;
+    public void setMap(@Nonnull VDP.Decoded2ImageFiles decoded2ImageFiles) {
+        assertNull(_decoded2ImageFiles);
+        _decoded2ImageFiles = decoded2ImageFiles;
+    }
+
+    @CheckForNull
+    private VDP.Decoded2Y4m _decoded2Y4m;
+    public void setMap(@Nonnull VDP.Decoded2Y4m decoded2Y4m) {
+        assertNull(_decoded2Y4m);
+        _decoded2Y4m = decoded2Y4m;
+    }
+
     // =========================================================================
     // MDEC 
 
@@ -244,6 +264,13 @@ public class AutowireVDP {
         _mdec2Decoded = mdec2Decoded;
     }
 
+    @CheckForNull
+    private VDP.Mdec2DecodedParallel _mdec2DecodedParallel;
+    public void setMap(@Nonnull VDP.Mdec2DecodedParallel mdec2DecodedParallel) {
+        assertNull(_mdec2DecodedParallel);
+        _mdec2DecodedParallel = mdec2DecodedParallel;
+    }
+
     @CheckForNull
     private VDP.Mdec2File _mdec2File;
     public void setMap(@Nonnull VDP.Mdec2File mdec2File) {
@@ -44,6 +44,7 @@ import jpsxdec.i18n.ILocalizedMessage;
 import jpsxdec.psxvideo.mdec.MdecDecoder;
 import jpsxdec.psxvideo.mdec.MdecDecoder_double;
 import jpsxdec.psxvideo.mdec.MdecDecoder_int;
+import jpsxdec.psxvideo.mdec.idct.LoefflerIDCT;
 import jpsxdec.psxvideo.mdec.idct.PsxMdecIDCT_double;
 import jpsxdec.psxvideo.mdec.idct.PsxMdecIDCT_int;
 import jpsxdec.psxvideo.mdec.idct.SimpleIDCT;
@@ -65,6 +66,11 @@ public enum MdecDecodeQuality {
         public MdecDecoder makeDecoder(int iWidth, int iHeight) {
             return new MdecDecoder_int(new PsxMdecIDCT_int(), iWidth, iHeight);
         }
+    },
+    PSX_FAST(I.QUALITY_PSX_FAST_DESCRIPTION(), I.QUALITY_PSX_FAST_COMMAND()) {
+        public MdecDecoder makeDecoder(int iWidth, int iHeight) {
+            return new MdecDecoder_int(new LoefflerIDCT(), iWidth, iHeight);
+        }
     };
 
     public boolean canUpsample() { return false; }
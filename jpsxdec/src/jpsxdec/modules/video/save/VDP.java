@@ -44,17 +44,32 @@ import java.awt.image.DataBufferInt;
 import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.imageio.ImageIO;
 import javax.sound.sampled.AudioFormat;
+import jpsxdec.formats.BmpEncoder;
 import jpsxdec.formats.JavaImageFormat;
+import jpsxdec.formats.PngEncoder;
 import jpsxdec.formats.RgbIntImage;
+import jpsxdec.formats.WavWriter;
+import jpsxdec.formats.Y4mWriter;
 import jpsxdec.formats.YCbCrImage;
 import jpsxdec.i18n.I;
 import jpsxdec.i18n.ILocalizedMessage;
@@ -67,6 +82,7 @@ import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor;
 import jpsxdec.psxvideo.mdec.Calc;
 import jpsxdec.psxvideo.mdec.MdecDecoder;
 import jpsxdec.psxvideo.mdec.MdecDecoder_double;
+import jpsxdec.psxvideo.mdec.MdecDecoder_int;
 import jpsxdec.psxvideo.mdec.MdecException;
 import jpsxdec.psxvideo.mdec.MdecInputStream;
 import jpsxdec.psxvideo.mdec.MdecInputStreamReader;
@@ -74,6 +90,7 @@ import jpsxdec.util.BinaryDataNotRecognized;
 import jpsxdec.util.ExposedBAOS;
 import jpsxdec.util.Fraction;
 import jpsxdec.util.IO;
+import jpsxdec.util.Metrics;
 import jpsxdec.util.aviwriter.AviWriter;
 import jpsxdec.util.aviwriter.AviWriterDIB;
 import jpsxdec.util.aviwriter.AviWriterMJPG;
@@ -93,6 +110,8 @@ import jpsxdec.util.aviwriter.AviWriterYV12;
  *                                        |
  *                                        +-> Decoded (Mdec2Decoded) -+-> JavaImage (Decoded2JavaImage)
  *                                                                    |
+ *                                                                    +-> PNG/BMP files (Decoded2ImageFiles)
+ *                                                                    |
  *                                                                    +-> RgbAvi, YuvAvi, JYuvAvi (Decoded2...)
  *</pre>
  */
@@ -139,10 +158,12 @@ public class VDP {
             
             FileOutputStream fos = null;
             try {
+                long lngStart = Metrics.start();
                 fos = new FileOutputStream(f);
                 if (_fileGenListener != null)
                     _fileGenListener.fileGenerated(f);
                 fos.write(abBitstream, 0, iSize);
+                Metrics.FILE_WRITE.stop(lngStart, iSize);
             } catch (FileNotFoundException ex) {
                 _log.log(Level.SEVERE, I.IO_OPENING_FILE_ERROR_NAME(f.toString()), ex);
             } catch (IOException ex) {
@@ -180,8 +201,10 @@ public class VDP {
                 throws LoggedFailure
         {
             try {
+                long lngStart = Metrics.start();
                 BitStreamUncompressor uncompressor = BitStreamUncompressor.identifyUncompressor(
                                                         abBitstream, iBitstreamSize);
+                Metrics.BITSTREAM_HEADER.stop(lngStart, iBitstreamSize);
                 if (_uncompressorType != null) {
                     Class<? extends BitStreamUncompressor> newType = uncompressor.getClass();
                     if (!_uncompressorType.equals(newType)) {
@@ -336,10 +359,12 @@ public class VDP {
 
             FileOutputStream fos = null;
             try {
+                long lngStart = Metrics.start();
                 fos = new FileOutputStream(f);
                 if (_fileGenListener != null)
                     _fileGenListener.fileGenerated(f);
                 fos.write(_buffer.getBuffer(), 0, _buffer.size());
+                Metrics.FILE_WRITE.stop(lngStart, _buffer.size());
             } catch (FileNotFoundException ex) {
                 _log.log(Level.SEVERE, I.IO_OPENING_FILE_ERROR_NAME(f.toString()), ex);
             } catch (IOException ex) {
@@ -383,6 +408,7 @@ public class VDP {
                          @Nonnull Fraction presentationSector) 
                 throws LoggedFailure
         {
+            long lngStart = Metrics.start();
             try {
                 _decoder.decode(mdecIn);
             } catch (MdecException.ReadCorruption ex) {
@@ -390,6 +416,7 @@ public class VDP {
             } catch (MdecException.EndOfStream ex) {
                 _log.log(Level.SEVERE, FrameMessage.FRAME_NUM_INCOMPLETE(frameNumber), ex);
             }
+            Metrics.UNCOMPRESS_DECODE.stop(lngStart);
             if (_listener != null)
                 _listener.decoded(_decoder, frameNumber, presentationSector);
         }
@@ -415,6 +442,241 @@ public class VDP {
 
     }
 
+    /** Something waiting for everything before it to be sent,
+     * used to keep the output of the parallel classes in order. */
+    private static abstract class Pending {
+        public boolean isReady() {
+            return true;
+        }
+        abstract public void send() throws LoggedFailure;
+    }
+
+    /** Sending frames has to wait for them to finish on the other thread,
+     * so just note if the thread is interrupted and keep waiting. */
+    private static @CheckForNull <T> T waitFor(@Nonnull Future<T> work) {
+        boolean blnInterrupted = false;
+        try {
+            while (true) {
+                try {
+                    return work.get();
+                } catch (InterruptedException ex) {
+                    blnInterrupted = true;
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof RuntimeException)
+                        throw (RuntimeException) cause;
+                    if (cause instanceof Error)
+                        throw (Error) cause;
+                    throw new RuntimeException(cause);
+                }
+            }
+        } finally {
+            if (blnInterrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Same as {@link Mdec2Decoded} but frames are decoded on several
+     * threads, each frame with its own decoder.
+     * PSX frames are independent of each other so they can be decoded in
+     * any order, but the decoded frames, errors, and any audio passed through
+     * here are sent to the listeners on the calling thread in the
+     * same order they came in. The output is identical to
+     * {@link Mdec2Decoded}.
+     *<p>
+     * Anything still decoding is only sent when more data comes in, so
+     * {@link #flush()} must be called after the last frame. */
+    public static class Mdec2DecodedParallel implements IMdecListener, DecodedAudioPacket.Listener, Closeable {
+
+        private class PendingFrame extends Pending {
+            @Nonnull
+            private final MdecDecoder _decoder;
+            @Nonnull
+            private final Future<Exception> _decoding;
+            @CheckForNull
+            private final FormattedFrameNumber _frameNumber;
+            @Nonnull
+            private final Fraction _presentationSector;
+
+            public PendingFrame(@Nonnull MdecDecoder decoder,
+                                @Nonnull Future<Exception> decoding,
+                                @CheckForNull FormattedFrameNumber frameNumber,
+                                @Nonnull Fraction presentationSector)
+            {
+                _decoder = decoder;
+                _decoding = decoding;
+                _frameNumber = frameNumber;
+                _presentationSector = presentationSector;
+            }
+
+            @Override
+            public boolean isReady() {
+                return _decoding.isDone();
+            }
+
+            public void send() throws LoggedFailure {
+                Exception ex = waitFor(_decoding);
+                if (ex instanceof MdecException.ReadCorruption)
+                    _log.log(Level.SEVERE, FrameMessage.FRAME_NUM_CORRUPTED(_frameNumber), ex);
+                else if (ex instanceof MdecException.EndOfStream)
+                    _log.log(Level.SEVERE, FrameMessage.FRAME_NUM_INCOMPLETE(_frameNumber), ex);
+                try {
+                    if (_listener != null)
+                        _listener.decoded(_decoder, _frameNumber, _presentationSector);
+                } finally {
+                    _idleDecoders.add(_decoder);
+                }
+            }
+        }
+
+        /** Exceptions are returned so they can be logged in order. */
+        private static class DecodeFrame implements Callable<Exception> {
+            @Nonnull
+            private final MdecDecoder _decoder;
+            @Nonnull
+            private final MdecInputStream _mdecIn;
+
+            public DecodeFrame(@Nonnull MdecDecoder decoder, @Nonnull MdecInputStream mdecIn) {
+                _decoder = decoder;
+                _mdecIn = mdecIn;
+            }
+
+            public @CheckForNull Exception call() {
+                long lngStart = Metrics.start();
+                try {
+                    _decoder.decode(_mdecIn);
+                    return null;
+                } catch (MdecException.ReadCorruption ex) {
+                    return ex;
+                } catch (MdecException.EndOfStream ex) {
+                    return ex;
+                } finally {
+                    Metrics.UNCOMPRESS_DECODE.stop(lngStart);
+                }
+            }
+        }
+
+        @Nonnull
+        private final MdecDecoder[] _aoDecoders;
+        /** Decoders not holding a frame, only touched by the calling thread. */
+        private final ArrayDeque<MdecDecoder> _idleDecoders;
+        private final ArrayDeque<Pending> _pending = new ArrayDeque<Pending>();
+        @Nonnull
+        private final ExecutorService _executor;
+        @Nonnull
+        private final ILocalizedLogger _log;
+        @CheckForNull
+        private IDecodedListener _listener;
+        @CheckForNull
+        private DecodedAudioPacket.Listener _audioListener;
+
+        /** @param aoDecoders Identical decoders, at least 1 more than the
+         *                    number of threads so frames can continue to
+         *                    decode while another is being written. */
+        public Mdec2DecodedParallel(@Nonnull MdecDecoder[] aoDecoders, int iThreads,
+                                    @Nonnull ILocalizedLogger log)
+        {
+            if (iThreads < 1 || aoDecoders.length <= iThreads)
+                throw new IllegalArgumentException();
+            _aoDecoders = aoDecoders.clone();
+            _idleDecoders = new ArrayDeque<MdecDecoder>(Arrays.asList(aoDecoders));
+            _executor = Executors.newFixedThreadPool(iThreads, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "Frame decoder");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            _log = log;
+        }
+
+        public void mdec(@Nonnull MdecInputStream mdecIn, @CheckForNull FormattedFrameNumber frameNumber,
+                         @Nonnull Fraction presentationSector)
+                throws LoggedFailure
+        {
+            // every decoder may be holding a frame waiting to be sent
+            while (_idleDecoders.isEmpty())
+                _pending.remove().send();
+
+            MdecDecoder decoder = _idleDecoders.remove();
+            Future<Exception> decoding = _executor.submit(new DecodeFrame(decoder, mdecIn));
+            _pending.add(new PendingFrame(decoder, decoding, frameNumber, presentationSector));
+            sendReady();
+        }
+
+        public void error(@Nonnull final ILocalizedMessage errMsg,
+                          @CheckForNull final FormattedFrameNumber frameNumber,
+                          @Nonnull final Fraction presentationSector)
+                throws LoggedFailure
+        {
+            if (_pending.isEmpty()) {
+                if (_listener != null)
+                    _listener.error(errMsg, frameNumber, presentationSector);
+            } else {
+                _pending.add(new Pending() {
+                    public void send() throws LoggedFailure {
+                        if (_listener != null)
+                            _listener.error(errMsg, frameNumber, presentationSector);
+                    }
+                });
+            }
+        }
+
+        /** Audio packets need to stay in order with the frames if they're
+         * being written to the same file. */
+        public void audioPacketComplete(@Nonnull final DecodedAudioPacket packet,
+                                        @Nonnull final ILocalizedLogger log)
+                throws LoggedFailure
+        {
+            if (_pending.isEmpty()) {
+                if (_audioListener != null)
+                    _audioListener.audioPacketComplete(packet, log);
+            } else {
+                _pending.add(new Pending() {
+                    public void send() throws LoggedFailure {
+                        if (_audioListener != null)
+                            _audioListener.audioPacketComplete(packet, log);
+                    }
+                });
+            }
+        }
+
+        /** Send everything that is finished decoding, in order. */
+        private void sendReady() throws LoggedFailure {
+            while (!_pending.isEmpty() && _pending.peek().isReady())
+                _pending.remove().send();
+        }
+
+        /** Waits for all frames to finish decoding and sends everything. */
+        public void flush() throws LoggedFailure {
+            while (!_pending.isEmpty())
+                _pending.remove().send();
+        }
+
+        /** Stops the decoding threads. Anything not flushed is dropped. */
+        public void close() {
+            _executor.shutdownNow();
+            _pending.clear();
+        }
+
+        public void setDecoded(@CheckForNull IDecodedListener decoded) {
+            if (decoded == null)
+                return;
+            for (MdecDecoder decoder : _aoDecoders) {
+                decoded.assertAcceptsDecoded(decoder);
+            }
+            _listener = decoded;
+        }
+
+        public void setAudioListener(@CheckForNull DecodedAudioPacket.Listener audioListener) {
+            _audioListener = audioListener;
+        }
+
+        public @Nonnull ILocalizedLogger getLog() {
+            return _log;
+        }
+    }
+
     public interface IDecodedListener {
         void decoded(@Nonnull MdecDecoder decoder, @CheckForNull FormattedFrameNumber frameNumber,
                      @Nonnull Fraction presentationSector) throws LoggedFailure;
@@ -447,8 +709,10 @@ public class VDP {
                             @Nonnull Fraction presentationSector)
                 throws LoggedFailure
         {
+            long lngStart = Metrics.start();
             decoder.readDecodedRgb(_rgbImg.getWidth(), _rgbImg.getHeight(),
                     ((DataBufferInt)_rgbImg.getRaster().getDataBuffer()).getData());
+            Metrics.COLOR_CONVERT.stop(lngStart);
             
             File f = _formatter.format(frameNumber, _log);
             try {
@@ -459,7 +723,10 @@ public class VDP {
             }
 
             try {
-                if (ImageIO.write(_rgbImg, _sFmt, f)) {
+                lngStart = Metrics.start();
+                boolean blnWritten = ImageIO.write(_rgbImg, _sFmt, f);
+                Metrics.FILE_WRITE.stop(lngStart);
+                if (blnWritten) {
                     if (_fileGenListener != null)
                         _fileGenListener.fileGenerated(f);
                 } else {
@@ -483,6 +750,233 @@ public class VDP {
         }
     }
 
+    /** Writes decoded frames as PNG or BMP files using the built-in
+     * {@link PngEncoder} and {@link BmpEncoder}. The decoded frame is copied
+     * out of the decoder into one of a fixed number of pixel buffers, and
+     * then encoded and written on a pool of threads so decoding
+     * can continue. File names are chosen, and generated files are reported
+     * to the listener, on the calling thread in frame order.
+     *<p>
+     * Anything still being written is only reported when more frames come
+     * in, so {@link #flush()} must be called after the last frame. */
+    public static class Decoded2ImageFiles implements IDecodedListener, Closeable {
+
+        /** A pixel buffer and the encoder to write it with. */
+        private static class FrameWriter implements Callable<IOException> {
+            @Nonnull
+            public final int[] aiRgb;
+            private final int _iWidth, _iHeight;
+            @CheckForNull
+            private final PngEncoder _png;
+            @CheckForNull
+            private final BmpEncoder _bmp;
+            private final ExposedBAOS _buffer = new ExposedBAOS();
+            @CheckForNull
+            public File file;
+
+            public FrameWriter(@Nonnull JavaImageFormat eFmt, int iWidth, int iHeight) {
+                aiRgb = new int[iWidth * iHeight];
+                _iWidth = iWidth;
+                _iHeight = iHeight;
+                if (eFmt == JavaImageFormat.PNG) {
+                    _png = new PngEncoder();
+                    _bmp = null;
+                } else if (eFmt == JavaImageFormat.BMP) {
+                    _png = null;
+                    _bmp = new BmpEncoder();
+                } else {
+                    throw new IllegalArgumentException("Unsupported image format " + eFmt);
+                }
+            }
+
+            public void setPngOptions(int iCompressionLevel, @Nonnull PngEncoder.Filter filter) {
+                if (_png != null) {
+                    _png.setCompressionLevel(iCompressionLevel);
+                    _png.setFilter(filter);
+                }
+            }
+
+            /** Exceptions are returned so they can be logged in order. */
+            public @CheckForNull IOException call() {
+                long lngStart = Metrics.start();
+                _buffer.reset();
+                try {
+                    if (_png != null)
+                        _png.write(aiRgb, _iWidth, _iHeight, _buffer);
+                    else
+                        _bmp.write(aiRgb, _iWidth, _iHeight, _buffer);
+                } catch (IOException ex) {
+                    throw new RuntimeException("Should not happen", ex);
+                }
+
+                FileOutputStream fos = null;
+                try {
+                    fos = new FileOutputStream(file);
+                    fos.write(_buffer.getBuffer(), 0, _buffer.size());
+                    fos.close();
+                    fos = null;
+                    Metrics.FILE_WRITE.stop(lngStart, _buffer.size());
+                    return null;
+                } catch (IOException ex) {
+                    return ex;
+                } finally {
+                    IO.closeSilently(fos, LOG);
+                }
+            }
+
+            public void close() {
+                if (_png != null)
+                    _png.close();
+            }
+        }
+
+        private class PendingFile extends Pending {
+            @Nonnull
+            private final FrameWriter _writer;
+            @Nonnull
+            private final Future<IOException> _writing;
+            @CheckForNull
+            private final FormattedFrameNumber _frameNumber;
+
+            public PendingFile(@Nonnull FrameWriter writer,
+                               @Nonnull Future<IOException> writing,
+                               @CheckForNull FormattedFrameNumber frameNumber)
+            {
+                _writer = writer;
+                _writing = writing;
+                _frameNumber = frameNumber;
+            }
+
+            @Override
+            public boolean isReady() {
+                return _writing.isDone();
+            }
+
+            public void send() {
+                try {
+                    IOException ex = waitFor(_writing);
+                    File f = _writer.file;
+                    if (ex instanceof FileNotFoundException)
+                        _log.log(Level.SEVERE, I.IO_OPENING_FILE_ERROR_NAME(f.toString()), ex);
+                    else if (ex != null)
+                        _log.log(Level.WARNING, FrameMessage.FRAME_WRITE_ERR(f, _frameNumber), ex);
+                    else if (_fileGenListener != null)
+                        _fileGenListener.fileGenerated(f);
+                } finally {
+                    _idleWriters.add(_writer);
+                }
+            }
+        }
+
+        @Nonnull
+        private final VideoFileNameFormatter _formatter;
+        private final int _iWidth, _iHeight;
+        @Nonnull
+        private final FrameWriter[] _aoWriters;
+        /** Writers not holding a frame, only touched by the calling thread. */
+        private final ArrayDeque<FrameWriter> _idleWriters;
+        private final ArrayDeque<PendingFile> _pending = new ArrayDeque<PendingFile>();
+        @Nonnull
+        private final ExecutorService _executor;
+        @Nonnull
+        private final ILocalizedLogger _log;
+        @CheckForNull
+        private GeneratedFileListener _fileGenListener;
+
+        /** @param eFmt Either {@link JavaImageFormat#PNG} or {@link JavaImageFormat#BMP}.
+         *  @param iThreads Number of threads writing files. */
+        public Decoded2ImageFiles(@Nonnull VideoFileNameFormatter formatter, @Nonnull JavaImageFormat eFmt,
+                                  int iWidth, int iHeight, int iThreads, @Nonnull ILocalizedLogger log)
+        {
+            if (iThreads < 1)
+                throw new IllegalArgumentException();
+            _formatter = formatter;
+            _iWidth = iWidth;
+            _iHeight = iHeight;
+            _log = log;
+            // twice the buffers so threads can keep writing
+            // while the next frames are decoded
+            _aoWriters = new FrameWriter[iThreads * 2];
+            for (int i = 0; i < _aoWriters.length; i++) {
+                _aoWriters[i] = new FrameWriter(eFmt, iWidth, iHeight);
+            }
+            _idleWriters = new ArrayDeque<FrameWriter>(Arrays.asList(_aoWriters));
+            _executor = Executors.newFixedThreadPool(iThreads, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "Image writer");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+
+        /** PNG zlib compression level (0-9) and row filter.
+         * Must be set before the first frame. */
+        public void setPngOptions(int iCompressionLevel, @Nonnull PngEncoder.Filter filter) {
+            for (FrameWriter writer : _aoWriters) {
+                writer.setPngOptions(iCompressionLevel, filter);
+            }
+        }
+
+        public void decoded(@Nonnull MdecDecoder decoder, @CheckForNull FormattedFrameNumber frameNumber,
+                            @Nonnull Fraction presentationSector)
+        {
+            File f = _formatter.format(frameNumber, _log);
+            try {
+                IO.makeDirsForFile(f);
+            } catch (LocalizedFileNotFoundException ex) {
+                _log.log(Level.SEVERE, ex.getSourceMessage(), ex);
+                return;
+            }
+
+            // every buffer may be holding a frame waiting to be written
+            while (_idleWriters.isEmpty())
+                _pending.remove().send();
+
+            FrameWriter writer = _idleWriters.remove();
+            long lngStart = Metrics.start();
+            decoder.readDecodedRgb(_iWidth, _iHeight, writer.aiRgb);
+            Metrics.COLOR_CONVERT.stop(lngStart);
+            writer.file = f;
+            Future<IOException> writing = _executor.submit(writer);
+            _pending.add(new PendingFile(writer, writing, frameNumber));
+            sendReady();
+        }
+
+        public void error(@Nonnull ILocalizedMessage errMsg, @CheckForNull FormattedFrameNumber frameNumber,
+                          @Nonnull Fraction presentationSector)
+        {
+            // error frames are simply not written
+        }
+
+        public void assertAcceptsDecoded(@Nonnull MdecDecoder decoder) {}
+
+        public void setGenFileListener(@CheckForNull GeneratedFileListener listener) {
+            _fileGenListener = listener;
+        }
+
+        /** Report everything that is finished writing, in order. */
+        private void sendReady() {
+            while (!_pending.isEmpty() && _pending.peek().isReady())
+                _pending.remove().send();
+        }
+
+        /** Waits for all frames to be written and reports them. */
+        public void flush() {
+            while (!_pending.isEmpty())
+                _pending.remove().send();
+        }
+
+        /** Stops the writing threads. Anything not flushed is dropped. */
+        public void close() {
+            _executor.shutdownNow();
+            _pending.clear();
+            for (FrameWriter writer : _aoWriters) {
+                writer.close();
+            }
+        }
+    }
+
     // ########################################################################
     // ########################################################################
     // ########################################################################
@@ -506,6 +1000,7 @@ public class VDP {
         protected AviWriter _writer;
         @CheckForNull
         protected GeneratedFileListener _fileGenListener;
+        protected boolean _blnOpenDml = false;
 
         /** Video without audio. */
         public ToAvi(@Nonnull File outputFile, int iWidth, int iHeight, @Nonnull VideoSync vidSync, @Nonnull ILocalizedLogger log) {
@@ -535,6 +1030,12 @@ public class VDP {
             return _writer;
         }
 
+        /** Write an OpenDML (AVI 2.0) file that can grow past 1GB.
+         * Must be set before {@link #open()}. */
+        public void setOpenDml(boolean blnOpenDml) {
+            _blnOpenDml = blnOpenDml;
+        }
+
         abstract public void open() 
                 throws LocalizedFileNotFoundException, FileNotFoundException, IOException;
 
@@ -588,7 +1089,7 @@ public class VDP {
             }
         }
 
-        final public void audioPacketComplete(@Nonnull DecodedAudioPacket packet,
+        public void audioPacketComplete(@Nonnull DecodedAudioPacket packet,
                                               @Nonnull ILocalizedLogger log)
                 throws LoggedFailure
         {
@@ -632,6 +1133,9 @@ public class VDP {
         private AviWriterDIB _writerDib;
         @CheckForNull
         private int[] _aiImageBuf;
+        /** Int decoders convert directly into a DIB frame. */
+        @CheckForNull
+        private byte[] _abDibBuf;
 
         public Decoded2RgbAvi(@Nonnull File outputFile, int iWidth, int iHeight, @Nonnull VideoSync vidSync, @Nonnull ILocalizedLogger log) {
             super(outputFile, iWidth, iHeight, vidSync, log);
@@ -652,7 +1156,7 @@ public class VDP {
                                                         _iWidth, _iHeight,
                                                         _vidSync.getFpsNum(),
                                                         _vidSync.getFpsDenom(),
-                                                        _af);
+                                                        _af, _blnOpenDml);
                 if (_fileGenListener != null)
                     _fileGenListener.fileGenerated(_outputFile);
                 _aiImageBuf = new int[_iWidth*_iHeight];
@@ -665,10 +1169,21 @@ public class VDP {
         {
             if (_writerDib == null)
                 throw new IllegalStateException("AVI not open.");
-            decoder.readDecodedRgb(_writerDib.getWidth(), _writerDib.getHeight(), _aiImageBuf);
+            long lngStart = Metrics.start();
+            if (decoder instanceof MdecDecoder_int) {
+                if (_abDibBuf == null)
+                    _abDibBuf = new byte[_writerDib.getFrameByteSize()];
+                ((MdecDecoder_int)decoder).readDecodedBgr24Dib(_writerDib.getWidth(), _writerDib.getHeight(), _abDibBuf);
+            } else {
+                decoder.readDecodedRgb(_writerDib.getWidth(), _writerDib.getHeight(), _aiImageBuf);
+            }
+            Metrics.COLOR_CONVERT.stop(lngStart);
             try {
                 prepForFrame(frameNumber, presentationSector);
-                _writerDib.writeFrameRGB(_aiImageBuf, 0, _writerDib.getWidth());
+                if (decoder instanceof MdecDecoder_int)
+                    _writerDib.writeFrameDib(_abDibBuf);
+                else
+                    _writerDib.writeFrameRGB(_aiImageBuf, 0, _writerDib.getWidth());
             } catch (IOException ex) {
                 throw new LoggedFailure(_log, Level.SEVERE,
                         I.IO_WRITING_TO_FILE_ERROR_NAME(_writer.getFile().toString()), ex);
@@ -718,7 +1233,7 @@ public class VDP {
         }
 
         public void assertAcceptsDecoded(@Nonnull MdecDecoder decoder) throws IllegalArgumentException {
-            if (!(decoder instanceof MdecDecoder_double))
+            if (!(decoder instanceof MdecDecoder_double) && !(decoder instanceof MdecDecoder_int))
                 throw new IllegalArgumentException(getClass().getName() + " can't handle " + decoder.getClass().getName());
         }
         
@@ -731,7 +1246,7 @@ public class VDP {
                                                          _iWidth, _iHeight,
                                                          _vidSync.getFpsNum(),
                                                          _vidSync.getFpsDenom(),
-                                                         _af);
+                                                         _af, _blnOpenDml);
                 if (_fileGenListener != null)
                     _fileGenListener.fileGenerated(_outputFile);
                 _yuvImgBuff = new YCbCrImage(_iWidth, _iHeight);
@@ -744,8 +1259,13 @@ public class VDP {
         {
             if (_writerYuv == null)
                 throw new IllegalStateException("AVI not open.");
-            // only accepts MdecDecoder_double, verified in assertAcceptsDecoded()
-            ((MdecDecoder_double)decoder).readDecoded_Rec601_YCbCr420(_yuvImgBuff);
+            // only accepts MdecDecoder_double or MdecDecoder_int, verified in assertAcceptsDecoded()
+            long lngStart = Metrics.start();
+            if (decoder instanceof MdecDecoder_int)
+                ((MdecDecoder_int)decoder).readDecoded_Rec601_YCbCr420(_yuvImgBuff);
+            else
+                ((MdecDecoder_double)decoder).readDecoded_Rec601_YCbCr420(_yuvImgBuff);
+            Metrics.COLOR_CONVERT.stop(lngStart);
             try {
                 prepForFrame(frameNumber, presentationSector);
                 _writerYuv.write(_yuvImgBuff.getY(), _yuvImgBuff.getCb(), _yuvImgBuff.getCr());
@@ -788,6 +1308,12 @@ public class VDP {
             super(outputFile, iWidth, iHeight, vidSync, log);
         }
 
+        @Override
+        public void assertAcceptsDecoded(@Nonnull MdecDecoder decoder) throws IllegalArgumentException {
+            if (!(decoder instanceof MdecDecoder_double))
+                throw new IllegalArgumentException(getClass().getName() + " can't handle " + decoder.getClass().getName());
+        }
+
         @Override
         public void decoded(@Nonnull MdecDecoder decoder, @CheckForNull FormattedFrameNumber frameNumber,
                             @Nonnull Fraction presentationSector)
@@ -796,7 +1322,9 @@ public class VDP {
             if (_writerYuv == null)
                 throw new IllegalStateException("AVI not open.");
             // only accepts MdecDecoder_double, verified in assertAcceptsDecoded()
+            long lngStart = Metrics.start();
             ((MdecDecoder_double)decoder).readDecoded_JFIF_YCbCr420(_yuvImgBuff);
+            Metrics.COLOR_CONVERT.stop(lngStart);
             try {
                 prepForFrame(frameNumber, presentationSector);
                 _writerYuv.write(_yuvImgBuff.getY(), _yuvImgBuff.getCb(), _yuvImgBuff.getCr());
@@ -808,23 +1336,314 @@ public class VDP {
         
     }
 
+    /** Streams YCbCr frames straight from the decoder as YUV4MPEG2, with the
+     * audio as a WAV, so they can be piped into an external encoder without
+     * temporary files. The video or audio can go to stdout or a named pipe.
+     * Like the AVIs, frames are duplicated to keep the video at a constant
+     * frame rate. A timestamp file (Matroska "timestamp format v2") lists
+     * when each frame would actually be presented, so muxers that understand
+     * variable frame rates can use the real timing. */
+    public static class Decoded2Y4m implements IDecodedListener, DecodedAudioPacket.Listener, Closeable {
+        /** Name used in messages when writing to stdout. */
+        private static final String STDOUT_NAME = "stdout";
+
+        /** null for stdout. */
+        @CheckForNull
+        private final File _videoFile;
+        @Nonnull
+        private final File _timestampsFile;
+        private final int _iWidth, _iHeight;
+        @Nonnull
+        private final VideoSync _vidSync;
+        @CheckForNull
+        private final AudioVideoSync _avSync;
+        @CheckForNull
+        private final AudioFormat _af;
+        /** null for stdout. Only used if there is audio. */
+        @CheckForNull
+        private final File _audioFile;
+        @Nonnull
+        private final ILocalizedLogger _log;
+        @CheckForNull
+        private GeneratedFileListener _fileGenListener;
+
+        @CheckForNull
+        private Y4mWriter _y4m;
+        @CheckForNull
+        private WavWriter _wav;
+        @CheckForNull
+        private PrintStream _timestamps;
+        @CheckForNull
+        private YCbCrImage _yuvImgBuff;
+        /** Timestamp of the last frame written, in milliseconds. */
+        private double _dblLastTimestamp = -1;
+
+        /** Video without audio.
+         * @param videoFile null for stdout.
+         * @throws IllegalArgumentException if dimensions are not even */
+        public Decoded2Y4m(@CheckForNull File videoFile, @Nonnull File timestampsFile,
+                           int iWidth, int iHeight, @Nonnull VideoSync vidSync,
+                           @Nonnull ILocalizedLogger log)
+        {
+            this(videoFile, timestampsFile, iWidth, iHeight, vidSync, null, null, null, log);
+        }
+
+        /** Video with audio.
+         * @param videoFile null for stdout.
+         * @param audioFile null for stdout.
+         * @throws IllegalArgumentException if dimensions are not even,
+         *                                  or both are written to stdout */
+        public Decoded2Y4m(@CheckForNull File videoFile, @Nonnull File timestampsFile,
+                           int iWidth, int iHeight,
+                           @Nonnull AudioVideoSync avSync, @Nonnull AudioFormat af,
+                           @CheckForNull File audioFile, @Nonnull ILocalizedLogger log)
+        {
+            this(videoFile, timestampsFile, iWidth, iHeight, avSync, avSync, af, audioFile, log);
+            if (videoFile == null && audioFile == null)
+                throw new IllegalArgumentException("Video and audio can't both be written to stdout");
+        }
+
+        private Decoded2Y4m(@CheckForNull File videoFile, @Nonnull File timestampsFile,
+                            int iWidth, int iHeight, @Nonnull VideoSync vidSync,
+                            @CheckForNull AudioVideoSync avSync, @CheckForNull AudioFormat af,
+                            @CheckForNull File audioFile, @Nonnull ILocalizedLogger log)
+        {
+            if (((iWidth | iHeight) & 1) != 0)
+                throw new IllegalArgumentException("Y4M only supports even dimensions");
+            _videoFile = videoFile;
+            _timestampsFile = timestampsFile;
+            _iWidth = iWidth; _iHeight = iHeight;
+            _vidSync = vidSync;
+            _avSync = avSync;
+            _af = af;
+            _audioFile = audioFile;
+            _log = log;
+        }
+
+        public void assertAcceptsDecoded(@Nonnull MdecDecoder decoder) throws IllegalArgumentException {
+            if (!(decoder instanceof MdecDecoder_double) && !(decoder instanceof MdecDecoder_int))
+                throw new IllegalArgumentException(getClass().getName() + " can't handle " + decoder.getClass().getName());
+        }
+
+        /** Opens the outputs. Opening a named pipe waits until something
+         * opens the other end. */
+        public void open() throws LocalizedFileNotFoundException, FileNotFoundException, IOException {
+            if (_y4m != null)
+                return;
+            IO.makeDirsForFile(_timestampsFile);
+            _timestamps = new PrintStream(new BufferedOutputStream(new FileOutputStream(_timestampsFile)), false, "US-ASCII");
+            if (_fileGenListener != null)
+                _fileGenListener.fileGenerated(_timestampsFile);
+            _timestamps.println("# timestamp format v2");
+
+            _y4m = new Y4mWriter(openOutput(_videoFile), _iWidth, _iHeight,
+                                 _vidSync.getFpsNum(), _vidSync.getFpsDenom());
+            if (_af != null)
+                _wav = new WavWriter(openOutput(_audioFile), _af);
+            _yuvImgBuff = new YCbCrImage(_iWidth, _iHeight);
+        }
+
+        private @Nonnull FileOutputStream openOutput(@CheckForNull File file)
+                throws LocalizedFileNotFoundException, FileNotFoundException
+        {
+            if (file == null)
+                return new FileOutputStream(FileDescriptor.out);
+            IO.makeDirsForFile(file);
+            FileOutputStream fos = new FileOutputStream(file);
+            if (_fileGenListener != null)
+                _fileGenListener.fileGenerated(file);
+            return fos;
+        }
+
+        public @Nonnull String getVideoName() {
+            return _videoFile == null ? STDOUT_NAME : _videoFile.toString();
+        }
+
+        public void decoded(@Nonnull MdecDecoder decoder, @CheckForNull FormattedFrameNumber frameNumber,
+                            @Nonnull Fraction presentationSector)
+                throws LoggedFailure
+        {
+            if (_y4m == null)
+                throw new IllegalStateException("Y4M not open.");
+            // only accepts MdecDecoder_double or MdecDecoder_int, verified in assertAcceptsDecoded()
+            long lngStart = Metrics.start();
+            if (decoder instanceof MdecDecoder_int)
+                ((MdecDecoder_int)decoder).readDecoded_Rec601_YCbCr420(_yuvImgBuff);
+            else
+                ((MdecDecoder_double)decoder).readDecoded_Rec601_YCbCr420(_yuvImgBuff);
+            Metrics.COLOR_CONVERT.stop(lngStart);
+            writeFrame(_yuvImgBuff, frameNumber, presentationSector);
+        }
+
+        public void error(@Nonnull ILocalizedMessage errMsg, @CheckForNull FormattedFrameNumber frameNumber,
+                          @Nonnull Fraction presentationSector)
+                throws LoggedFailure
+        {
+            if (_y4m == null)
+                throw new IllegalStateException("Y4M not open.");
+            BufferedImage bi = makeErrorImage(errMsg, _iWidth, _iHeight);
+            writeFrame(new YCbCrImage(bi), frameNumber, presentationSector);
+        }
+
+        private void writeFrame(@Nonnull YCbCrImage ycc, @CheckForNull FormattedFrameNumber frameNumber,
+                                @Nonnull Fraction presentationSector)
+                throws LoggedFailure
+        {
+            try {
+                // if first frame
+                if (_y4m.getFramesWritten() < 1 && _vidSync.getInitialVideo() > 0) {
+                    _log.log(Level.INFO, I.WRITING_BLANK_FRAMES_TO_ALIGN_AV(_vidSync.getInitialVideo()));
+                    for (int i = _vidSync.getInitialVideo(); i > 0; i--) {
+                        writeTimestamp(slotTime());
+                        _y4m.writeBlankFrame();
+                    }
+                }
+
+                int iDupCount = _vidSync.calculateFramesToCatchUp(presentationSector,
+                                                                  _y4m.getFramesWritten());
+                if (iDupCount < 0) {
+                    _log.log(Level.WARNING, FrameMessage.FRAME_NUM_AHEAD_OF_READING(frameNumber, -iDupCount));
+                } else {
+                    for (; iDupCount > 0; iDupCount--) {
+                        if (_y4m.getFramesWritten() < 1)
+                            _log.log(Level.INFO, I.WRITING_BLANK_FRAMES_TO_ALIGN_AV(1));
+                        else
+                            _log.log(Level.INFO, I.WRITING_DUP_FRAMES_TO_ALIGN_AV(1));
+                        writeTimestamp(slotTime());
+                        _y4m.repeatPreviousFrame();
+                    }
+                }
+
+                // when the frame is actually presented, relative to the start of the video
+                Fraction presentationTime = _vidSync.calcPresentationTime(presentationSector)
+                        .add(_vidSync.getSecondsPerFrame().multiply(_vidSync.getInitialVideo()));
+                writeTimestamp(presentationTime);
+                _y4m.writeFrame(ycc);
+            } catch (IOException ex) {
+                throw new LoggedFailure(_log, Level.SEVERE, I.IO_WRITING_TO_FILE_ERROR_NAME(getVideoName()), ex);
+            }
+        }
+
+        /** The time of the next frame at a constant frame rate. */
+        private @Nonnull Fraction slotTime() {
+            return _vidSync.getSecondsPerFrame().multiply(_y4m.getFramesWritten());
+        }
+
+        /** Timestamps must always increase. */
+        private void writeTimestamp(@Nonnull Fraction seconds) {
+            double dblMillis = Math.max(seconds.asDouble() * 1000, _dblLastTimestamp + 1);
+            _dblLastTimestamp = dblMillis;
+            _timestamps.println(String.format(Locale.ROOT, "%.3f", dblMillis));
+        }
+
+        public void audioPacketComplete(@Nonnull DecodedAudioPacket packet, @Nonnull ILocalizedLogger log)
+                throws LoggedFailure
+        {
+            if (_wav == null)
+                throw new IllegalStateException("WAV not open.");
+
+            // _avSync should not be null if there is a wav
+            try {
+                if (_wav.getSampleFramesWritten() < 1 && _avSync.getInitialAudio() > 0) {
+                    _log.log(Level.INFO, I.WRITING_SILECE_TO_SYNC_AV(_avSync.getInitialAudio()));
+                    _wav.writeSilentSamples(_avSync.getInitialAudio());
+                }
+                long lngNeededSilence = _avSync.calculateAudioToCatchUp(packet.getPresentationSector(),
+                                                                        _wav.getSampleFramesWritten());
+                if (lngNeededSilence > 0) {
+                    _log.log(Level.INFO, I.WRITING_SILENCE_TO_KEEP_AV_SYNCED(lngNeededSilence));
+                    _wav.writeSilentSamples(lngNeededSilence);
+                }
+
+                byte[] abData = packet.getData();
+                _wav.write(abData, 0, abData.length);
+            } catch (IOException ex) {
+                String sName = _audioFile == null ? STDOUT_NAME : _audioFile.toString();
+                throw new LoggedFailure(_log, Level.SEVERE, I.IO_WRITING_TO_FILE_ERROR_NAME(sName), ex);
+            }
+        }
+
+        /** Closing stdout lets whatever is reading it know the stream is done. */
+        public void close() throws IOException {
+            IOException closeEx = null;
+            if (_y4m != null) {
+                closeEx = IO.closeSilently(_y4m, LOG);
+                _y4m = null;
+            }
+            if (_wav != null) {
+                IOException ex = IO.closeSilently(_wav, LOG);
+                if (closeEx == null)
+                    closeEx = ex;
+                _wav = null;
+            }
+            if (_timestamps != null) {
+                _timestamps.close();
+                if (_timestamps.checkError() && closeEx == null)
+                    closeEx = new IOException("Error writing " + _timestampsFile);
+                _timestamps = null;
+            }
+            if (closeEx != null)
+                throw closeEx;
+        }
+
+        public void setGenFileListener(@CheckForNull GeneratedFileListener listener) {
+            _fileGenListener = listener;
+        }
+    }
+
+
     /** This Avi output is unique in that it takes Mdec as input instead of Decoded. */
     public static class Mdec2MjpegAvi extends ToAvi implements IMdecListener {
+
+        /** Converts MDEC frames to JPEG, reusing its buffers between frames. */
+        protected static class JpegEncoder {
+            @Nonnull
+            private final jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg _jpegTranslator;
+            @Nonnull
+            private final ExposedBAOS _buffer = new ExposedBAOS();
+
+            public JpegEncoder(int iWidth, int iHeight) {
+                _jpegTranslator = new jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg(iWidth, iHeight);
+            }
+
+            /** @return The reason the frame could not be converted,
+             *          or null if the JPEG is in the buffer.
+             *          Returned so it can be logged with the frame. */
+            public @CheckForNull Exception encode(@Nonnull MdecInputStream mdecIn) {
+                try {
+                    _jpegTranslator.readMdec(mdecIn);
+                } catch (MdecException.ReadCorruption ex) {
+                    return ex;
+                } catch (MdecException.EndOfStream ex) {
+                    return ex;
+                } catch (MdecException.TooMuchEnergy ex) {
+                    return ex;
+                }
+                _buffer.reset();
+                try {
+                    _jpegTranslator.writeJpeg(_buffer);
+                } catch (IOException ex) {
+                    throw new RuntimeException("Should not happen", ex);
+                }
+                return null;
+            }
+        }
+
         @Nonnull
-        private final jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg _jpegTranslator;
-        @Nonnull
-        private final ExposedBAOS _buffer = new ExposedBAOS();
+        protected final JpegEncoder _encoder;
         @CheckForNull
         private AviWriterMJPG _mjpegWriter;
+        private long _lngOpenNanos;
+        private int _iFramesEncoded = 0;
 
         public Mdec2MjpegAvi(@Nonnull File outputFile, int iWidth, int iHeight, @Nonnull VideoSync vidSync, @Nonnull ILocalizedLogger log) {
             super(outputFile, iWidth, iHeight, vidSync, log);
-            _jpegTranslator = new jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg(iWidth, iHeight);
+            _encoder = new JpegEncoder(iWidth, iHeight);
         }
 
         public Mdec2MjpegAvi(@Nonnull File outputFile, int iWidth, int iHeight, @Nonnull AudioVideoSync avSync, @Nonnull AudioFormat af, @Nonnull ILocalizedLogger log) {
             super(outputFile, iWidth, iHeight, avSync, af, log);
-            _jpegTranslator = new jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg(iWidth, iHeight);
+            _encoder = new JpegEncoder(iWidth, iHeight);
         }
 
         public void open()
@@ -832,7 +1651,8 @@ public class VDP {
         {
             if (_writer == null) {
                 IO.makeDirsForFile(_outputFile);
-                _writer = _mjpegWriter = new AviWriterMJPG(_outputFile, _iWidth, _iHeight, _vidSync.getFpsNum(), _vidSync.getFpsDenom(), _af);
+                _writer = _mjpegWriter = new AviWriterMJPG(_outputFile, _iWidth, _iHeight, _vidSync.getFpsNum(), _vidSync.getFpsDenom(), -1, _af, _blnOpenDml);
+                _lngOpenNanos = System.nanoTime();
                 if (_fileGenListener != null)
                     _fileGenListener.fileGenerated(_outputFile);
             }
@@ -844,42 +1664,50 @@ public class VDP {
         {
             if (_mjpegWriter == null)
                 throw new IllegalStateException("AVI not open.");
-            ILocalizedMessage err;
-            Exception fail;
-            try {
-                _jpegTranslator.readMdec(mdecIn);
-                _buffer.reset();
-                try {
-                    _jpegTranslator.writeJpeg(_buffer);
-                } catch (IOException ex) {
-                    throw new RuntimeException("Should not happen", ex);
-                }
+            Exception fail = _encoder.encode(mdecIn);
+            writeEncoded(_encoder, fail, frameNumber, presentationSector);
+        }
 
-                try {
-                    prepForFrame(frameNumber, presentationSector);
-                    _mjpegWriter.writeFrame(_buffer.getBuffer(), 0, _buffer.size());
-                } catch (IOException ex) {
-                    throw new LoggedFailure(_log, Level.SEVERE,
-                            I.IO_WRITING_TO_FILE_ERROR_NAME(_writer.getFile().toString()), ex);
-                }
+        /** Writes the JPEG in the encoder, or the error if it failed. */
+        protected void writeEncoded(@Nonnull JpegEncoder encoder, @CheckForNull Exception fail,
+                                    @CheckForNull FormattedFrameNumber frameNumber,
+                                    @Nonnull Fraction presentationSector)
+                throws LoggedFailure
+        {
+            if (_mjpegWriter == null)
+                throw new IllegalStateException("AVI not open.");
+            _iFramesEncoded++;
+            if (fail != null) {
+                ILocalizedMessage err;
+                if (fail instanceof MdecException.ReadCorruption)
+                    err = FrameMessage.FRAME_NUM_CORRUPTED(frameNumber);
+                else if (fail instanceof MdecException.EndOfStream)
+                    err = FrameMessage.FRAME_NUM_INCOMPLETE(frameNumber);
+                else
+                    err = FrameMessage.JPEG_ENCODER_FRAME_FAIL(frameNumber);
+                _log.log(Level.WARNING, err, fail);
+                writeError(err, frameNumber, presentationSector);
                 return;
-                // kinda icky way to do this
-            } catch (MdecException.ReadCorruption ex) {
-                err = FrameMessage.FRAME_NUM_CORRUPTED(frameNumber);
-                fail = ex;
-            } catch (MdecException.EndOfStream ex) {
-                err = FrameMessage.FRAME_NUM_INCOMPLETE(frameNumber);
-                fail = ex;
-            } catch (MdecException.TooMuchEnergy ex) {
-                err = FrameMessage.JPEG_ENCODER_FRAME_FAIL(frameNumber);
-                fail = ex;
             }
-            _log.log(Level.WARNING, err, fail);
-            error(err, frameNumber, presentationSector);
+
+            try {
+                prepForFrame(frameNumber, presentationSector);
+                _mjpegWriter.writeFrame(encoder._buffer.getBuffer(), 0, encoder._buffer.size());
+            } catch (IOException ex) {
+                throw new LoggedFailure(_log, Level.SEVERE,
+                        I.IO_WRITING_TO_FILE_ERROR_NAME(_writer.getFile().toString()), ex);
+            }
         }
 
         public void error(@Nonnull ILocalizedMessage errMsg, @CheckForNull FormattedFrameNumber frameNumber,
                           @Nonnull Fraction presentationSector) throws LoggedFailure {
+            writeError(errMsg, frameNumber, presentationSector);
+        }
+
+        /** Not overridden so a frame that failed to convert is written
+         * in its place, even when {@link #error} is queued. */
+        private void writeError(@Nonnull ILocalizedMessage errMsg, @CheckForNull FormattedFrameNumber frameNumber,
+                                @Nonnull Fraction presentationSector) throws LoggedFailure {
             if (_mjpegWriter == null)
                 throw new IllegalStateException("AVI not open.");
             try {
@@ -891,12 +1719,200 @@ public class VDP {
             }
         }
 
+        /** Also logs how fast the frames were converted. */
+        @Override
+        public void close() throws IOException {
+            if (_iFramesEncoded > 0) {
+                double dblSeconds = (System.nanoTime() - _lngOpenNanos) / 1000000000.0;
+                if (dblSeconds > 0)
+                    _log.log(Level.INFO, I.MJPG_FRAMES_PER_SECOND(_iFramesEncoded, _iFramesEncoded / dblSeconds));
+                _iFramesEncoded = 0;
+            }
+            super.close();
+        }
+
         public @Nonnull ILocalizedLogger getLog() {
             return _log;
         }
 
     }
 
+    /** Same as {@link Mdec2MjpegAvi} but frames are converted to JPEG on
+     * several threads, each frame with its own encoder.
+     * The finished JPEGs, errors, and audio are written to the AVI on the
+     * calling thread in the same order they came in, so any duplicate or
+     * blank frames {@link VideoSync} adds, and the audio interleaving,
+     * are exactly the same. The AVI is identical to {@link Mdec2MjpegAvi}.
+     *<p>
+     * Anything still encoding is only written when more data comes in, so
+     * {@link #flush()} must be called after the last frame. */
+    public static class Mdec2MjpegAviParallel extends Mdec2MjpegAvi {
+
+        private class PendingFrame extends Pending {
+            @Nonnull
+            private final JpegEncoder _frameEncoder;
+            @Nonnull
+            private final Future<Exception> _encoding;
+            @CheckForNull
+            private final FormattedFrameNumber _frameNumber;
+            @Nonnull
+            private final Fraction _presentationSector;
+
+            public PendingFrame(@Nonnull JpegEncoder encoder,
+                                @Nonnull Future<Exception> encoding,
+                                @CheckForNull FormattedFrameNumber frameNumber,
+                                @Nonnull Fraction presentationSector)
+            {
+                _frameEncoder = encoder;
+                _encoding = encoding;
+                _frameNumber = frameNumber;
+                _presentationSector = presentationSector;
+            }
+
+            @Override
+            public boolean isReady() {
+                return _encoding.isDone();
+            }
+
+            public void send() throws LoggedFailure {
+                Exception fail = waitFor(_encoding);
+                try {
+                    writeEncoded(_frameEncoder, fail, _frameNumber, _presentationSector);
+                } finally {
+                    _idleEncoders.add(_frameEncoder);
+                }
+            }
+        }
+
+        private static class EncodeFrame implements Callable<Exception> {
+            @Nonnull
+            private final JpegEncoder _frameEncoder;
+            @Nonnull
+            private final MdecInputStream _mdecIn;
+
+            public EncodeFrame(@Nonnull JpegEncoder encoder, @Nonnull MdecInputStream mdecIn) {
+                _frameEncoder = encoder;
+                _mdecIn = mdecIn;
+            }
+
+            public @CheckForNull Exception call() {
+                return _frameEncoder.encode(_mdecIn);
+            }
+        }
+
+        /** Encoders not holding a frame, only touched by the calling thread. */
+        private final ArrayDeque<JpegEncoder> _idleEncoders = new ArrayDeque<JpegEncoder>();
+        private final ArrayDeque<Pending> _pending = new ArrayDeque<Pending>();
+        @Nonnull
+        private final ExecutorService _executor;
+
+        public Mdec2MjpegAviParallel(@Nonnull File outputFile, int iWidth, int iHeight,
+                                     @Nonnull VideoSync vidSync, int iThreads,
+                                     @Nonnull ILocalizedLogger log)
+        {
+            super(outputFile, iWidth, iHeight, vidSync, log);
+            _executor = startEncoders(iThreads);
+        }
+
+        public Mdec2MjpegAviParallel(@Nonnull File outputFile, int iWidth, int iHeight,
+                                     @Nonnull AudioVideoSync avSync, @Nonnull AudioFormat af,
+                                     int iThreads, @Nonnull ILocalizedLogger log)
+        {
+            super(outputFile, iWidth, iHeight, avSync, af, log);
+            _executor = startEncoders(iThreads);
+        }
+
+        private @Nonnull ExecutorService startEncoders(int iThreads) {
+            if (iThreads < 1)
+                throw new IllegalArgumentException();
+            // twice the encoders so threads can keep encoding
+            // while finished frames wait to be written
+            _idleEncoders.add(_encoder);
+            for (int i = 1; i < iThreads * 2; i++) {
+                _idleEncoders.add(new JpegEncoder(_iWidth, _iHeight));
+            }
+            return Executors.newFixedThreadPool(iThreads, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "JPEG encoder");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+
+        @Override
+        public void mdec(@Nonnull MdecInputStream mdecIn, @CheckForNull FormattedFrameNumber frameNumber,
+                         @Nonnull Fraction presentationSector)
+                throws LoggedFailure
+        {
+            if (_writer == null)
+                throw new IllegalStateException("AVI not open.");
+            // every encoder may be holding a frame waiting to be written
+            while (_idleEncoders.isEmpty())
+                _pending.remove().send();
+
+            JpegEncoder encoder = _idleEncoders.remove();
+            Future<Exception> encoding = _executor.submit(new EncodeFrame(encoder, mdecIn));
+            _pending.add(new PendingFrame(encoder, encoding, frameNumber, presentationSector));
+            writeReady();
+        }
+
+        @Override
+        public void error(@Nonnull final ILocalizedMessage errMsg,
+                          @CheckForNull final FormattedFrameNumber frameNumber,
+                          @Nonnull final Fraction presentationSector)
+                throws LoggedFailure
+        {
+            if (_pending.isEmpty()) {
+                super.error(errMsg, frameNumber, presentationSector);
+            } else {
+                _pending.add(new Pending() {
+                    public void send() throws LoggedFailure {
+                        Mdec2MjpegAviParallel.super.error(errMsg, frameNumber, presentationSector);
+                    }
+                });
+            }
+        }
+
+        /** Audio has to wait for the frames before it to be written. */
+        @Override
+        public void audioPacketComplete(@Nonnull final DecodedAudioPacket packet,
+                                        @Nonnull final ILocalizedLogger log)
+                throws LoggedFailure
+        {
+            if (_pending.isEmpty()) {
+                super.audioPacketComplete(packet, log);
+            } else {
+                _pending.add(new Pending() {
+                    public void send() throws LoggedFailure {
+                        Mdec2MjpegAviParallel.super.audioPacketComplete(packet, log);
+                    }
+                });
+            }
+        }
+
+        /** Write everything that is finished encoding, in order. */
+        private void writeReady() throws LoggedFailure {
+            while (!_pending.isEmpty() && _pending.peek().isReady())
+                _pending.remove().send();
+        }
+
+        /** Waits for all frames to finish encoding and writes everything. */
+        public void flush() throws LoggedFailure {
+            while (!_pending.isEmpty())
+                _pending.remove().send();
+        }
+
+        /** Stops the encoding threads and closes the AVI.
+         * Anything not flushed is dropped. */
+        @Override
+        public void close() throws IOException {
+            _executor.shutdownNow();
+            _pending.clear();
+            super.close();
+        }
+    }
+
     
     /** Draw the error onto a blank image. */
     private static @Nonnull BufferedImage makeErrorImage(@Nonnull ILocalizedMessage sErr, int iWidth, int iHeight) {
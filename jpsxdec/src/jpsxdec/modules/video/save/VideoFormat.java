@@ -60,9 +60,8 @@ public enum VideoFormat {
     AVI_YUV(I.VID_AVI_YUV_DESCRIPTION(), I.VID_AVI_YUV_COMMAND()) {
         public String getExtension() { return ".avi"; }
         public boolean isAvi() { return true; }
-        public int getDecodeQualityCount() { return 1; }
-        public MdecDecodeQuality getMdecDecodeQuality(int i) { return MdecDecodeQuality.HIGH; }
         public boolean mustHaveEvenDims()  { return true; };
+        public boolean upsamplesChroma() { return false; }
     },
     AVI_JYUV(I.VID_AVI_JYUV_DESCRIPTION(), I.VID_AVI_JYUV_COMMAND()) {
         public String getExtension() { return ".avi"; }
@@ -70,6 +69,13 @@ public enum VideoFormat {
         public int getDecodeQualityCount() { return 1; }
         public MdecDecodeQuality getMdecDecodeQuality(int i) { return MdecDecodeQuality.HIGH; }
         public boolean mustHaveEvenDims()  { return true; };
+        public boolean upsamplesChroma() { return false; }
+    },
+    Y4M(I.VID_Y4M_DESCRIPTION(), I.VID_Y4M_COMMAND()) {
+        public String getExtension() { return ".y4m"; }
+        public boolean isSingleFile() { return true; }
+        public boolean mustHaveEvenDims()  { return true; };
+        public boolean upsamplesChroma() { return false; }
     },
     IMGSEQ_PNG(I.VID_IMG_SEQ_PNG_DESCRIPTION(), I.VID_IMG_SEQ_PNG_COMMAND(),
                JavaImageFormat.PNG)
@@ -135,12 +141,18 @@ public enum VideoFormat {
     public boolean isCroppable() { return true; }
     public boolean mustHaveEvenDims()  { return false; };
 
+    /** If the chroma is upsampled before saving, otherwise the 4:2:0
+     * chroma is saved as is and chroma interpolation doesn't matter. */
+    public boolean upsamplesChroma() { return true; }
+
     public int getDecodeQualityCount() { return MdecDecodeQuality.values().length; }
     public @Nonnull MdecDecodeQuality getMdecDecodeQuality(int i) { return MdecDecodeQuality.values()[i]; }
 
-    /** If AVI, it means it can save audio, otherwise it is an image sequence. */
     public boolean isAvi() { return false; }
-    public boolean isSequence() { return !isAvi(); }
+    /** If the whole video is saved to one file, which means it can save audio,
+     * otherwise it is an image sequence. */
+    public boolean isSingleFile() { return isAvi(); }
+    public boolean isSequence() { return !isSingleFile(); }
 
     public @CheckForNull JavaImageFormat getImgFmt() { return _eImgFmt; }
 
@@ -54,6 +54,7 @@ import jpsxdec.i18n.log.ILocalizedLogger;
 import jpsxdec.i18n.log.ProgressLogger;
 import jpsxdec.modules.IIdentifiedSector;
 import jpsxdec.modules.SectorClaimSystem;
+import jpsxdec.modules.sharedaudio.DecodedAudioPacket;
 import jpsxdec.modules.sharedaudio.ISectorAudioDecoder;
 import jpsxdec.modules.video.DiscItemVideoStream;
 import jpsxdec.modules.video.IDemuxedFrame;
@@ -92,6 +93,18 @@ public class VideoSaver {
     private final FrameToBitstreamFilter _frame2bitstream;
     @CheckForNull
     private final ISectorAudioDecoder _audioDecoder;
+    /** Only if decoding with more than 1 thread. */
+    @CheckForNull
+    private VDP.Mdec2DecodedParallel _parallelDecode;
+    /** Only if saving MJPG with more than 1 thread. */
+    @CheckForNull
+    private VDP.Mdec2MjpegAviParallel _parallelMjpeg;
+    /** Only if saving PNG or BMP. */
+    @CheckForNull
+    private VDP.Decoded2ImageFiles _imageFiles;
+    /** Only if streaming Y4M. */
+    @CheckForNull
+    private VDP.Decoded2Y4m _y4m;
 
     public VideoSaver(@Nonnull DiscItemVideoStream vidItem,
                       @Nonnull VideoSaverBuilder vsb,
@@ -130,9 +143,13 @@ public class VideoSaver {
                 addBitstream2Mdec();
                 addMdec2Decoded(log);
                 JavaImageFormat javaImgFmt = _videoFormat.getImgFmt();
-                VDP.Decoded2JavaImage d2j = new VDP.Decoded2JavaImage(
-                        makeFormatter(), javaImgFmt, _vsb.getWidth(), _vsb.getHeight(), log);
-                _pipeline.setMap(d2j);
+                // encoding and writing the files happens on other threads
+                // so decoding isn't waiting for it
+                int iThreads = Math.max(1, _vsb.getDecodeThreads());
+                _imageFiles = new VDP.Decoded2ImageFiles(makeFormatter(), javaImgFmt,
+                        _vsb.getWidth(), _vsb.getHeight(), iThreads, log);
+                _imageFiles.setPngOptions(_vsb.getPngCompression(), _vsb.getPngFilter());
+                _pipeline.setMap(_imageFiles);
             } break;
 
             case IMGSEQ_JPG: {
@@ -144,10 +161,18 @@ public class VideoSaver {
             case AVI_MJPG: {
                 addBitstream2Mdec();
                 VDP.Mdec2MjpegAvi m2mjpg;
-                if (_audioDecoder == null)
-                    m2mjpg = new VDP.Mdec2MjpegAvi(getAviFile(), _vsb.getWidth(), _vsb.getHeight(), makeVSync(), log);
-                else
-                    m2mjpg = new VDP.Mdec2MjpegAvi(getAviFile(), _vsb.getWidth(), _vsb.getHeight(), makeAvSync(_audioDecoder), _audioDecoder.getOutputFormat(), log);
+                int iThreads = _vsb.getDecodeThreads();
+                if (iThreads > 1) {
+                    if (_audioDecoder == null)
+                        m2mjpg = _parallelMjpeg = new VDP.Mdec2MjpegAviParallel(getAviFile(), _vsb.getWidth(), _vsb.getHeight(), makeVSync(), iThreads, log);
+                    else
+                        m2mjpg = _parallelMjpeg = new VDP.Mdec2MjpegAviParallel(getAviFile(), _vsb.getWidth(), _vsb.getHeight(), makeAvSync(_audioDecoder), _audioDecoder.getOutputFormat(), iThreads, log);
+                } else {
+                    if (_audioDecoder == null)
+                        m2mjpg = new VDP.Mdec2MjpegAvi(getAviFile(), _vsb.getWidth(), _vsb.getHeight(), makeVSync(), log);
+                    else
+                        m2mjpg = new VDP.Mdec2MjpegAvi(getAviFile(), _vsb.getWidth(), _vsb.getHeight(), makeAvSync(_audioDecoder), _audioDecoder.getOutputFormat(), log);
+                }
                 _pipeline.setToAvi(m2mjpg);
                 toAvi = m2mjpg;
             } break;
@@ -188,18 +213,44 @@ public class VideoSaver {
                 toAvi = d2rgb;
             } break;
 
+            case Y4M: {
+                addBitstream2Mdec();
+                addMdec2Decoded(log);
+                File y4mFile = getStreamFile(_vsb.getY4mOutput(), getAviFile());
+                File timestampsFile = withExtension(getAviFile(), "_timestamps.txt");
+                if (_audioDecoder == null) {
+                    _y4m = new VDP.Decoded2Y4m(y4mFile, timestampsFile, _vsb.getWidth(), _vsb.getHeight(), makeVSync(), log);
+                } else {
+                    File wavFile = getStreamFile(_vsb.getWavOutput(), withExtension(getAviFile(), ".wav"));
+                    _y4m = new VDP.Decoded2Y4m(y4mFile, timestampsFile, _vsb.getWidth(), _vsb.getHeight(),
+                                               makeAvSync(_audioDecoder), _audioDecoder.getOutputFormat(), wavFile, log);
+                }
+                _pipeline.setMap(_y4m);
+            } break;
+
             default:
                 throw new RuntimeException();
         }
 
+        if (toAvi != null)
+            toAvi.setOpenDml(_vsb.getOpenDml());
+
         if (_audioDecoder == null) {
             _iStartSector = _vidItem.getStartSector();
             _iEndSector = _vidItem.getEndSector();
             _frame2bitstream = new FrameToBitstreamFilter(_vsb.getFileNumberType(), _vsb.getSaveStartFrame(), _vsb.getSaveEndFrame(), log);
         } else {
             _pipeline.setAudioDecoder(_audioDecoder);
-            if (toAvi != null)
-                _pipeline.setAudioPacketListener(toAvi);
+            DecodedAudioPacket.Listener audioListener = toAvi != null ? toAvi : _y4m;
+            if (audioListener != null) {
+                if (_parallelDecode != null) {
+                    // audio has to wait for the frames before it to decode
+                    _parallelDecode.setAudioListener(audioListener);
+                    _pipeline.setAudioPacketListener(_parallelDecode);
+                } else {
+                    _pipeline.setAudioPacketListener(audioListener);
+                }
+            }
 
             _iStartSector = Math.min(_vidItem.getStartSector(),
                                      _audioDecoder.getStartSector());
@@ -217,15 +268,30 @@ public class VideoSaver {
     }
 
     private void addMdec2Decoded(@Nonnull ILocalizedLogger log) {
+        int iThreads = _vsb.getDecodeThreads();
+        if (iThreads > 1) {
+            // twice the decoders so threads can keep decoding
+            // while finished frames wait to be written
+            MdecDecoder[] aoDecoders = new MdecDecoder[iThreads * 2];
+            for (int i = 0; i < aoDecoders.length; i++) {
+                aoDecoders[i] = makeDecoder();
+            }
+            _parallelDecode = new VDP.Mdec2DecodedParallel(aoDecoders, iThreads, log);
+            _pipeline.setMap(_parallelDecode);
+        } else {
+            VDP.Mdec2Decoded mdec2decode = new VDP.Mdec2Decoded(makeDecoder(), log);
+            _pipeline.setMap(mdec2decode);
+        }
+    }
+
+    private @Nonnull MdecDecoder makeDecoder() {
         MdecDecodeQuality quality = _vsb.getDecodeQuality();
         MdecDecoder vidDecoder = quality.makeDecoder(_vidItem.getWidth(), _vidItem.getHeight());
         if (vidDecoder instanceof MdecDecoder_double) {
             ChromaUpsample chroma = _vsb.getChromaInterpolation();
             ((MdecDecoder_double)vidDecoder).setUpsampler(chroma);
         }
-
-        VDP.Mdec2Decoded mdec2decode = new VDP.Mdec2Decoded(vidDecoder, log);
-        _pipeline.setMap(mdec2decode);
+        return vidDecoder;
     }
 
     private void startup(@Nonnull ILocalizedLogger log) throws LoggedFailure {
@@ -241,9 +307,26 @@ public class VideoSaver {
                 throw new LoggedFailure(log, Level.SEVERE, I.IO_WRITING_TO_FILE_ERROR_NAME(avi.getOutputFile().toString()), ex);
             }
         }
+        if (_y4m != null) {
+            try {
+                _y4m.open();
+            } catch (LocalizedFileNotFoundException ex) {
+                throw new LoggedFailure(log, Level.SEVERE, ex.getSourceMessage(), ex);
+            } catch (FileNotFoundException ex) {
+                throw new LoggedFailure(log, Level.SEVERE, I.IO_OPENING_FILE_ERROR_NAME(_y4m.getVideoName()), ex);
+            } catch (IOException ex) {
+                throw new LoggedFailure(log, Level.SEVERE, I.IO_WRITING_TO_FILE_ERROR_NAME(_y4m.getVideoName()), ex);
+            }
+        }
     }
 
     private void shutdown() {
+        if (_parallelDecode != null)
+            _parallelDecode.close();
+        if (_imageFiles != null)
+            _imageFiles.close();
+        if (_y4m != null)
+            IO.closeSilently(_y4m, LOG);
         VDP.ToAvi avi = _pipeline.getAvi();
         if (avi != null)
             IO.closeSilently(avi, LOG);
@@ -280,6 +363,12 @@ public class VideoSaver {
             }
 
             it.close(pl);
+            if (_parallelDecode != null)
+                _parallelDecode.flush();
+            if (_imageFiles != null)
+                _imageFiles.flush();
+            if (_parallelMjpeg != null)
+                _parallelMjpeg.flush();
             sendLogEvent(pl, _frame2bitstream);
             pl.progressEnd();
         } finally {
@@ -338,6 +427,28 @@ public class VideoSaver {
         return VideoFileNameFormatter.singleFile(_directory, _vidItem, _videoFormat);
     }
 
+    /** @param sOutput The file given by the user, or {@link VideoSaverBuilder#STDOUT}.
+     * @return null for stdout. */
+    private static @CheckForNull File getStreamFile(@CheckForNull String sOutput,
+                                                    @Nonnull File defaultFile)
+    {
+        if (sOutput == null)
+            return defaultFile;
+        else if (VideoSaverBuilder.STDOUT.equals(sOutput))
+            return null;
+        else
+            return new File(sOutput);
+    }
+
+    /** Replaces the extension of the file with the given suffix. */
+    private @Nonnull File withExtension(@Nonnull File file, @Nonnull String sSuffix) {
+        String sName = file.getName();
+        String sExtension = _videoFormat.getExtension();
+        if (sName.endsWith(sExtension))
+            sName = sName.substring(0, sName.length() - sExtension.length());
+        return new File(file.getParentFile(), sName + sSuffix);
+    }
+
     private @Nonnull VideoFileNameFormatter makeFormatter() {
         return new VideoFileNameFormatter(_directory, _vidItem, _videoFormat, false);
     }
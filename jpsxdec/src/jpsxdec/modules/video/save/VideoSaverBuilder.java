@@ -47,6 +47,7 @@ import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import jpsxdec.discitems.DiscItemSaverBuilder;
+import jpsxdec.formats.PngEncoder;
 import jpsxdec.i18n.FeedbackStream;
 import jpsxdec.i18n.I;
 import jpsxdec.i18n.ILocalizedMessage;
@@ -102,6 +103,10 @@ public abstract class VideoSaverBuilder extends DiscItemSaverBuilder {
                 other.setSingleSpeed(getSingleSpeed());
             if (getAudioVolume_enabled())
                 other.setAudioVolume(getAudioVolume());
+            other.setDecodeThreads(_iDecodeThreads);
+            other.setOpenDml(_blnOpenDml);
+            other.setPngCompression(_iPngCompression);
+            other.setPngFilter(_pngFilter);
             return true;
         }
         return false;
@@ -117,7 +122,7 @@ public abstract class VideoSaverBuilder extends DiscItemSaverBuilder {
      * @return array length 1 or 2. */
     public @Nonnull File[] getOutputFileRange() {
         VideoFormat vf = getVideoFormat();
-        if (vf.isAvi()) {
+        if (vf.isSingleFile()) {
             return new File[] { VideoFileNameFormatter.singleFile(null, _sourceVidItem, vf) };
         } else {
             VideoFileNameFormatter ff = new VideoFileNameFormatter(null, _sourceVidItem, vf, false);
@@ -168,7 +173,7 @@ public abstract class VideoSaverBuilder extends DiscItemSaverBuilder {
         firePossibleChange();
     }
     public boolean getSingleSpeed_enabled() {
-        return getVideoFormat().isAvi() &&
+        return getVideoFormat().isSingleFile() &&
                (findDiscSpeed() < 1);
     }
     public @Nonnull Fraction getFps() {
@@ -287,7 +292,8 @@ public abstract class VideoSaverBuilder extends DiscItemSaverBuilder {
 
     public boolean getChromaInterpolation_enabled() {
         MdecDecodeQuality q = getDecodeQuality();
-        return getDecodeQuality_enabled() && q != null && q.canUpsample();
+        return getDecodeQuality_enabled() && q != null && q.canUpsample() &&
+               getVideoFormat().upsamplesChroma();
     }
 
     public @Nonnull ChromaUpsample getChromaInterpolation_listItem(int i) {
@@ -312,8 +318,102 @@ public abstract class VideoSaverBuilder extends DiscItemSaverBuilder {
 
     // .........................................................................
 
+    private int _iDecodeThreads = 1;
+    /** Only formats that fully decode frames, or convert them to MJPG,
+     * can use more than 1 thread. No format does both, so one setting
+     * covers either kind of work. */
+    public boolean getDecodeThreads_enabled() {
+        return getVideoFormat().getDecodeQualityCount() > 0 ||
+               getVideoFormat() == VideoFormat.AVI_MJPG;
+    }
+    public int getDecodeThreads() {
+        if (getDecodeThreads_enabled())
+            return _iDecodeThreads;
+        else
+            return 1;
+    }
+    public void setDecodeThreads(int val) {
+        _iDecodeThreads = Math.max(1, val);
+        firePossibleChange();
+    }
+
+    // .........................................................................
+
+    private boolean _blnOpenDml = false;
+    /** Plain AVI is the default since more players understand it,
+     * but it is limited to 1GB. */
+    public boolean getOpenDml_enabled() {
+        return getVideoFormat().isAvi();
+    }
+    public boolean getOpenDml() {
+        return getOpenDml_enabled() && _blnOpenDml;
+    }
+    public void setOpenDml(boolean val) {
+        _blnOpenDml = val;
+        firePossibleChange();
+    }
+
+    // .........................................................................
+
+    private int _iPngCompression = PngEncoder.DEFAULT_COMPRESSION_LEVEL;
+    @Nonnull
+    private PngEncoder.Filter _pngFilter = PngEncoder.DEFAULT_FILTER;
+    public boolean getPngOptions_enabled() {
+        return getVideoFormat() == VideoFormat.IMGSEQ_PNG;
+    }
+    /** zlib compression level 0 (none) to 9 (best). */
+    public int getPngCompression() {
+        return _iPngCompression;
+    }
+    public void setPngCompression(int val) {
+        _iPngCompression = Math.max(0, Math.min(9, val));
+        firePossibleChange();
+    }
+    public @Nonnull PngEncoder.Filter getPngFilter() {
+        return _pngFilter;
+    }
+    public void setPngFilter(@Nonnull PngEncoder.Filter val) {
+        _pngFilter = val;
+        firePossibleChange();
+    }
+
+    // .........................................................................
+
+    /** Used in place of a file name to write to stdout. */
+    public static final String STDOUT = "-";
+
+    @CheckForNull
+    private String _sY4mOutput;
+    @CheckForNull
+    private String _sWavOutput;
+    /** Only the streamed format can be written somewhere other than the
+     * usual output file, such as stdout or a named pipe. */
+    public boolean getStreamOutput_enabled() {
+        return getVideoFormat() == VideoFormat.Y4M;
+    }
+    /** @return null to write to the usual output file,
+     *          or {@link #STDOUT} for stdout. */
+    public @CheckForNull String getY4mOutput() {
+        return getStreamOutput_enabled() ? _sY4mOutput : null;
+    }
+    public void setY4mOutput(@CheckForNull String val) {
+        _sY4mOutput = val;
+        firePossibleChange();
+    }
+    /** @return null to write next to the video,
+     *          or {@link #STDOUT} for stdout. */
+    public @CheckForNull String getWavOutput() {
+        return getStreamOutput_enabled() && getSavingAudio() ? _sWavOutput : null;
+    }
+    public void setWavOutput(@CheckForNull String val) {
+        _sWavOutput = val;
+        firePossibleChange();
+    }
+
+    // .........................................................................
+
     public boolean getFileNumberType_enabled() {
-        return !getVideoFormat().isAvi();
+        return !getVideoFormat().isSingleFile();
     }
 
     private final List<FrameNumber.Type> _types;
@@ -413,6 +513,32 @@ public abstract class VideoSaverBuilder extends DiscItemSaverBuilder {
         tfb.newRow();
         tfb.addCell(I.CMD_VIDEO_FRAMES()).addCell(I.CMD_VIDEO_FRAMES_HELP());
 
+        tfb.newRow();
+        tfb.addCell(I.CMD_VIDEO_THREADS()).addCell(I.CMD_VIDEO_THREADS_HELP());
+
+        tfb.newRow();
+        tfb.addCell(I.CMD_VIDEO_OPENDML()).addCell(I.CMD_VIDEO_OPENDML_HELP());
+
+        tfb.newRow();
+        tfb.addCell(I.CMD_VIDEO_PNGCOMPRESS())
+           .addCell(I.CMD_VIDEO_PNGCOMPRESS_HELP(PngEncoder.DEFAULT_COMPRESSION_LEVEL));
+
+        tfb.newRow();
+        tfb.addCell(I.CMD_VIDEO_PNGFILTER());
+        c = new Cell(I.CMD_VIDEO_PNGFILTER_HELP(PngEncoder.DEFAULT_FILTER.getCmdLine()));
+        for (PngEncoder.Filter filter : PngEncoder.Filter.values()) {
+            c.addLine(new UnlocalizedMessage(filter.getCmdLine()), 2);
+        }
+        tfb.addCell(c);
+
+        tfb.newRow();
+        tfb.addCell(I.CMD_VIDEO_Y4MOUT()).addCell(I.CMD_VIDEO_Y4MOUT_HELP());
+
+        if (hasAudio()) {
+            tfb.newRow();
+            tfb.addCell(I.CMD_VIDEO_WAVOUT()).addCell(I.CMD_VIDEO_WAVOUT_HELP());
+        }
+
         if (_sourceVidItem.shouldBeCropped()) {
             tfb.newRow();
             tfb.addCell(I.CMD_VIDEO_NOCROP()).addCell(I.CMD_VIDEO_NOCROP_HELP());
@@ -440,6 +566,12 @@ public abstract class VideoSaverBuilder extends DiscItemSaverBuilder {
         StringHolder startFrame = ap.addStringOption("-start");
         StringHolder endFrame = ap.addStringOption("-end");
         StringHolder num = ap.addStringOption("-num");
+        StringHolder threads = ap.addStringOption("-threads");
+        StringHolder y4mOut = ap.addStringOption("-y4mout");
+        StringHolder wavOut = ap.addStringOption("-wavout");
+        BooleanHolder openDml = ap.addBoolOption(false, "-opendml");
+        StringHolder pngCompress = ap.addStringOption("-pngcompress");
+        StringHolder pngFilter = ap.addStringOption("-pngfilter");
 
         //BooleanHolder emulatefps = ap.addBoolOption(false, "-psxfps"); // Mutually excusive with fps...
 
@@ -525,6 +657,41 @@ public abstract class VideoSaverBuilder extends DiscItemSaverBuilder {
 
         setCrop(!nocrop.value);
 
+        if (threads.value != null) {
+            try {
+                int iThreads = Integer.parseInt(threads.value);
+                if (iThreads >= 1)
+                    setDecodeThreads(iThreads);
+                else
+                    fbs.printlnWarn(I.CMD_IGNORING_INVALID_VALUE_FOR_CMD(threads.value, "-threads"));
+            } catch (NumberFormatException ex) {
+                fbs.printlnWarn(I.CMD_IGNORING_INVALID_VALUE_FOR_CMD(threads.value, "-threads"));
+            }
+        }
+
+        if (openDml.value)
+            setOpenDml(true);
+
+        if (pngCompress.value != null) {
+            try {
+                int iLevel = Integer.parseInt(pngCompress.value);
+                if (iLevel >= 0 && iLevel <= 9)
+                    setPngCompression(iLevel);
+                else
+                    fbs.printlnWarn(I.CMD_IGNORING_INVALID_VALUE_FOR_CMD(pngCompress.value, "-pngcompress"));
+            } catch (NumberFormatException ex) {
+                fbs.printlnWarn(I.CMD_IGNORING_INVALID_VALUE_FOR_CMD(pngCompress.value, "-pngcompress"));
+            }
+        }
+
+        if (pngFilter.value != null) {
+            PngEncoder.Filter filter = PngEncoder.Filter.fromCmdLine(pngFilter.value);
+            if (filter != null)
+                setPngFilter(filter);
+            else
+                fbs.printlnWarn(I.CMD_IGNORING_INVALID_VALUE_FOR_CMD(pngFilter.value, "-pngfilter"));
+        }
+
         if (discSpeed.value != null) {
             if ("1".equals(discSpeed.value)) {
                 setSingleSpeed(true);
@@ -534,6 +701,16 @@ public abstract class VideoSaverBuilder extends DiscItemSaverBuilder {
                 fbs.printWarn(I.CMD_IGNORING_INVALID_VALUE_FOR_CMD(discSpeed.value, "-ds"));
             }
         }
+
+        if (y4mOut.value != null)
+            setY4mOutput(y4mOut.value);
+        if (wavOut.value != null) {
+            // can't have both on stdout
+            if (STDOUT.equals(wavOut.value) && STDOUT.equals(y4mOut.value))
+                fbs.printlnWarn(I.CMD_IGNORING_INVALID_VALUE_FOR_CMD(wavOut.value, "-wavout"));
+            else
+                setWavOutput(wavOut.value);
+        }
     }
     @Override
     public void printSelectedOptions(@Nonnull ILocalizedLogger log) {
@@ -544,11 +721,17 @@ public abstract class VideoSaverBuilder extends DiscItemSaverBuilder {
         if (vidFmt.getDecodeQualityCount() > 0) {
             MdecDecodeQuality quality = getDecodeQuality();
             log.log(Level.INFO, I.CMD_DECODE_QUALITY(quality.toString()));
-            if (quality.canUpsample()) {
+            if (quality.canUpsample() && vidFmt.upsamplesChroma()) {
                 ChromaUpsample chroma = getChromaInterpolation();
                 log.log(Level.INFO, I.CMD_UPSAMPLE_QUALITY(chroma.getDescription().getLocalizedMessage()));
             }
         }
+        if (getDecodeThreads() > 1)
+            log.log(Level.INFO, I.CMD_DECODE_THREADS(getDecodeThreads()));
+        if (getOpenDml())
+            log.log(Level.INFO, I.CMD_OPENDML());
+        if (getPngOptions_enabled())
+            log.log(Level.INFO, I.CMD_PNG_OPTIONS(getPngCompression(), getPngFilter().getCmdLine()));
         
         if (getCrop_enabled())
             log.log(Level.INFO, I.CMD_CROPPING(getCrop() ? 1 : 0));
@@ -567,6 +750,8 @@ public abstract class VideoSaverBuilder extends DiscItemSaverBuilder {
             }
         } else {
             File outFile = VideoFileNameFormatter.singleFile(null, _sourceVidItem, vidFmt);
+            if (getY4mOutput() != null)
+                outFile = new File(getY4mOutput());
             log.log(Level.INFO, I.CMD_DISC_SPEED(getSingleSpeed() ? 1 : 2, getFps().asDouble()));
 
             if (getSavingAudio()) {
@@ -172,7 +172,7 @@ public class SectorBasedVideoSaverBuilder extends VideoSaverBuilder {
     }
 
     public boolean getParallelAudio_enabled() {
-        return getVideoFormat().isAvi() && getSaveStartFrame() == null;
+        return getVideoFormat().isSingleFile() && getSaveStartFrame() == null;
     }
 
     public boolean hasAudio() {
@@ -41,12 +41,14 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import jpsxdec.util.Fraction;
+import jpsxdec.util.IO;
 
 /** There are some unique frame rates that just don't make any sense.
  * These unique sequences of frame sectors just have to be manually
@@ -72,16 +74,80 @@ public class InconsistentFrameSequence {
         "DREDD15FPS.dat",
     };
 
+    /** Every sequence in {@link #FPS_LISTS}, parsed once on first use. */
+    @CheckForNull
+    private static Sequence[] _aoSequences;
+
+    private static synchronized @Nonnull Sequence[] getSequences() {
+        if (_aoSequences == null) {
+            Sequence[] aoSequences = new Sequence[FPS_LISTS.length];
+            for (int i = 0; i < FPS_LISTS.length; i++) {
+                aoSequences[i] = new Sequence(FPS_LISTS[i]);
+            }
+            _aoSequences = aoSequences;
+        }
+        return _aoSequences;
+    }
+
     public static @Nonnull LinkedList<InconsistentFrameSequence> generate(int iFirstFrameStartSector,
                                                                           int iFirstFrameEndSector)
     {
         LinkedList<InconsistentFrameSequence> possibles = new LinkedList<InconsistentFrameSequence>();
-        for (String sResource : FPS_LISTS) {
-            possibles.add(new InconsistentFrameSequence(sResource));
+        for (Sequence sequence : getSequences()) {
+            possibles.add(new InconsistentFrameSequence(sequence));
         }
         return possibles;
     }
 
+    /** A sectors/frame sequence text file, read into arrays of the frame
+     * start and end sectors. Never changes after it is loaded, so it is
+     * shared by every {@link InconsistentFrameSequence}. */
+    private static class Sequence {
+        @Nonnull
+        public final String sSourceResource;
+        @Nonnull
+        public final HeaderParse header;
+        /** Frame start sectors, always increasing. */
+        @Nonnull
+        public final int[] aiFrameStartSectors;
+        @Nonnull
+        public final int[] aiFrameEndSectors;
+
+        public Sequence(@Nonnull String sSourceResource) {
+            this.sSourceResource = sSourceResource;
+            InputStream is = InconsistentFrameSequence.class.getResourceAsStream(sSourceResource);
+            if (is == null)
+                throw new RuntimeException("Unable to find inconsistent frame resource " + sSourceResource);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is));
+            try {
+                // resource file should have at least 1 line
+                header = new HeaderParse(reader.readLine());
+                int[] aiStarts = new int[1024];
+                int[] aiEnds = new int[1024];
+                int iCount = 0;
+                String sLine;
+                while ((sLine = reader.readLine()) != null) {
+                    LineParse line = new LineParse(sLine);
+                    if (iCount > 0 && line.iFrameStartSector <= aiStarts[iCount-1])
+                        throw new RuntimeException("Frame start sectors out of order in " + sSourceResource);
+                    if (iCount == aiStarts.length) {
+                        aiStarts = Arrays.copyOf(aiStarts, iCount * 2);
+                        aiEnds = Arrays.copyOf(aiEnds, iCount * 2);
+                    }
+                    aiStarts[iCount] = line.iFrameStartSector;
+                    aiEnds[iCount] = line.iFrameEndSector;
+                    iCount++;
+                }
+                aiFrameStartSectors = Arrays.copyOf(aiStarts, iCount);
+                aiFrameEndSectors = Arrays.copyOf(aiEnds, iCount);
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            } finally {
+                IO.closeSilently(reader, LOG);
+            }
+        }
+    }
+
     /** Parses the header line in a sectors/frame sequence text file.
      * <pre>[sectors]/[per-frame] [audio start sector] [audio sector stride] [optional loop sector]</pre>
      * The 4 values can be delimited by anything that isn't a number.
@@ -132,83 +198,63 @@ public class InconsistentFrameSequence {
     // -------------------------------------------------------------------------
 
     @Nonnull
-    private BufferedReader _reader;
-    @Nonnull
-    private final String _sSourceResource;
-    @Nonnull
-    private final HeaderParse _header;
+    private final Sequence _sequence;
+    /** Index of the next frame in the sequence to compare. */
+    private int _iNextFrame = 0;
     private int _iLoopStartSector;
 
-    private InconsistentFrameSequence(@Nonnull String sSourceResource) {
-        _sSourceResource = sSourceResource;
-        try {
-            InputStream is = InconsistentFrameSequence.class.getResourceAsStream(sSourceResource);
-            if (is == null)
-                throw new RuntimeException("Unable to find inconsistent frame resource " + sSourceResource);
-            _reader = new BufferedReader(new InputStreamReader(is));
-            String sLine = _reader.readLine(); // read header
-            // resource file should have at least 1 line
-            _header = new HeaderParse(sLine);
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
-        }
+    private InconsistentFrameSequence(@Nonnull Sequence sequence) {
+        _sequence = sequence;
     }
-    
-    private @CheckForNull String readNextLine() throws IOException {
-        String sLine = _reader.readLine();
-        if (sLine == null) { 
-            // if at the end of the resource, but we're looping
-            if (_header.iLoopSector >= 0) {
-                // close and reopen the text resource
-                _reader.close(); // expose close exception
-                InputStream is = InconsistentFrameSequence.class.getResourceAsStream(_sSourceResource);
-                _reader = new BufferedReader(new InputStreamReader(is));
-                _reader.readLine(); // skip header
-                sLine = _reader.readLine();
-                _iLoopStartSector += _header.iLoopSector;
+
+    public boolean matchesNextVideo(int iFrameStartSector, int iFrameEndSector) {
+        int[] aiStarts = _sequence.aiFrameStartSectors;
+        // skip ahead to the first frame that doesn't start before this one
+        int iFrame;
+        while (true) {
+            iFrame = Arrays.binarySearch(aiStarts, _iNextFrame, aiStarts.length,
+                                         iFrameStartSector - _iLoopStartSector);
+            if (iFrame < 0)
+                iFrame = -(iFrame + 1);
+            if (iFrame < aiStarts.length)
+                break;
+
+            // if at the end of the sequence, but we're looping
+            if (_sequence.header.iLoopSector > 0) {
+                // back to the start
+                _iNextFrame = 0;
+                _iLoopStartSector += _sequence.header.iLoopSector;
             } else {
                 // darn, the movie is longer than we have defined in the sequence.
                 // we can probably assume it's a match, but this code
                 // TODO: should be changed to handle that and report.
                 // as for now, we'll fail
-                LOG.log(Level.WARNING, "Movie is longer than sequence {0}", _sSourceResource);
+                _iNextFrame = aiStarts.length;
+                LOG.log(Level.WARNING, "Movie is longer than sequence {0}", _sequence.sSourceResource);
+                return false;
             }
         }
-        return sLine;
-    }
+        _iNextFrame = iFrame + 1;
 
-    public boolean matchesNextVideo(int iFrameStartSector, int iFrameEndSector) {
-        try {
-            LineParse currentLineFrame;
-            do {
-                String sLine = readNextLine();
-                if (sLine == null)
-                    return false;
-                currentLineFrame = new LineParse(sLine);
-            } while (currentLineFrame.iFrameStartSector + _iLoopStartSector < iFrameStartSector);
-
-            // TODO: Check if frame lies between the previous and next frames (instead of just inside this frame)
-            // prevLineFrame.iFrameEndSector + _iLoopStartSector <= iFrameStartSector
-            // nextLineFrame.iFrameStartSector + _iLoopStartSector <= iFrameEndSector
-            if (currentLineFrame.iFrameStartSector + _iLoopStartSector <= iFrameStartSector &&
-                currentLineFrame.iFrameEndSector   + _iLoopStartSector >= iFrameEndSector)
-            {
-                return true;
-            } else {
-                return false;
-            }
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
+        // TODO: Check if frame lies between the previous and next frames (instead of just inside this frame)
+        // prevLineFrame.iFrameEndSector + _iLoopStartSector <= iFrameStartSector
+        // nextLineFrame.iFrameStartSector + _iLoopStartSector <= iFrameEndSector
+        if (aiStarts[iFrame]                        + _iLoopStartSector <= iFrameStartSector &&
+            _sequence.aiFrameEndSectors[iFrame]     + _iLoopStartSector >= iFrameEndSector)
+        {
+            return true;
+        } else {
+            return false;
         }
     }
 
     public @Nonnull Fraction getSectorsPerFrame() {
-        return new Fraction(_header.iSectors, _header.iPerFrame);
+        return new Fraction(_sequence.header.iSectors, _sequence.header.iPerFrame);
     }
 
     @Override
     public String toString() {
-        return _sSourceResource;
+        return _sequence.sSourceResource;
     }
 
 
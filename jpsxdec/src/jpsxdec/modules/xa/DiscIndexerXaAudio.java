@@ -147,6 +147,12 @@ public class DiscIndexerXaAudio extends DiscIndexer implements SectorClaimToSect
             return (_iAudioStride >= 0) &&
                    (iSectorNum > _currentXA.getSectorNumber() + _iAudioStride);
         }
+
+        /** If no sector at or after the given sector could be part of this stream. */
+        public boolean cannotContinueAt(int iSectorNum) {
+            int iMaxStride = _iAudioStride >= 0 ? _iAudioStride : SectorXaAudio.MAX_SECTOR_STRIDE;
+            return iSectorNum > _currentXA.getSectorNumber() + iMaxStride;
+        }
     }
 
 
@@ -213,4 +219,13 @@ public class DiscIndexerXaAudio extends DiscIndexer implements SectorClaimToSect
         }
     }
 
+    @Override
+    public boolean isIdleAt(int iSector) {
+        for (AudioStreamIndex audStream : _aoChannels) {
+            if (audStream != null && !audStream.cannotContinueAt(iSector))
+                return false;
+        }
+        return true;
+    }
+
 }
@@ -76,7 +76,6 @@ public class SectorClaimToSectorXaAudio extends SectorClaimSystem.SectorClaimer
         if (cs.isClaimed())
             return;
         CdSector cdSector = cs.getSector();
-        SectorXaAudio xaSect = null;
 
         SectorXaNull nullSect = new SectorXaNull(cdSector);
         if (nullSect.getProbability() > 0) {
@@ -84,12 +83,19 @@ public class SectorClaimToSectorXaAudio extends SectorClaimSystem.SectorClaimer
         } else {
             SectorXaAudio possibleXa = new SectorXaAudio(cdSector);
             if (possibleXa.getProbability() > 0) {
-                xaSect = possibleXa;
                 cs.claim(possibleXa);
+                cs.attach(this, possibleXa);
             }
         }
+    }
 
-        if (sectorIsInRange(cs.getSector().getSectorIndexFromStart())) {
+    public void sectorClaimed(@Nonnull SectorClaimSystem.ClaimedSector cs,
+                              @Nonnull ILocalizedLogger log)
+            throws SectorClaimSystem.ClaimerFailure
+    {
+        CdSector cdSector = cs.getSector();
+        if (sectorIsInRange(cdSector.getSectorIndexFromStart())) {
+            SectorXaAudio xaSect = (SectorXaAudio) cs.getAttachment(this);
             for (Listener listener : _listeners) {
                 try {
                     listener.feedXaSector(cdSector, xaSect, log);
@@ -116,4 +122,8 @@ public class SectorClaimToSectorXaAudio extends SectorClaimSystem.SectorClaimer
             listener.endOfSectors(log);
         }
     }
+
+    public boolean isIdleAt(int iSector) {
+        return true;
+    }
 }
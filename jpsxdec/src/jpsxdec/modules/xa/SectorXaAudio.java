@@ -57,6 +57,9 @@ public class SectorXaAudio extends IdentifiedSector {
      * between 0 and 31. Some games seem to use values outside of that range 
      * for both valid and null XA audio sectors. */
     public static final int MAX_VALID_CHANNEL = 254;
+    /** The largest number of sectors between XA sectors of the same stream
+     * (see {@link #calculateDiscSpeed(int, boolean, int, int)}). */
+    public static final int MAX_SECTOR_STRIDE = 32;
     
 
     private int _iSamplesPerSecond;
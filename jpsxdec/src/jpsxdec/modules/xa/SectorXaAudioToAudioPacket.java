@@ -37,8 +37,6 @@
 
 package jpsxdec.modules.xa;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.logging.Level;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -49,7 +47,6 @@ import jpsxdec.i18n.I;
 import jpsxdec.i18n.exception.LoggedFailure;
 import jpsxdec.i18n.log.ILocalizedLogger;
 import jpsxdec.modules.sharedaudio.DecodedAudioPacket;
-import jpsxdec.util.ByteArrayFPIS;
 import jpsxdec.util.Fraction;
 
 /** Converts a XA audio sector to a single decoded audio packet.
@@ -58,7 +55,11 @@ public class SectorXaAudioToAudioPacket implements SectorClaimToSectorXaAudio.Li
 
     @Nonnull
     private final XaAdpcmDecoder _decoder;
-    private final ByteArrayOutputStream _tempBuffer = new ByteArrayOutputStream();
+    /** ADPCM copied out of the sector. */
+    private final byte[] _abAdpcmBuffer = new byte[XaAdpcmDecoder.SIZEOF_SECTOR_ADPCM];
+    /** Decoded audio goes here when there is no listener to hand it to. */
+    @CheckForNull
+    private byte[] _abDiscardBuffer;
     private final int _iChannel;
     private final int _iSampleFramesPerSecond;
     @Nonnull
@@ -98,15 +99,19 @@ public class SectorXaAudioToAudioPacket implements SectorClaimToSectorXaAudio.Li
             xaSector.getSamplesPerSecond() != _iSampleFramesPerSecond)
             return;
 
-        _tempBuffer.reset();
         long lngSamplesWritten = _decoder.getSampleFramesWritten();
 
-        try {
-            ByteArrayFPIS inStream = xaSector.getIdentifiedUserDataStream();
-            _decoder.decode(inStream, _tempBuffer, xaSector.getSectorNumber());
-        } catch (IOException ex) {
-            throw new RuntimeException("Should not happen when reading/writing to/from byte stream", ex);
+        cdSector.getCdUserDataCopy(0, _abAdpcmBuffer, 0, _abAdpcmBuffer.length);
+        // packets may be queued by the listener, so each gets its own array
+        byte[] abPcm;
+        if (_listener != null) {
+            abPcm = new byte[_decoder.getPcmBytesPerSector()];
+        } else {
+            if (_abDiscardBuffer == null)
+                _abDiscardBuffer = new byte[_decoder.getPcmBytesPerSector()];
+            abPcm = _abDiscardBuffer;
         }
+        _decoder.decode(_abAdpcmBuffer, 0, abPcm, 0, xaSector.getSectorNumber());
 
         if (_decoder.hadCorruption())
             log.log(Level.WARNING, I.XA_AUDIO_CORRUPTED(xaSector.getSectorNumber(), lngSamplesWritten));
@@ -114,7 +119,7 @@ public class SectorXaAudioToAudioPacket implements SectorClaimToSectorXaAudio.Li
         if (_listener != null) {
             DecodedAudioPacket packet = new DecodedAudioPacket(_iChannel, _audioFormat,
                                                                new Fraction(xaSector.getSectorNumber()),
-                                                               _tempBuffer.toByteArray());
+                                                               abPcm);
 
             _listener.audioPacketComplete(packet, log);
         }
@@ -0,0 +1,302 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.psxvideo;
+
+import javax.annotation.Nonnull;
+import jpsxdec.util.Maths;
+
+/** Converts whole planes of {@link PsxYCbCr_int} values (as decoded by
+ * {@link jpsxdec.psxvideo.mdec.MdecDecoder_int}) straight into output
+ * buffers using lookup tables.
+ *<p>
+ * The RGB conversion is identical to {@link PsxYCbCr_int#toRgb(int, int, int, jpsxdec.formats.RGB)}
+ * followed by {@link jpsxdec.formats.RGB#toInt()}. The Rec.601 conversion is
+ * identical to {@link PsxYCbCr#toRec_601_YCbCr(jpsxdec.formats.Rec601YCbCr)}
+ * rounded and clamped to 0-255.
+ *<p>
+ * The chroma contribution to each channel is looked up, added to the
+ * luma, and the sum is clamped with another table. Decoded values are normally
+ * well within [{@link #TABLE_MIN}, {@link #TABLE_MAX}] but anything outside
+ * of that (i.e. really corrupted frames) is calculated the long way.
+ *<p>
+ * The planes are laid out like the {@link jpsxdec.psxvideo.mdec.MdecDecoder}
+ * buffers: chroma is subsampled 4:2:0 and its width is half the luma width. */
+public final class PsxYCbCrLut {
+
+    private PsxYCbCrLut() {}
+
+    /** Smallest luma or chroma value handled by the tables. */
+    public static final int TABLE_MIN = -1024;
+    /** Largest luma or chroma value handled by the tables. */
+    public static final int TABLE_MAX = 1023;
+    private static final int TABLE_BITS = 11;
+
+    /** Values of 0-255 for sums from -{@link #CLAMP_OFFSET} to
+     * {@link #CLAMP_OFFSET}-1. */
+    private static final int CLAMP_OFFSET = 4096;
+    private static final int[] CLAMP = new int[CLAMP_OFFSET * 2];
+
+    // RGB, values have 128 and CLAMP_OFFSET already added
+    private static final int[] CR_TO_R = new int[1 << TABLE_BITS];
+    private static final int[] CB_TO_B = new int[1 << TABLE_BITS];
+    // fixed-point since green is rounded after adding the Cb and Cr parts
+    private static final int[] CB_TO_G = new int[1 << TABLE_BITS];
+    private static final int[] CR_TO_G = new int[1 << TABLE_BITS];
+
+    // Rec.601 YCbCr, fixed-point with rounding added but not CLAMP_OFFSET.
+    // Needs the precision of long or ties round differently than PsxYCbCr.
+    private static final int REC601_FIXED_BITS = 32;
+    private static final long[] Y_TO_Y601 = new long[1 << TABLE_BITS];
+    private static final long[] CB_TO_Y601 = new long[1 << TABLE_BITS];
+    private static final long[] CR_TO_Y601 = new long[1 << TABLE_BITS];
+    private static final long[] CB_TO_CB601 = new long[1 << TABLE_BITS];
+    private static final long[] CR_TO_CB601 = new long[1 << TABLE_BITS];
+    private static final long[] CB_TO_CR601 = new long[1 << TABLE_BITS];
+    private static final long[] CR_TO_CR601 = new long[1 << TABLE_BITS];
+
+    static {
+        for (int i = 0; i < CLAMP.length; i++) {
+            int iVal = i - CLAMP_OFFSET;
+            CLAMP[i] = iVal < 0 ? 0 : iVal > 255 ? 255 : iVal;
+        }
+
+        final int iOffset = 128 + CLAMP_OFFSET;
+        final double dblRecFixed = 1L << REC601_FIXED_BITS;
+        final long lngRecHalf = 1L << (REC601_FIXED_BITS - 1);
+        for (int c = TABLE_MIN; c <= TABLE_MAX; c++) {
+            int i = c - TABLE_MIN;
+            CR_TO_R[i] = (int)Maths.shrRound(PsxYCbCr_int._1_402 * c, PsxYCbCr_int.FIXED_BITS) + iOffset;
+            CB_TO_B[i] = (int)Maths.shrRound(PsxYCbCr_int._1_772 * c, PsxYCbCr_int.FIXED_BITS) + iOffset;
+            CB_TO_G[i] = (int)(-PsxYCbCr_int._0_3437 * c);
+            // rounding and offset added here so the sum can just be shifted
+            CR_TO_G[i] = (int)(-PsxYCbCr_int._0_7143 * c)
+                       + (1 << (PsxYCbCr_int.FIXED_BITS - 1))
+                       + (iOffset << PsxYCbCr_int.FIXED_BITS);
+
+            // see PsxYCbCr.toRec_601_YCbCr()
+            Y_TO_Y601[i] = Math.round((c + 128) * (250./291.) * dblRecFixed)
+                         + (16L << REC601_FIXED_BITS) + lngRecHalf;
+            CB_TO_Y601[i] = Math.round(c * (-488509./2660418030.) * dblRecFixed);
+            CR_TO_Y601[i] = Math.round(c * (-82738./1330209015.) * dblRecFixed);
+            CB_TO_CB601[i] = Math.round(c * (4014411./4571165.) * dblRecFixed)
+                           + (128L << REC601_FIXED_BITS) + lngRecHalf;
+            CR_TO_CB601[i] = Math.round(c * (164./4571165.) * dblRecFixed);
+            CB_TO_CR601[i] = Math.round(c * (3673./27426990.) * dblRecFixed);
+            CR_TO_CR601[i] = Math.round(c * (8031459./9142330.) * dblRecFixed)
+                           + (128L << REC601_FIXED_BITS) + lngRecHalf;
+        }
+    }
+
+    /** If all the values (already offset by -{@link #TABLE_MIN}) can
+     * be looked up. */
+    private static boolean inTable(int iOr) {
+        return (iOr >>> TABLE_BITS) == 0;
+    }
+
+    /** @return 0xFFRRGGBB */
+    public static int toRgb(int y, int cb, int cr) {
+        int iY = y - TABLE_MIN, iCb = cb - TABLE_MIN, iCr = cr - TABLE_MIN;
+        if (!inTable(iY | iCb | iCr))
+            return toRgbOutOfTable(y, cb, cr);
+        int r = CLAMP[y + CR_TO_R[iCr]];
+        int g = CLAMP[y + ((CB_TO_G[iCb] + CR_TO_G[iCr]) >> PsxYCbCr_int.FIXED_BITS)];
+        int b = CLAMP[y + CB_TO_B[iCb]];
+        return 0xff000000 | (r << 16) | (g << 8) | b;
+    }
+
+    /** Same as {@link PsxYCbCr_int#toRgb(int, int, int, jpsxdec.formats.RGB)}. */
+    private static int toRgbOutOfTable(int y, int cb, int cr) {
+        int iYshift = y + 128;
+        int r = clamp(iYshift + Maths.shrRound(PsxYCbCr_int._1_402 * cr, PsxYCbCr_int.FIXED_BITS));
+        int g = clamp(iYshift + Maths.shrRound(-PsxYCbCr_int._0_3437 * cb - PsxYCbCr_int._0_7143 * cr,
+                                               PsxYCbCr_int.FIXED_BITS));
+        int b = clamp(iYshift + Maths.shrRound(PsxYCbCr_int._1_772 * cb, PsxYCbCr_int.FIXED_BITS));
+        return 0xff000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int clamp(long lng) {
+        return lng < 0 ? 0 : lng > 255 ? 255 : (int)lng;
+    }
+
+    /** Converts one row of pixels to 0xFFRRGGBB.
+     * @param iLumaOfs Start of the row in the luma plane.
+     * @param iChromaOfs Start of the row in the chroma planes. */
+    private static void rgbRow(@Nonnull int[] aiLuma, int iLumaOfs,
+                               @Nonnull int[] aiCb, @Nonnull int[] aiCr, int iChromaOfs,
+                               int iWidth, @Nonnull int[] aiDest, int iDestOfs)
+    {
+        final int iPairEnd = iLumaOfs + (iWidth & ~1);
+        while (iLumaOfs < iPairEnd) {
+            int y1 = aiLuma[iLumaOfs++], y2 = aiLuma[iLumaOfs++];
+            int cb = aiCb[iChromaOfs], cr = aiCr[iChromaOfs++];
+            int iCb = cb - TABLE_MIN, iCr = cr - TABLE_MIN;
+            if (inTable((y1 - TABLE_MIN) | (y2 - TABLE_MIN) | iCb | iCr)) {
+                int iR = CR_TO_R[iCr];
+                int iG = (CB_TO_G[iCb] + CR_TO_G[iCr]) >> PsxYCbCr_int.FIXED_BITS;
+                int iB = CB_TO_B[iCb];
+                aiDest[iDestOfs++] = 0xff000000 | (CLAMP[y1 + iR] << 16) | (CLAMP[y1 + iG] << 8) | CLAMP[y1 + iB];
+                aiDest[iDestOfs++] = 0xff000000 | (CLAMP[y2 + iR] << 16) | (CLAMP[y2 + iG] << 8) | CLAMP[y2 + iB];
+            } else {
+                aiDest[iDestOfs++] = toRgbOutOfTable(y1, cb, cr);
+                aiDest[iDestOfs++] = toRgbOutOfTable(y2, cb, cr);
+            }
+        }
+        if ((iWidth & 1) != 0)
+            aiDest[iDestOfs] = toRgb(aiLuma[iLumaOfs], aiCb[iChromaOfs], aiCr[iChromaOfs]);
+    }
+
+    /** Converts the upper-left of the planes to 0xFFRRGGBB,
+     * for example into the array of a {@link java.awt.image.DataBufferInt}.
+     * @param iSrcWidth Width of the luma plane.
+     * @param iDestStride Distance between rows in the output. */
+    public static void toRgb(@Nonnull int[] aiLuma, @Nonnull int[] aiCb, @Nonnull int[] aiCr,
+                             int iSrcWidth, int iWidth, int iHeight,
+                             @Nonnull int[] aiDest, int iDestStart, int iDestStride)
+    {
+        final int iChromaWidth = iSrcWidth / 2;
+        for (int iY = 0; iY < iHeight; iY++) {
+            rgbRow(aiLuma, iY * iSrcWidth, aiCb, aiCr, (iY >> 1) * iChromaWidth,
+                   iWidth, aiDest, iDestStart + iY * iDestStride);
+        }
+    }
+
+    /** Bytes in one row of a 24-bit DIB, which are padded to 4 bytes. */
+    public static int bgr24DibRowSize(int iWidth) {
+        return (iWidth * 3 + 3) & ~3;
+    }
+
+    /** Converts the upper-left of the planes to a packed 24-bit
+     * Device Independent Bitmap: bottom row first, pixels as blue, green, red,
+     * and every row padded with 0 to a multiple of 4 bytes.
+     * @param iSrcWidth Width of the luma plane.
+     * @see #bgr24DibRowSize(int) */
+    public static void toBgr24Dib(@Nonnull int[] aiLuma, @Nonnull int[] aiCb, @Nonnull int[] aiCr,
+                                  int iSrcWidth, int iWidth, int iHeight,
+                                  @Nonnull byte[] abDest, int iDestStart)
+    {
+        final int iChromaWidth = iSrcWidth / 2;
+        final int iRowSize = bgr24DibRowSize(iWidth);
+        final int iPairs = iWidth >> 1;
+        for (int iY = 0; iY < iHeight; iY++) {
+            int iLumaOfs = iY * iSrcWidth;
+            int iChromaOfs = (iY >> 1) * iChromaWidth;
+            int iDestOfs = iDestStart + (iHeight - 1 - iY) * iRowSize;
+            for (int i = 0; i < iPairs; i++) {
+                int y1 = aiLuma[iLumaOfs++], y2 = aiLuma[iLumaOfs++];
+                int cb = aiCb[iChromaOfs], cr = aiCr[iChromaOfs++];
+                int iCb = cb - TABLE_MIN, iCr = cr - TABLE_MIN;
+                if (inTable((y1 - TABLE_MIN) | (y2 - TABLE_MIN) | iCb | iCr)) {
+                    int iR = CR_TO_R[iCr];
+                    int iG = (CB_TO_G[iCb] + CR_TO_G[iCr]) >> PsxYCbCr_int.FIXED_BITS;
+                    int iB = CB_TO_B[iCb];
+                    abDest[iDestOfs++] = (byte)CLAMP[y1 + iB];
+                    abDest[iDestOfs++] = (byte)CLAMP[y1 + iG];
+                    abDest[iDestOfs++] = (byte)CLAMP[y1 + iR];
+                    abDest[iDestOfs++] = (byte)CLAMP[y2 + iB];
+                    abDest[iDestOfs++] = (byte)CLAMP[y2 + iG];
+                    abDest[iDestOfs++] = (byte)CLAMP[y2 + iR];
+                } else {
+                    iDestOfs = putBgr(toRgbOutOfTable(y1, cb, cr), abDest, iDestOfs);
+                    iDestOfs = putBgr(toRgbOutOfTable(y2, cb, cr), abDest, iDestOfs);
+                }
+            }
+            if ((iWidth & 1) != 0)
+                iDestOfs = putBgr(toRgb(aiLuma[iLumaOfs], aiCb[iChromaOfs], aiCr[iChromaOfs]), abDest, iDestOfs);
+            for (int iPad = iWidth * 3; iPad < iRowSize; iPad++)
+                abDest[iDestOfs++] = 0;
+        }
+    }
+
+    private static int putBgr(int iRgb, @Nonnull byte[] abDest, int iDestOfs) {
+        abDest[iDestOfs++] = (byte)iRgb;
+        abDest[iDestOfs++] = (byte)(iRgb >> 8);
+        abDest[iDestOfs++] = (byte)(iRgb >> 16);
+        return iDestOfs;
+    }
+
+    /** Converts the upper-left of the planes to Rec.601 YCbCr 4:2:0 planes,
+     * as used by YV12. The chroma is not resampled, just converted.
+     * @param iSrcWidth Width of the luma plane.
+     * @param iWidth Must be even.
+     * @param iHeight Must be even.
+     * @throws IllegalArgumentException if the dimensions are odd. */
+    public static void toRec601YCbCr420(@Nonnull int[] aiLuma, @Nonnull int[] aiCb, @Nonnull int[] aiCr,
+                                        int iSrcWidth, int iWidth, int iHeight,
+                                        @Nonnull byte[] abY, @Nonnull byte[] abCb, @Nonnull byte[] abCr)
+    {
+        if (((iWidth | iHeight) & 1) != 0)
+            throw new IllegalArgumentException("Dimensions must be even " + iWidth + "x" + iHeight);
+        final int iSrcChromaWidth = iSrcWidth / 2;
+        final int iChromaWidth = iWidth / 2;
+        for (int iCY = 0; iCY < iHeight / 2; iCY++) {
+            int iSrcLumaOfs1 = iCY * 2 * iSrcWidth, iSrcLumaOfs2 = iSrcLumaOfs1 + iSrcWidth;
+            int iSrcChromaOfs = iCY * iSrcChromaWidth;
+            int iLumaOfs1 = iCY * 2 * iWidth, iLumaOfs2 = iLumaOfs1 + iWidth;
+            int iChromaOfs = iCY * iChromaWidth;
+            for (int iCX = 0; iCX < iChromaWidth; iCX++) {
+                int cb = aiCb[iSrcChromaOfs], cr = aiCr[iSrcChromaOfs++];
+                int y1 = aiLuma[iSrcLumaOfs1++], y2 = aiLuma[iSrcLumaOfs1++];
+                int y3 = aiLuma[iSrcLumaOfs2++], y4 = aiLuma[iSrcLumaOfs2++];
+                int iCb = cb - TABLE_MIN, iCr = cr - TABLE_MIN;
+                if (inTable((y1 - TABLE_MIN) | (y2 - TABLE_MIN) | (y3 - TABLE_MIN) | (y4 - TABLE_MIN) | iCb | iCr)) {
+                    long lngYChroma = CB_TO_Y601[iCb] + CR_TO_Y601[iCr];
+                    abY[iLumaOfs1++] = (byte)CLAMP[(int)((Y_TO_Y601[y1 - TABLE_MIN] + lngYChroma) >> REC601_FIXED_BITS) + CLAMP_OFFSET];
+                    abY[iLumaOfs1++] = (byte)CLAMP[(int)((Y_TO_Y601[y2 - TABLE_MIN] + lngYChroma) >> REC601_FIXED_BITS) + CLAMP_OFFSET];
+                    abY[iLumaOfs2++] = (byte)CLAMP[(int)((Y_TO_Y601[y3 - TABLE_MIN] + lngYChroma) >> REC601_FIXED_BITS) + CLAMP_OFFSET];
+                    abY[iLumaOfs2++] = (byte)CLAMP[(int)((Y_TO_Y601[y4 - TABLE_MIN] + lngYChroma) >> REC601_FIXED_BITS) + CLAMP_OFFSET];
+                    abCb[iChromaOfs] = (byte)CLAMP[(int)((CB_TO_CB601[iCb] + CR_TO_CB601[iCr]) >> REC601_FIXED_BITS) + CLAMP_OFFSET];
+                    abCr[iChromaOfs] = (byte)CLAMP[(int)((CB_TO_CR601[iCb] + CR_TO_CR601[iCr]) >> REC601_FIXED_BITS) + CLAMP_OFFSET];
+                } else {
+                    double dblYChroma = cb * (-488509./2660418030.) + cr * (-82738./1330209015.) + 16;
+                    abY[iLumaOfs1++] = clampRound((y1+128)*(250./291.) + dblYChroma);
+                    abY[iLumaOfs1++] = clampRound((y2+128)*(250./291.) + dblYChroma);
+                    abY[iLumaOfs2++] = clampRound((y3+128)*(250./291.) + dblYChroma);
+                    abY[iLumaOfs2++] = clampRound((y4+128)*(250./291.) + dblYChroma);
+                    abCb[iChromaOfs] = clampRound(cb * (4014411./4571165.) + cr *     (164./4571165.) + 128);
+                    abCr[iChromaOfs] = clampRound(cb *   (3673./27426990.) + cr * (8031459./9142330.) + 128);
+                }
+                iChromaOfs++;
+            }
+        }
+    }
+
+    private static byte clampRound(double dbl) {
+        return (byte)clamp(Math.round(dbl));
+    }
+
+}
@@ -45,7 +45,9 @@ import jpsxdec.psxvideo.mdec.MdecException;
 import jpsxdec.util.Misc;
 
 /** A (hopefully) very fast bit reader. It can be initialized to read the bits
- * in big-endian order, or in 16-bit little-endian order. */
+ * in big-endian order, or in 16-bit little-endian order.
+ * Whole 16-bit words are loaded into a 64-bit buffer a few at a time, so
+ * peeking and skipping usually touch only the buffer. */
 public class ArrayBitReader {
 
     private static final Logger LOG = Logger.getLogger(ArrayBitReader.class.getName());
@@ -57,12 +59,13 @@ public class ArrayBitReader {
     protected final int _iDataSize;
     /** If 16-bit words should be read in big or little endian order. */
     private final boolean _blnLittleEndian;
-    /** Offset of first byte in the current word being read from the source buffer. */
+    /** Offset of the next word to be loaded from the source buffer. */
     protected int _iByteOffset;
-    /** The current 16-bit word value from the source data. */
-    protected short _siCurrentWord;
-    /** Bits remaining to be read from the current word. */
-    protected int _iBitsLeft;
+    /** Bits loaded from the source data but not yet read. The unread bits are
+     * the lowest {@link #_iBufferedBits} bits, anything above is garbage. */
+    private long _lngBuffer;
+    /** Number of unread bits in {@link #_lngBuffer}. */
+    private int _iBufferedBits;
 
     /** Quick lookup table to mask remaining bits. */
     private static final int BIT_MASK[] = {
@@ -100,7 +103,7 @@ public class ArrayBitReader {
             LOG.log(Level.WARNING, "Bitstream length is an odd number {0}, rounding to even number", iDataSize);
         _iByteOffset = iReadStart;
         _abData = abData;
-        _iBitsLeft = 0;
+        _iBufferedBits = 0;
         _blnLittleEndian = blnLittleEndian;
     }
 
@@ -108,6 +111,11 @@ public class ArrayBitReader {
     protected short readWord(int i) throws MdecException.EndOfStream {
         if (i + 1 >= _iDataSize)
             throw new MdecException.EndOfStream(MdecException.END_OF_BITSTREAM(i));
+        return (short)wordAt(i);
+    }
+
+    /** Unsigned 16-bits at the requested offset, without bounds checking. */
+    private int wordAt(int i) {
         int b1, b2;
         if (_blnLittleEndian) {
             b1 = _abData[i  ] & 0xFF;
@@ -116,69 +124,53 @@ public class ArrayBitReader {
             b1 = _abData[i+1] & 0xFF;
             b2 = _abData[i  ] & 0xFF;
         }
-        return (short)((b2 << 8) + b1);
+        return (b2 << 8) | b1;
+    }
+
+    /** Loads whole words into the bit buffer until it holds more than 48 bits
+     * or the data runs out. Never reads beyond the data. */
+    private void fill() {
+        while (_iBufferedBits <= 48 && _iByteOffset < _iDataSize) {
+            _lngBuffer = (_lngBuffer << 16) | wordAt(_iByteOffset);
+            _iByteOffset += 2;
+            _iBufferedBits += 16;
+        }
     }
 
-    /** Returns the offset to the current word that the bit reader is reading. */
+    /** Returns the offset just past the word that the bit reader is reading. */
     public int getWordPosition() {
-        return _iByteOffset;
+        return ((getBitsRead() + 15) >> 4) << 1;
     }
     
     public int getBitsRead() {
-        return _iByteOffset * 8 - _iBitsLeft;
+        return _iByteOffset * 8 - _iBufferedBits;
     }
 
     /** Returns the number of bits remaining in the source data. */
     public int getBitsRemaining() {
-        return (_iDataSize - _iByteOffset) * 8 + _iBitsLeft;
+        return (_iDataSize - _iByteOffset) * 8 + _iBufferedBits;
     }
 
     /** Reads the requested number of bits.
+     * If fewer bits remain, they are padded with trailing zeros.
      * @param iCount  expected to be from 1 to 31  */
     public int readUnsignedBits(int iCount) throws MdecException.EndOfStream {
         if (iCount < 0 || iCount >= 32)
             throw new IllegalArgumentException("Bits to read are out of range " + iCount);
         if (iCount == 0)
             return 0;
-        
-        // want to read the next 16-bit word only when it is needed
-        // so we don't try to buffer data beyond the array
-        if (_iBitsLeft == 0) {
-            _siCurrentWord = readWord(_iByteOffset);
-            _iByteOffset += 2;
-            _iBitsLeft = 16;
-        }
 
-        int iRet;
-        if (iCount <= _iBitsLeft) { // iCount <= _iBitsLeft <= 16
-            iRet = (_siCurrentWord >>> (_iBitsLeft - iCount)) & BIT_MASK[iCount];
-            _iBitsLeft -= iCount;
-        } else {
-            iRet = _siCurrentWord & BIT_MASK[_iBitsLeft];
-            iCount -= _iBitsLeft;
-            _iBitsLeft = 0;
-
-            try {
-                while (iCount >= 16) {
-                    iRet = (iRet << 16) | (readWord(_iByteOffset) & 0xFFFF);
-                    _iByteOffset += 2;
-                    iCount -= 16;
-                }
-
-                if (iCount > 0) { // iCount < 16
-                    _siCurrentWord = readWord(_iByteOffset);
-                    _iByteOffset += 2;
-                    _iBitsLeft = 16 - iCount;
-                    iRet = (iRet << iCount) | ((_siCurrentWord & 0xFFFF) >>> _iBitsLeft);
-                }
-            } catch (MdecException.EndOfStream ex) {
-                LOG.log(Level.FINE, "Bitstream is about to end", ex);
-                // _iBitsLeft will == 0
-                return iRet << iCount;
+        if (_iBufferedBits < iCount) {
+            fill();
+            if (_iBufferedBits < iCount) {
+                int iRet = endOfDataBits(iCount);
+                _iBufferedBits = 0;
+                return iRet;
             }
         }
 
-        return iRet;
+        _iBufferedBits -= iCount;
+        return (int)(_lngBuffer >>> _iBufferedBits) & BIT_MASK[iCount];
     }
     
     /** Reads the requested number of bits then sets the sign 
@@ -188,18 +180,30 @@ public class ArrayBitReader {
         return (readUnsignedBits(iCount) << (32 - iCount)) >> (32 - iCount); // extend sign bit
     }    
     
-    /** @param iCount  expected to be from 1 to 31  */
+    /** Same as {@link #readUnsignedBits(int)} but the bits are not consumed.
+     * @param iCount  expected to be from 1 to 31  */
     public int peekUnsignedBits(int iCount) throws MdecException.EndOfStream {
-        int iSaveOffs = _iByteOffset;
-        int iSaveBitsLeft = _iBitsLeft;
-        short siSaveCurrentWord = _siCurrentWord;
-        try {
-            return readUnsignedBits(iCount);
-        } finally {
-            _iByteOffset = iSaveOffs;
-            _iBitsLeft = iSaveBitsLeft;
-            _siCurrentWord = siSaveCurrentWord;
+        if (iCount < 0 || iCount >= 32)
+            throw new IllegalArgumentException("Bits to read are out of range " + iCount);
+        if (iCount == 0)
+            return 0;
+
+        if (_iBufferedBits < iCount) {
+            fill();
+            if (_iBufferedBits < iCount)
+                return endOfDataBits(iCount);
         }
+
+        return (int)(_lngBuffer >>> (_iBufferedBits - iCount)) & BIT_MASK[iCount];
+    }
+
+    /** The last bits in the data, padded with zeros to the requested size.
+     * @throws MdecException.EndOfStream if there are no bits left. */
+    private int endOfDataBits(int iCount) throws MdecException.EndOfStream {
+        if (_iBufferedBits == 0)
+            throw new MdecException.EndOfStream(MdecException.END_OF_BITSTREAM(_iByteOffset));
+        LOG.log(Level.FINE, "Bitstream is about to end");
+        return ((int)_lngBuffer & BIT_MASK[_iBufferedBits]) << (iCount - _iBufferedBits);
     }
     
     /** @param iCount  expected to be from 0 to 31  */
@@ -208,26 +212,24 @@ public class ArrayBitReader {
     }    
     
     public void skipBits(int iCount) throws MdecException.EndOfStream {
+        if (iCount <= _iBufferedBits) {
+            _iBufferedBits -= iCount;
+            return;
+        }
 
-        _iBitsLeft -= iCount;
-        if (_iBitsLeft < 0) {
-            // same as _iByteOffset += -(_iBitsLeft / 16)*2;
-            _iByteOffset += ((-_iBitsLeft) >> 4) << 1;
-            // same as _iBitsLeft = _iBitsLeft % 16;
-            _iBitsLeft = -((-_iBitsLeft) & 0xf);
-            if (_iByteOffset > _iDataSize) { // clearly out of bounds
-                _iBitsLeft = 0;
-                _iByteOffset = _iDataSize;
+        iCount -= _iBufferedBits;
+        _iBufferedBits = 0;
+        // jump over whole words without loading them
+        _iByteOffset += (iCount >> 4) << 1;
+        iCount &= 0xf;
+        if (_iByteOffset > _iDataSize) { // clearly out of bounds
+            _iByteOffset = _iDataSize;
+            throw new MdecException.EndOfStream(MdecException.END_OF_BITSTREAM(_iByteOffset));
+        } else if (iCount > 0) {
+            if (_iByteOffset == _iDataSize) // also out of bounds
                 throw new MdecException.EndOfStream(MdecException.END_OF_BITSTREAM(_iByteOffset));
-            } else if (_iBitsLeft < 0) { // _iBitsLeft should be <= 0
-                if (_iByteOffset == _iDataSize) { // also out of bounds
-                    _iBitsLeft = 0;
-                    throw new MdecException.EndOfStream(MdecException.END_OF_BITSTREAM(_iByteOffset));
-                }
-                _iBitsLeft += 16;
-                _siCurrentWord = readWord(_iByteOffset);
-                _iByteOffset += 2;
-            }
+            fill();
+            _iBufferedBits -= iCount;
         }
     }
 
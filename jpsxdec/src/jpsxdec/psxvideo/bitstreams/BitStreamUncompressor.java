@@ -40,6 +40,7 @@ package jpsxdec.psxvideo.bitstreams;
 import javax.annotation.Nonnull;
 import jpsxdec.psxvideo.mdec.Calc;
 import jpsxdec.psxvideo.mdec.MdecCode;
+import jpsxdec.psxvideo.mdec.MdecBlockInputStream;
 import jpsxdec.psxvideo.mdec.MdecContext;
 import jpsxdec.psxvideo.mdec.MdecException;
 import jpsxdec.psxvideo.mdec.MdecInputStream;
@@ -47,7 +48,7 @@ import jpsxdec.util.BinaryDataNotRecognized;
 
 /** Converts a (demuxed) video frame bitstream into an {@link MdecInputStream},
  * that can then be fed into an MDEC decoder to produce an image. */
-public abstract class BitStreamUncompressor implements MdecInputStream {
+public abstract class BitStreamUncompressor implements MdecBlockInputStream {
 
     final static public @Nonnull BitStreamUncompressor identifyUncompressor(
             @Nonnull byte[] abBitstream)
@@ -129,6 +130,9 @@ public abstract class BitStreamUncompressor implements MdecInputStream {
     /** Track the current Block's vector position to detect errors.  */
     private int _iCurrentBlockVectorPos = 0;
 
+    /** Reused by {@link #readBlock(int[], int[])}. */
+    private final MdecCode _blockCode = new MdecCode();
+
     /** Number of MDEC codes that have been read thus far. */
     public int getReadMdecCodeCount() { return _context.getTotalMdecCodesRead(); }
 
@@ -160,22 +164,22 @@ public abstract class BitStreamUncompressor implements MdecInputStream {
             _context.nextCode();
         } else {
             int i17bits = _bitReader.peekUnsignedBits(BitStreamCode.LONGEST_BITSTREAM_CODE_17BITS);
-            ZeroRunLengthAc bitCode = _lookupTable.lookup(i17bits);
-            _bitReader.skipBits(bitCode.getBitLength());
+            int iPackedCode = _lookupTable.lookupPacked(i17bits);
+            _bitReader.skipBits(ZeroRunLengthAcLookup.packedBitLength(iPackedCode));
 
-            assert !BitStreamDebugging.DEBUG || BitStreamDebugging.appendBits(bitCode.getBitString());
+            assert !BitStreamDebugging.DEBUG || BitStreamDebugging.appendBits(_lookupTable.getCode(iPackedCode).getBitString());
 
-            if (bitCode.isIsEndOfBlock()) {
+            if (ZeroRunLengthAcLookup.packedIsEndOfBlock(iPackedCode)) {
                 // end of block
                 code.setToEndOfData();
                 _iCurrentBlockVectorPos = 0;
                 _context.nextCodeEndBlock();
             } else {
                 // block continues
-                if (bitCode.isIsEscapeCode()) {
+                if (ZeroRunLengthAcLookup.packedIsEscapeCode(iPackedCode)) {
                     _escapeCodeReader.readAcEscapeCode(_bitReader, code);
                 } else {
-                    bitCode.getMdecCode(code);
+                    ZeroRunLengthAcLookup.packedMdecCode(iPackedCode, code);
                 }
 
                 _iCurrentBlockVectorPos += code.getTop6Bits() + 1;
@@ -192,6 +196,32 @@ public abstract class BitStreamUncompressor implements MdecInputStream {
         return _context.atStartOfBlock();
     }
 
+    final public int readBlock(@Nonnull int[] aiCoeffs, @Nonnull int[] aiQuantizationTable)
+            throws MdecException.EndOfStream, MdecException.ReadCorruption
+    {
+        final MdecCode code = _blockCode;
+        readMdecCode(code);
+
+        final int iQscale = code.getTop6Bits();
+        int iNonZeroCount = 0, iLastNonZeroPos = 0;
+        if (code.getBottom10Bits() != 0) {
+            aiCoeffs[0] = code.getBottom10Bits() * aiQuantizationTable[0];
+            iNonZeroCount = 1;
+        }
+
+        // readMdecCode() has already checked the vector position is in bounds
+        while (!readMdecCode(code)) {
+            int iAc = code.getBottom10Bits();
+            if (iAc != 0) {
+                int iPos = MdecInputStream.REVERSE_ZIG_ZAG_LOOKUP_LIST[_iCurrentBlockVectorPos];
+                aiCoeffs[iPos] = (iAc * aiQuantizationTable[iPos] * iQscale + 4) >> 3;
+                iNonZeroCount++;
+                iLastNonZeroPos = iPos;
+            }
+        }
+        return Calc.blockResult(iNonZeroCount, iLastNonZeroPos);
+    }
+
     /** Skips macroblocks that would fit within the given dimensions. */
     final public void skipMacroBlocks(int iPixelWidth, int iPixelHeight) throws MdecException.EndOfStream, MdecException.ReadCorruption {
         int iBlocksToSkip = Calc.blocks(iPixelWidth, iPixelHeight);
@@ -435,39 +435,36 @@ public class BitStreamUncompressor_Iki extends BitStreamUncompressor {
         @Override
         public @CheckForNull byte[] compressFull(@Nonnull byte[] abOriginal,
                                                  @Nonnull String sFrameDescription,
-                                                 @Nonnull MdecEncoder encoder,
-                                                 @Nonnull ILocalizedLogger log)
+                                                 @Nonnull final MdecEncoder encoder,
+                                                 @Nonnull final ILocalizedLogger log)
                 throws MdecException.EndOfStream, MdecException.ReadCorruption
         {
             // TODO: verify original bitstream is iki?
             
             // STEP 1: Find the minimum Qscale for all blocks that will fit frame
-            byte[] abNewDemux = null;
-            int iQscale;
-            for (iQscale = 1; iQscale < 64; iQscale++) {
-                log.log(Level.INFO, I.TRYING_QSCALE(iQscale));
-
-                int[] aiNewQscale = { iQscale, iQscale, iQscale,
-                                      iQscale, iQscale, iQscale };
-
-                for (MacroBlockEncoder macblk : encoder) {
-                    macblk.setToFullEncode(aiNewQscale);
-                }
+            QscaleSearch search = new QscaleSearch(sFrameDescription, abOriginal.length, log) {
+                protected byte[] encode(int iCandidate)
+                        throws MdecException.EndOfStream, MdecException.ReadCorruption
+                {
+                    int iQscale = iCandidate + 1;
+                    log.log(Level.INFO, I.TRYING_QSCALE(iQscale));
+
+                    int[] aiNewQscale = { iQscale, iQscale, iQscale,
+                                          iQscale, iQscale, iQscale };
+
+                    for (MacroBlockEncoder macblk : encoder) {
+                        macblk.setToFullEncode(aiNewQscale);
+                    }
 
-                try {
-                    abNewDemux = compress(encoder.getStream());
-                } catch (IncompatibleException ex) {
-                    throw new RuntimeException("The encoder should be compatible here", ex);
-                }
-                int iNewDemuxSize = abNewDemux.length;
-                if (iNewDemuxSize <= abOriginal.length) {
-                    log.log(Level.INFO, I.NEW_FRAME_FITS(sFrameDescription, iNewDemuxSize, abOriginal.length));
-                    break;
-                } else {
-                    log.log(Level.INFO, I.NEW_FRAME_DOES_NOT_FIT(sFrameDescription, iNewDemuxSize, abOriginal.length));
-                    abNewDemux = null;
+                    try {
+                        return compress(encoder.getStream());
+                    } catch (IncompatibleException ex) {
+                        throw new RuntimeException("The encoder should be compatible here", ex);
+                    }
                 }
-            }
+            };
+            byte[] abNewDemux = search.findFirstThatFits(63);
+            int iQscale = search.getFoundCandidate() + 1;
 
             if (abNewDemux != null && abNewDemux.length < abOriginal.length && iQscale > 1) {
                 // STEP 2: decrease the qscale of blocks with high energy
@@ -37,6 +37,7 @@
 
 package jpsxdec.psxvideo.bitstreams;
 
+import java.util.ArrayList;
 import java.util.logging.Level;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -425,43 +426,7 @@ public class BitStreamUncompressor_Lain extends BitStreamUncompressor {
                                                  @Nonnull ILocalizedLogger log)
                 throws MdecException.EndOfStream, MdecException.ReadCorruption
         {
-            int iLQscale = 1, iCQscale = 1;
-            while (iLQscale < 64 && iCQscale < 64) {
-                log.log(Level.INFO, I.TRYING_LUMA_CHROMA(iLQscale, iCQscale));
-
-                int[] aiNewQscale = { iCQscale, iCQscale,
-                                      iLQscale, iLQscale, iLQscale, iLQscale };
-
-                for (MacroBlockEncoder macblk : encoder) {
-                    macblk.setToFullEncode(aiNewQscale);
-                }
-
-                try {
-                    byte[] abNewDemux;
-                    try {
-                        abNewDemux = compress(encoder.getStream());
-                    } catch (IncompatibleException ex) {
-                        throw new RuntimeException("The encoder should be compatible here", ex);
-                    }
-
-                    int iNewDemuxSize = abNewDemux.length;
-                    if (iNewDemuxSize <= abOriginal.length) {
-                        log.log(Level.INFO, I.NEW_FRAME_FITS(sFrameDescription, iNewDemuxSize, abOriginal.length));
-                        return abNewDemux;
-                    } else {
-                        log.log(Level.INFO, I.NEW_FRAME_DOES_NOT_FIT(sFrameDescription, iNewDemuxSize, abOriginal.length));
-                    }
-                } catch (MdecException.TooMuchEnergy ex) {
-                    log.log(Level.INFO, I.COMPRESS_TOO_MUCH_ENERGY(sFrameDescription), ex);
-                }
-
-                if ((iLQscale / (double)iCQscale) < LUMA_TO_CHROMA_RATIO)
-                    iLQscale++;
-                else
-                    iCQscale++;
-            }
-
-            return null;
+            return findLumaChroma(abOriginal, sFrameDescription, encoder, log, null, 1, 1);
         }
 
         @Override
@@ -479,41 +444,60 @@ public class BitStreamUncompressor_Lain extends BitStreamUncompressor {
             final int iFrameCQscale = header.getChromaQscale();
             final int[] aiOriginalQscale = { iFrameCQscale, iFrameCQscale, iFrameLQscale,
                                              iFrameLQscale, iFrameLQscale, iFrameLQscale };
-            int iLQscale = iFrameLQscale, iCQscale = iFrameCQscale;
+            return findLumaChroma(abOriginal, sFrameDescription, encoder, log,
+                                  aiOriginalQscale, iFrameLQscale, iFrameCQscale);
+        }
+
+        /** Searches the luma and chroma quantization scales, starting at the
+         * given scales and increasing them together, keeping the luma scale
+         * about {@link #LUMA_TO_CHROMA_RATIO} times the chroma scale.
+         * @param aiOriginalQscale null for full encode, otherwise the
+         *                         original frame quantization scales
+         *                         for partial encode. */
+        private @CheckForNull byte[] findLumaChroma(@Nonnull byte[] abOriginal,
+                                                    @Nonnull final String sFrameDescription,
+                                                    @Nonnull final MdecEncoder encoder,
+                                                    @Nonnull final ILocalizedLogger log,
+                                                    @CheckForNull final int[] aiOriginalQscale,
+                                                    int iLQscale, int iCQscale)
+                throws MdecException.EndOfStream, MdecException.ReadCorruption
+        {
+            final ArrayList<int[]> lumaChromas = new ArrayList<int[]>();
             while (iLQscale < 64 && iCQscale < 64) {
-                log.log(Level.INFO, I.TRYING_LUMA_CHROMA(iLQscale, iCQscale));
+                lumaChromas.add(new int[] {iLQscale, iCQscale});
+                if ((iLQscale / (double)iCQscale) < LUMA_TO_CHROMA_RATIO)
+                    iLQscale++;
+                else
+                    iCQscale++;
+            }
 
-                int[] aiNewQscale = { iCQscale, iCQscale,
-                                      iLQscale, iLQscale, iLQscale, iLQscale };
+            QscaleSearch search = new QscaleSearch(sFrameDescription, abOriginal.length, log) {
+                protected byte[] encode(int iCandidate)
+                        throws MdecException.EndOfStream, MdecException.ReadCorruption
+                {
+                    int iL = lumaChromas.get(iCandidate)[0], iC = lumaChromas.get(iCandidate)[1];
+                    log.log(Level.INFO, I.TRYING_LUMA_CHROMA(iL, iC));
 
-                for (MacroBlockEncoder macblk : encoder) {
-                    macblk.setToPartialEncode(aiOriginalQscale, aiNewQscale);
-                }
+                    int[] aiNewQscale = { iC, iC, iL, iL, iL, iL };
+
+                    for (MacroBlockEncoder macblk : encoder) {
+                        if (aiOriginalQscale == null)
+                            macblk.setToFullEncode(aiNewQscale);
+                        else
+                            macblk.setToPartialEncode(aiOriginalQscale, aiNewQscale);
+                    }
 
-                try {
-                    byte[] abNewDemux;
                     try {
-                        abNewDemux = compress(encoder.getStream());
+                        return compress(encoder.getStream());
                     } catch (IncompatibleException ex) {
                         throw new RuntimeException("The encoder should be compatible here", ex);
+                    } catch (MdecException.TooMuchEnergy ex) {
+                        log.log(Level.INFO, I.COMPRESS_TOO_MUCH_ENERGY(sFrameDescription), ex);
+                        return null;
                     }
-
-                    if (abNewDemux.length <= abOriginal.length) {
-                        log.log(Level.INFO, I.NEW_FRAME_FITS(sFrameDescription, abNewDemux.length, abOriginal.length));
-                        return abNewDemux;
-                    } else {
-                        log.log(Level.INFO, I.NEW_FRAME_DOES_NOT_FIT(sFrameDescription, abNewDemux.length, abOriginal.length));
-                    }
-                } catch (MdecException.TooMuchEnergy ex) {
-                    log.log(Level.INFO, I.COMPRESS_TOO_MUCH_ENERGY(sFrameDescription), ex);
                 }
-
-                if ((iLQscale / (double)iCQscale) < LUMA_TO_CHROMA_RATIO)
-                    iLQscale++;
-                else
-                    iCQscale++;
-            }
-            return null;
+            };
+            return search.findFirstThatFits(lumaChromas.size());
         }
 
 
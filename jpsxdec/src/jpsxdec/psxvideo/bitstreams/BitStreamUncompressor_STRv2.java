@@ -194,74 +194,70 @@ public class BitStreamUncompressor_STRv2 extends BitStreamUncompressor {
 
         public @CheckForNull byte[] compressFull(@Nonnull byte[] abOriginal,
                                                  @Nonnull String sFrameDescription,
-                                                 @Nonnull MdecEncoder encoder, 
-                                                 @Nonnull ILocalizedLogger log)
+                                                 @Nonnull final MdecEncoder encoder, 
+                                                 @Nonnull final ILocalizedLogger log)
                 throws MdecException.EndOfStream, MdecException.ReadCorruption
         {
-            for (int iQscale = 1; iQscale < 64; iQscale++) {
-                log.log(Level.INFO, I.TRYING_QSCALE(iQscale));
-
-                int[] aiNewQscale = { iQscale, iQscale, iQscale,
-                                      iQscale, iQscale, iQscale };
-
-                for (MacroBlockEncoder macblk : encoder) {
-                    macblk.setToFullEncode(aiNewQscale);
-                }
+            QscaleSearch search = new QscaleSearch(sFrameDescription, abOriginal.length, log) {
+                protected byte[] encode(int iCandidate)
+                        throws MdecException.EndOfStream, MdecException.ReadCorruption
+                {
+                    int iQscale = iCandidate + 1;
+                    log.log(Level.INFO, I.TRYING_QSCALE(iQscale));
+
+                    int[] aiNewQscale = { iQscale, iQscale, iQscale,
+                                          iQscale, iQscale, iQscale };
+
+                    for (MacroBlockEncoder macblk : encoder) {
+                        macblk.setToFullEncode(aiNewQscale);
+                    }
 
-                byte[] abNewDemux;
-                try {
-                    abNewDemux = compress(encoder.getStream());
-                } catch (IncompatibleException ex) {
-                    throw new RuntimeException("The encoder should be compatible here", ex);
-                } catch (MdecException.TooMuchEnergy ex) {
-                    throw new RuntimeException("This should not happen with STRv2", ex);
+                    return compressEncoder(encoder);
                 }
-                if (abNewDemux.length <= abOriginal.length) {
-                    log.log(Level.INFO, I.NEW_FRAME_FITS(sFrameDescription, abNewDemux.length, abOriginal.length));
-                    return abNewDemux;
-                } else {
-                    log.log(Level.INFO, I.NEW_FRAME_DOES_NOT_FIT(sFrameDescription, abNewDemux.length, abOriginal.length));
-                }
-            }
-            return null;
+            };
+            return search.findFirstThatFits(63);
         }
 
         public @CheckForNull byte[] compressPartial(@Nonnull byte[] abOriginal,
                                                     @Nonnull String sFrameDescription,
-                                                    @Nonnull MdecEncoder encoder,
-                                                    @Nonnull ILocalizedLogger log)
+                                                    @Nonnull final MdecEncoder encoder,
+                                                    @Nonnull final ILocalizedLogger log)
                 throws LocalizedIncompatibleException, MdecException.EndOfStream, MdecException.ReadCorruption
         {
             final int iFrameQscale = getFrameQscale(abOriginal);
-            int[] aiOriginalQscale = { iFrameQscale, iFrameQscale, iFrameQscale,
-                                       iFrameQscale, iFrameQscale, iFrameQscale };
-            
-            for (int iNewQscale = iFrameQscale; iNewQscale < 64; iNewQscale++) {
-                log.log(Level.INFO, I.TRYING_QSCALE(iNewQscale));
+            final int[] aiOriginalQscale = { iFrameQscale, iFrameQscale, iFrameQscale,
+                                             iFrameQscale, iFrameQscale, iFrameQscale };
 
-                int[] aiNewQscale = { iNewQscale, iNewQscale, iNewQscale,
-                                      iNewQscale, iNewQscale, iNewQscale };
+            QscaleSearch search = new QscaleSearch(sFrameDescription, abOriginal.length, log) {
+                protected byte[] encode(int iCandidate)
+                        throws MdecException.EndOfStream, MdecException.ReadCorruption
+                {
+                    int iNewQscale = iFrameQscale + iCandidate;
+                    log.log(Level.INFO, I.TRYING_QSCALE(iNewQscale));
 
-                for (MacroBlockEncoder macblk : encoder) {
-                    macblk.setToPartialEncode(aiOriginalQscale, aiNewQscale);
-                }
+                    int[] aiNewQscale = { iNewQscale, iNewQscale, iNewQscale,
+                                          iNewQscale, iNewQscale, iNewQscale };
 
-                byte[] abNewDemux;
-                try {
-                    abNewDemux = compress(encoder.getStream());
-                } catch (IncompatibleException ex) {
-                    throw new RuntimeException("The encoder should be compatible here", ex);
-                } catch (MdecException.TooMuchEnergy ex) {
-                    throw new RuntimeException("This should not happen with STRv2", ex);
-                }
-                if (abNewDemux.length <= abOriginal.length) {
-                    log.log(Level.INFO, I.NEW_FRAME_FITS(sFrameDescription, abNewDemux.length, abOriginal.length));
-                    return abNewDemux;
-                } else {
-                    log.log(Level.INFO, I.NEW_FRAME_DOES_NOT_FIT(sFrameDescription, abNewDemux.length, abOriginal.length));
+                    for (MacroBlockEncoder macblk : encoder) {
+                        macblk.setToPartialEncode(aiOriginalQscale, aiNewQscale);
+                    }
+
+                    return compressEncoder(encoder);
                 }
+            };
+            return search.findFirstThatFits(64 - iFrameQscale);
+        }
+
+        private @Nonnull byte[] compressEncoder(@Nonnull MdecEncoder encoder)
+                throws MdecException.EndOfStream, MdecException.ReadCorruption
+        {
+            try {
+                return compress(encoder.getStream());
+            } catch (IncompatibleException ex) {
+                throw new RuntimeException("The encoder should be compatible here", ex);
+            } catch (MdecException.TooMuchEnergy ex) {
+                throw new RuntimeException("This should not happen with STRv2", ex);
             }
-            return null;
         }
 
         public @Nonnull byte[] compress(@Nonnull MdecInputStream inStream)
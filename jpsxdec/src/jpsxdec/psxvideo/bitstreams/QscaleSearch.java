@@ -0,0 +1,152 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.psxvideo.bitstreams;
+
+import java.util.logging.Level;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.i18n.I;
+import jpsxdec.i18n.log.ILocalizedLogger;
+import jpsxdec.psxvideo.mdec.MdecException;
+
+/** Finds the first of a sequence of increasingly lossy encoding candidates
+ * (usually quantization scales) whose encoded frame fits in the space of
+ * the original frame.
+ *<p>
+ * The encoded size only shrinks as the quantization scale grows, so instead
+ * of trying every candidate in order, it tries candidates 0, 1, 3, 7, 15...
+ * until one fits, then bisects between the last one that didn't fit and the
+ * one that did. Frames that fit at a low quantization scale (the common case)
+ * still only take a couple of tries, and the worst case is about a dozen
+ * tries instead of 63.
+ *<p>
+ * The macroblock encoders and the compressor keep the state of the last
+ * encode, so if the last candidate tried was not the one found, it is encoded
+ * again at the end so the state matches the returned frame. */
+abstract class QscaleSearch {
+
+    @Nonnull
+    private final String _sFrameDescription;
+    private final int _iMaxSize;
+    @Nonnull
+    private final ILocalizedLogger _log;
+
+    private int _iTrialCount = 0;
+    private int _iLastTried = -1;
+    private int _iFound = -1;
+
+    public QscaleSearch(@Nonnull String sFrameDescription, int iMaxSize,
+                        @Nonnull ILocalizedLogger log)
+    {
+        _sFrameDescription = sFrameDescription;
+        _iMaxSize = iMaxSize;
+        _log = log;
+    }
+
+    /** Encode the frame using the given candidate.
+     * @return the encoded frame, or null if the candidate can't be used
+     *         (i.e. it has too much energy). */
+    abstract protected @CheckForNull byte[] encode(int iCandidate)
+            throws MdecException.EndOfStream, MdecException.ReadCorruption;
+
+    /** @return the encoded frame of the first candidate that fits, or null
+     *          if none of the candidates fit. */
+    public @CheckForNull byte[] findFirstThatFits(int iCandidateCount)
+            throws MdecException.EndOfStream, MdecException.ReadCorruption
+    {
+        // the highest candidate known not to fit, and the lowest known to fit
+        int iDoesNotFit = -1, iFits = -1;
+        byte[] abFits = null;
+
+        int iCandidate = 0, iStep = 1;
+        while (iCandidate < iCandidateCount) {
+            abFits = tryCandidate(iCandidate);
+            if (abFits != null) {
+                iFits = iCandidate;
+                break;
+            }
+            iDoesNotFit = iCandidate;
+            if (iCandidate == iCandidateCount - 1)
+                break;
+            iCandidate = Math.min(iCandidate + iStep, iCandidateCount - 1);
+            iStep *= 2;
+        }
+
+        if (abFits != null) {
+            while (iFits - iDoesNotFit > 1) {
+                int iMid = (iDoesNotFit + iFits) >>> 1;
+                byte[] ab = tryCandidate(iMid);
+                if (ab != null) {
+                    iFits = iMid;
+                    abFits = ab;
+                } else {
+                    iDoesNotFit = iMid;
+                }
+            }
+            if (_iLastTried != iFits)
+                abFits = encode(iFits);
+        }
+
+        _iFound = iFits;
+        _log.log(Level.INFO, I.QSCALE_SEARCH_TRIALS(_sFrameDescription, _iTrialCount));
+        return abFits;
+    }
+
+    private @CheckForNull byte[] tryCandidate(int iCandidate)
+            throws MdecException.EndOfStream, MdecException.ReadCorruption
+    {
+        _iTrialCount++;
+        _iLastTried = iCandidate;
+        byte[] abNewDemux = encode(iCandidate);
+        if (abNewDemux == null)
+            return null;
+        if (abNewDemux.length <= _iMaxSize) {
+            _log.log(Level.INFO, I.NEW_FRAME_FITS(_sFrameDescription, abNewDemux.length, _iMaxSize));
+            return abNewDemux;
+        } else {
+            _log.log(Level.INFO, I.NEW_FRAME_DOES_NOT_FIT(_sFrameDescription, abNewDemux.length, _iMaxSize));
+            return null;
+        }
+    }
+
+    /** @return the candidate found by the last search, or -1 if none fit. */
+    public int getFoundCandidate() {
+        return _iFound;
+    }
+
+}
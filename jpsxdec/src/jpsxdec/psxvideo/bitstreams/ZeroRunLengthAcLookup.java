@@ -229,6 +229,14 @@ public class ZeroRunLengthAcLookup implements Iterable<ZeroRunLengthAc> {
      * index in this table to get the corresponding code. */
     private final ZeroRunLengthAc[] _aoTable_000000000xxxxxxxx = new ZeroRunLengthAc[256];
 
+    /** Packed entry for every bit code not starting with 7 zero bits
+     * (all of which are 11 bits or less), indexed by the first 11 bits.
+     * See {@link #lookupPacked(int)}. */
+    private final int[] _aiPacked_xxxxxxxxxxx = new int[1 << 11];
+    /** Packed entry for every bit code starting with 7 zero bits
+     * (all of which are 13 to 17 bits), indexed by the last 10 bits. */
+    private final int[] _aiPacked_0000000xxxxxxxxxx = new int[1 << 10];
+
     private ZeroRunLengthAcLookup(@Nonnull ZeroRunLengthAc[] aoList) {
         _aoList = aoList;
         for (int i = 0; i < aoList.length; i++) {
@@ -237,6 +245,7 @@ public class ZeroRunLengthAcLookup implements Iterable<ZeroRunLengthAc> {
             if (zrlac == null)
                 throw new IllegalStateException("Table incomplete: missing " + bitStreamCode);
             setBits(bitStreamCode, zrlac);
+            setPacked(bitStreamCode, zrlac);
         }
     }
 
@@ -274,6 +283,43 @@ public class ZeroRunLengthAcLookup implements Iterable<ZeroRunLengthAc> {
         }
     }
 
+    /** Places the bit code in the packed tables. */
+    private void setPacked(@Nonnull BitStreamCode bsc, @Nonnull ZeroRunLengthAc zrlac) {
+        final int[] aiTable;
+        final String sIndexBits;
+        final int iIndexLength;
+        if (bsc.getString().startsWith("0000000")) {
+            aiTable = _aiPacked_0000000xxxxxxxxxx;
+            sIndexBits = bsc.getString().substring(7);
+            iIndexLength = 10;
+        } else {
+            aiTable = _aiPacked_xxxxxxxxxxx;
+            sIndexBits = bsc.getString();
+            iIndexLength = 11;
+        }
+        final int iBitsRemain = iIndexLength - sIndexBits.length();
+        if (iBitsRemain < 0)
+            throw new RuntimeException("Bit code too long for packed table " + bsc);
+        final int iTableStart = Integer.parseInt(sIndexBits, 2) << iBitsRemain;
+
+        int iPacked = bsc.getLength() | (bsc.ordinal() << PACKED_ORDINAL_SHIFT);
+        if (zrlac.isIsEscapeCode())
+            iPacked |= PACKED_ESCAPE_CODE;
+        if (zrlac.isIsEndOfBlock())
+            iPacked |= PACKED_END_OF_BLOCK;
+        MdecCode mdecCode = zrlac.getMdecCodeCopy();
+        if (mdecCode != null)
+            iPacked |= mdecCode.toMdecWord() << PACKED_MDEC_SHIFT;
+
+        final int iTableEntriesToAssociate = (1 << iBitsRemain);
+        for (int i = 0; i < iTableEntriesToAssociate; i++) {
+            if (aiTable[iTableStart + i] != 0)
+                throw new RuntimeException("Trying to replace " + getCode(aiTable[iTableStart + i]) +
+                                           " with " + zrlac);
+            aiTable[iTableStart + i] = iPacked;
+        }
+    }
+
     // #########################################################################
 
     public @Nonnull Iterator<ZeroRunLengthAc> iterator() {
@@ -295,6 +341,7 @@ public class ZeroRunLengthAcLookup implements Iterable<ZeroRunLengthAc> {
 
     /** Useful bitmasks. */
     private static final int
+        b11111110000000000 = 0x1FC00,
         b11000000000000000 = 0x18000,
         b10000000000000000 = 0x10000,
         b01000000000000000 = 0x08000,
@@ -330,6 +377,59 @@ public class ZeroRunLengthAcLookup implements Iterable<ZeroRunLengthAc> {
         }
     }
 
+    // ..................................................
+
+    /** Packed entry bits 0-4: length of the bit code. */
+    private static final int PACKED_LENGTH_MASK = 0x1F;
+    /** Packed entry bit 5: is the escape code. */
+    private static final int PACKED_ESCAPE_CODE = 1 << 5;
+    /** Packed entry bit 6: is the end of block code. */
+    private static final int PACKED_END_OF_BLOCK = 1 << 6;
+    /** Packed entry bits 7-14: {@link BitStreamCode#ordinal()}. */
+    private static final int PACKED_ORDINAL_SHIFT = 7;
+    /** Packed entry bits 16-31: the MDEC code as a 16-bit word. */
+    private static final int PACKED_MDEC_SHIFT = 16;
+
+    /** Same as {@link #lookup(int)} but with at most 2 array reads and
+     * no objects. Returns the code packed into an int, to be unpacked with
+     * {@link #packedBitLength(int)}, {@link #packedIsEscapeCode(int)},
+     * {@link #packedIsEndOfBlock(int)} and {@link #packedMdecCode(int, MdecCode)}.
+     *
+     * @param i17bits  Integer containing 17 bits to decode.
+     */
+    public int lookupPacked(final int i17bits) throws MdecException.ReadCorruption {
+        final int iPacked;
+        if ((i17bits & b11111110000000000) != 0)
+            iPacked = _aiPacked_xxxxxxxxxxx[(i17bits >> 6) & 0x7ff];
+        else
+            iPacked = _aiPacked_0000000xxxxxxxxxx[i17bits & 0x3ff];
+        if (iPacked == 0)
+            throw new MdecException.ReadCorruption(UNMATCHED_AC_VLC(i17bits));
+        return iPacked;
+    }
+
+    public static int packedBitLength(int iPacked) {
+        return iPacked & PACKED_LENGTH_MASK;
+    }
+
+    public static boolean packedIsEscapeCode(int iPacked) {
+        return (iPacked & PACKED_ESCAPE_CODE) != 0;
+    }
+
+    public static boolean packedIsEndOfBlock(int iPacked) {
+        return (iPacked & PACKED_END_OF_BLOCK) != 0;
+    }
+
+    /** Only valid for codes that have an MDEC equivalent. */
+    public static void packedMdecCode(int iPacked, @Nonnull MdecCode out) {
+        out.set(iPacked >>> PACKED_MDEC_SHIFT);
+    }
+
+    /** The code a packed entry was made from. */
+    public @Nonnull ZeroRunLengthAc getCode(int iPacked) {
+        return _aoList[(iPacked >> PACKED_ORDINAL_SHIFT) & 0xff];
+    }
+
     private static @Nonnull String UNMATCHED_AC_VLC(int i17bits) {
         return "Unmatched AC variable length code: " +
                Misc.bitsToString(i17bits, LONGEST_BITSTREAM_CODE_17BITS);
@@ -43,6 +43,7 @@ import java.util.Iterator;
 import java.util.List;
 import javax.annotation.Nonnull;
 import jpsxdec.psxvideo.mdec.Calc;
+import jpsxdec.psxvideo.mdec.MdecBlockInputStream;
 import jpsxdec.psxvideo.mdec.MdecCode;
 import jpsxdec.psxvideo.mdec.MdecException;
 import jpsxdec.psxvideo.mdec.MdecInputStream;
@@ -146,10 +147,11 @@ public class MdecEncoder implements Iterable<MacroBlockEncoder> {
         return _iPixHeight;
     }
 
-    private class EncodedMdecInputStream implements MdecInputStream {
+    private class EncodedMdecInputStream implements MdecBlockInputStream {
 
         private int __iCurMacBlk = 0;
         private Iterator<MdecCode> __curMb;
+        private final MdecCode __blockCode = new MdecCode();
 
         public EncodedMdecInputStream() {
             __curMb = _aoMacroBlocks[__iCurMacBlk].iterator();
@@ -167,6 +169,34 @@ public class MdecEncoder implements Iterable<MacroBlockEncoder> {
             return code.isEOD(); // hopefully no bad EOD codes are part of the list
         }
 
+        /** The encoder only makes valid codes, so the run length is not checked. */
+        public int readBlock(@Nonnull int[] aiCoeffs, @Nonnull int[] aiQuantizationTable)
+                throws MdecException.EndOfStream
+        {
+            final MdecCode code = __blockCode;
+            readMdecCode(code);
+
+            final int iQscale = code.getTop6Bits();
+            int iNonZeroCount = 0, iLastNonZeroPos = 0;
+            if (code.getBottom10Bits() != 0) {
+                aiCoeffs[0] = code.getBottom10Bits() * aiQuantizationTable[0];
+                iNonZeroCount = 1;
+            }
+
+            int iVectorPos = 0;
+            while (!readMdecCode(code)) {
+                iVectorPos += code.getTop6Bits() + 1;
+                int iAc = code.getBottom10Bits();
+                if (iAc != 0) {
+                    int iPos = MdecInputStream.REVERSE_ZIG_ZAG_LOOKUP_LIST[iVectorPos];
+                    aiCoeffs[iPos] = (iAc * aiQuantizationTable[iPos] * iQscale + 4) >> 3;
+                    iNonZeroCount++;
+                    iLastNonZeroPos = iPos;
+                }
+            }
+            return Calc.blockResult(iNonZeroCount, iLastNonZeroPos);
+        }
+
     }
 
 }
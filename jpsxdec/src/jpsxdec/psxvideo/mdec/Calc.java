@@ -67,4 +67,20 @@ public class Calc {
     public static short calculateHalfCeiling32(int iMdecCodeCount) {
         return (short) ((((iMdecCodeCount + 1) / 2) + 31) & ~31);
     }
+
+    /** Packs the result of {@link MdecBlockInputStream#readBlock(int[], int[])}. */
+    public static int blockResult(int iNonZeroCount, int iLastNonZeroPosition) {
+        return (iLastNonZeroPosition << 8) | iNonZeroCount;
+    }
+
+    /** Number of non-zero coefficients from a {@link #blockResult(int, int)}. */
+    public static int nonZeroCount(int iBlockResult) {
+        return iBlockResult & 0xff;
+    }
+
+    /** Matrix position of the last non-zero coefficient from a
+     * {@link #blockResult(int, int)}. Only meaningful if there is one. */
+    public static int lastNonZeroPosition(int iBlockResult) {
+        return iBlockResult >>> 8;
+    }
 }
@@ -0,0 +1,63 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.psxvideo.mdec;
+
+import javax.annotation.Nonnull;
+
+/** An {@link MdecInputStream} that can also read a whole block at once.
+ * Decoders use it when available to skip the call and {@link MdecCode}
+ * for every code in the block. */
+public interface MdecBlockInputStream extends MdecInputStream {
+
+    /** Reads the next block's (qscale, DC) code, AC codes, and end of block
+     * code. Each non-zero coefficient is dequantized the same way as
+     * {@link MdecDecoder_int} (the DC is only multiplied by its quantization
+     * table entry) and written to its un-zig-zagged position in
+     * {@code aiCoeffs}. Positions without a coefficient are not touched,
+     * so {@code aiCoeffs} should be all zeros.
+     *
+     * @param aiCoeffs  64 coefficients in matrix order.
+     * @param aiQuantizationTable  64 quantization values in matrix order.
+     * @return The non-zero coefficient count and the position of the last
+     *         one, see {@link Calc#nonZeroCount(int)} and
+     *         {@link Calc#lastNonZeroPosition(int)}.
+     */
+    int readBlock(@Nonnull int[] aiCoeffs, @Nonnull int[] aiQuantizationTable)
+            throws MdecException.EndOfStream, MdecException.ReadCorruption;
+
+}
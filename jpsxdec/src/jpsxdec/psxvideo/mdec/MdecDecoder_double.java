@@ -67,6 +67,12 @@ public class MdecDecoder_double extends MdecDecoder {
 
     /** Matrix of 8x8 coefficient values. */
     private final double[] _CurrentBlock = new double[64];
+    /** Coefficients from {@link MdecBlockInputStream#readBlock(int[], int[])},
+     * still multiplied by 8. */
+    private final int[] _aiBlockCoeffsX8 = new int[64];
+    /** Quantization table multiplied by 8 for
+     * {@link MdecBlockInputStream#readBlock(int[], int[])}. */
+    private final int[] _aiQuantizationTableX8 = new int[64];
 
     /** Temp buffer for upsampled Cr. */
     @Nonnull
@@ -100,6 +106,11 @@ public class MdecDecoder_double extends MdecDecoder {
     public void decode(@Nonnull MdecInputStream sourceMdecInStream)
             throws MdecException.EndOfStream, MdecException.ReadCorruption
     {
+        if (!DEBUG && sourceMdecInStream instanceof MdecBlockInputStream) {
+            decodeBlocks((MdecBlockInputStream) sourceMdecInStream);
+            return;
+        }
+
         Ac0Checker mdecInStream = Ac0Checker.wrapWithChecker(sourceMdecInStream, false);
 
         int iCurrentBlockQscale;
@@ -196,6 +207,41 @@ public class MdecDecoder_double extends MdecDecoder {
         }
     }
 
+    /** Same as {@link #decode(MdecInputStream)} but reads a block at a time.
+     * The blocks are read with the quantization table scaled by 8 so the
+     * coefficients come back before the division by 8, which is then done
+     * in floating point like the normal path. */
+    private void decodeBlocks(@Nonnull MdecBlockInputStream mdecInStream)
+            throws MdecException.EndOfStream, MdecException.ReadCorruption
+    {
+        for (int i = 0; i < _aiQuantizationTableX8.length; i++)
+            _aiQuantizationTableX8[i] = _aiQuantizationTable[i] * 8;
+
+        MdecContext context = new MdecContext(_iMacBlockHeight);
+
+        try {
+            while (context.getTotalMacroBlocksRead() < _iTotalMacBlocks) {
+                for (int iBlock = 0; iBlock < MdecBlock.count(); iBlock++) {
+                    int iBlockResult = mdecInStream.readBlock(_aiBlockCoeffsX8, _aiQuantizationTableX8);
+                    for (int i = 0; i < 64; i++) {
+                        _CurrentBlock[i] = _aiBlockCoeffsX8[i] / 8.0;
+                        _aiBlockCoeffsX8[i] = 0;
+                    }
+                    writeEndOfBlock(context.getTotalMacroBlocksRead(), context.getCurrentBlock().ordinal(),
+                            Calc.nonZeroCount(iBlockResult),
+                            Calc.lastNonZeroPosition(iBlockResult));
+                    context.nextCodeEndBlock();
+                }
+            }
+        } finally {
+            Arrays.fill(_aiBlockCoeffsX8, 0);
+            while (context.getTotalMacroBlocksRead() < _iTotalMacBlocks) {
+                writeEndOfBlock(context.getTotalMacroBlocksRead(), context.getCurrentBlock().ordinal(), 0, 0);
+                context.nextCodeEndBlock();
+            }
+        }
+    }
+
     private boolean debugPrintBlock(@Nonnull String sMsg) {
         System.out.println(sMsg);
         for (int i = 0; i < 8; i++) {
@@ -39,8 +39,8 @@ package jpsxdec.psxvideo.mdec;
 
 import java.util.Arrays;
 import javax.annotation.Nonnull;
-import jpsxdec.formats.RGB;
-import jpsxdec.psxvideo.PsxYCbCr_int;
+import jpsxdec.formats.YCbCrImage;
+import jpsxdec.psxvideo.PsxYCbCrLut;
 import jpsxdec.psxvideo.mdec.idct.IDCT_int;
 
 /** A full Java, integer based implementation of the PlayStation 1 MDEC chip.
@@ -69,6 +69,11 @@ public class MdecDecoder_int extends MdecDecoder {
     public void decode(@Nonnull MdecInputStream sourceMdecInStream)
             throws MdecException.EndOfStream, MdecException.ReadCorruption
     {
+        if (!DEBUG && sourceMdecInStream instanceof MdecBlockInputStream) {
+            decodeBlocks((MdecBlockInputStream) sourceMdecInStream);
+            return;
+        }
+
         Ac0Checker mdecInStream = Ac0Checker.wrapWithChecker(sourceMdecInStream, false);
 
         int iCurrentBlockQscale;
@@ -167,6 +172,31 @@ public class MdecDecoder_int extends MdecDecoder {
         }
     }
 
+    /** Same as {@link #decode(MdecInputStream)} but reads a block at a time. */
+    private void decodeBlocks(@Nonnull MdecBlockInputStream mdecInStream)
+            throws MdecException.EndOfStream, MdecException.ReadCorruption
+    {
+        MdecContext context = new MdecContext(_iMacBlockHeight);
+
+        try {
+            while (context.getTotalMacroBlocksRead() < _iTotalMacBlocks) {
+                for (int iBlock = 0; iBlock < MdecBlock.count(); iBlock++) {
+                    Arrays.fill(_CurrentBlock, 0);
+                    int iBlockResult = mdecInStream.readBlock(_CurrentBlock, _aiQuantizationTable);
+                    writeEndOfBlock(context.getTotalMacroBlocksRead(), context.getCurrentBlock().ordinal(),
+                            Calc.nonZeroCount(iBlockResult),
+                            Calc.lastNonZeroPosition(iBlockResult));
+                    context.nextCodeEndBlock();
+                }
+            }
+        } finally {
+            while (context.getTotalMacroBlocksRead() < _iTotalMacBlocks) {
+                writeEndOfBlock(context.getTotalMacroBlocksRead(), context.getCurrentBlock().ordinal(), 0, 0);
+                context.nextCodeEndBlock();
+            }
+        }
+    }
+
     private boolean debugPrintBlock(@Nonnull String sMsg) {
         System.out.println(sMsg);
         for (int i = 0; i < 8; i++) {
@@ -225,105 +255,24 @@ public class MdecDecoder_int extends MdecDecoder {
     public void readDecodedRgb(int iDestWidth, int iDestHeight, @Nonnull int[] aiDest,
                                int iOutStart, int iOutStride)
     {
-        final PsxYCbCr_int psxycc = new PsxYCbCr_int();
-        final RGB rgb1 = new RGB(), rgb2 = new RGB(), rgb3 = new RGB(), rgb4 = new RGB();
-
-        final int W_x2 = W*2, iOutStride_x2 = iOutStride*2;
-        
-        final int iDestWidthSub1 = iDestWidth - 1;
-        final int iDestHeightSub1 = iDestHeight - 1;
-
-        int iLumaLineOfsStart = 0, iChromaLineOfsStart = 0,
-            iDestLineOfsStart = iOutStart;
-        int iY=0;
-        for (; iY < iDestHeightSub1; iY+=2,
-             iLumaLineOfsStart+=W_x2, iChromaLineOfsStart+=CW,
-             iDestLineOfsStart+=iOutStride_x2)
-        {
-            // writes 2 lines at a time
-            int iSrcLumaOfs1 = iLumaLineOfsStart,
-                iSrcLumaOfs2 = iLumaLineOfsStart + W,
-                iSrcChromaOfs = iChromaLineOfsStart,
-                iDestOfs1 = iDestLineOfsStart,
-                iDestOfs2 = iDestLineOfsStart + iOutStride;
-
-            int iX=0;
-            for (; iX < iDestWidthSub1; iX+=2,
-                 iSrcChromaOfs++)
-            {
-                psxycc.cr = _aiCrBuffer[iSrcChromaOfs];
-                psxycc.cb = _aiCbBuffer[iSrcChromaOfs];
-
-                psxycc.y1 = _aiLumaBuffer[iSrcLumaOfs1++];
-                psxycc.y2 = _aiLumaBuffer[iSrcLumaOfs1++];
-                psxycc.y3 = _aiLumaBuffer[iSrcLumaOfs2++];
-                psxycc.y4 = _aiLumaBuffer[iSrcLumaOfs2++];
-
-                psxycc.toRgb(rgb1, rgb2, rgb3, rgb4);
-
-                aiDest[iDestOfs1++] = rgb1.toInt();
-                aiDest[iDestOfs1++] = rgb2.toInt();
-                aiDest[iDestOfs2++] = rgb3.toInt();
-                aiDest[iDestOfs2++] = rgb4.toInt();
-            }
-
-            if (iX < iDestWidth) {
-                // if the width is odd, add 2 pixels
-                psxycc.cr = _aiCrBuffer[iSrcChromaOfs];
-                psxycc.cb = _aiCbBuffer[iSrcChromaOfs];
-
-                psxycc.y1 = _aiLumaBuffer[iSrcLumaOfs1];
-                psxycc.y2 = _aiLumaBuffer[iSrcLumaOfs1];
-                psxycc.y3 = _aiLumaBuffer[iSrcLumaOfs2];
-                psxycc.y4 = _aiLumaBuffer[iSrcLumaOfs2];
-
-                psxycc.toRgb(rgb1, rgb2, rgb3, rgb4); // rgb2,4 ignored
-
-                aiDest[iDestOfs1] = rgb1.toInt();
-                aiDest[iDestOfs2] = rgb3.toInt();
-            }
-        }
-
-        if (iY < iDestHeight) {
-            // if the height is odd, write 1 line
-            int iSrcLumaOfs1 = iLumaLineOfsStart,
-                iSrcLumaOfs2 = iLumaLineOfsStart + W,
-                iSrcChromaOfs = iChromaLineOfsStart,
-                iDestOfs1 = iDestLineOfsStart;
-
-            int iX=0;
-            for (; iX < iDestWidthSub1; iX+=2,
-                 iSrcChromaOfs++)
-            {
-                psxycc.cr = _aiCrBuffer[iSrcChromaOfs];
-                psxycc.cb = _aiCbBuffer[iSrcChromaOfs];
-
-                psxycc.y1 = _aiLumaBuffer[iSrcLumaOfs1++];
-                psxycc.y2 = _aiLumaBuffer[iSrcLumaOfs1++];
-                psxycc.y3 = _aiLumaBuffer[iSrcLumaOfs2++];
-                psxycc.y4 = _aiLumaBuffer[iSrcLumaOfs2++];
-
-                psxycc.toRgb(rgb1, rgb2, rgb3, rgb4); // rgb3,4 ignored
-
-                aiDest[iDestOfs1++] = rgb1.toInt();
-                aiDest[iDestOfs1++] = rgb2.toInt();
-            }
-
-            if (iX < iDestWidth) {
-                // if the width is odd, add 1 pixel
-                psxycc.cr = _aiCrBuffer[iSrcChromaOfs];
-                psxycc.cb = _aiCbBuffer[iSrcChromaOfs];
-
-                psxycc.y1 = _aiLumaBuffer[iSrcLumaOfs1];
-                psxycc.y2 = _aiLumaBuffer[iSrcLumaOfs1];
-                psxycc.y3 = _aiLumaBuffer[iSrcLumaOfs2];
-                psxycc.y4 = _aiLumaBuffer[iSrcLumaOfs2];
+        PsxYCbCrLut.toRgb(_aiLumaBuffer, _aiCbBuffer, _aiCrBuffer, W,
+                          iDestWidth, iDestHeight, aiDest, iOutStart, iOutStride);
+    }
 
-                psxycc.toRgb(rgb1, rgb2, rgb3, rgb4); // rgb2,3,4 ignored
+    /** Converts the decoded image directly into a 24-bit DIB frame
+     * (bottom-up BGR with rows padded to 4 bytes).
+     * @see PsxYCbCrLut#toBgr24Dib(int[], int[], int[], int, int, int, byte[], int) */
+    public void readDecodedBgr24Dib(int iDestWidth, int iDestHeight, @Nonnull byte[] abDest) {
+        PsxYCbCrLut.toBgr24Dib(_aiLumaBuffer, _aiCbBuffer, _aiCrBuffer, W,
+                               iDestWidth, iDestHeight, abDest, 0);
+    }
 
-                aiDest[iDestOfs1] = rgb1.toInt();
-            }
-        }
+    /** Converts the decoded image to Rec.601 YCbCr without going through RGB.
+     * @see PsxYCbCrLut#toRec601YCbCr420(int[], int[], int[], int, int, int, byte[], byte[], byte[]) */
+    public void readDecoded_Rec601_YCbCr420(@Nonnull YCbCrImage ycc) {
+        PsxYCbCrLut.toRec601YCbCr420(_aiLumaBuffer, _aiCbBuffer, _aiCrBuffer, W,
+                                     ycc.getWidth(), ycc.getHeight(),
+                                     ycc.getY(), ycc.getCb(), ycc.getCr());
     }
 
 }
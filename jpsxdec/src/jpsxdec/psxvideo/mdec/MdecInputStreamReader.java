@@ -49,12 +49,16 @@ import javax.annotation.Nonnull;
 import jpsxdec.util.IO;
 
 /** Wraps an InputStream (or creates a FileInputStream) to read MDEC values from. */
-public class MdecInputStreamReader implements MdecInputStream {
+public class MdecInputStreamReader implements MdecBlockInputStream {
 
     private static final Logger LOG = Logger.getLogger(MdecInputStreamReader.class.getName());
 
     @Nonnull
     private final ByteArrayInputStream _in;
+    /** Blocks read with {@link #readBlock(int[], int[])}, for error messages. */
+    private int _iBlocksRead = 0;
+    /** Reused by {@link #readBlock(int[], int[])}. */
+    private final MdecCode _blockCode = new MdecCode();
 
     public MdecInputStreamReader(@Nonnull File file) throws FileNotFoundException, IOException {
         this(IO.readFile(file));
@@ -80,8 +84,41 @@ public class MdecInputStreamReader implements MdecInputStream {
         }
     }
 
+    public int readBlock(@Nonnull int[] aiCoeffs, @Nonnull int[] aiQuantizationTable)
+            throws MdecException.EndOfStream, MdecException.ReadCorruption
+    {
+        final MdecCode code = _blockCode;
+        readMdecCode(code);
+
+        final int iQscale = code.getTop6Bits();
+        int iNonZeroCount = 0, iLastNonZeroPos = 0;
+        if (code.getBottom10Bits() != 0) {
+            aiCoeffs[0] = code.getBottom10Bits() * aiQuantizationTable[0];
+            iNonZeroCount = 1;
+        }
+
+        int iVectorPos = 0;
+        while (!readMdecCode(code)) {
+            iVectorPos += code.getTop6Bits() + 1;
+            if (iVectorPos >= 64) {
+                throw new MdecException.ReadCorruption(MdecException.RLC_OOB_IN_MB_BLOCK(
+                        iVectorPos, _iBlocksRead / MdecBlock.count(), _iBlocksRead % MdecBlock.count()));
+            }
+            int iAc = code.getBottom10Bits();
+            if (iAc != 0) {
+                int iPos = REVERSE_ZIG_ZAG_LOOKUP_LIST[iVectorPos];
+                aiCoeffs[iPos] = (iAc * aiQuantizationTable[iPos] * iQscale + 4) >> 3;
+                iNonZeroCount++;
+                iLastNonZeroPos = iPos;
+            }
+        }
+        _iBlocksRead++;
+        return Calc.blockResult(iNonZeroCount, iLastNonZeroPos);
+    }
+
     public void reset() {
         _in.reset();
+        _iBlocksRead = 0;
     }
 
     // -------------------------------------------------------------------------
@@ -0,0 +1,254 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.psxvideo.mdec.idct;
+
+/** Fast separable IDCT using the Loeffler, Ligtenberg, and Moschytz (LLM)
+ * factorization, the same one used by the IJG libjpeg "islow" IDCT.
+ *<p>
+ * Produces the same output as {@link PsxMdecIDCT_int} within &plusmn;1
+ * using 12 multiplies per row or column instead of 64.
+ * Rows and columns with only a DC coefficient skip the transform entirely,
+ * and blocks with a single non-zero coefficient use precomputed
+ * basis functions.
+ *<p>
+ * PlayStation coefficients can be as big as 21 bits, so the math is done
+ * with longs, which also allows much more precision than libjpeg uses.
+ * The result is practically the exact IDCT rounded. {@link PsxMdecIDCT_int}
+ * only differs by more than 1 for extreme coefficients, where its
+ * own rounding errors add up. */
+public class LoefflerIDCT implements IDCT_int {
+
+    private static final int CONST_BITS = 24;
+    /** Fractional bits kept between the column and row passes. */
+    private static final int PASS1_BITS = 8;
+
+    private static final long FIX_0_298631336 = fix(0.298631336);
+    private static final long FIX_0_390180644 = fix(0.390180644);
+    private static final long FIX_0_541196100 = fix(0.541196100);
+    private static final long FIX_0_765366865 = fix(0.765366865);
+    private static final long FIX_0_899976223 = fix(0.899976223);
+    private static final long FIX_1_175875602 = fix(1.175875602);
+    private static final long FIX_1_501321110 = fix(1.501321110);
+    private static final long FIX_1_847759065 = fix(1.847759065);
+    private static final long FIX_1_961570560 = fix(1.961570560);
+    private static final long FIX_2_053119869 = fix(2.053119869);
+    private static final long FIX_2_562915447 = fix(2.562915447);
+    private static final long FIX_3_072711026 = fix(3.072711026);
+
+    private static long fix(double d) {
+        return Math.round(d * (1 << CONST_BITS));
+    }
+
+    /** The 8 1-D basis functions, [frequency * 8 + position]. */
+    private static final long[] BASIS = new long[64];
+    static {
+        for (int k = 0; k < 8; k++) {
+            double dblScale = k == 0 ? Math.sqrt(0.125) : 0.5;
+            for (int n = 0; n < 8; n++) {
+                BASIS[k * 8 + n] = fix(dblScale * Math.cos((2 * n + 1) * k * Math.PI / 16));
+            }
+        }
+    }
+
+    private static long descale(long lng, int iBits) {
+        return (lng + (1L << (iBits - 1))) >> iBits;
+    }
+
+    private final long[] _alngWorkspace = new long[64];
+
+    public void IDCT(int[] aiIdctMatrix, int iOutputOffset, int[] aiOutput) {
+        final long[] ws = _alngWorkspace;
+
+        // Pass 1: columns from the input into the workspace
+        for (int iCol = 0; iCol < 8; iCol++) {
+            if (aiIdctMatrix[iCol+8*1] == 0 && aiIdctMatrix[iCol+8*2] == 0 &&
+                aiIdctMatrix[iCol+8*3] == 0 && aiIdctMatrix[iCol+8*4] == 0 &&
+                aiIdctMatrix[iCol+8*5] == 0 && aiIdctMatrix[iCol+8*6] == 0 &&
+                aiIdctMatrix[iCol+8*7] == 0)
+            {
+                // the column is only the DC term (or nothing)
+                long lngDc = (long)aiIdctMatrix[iCol] << PASS1_BITS;
+                for (int i = iCol; i < 64; i += 8)
+                    ws[i] = lngDc;
+                continue;
+            }
+
+            // even part
+            long z2 = aiIdctMatrix[iCol+8*2];
+            long z3 = aiIdctMatrix[iCol+8*6];
+            long z1 = (z2 + z3) * FIX_0_541196100;
+            long tmp2 = z1 - z3 * FIX_1_847759065;
+            long tmp3 = z1 + z2 * FIX_0_765366865;
+
+            z2 = aiIdctMatrix[iCol];
+            z3 = aiIdctMatrix[iCol+8*4];
+            long tmp0 = (z2 + z3) << CONST_BITS;
+            long tmp1 = (z2 - z3) << CONST_BITS;
+
+            long tmp10 = tmp0 + tmp3;
+            long tmp13 = tmp0 - tmp3;
+            long tmp11 = tmp1 + tmp2;
+            long tmp12 = tmp1 - tmp2;
+
+            // odd part
+            tmp0 = aiIdctMatrix[iCol+8*7];
+            tmp1 = aiIdctMatrix[iCol+8*5];
+            tmp2 = aiIdctMatrix[iCol+8*3];
+            tmp3 = aiIdctMatrix[iCol+8*1];
+
+            z1 = tmp0 + tmp3;
+            z2 = tmp1 + tmp2;
+            z3 = tmp0 + tmp2;
+            long z4 = tmp1 + tmp3;
+            long z5 = (z3 + z4) * FIX_1_175875602;
+
+            tmp0 *= FIX_0_298631336;
+            tmp1 *= FIX_2_053119869;
+            tmp2 *= FIX_3_072711026;
+            tmp3 *= FIX_1_501321110;
+            z1 *= -FIX_0_899976223;
+            z2 *= -FIX_2_562915447;
+            z3 = z3 * -FIX_1_961570560 + z5;
+            z4 = z4 * -FIX_0_390180644 + z5;
+
+            tmp0 += z1 + z3;
+            tmp1 += z2 + z4;
+            tmp2 += z2 + z3;
+            tmp3 += z1 + z4;
+
+            ws[iCol+8*0] = descale(tmp10 + tmp3, CONST_BITS - PASS1_BITS);
+            ws[iCol+8*7] = descale(tmp10 - tmp3, CONST_BITS - PASS1_BITS);
+            ws[iCol+8*1] = descale(tmp11 + tmp2, CONST_BITS - PASS1_BITS);
+            ws[iCol+8*6] = descale(tmp11 - tmp2, CONST_BITS - PASS1_BITS);
+            ws[iCol+8*2] = descale(tmp12 + tmp1, CONST_BITS - PASS1_BITS);
+            ws[iCol+8*5] = descale(tmp12 - tmp1, CONST_BITS - PASS1_BITS);
+            ws[iCol+8*3] = descale(tmp13 + tmp0, CONST_BITS - PASS1_BITS);
+            ws[iCol+8*4] = descale(tmp13 - tmp0, CONST_BITS - PASS1_BITS);
+        }
+
+        // Pass 2: rows from the workspace into the output
+        final int OUT_BITS = CONST_BITS + PASS1_BITS + 3;
+        for (int iRow = 0; iRow < 64; iRow += 8) {
+            int iOut = iOutputOffset + iRow;
+            if (ws[iRow+1] == 0 && ws[iRow+2] == 0 && ws[iRow+3] == 0 &&
+                ws[iRow+4] == 0 && ws[iRow+5] == 0 && ws[iRow+6] == 0 &&
+                ws[iRow+7] == 0)
+            {
+                int iDc = (int)descale(ws[iRow], PASS1_BITS + 3);
+                for (int i = 0; i < 8; i++)
+                    aiOutput[iOut + i] = iDc;
+                continue;
+            }
+
+            // even part
+            long z2 = ws[iRow+2];
+            long z3 = ws[iRow+6];
+            long z1 = (z2 + z3) * FIX_0_541196100;
+            long tmp2 = z1 - z3 * FIX_1_847759065;
+            long tmp3 = z1 + z2 * FIX_0_765366865;
+
+            long tmp0 = (ws[iRow] + ws[iRow+4]) << CONST_BITS;
+            long tmp1 = (ws[iRow] - ws[iRow+4]) << CONST_BITS;
+
+            long tmp10 = tmp0 + tmp3;
+            long tmp13 = tmp0 - tmp3;
+            long tmp11 = tmp1 + tmp2;
+            long tmp12 = tmp1 - tmp2;
+
+            // odd part
+            tmp0 = ws[iRow+7];
+            tmp1 = ws[iRow+5];
+            tmp2 = ws[iRow+3];
+            tmp3 = ws[iRow+1];
+
+            z1 = tmp0 + tmp3;
+            z2 = tmp1 + tmp2;
+            z3 = tmp0 + tmp2;
+            long z4 = tmp1 + tmp3;
+            long z5 = (z3 + z4) * FIX_1_175875602;
+
+            tmp0 *= FIX_0_298631336;
+            tmp1 *= FIX_2_053119869;
+            tmp2 *= FIX_3_072711026;
+            tmp3 *= FIX_1_501321110;
+            z1 *= -FIX_0_899976223;
+            z2 *= -FIX_2_562915447;
+            z3 = z3 * -FIX_1_961570560 + z5;
+            z4 = z4 * -FIX_0_390180644 + z5;
+
+            tmp0 += z1 + z3;
+            tmp1 += z2 + z4;
+            tmp2 += z2 + z3;
+            tmp3 += z1 + z4;
+
+            aiOutput[iOut+0] = (int)descale(tmp10 + tmp3, OUT_BITS);
+            aiOutput[iOut+7] = (int)descale(tmp10 - tmp3, OUT_BITS);
+            aiOutput[iOut+1] = (int)descale(tmp11 + tmp2, OUT_BITS);
+            aiOutput[iOut+6] = (int)descale(tmp11 - tmp2, OUT_BITS);
+            aiOutput[iOut+2] = (int)descale(tmp12 + tmp1, OUT_BITS);
+            aiOutput[iOut+5] = (int)descale(tmp12 - tmp1, OUT_BITS);
+            aiOutput[iOut+3] = (int)descale(tmp13 + tmp0, OUT_BITS);
+            aiOutput[iOut+4] = (int)descale(tmp13 - tmp0, OUT_BITS);
+        }
+    }
+
+    public void IDCT_1NonZero(int[] aiIdctMatrix, int iNonZeroPos,
+                              int iOutputOffset, int[] aiOutput)
+    {
+        long lngCoeff = aiIdctMatrix[iNonZeroPos];
+        if (iNonZeroPos == 0) {
+            // DC only: every value is the same
+            int iDc = (int)descale(lngCoeff, 3);
+            for (int i = 0; i < 64; i++)
+                aiOutput[iOutputOffset + i] = iDc;
+            return;
+        }
+
+        // the block is the outer product of 2 basis functions scaled by the coefficient
+        int iHorzBasis = (iNonZeroPos & 7) * 8;
+        int iVertBasis = (iNonZeroPos >> 3) * 8;
+        for (int y = 0; y < 8; y++) {
+            // drop some precision so the next multiply can't overflow
+            long lngRowScale = descale(lngCoeff * BASIS[iVertBasis + y], CONST_BITS - PASS1_BITS);
+            int iOut = iOutputOffset + y * 8;
+            for (int x = 0; x < 8; x++) {
+                aiOutput[iOut + x] = (int)descale(lngRowScale * BASIS[iHorzBasis + x], CONST_BITS + PASS1_BITS);
+            }
+        }
+    }
+}
@@ -47,8 +47,10 @@ import jpsxdec.i18n.I;
 import jpsxdec.psxvideo.mdec.Ac0Checker;
 import jpsxdec.psxvideo.mdec.Calc;
 import jpsxdec.psxvideo.mdec.MdecBlock;
+import jpsxdec.psxvideo.mdec.MdecBlockInputStream;
 import jpsxdec.psxvideo.mdec.MdecCode;
 import jpsxdec.psxvideo.mdec.MdecContext;
+import jpsxdec.psxvideo.mdec.MdecDecoder;
 import jpsxdec.psxvideo.mdec.MdecException;
 import jpsxdec.psxvideo.mdec.MdecInputStream;
 import jpsxdec.util.IO;
@@ -194,6 +196,23 @@ public class Mdec2Jpeg {
         assert verifyTable(JPEG_QUANTIZATION_TABLE_ZIGZAG);
     }
 
+    /** Matrix ordered table for {@link MdecBlockInputStream#readBlock(int[], int[])}
+     * that produces the same values as {@link #readMdec(MdecInputStream)}.
+     * DC is kept as is, AC with a JPEG quantization of 1 gets the full PSX
+     * dequantization, and the rest only qscale (8 cancels the divide by 8). */
+    private static final int[] BLOCK_QUANTIZATION_TABLE = new int[64];
+    static {
+        for (int i = 0; i < BLOCK_QUANTIZATION_TABLE.length; i++) {
+            int iZigZag = MdecInputStream.ZIG_ZAG_LOOKUP_MATRIX[i];
+            if (iZigZag == 0)
+                BLOCK_QUANTIZATION_TABLE[i] = 1;
+            else if (JPEG_QUANTIZATION_TABLE_ZIGZAG[iZigZag] == 1)
+                BLOCK_QUANTIZATION_TABLE[i] = PSX_QUANTIZATION_TABLE_ZIGZAG[iZigZag];
+            else
+                BLOCK_QUANTIZATION_TABLE[i] = 8;
+        }
+    }
+
     /** Because I don't trust myself. */
     private static boolean verifyTable(int[] aiActual) {
         int[] aiExpeced = {
@@ -268,6 +287,9 @@ public class Mdec2Jpeg {
     /** Bit stream to temporarily wrap the output stream. */
     private final JpegBitOutputStream _jpegStream = new JpegBitOutputStream();
 
+    /** Block read by {@link MdecBlockInputStream#readBlock(int[], int[])}. */
+    private final int[] _aiBlockCoeffs = new int[64];
+
     public Mdec2Jpeg(int iPixelWidth, int iPixelHeight) {
         _iPixelWidth  = iPixelWidth;
         _iPixelHeight = iPixelHeight;
@@ -291,6 +313,11 @@ public class Mdec2Jpeg {
             throws MdecException.TooMuchEnergy, MdecException.ReadCorruption,
             MdecException.EndOfStream
     {
+        if (!MdecDecoder.DEBUG && mdecInStream instanceof MdecBlockInputStream) {
+            readMdecBlocks((MdecBlockInputStream) mdecInStream);
+            return;
+        }
+
         // while jpgs with AC=0 codes seem to be fine, still would like to avoid it
         Ac0Checker cleanStream = Ac0Checker.wrapWithChecker(mdecInStream, true);
 
@@ -389,6 +416,58 @@ public class Mdec2Jpeg {
         cleanStream.logIfAny0AcCoefficient();
     }
 
+    /** Same as {@link #readMdec(MdecInputStream)} but reads a block at a time.
+     * AC=0 codes don't need to be cleaned here since they are not written. */
+    private void readMdecBlocks(MdecBlockInputStream mdecInStream)
+            throws MdecException.TooMuchEnergy, MdecException.ReadCorruption,
+            MdecException.EndOfStream
+    {
+        for (Component comp : _aoComponents) {
+            comp.WriteIndex = 0;
+        }
+
+        MdecContext context = new MdecContext(_iMacBlockHeight);
+
+        try {
+            while (context.getTotalMacroBlocksRead() < _iTotalMacBlocks) {
+
+                for (MdecBlock block : MdecBlock.list()) {
+                    Component comp;
+                    if (block == MdecBlock.Cr)
+                        comp = _aoComponents[JPEG_CR_COMPONENT];
+                    else if (block == MdecBlock.Cb)
+                        comp = _aoComponents[JPEG_CB_COMPONENT];
+                    else
+                        comp = _aoComponents[JPEG_Y_COMPONENT];
+
+                    mdecInStream.readBlock(_aiBlockCoeffs, BLOCK_QUANTIZATION_TABLE);
+
+                    for (int i = 0; i < 64; i++) {
+                        int iVal = _aiBlockCoeffs[i];
+                        _aiBlockCoeffs[i] = 0;
+                        int iZigZag = MdecInputStream.ZIG_ZAG_LOOKUP_MATRIX[i];
+                        // see readMdec() for why this is checked
+                        if (iZigZag != 0 && (iVal < -1023 || iVal > 1023)) {
+                            MdecContext.MacroBlockPixel macBlkXY = context.getMacroBlockPixel();
+                            String msg = String.format(
+                                    "[JPG] Too much energy to encode %d in macroblock %d (%d, %d) block %d",
+                                    iVal, context.getTotalMacroBlocksRead(), macBlkXY.x, macBlkXY.y, context.getCurrentBlock().ordinal());
+                            LOG.log(Level.WARNING, msg);
+                            throw new MdecException.TooMuchEnergy(msg);
+                        }
+                        comp.DctCoffZZ[comp.WriteIndex + iZigZag] = iVal;
+                    }
+
+                    context.nextCodeEndBlock();
+
+                    comp.WriteIndex += 64;
+                }
+            }
+        } finally {
+            Arrays.fill(_aiBlockCoeffs, 0);
+        }
+    }
+
     /** Writes the translated JPEG to the output. */
     public void writeJpeg(OutputStream os) throws IOException  {
 
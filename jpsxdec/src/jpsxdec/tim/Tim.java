@@ -84,6 +84,30 @@ public class Tim {
         return CreateTim.isTim(inStream);
     }
 
+    /** Checks the first 8 bytes of a possible Tim: the magic word and
+     * the flags word. Much cheaper than {@link #isTim(InputStream)} so it
+     * can be run at every offset to find the few worth fully checking.
+     * If this returns false, {@link #isTim(InputStream)} would return null.
+     * @param iOffset must have at least 8 bytes after it. */
+    public static boolean isTimStart(@Nonnull byte[] ab, int iOffset) {
+        return IO.readSInt32LE(ab, iOffset) == START_MAGIC32LE &&
+               // bpp, CLUT flag, and 16 bits that are always 0
+               (IO.readSInt32LE(ab, iOffset + 4) & 0xFFFFFFF4) == 0;
+    }
+
+    /** Finds the first offset, stepping 4 bytes at a time from
+     * {@code iStart}, where {@link #isTimStart(byte[], int)} is true.
+     * @param iLimit no offsets at or after this are checked, and there
+     *               must be at least 8 bytes of data after any offset before it.
+     * @return the offset found, or the first offset at or after {@code iLimit}. */
+    public static int findTimStart(@Nonnull byte[] ab, int iStart, int iLimit) {
+        int i = iStart;
+        // the tag byte alone rules out nearly every offset
+        while (i < iLimit && (ab[i] != TAG_MAGIC || !isTimStart(ab, i)))
+            i += 4;
+        return i;
+    }
+
     /** Parse and deserialize a TIM file from a stream. */
     public static @Nonnull Tim read(@Nonnull InputStream inStream)
             throws EOFException, IOException, BinaryDataNotRecognized
@@ -179,6 +203,9 @@ public class Tim {
     static final int TAG_MAGIC = 0x10;
     /** All Tims are version 0. */
     static final int VERSION_0 = 0;
+    /** The first 4 bytes of every Tim read as a little-endian 32-bit value:
+     * the tag, version, and 16 bits that are always 0. */
+    public static final int START_MAGIC32LE = TAG_MAGIC | (VERSION_0 << 8);
     
     /** The color lookup table for the TIM. null if none. */
     @CheckForNull
@@ -720,7 +720,7 @@ public final class IO {
 
         @Override
         public int read(@Nonnull byte[] b, int off, int len) throws IOException {
-            Arrays.fill(b, off, len, (byte)0);
+            Arrays.fill(b, off, off + len, (byte)0);
             return len;
         }
 
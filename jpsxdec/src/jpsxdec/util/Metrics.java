@@ -0,0 +1,240 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.util;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+
+/** Counts how often, how long, and how many bytes each stage of reading,
+ * identifying, decoding, and writing takes. Disabled by default, in which case
+ * measuring costs a single volatile read.
+ * <pre>
+ * long lngStart = Metrics.start();
+ * ...
+ * Metrics.CD_READ.stop(lngStart, iBytes);
+ * </pre>
+ * Safe to use from any thread. Time spent in stages that call other measured
+ * stages is counted in both. */
+public final class Metrics {
+
+    private static volatile boolean _blnEnabled = false;
+
+    /** All the metrics in the order they were created. */
+    private static final LinkedHashMap<String, Metric> _metrics = new LinkedHashMap<String, Metric>();
+
+    /** Sectors read from the disc image. */
+    public static final Metric CD_READ = get("cd.read");
+    /** Identifying the bitstream format and reading the frame header.
+     * The rest of the bitstream is counted in {@link #UNCOMPRESS_DECODE}. */
+    public static final Metric BITSTREAM_HEADER = get("bitstream.header");
+    /** Uncompressing the bitstream and decoding the MDEC codes. The two are
+     * interleaved code by code, so timing them apart would cost more than
+     * the work itself. */
+    public static final Metric UNCOMPRESS_DECODE = get("uncompress+decode");
+    /** Converting the decoded YCbCr to the output color space. */
+    public static final Metric COLOR_CONVERT = get("color.convert");
+    /** Encoding and writing bitstream, mdec, and image files. */
+    public static final Metric FILE_WRITE = get("file.write");
+    /** Writing chunks of audio and video to an AVI. */
+    public static final Metric AVI_WRITE = get("avi.write");
+
+    /** One measured stage. */
+    public static final class Metric {
+        @Nonnull
+        private final String _sName;
+        private final AtomicLong _lngCount = new AtomicLong();
+        private final AtomicLong _lngNanos = new AtomicLong();
+        private final AtomicLong _lngBytes = new AtomicLong();
+
+        private Metric(@Nonnull String sName) {
+            _sName = sName;
+        }
+
+        /** Finishes a measurement begun with {@link Metrics#start()}.
+         * Does nothing if metrics were disabled when it began. */
+        public void stop(long lngStart) {
+            stop(lngStart, 0);
+        }
+
+        /** Finishes a measurement begun with {@link Metrics#start()},
+         * along with the number of bytes handled.
+         * Does nothing if metrics were disabled when it began. */
+        public void stop(long lngStart, long lngBytes) {
+            if (lngStart == 0)
+                return;
+            _lngNanos.addAndGet(System.nanoTime() - lngStart);
+            _lngCount.incrementAndGet();
+            if (lngBytes != 0)
+                _lngBytes.addAndGet(lngBytes);
+        }
+
+        public @Nonnull String getName() {
+            return _sName;
+        }
+        public long getCount() {
+            return _lngCount.get();
+        }
+        public long getNanos() {
+            return _lngNanos.get();
+        }
+        public long getBytes() {
+            return _lngBytes.get();
+        }
+
+        private void reset() {
+            _lngCount.set(0);
+            _lngNanos.set(0);
+            _lngBytes.set(0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %d in %d ns, %d bytes", _sName, getCount(), getNanos(), getBytes());
+        }
+    }
+
+    /** Returns the metric with the given name, creating it if necessary.
+     * Callers should hold onto the metric instead of calling this for every
+     * measurement. */
+    public static @Nonnull Metric get(@Nonnull String sName) {
+        synchronized (_metrics) {
+            Metric metric = _metrics.get(sName);
+            if (metric == null) {
+                metric = new Metric(sName);
+                _metrics.put(sName, metric);
+            }
+            return metric;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return _blnEnabled;
+    }
+
+    public static void setEnabled(boolean blnEnabled) {
+        _blnEnabled = blnEnabled;
+    }
+
+    /** Begins a measurement. Pass the returned value to
+     * {@link Metric#stop(long)}.
+     * @return 0 if metrics are disabled. */
+    public static long start() {
+        if (!_blnEnabled)
+            return 0;
+        long lngStart = System.nanoTime();
+        return lngStart != 0 ? lngStart : 1;
+    }
+
+    /** Clears every metric. */
+    public static void reset() {
+        for (Metric metric : getAll()) {
+            metric.reset();
+        }
+    }
+
+    /** Copy of all the metrics in the order they were created. */
+    public static @Nonnull ArrayList<Metric> getAll() {
+        synchronized (_metrics) {
+            return new ArrayList<Metric>(_metrics.values());
+        }
+    }
+
+    /** Prints a table of every metric that was used. */
+    public static void printTable(@Nonnull PrintStream ps) {
+        ArrayList<Metric> metrics = getAll();
+        int iNameWidth = "Stage".length();
+        for (Metric metric : metrics) {
+            if (metric.getCount() > 0)
+                iNameWidth = Math.max(iNameWidth, metric.getName().length());
+        }
+        String sNameFormat = "%-" + iNameWidth + "s";
+        ps.format(sNameFormat + " %10s %12s %10s %10s %10s%n",
+                  "Stage", "Count", "Total ms", "Avg us", "MB", "MB/sec");
+        for (Metric metric : metrics) {
+            long lngCount = metric.getCount();
+            if (lngCount == 0)
+                continue;
+            double dblMillis = metric.getNanos() / 1e6;
+            double dblMB = metric.getBytes() / (1024.0 * 1024.0);
+            ps.format(sNameFormat + " %,10d %,12.1f %,10.1f", metric.getName(), lngCount,
+                      dblMillis, metric.getNanos() / 1e3 / lngCount);
+            if (metric.getBytes() > 0 && metric.getNanos() > 0)
+                ps.format(" %,10.1f %,10.1f%n", dblMB, dblMB / (dblMillis / 1e3));
+            else
+                ps.println();
+        }
+    }
+
+    /** Writes every metric that was used as JSON. */
+    public static void printJson(@Nonnull PrintStream ps) {
+        ps.println("{\"metrics\": [");
+        boolean blnFirst = true;
+        for (Metric metric : getAll()) {
+            if (metric.getCount() == 0)
+                continue;
+            if (!blnFirst)
+                ps.println(',');
+            blnFirst = false;
+            ps.format("  {\"name\": \"%s\", \"count\": %d, \"nanos\": %d, \"bytes\": %d}",
+                      jsonEscape(metric.getName()), metric.getCount(),
+                      metric.getNanos(), metric.getBytes());
+        }
+        if (!blnFirst)
+            ps.println();
+        ps.println("]}");
+    }
+
+    private static @Nonnull String jsonEscape(@Nonnull String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if (c < ' ')
+                sb.append(String.format("\\u%04x", (int)c));
+            else
+                sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private Metrics() {}
+}
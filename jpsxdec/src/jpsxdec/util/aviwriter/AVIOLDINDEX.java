@@ -44,67 +44,49 @@ import jpsxdec.util.IO;
 
 /** Represents the 
  * <a href="http://msdn2.microsoft.com/en-us/library/ms779634(VS.85).aspx">AVIOLDINDEX</a>
- * C structure. */
+ * C structure. The AVIOLDINDEXENTRY array is generated from the first
+ * chunks of a {@link ChunkIndex}. */
 class AVIOLDINDEX extends AVIstruct {
 
     public static int AVIIF_KEYFRAME = 0x10;
     
-    /** Struture used for the {@link AVIOLDINDEX#aIndex} array. */
-    public static class AVIOLDINDEXENTRY extends AVIstruct {
-        public /*DWORD*/ int dwChunkId = 0;
-        public /*DWORD*/ int dwFlags   = 0;
-        public /*DWORD*/ int dwOffset  = 0;
-        public /*DWORD*/ int dwSize    = 0;
-        
-        @Override
-        public void write(@Nonnull RandomAccessFile raf) throws IOException {
-            IO.writeInt32LE(raf, dwChunkId);
-            IO.writeInt32LE(raf, dwFlags  );
-            IO.writeInt32LE(raf, dwOffset );
-            IO.writeInt32LE(raf, dwSize   );
-        }
-
-        @Override
-        public int sizeof() {
-            return 16;
-        }
-        
-        public static @Nonnull AVIOLDINDEXENTRY[] newarray(int i) {
-            AVIOLDINDEXENTRY[] a = new AVIOLDINDEXENTRY[i];
-            for (int j = 0; j < a.length; j++) {
-                a[j] = new AVIOLDINDEXENTRY();
-            }
-            return a;
-        }
-        
-    }
-    
+    /** Size of each AVIOLDINDEXENTRY. */
+    private static final int SIZEOF_ENTRY = 16;
     
     public /*FOURCC*/ final int fcc    = string2int("idx1");
     public /*DWORD */ final int cb     ;
     @Nonnull
-    public final AVIOLDINDEXENTRY aIndex[];
+    private final ChunkIndex _index;
+    private final int _iEntryCount;
+    /** Position of the 'movi' FOURCC that the chunk offsets are relative to. */
+    private final long _lngMoviOffset;
     
-    public AVIOLDINDEX(@Nonnull AVIOLDINDEXENTRY[] a) {
-        aIndex = a;
+    public AVIOLDINDEX(@Nonnull ChunkIndex index, int iEntryCount, long lngMoviOffset) {
+        _index = index;
+        _iEntryCount = iEntryCount;
+        _lngMoviOffset = lngMoviOffset;
         cb = sizeof() - 8;
     }
     
     @Override
     public void write(@Nonnull RandomAccessFile raf) throws IOException {
-        IO.writeInt32LE(raf, fcc);
-        IO.writeInt32LE(raf, cb );
-        for (AVIOLDINDEXENTRY e : aIndex) {
-            e.write(raf);
+        byte[] ab = new byte[sizeof()];
+        IO.writeInt32LE(ab, 0, fcc);
+        IO.writeInt32LE(ab, 4, cb );
+        int iPos = 8;
+        for (int i = 0; i < _iEntryCount; i++) {
+            IO.writeInt32LE(ab, iPos     , _index.getChunkId(i));
+            IO.writeInt32LE(ab, iPos +  4, _index.getFlags(i));
+            IO.writeInt32LE(ab, iPos +  8, _index.getOffset(i) - _lngMoviOffset);
+            IO.writeInt32LE(ab, iPos + 12, _index.getSize(i));
+            iPos += SIZEOF_ENTRY;
         }
+        raf.write(ab);
     }
 
     @Override
     public int sizeof() {
-        if (aIndex.length > 0)
-            return 8 + aIndex.length * aIndex[0].sizeof();
-        else
-            return 8;
+        return 8 + _iEntryCount * SIZEOF_ENTRY;
     }
     
 }
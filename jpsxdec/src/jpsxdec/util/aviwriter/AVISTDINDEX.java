@@ -0,0 +1,126 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.util.aviwriter;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import javax.annotation.Nonnull;
+import jpsxdec.util.IO;
+
+/** Represents the OpenDML AVISTDINDEX C structure ('ix##' chunk), which
+ * indexes the chunks of one stream in one 'movi' list.
+ * The entries are generated from a range of a {@link ChunkIndex}. */
+class AVISTDINDEX extends AVIstruct {
+
+    public static final byte AVI_INDEX_OF_CHUNKS = 0x01;
+
+    /** Size of each AVISTDINDEXENTRY. */
+    private static final int SIZEOF_ENTRY = 8;
+
+    public final /*FOURCC*/ int   fcc;
+    public final /*DWORD */ int   cb;
+    public final /*WORD  */ short wLongsPerEntry = SIZEOF_ENTRY / 4;
+    public final /*BYTE  */ byte  bIndexSubType  = 0;
+    public final /*BYTE  */ byte  bIndexType     = AVI_INDEX_OF_CHUNKS;
+    public final /*DWORD */ int   nEntriesInUse;
+    public final /*DWORD */ int   dwChunkId;
+    /** Entry offsets are relative to this. */
+    public final /*QWORD */ long  qwBaseOffset;
+    //public /*DWORD*/ int dwReserved3;
+
+    @Nonnull
+    private final ChunkIndex _index;
+    private final int _iStart, _iEnd;
+
+    /** Indexes the chunks with the given id between iStart and iEnd. */
+    public AVISTDINDEX(int iStreamNumber, int iChunkId,
+                       @Nonnull ChunkIndex index, int iStart, int iEnd)
+    {
+        fcc = string2int(String.format("ix%02d", iStreamNumber));
+        dwChunkId = iChunkId;
+        _index = index;
+        _iStart = iStart;
+        _iEnd = iEnd;
+
+        // repeated frames may refer to a chunk in an earlier 'movi' list,
+        // so use the lowest offset as the base
+        int iCount = 0;
+        long lngBase = Long.MAX_VALUE;
+        for (int i = iStart; i < iEnd; i++) {
+            if (index.getChunkId(i) == iChunkId) {
+                iCount++;
+                lngBase = Math.min(lngBase, index.getOffset(i));
+            }
+        }
+        nEntriesInUse = iCount;
+        qwBaseOffset = iCount == 0 ? 0 : lngBase;
+        cb = sizeof() - 8;
+    }
+
+    @Override
+    public void write(@Nonnull RandomAccessFile raf) throws IOException {
+        byte[] ab = new byte[sizeof()];
+        IO.writeInt32LE(ab,  0, fcc);
+        IO.writeInt32LE(ab,  4, cb);
+        IO.writeInt16LE(ab,  8, wLongsPerEntry);
+        ab[10] = bIndexSubType;
+        ab[11] = bIndexType;
+        IO.writeInt32LE(ab, 12, nEntriesInUse);
+        IO.writeInt32LE(ab, 16, dwChunkId);
+        IO.writeInt32LE(ab, 20, qwBaseOffset);
+        IO.writeInt32LE(ab, 24, qwBaseOffset >>> 32);
+        // dwReserved3 left 0
+        int iPos = 32;
+        for (int i = _iStart; i < _iEnd; i++) {
+            if (_index.getChunkId(i) != dwChunkId)
+                continue;
+            // offset of the chunk data, after the 8 byte chunk header
+            IO.writeInt32LE(ab, iPos    , _index.getOffset(i) + 8 - qwBaseOffset);
+            // all chunks are key frames, so the high bit is never set
+            IO.writeInt32LE(ab, iPos + 4, _index.getSize(i));
+            iPos += SIZEOF_ENTRY;
+        }
+        raf.write(ab);
+    }
+
+    @Override
+    public int sizeof() {
+        return 32 + nEntriesInUse * SIZEOF_ENTRY;
+    }
+
+}
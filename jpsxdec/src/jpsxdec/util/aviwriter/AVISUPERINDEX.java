@@ -0,0 +1,117 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.util.aviwriter;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import javax.annotation.Nonnull;
+import jpsxdec.util.IO;
+
+/** Represents the OpenDML AVISUPERINDEX C structure ('indx' chunk), which
+ * lists the standard indexes ('ix##' chunks) of one stream.
+ * A fixed number of entries is reserved since it is written in the header
+ * before it is known how many 'RIFF' lists the file will need. */
+class AVISUPERINDEX extends AVIstruct {
+
+    public static final byte AVI_INDEX_OF_INDEXES = 0x00;
+
+    /** Size of each AVISUPERINDEXENTRY. */
+    private static final int SIZEOF_ENTRY = 16;
+
+    public final /*FOURCC*/ int   fcc            = string2int("indx");
+    public final /*DWORD */ int   cb;
+    public final /*WORD  */ short wLongsPerEntry = SIZEOF_ENTRY / 4;
+    public final /*BYTE  */ byte  bIndexSubType  = 0;
+    public final /*BYTE  */ byte  bIndexType     = AVI_INDEX_OF_INDEXES;
+    public       /*DWORD */ int   nEntriesInUse  = 0;
+    public final /*DWORD */ int   dwChunkId;
+    //public /*DWORD*/ int dwReserved[3];
+    //struct AVISUPERINDEXENTRY {
+        /** Absolute file position of each 'ix##' chunk. */
+        private final /*QWORD*/ long[] qwOffset;
+        /** Size of each 'ix##' chunk, including the chunk header. */
+        private final /*DWORD*/ int[]  dwSize;
+        /** Frames or samples covered by each 'ix##' chunk. */
+        private final /*DWORD*/ int[]  dwDuration;
+    //} aIndex[];
+
+    public AVISUPERINDEX(int iChunkId, int iCapacity) {
+        dwChunkId = iChunkId;
+        qwOffset = new long[iCapacity];
+        dwSize = new int[iCapacity];
+        dwDuration = new int[iCapacity];
+        cb = sizeof() - 8;
+    }
+
+    public void addEntry(long lngOffset, int iSize, int iDuration) throws IOException {
+        if (nEntriesInUse >= qwOffset.length)
+            throw new IOException("AVI is too large for the OpenDML super index");
+        qwOffset[nEntriesInUse] = lngOffset;
+        dwSize[nEntriesInUse] = iSize;
+        dwDuration[nEntriesInUse] = iDuration;
+        nEntriesInUse++;
+    }
+
+    @Override
+    public void write(@Nonnull RandomAccessFile raf) throws IOException {
+        byte[] ab = new byte[sizeof()];
+        IO.writeInt32LE(ab,  0, fcc);
+        IO.writeInt32LE(ab,  4, cb);
+        IO.writeInt16LE(ab,  8, wLongsPerEntry);
+        ab[10] = bIndexSubType;
+        ab[11] = bIndexType;
+        IO.writeInt32LE(ab, 12, nEntriesInUse);
+        IO.writeInt32LE(ab, 16, dwChunkId);
+        // dwReserved[3] left 0
+        int iPos = 32;
+        for (int i = 0; i < nEntriesInUse; i++) {
+            IO.writeInt32LE(ab, iPos     , qwOffset[i]);
+            IO.writeInt32LE(ab, iPos +  4, qwOffset[i] >>> 32);
+            IO.writeInt32LE(ab, iPos +  8, dwSize[i]);
+            IO.writeInt32LE(ab, iPos + 12, dwDuration[i]);
+            iPos += SIZEOF_ENTRY;
+        }
+        raf.write(ab);
+    }
+
+    @Override
+    public int sizeof() {
+        return 32 + qwOffset.length * SIZEOF_ENTRY;
+    }
+
+}
@@ -43,9 +43,12 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -54,13 +57,20 @@ import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import jpsxdec.Version;
 import jpsxdec.util.IO;
+import jpsxdec.util.Metrics;
 import jpsxdec.util.Misc;
-import jpsxdec.util.aviwriter.AVIOLDINDEX.AVIOLDINDEXENTRY;
 
 /**
  * Creates AVI files with audio and video without the need for JMF.
  * Subclasses should take care of codec handling. Note that this cannot
- * create AVI files larger than 4GB.
+ * create AVI files larger than 4GB unless OpenDML (AVI 2.0) is enabled.
+ * <p>
+ * With OpenDML, the file is split into 'RIFF' lists of about
+ * {@link #OPENDML_RIFF_SIZE} bytes. The first 'RIFF AVI ' list is a normal
+ * AVI with an 'idx1' index of its chunks, so players that don't understand
+ * OpenDML can at least play the beginning. Each 'movi' list ends with an
+ * 'ix##' standard index for each stream, and those are listed in an 'indx'
+ * super index in each stream's header.
  * <p> 
  * This code is originally based on (but now hardly resembles) the 
  * <a href="http://rsb.info.nih.gov/ij">ImageJ</a> program.
@@ -92,6 +102,14 @@ public abstract class AviWriter implements Closeable {
     /** Enable logging of every chunk written to the AVI. */
     private static final boolean DEBUG = false;
 
+    /** With OpenDML, a new 'RIFF AVIX' list is started once the current
+     * 'RIFF' list reaches this size. Many players expect the first 'RIFF'
+     * list to be no larger than 1GB. */
+    private static final long OPENDML_RIFF_SIZE = 1024 * 1024 * 1024;
+    /** Entries reserved in the OpenDML super index of each stream,
+     * which limits the file to about this many GB. */
+    private static final int OPENDML_SUPERINDEX_ENTRIES = 256;
+
     // -------------------------------------------------------------------------
     // -- Fields ---------------------------------------------------------------
     // -------------------------------------------------------------------------
@@ -127,6 +145,12 @@ public abstract class AviWriter implements Closeable {
     @Nonnull
     private final String _sFourCCcodec;
     private final int _iCompression;
+    private final boolean _blnOpenDml;
+    /** Size at which a new 'RIFF' list is started with OpenDML. */
+    private long _lngRiffSizeLimit = OPENDML_RIFF_SIZE;
+
+    private final int _iVideoChunkId;
+    private final int _iAudioChunkId = AVIstruct.string2int("01wb");
 
     // -------------------------------------------------------------------------
     // -- Properties -----------------------------------------------------------
@@ -181,6 +205,9 @@ public abstract class AviWriter implements Closeable {
 
     @CheckForNull
     private RandomAccessFile _aviFile;
+    /** The channel of {@link #_aviFile} to write the chunks in one go. */
+    private FileChannel _aviChannel;
+    private final ByteBuffer _chunkHeader = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
     
     private Chunk _RIFF_chunk;
     private     Chunk _LIST_hdr1;
@@ -191,24 +218,40 @@ public abstract class AviWriter implements Closeable {
     private                 BITMAPINFOHEADER _bif;
                         //strf_vid
     private             Chunk _strn_vid;
+    private             AVISUPERINDEX _indx_vid; // OpenDML only
                     //LIST_strl_vid
     private         Chunk _LIST_strl_aud;
     private             Chunk _strf_aud;
     private                 AVISTREAMHEADER _strh_aud;
     private                 WAVEFORMATEX _wavfmt;
                         //strf_aud
+    private             AVISUPERINDEX _indx_aud; // OpenDML only
                     //LIST_strl_aud
+    private         Chunk _LIST_odml; // OpenDML only
+    private             ODMLEXTENDEDAVIHEADER _dmlh;
+                    //LIST_odml
                 //LIST_hdr1
                     //JUNK_writerId;
     private     Chunk LIST_movi;
                     /* image and audio chunk data go here */
+                    /* ix00 and ix01 go here with OpenDML */
                 //LIST_movi
     private     AVIOLDINDEX avioldidx;
             //RIFF_chunk
+    /* with OpenDML, more 'RIFF AVIX' lists each containing a 'LIST movi' */
     
-    /** Holds the 'idx' section index data. */
+    /** Every chunk written to the 'movi' lists.
+     * Used to generate the 'idx1' and 'ix##' indexes. */
     @Nonnull
-    private ArrayList<AVIOLDINDEXENTRY> _indexList;
+    private final ChunkIndex _index = new ChunkIndex();
+    /** Index of the first chunk in the current 'RIFF' list. */
+    private int _iRiffFirstChunk = 0;
+    /** Audio samples written before the current 'RIFF' list. */
+    private long _lngRiffFirstSample = 0;
+    /** Number of chunks in the first 'RIFF' list, or -1 if still in it. */
+    private int _iFirstRiffChunkCount = -1;
+    /** Number of frames in the first 'RIFF' list. */
+    private long _lngFirstRiffFrameCount;
     
     
     // -------------------------------------------------------------------------
@@ -224,12 +267,34 @@ public abstract class AviWriter implements Closeable {
                         final @Nonnull String sFourCCcodec,
                         final int iBytes)
             throws FileNotFoundException, IOException
+    {
+        this(outputfile, iWidth, iHeight, lngFrames, lngPerSecond, audioFormat,
+             blnCompressedVideo, sFourCCcodec, iBytes, false);
+    }
+
+    /** Audio data must be signed 16-bit PCM in little-endian order.
+     * @param blnOpenDml Write an OpenDML (AVI 2.0) file that can be larger
+     *                   than 4GB. */
+    protected AviWriter(final @Nonnull File outputfile,
+                        final int iWidth, final int iHeight,
+                        final long lngFrames, final long lngPerSecond,
+                        final @CheckForNull AudioFormat audioFormat,
+                        final boolean blnCompressedVideo,
+                        final @Nonnull String sFourCCcodec,
+                        final int iBytes,
+                        final boolean blnOpenDml)
+            throws FileNotFoundException, IOException
     {
         _outputFile = outputfile;
 
         _blnCompressedVideo = blnCompressedVideo;
         _sFourCCcodec = sFourCCcodec;
         _iCompression = iBytes;
+        _blnOpenDml = blnOpenDml;
+        if (_blnCompressedVideo)
+            _iVideoChunkId = AVIstruct.string2int("00dc");  // dc for compressed frame
+        else
+            _iVideoChunkId = AVIstruct.string2int("00db");  // db for uncompressed frame
 
         _iWidth = iWidth;
         _iHeight = iHeight;
@@ -262,6 +327,7 @@ public abstract class AviWriter implements Closeable {
         _audioFormat = audioFormat;
 
         _aviFile = new RandomAccessFile(outputfile, "rw");
+        _aviChannel = _aviFile.getChannel();
         try {
 
         _aviFile.setLength(0); // trim the file to 0
@@ -292,6 +358,11 @@ public abstract class AviWriter implements Closeable {
                     _strn_vid = new Chunk(_aviFile, "strn");
                     _aviFile.writeBytes("jPSXdec AVI    \0");
                     _strn_vid.endChunk(_aviFile);
+
+                    if (_blnOpenDml) {
+                    _indx_vid = new AVISUPERINDEX(_iVideoChunkId, OPENDML_SUPERINDEX_ENTRIES);
+                    _indx_vid.makePlaceholder(_aviFile);
+                    }
                     
                 _LIST_strl_vid.endChunk(_aviFile);
                 
@@ -308,9 +379,23 @@ public abstract class AviWriter implements Closeable {
 
                     _strf_aud.endChunk(_aviFile);
 
+                    if (_blnOpenDml) {
+                    _indx_aud = new AVISUPERINDEX(_iAudioChunkId, OPENDML_SUPERINDEX_ENTRIES);
+                    _indx_aud.makePlaceholder(_aviFile);
+                    }
+
                 _LIST_strl_aud.endChunk(_aviFile);
                 }
 
+                if (_blnOpenDml) {
+                _LIST_odml = new Chunk(_aviFile, "LIST", "odml");
+
+                    _dmlh = new ODMLEXTENDEDAVIHEADER();
+                    _dmlh.makePlaceholder(_aviFile);
+
+                _LIST_odml.endChunk(_aviFile);
+                }
+
             _LIST_hdr1.endChunk(_aviFile);
             
             // some programs will use this to identify the program that wrote the avi
@@ -327,9 +412,12 @@ public abstract class AviWriter implements Closeable {
             throw ex;
         }
             // now we're ready to start accepting video/audio data
-            
-            // generate an index as we write 'movi' section
-            _indexList = new ArrayList<AVIOLDINDEXENTRY>();
+    }
+
+    /** Changes the OpenDML 'RIFF' list size so tests don't need to write
+     * gigabytes of data to produce multiple 'RIFF' lists. */
+    void setRiffSizeLimit(long lngRiffSizeLimit) {
+        _lngRiffSizeLimit = lngRiffSizeLimit;
     }
 
     final protected void closeSilentlyDueToError() {
@@ -355,20 +443,13 @@ public abstract class AviWriter implements Closeable {
             }
         }
 
-        int iIndex = _indexList.size() - 1;
+        int iIndex = _index.size() - 1;
 
         // find the previous chunk that is a frame
-        final int VID_CHUNK_ID = AVIstruct.string2int("00d_") & 0x00FFFFFF;
-        while (true) {
-            int iChunkId = _indexList.get(iIndex).dwChunkId;
-            // does it start with '00d'?
-            if ((iChunkId & 0x00FFFFFF) == VID_CHUNK_ID)
-                break;
-            else
-                iIndex--;
-        }
+        while (_index.getChunkId(iIndex) != _iVideoChunkId)
+            iIndex--;
         // add the same reference in the list
-        _indexList.add(_indexList.get(iIndex));
+        _index.addCopyOf(iIndex);
         _lngFrameCount++;
     }
 
@@ -382,14 +463,6 @@ public abstract class AviWriter implements Closeable {
         if (!fmt.matches(_audioFormat))
             throw new IllegalArgumentException("Audio stream format does not match.");
         
-        Chunk data_size;
-
-        AVIOLDINDEXENTRY idxentry = new AVIOLDINDEXENTRY();
-        idxentry.dwOffset = (int)(_aviFile.getFilePointer() - (LIST_movi.getStart() + 4));
-        
-        idxentry.dwChunkId = AVIstruct.string2int("01wb");
-        idxentry.dwFlags = 0;
-
         long lngSampleCount;
         long lngFilePointer;
         if (DEBUG) {
@@ -397,31 +470,25 @@ public abstract class AviWriter implements Closeable {
             lngFilePointer = _aviFile.getFilePointer();
         }
 
-        data_size = new Chunk(_aviFile, "01wb");
-
-            if (_abWriteBuffer == null || _abWriteBuffer.length < _audioFormat.getFrameSize() * 1024)
-                _abWriteBuffer = new byte[_audioFormat.getFrameSize() * 1024];
+        if (_abWriteBuffer == null || _abWriteBuffer.length < _audioFormat.getFrameSize() * 1024)
+            _abWriteBuffer = new byte[_audioFormat.getFrameSize() * 1024];
 
-            // write the data then pad the data to 4 byte boundary
-            int i, iTotal = 0;
-            while ((i = audStream.read(_abWriteBuffer)) > 0) {
-                iTotal += i;
-                _lngSampleCount += i / _audioFormat.getFrameSize();
-                _aviFile.write(_abWriteBuffer, 0, i);
-            }
-            if (iTotal % _audioFormat.getFrameSize() != 0)
-                throw new RuntimeException("Read and wrote partial sample.");
+        // read all the data so the chunk can be written in one go
+        int i, iTotal = 0;
+        while ((i = audStream.read(_abWriteBuffer, iTotal, _abWriteBuffer.length - iTotal)) > 0) {
+            iTotal += i;
+            if (iTotal == _abWriteBuffer.length)
+                _abWriteBuffer = Arrays.copyOf(_abWriteBuffer, _abWriteBuffer.length * 2);
+        }
+        if (iTotal % _audioFormat.getFrameSize() != 0)
+            throw new RuntimeException("Read and wrote partial sample.");
 
-        // end the chunk
-        data_size.endChunk(_aviFile);
+        writeChunk(_iAudioChunkId, 0, _abWriteBuffer, 0, iTotal);
+        _lngSampleCount += iTotal / _audioFormat.getFrameSize();
 
         if (DEBUG) {
-            System.out.println("Audio " + lngSampleCount + " @" + lngFilePointer + " length " + data_size.getSize() + " silence");
+            System.out.println("Audio " + lngSampleCount + " @" + lngFilePointer + " length " + iTotal + " silence");
         }
-
-        // add this item to the index
-        idxentry.dwSize = data_size.getSize();
-        _indexList.add(idxentry);
     }
 
     /** Audio data must be signed 16-bit PCM in little-endian order. */
@@ -443,24 +510,9 @@ public abstract class AviWriter implements Closeable {
         if (iLen % _audioFormat.getFrameSize() != 0)
             throw new IllegalArgumentException("Half an audio sample can't be processed.");
 
-        AVIOLDINDEXENTRY idxentry = new AVIOLDINDEXENTRY();
-        idxentry.dwOffset = (int)(_aviFile.getFilePointer() - (LIST_movi.getStart() + 4));
-        idxentry.dwChunkId = AVIstruct.string2int("01wb");
-        idxentry.dwFlags = 0;
-
-        Chunk data_size = new Chunk(_aviFile, "01wb");
-
-            // write the data
-            _aviFile.write(abData, iOfs, iLen);
-
-        // end the chunk
-        data_size.endChunk(_aviFile);
+        writeChunk(_iAudioChunkId, 0, abData, iOfs, iLen);
 
         _lngSampleCount += iLen / _audioFormat.getFrameSize();
-
-        // add the index to the list
-        idxentry.dwSize = data_size.getSize();
-        _indexList.add(idxentry);
     }
 
     public void writeSilentSamples(long lngSampleCount) throws AviIsClosedException, IOException {
@@ -478,30 +530,100 @@ public abstract class AviWriter implements Closeable {
             System.out.println("Frame " + _lngFrameCount + " @" + _aviFile.getFilePointer() + " " + md5(abData, iOfs, iLen));
         }
 
-        AVIOLDINDEXENTRY idxentry = new AVIOLDINDEXENTRY();
-        idxentry.dwOffset = (int)(_aviFile.getFilePointer() - (LIST_movi.getStart() + 4));
-        String sChunkId;
-        if (_blnCompressedVideo)
-            sChunkId = "00dc";  // dc for compressed frame
-        else
-            sChunkId = "00db";  // db for uncompressed frame
-        idxentry.dwChunkId = AVIstruct.string2int(sChunkId);
-        idxentry.dwFlags = AVIOLDINDEX.AVIIF_KEYFRAME; // Write the flags - select AVIIF_KEYFRAME
-                                                       // AVIIF_KEYFRAME 0x00000010L
-                                                       // The flag indicates key frames in the video sequence.
-        Chunk data_size = new Chunk(_aviFile, sChunkId);
-
-            // write the data
-            _aviFile.write(abData, iOfs, iLen);
-
-        // end the chunk
-        data_size.endChunk(_aviFile);
+        writeChunk(_iVideoChunkId, 
+                   AVIOLDINDEX.AVIIF_KEYFRAME, // Write the flags - select AVIIF_KEYFRAME
+                                               // AVIIF_KEYFRAME 0x00000010L
+                                               // The flag indicates key frames in the video sequence.
+                   abData, iOfs, iLen);
         
         _lngFrameCount++;
+    }
+
+    /** Writes a chunk to the 'movi' list and adds it to the index.
+     * The chunk header, data and padding are written in a single call. */
+    private void writeChunk(int iChunkId, int iFlags,
+                            @Nonnull byte[] abData, int iOfs, int iLen)
+            throws IOException
+    {
+        long lngStart = Metrics.start();
+        // pad to 4 byte boundary (the padding is included in the chunk size)
+        int iPaddedLen = (iLen + 3) & ~3;
+
+        if (_blnOpenDml && _index.size() > _iRiffFirstChunk &&
+            _aviFile.getFilePointer() + 8 + iPaddedLen - _RIFF_chunk.getStart() > _lngRiffSizeLimit)
+        {
+            endRiff();
+            startRiffAvix();
+        }
 
-        // add the index to the list
-        idxentry.dwSize = data_size.getSize();
-        _indexList.add(idxentry);
+        long lngChunkStart = _aviFile.getFilePointer();
+
+        _chunkHeader.clear();
+        _chunkHeader.putInt(iChunkId);
+        _chunkHeader.putInt(iPaddedLen);
+        _chunkHeader.flip();
+        ByteBuffer[] aoBuffers = {
+            _chunkHeader,
+            ByteBuffer.wrap(abData, iOfs, iLen),
+            ByteBuffer.wrap(Chunk.ZEROES3, 0, iPaddedLen - iLen)
+        };
+        long lngRemaining = 8 + iPaddedLen;
+        while (lngRemaining > 0)
+            lngRemaining -= _aviChannel.write(aoBuffers);
+
+        _index.add(iChunkId, iFlags, lngChunkStart, iPaddedLen);
+        Metrics.AVI_WRITE.stop(lngStart, 8 + iPaddedLen);
+    }
+
+    /** With OpenDML, finishes the current 'movi' list with the standard
+     * indexes for each stream, then finishes the current 'RIFF' list.
+     * The first 'RIFF' list also gets the old 'idx1' index. */
+    private void endRiff() throws IOException {
+        int iRiffEndChunk = _index.size();
+
+        writeStandardIndex(_indx_vid, 0, _iVideoChunkId, iRiffEndChunk, -1);
+        if (_audioFormat != null) {
+            long lngSamples = _lngSampleCount - _lngRiffFirstSample;
+            writeStandardIndex(_indx_aud, 1, _iAudioChunkId, iRiffEndChunk, lngSamples);
+        }
+
+        LIST_movi.endChunk(_aviFile);
+
+        if (_iFirstRiffChunkCount < 0) {
+            _iFirstRiffChunkCount = iRiffEndChunk;
+            _lngFirstRiffFrameCount = _lngFrameCount;
+            avioldidx = new AVIOLDINDEX(_index, _iFirstRiffChunkCount, LIST_movi.getStart() + 4);
+            avioldidx.write(_aviFile);
+        }
+
+        _RIFF_chunk.endChunk(_aviFile);
+
+        _iRiffFirstChunk = iRiffEndChunk;
+        _lngRiffFirstSample = _lngSampleCount;
+    }
+
+    /** Writes an 'ix##' chunk for the stream's chunks in the current 'RIFF'
+     * list and adds it to the stream's super index.
+     * @param lngDuration Number of audio samples, or -1 to use the number
+     *                    of chunks (i.e. video frames). */
+    private void writeStandardIndex(@Nonnull AVISUPERINDEX superIndex,
+                                    int iStreamNumber, int iChunkId,
+                                    int iRiffEndChunk, long lngDuration)
+            throws IOException
+    {
+        AVISTDINDEX ix = new AVISTDINDEX(iStreamNumber, iChunkId, _index, _iRiffFirstChunk, iRiffEndChunk);
+        if (ix.nEntriesInUse == 0)
+            return;
+        long lngIxStart = _aviFile.getFilePointer();
+        ix.write(_aviFile);
+        superIndex.addEntry(lngIxStart, ix.sizeof(),
+                            (int)(lngDuration < 0 ? ix.nEntriesInUse : lngDuration));
+    }
+
+    /** Starts an OpenDML 'RIFF AVIX' list with its own 'movi' list. */
+    private void startRiffAvix() throws IOException {
+        _RIFF_chunk = new Chunk(_aviFile, "RIFF", "AVIX");
+            LIST_movi = new Chunk(_aviFile, "LIST", "movi");
     }
 
     /** Subclasses should implement writing of a simple blank frame. */
@@ -517,14 +639,18 @@ public abstract class AviWriter implements Closeable {
     public void close() throws AviIsClosedException, IOException {
         if (_aviFile == null) throw new AviIsClosedException();
         
+        if (_blnOpenDml) {
+            endRiff();
+        } else {
             LIST_movi.endChunk(_aviFile);
             
             // write idx
-            avioldidx = new AVIOLDINDEX(_indexList.toArray(new AVIOLDINDEXENTRY[_indexList.size()]));
+            avioldidx = new AVIOLDINDEX(_index, _index.size(), LIST_movi.getStart() + 4);
             avioldidx.write(_aviFile);
             // /write idx
             
         _RIFF_chunk.endChunk(_aviFile);
+        }
         
         //######################################################################
         //## Fill the headers fields ###########################################
@@ -541,7 +667,11 @@ public abstract class AviWriter implements Closeable {
                                               // 10H AVIF_HASINDEX: The AVI file has an idx1 chunk containing
                                               // an index at the end of the file.  For good performance, all
                                               // AVI files should contain an index.                         
-        _avih.dwTotalFrames         = _lngFrameCount;  // total frame number
+        if (_blnOpenDml)
+            _avih.dwTotalFrames     = _lngFirstRiffFrameCount; // frames in the first RIFF list,
+                                                               // the total is in the dmlh
+        else
+            _avih.dwTotalFrames     = _lngFrameCount;  // total frame number
         _avih.dwInitialFrames       = 0;      // Initial frame for interleaved files.
                                               // Noninterleaved files should specify 0.
         if (_audioFormat == null)
@@ -676,10 +806,19 @@ public abstract class AviWriter implements Closeable {
             _strh_aud.goBackAndWrite(_aviFile);
             _wavfmt.goBackAndWrite(_aviFile);
         }
+
+        if (_blnOpenDml) {
+            _indx_vid.goBackAndWrite(_aviFile);
+            if (_audioFormat != null)
+                _indx_aud.goBackAndWrite(_aviFile);
+            _dmlh.dwTotalFrames = _lngFrameCount;
+            _dmlh.goBackAndWrite(_aviFile);
+        }
         
         // and we're done
         _aviFile.close();
         _aviFile = null;
+        _aviChannel = null;
         
         _RIFF_chunk = null;
             _LIST_hdr1 = null;
@@ -689,10 +828,14 @@ public abstract class AviWriter implements Closeable {
                         _strh_vid = null;
                         _bif = null;
                     _strn_vid = null;
+                    _indx_vid = null;
                 _LIST_strl_aud = null;
                     _strf_aud = null;
                         _strh_aud = null;
                         _wavfmt = null;
+                    _indx_aud = null;
+                _LIST_odml = null;
+                    _dmlh = null;
             LIST_movi = null;
             avioldidx = null;
     }
@@ -752,12 +895,6 @@ public abstract class AviWriter implements Closeable {
             raf.seek(lngCurPos); // return to current position
         }
 
-        /** After endChunk() has been called, returns the size that was
-         *  written. */
-        private int getSize() {
-            return _iSize;
-        }
-        
         /** Returns the position where the size will be written when
          *  endChunk() is called. */
         private long getStart() {
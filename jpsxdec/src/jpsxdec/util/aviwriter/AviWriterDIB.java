@@ -80,11 +80,27 @@ public class AviWriterDIB extends AviWriter {
                         final long lngFrames, final long lngPerSecond,
                         final @CheckForNull AudioFormat audioFormat)
             throws FileNotFoundException, IOException
+    {
+        this(outputfile,
+             iWidth, iHeight,
+             lngFrames, lngPerSecond,
+             audioFormat, false);
+    }
+
+    /** Audio data must be signed 16-bit PCM in little-endian order.
+     * @param blnOpenDml Write an OpenDML (AVI 2.0) file that can be larger
+     *                   than 4GB. */
+    public AviWriterDIB(final @Nonnull File outputfile,
+                        final int iWidth, final int iHeight,
+                        final long lngFrames, final long lngPerSecond,
+                        final @CheckForNull AudioFormat audioFormat,
+                        final boolean blnOpenDml)
+            throws FileNotFoundException, IOException
     {
        // Write 'DIB ' for Microsoft Device Independent Bitmap.  Note: Unfortunately,
        // at least 3 other fourcc codes are sometimes used for uncompressed
        // AVI videos: 'RGB ', 'RAW ', 0x00000000
-        super(outputfile, iWidth, iHeight, lngFrames, lngPerSecond, audioFormat, true, "DIB ", BITMAPINFOHEADER.BI_RGB);
+        super(outputfile, iWidth, iHeight, lngFrames, lngPerSecond, audioFormat, true, "DIB ", BITMAPINFOHEADER.BI_RGB, blnOpenDml);
 
         int iLinePadding = (getWidth() * 3) & 3;
         if (iLinePadding != 0)
@@ -159,6 +175,20 @@ public class AviWriterDIB extends AviWriter {
         writeFrameChunk(_abWriteBuffer, 0, _iFrameByteSize);
     }
 
+    /** Size of a frame as written by {@link #writeFrameDib(byte[])}. */
+    public int getFrameByteSize() {
+        return _iFrameByteSize;
+    }
+
+    /** @param abDib  A frame already in the DIB format: bottom row first,
+     *                3 bytes/pixel in BGR order, with each row padded to
+     *                4 bytes. {@link #getFrameByteSize()} bytes are written. */
+    public void writeFrameDib(@Nonnull byte[] abDib) throws IOException {
+        if (abDib.length < _iFrameByteSize)
+            throw new IllegalArgumentException("DIB data wrong size.");
+        writeFrameChunk(abDib, 0, _iFrameByteSize);
+    }
+
     @Override
     public void writeBlankFrame() throws IOException {
         if (_abWriteBuffer == null || _abWriteBuffer.length < _iFrameByteSize)
@@ -138,7 +138,20 @@ public class AviWriterMJPG extends AviWriter {
                          final @CheckForNull AudioFormat audioFormat)
             throws FileNotFoundException, IOException
     {
-        super(outputfile, iWidth, iHeight, lngFrames, lngPerSecond, audioFormat, true, "MJPG", AVIstruct.string2int("MJPG"));
+        this(outputfile, iWidth, iHeight, lngFrames, lngPerSecond, fltLossyQuality, audioFormat, false);
+    }
+    /** Audio data must be signed 16-bit PCM in little-endian order.
+     * @param blnOpenDml Write an OpenDML (AVI 2.0) file that can be larger
+     *                   than 4GB. */
+    public AviWriterMJPG(final @Nonnull File outputfile,
+                         final int iWidth, final int iHeight,
+                         final long lngFrames, final long lngPerSecond,
+                         final float fltLossyQuality,
+                         final @CheckForNull AudioFormat audioFormat,
+                         final boolean blnOpenDml)
+            throws FileNotFoundException, IOException
+    {
+        super(outputfile, iWidth, iHeight, lngFrames, lngPerSecond, audioFormat, true, "MJPG", AVIstruct.string2int("MJPG"), blnOpenDml);
 
         if (!CAN_ENCODE_JPEG) {
             closeSilentlyDueToError();
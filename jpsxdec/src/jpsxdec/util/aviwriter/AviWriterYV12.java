@@ -70,9 +70,26 @@ public class AviWriterYV12 extends AviWriter {
                          final long lngFrames, final long lngPerSecond,
                          final @CheckForNull AudioFormat audioFormat)
             throws FileNotFoundException, IOException
+    {
+        this(outFile,
+             iWidth, iHeight,
+             lngFrames, lngPerSecond,
+             audioFormat, false);
+    }
+
+    /** Dimensions must be a multiple of 2.
+     * Audio data must be signed 16-bit PCM in little-endian order.
+     * @param blnOpenDml Write an OpenDML (AVI 2.0) file that can be larger
+     *                   than 4GB. */
+    public AviWriterYV12(final @Nonnull File outFile,
+                         final int iWidth, final int iHeight,
+                         final long lngFrames, final long lngPerSecond,
+                         final @CheckForNull AudioFormat audioFormat,
+                         final boolean blnOpenDml)
+            throws FileNotFoundException, IOException
     {
         super(outFile, iWidth, iHeight, lngFrames, lngPerSecond, audioFormat,
-                false, "YV12", AVIstruct.string2int("YV12"));
+                false, "YV12", AVIstruct.string2int("YV12"), blnOpenDml);
 
         if (((iWidth | iHeight) & 1) != 0) {
             closeSilentlyDueToError();
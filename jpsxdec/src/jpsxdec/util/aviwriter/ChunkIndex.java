@@ -0,0 +1,95 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.util.aviwriter;
+
+import java.util.Arrays;
+
+/** Growable list of every chunk written to the 'movi' lists of an AVI,
+ * kept in primitive arrays instead of one object per chunk since long
+ * videos can have hundreds of thousands of chunks. */
+class ChunkIndex {
+
+    private int[] _aiChunkIds = new int[1024];
+    private int[] _aiFlags = new int[1024];
+    /** Absolute file position of each chunk header. */
+    private long[] _alngOffsets = new long[1024];
+    /** Size of the chunk data (not including the header). */
+    private int[] _aiSizes = new int[1024];
+    private int _iCount = 0;
+
+    public void add(int iChunkId, int iFlags, long lngOffset, int iSize) {
+        if (_iCount == _aiChunkIds.length) {
+            int iNewLength = _iCount * 2;
+            _aiChunkIds = Arrays.copyOf(_aiChunkIds, iNewLength);
+            _aiFlags = Arrays.copyOf(_aiFlags, iNewLength);
+            _alngOffsets = Arrays.copyOf(_alngOffsets, iNewLength);
+            _aiSizes = Arrays.copyOf(_aiSizes, iNewLength);
+        }
+        _aiChunkIds[_iCount] = iChunkId;
+        _aiFlags[_iCount] = iFlags;
+        _alngOffsets[_iCount] = lngOffset;
+        _aiSizes[_iCount] = iSize;
+        _iCount++;
+    }
+
+    /** Adds another reference to an existing chunk. */
+    public void addCopyOf(int i) {
+        add(_aiChunkIds[i], _aiFlags[i], _alngOffsets[i], _aiSizes[i]);
+    }
+
+    public int size() {
+        return _iCount;
+    }
+
+    public int getChunkId(int i) {
+        return _aiChunkIds[i];
+    }
+
+    public int getFlags(int i) {
+        return _aiFlags[i];
+    }
+
+    public long getOffset(int i) {
+        return _alngOffsets[i];
+    }
+
+    public int getSize(int i) {
+        return _aiSizes[i];
+    }
+
+}
@@ -158,7 +158,7 @@ public class ClosableBoundedBlockingQueue<T> {
 
                         // all else failed, now wait for room in the queue
                         // but don't wait forever, and do all checks again in case the other thread died
-                        boolean dontCareWhy = _notEmpty.await(1, TimeUnit.SECONDS);
+                        boolean dontCareWhy = _notFull.await(1, TimeUnit.SECONDS);
                     }
                 }
             }
@@ -37,6 +37,10 @@
 
 package jpsxdec.util.player;
 
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
 /**
@@ -77,6 +81,21 @@ class VideoProcessor implements Runnable, IPreprocessedFrameWriter {
         _thread.start();
     }
 
+    /** The pixels of the image if it stores them as 0xRRGGBB ints
+     * with nothing between rows, so frames can be decoded straight into it. */
+    private static @CheckForNull int[] directPixels(@Nonnull BufferedImage bi) {
+        int iType = bi.getType();
+        if (iType != BufferedImage.TYPE_INT_RGB && iType != BufferedImage.TYPE_INT_ARGB)
+            return null;
+        DataBuffer db = bi.getRaster().getDataBuffer();
+        if (!(db instanceof DataBufferInt) || db.getNumBanks() != 1)
+            return null;
+        int[] aiData = ((DataBufferInt)db).getData();
+        if (aiData.length != bi.getWidth() * bi.getHeight())
+            return null;
+        return aiData;
+    }
+
     @SuppressWarnings("unchecked")
     public void run() {
         DecodableFrame decodeFrame;
@@ -91,10 +110,15 @@ class VideoProcessor implements Runnable, IPreprocessedFrameWriter {
                     DecodedVideoFrame frame = new DecodedVideoFrame(_vidPlayer.getWidth(), _vidPlayer.getHeight());
                     frame.lngPresentationNanos = decodeFrame.lngPresentationNanos;
                     // decode frame
-                    _processor.processFrame(decodeFrame.frame, aiImage);
-                    frame.image.setRGB(0, 0,
-                            frame.image.getWidth(), frame.image.getHeight(),
-                            aiImage, 0, frame.image.getWidth());
+                    int[] aiDirect = directPixels(frame.image);
+                    if (aiDirect != null) {
+                        _processor.processFrame(decodeFrame.frame, aiDirect);
+                    } else {
+                        _processor.processFrame(decodeFrame.frame, aiImage);
+                        frame.image.setRGB(0, 0,
+                                frame.image.getWidth(), frame.image.getHeight(),
+                                aiImage, 0, frame.image.getWidth());
+                    }
                     // submit to vid player
                     // will block if player is full
                     _vidPlayer.addFrame(frame);
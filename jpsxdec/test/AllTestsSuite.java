@@ -46,23 +46,45 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
     jpsxdec.TestLog.class,
     jpsxdec.adpcm.SpuDecodeCorruption.class,
+    jpsxdec.adpcm.XaAdpcmDecoderTest.class,
     jpsxdec.adpcm.XaDecodeCorruption.class,
+    jpsxdec.cdreaders.DiscPatcherTest.class,
+    jpsxdec.cdreaders.SectorVerifierTest.class,
     jpsxdec.cmdline.Command_StaticTest.class,
+    jpsxdec.discitems.BatchSaverTest.class,
     jpsxdec.discitems.DiscItemTest.class,
     jpsxdec.discitems.SerializedDiscItemTest.class,
+    jpsxdec.formats.ImageEncoderTest.class,
+    jpsxdec.formats.StreamWritersTest.class,
+    jpsxdec.indexing.BinaryIndexTest.class,
     jpsxdec.indexing.DiscIndexerXaAudioTest.class,
+    jpsxdec.indexing.IdentificationCacheTest.class,
+    jpsxdec.indexing.ParallelIndexerTest.class,
+    jpsxdec.indexing.SectorRangeIndexTest.class,
     jpsxdec.modules.crusader.DiscIndexerCrusaderTest.class,
+    jpsxdec.modules.spu.SpuDetectorTest.class,
+    jpsxdec.modules.tim.DiscIndexerTimTest.class,
+    jpsxdec.modules.video.save.Decoded2ImageFilesTest.class,
+    jpsxdec.modules.video.save.Decoded2Y4mTest.class,
+    jpsxdec.modules.video.save.Mdec2DecodedParallelTest.class,
+    jpsxdec.modules.video.save.Mdec2MjpegAviParallelTest.class,
     jpsxdec.modules.video.sectorbased.fps.Fps.class,
+    jpsxdec.psxvideo.PsxYCbCrLutTest.class,
     jpsxdec.psxvideo.PsxYCbCr_intTest.class,
     jpsxdec.psxvideo.bitstreams.BitReader.class,
     jpsxdec.psxvideo.bitstreams.Iki.class,
+    jpsxdec.psxvideo.bitstreams.QscaleSearchTest.class,
     jpsxdec.psxvideo.bitstreams.STRv2.class,
     jpsxdec.psxvideo.bitstreams.STRv3.class,
+    jpsxdec.psxvideo.mdec.idct.LoefflerIDCTTest.class,
+    jpsxdec.psxvideo.mdec.MdecBlockInputStreamTest.class,
     jpsxdec.psxvideo.mdec.tojpeg.Mdec2JpegTest.class,
     jpsxdec.util.ArgParserTest.class,
+    jpsxdec.util.aviwriter.AviWriterTest.class,
     jpsxdec.util.DemuxPushInputStreamTest.class,
     jpsxdec.util.DemuxedDataTest.class,
     jpsxdec.util.IOTest.class,
+    jpsxdec.util.MetricsTest.class,
     jpsxdec.util.MiscTest.class,
     jpsxdec.util.player.ClosableBoundedBlockingQueueTest.class
 })
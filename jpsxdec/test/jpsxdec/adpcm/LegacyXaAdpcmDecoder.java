@@ -0,0 +1,337 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.adpcm;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.util.IO;
+
+/** The XA ADPCM decoder as it was before {@link XaAdpcmDecoder} switched to
+ * fixed-point and reading sound groups directly out of a byte array.
+ * Decodes with doubles through {@link SoundUnitDecoder} and
+ * {@link AdpcmContext}. Kept as the reference for
+ * {@link XaAdpcmDecoderTest} and {@link XaAdpcmDecoderBenchmark}. */
+class LegacyXaAdpcmDecoder {
+
+    private final boolean _blnIsStereo;
+    private final int _iAdpcmBitsPerSample;
+    
+    /** Context for the left channel when stereo, or the only channel when mono. */
+    @Nonnull
+    private final AdpcmContext _leftOrMonoContext;
+    /** Context for the right channel when stereo. */
+    @CheckForNull
+    private final AdpcmContext _rightContext;
+
+    /** Buffer decoded PCM audio for the left channel when stereo or only channel when mono. */
+    @Nonnull
+    private final short[] _asiLeftOrMonoPcmBuffer;
+    /** Buffer decoded PCM audio for the right channel when stereo. */
+    @CheckForNull
+    private final short[] _asiRightPcmBuffer;
+
+    /** Length will be the number of sound units per sound group. 
+     * @see XaAdpcmDecoder#SOUND_UNITS_IN_4_BIT_SOUND_GROUP
+     * @see XaAdpcmDecoder#SOUND_UNITS_IN_8_BIT_SOUND_GROUP */
+    @Nonnull
+    private final XaAdpcmSoundUnitDecoder[] _aoSoundUnitDecoders;
+    private final byte[] _abParameterBuffer = new byte[16];
+
+    private final XaAdpcmDecoder.LogContext _logContext = new XaAdpcmDecoder.LogContext();
+
+    /**
+     * Creates a XA ADPCM decoder for the supplied input format
+     * (bits/sample and stereo) and will write the decoded PCM audio with the
+     * supplied volume. Audio scaling occurs before clamping for better quality.
+     *
+     * @param iAdpcmBitsPerSample  ADPCM bits per sample: either 4 or 8.
+     * @param blnIsStereo          true for stereo, false for mono.
+     * @param dblVolume            Audio scaled by this amount.
+     */
+    public LegacyXaAdpcmDecoder(int iAdpcmBitsPerSample, boolean blnIsStereo, double dblVolume)
+    {
+        // bits/sample determines the number of sound units per sound group
+        int iSoundUnitsPerSoundGroup;
+        if (iAdpcmBitsPerSample == 8)
+            iSoundUnitsPerSoundGroup = XaAdpcmDecoder.SOUND_UNITS_IN_8_BIT_SOUND_GROUP;
+        else if (iAdpcmBitsPerSample == 4)
+            iSoundUnitsPerSoundGroup = XaAdpcmDecoder.SOUND_UNITS_IN_4_BIT_SOUND_GROUP;
+        else
+            throw new IllegalArgumentException("Invalid bits per sample " + iAdpcmBitsPerSample);
+
+        _aoSoundUnitDecoders = new XaAdpcmSoundUnitDecoder[iSoundUnitsPerSoundGroup];
+        for (int iSoundUnitIndex = 0; iSoundUnitIndex < _aoSoundUnitDecoders.length; iSoundUnitIndex++) {
+            _aoSoundUnitDecoders[iSoundUnitIndex] = new XaAdpcmSoundUnitDecoder(iSoundUnitIndex);
+        }
+        
+        _iAdpcmBitsPerSample = iAdpcmBitsPerSample;
+        _blnIsStereo = blnIsStereo;
+
+        // create a context for each channel (one for mono, two for stereo)
+        _leftOrMonoContext = new AdpcmContext(dblVolume);
+        _asiLeftOrMonoPcmBuffer = new short[SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT];
+        if (_blnIsStereo) {
+            _rightContext = new AdpcmContext(dblVolume);
+            _asiRightPcmBuffer = new short[SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT];
+        } else {
+            _rightContext = null;
+            _asiRightPcmBuffer = null;
+        }
+        
+    }
+
+    public boolean hadCorruption() {
+        return _logContext.blnHadCorruption;
+    }
+
+    /** Decodes a sector's worth of ADPCM data.
+     *  Reads 2304 bytes and writes either 4032 or 8064 bytes.  
+     * @param iSourceSector Optional original sector the ADPCM data came from.
+     *                      Only used for logging.
+     */
+    public void decode(@Nonnull InputStream inStream, @Nonnull OutputStream out,
+                       int iSourceSector)
+            throws IOException
+    {
+        _logContext.decodeReset(iSourceSector);
+        // There are 18 sound groups,
+        // each having  16 bytes of interleaved sound parameters,
+        //         and 112 bytes of interleaved ADPCM data
+        // ( 18*(16+112) = 2304 bytes will be read )
+        for (_logContext.iSoundGroup = 0;
+             _logContext.iSoundGroup < XaAdpcmDecoder.ADPCM_SOUND_GROUPS_PER_SECTOR;
+             _logContext.iSoundGroup++)
+        {
+            decodeSoundGroup(inStream, out);
+        }
+        _logContext.iSourceSector = -1;
+        _logContext.iSoundGroup = -1;
+    }
+
+    /** Reads 16 bytes of interleaved sound parameters, followed by
+     *  112 bytes of interleaved ADPCM sound units. */
+    private void decodeSoundGroup(@Nonnull InputStream inStream,
+                                  @Nonnull OutputStream out)
+            throws IOException
+    {
+        IO.readByteArray(inStream, _abParameterBuffer);
+        
+        if (_iAdpcmBitsPerSample == 4)
+            deinterleave4BitsPerSampleSoundGroup(inStream);
+        else // == 8
+            deinterleave8BitsPerSampleSoundGroup(inStream);
+
+        // read decoded samples and write them to the output stream
+        if (_blnIsStereo) {
+            for (int iSoundUnit = 0; iSoundUnit < _aoSoundUnitDecoders.length; iSoundUnit+=2) {
+                _logContext.iSoundUnit = iSoundUnit;
+                XaAdpcmSoundUnitDecoder leftSoundUnit  = _aoSoundUnitDecoders[iSoundUnit];
+                leftSoundUnit.decodeSoundUnit(_leftOrMonoContext, _asiLeftOrMonoPcmBuffer, _logContext);
+
+                _logContext.iSoundUnit = iSoundUnit+1;
+                XaAdpcmSoundUnitDecoder rightSoundUnit = _aoSoundUnitDecoders[iSoundUnit+1];
+                rightSoundUnit.decodeSoundUnit(_rightContext, _asiRightPcmBuffer, _logContext);
+
+                _logContext.iSoundUnit = -1;
+                
+                for (int iSample = 0;
+                     iSample < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
+                     iSample++, _logContext.lngSampleFramesWritten++)
+                {
+                    IO.writeInt16LE(out, _asiLeftOrMonoPcmBuffer[iSample]);
+                    IO.writeInt16LE(out, _asiRightPcmBuffer[iSample]);
+                }
+
+            }
+        } else {
+            for (int iSoundUnit = 0; iSoundUnit < _aoSoundUnitDecoders.length; iSoundUnit++) {
+                _logContext.iSoundUnit = iSoundUnit;
+                XaAdpcmSoundUnitDecoder soundUnit = _aoSoundUnitDecoders[iSoundUnit];
+                soundUnit.decodeSoundUnit(_leftOrMonoContext, _asiLeftOrMonoPcmBuffer, _logContext);
+                
+                _logContext.iSoundUnit = -1;
+
+                for (int iSample = 0; 
+                     iSample < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
+                     iSample++, _logContext.lngSampleFramesWritten++)
+                {
+                    IO.writeInt16LE(out, _asiLeftOrMonoPcmBuffer[iSample]);
+                }
+            }
+        }
+    }
+
+    /** Reads the sound parameters and ADPCM data for sound groups with
+     * 4 bits per sample and stores the result in the {@link #_aoSoundUnitDecoders}
+     * array. */
+    private void deinterleave4BitsPerSampleSoundGroup(@Nonnull InputStream inStream)
+            throws EOFException, IOException
+    {
+        // Process the 16 byte sound parameters at the
+        // start of each sound group
+        // the 8 sound parameters (one for each sound unit)
+        // are repeated twice, and are ordered like this:
+        // 0,1,2,3, 0,1,2,3, 4,5,6,7, 4,5,6,7
+        for (int iSoundUnit = 0; iSoundUnit < 4; iSoundUnit++) {
+            _logContext.iSoundUnit = iSoundUnit;
+            _aoSoundUnitDecoders[iSoundUnit].addSoundParamter(_abParameterBuffer[iSoundUnit] & 0xff);
+            _aoSoundUnitDecoders[iSoundUnit].addSoundParamter(_abParameterBuffer[iSoundUnit+4] & 0xff);
+
+            _logContext.iSoundUnit = iSoundUnit + 4;
+            _aoSoundUnitDecoders[iSoundUnit+4].addSoundParamter(_abParameterBuffer[iSoundUnit+8] & 0xff);
+            _aoSoundUnitDecoders[iSoundUnit+4].addSoundParamter(_abParameterBuffer[iSoundUnit+12] & 0xff);
+        }
+        _logContext.iSoundUnit = -1;
+        
+        // de-interleave the sound units
+        for (int iSampleIdx = 0; iSampleIdx < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT; iSampleIdx++)
+        {
+            // read a sample for each of the 8 sound units
+            // 1 byte produces 2 samples, but for different sound units
+            // sound unit nibbles are interleaved like this:
+            // high nibble: sound unit 1, low nibble: sound unit 0
+            // high nibble: sound unit 3, low nibble: sound unit 2
+            // high nibble: sound unit 5, low nibble: sound unit 4
+            // high nibble: sound unit 7, low nibble: sound unit 6
+            // high nibble: sound unit 1, low nibble: sound unit 0
+            // ...
+            for (_logContext.iSoundUnit = 0; _logContext.iSoundUnit < 8;)
+            {
+                int iByte = inStream.read();
+                if (iByte < 0)
+                    throw new EOFException();
+
+                short siADPCMSample;
+                // shift the nibble into the top of a short
+                siADPCMSample = (short)((iByte & 0x0F) << 12);
+                _aoSoundUnitDecoders[_logContext.iSoundUnit].addShiftedAdpcmSample(siADPCMSample);
+                _logContext.iSoundUnit++;
+                // shift the nibble into the top of a short
+                siADPCMSample = (short)((iByte & 0xF0) << 8);
+                _aoSoundUnitDecoders[_logContext.iSoundUnit].addShiftedAdpcmSample(siADPCMSample);
+                _logContext.iSoundUnit++;
+            }
+            _logContext.iSoundUnit = -1;
+        }
+    }
+
+    /** Reads the sound parameters and ADPCM data for sound groups with
+     * 8 bits per sample and stores the result in the {@link #_aoSoundUnitDecoders}
+     * array. */
+    private void deinterleave8BitsPerSampleSoundGroup(@Nonnull InputStream inStream)
+            throws EOFException, IOException
+    {
+        // Process the 16 byte sound parameters at the
+        // start of each sound group
+        // the 4 sound parameters (one for each sound unit)
+        // are repeated four times and are ordered like this:
+        // 0,1,2,3, 0,1,2,3, 0,1,2,3, 0,1,2,3
+        for (_logContext.iSoundUnit = 0; _logContext.iSoundUnit < 4; _logContext.iSoundUnit++) {
+            XaAdpcmSoundUnitDecoder soundUnit = _aoSoundUnitDecoders[_logContext.iSoundUnit];
+            for (int iRepeat = _logContext.iSoundUnit; iRepeat < 16; iRepeat+=4) {
+                soundUnit.addSoundParamter(_abParameterBuffer[iRepeat] & 0xff);
+            }
+        }
+        _logContext.iSoundUnit = -1;
+        
+        // de-interleave the sound units
+        for (int iSampleIdx = 0; iSampleIdx < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT; iSampleIdx++)
+        {
+            // read a sample for each of the 4 sound units
+            // 1 byte produces 1 sample
+            // sound unit bytes are interleaved like this:
+            // sound unit 0, sound unit 1, sound unit 2, sound unit 3,
+            // sound unit 0, sound unit 1, sound unit 2, sound unit 3,
+            // ...
+            for (_logContext.iSoundUnit = 0; _logContext.iSoundUnit < 4; _logContext.iSoundUnit++)
+            {
+                int iByte = inStream.read();
+                if (iByte < 0)
+                    throw new EOFException();
+
+                _aoSoundUnitDecoders[_logContext.iSoundUnit].addShiftedAdpcmSample(
+                        (short)(iByte << 8)); // shift the byte into the top of a short
+            }
+            _logContext.iSoundUnit = -1;
+        }
+    }
+
+
+    /** Sound unit found in a sound group.
+     * Feed it parameters and ADPCM samples then decode the result. */
+    private static class XaAdpcmSoundUnitDecoder {
+
+        /** Not used, but useful when debugging. */
+        private final int _iSoundUnitIndex;
+        private final SoundUnitDecoder _soundUnitDecoder = new SoundUnitDecoder(K0K1Filter.XA);
+        
+        private XaAdpcmSoundUnit.Builder _soundUnitBuilder = new XaAdpcmSoundUnit.Builder();
+
+        /** @param iSoundUnitIndex Sound unit number. */
+        public XaAdpcmSoundUnitDecoder(int iSoundUnitIndex) {
+            _iSoundUnitIndex = iSoundUnitIndex;
+        }
+
+        /** @param iSoundParameter  An unsigned byte value as read from the
+         *                          source stream, holding the range and
+         *                          filter parameters for this sound unit. */
+        public void addSoundParamter(int iSoundParameter) {
+            _soundUnitBuilder.addRedundantParameter(iSoundParameter);
+        }
+
+        private void addShiftedAdpcmSample(short s) {
+            _soundUnitBuilder.addShiftedAdpcmSample(s);
+        }
+
+        private void decodeSoundUnit(@Nonnull AdpcmContext context,
+                                     @Nonnull short[] asiOutPcmBuffer,
+                                     @Nonnull XaAdpcmDecoder.LogContext logContext)
+        {
+            XaAdpcmSoundUnit su = _soundUnitBuilder.build(logContext);
+            _soundUnitDecoder.decodeSoundUnit(context, su, asiOutPcmBuffer, logContext);
+            // reset the builder
+            _soundUnitBuilder = new XaAdpcmSoundUnit.Builder();
+        }
+
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpsxdec.adpcm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/** Compares the speed of the fixed-point {@link XaAdpcmDecoder} with the
+ * original double decoder in {@link LegacyXaAdpcmDecoder}, decoding
+ * 4 bits/sample stereo, the most common XA format.
+ * Not part of the test suite, run manually:
+ * <pre>java jpsxdec.adpcm.XaAdpcmDecoderBenchmark [sector count]</pre> */
+public class XaAdpcmDecoderBenchmark {
+
+    private static final int RUNS = 5;
+
+    /** So the results aren't optimized away. */
+    private static long _lngSink;
+
+    public static void main(String[] args) throws IOException {
+        int iSectorCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        byte[] abAdpcm = XaAdpcmDecoderTest.makeSectors(iSectorCount, 1234, 4, 0);
+
+        for (int iRun = 0; iRun < RUNS; iRun++) {
+            System.out.println("Run " + (iRun + 1));
+            report("Legacy stream", iSectorCount, timeLegacy(abAdpcm, iSectorCount));
+            report("Fixed stream", iSectorCount, timeStream(abAdpcm, iSectorCount));
+            report("Fixed byte[]", iSectorCount, timeBytes(abAdpcm, iSectorCount));
+            report("Fixed short[]", iSectorCount, timeShorts(abAdpcm, iSectorCount));
+        }
+    }
+
+    private static long timeLegacy(byte[] abAdpcm, int iSectorCount) throws IOException {
+        LegacyXaAdpcmDecoder decoder = new LegacyXaAdpcmDecoder(4, true, 1.0);
+        ByteArrayInputStream in = new ByteArrayInputStream(abAdpcm);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long lngStart = System.nanoTime();
+        for (int i = 0; i < iSectorCount; i++) {
+            // like SectorXaAudioToAudioPacket used to
+            out.reset();
+            decoder.decode(in, out, i);
+            _lngSink += out.toByteArray()[i & 0xff];
+        }
+        return System.nanoTime() - lngStart;
+    }
+
+    private static long timeStream(byte[] abAdpcm, int iSectorCount) throws IOException {
+        XaAdpcmDecoder decoder = new XaAdpcmDecoder(4, true, 1.0);
+        ByteArrayInputStream in = new ByteArrayInputStream(abAdpcm);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long lngStart = System.nanoTime();
+        for (int i = 0; i < iSectorCount; i++) {
+            out.reset();
+            decoder.decode(in, out, i);
+            _lngSink += out.toByteArray()[i & 0xff];
+        }
+        return System.nanoTime() - lngStart;
+    }
+
+    private static long timeBytes(byte[] abAdpcm, int iSectorCount) {
+        XaAdpcmDecoder decoder = new XaAdpcmDecoder(4, true, 1.0);
+        byte[] abPcm = new byte[decoder.getPcmBytesPerSector()];
+        long lngStart = System.nanoTime();
+        for (int i = 0; i < iSectorCount; i++) {
+            decoder.decode(abAdpcm, i * XaAdpcmDecoder.SIZEOF_SECTOR_ADPCM, abPcm, 0, i);
+            _lngSink += abPcm[i & 0xff];
+        }
+        return System.nanoTime() - lngStart;
+    }
+
+    private static long timeShorts(byte[] abAdpcm, int iSectorCount) {
+        XaAdpcmDecoder decoder = new XaAdpcmDecoder(4, true, 1.0);
+        short[] asiPcm = new short[decoder.getPcmSamplesPerSector()];
+        long lngStart = System.nanoTime();
+        for (int i = 0; i < iSectorCount; i++) {
+            decoder.decode(abAdpcm, i * XaAdpcmDecoder.SIZEOF_SECTOR_ADPCM, asiPcm, 0, i);
+            _lngSink += asiPcm[i & 0xff];
+        }
+        return System.nanoTime() - lngStart;
+    }
+
+    private static void report(String sName, int iSectorCount, long lngNanos) {
+        System.out.format("  %-14s %8.2f ms %10.0f sectors/sec%n",
+                          sName, lngNanos / 1e6, iSectorCount / (lngNanos / 1e9));
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpsxdec.adpcm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nonnull;
+import jpsxdec.util.IO;
+import jpsxdec.util.Maths;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/** Checks the fixed-point {@link XaAdpcmDecoder} against the original
+ * double decoder kept in {@link LegacyXaAdpcmDecoder}. */
+public class XaAdpcmDecoderTest {
+
+    private static final int SECTORS = 200;
+
+    /** Random sectors with valid sound parameters that exercise every
+     * filter and range, including the loud ones that get clamped.
+     * @param iBitsPerSample Determines how the sound parameters are laid out.
+     * @param iCorruptEvery If {@code > 0}, occasionally make the redundant
+     *                      sound parameters disagree. */
+    static @Nonnull byte[] makeSectors(int iSectorCount, long lngSeed,
+                                      int iBitsPerSample, int iCorruptEvery)
+    {
+        Random rand = new Random(lngSeed);
+        byte[] ab = new byte[iSectorCount * XaAdpcmDecoder.SIZEOF_SECTOR_ADPCM];
+        rand.nextBytes(ab);
+        for (int iGroup = 0; iGroup < iSectorCount * XaAdpcmDecoder.ADPCM_SOUND_GROUPS_PER_SECTOR; iGroup++) {
+            int iStart = iGroup * XaAdpcmDecoder.SIZEOF_SOUND_GROUP;
+            for (int iSoundUnit = 0; iSoundUnit < 8; iSoundUnit++) {
+                // ranges above 12 are unusual, but still valid
+                int iRange = rand.nextInt(4) == 0 ? rand.nextInt(16) : rand.nextInt(13);
+                byte bParam = (byte)((rand.nextInt(4) << 4) | iRange);
+                if (iBitsPerSample == 4) {
+                    // 0,1,2,3, 0,1,2,3, 4,5,6,7, 4,5,6,7
+                    int iFirst = iStart + (iSoundUnit & 3) + (iSoundUnit & 4) * 2;
+                    ab[iFirst] = ab[iFirst + 4] = bParam;
+                } else if (iSoundUnit < 4) {
+                    // 0,1,2,3, 0,1,2,3, 0,1,2,3, 0,1,2,3
+                    for (int i = iSoundUnit; i < 16; i += 4)
+                        ab[iStart + i] = bParam;
+                }
+            }
+            if (iCorruptEvery > 0 && rand.nextInt(iCorruptEvery) == 0)
+                ab[iStart + rand.nextInt(16)] = (byte)rand.nextInt(0x40);
+        }
+        return ab;
+    }
+
+    @Test
+    public void sameAsLegacy() throws Exception {
+        double[] adblVolumes = {1.0, 0.5, 0.77, 1.6};
+        for (int iBits = 4; iBits <= 8; iBits += 4) {
+            byte[] abAdpcm = makeSectors(SECTORS, 5, iBits, 0);
+            for (double dblVolume : adblVolumes) {
+                compare(abAdpcm, iBits, false, dblVolume);
+                compare(abAdpcm, iBits, true, dblVolume);
+            }
+        }
+    }
+
+    @Test
+    public void sameAsLegacyWithCorruption() throws Exception {
+        Logger log = Logger.getLogger(XaAdpcmSoundUnit.class.getName());
+        Level oldLevel = log.getLevel();
+        // quiet, but still loggable so the corrupted parameters are corrected
+        log.setLevel(Level.WARNING);
+        log.setUseParentHandlers(false);
+        try {
+            for (int iBits = 4; iBits <= 8; iBits += 4) {
+                byte[] abAdpcm = makeSectors(SECTORS, 8, iBits, 10);
+                compare(abAdpcm, iBits, false, 1.0);
+                compare(abAdpcm, iBits, true, 1.0);
+            }
+        } finally {
+            log.setUseParentHandlers(true);
+            log.setLevel(oldLevel);
+        }
+    }
+
+    private static void compare(@Nonnull byte[] abAdpcm, int iBits, boolean blnStereo,
+                                double dblVolume)
+            throws Exception
+    {
+        LegacyXaAdpcmDecoder legacy = new LegacyXaAdpcmDecoder(iBits, blnStereo, dblVolume);
+        XaAdpcmDecoder streamDecoder = new XaAdpcmDecoder(iBits, blnStereo, dblVolume);
+        XaAdpcmDecoder byteDecoder = new XaAdpcmDecoder(iBits, blnStereo, dblVolume);
+        XaAdpcmDecoder shortDecoder = new XaAdpcmDecoder(iBits, blnStereo, dblVolume);
+
+        ByteArrayInputStream legacyIn = new ByteArrayInputStream(abAdpcm);
+        ByteArrayInputStream streamIn = new ByteArrayInputStream(abAdpcm);
+        ByteArrayOutputStream legacyOut = new ByteArrayOutputStream();
+        ByteArrayOutputStream streamOut = new ByteArrayOutputStream();
+        int iPcmBytes = byteDecoder.getPcmBytesPerSector();
+        byte[] abPcm = new byte[3 + iPcmBytes];
+        short[] asiPcm = new short[5 + shortDecoder.getPcmSamplesPerSector()];
+
+        for (int iSector = 0; iSector < abAdpcm.length / XaAdpcmDecoder.SIZEOF_SECTOR_ADPCM; iSector++) {
+            legacyOut.reset();
+            streamOut.reset();
+            legacy.decode(legacyIn, legacyOut, iSector);
+            streamDecoder.decode(streamIn, streamOut, iSector);
+            int iOffset = iSector * XaAdpcmDecoder.SIZEOF_SECTOR_ADPCM;
+            assertEquals(iPcmBytes, byteDecoder.decode(abAdpcm, iOffset, abPcm, 3, iSector));
+            assertEquals(asiPcm.length - 5, shortDecoder.decode(abAdpcm, iOffset, asiPcm, 5, iSector));
+
+            byte[] abExpected = legacyOut.toByteArray();
+            String sMsg = iBits + " bits stereo " + blnStereo + " volume " + dblVolume + " sector " + iSector;
+            assertEquals(iPcmBytes, abExpected.length);
+            assertArrayEquals(sMsg, abExpected, streamOut.toByteArray());
+            for (int i = 0; i < iPcmBytes; i++)
+                assertEquals(sMsg, abExpected[i], abPcm[3 + i]);
+            for (int i = 0; i < asiPcm.length - 5; i++)
+                assertEquals(sMsg, IO.readSInt16LE(abExpected, i * 2), asiPcm[5 + i]);
+            assertEquals(sMsg, legacy.hadCorruption(), shortDecoder.hadCorruption());
+        }
+        int iSectors = abAdpcm.length / XaAdpcmDecoder.SIZEOF_SECTOR_ADPCM;
+        assertEquals(iSectors * (long)XaAdpcmDecoder.pcmSampleFramesGeneratedFromXaAdpcmSector(iBits, blnStereo),
+                     shortDecoder.getSampleFramesWritten());
+    }
+
+    @Test
+    public void telemetry() {
+        final int[] aiSoundUnits = {0};
+        final double[] adblLastDecoded = {0};
+        SoundUnitDecoder.TELEMETRY_LISTENER = new SoundUnitDecoder.TelemetryListener() {
+            public void soundUnitDecoded(@Nonnull SoundUnitDecoder.Telemetry telemetry) {
+                aiSoundUnits[0]++;
+                adblLastDecoded[0] = telemetry.adblDecodedPcmSamples[SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT-1];
+                assertTrue(telemetry.getLoggingContextCopy().toString().startsWith("Sector 9 "));
+            }
+        };
+        try {
+            XaAdpcmDecoder decoder = new XaAdpcmDecoder(4, false, 1.0);
+            short[] asiPcm = new short[decoder.getPcmSamplesPerSector()];
+            decoder.decode(makeSectors(1, 3, 4, 0), 0, asiPcm, 0, 9);
+            assertEquals(XaAdpcmDecoder.ADPCM_SOUND_GROUPS_PER_SECTOR * 8, aiSoundUnits[0]);
+            long lngExpected = Maths.round(adblLastDecoded[0]);
+            lngExpected = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, lngExpected));
+            assertEquals(lngExpected, asiPcm[asiPcm.length - 1]);
+        } finally {
+            SoundUnitDecoder.TELEMETRY_LISTENER = null;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.cdreaders;
+
+import java.io.File;
+import java.util.Random;
+import testutil.SyntheticDisc;
+
+/** Measures sequential and random sector reading throughput.
+ * Not part of the test suite, run manually:
+ * <pre>java jpsxdec.cdreaders.CdFileSectorReaderBenchmark [sector count or disc image]</pre>
+ * The default 1,000,000 sectors is a 2.2GB image. */
+public class CdFileSectorReaderBenchmark {
+
+    private static final int RUNS = 3;
+    private static final int RANDOM_READS = 200000;
+
+    /** So the reads aren't optimized away. */
+    private static long _lngSink;
+
+    public static void main(String[] args) throws Exception {
+        File image;
+        if (args.length > 0 && new File(args[0]).exists()) {
+            image = new File(args[0]);
+        } else {
+            int iSectorCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+            image = SyntheticDisc.createTempImage(iSectorCount, 1234);
+        }
+
+        for (int iRun = 0; iRun < RUNS; iRun++) {
+            CdFileSectorReader cd = new CdFileSectorReader(image);
+            try {
+                sequential(cd);
+                random(cd);
+            } finally {
+                cd.close();
+            }
+        }
+    }
+
+    private static void sequential(CdFileSectorReader cd) throws Exception {
+        long lngStart = System.nanoTime();
+        long lngSum = 0;
+        for (int i = 0; i < cd.getSectorCount(); i++) {
+            lngSum += cd.getSector(i).readUserDataByte(0);
+        }
+        report("sequential", cd.getSectorCount(), cd.getRawSectorSize(),
+               System.nanoTime() - lngStart);
+        _lngSink += lngSum;
+    }
+
+    private static void random(CdFileSectorReader cd) throws Exception {
+        Random rand = new Random(1234);
+        long lngStart = System.nanoTime();
+        long lngSum = 0;
+        for (int i = 0; i < RANDOM_READS; i++) {
+            lngSum += cd.getSector(rand.nextInt(cd.getSectorCount())).readUserDataByte(0);
+        }
+        report("random", RANDOM_READS, cd.getRawSectorSize(),
+               System.nanoTime() - lngStart);
+        _lngSink += lngSum;
+    }
+
+    private static void report(String sWhat, int iSectorCount, int iSectorSize,
+                               long lngNanos)
+    {
+        double dblSeconds = lngNanos / 1e9;
+        System.out.format("%-11s %,d sectors in %,.1f ms = %,.0f sectors/sec, %,.1f MB/sec%n",
+                          sWhat, iSectorCount, lngNanos / 1e6,
+                          iSectorCount / dblSeconds,
+                          (double)iSectorCount * iSectorSize / dblSeconds / (1024 * 1024));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.cdreaders;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+import jpsxdec.util.IO;
+import org.junit.*;
+import static org.junit.Assert.*;
+import testutil.QuietProgressLogger;
+import testutil.SyntheticDisc;
+
+
+public class DiscPatcherTest {
+
+    private static final int SECTOR_COUNT = 1500;
+
+    /** Patches scattered sectors and a long run added out of order,
+     * some sectors with 2 patches, and checks every sector against patching
+     * each one by itself. */
+    @Test
+    public void sameAsOneAtATime() throws Exception {
+        File original = SyntheticDisc.createTempImage(SECTOR_COUNT, 19);
+        byte[] abOriginal = IO.readFile(original);
+
+        for (int iThreads = 1; iThreads <= 3; iThreads += 2) {
+            File image = File.createTempFile("patched", ".bin");
+            image.deleteOnExit();
+            IO.writeFile(image, abOriginal);
+
+            Random rand = new Random(iThreads);
+            byte[][] aabExpectedUserData = new byte[SECTOR_COUNT][];
+            CdFileSectorReader cd = new CdFileSectorReader(image, true);
+            try {
+                DiscPatcher patcher = new DiscPatcher(cd);
+                for (int i = 0; i < 800; i++) {
+                    int iSector;
+                    if (i < 600)
+                        iSector = 100 + (i * 7) % 600; // a long run, out of order
+                    else
+                        iSector = rand.nextInt(SECTOR_COUNT);
+                    if (aabExpectedUserData[iSector] != null)
+                        continue;
+                    CdSector sector = cd.getSector(iSector);
+                    aabExpectedUserData[iSector] = sector.getCdUserDataCopy();
+                    // some sectors get 2 patches
+                    int iPatches = rand.nextInt(4) == 0 ? 2 : 1;
+                    int iSpace = sector.getCdUserDataSize() / iPatches;
+                    for (int iPatch = 0; iPatch < iPatches; iPatch++) {
+                        byte[] abPatch = new byte[1 + rand.nextInt(iSpace)];
+                        rand.nextBytes(abPatch);
+                        int iOffset = iPatch * iSpace + rand.nextInt(iSpace - abPatch.length + 1);
+                        patcher.addPatch(iSector, iOffset, abPatch, 0, abPatch.length);
+                        System.arraycopy(abPatch, 0, aabExpectedUserData[iSector], iOffset, abPatch.length);
+                    }
+                }
+                patcher.applyPatches(cd, new QuietProgressLogger(), iThreads);
+            } finally {
+                cd.close();
+            }
+
+            CdFileSectorReader expected = new CdFileSectorReader(original);
+            CdFileSectorReader patched = new CdFileSectorReader(image);
+            try {
+                for (int iSector = 0; iSector < SECTOR_COUNT; iSector++) {
+                    CdSector sector = patched.getSector(iSector);
+                    byte[] abExpected;
+                    if (aabExpectedUserData[iSector] == null)
+                        abExpected = expected.getSector(iSector).getRawSectorDataCopy();
+                    else
+                        abExpected = expected.getSector(iSector).rebuildRawSector(aabExpectedUserData[iSector]);
+                    assertArrayEquals("Sector " + iSector, abExpected, sector.getRawSectorDataCopy());
+                    assertEquals(SectorErrorCorrection.Status.OK, sector.checkErrorCorrection());
+                }
+            } finally {
+                expected.close();
+                patched.close();
+            }
+        }
+    }
+
+}
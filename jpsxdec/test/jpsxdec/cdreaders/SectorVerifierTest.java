@@ -0,0 +1,205 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.cdreaders;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.*;
+import static org.junit.Assert.*;
+import testutil.SyntheticDisc;
+
+
+public class SectorVerifierTest {
+
+    /** Bit at a time CRC with the EDC polynomial, to check the tables. */
+    private static long slowEdc(byte[] ab, int iStart, int iEnd) {
+        int edc = 0;
+        for (int i = iStart; i < iEnd; i++) {
+            edc ^= ab[i] & 0xff;
+            for (int iBit = 0; iBit < 8; iBit++)
+                edc = (edc >>> 1) ^ ((edc & 1) != 0 ? 0xD8018001 : 0);
+        }
+        return edc & 0xffffffffL;
+    }
+
+    private static byte[] randomSector(Random rand, int iMode, int iSubMode) {
+        byte[] abSector = new byte[CdSector.SECTOR_SIZE_2352_BIN];
+        rand.nextBytes(abSector);
+        abSector[0] = 0;
+        Arrays.fill(abSector, 1, 11, (byte)0xff);
+        abSector[11] = 0;
+        abSector[12] = 0x12; abSector[13] = 0x34; abSector[14] = 0x56;
+        abSector[15] = (byte)iMode;
+        if (iMode == 2) {
+            abSector[16] = abSector[20] = 1;
+            abSector[17] = abSector[21] = 0;
+            abSector[18] = abSector[22] = (byte)iSubMode;
+            abSector[19] = abSector[23] = 0;
+        }
+        return abSector;
+    }
+
+    private static byte[] mode1Sector(Random rand) {
+        byte[] abSector = randomSector(rand, 1, 0);
+        long lngEdc = SectorErrorCorrection.generateErrorDetectionAndCorrection(abSector, 0, 0x810);
+        for (int i = 0; i < 4; i++)
+            abSector[0x810 + i] = (byte)(lngEdc >> (i * 8));
+        Arrays.fill(abSector, 0x814, 0x930, (byte)0);
+        SectorErrorCorrection.generateErrorCorrectionCode_P(abSector, 12, abSector, 0x81C);
+        SectorErrorCorrection.generateErrorCorrectionCode_Q(abSector, 12, abSector, 0x8C8);
+        return abSector;
+    }
+
+    @Test
+    public void edcSameAsBitwise() {
+        Random rand = new Random(18);
+        byte[] ab = new byte[3000];
+        rand.nextBytes(ab);
+        for (int i = 0; i < 200; i++) {
+            int iStart = rand.nextInt(100);
+            int iEnd = iStart + rand.nextInt(ab.length - iStart);
+            assertEquals(slowEdc(ab, iStart, iEnd),
+                         SectorErrorCorrection.generateErrorDetectionAndCorrection(ab, iStart, iEnd));
+        }
+    }
+
+    @Test
+    public void mode2Form1() {
+        Random rand = new Random(1);
+        byte[] abSector = randomSector(rand, 2, SyntheticDisc.SUBMODE_FORM1_DATA);
+        SectorErrorCorrection.rebuildErrorCorrection(abSector, 1);
+        assertEquals(SectorErrorCorrection.Status.OK,
+                     SectorErrorCorrection.checkMode2Form1(abSector, 0));
+
+        // the address is not part of the ECC or EDC
+        abSector[14]++;
+        assertEquals(SectorErrorCorrection.Status.OK,
+                     SectorErrorCorrection.checkMode2Form1(abSector, 0));
+
+        byte[] abBad = abSector.clone();
+        abBad[1000] ^= 0x10;
+        assertEquals(SectorErrorCorrection.Status.BAD_EDC_AND_ECC,
+                     SectorErrorCorrection.checkMode2Form1(abBad, 0));
+        abBad = abSector.clone();
+        abBad[0x900] ^= 0x10;
+        assertEquals(SectorErrorCorrection.Status.BAD_ECC,
+                     SectorErrorCorrection.checkMode2Form1(abBad, 0));
+
+        // checked in place at an offset
+        byte[] abBuffer = new byte[abSector.length + 100];
+        System.arraycopy(abSector, 0, abBuffer, 100, abSector.length);
+        assertEquals(SectorErrorCorrection.Status.OK,
+                     SectorErrorCorrection.checkMode2Form1(abBuffer, 100));
+    }
+
+    @Test
+    public void mode2Form2() {
+        Random rand = new Random(2);
+        byte[] abSector = randomSector(rand, 2, SyntheticDisc.SUBMODE_FORM2_AUDIO_REALTIME);
+        SectorErrorCorrection.rebuildErrorCorrection(abSector, 2);
+        assertEquals(SectorErrorCorrection.Status.OK,
+                     SectorErrorCorrection.checkMode2Form2(abSector, 0));
+        abSector[2000] ^= 1;
+        assertEquals(SectorErrorCorrection.Status.BAD_EDC,
+                     SectorErrorCorrection.checkMode2Form2(abSector, 0));
+        Arrays.fill(abSector, 0x92C, 0x930, (byte)0);
+        assertEquals(SectorErrorCorrection.Status.NOT_AVAILABLE,
+                     SectorErrorCorrection.checkMode2Form2(abSector, 0));
+    }
+
+    @Test
+    public void mode1() {
+        Random rand = new Random(3);
+        byte[] abSector = mode1Sector(rand);
+        assertEquals(SectorErrorCorrection.Status.OK,
+                     SectorErrorCorrection.checkMode1(abSector, 0));
+        // mode 1 covers the address
+        abSector[14]++;
+        assertEquals(SectorErrorCorrection.Status.BAD_EDC_AND_ECC,
+                     SectorErrorCorrection.checkMode1(abSector, 0));
+    }
+
+    @Test
+    public void verifyImage() throws Exception {
+        File image = SyntheticDisc.createTempImage(3000, 5);
+        int[] aiDamaged = {0, 7, 999, 1000, 1001, 2222, 2999};
+        RandomAccessFile raf = new RandomAccessFile(image, "rw");
+        try {
+            for (int iSector : aiDamaged) {
+                long lngPos = iSector * (long)CdSector.SECTOR_SIZE_2352_BIN + 100;
+                raf.seek(lngPos);
+                int iByte = raf.read();
+                raf.seek(lngPos);
+                raf.write(iByte ^ 0x40);
+            }
+        } finally {
+            raf.close();
+        }
+
+        CdFileSectorReader cd = new CdFileSectorReader(image);
+        try {
+            for (int iThreads = 1; iThreads <= 3; iThreads++) {
+                SectorVerifier.Result result = SectorVerifier.verify(cd, 0, cd.getSectorCount() - 1, iThreads);
+                assertEquals(cd.getSectorCount(), result.iVerifiedCount + result.iNotAvailableCount);
+                int[] aiFound = new int[result.badSectors.size()];
+                for (int i = 0; i < aiFound.length; i++) {
+                    assertTrue(result.badSectors.get(i).status.isDamaged());
+                    aiFound[i] = result.badSectors.get(i).iSector;
+                }
+                assertArrayEquals(aiDamaged, aiFound);
+            }
+
+            List<SectorVerifier.BadSector> badSectors = SectorVerifier.verify(cd, 0, 1000, 1).badSectors;
+            File map = File.createTempFile("badmap", ".txt");
+            map.deleteOnExit();
+            SectorVerifier.writeBadSectorMap(badSectors, map, image.getPath());
+            int[] aiRead = SectorVerifier.readBadSectorMap(map);
+            assertArrayEquals(new int[] {0, 7, 999, 1000}, aiRead);
+            assertEquals(2, SectorVerifier.countBadSectors(aiRead, 5, 999));
+            assertEquals(0, SectorVerifier.countBadSectors(aiRead, 8, 998));
+            assertEquals(4, SectorVerifier.countBadSectors(aiRead, 0, 3000));
+        } finally {
+            cd.close();
+        }
+    }
+
+}
@@ -0,0 +1,264 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.discitems;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.i18n.UnlocalizedMessage;
+import jpsxdec.i18n.exception.LoggedFailure;
+import jpsxdec.i18n.log.ILocalizedLogger;
+import jpsxdec.i18n.log.ProgressLogger;
+import jpsxdec.indexing.DiscIndex;
+import org.junit.*;
+import static org.junit.Assert.*;
+import testutil.QuietProgressLogger;
+import testutil.SyntheticDisc;
+
+
+public class BatchSaverTest {
+
+    private static final int THREADS = 4;
+
+    private static File _image;
+    private static CdFileSectorReader _cd;
+    private static DiscIndex _index;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        _image = SyntheticDisc.createTempImage(14000, 1);
+        _cd = new CdFileSectorReader(_image);
+        _index = new DiscIndex(_cd, new QuietProgressLogger());
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        _cd.close();
+        _image.delete();
+    }
+
+    /** What the jobs did, in the order the batch saver was told. */
+    private static class Recorder implements ILocalizedLogger {
+        public final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+        public void log(Level level, ILocalizedMessage msg) {
+            events.add("log " + msg);
+        }
+
+        public void log(Level level, ILocalizedMessage msg, Throwable debugException) {
+            log(level, msg);
+        }
+    }
+
+    private static class TestJob extends BatchSaver.Job {
+        private final int _iJob;
+        private final int _iSleepMillis;
+        @CheckForNull
+        private final Throwable _toThrow;
+        private final boolean _blnContinue;
+        @Nonnull
+        private final Recorder _started;
+        @Nonnull
+        private final Recorder _finished;
+
+        public TestJob(@Nonnull DiscItem item, int iJob, int iSleepMillis,
+                       @CheckForNull Throwable toThrow, boolean blnContinue,
+                       @Nonnull Recorder started, @Nonnull Recorder finished)
+        {
+            super(item);
+            _iJob = iJob;
+            _iSleepMillis = iSleepMillis;
+            _toThrow = toThrow;
+            _blnContinue = blnContinue;
+            _started = started;
+            _finished = finished;
+        }
+
+        protected @Nonnull ProgressLogger getProgressDisplay() {
+            return new QuietProgressLogger();
+        }
+
+        protected void save(@Nonnull DiscItem item, @Nonnull ProgressLogger pl)
+                throws LoggedFailure
+        {
+            _started.events.add("job " + _iJob);
+            assertEquals(getDiscItem().serialize().serialize(), item.serialize().serialize());
+            assertEquals(getDiscItem().getChildCount(), item.getChildCount());
+            pl.log(Level.INFO, new UnlocalizedMessage("saving " + _iJob));
+            try {
+                Thread.sleep(_iSleepMillis);
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+            if (_toThrow instanceof Error)
+                throw (Error) _toThrow;
+            else if (_toThrow instanceof RuntimeException)
+                throw (RuntimeException) _toThrow;
+            else if (_toThrow != null)
+                throw new LoggedFailure(pl, Level.SEVERE, new UnlocalizedMessage("failed " + _iJob));
+        }
+
+        protected boolean finished(@CheckForNull Exception failure) {
+            _finished.events.add("finished " + _iJob +
+                                 (failure == null ? "" : " " + failure.getClass().getSimpleName()));
+            return _blnContinue;
+        }
+    }
+
+    private static @Nonnull List<DiscItem> items() {
+        ArrayList<DiscItem> items = new ArrayList<DiscItem>();
+        for (DiscItem item : _index) {
+            items.add(item);
+        }
+        assertTrue(items.size() > THREADS);
+        return items;
+    }
+
+    /** Jobs that take longer the earlier they are, so they finish backwards. */
+    private static @Nonnull List<TestJob> backwardJobs(@Nonnull Recorder started, @Nonnull Recorder finished) {
+        List<DiscItem> items = items();
+        ArrayList<TestJob> jobs = new ArrayList<TestJob>();
+        for (int i = 0; i < items.size(); i++) {
+            jobs.add(new TestJob(items.get(i), i, (items.size() - i) * 3, null, true, started, finished));
+        }
+        return jobs;
+    }
+
+    @Test
+    public void finishesInOrder() {
+        Recorder expectedLog = new Recorder();
+        Recorder expected = new Recorder();
+        new BatchSaver().save(backwardJobs(new Recorder(), expected), expectedLog);
+
+        Recorder actualLog = new Recorder();
+        Recorder actual = new Recorder();
+        new BatchSaver(_index, THREADS).save(backwardJobs(new Recorder(), actual), actualLog);
+
+        assertEquals(expected.events, actual.events);
+        assertEquals(expectedLog.events, actualLog.events);
+    }
+
+    @Test
+    public void failuresOnlyAffectTheirJob() {
+        List<DiscItem> items = items();
+        Recorder started = new Recorder();
+        Recorder finished = new Recorder();
+        Recorder log = new Recorder();
+        ArrayList<TestJob> jobs = new ArrayList<TestJob>();
+        for (int i = 0; i < items.size(); i++) {
+            Throwable toThrow = null;
+            if (i == 1)
+                toThrow = new IllegalStateException();
+            else if (i == 2)
+                toThrow = new Exception();
+            jobs.add(new TestJob(items.get(i), i, 1, toThrow, true, started, finished));
+        }
+        new BatchSaver(_index, THREADS).save(jobs, log);
+
+        assertEquals(items.size(), started.events.size());
+        assertEquals(items.size(), finished.events.size());
+        assertEquals("finished 0", finished.events.get(0));
+        assertEquals("finished 1 IllegalStateException", finished.events.get(1));
+        assertEquals("finished 2 LoggedFailure", finished.events.get(2));
+        assertEquals("finished 3", finished.events.get(3));
+        assertTrue(log.events.contains("log failed 2"));
+    }
+
+    @Test
+    public void stopsWhenAJobSaysTo() {
+        List<DiscItem> items = items();
+        Recorder started = new Recorder();
+        Recorder finished = new Recorder();
+        ArrayList<TestJob> jobs = new ArrayList<TestJob>();
+        for (int i = 0; i < items.size(); i++) {
+            jobs.add(new TestJob(items.get(i), i, i == 0 ? 0 : 100, null, i != 0, started, finished));
+        }
+        new BatchSaver(_index, 2).save(jobs, new Recorder());
+
+        assertEquals(Collections.singletonList("finished 0"), finished.events);
+        // only the jobs that had already started when the first finished
+        assertTrue(started.events.size() < items.size());
+    }
+
+    @Test
+    public void errorsAreNotCaught() {
+        List<DiscItem> items = items();
+        for (int iThreads = 1; iThreads <= THREADS; iThreads += THREADS - 1) {
+            Recorder finished = new Recorder();
+            ArrayList<TestJob> jobs = new ArrayList<TestJob>();
+            for (int i = 0; i < items.size(); i++) {
+                Throwable toThrow = i == 1 ? new OutOfMemoryError("test") : null;
+                jobs.add(new TestJob(items.get(i), i, 1, toThrow, true, new Recorder(), finished));
+            }
+            try {
+                new BatchSaver(_index, iThreads).save(jobs, new Recorder());
+                fail("Error should have been thrown with " + iThreads + " threads");
+            } catch (OutOfMemoryError ex) {
+                assertEquals("test", ex.getMessage());
+            }
+            assertEquals(Collections.singletonList("finished 0"), finished.events);
+        }
+    }
+
+    /** The copy reads from another reader, and still has its children. */
+    @Test
+    public void copyItem() throws Exception {
+        CdFileSectorReader cd = _cd.openReadOnlyCopy();
+        try {
+            boolean blnHadChildren = false;
+            for (DiscItem item : items()) {
+                DiscItem copy = DiscIndex.copyItem(item, cd, new Recorder());
+                assertNotNull(copy);
+                assertSame(cd, copy.getSourceCd());
+                assertEquals(item.serialize().serialize(), copy.serialize().serialize());
+                assertEquals(item.getChildCount(), copy.getChildCount());
+                blnHadChildren |= item.getChildCount() > 0;
+            }
+            assertTrue(blnHadChildren);
+        } finally {
+            cd.close();
+        }
+    }
+
+}
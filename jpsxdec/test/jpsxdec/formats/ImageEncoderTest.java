@@ -0,0 +1,159 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.formats;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/** Checks {@link PngEncoder} and {@link BmpEncoder} against ImageIO. */
+public class ImageEncoderTest {
+
+    /** Random pixels in the bottom and the right, the rest a gradient
+     * so the filters have something to work with. */
+    private static int[] makePixels(int iWidth, int iHeight, long lngSeed) {
+        Random rand = new Random(lngSeed);
+        int[] aiRgb = new int[iWidth * iHeight];
+        for (int y = 0; y < iHeight; y++) {
+            for (int x = 0; x < iWidth; x++) {
+                int iRgb;
+                if (x > iWidth * 3 / 4 || y > iHeight * 3 / 4)
+                    iRgb = rand.nextInt();
+                else
+                    iRgb = (x * 255 / iWidth) << 16 | (y * 255 / iHeight) << 8 | ((x + y) & 0xff);
+                aiRgb[x + y * iWidth] = iRgb & 0xffffff;
+            }
+        }
+        return aiRgb;
+    }
+
+    private static BufferedImage toImage(int[] aiRgb, int iWidth, int iHeight) {
+        BufferedImage bi = new BufferedImage(iWidth, iHeight, BufferedImage.TYPE_INT_RGB);
+        bi.setRGB(0, 0, iWidth, iHeight, aiRgb, 0, iWidth);
+        return bi;
+    }
+
+    private static void assertPixels(int[] aiExpected, int iWidth, int iHeight, byte[] abImage)
+            throws IOException
+    {
+        BufferedImage bi = ImageIO.read(new ByteArrayInputStream(abImage));
+        assertEquals(iWidth, bi.getWidth());
+        assertEquals(iHeight, bi.getHeight());
+        int[] aiActual = bi.getRGB(0, 0, iWidth, iHeight, null, 0, iWidth);
+        for (int i = 0; i < aiActual.length; i++)
+            assertEquals("Pixel " + i, aiExpected[i], aiActual[i] & 0xffffff);
+    }
+
+    @Test
+    public void pngEveryFilter() throws IOException {
+        int[] aiRgb = makePixels(61, 37, 1);
+        PngEncoder png = new PngEncoder();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (PngEncoder.Filter filter : PngEncoder.Filter.values()) {
+                for (int iLevel = 0; iLevel <= 9; iLevel += 3) {
+                    png.setFilter(filter);
+                    png.setCompressionLevel(iLevel);
+                    out.reset();
+                    png.write(aiRgb, 61, 37, out);
+                    assertPixels(aiRgb, 61, 37, out.toByteArray());
+                }
+            }
+        } finally {
+            png.close();
+        }
+    }
+
+    /** Larger than one IDAT chunk. */
+    @Test
+    public void pngSeveralChunks() throws IOException {
+        int[] aiRgb = new int[640 * 480];
+        Random rand = new Random(2);
+        for (int i = 0; i < aiRgb.length; i++)
+            aiRgb[i] = rand.nextInt() & 0xffffff;
+        PngEncoder png = new PngEncoder();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            png.write(aiRgb, 640, 480, out);
+            assertPixels(aiRgb, 640, 480, out.toByteArray());
+        } finally {
+            png.close();
+        }
+    }
+
+    @Test
+    public void bmpSameAsImageIO() throws IOException {
+        // odd widths need row padding
+        for (int iWidth = 13; iWidth <= 16; iWidth++) {
+            int[] aiRgb = makePixels(iWidth, 9, iWidth);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            ImageIO.write(toImage(aiRgb, iWidth, 9), "bmp", expected);
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            new BmpEncoder().write(aiRgb, iWidth, 9, actual);
+            assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+        }
+    }
+
+    /** Only part of a bigger buffer. */
+    @Test
+    public void subImage() throws IOException {
+        int[] aiRgb = makePixels(40, 30, 3);
+        int[] aiSub = new int[20 * 10];
+        for (int y = 0; y < 10; y++)
+            System.arraycopy(aiRgb, 5 + (y + 7) * 40, aiSub, y * 20, 20);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PngEncoder png = new PngEncoder();
+        try {
+            png.write(aiRgb, 5 + 7 * 40, 40, 20, 10, out);
+        } finally {
+            png.close();
+        }
+        assertPixels(aiSub, 20, 10, out.toByteArray());
+
+        out.reset();
+        new BmpEncoder().write(aiRgb, 5 + 7 * 40, 40, 20, 10, out);
+        assertPixels(aiSub, 20, 10, out.toByteArray());
+    }
+
+}
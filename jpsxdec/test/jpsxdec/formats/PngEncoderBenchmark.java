@@ -0,0 +1,113 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.formats;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+/** Compares how long it takes to write a 320x240 frame as a PNG
+ * with ImageIO and with {@link PngEncoder} at a few settings.
+ * Not part of the test suite, run manually:
+ * <pre>java jpsxdec.formats.PngEncoderBenchmark [frame count]</pre> */
+public class PngEncoderBenchmark {
+
+    private static final int RUNS = 5;
+    private static final int WIDTH = 320, HEIGHT = 240;
+
+    private static long _lngSink;
+
+    public static void main(String[] args) throws Exception {
+        int iFrames = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+
+        // something like a decoded frame: smooth with a little noise
+        Random rand = new Random(1);
+        int[] aiRgb = new int[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                double d = Math.sin(x * 0.03 + y / 8 * 0.1) * 60 + Math.cos(y * 0.05 + x / 8 * 0.07) * 50;
+                int r = clamp(128 + d + rand.nextGaussian() * 3);
+                int g = clamp(100 + d * 0.7 + rand.nextGaussian() * 3);
+                int b = clamp(90 - d * 0.5 + rand.nextGaussian() * 3);
+                aiRgb[x + y * WIDTH] = (r << 16) | (g << 8) | b;
+            }
+        }
+        BufferedImage bi = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        bi.setRGB(0, 0, WIDTH, HEIGHT, aiRgb, 0, WIDTH);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PngEncoder png = new PngEncoder();
+        try {
+            for (int iRun = 0; iRun < RUNS; iRun++) {
+                long lngStart = System.nanoTime();
+                for (int i = 0; i < iFrames; i++) {
+                    out.reset();
+                    ImageIO.write(bi, "png", out);
+                    _lngSink += out.size();
+                }
+                report("ImageIO", iFrames, out.size(), System.nanoTime() - lngStart);
+
+                for (PngEncoder.Filter filter : new PngEncoder.Filter[] {PngEncoder.Filter.SUB, PngEncoder.Filter.ADAPTIVE}) {
+                    for (int iLevel : new int[] {1, 4, 9}) {
+                        png.setFilter(filter);
+                        png.setCompressionLevel(iLevel);
+                        lngStart = System.nanoTime();
+                        for (int i = 0; i < iFrames; i++) {
+                            out.reset();
+                            png.write(aiRgb, WIDTH, HEIGHT, out);
+                            _lngSink += out.size();
+                        }
+                        report(filter + " " + iLevel, iFrames, out.size(), System.nanoTime() - lngStart);
+                    }
+                }
+                System.out.println();
+            }
+        } finally {
+            png.close();
+        }
+    }
+
+    private static int clamp(double d) {
+        return Math.max(0, Math.min(255, (int) d));
+    }
+
+    private static void report(String sWhat, int iFrames, int iBytes, long lngNanos) {
+        System.out.format("%-11s %,8d bytes %7.2f ms/frame%n", sWhat, iBytes, lngNanos / 1e6 / iFrames);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.formats;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import jpsxdec.util.IO;
+import jpsxdec.util.Misc;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/** Checks the layout of {@link Y4mWriter} and {@link WavWriter} output. */
+public class StreamWritersTest {
+
+    private static final int W = 4, H = 2;
+    private static final int FRAME_SIZE = "FRAME\n".length() + W * H * 3 / 2;
+
+    private static byte[] fill(int iSize, int iValue) {
+        byte[] ab = new byte[iSize];
+        Arrays.fill(ab, (byte)iValue);
+        return ab;
+    }
+
+    @Test
+    public void y4mFrames() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Y4mWriter y4m = new Y4mWriter(out, W, H, 15, 1);
+        y4m.repeatPreviousFrame();
+        y4m.writeFrame(fill(W * H, 1), fill(W * H / 4, 2), fill(W * H / 4, 3));
+        y4m.repeatPreviousFrame();
+        y4m.close();
+        assertEquals(3, y4m.getFramesWritten());
+
+        byte[] ab = out.toByteArray();
+        String sHeader = "YUV4MPEG2 W4 H2 F15:1 Ip A1:1 C420jpeg XYSCSS=420JPEG XCOLORRANGE=LIMITED\n";
+        assertEquals(sHeader, Misc.asciiToString(Arrays.copyOf(ab, sHeader.length())));
+        assertEquals(sHeader.length() + FRAME_SIZE * 3, ab.length);
+
+        byte[] abBlank = frame(ab, sHeader.length(), 0);
+        assertEquals("FRAME\n", Misc.asciiToString(Arrays.copyOf(abBlank, 6)));
+        assertEquals(16, abBlank[6]);
+        assertEquals(128, abBlank[6 + W * H] & 0xff);
+
+        byte[] abFrame = frame(ab, sHeader.length(), 1);
+        assertEquals(1, abFrame[6]);
+        assertEquals(2, abFrame[6 + W * H]);
+        assertEquals(3, abFrame[FRAME_SIZE - 1]);
+        assertArrayEquals(abFrame, frame(ab, sHeader.length(), 2));
+    }
+
+    private static byte[] frame(byte[] ab, int iHeaderSize, int iFrame) {
+        int iStart = iHeaderSize + iFrame * FRAME_SIZE;
+        return Arrays.copyOfRange(ab, iStart, iStart + FRAME_SIZE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void y4mOddDimensions() throws IOException {
+        new Y4mWriter(new ByteArrayOutputStream(), 3, 2, 15, 1);
+    }
+
+    @Test
+    public void wavSizesPatchedInFile() throws Exception {
+        AudioFormat fmt = new AudioFormat(37800, 16, 2, true, false);
+        File file = File.createTempFile("streamwriters", ".wav");
+        try {
+            WavWriter wav = new WavWriter(new FileOutputStream(file), fmt);
+            byte[] abData = new byte[400];
+            for (int i = 0; i < abData.length; i++)
+                abData[i] = (byte)i;
+            wav.write(abData, 0, abData.length);
+            wav.writeSilentSamples(50);
+            wav.close();
+            assertEquals(150, wav.getSampleFramesWritten());
+
+            AudioInputStream ais = AudioSystem.getAudioInputStream(file);
+            try {
+                assertEquals(150, ais.getFrameLength());
+                assertEquals(37800, ais.getFormat().getSampleRate(), 0);
+                assertEquals(2, ais.getFormat().getChannels());
+                byte[] abRead = IO.readByteArray(ais, 600);
+                assertArrayEquals(abData, Arrays.copyOf(abRead, 400));
+                assertArrayEquals(new byte[200], Arrays.copyOfRange(abRead, 400, 600));
+            } finally {
+                ais.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void wavStreamingSizes() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WavWriter wav = new WavWriter(out, new AudioFormat(18900, 16, 1, true, false));
+        wav.write(new byte[10], 0, 10);
+        wav.close();
+        byte[] ab = out.toByteArray();
+        assertEquals(44 + 10, ab.length);
+        // sizes are unknown when the output can't seek
+        assertEquals(-1, IO.readSInt32LE(ab, 4));
+        assertEquals(-1, IO.readSInt32LE(ab, 40));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wavOnlyPcm16() throws IOException {
+        new WavWriter(new ByteArrayOutputStream(), new AudioFormat(37800, 8, 2, true, false));
+    }
+}
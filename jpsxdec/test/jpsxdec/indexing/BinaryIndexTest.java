@@ -0,0 +1,298 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.indexing;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.discitems.DiscItem;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.i18n.log.ILocalizedLogger;
+import jpsxdec.modules.sharedaudio.DiscItemAudioStream;
+import jpsxdec.util.IO;
+import org.junit.*;
+import static org.junit.Assert.*;
+import testutil.QuietProgressLogger;
+import testutil.SyntheticDisc;
+
+
+public class BinaryIndexTest {
+
+    private static File _image;
+    private static File _textIndex;
+    private static File _binaryIndex;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        _image = SyntheticDisc.createTempImage(10000, 1);
+        _textIndex = File.createTempFile("index", ".idx");
+        _binaryIndex = File.createTempFile("index", ".idxb");
+        CdFileSectorReader cd = new CdFileSectorReader(_image);
+        try {
+            new DiscIndex(cd, new QuietProgressLogger()).serializeIndex(_textIndex);
+        } finally {
+            cd.close();
+        }
+        assertTrue(DiscIndex.convertIndex(_textIndex, _binaryIndex));
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        _image.delete();
+        _textIndex.delete();
+        _binaryIndex.delete();
+    }
+
+    @Test
+    public void convertBack() throws Exception {
+        File textAgain = File.createTempFile("index", ".idx");
+        try {
+            assertFalse(DiscIndex.convertIndex(_binaryIndex, textAgain));
+            assertArrayEquals(IO.readFile(_textIndex), IO.readFile(textAgain));
+        } finally {
+            textAgain.delete();
+        }
+    }
+
+    /** Items asked for individually are the same as from the text index,
+     * including their children. */
+    @Test
+    public void lazyItems() throws Exception {
+        DiscIndex text = new DiscIndex(_textIndex.getPath(), new QuietProgressLogger());
+        DiscIndex binary = new DiscIndex(_binaryIndex.getPath(), new QuietProgressLogger());
+        try {
+            assertTrue(text.size() > 0);
+            assertEquals(text.size(), binary.size());
+            for (int i = text.size() - 1; i >= 0; i--) {
+                assertEquals(describe(text.getByIndex(i)), describe(binary.getByIndex(i)));
+            }
+            for (DiscItem item : text) {
+                String sId = item.getIndexId().serialize();
+                assertEquals(describe(item), describe(binary.getById(sId)));
+            }
+            assertNull(binary.getByIndex(text.size()));
+            assertNull(binary.getById("?[999]"));
+        } finally {
+            text.getSourceCd().close();
+            binary.getSourceCd().close();
+        }
+    }
+
+    @Test
+    public void allItems() throws Exception {
+        DiscIndex text = new DiscIndex(_textIndex.getPath(), new QuietProgressLogger());
+        DiscIndex binary = new DiscIndex(_binaryIndex.getPath(), new QuietProgressLogger());
+        try {
+            // one item first, then the rest
+            binary.getByIndex(1);
+            assertEquals(describe(text.getRoot()), describe(binary.getRoot()));
+            List<String> textItems = new ArrayList<String>();
+            for (DiscItem item : text) {
+                textItems.add(describe(item));
+            }
+            List<String> binaryItems = new ArrayList<String>();
+            for (DiscItem item : binary) {
+                binaryItems.add(describe(item));
+            }
+            assertEquals(textItems, binaryItems);
+            assertSame(binary.getByIndex(1), binary.getById(binary.getByIndex(1).getIndexId().serialize()));
+        } finally {
+            text.getSourceCd().close();
+            binary.getSourceCd().close();
+        }
+    }
+
+    /** Item numbers don't have to start at 0 or be next to each other. */
+    @Test
+    public void sparseNumbers() throws Exception {
+        File sparseText = File.createTempFile("index", ".idx");
+        File sparseBinary = File.createTempFile("index", ".idxb");
+        try {
+            writeTextIndex(sparseText, null);
+            assertTrue(DiscIndex.convertIndex(sparseText, sparseBinary));
+            DiscIndex text = new DiscIndex(sparseText.getPath(), new QuietProgressLogger());
+            DiscIndex binary = new DiscIndex(sparseBinary.getPath(), new QuietProgressLogger());
+            try {
+                assertTrue(text.size() > 1);
+                for (int i = 0; i < text.size(); i++) {
+                    int iNumber = sparseNumber(i);
+                    DiscItem item = binary.getByIndex(iNumber);
+                    assertNotNull(item);
+                    assertEquals(iNumber, item.getIndex());
+                    assertEquals(describe(text.getByIndex(iNumber)), describe(item));
+                    assertTrue(binary.hasIndex(iNumber));
+                    assertFalse(binary.hasIndex(iNumber + 1));
+                    assertNull(binary.getByIndex(iNumber + 1));
+                    assertSame(item, binary.getById(item.getIndexId().serialize()));
+                }
+                assertFalse(binary.hasIndex(0));
+                assertNull(binary.getByIndex(0));
+                assertFalse(binary.hasIndex(text.size()));
+                assertEquals(text.size(), binary.size());
+            } finally {
+                text.getSourceCd().close();
+                binary.getSourceCd().close();
+            }
+        } finally {
+            sparseText.delete();
+            sparseBinary.delete();
+        }
+    }
+
+    private static int sparseNumber(int i) {
+        return 10 + i * 3;
+    }
+
+    /** Writes the test index with sparse item numbers, and an extra line. */
+    private static void writeTextIndex(File file, @CheckForNull String sExtraLine) throws Exception {
+        PrintStream ps = new PrintStream(new FileOutputStream(file), false, "UTF-8");
+        try {
+            int iItem = 0;
+            for (String sLine : new String(IO.readFile(_textIndex), "UTF-8").split("\\r?\\n")) {
+                if (sLine.startsWith("#:"))
+                    sLine = "#:" + sparseNumber(iItem++) + sLine.substring(sLine.indexOf('|'));
+                ps.println(sLine);
+            }
+            if (sExtraLine != null)
+                ps.println(sExtraLine);
+        } finally {
+            ps.close();
+        }
+    }
+
+    /** An item asked for by itself is set up by its parent,
+     * the same as when all the items are created. */
+    @Test
+    public void childrenKnowTheirParent() throws Exception {
+        DiscIndex text = new DiscIndex(_textIndex.getPath(), new QuietProgressLogger());
+        try {
+            int iPartOfVideo = 0;
+            for (DiscItem item : text) {
+                if (!(item instanceof DiscItemAudioStream))
+                    continue;
+                DiscIndex binary = new DiscIndex(_binaryIndex.getPath(), new QuietProgressLogger());
+                try {
+                    DiscItemAudioStream audio = (DiscItemAudioStream) binary.getByIndex(item.getIndex());
+                    assertEquals(((DiscItemAudioStream)item).isPartOfVideo(), audio.isPartOfVideo());
+                    if (audio.isPartOfVideo())
+                        iPartOfVideo++;
+                } finally {
+                    binary.getSourceCd().close();
+                }
+            }
+            assertTrue(iPartOfVideo > 0);
+        } finally {
+            text.getSourceCd().close();
+        }
+    }
+
+    /** Problems with items created later are logged where the index was
+     * opened, and don't throw. */
+    @Test
+    public void problemsLogged() throws Exception {
+        File badText = File.createTempFile("index", ".idx");
+        File badBinary = File.createTempFile("index", ".idxb");
+        try {
+            writeTextIndex(badText, "#:1|ID:?[99]|Sectors:0-1|Type:Unknown");
+            assertTrue(DiscIndex.convertIndex(badText, badBinary));
+            // point the first item's line past the end of the file
+            byte[] abBinary = IO.readFile(badBinary);
+            ByteBuffer.wrap(abBinary).putInt(32 + 20, abBinary.length - 2);
+            IO.writeFile(badBinary, abBinary);
+
+            CountingLog log = new CountingLog();
+            DiscIndex binary = new DiscIndex(badBinary.getPath(), log);
+            try {
+                assertEquals(0, log.iCount);
+                assertNull(binary.getByIndex(1));
+                assertEquals(1, log.iCount);
+                assertNull(binary.getByIndex(sparseNumber(0)));
+                assertEquals(2, log.iCount);
+                assertNotNull(binary.getByIndex(sparseNumber(1)));
+                assertEquals(2, log.iCount);
+            } finally {
+                binary.getSourceCd().close();
+            }
+        } finally {
+            badText.delete();
+            badBinary.delete();
+        }
+    }
+
+    private static class CountingLog implements ILocalizedLogger {
+        public int iCount = 0;
+        public void log(@Nonnull Level level, @Nonnull ILocalizedMessage msg) {
+            iCount++;
+        }
+        public void log(@Nonnull Level level, @Nonnull ILocalizedMessage msg,
+                        @CheckForNull Throwable debugException)
+        {
+            iCount++;
+        }
+    }
+
+    /** The item's line and its children's lines. */
+    private static String describe(DiscItem item) {
+        if (item == null)
+            return null;
+        StringBuilder sb = new StringBuilder(item.serialize().serialize());
+        Iterable<? extends DiscItem> children = item.getChildren();
+        if (children != null) {
+            for (DiscItem child : children) {
+                sb.append("\n  ").append(describe(child));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String describe(List<DiscItem> items) {
+        StringBuilder sb = new StringBuilder();
+        for (DiscItem item : items) {
+            sb.append(describe(item)).append('\n');
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.indexing;
+
+import java.io.File;
+import java.io.PrintStream;
+import jpsxdec.Version;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.discitems.DiscItem;
+import testutil.QuietProgressLogger;
+import testutil.SyntheticDisc;
+
+/** Measures how long it takes to open a text and a binary index with many
+ * items, and get one item from it. Not part of the test suite, run manually:
+ * <pre>java jpsxdec.indexing.DiscIndexOpenBenchmark [video count]</pre>
+ * Every video has an audio stream, so the default 20,000 videos
+ * is 40,000 items. */
+public class DiscIndexOpenBenchmark {
+
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int iVideoCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+        // a small disc with one video, which every item in the index uses
+        File image = SyntheticDisc.createTempImage(2000, 1);
+        File textIndex = File.createTempFile("index", ".idx");
+        File binaryIndex = File.createTempFile("index", ".idxb");
+        try {
+            writeTextIndex(image, iVideoCount, textIndex);
+            DiscIndex.convertIndex(textIndex, binaryIndex);
+            System.out.format("%,d items, text %,d bytes, binary %,d bytes%n",
+                              iVideoCount * 2, textIndex.length(), binaryIndex.length());
+
+            for (int iRun = 0; iRun < RUNS; iRun++) {
+                open("text", textIndex, iVideoCount);
+                open("binary", binaryIndex, iVideoCount);
+            }
+        } finally {
+            image.delete();
+            textIndex.delete();
+            binaryIndex.delete();
+        }
+    }
+
+    /** Copies the video and audio stream found on the disc
+     * with different index numbers and ids. */
+    private static void writeTextIndex(File image, int iVideoCount, File textIndex)
+            throws Exception
+    {
+        CdFileSectorReader cd = new CdFileSectorReader(image);
+        String sCd, sVideo = null, sAudio = null;
+        try {
+            DiscIndex index = new DiscIndex(cd, new QuietProgressLogger());
+            sCd = cd.serialize();
+            for (DiscItem item : index) {
+                String sLine = item.serialize().serialize();
+                // strip the index and id
+                sLine = sLine.substring(sLine.indexOf('|', sLine.indexOf("|ID:") + 1));
+                if (item.getChildCount() > 0)
+                    sVideo = sLine;
+                else
+                    sAudio = sLine;
+            }
+        } finally {
+            cd.close();
+        }
+        if (sVideo == null || sAudio == null)
+            throw new IllegalStateException("Synthetic disc should have a video with audio");
+
+        PrintStream ps = new PrintStream(textIndex, "UTF-8");
+        try {
+            ps.println(Version.IndexHeader);
+            ps.println(sCd);
+            for (int i = 0; i < iVideoCount; i++) {
+                ps.println("#:" + (i * 2) + "|ID:?[" + i + "]" + sVideo);
+                ps.println("#:" + (i * 2 + 1) + "|ID:?[" + i + ".0]" + sAudio);
+            }
+        } finally {
+            ps.close();
+        }
+    }
+
+    private static void open(String sType, File indexFile, int iVideoCount) throws Exception {
+        long lngStart = System.nanoTime();
+        DiscIndex index = new DiscIndex(indexFile.getPath(), new QuietProgressLogger());
+        long lngOpened = System.nanoTime();
+        DiscItem item = index.getByIndex(iVideoCount);
+        long lngGot = System.nanoTime();
+        index.getSourceCd().close();
+        if (item == null)
+            throw new IllegalStateException();
+        System.out.format("%-7s open %,8.1f ms, get 1 item %,6.2f ms%n", sType,
+                          (lngOpened - lngStart) / 1e6, (lngGot - lngOpened) / 1e6);
+    }
+}
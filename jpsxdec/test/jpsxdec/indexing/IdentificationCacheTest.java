@@ -0,0 +1,274 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.indexing;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.cdreaders.CdSector;
+import jpsxdec.discitems.DiscItem;
+import jpsxdec.util.IO;
+import org.junit.*;
+import static org.junit.Assert.*;
+import testutil.QuietProgressLogger;
+import testutil.SyntheticDisc;
+
+
+public class IdentificationCacheTest {
+
+    private static final int SECTOR_COUNT = 14000;
+
+    private static File _image;
+    private static File _cacheFile;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        _image = SyntheticDisc.createTempImage(SECTOR_COUNT, 1);
+        _cacheFile = File.createTempFile("idcache", ".idc");
+    }
+
+    @Before
+    public void setUp() {
+        _cacheFile.delete();
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        _image.delete();
+        _cacheFile.delete();
+    }
+
+    @Test
+    public void unchanged() throws Exception {
+        List<String> expected = index(null);
+        assertFalse(expected.isEmpty());
+
+        IdentificationCache cache = loadCache();
+        assertEquals(expected, index(cache));
+        assertEquals(0, cache.getSectorsReused());
+        saveCache(cache);
+
+        cache = loadCache();
+        assertEquals(expected, index(cache));
+        assertEquals(SECTOR_COUNT, cache.getSectorsReused());
+    }
+
+    /** Wiping out sectors in the middle of a video splits it,
+     * the rest of the disc should come from the cache. */
+    @Test
+    public void changed() throws Exception {
+        List<String> original = index(null);
+        IdentificationCache cache = loadCache();
+        index(cache);
+        saveCache(cache);
+
+        RandomAccessFile raf = new RandomAccessFile(_image, "rw");
+        byte[] abOriginal = new byte[CdSector.SECTOR_SIZE_2352_BIN * 40];
+        try {
+            raf.seek(5000L * CdSector.SECTOR_SIZE_2352_BIN);
+            raf.readFully(abOriginal);
+            raf.seek(5000L * CdSector.SECTOR_SIZE_2352_BIN);
+            raf.write(new byte[abOriginal.length]);
+
+            List<String> expected = index(null);
+            assertFalse(expected.equals(original));
+
+            cache = loadCache();
+            assertEquals(expected, index(cache));
+            assertTrue(cache.getSectorsReused() > 0);
+            assertTrue(cache.getSectorsReused() < SECTOR_COUNT);
+        } finally {
+            raf.seek(5000L * CdSector.SECTOR_SIZE_2352_BIN);
+            raf.write(abOriginal);
+            raf.close();
+        }
+    }
+
+    /** Changing the code that identifies sectors, without changing the
+     * version, must not reuse anything. */
+    @Test
+    public void codeChanged() throws Exception {
+        List<String> expected = index(null);
+        IdentificationCache cache = loadCache();
+        index(cache);
+        saveCache(cache);
+
+        String sCodeHash = IdentificationCache.getCodeHash();
+        assertNotNull(sCodeHash);
+        try {
+            IdentificationCache.setCodeHash(sCodeHash + "changed");
+            cache = loadCache();
+            assertEquals(expected, index(cache));
+            assertEquals(0, cache.getSectorsReused());
+        } finally {
+            IdentificationCache.setCodeHash(sCodeHash);
+        }
+    }
+
+    /** If the code can't be hashed, the cache is never used. */
+    @Test
+    public void codeNotHashed() throws Exception {
+        List<String> expected = index(null);
+        String sCodeHash = IdentificationCache.getCodeHash();
+        try {
+            IdentificationCache.setCodeHash(null);
+            IdentificationCache cache = loadCache();
+            index(cache);
+            saveCache(cache);
+            cache = loadCache();
+            assertEquals(expected, index(cache));
+            assertEquals(0, cache.getSectorsReused());
+        } finally {
+            IdentificationCache.setCodeHash(sCodeHash);
+        }
+    }
+
+    /** A damaged cache file is ignored instead of failing indexing. */
+    @Test
+    public void damaged() throws Exception {
+        List<String> expected = index(null);
+        IdentificationCache cache = loadCache();
+        index(cache);
+        saveCache(cache);
+        byte[] abCache = IO.readFile(_cacheFile);
+
+        // magic, version, signature, sector count, sector types,
+        // claimer count, claimer names, sector claimers, ...
+        int iSectorCountOfs = 10 + readUInt16BE(abCache, 8);
+        int iTypesOfs = iSectorCountOfs + 4;
+        int iClaimerCountOfs = iTypesOfs + SECTOR_COUNT;
+        int iClaimersOfs = iClaimerCountOfs + 4;
+        for (int i = IO.readSInt32BE(abCache, iClaimerCountOfs); i > 0; i--) {
+            iClaimersOfs += 2 + readUInt16BE(abCache, iClaimersOfs);
+        }
+
+        List<byte[]> damaged = new ArrayList<byte[]>();
+        damaged.add(Arrays.copyOf(abCache, abCache.length / 2));
+        damaged.add(Arrays.copyOf(abCache, iTypesOfs + 10));
+        damaged.add(withInt(abCache, iSectorCountOfs, Integer.MAX_VALUE));
+        damaged.add(withInt(abCache, iSectorCountOfs, -1));
+        damaged.add(withInt(abCache, iClaimerCountOfs, 100000));
+        damaged.add(withInt(abCache, iClaimerCountOfs, -1));
+        byte[] ab = abCache.clone();
+        ab[iTypesOfs + 100] = 100;
+        damaged.add(ab);
+        ab = abCache.clone();
+        ab[iClaimersOfs + 100] = (byte)0xff;
+        damaged.add(ab);
+
+        for (byte[] abDamaged : damaged) {
+            IO.writeFile(_cacheFile, abDamaged);
+            cache = loadCache();
+            assertEquals(expected, index(cache));
+            assertEquals(0, cache.getSectorsReused());
+        }
+    }
+
+    private static int readUInt16BE(byte[] ab, int i) {
+        return ((ab[i] & 0xff) << 8) | (ab[i + 1] & 0xff);
+    }
+
+    private static byte[] withInt(byte[] ab, int iOffset, int iValue) {
+        byte[] abCopy = ab.clone();
+        for (int i = 0; i < 4; i++)
+            abCopy[iOffset + i] = (byte)(iValue >> (24 - i * 8));
+        return abCopy;
+    }
+
+    @Test
+    public void classesHashed() throws Exception {
+        File dir = File.createTempFile("classes", "");
+        assertTrue(dir.delete());
+        File pkg = new File(dir, "pkg");
+        assertTrue(pkg.mkdirs());
+        File classFile = new File(pkg, "Identifier.class");
+        File otherFile = new File(pkg, "notes.txt");
+        try {
+            IO.writeFile(classFile, new byte[] {1, 2, 3});
+            IO.writeFile(otherFile, new byte[] {1});
+            String sHash = IdentificationCache.hashCode(dir);
+            assertEquals(sHash, IdentificationCache.hashCode(dir));
+
+            IO.writeFile(otherFile, new byte[] {2});
+            assertEquals("Only classes matter", sHash, IdentificationCache.hashCode(dir));
+
+            IO.writeFile(classFile, new byte[] {1, 2, 4});
+            assertFalse(sHash.equals(IdentificationCache.hashCode(dir)));
+        } finally {
+            classFile.delete();
+            otherFile.delete();
+            pkg.delete();
+            dir.delete();
+        }
+    }
+
+    private static IdentificationCache loadCache() throws Exception {
+        CdFileSectorReader cd = new CdFileSectorReader(_image);
+        try {
+            return IdentificationCache.load(_cacheFile, cd);
+        } finally {
+            cd.close();
+        }
+    }
+
+    private static void saveCache(IdentificationCache cache) throws Exception {
+        cache.save(_cacheFile);
+    }
+
+    private static List<String> index(IdentificationCache cache) throws Exception {
+        CdFileSectorReader cd = new CdFileSectorReader(_image);
+        try {
+            DiscIndex index;
+            if (cache == null)
+                index = new DiscIndex(cd, new QuietProgressLogger());
+            else
+                index = new DiscIndex(cd, cache, new QuietProgressLogger());
+            ArrayList<String> items = new ArrayList<String>();
+            for (DiscItem item : index) {
+                items.add(item.serialize().serialize());
+            }
+            return items;
+        } finally {
+            cd.close();
+        }
+    }
+
+}
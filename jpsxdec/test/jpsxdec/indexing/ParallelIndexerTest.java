@@ -0,0 +1,100 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.indexing;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.discitems.DiscItem;
+import org.junit.*;
+import static org.junit.Assert.*;
+import testutil.QuietProgressLogger;
+import testutil.SyntheticDisc;
+
+
+public class ParallelIndexerTest {
+
+    private static final int SECTOR_COUNT = 14000;
+
+    private static File _image;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        _image = SyntheticDisc.createTempImage(SECTOR_COUNT, 1);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        _image.delete();
+    }
+
+    @Test
+    public void partCount() {
+        assertEquals(1, ParallelIndexer.calculatePartCount(100, 4));
+        assertEquals(1, ParallelIndexer.calculatePartCount(SECTOR_COUNT, 1));
+        assertEquals(4, ParallelIndexer.calculatePartCount(SECTOR_COUNT, 4));
+        assertEquals(7, ParallelIndexer.calculatePartCount(SECTOR_COUNT, 16));
+    }
+
+    /** The parts split the synthetic videos and audio streams, so they
+     * must be joined for the index to match. */
+    @Test
+    public void sameAsOneThread() throws Exception {
+        List<String> expected = index(1);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, index(3));
+        assertEquals(expected, index(4));
+        assertEquals(expected, index(7));
+    }
+
+    private static List<String> index(int iThreads) throws Exception {
+        CdFileSectorReader cd = new CdFileSectorReader(_image);
+        try {
+            DiscIndex index = new DiscIndex(cd, iThreads, new QuietProgressLogger());
+            ArrayList<String> items = new ArrayList<String>();
+            for (DiscItem item : index) {
+                items.add(item.serialize().serialize());
+            }
+            return items;
+        } finally {
+            cd.close();
+        }
+    }
+
+}
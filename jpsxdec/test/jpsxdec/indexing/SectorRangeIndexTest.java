@@ -0,0 +1,140 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.indexing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+public class SectorRangeIndexTest {
+
+    /** Ranges of synthetic items laid out like a disc: mostly short,
+     * a few long ones (like files) covering many others. */
+    private static int[][] syntheticRanges(int iCount, long lngSeed) {
+        Random rand = new Random(lngSeed);
+        int[][] aaiRanges = new int[iCount][];
+        int iSector = 0;
+        for (int i = 0; i < iCount; i++) {
+            int iLength;
+            if (rand.nextInt(20) == 0)
+                iLength = 1 + rand.nextInt(500);
+            else
+                iLength = 1 + rand.nextInt(20);
+            iSector += rand.nextInt(15);
+            aaiRanges[i] = new int[] {iSector, iSector + iLength - 1};
+        }
+        return aaiRanges;
+    }
+
+    private static SectorRangeIndex<Integer> build(int[][] aaiRanges) {
+        SectorRangeIndex<Integer> index = new SectorRangeIndex<Integer>();
+        for (int i = 0; i < aaiRanges.length; i++) {
+            index.add(aaiRanges[i][0], aaiRanges[i][1], Integer.valueOf(i));
+        }
+        return index;
+    }
+
+    private static List<Integer> bruteForce(int[][] aaiRanges, int iStart, int iEnd) {
+        List<Integer> found = new ArrayList<Integer>();
+        for (int i = 0; i < aaiRanges.length; i++) {
+            if (aaiRanges[i][0] <= iEnd && aaiRanges[i][1] >= iStart)
+                found.add(Integer.valueOf(i));
+        }
+        return found;
+    }
+
+    @Test
+    public void empty() {
+        SectorRangeIndex<Integer> index = new SectorRangeIndex<Integer>();
+        assertTrue(index.findOverlapping(0, 100).isEmpty());
+        assertNull(index.findFirstAt(0));
+    }
+
+    @Test
+    public void addedOrder() {
+        SectorRangeIndex<String> index = new SectorRangeIndex<String>();
+        index.add(10, 20, "b");
+        index.add(0, 100, "a");
+        index.add(10, 10, "c");
+        index.add(30, 40, "d");
+        assertEquals("[b, a, c]", index.findOverlapping(5, 15).toString());
+        assertEquals("b", index.findFirstAt(10));
+        assertEquals("a", index.findFirstAt(25));
+        assertNull(index.findFirstAt(101));
+        // adding after a query rebuilds the index
+        index.add(101, 101, "e");
+        assertEquals("e", index.findFirstAt(101));
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        for (int iCount : new int[] {1, 2, 10, 100, 1000, 5000}) {
+            int[][] aaiRanges = syntheticRanges(iCount, iCount);
+            SectorRangeIndex<Integer> index = build(aaiRanges);
+            for (int[] aiRange : aaiRanges) {
+                assertEquals(bruteForce(aaiRanges, aiRange[0], aiRange[1]),
+                             index.findOverlapping(aiRange[0], aiRange[1]));
+            }
+        }
+    }
+
+    /** Querying every item against every other would take billions of
+     * comparisons at this size. */
+    @Test(timeout = 30000)
+    public void scaling() {
+        final int COUNT = 200000;
+        int[][] aaiRanges = syntheticRanges(COUNT, 7);
+        SectorRangeIndex<Integer> index = build(aaiRanges);
+        long lngTotalFound = 0;
+        for (int[] aiRange : aaiRanges) {
+            lngTotalFound += index.findOverlapping(aiRange[0], aiRange[1]).size();
+        }
+        assertTrue(lngTotalFound >= COUNT);
+        // spot check against the slow way
+        Random rand = new Random(COUNT);
+        for (int i = 0; i < 20; i++) {
+            int[] aiRange = aaiRanges[rand.nextInt(COUNT)];
+            assertEquals(bruteForce(aaiRanges, aiRange[0], aiRange[1]),
+                         index.findOverlapping(aiRange[0], aiRange[1]));
+        }
+    }
+
+}
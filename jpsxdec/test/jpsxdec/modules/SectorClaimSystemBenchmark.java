@@ -0,0 +1,83 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.modules;
+
+import java.io.File;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.indexing.DiscIndex;
+import testutil.QuietProgressLogger;
+import testutil.SyntheticDisc;
+
+/** Measures how many sectors per second the {@link SectorClaimSystem} can
+ * identify, and how fast a full index runs, on a synthetic disc image.
+ * Not part of the test suite, run manually:
+ * <pre>java jpsxdec.modules.SectorClaimSystemBenchmark [sector count]</pre> */
+public class SectorClaimSystemBenchmark {
+
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int iSectorCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        File image = SyntheticDisc.createTempImage(iSectorCount, 1234);
+        CdFileSectorReader cd = new CdFileSectorReader(image);
+        try {
+            QuietProgressLogger log = new QuietProgressLogger();
+            for (int iRun = 0; iRun < RUNS; iRun++) {
+                long lngStart = System.nanoTime();
+                SectorClaimSystem scs = SectorClaimSystem.create(cd);
+                while (scs.hasNext())
+                    scs.next(log);
+                scs.close(log);
+                report("identify", iSectorCount, System.nanoTime() - lngStart);
+            }
+            for (int iRun = 0; iRun < RUNS; iRun++) {
+                long lngStart = System.nanoTime();
+                new DiscIndex(cd, log);
+                report("index", iSectorCount, System.nanoTime() - lngStart);
+            }
+        } finally {
+            cd.close();
+        }
+    }
+
+    private static void report(String sWhat, int iSectorCount, long lngNanos) {
+        System.out.format("%-8s %,d sectors in %,.1f ms = %,.0f sectors/sec%n",
+                          sWhat, iSectorCount, lngNanos / 1e6,
+                          iSectorCount / (lngNanos / 1e9));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.modules.spu;
+
+import java.io.File;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import testutil.SyntheticDisc;
+
+/** Compares how long SPU detection takes with how it used to be done.
+ * Detection needs to be cheap enough to run on every unidentified sector
+ * of every disc. Not part of the test suite, run manually:
+ * <pre>java jpsxdec.modules.spu.SpuDetectorBenchmark [sector count]</pre> */
+public class SpuDetectorBenchmark {
+
+    private static final int RUNS = 7;
+
+    public static void main(String[] args) throws Exception {
+        int iSectorCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+        byte[][] aabSectors = new byte[iSectorCount][];
+        File image = File.createTempFile("synthetic-spu", ".bin");
+        try {
+            int iClipCount = SyntheticDisc.writeSpuImage(image, iSectorCount, 17);
+            CdFileSectorReader cd = new CdFileSectorReader(image);
+            try {
+                for (int i = 0; i < iSectorCount; i++)
+                    aabSectors[i] = cd.getSector(i).getCdUserDataCopy();
+            } finally {
+                cd.close();
+            }
+            System.out.format("%,d sectors, %,d clips%n", iSectorCount, iClipCount);
+        } finally {
+            image.delete();
+        }
+
+        for (int iRun = 0; iRun < RUNS; iRun++) {
+            long lngStart = System.nanoTime();
+            SpuDetector detector = new SpuDetector(new SpuDetectorTest.Runs());
+            for (int i = 0; i < aabSectors.length; i++)
+                detector.feed(aabSectors[i], aabSectors[i].length, i);
+            detector.reset();
+            long lngDetected = System.nanoTime();
+            SpuDetectorTest.LegacySpuDetector legacy =
+                    new SpuDetectorTest.LegacySpuDetector(new SpuDetectorTest.Runs());
+            for (int i = 0; i < aabSectors.length; i++)
+                legacy.feed(aabSectors[i], aabSectors[i].length, i);
+            legacy.reset();
+            long lngLegacyDetected = System.nanoTime();
+            System.out.format("SPU detection %,6d ns/sector, previously %,6d ns/sector%n",
+                              (lngDetected - lngStart) / iSectorCount,
+                              (lngLegacyDetected - lngDetected) / iSectorCount);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.modules.spu;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.cdreaders.CdSector;
+import jpsxdec.discitems.DiscItem;
+import jpsxdec.indexing.DiscIndex;
+import jpsxdec.util.IO;
+import org.junit.*;
+import static org.junit.Assert.*;
+import testutil.QuietProgressLogger;
+import testutil.SyntheticDisc;
+
+
+public class SpuDetectorTest {
+
+    private static final int SECTOR_COUNT = 2000;
+
+    private static File _image;
+    private static int _iClipCount;
+    private static byte[][] _aabSectors;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        _image = File.createTempFile("synthetic-spu", ".bin");
+        _iClipCount = SyntheticDisc.writeSpuImage(_image, SECTOR_COUNT, 17);
+        CdFileSectorReader cd = new CdFileSectorReader(_image);
+        try {
+            _aabSectors = new byte[SECTOR_COUNT][];
+            for (int i = 0; i < SECTOR_COUNT; i++)
+                _aabSectors[i] = cd.getSector(i).getCdUserDataCopy();
+        } finally {
+            cd.close();
+        }
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        _image.delete();
+    }
+
+    static class Runs implements SpuDetector.Listener {
+        public final List<String> found = new ArrayList<String>();
+        public void runFound(int iStartSector, int iStartOffset,
+                             int iEndSector, int iEndOffset, int iSoundUnitCount)
+        {
+            found.add(iStartSector + "." + iStartOffset + "-" +
+                      iEndSector + "." + iEndOffset + " " + iSoundUnitCount);
+        }
+    }
+
+    private static List<String> detect() {
+        Runs runs = new Runs();
+        SpuDetector detector = new SpuDetector(runs);
+        for (int i = 0; i < _aabSectors.length; i++)
+            detector.feed(_aabSectors[i], _aabSectors[i].length, i);
+        detector.reset();
+        return runs.found;
+    }
+
+    private static List<String> detectLegacy() {
+        Runs runs = new Runs();
+        LegacySpuDetector detector = new LegacySpuDetector(runs);
+        for (int i = 0; i < _aabSectors.length; i++)
+            detector.feed(_aabSectors[i], _aabSectors[i].length, i);
+        detector.reset();
+        return runs.found;
+    }
+
+    /** On real sound both find the same runs. */
+    @Test
+    public void sameAsLegacy() {
+        List<String> found = detect();
+        assertEquals(_iClipCount, found.size());
+        assertEquals(detectLegacy(), found);
+    }
+
+    /** Detection runs on every unidentified sector of every disc, so it
+     * must stay cheaper than how it used to be done. It is usually 2-5
+     * times faster, so only losing all of that fails. The best of a few
+     * runs of each is compared so a slow run doesn't fail it. */
+    @Test
+    public void fasterThanLegacy() {
+        long lngBest = Long.MAX_VALUE, lngLegacyBest = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long lngStart = System.nanoTime();
+            detect();
+            long lngDetected = System.nanoTime();
+            detectLegacy();
+            long lngLegacyDetected = System.nanoTime();
+            lngBest = Math.min(lngBest, lngDetected - lngStart);
+            lngLegacyBest = Math.min(lngLegacyBest, lngLegacyDetected - lngDetected);
+        }
+        assertTrue(lngBest + " ns vs previously " + lngLegacyBest + " ns",
+                   lngBest < lngLegacyBest);
+    }
+
+    /** Image data can look like sound units at every alignment. */
+    @Test
+    public void imagesIgnored() throws Exception {
+        File timImage = File.createTempFile("synthetic-tim", ".bin");
+        try {
+            SyntheticDisc.writeTimImage(timImage, 200, 3);
+            CdFileSectorReader cd = new CdFileSectorReader(timImage);
+            try {
+                Runs runs = new Runs(), legacyRuns = new Runs();
+                SpuDetector detector = new SpuDetector(runs);
+                LegacySpuDetector legacy = new LegacySpuDetector(legacyRuns);
+                for (int i = 0; i < cd.getSectorCount(); i++) {
+                    byte[] ab = cd.getSector(i).getCdUserDataCopy();
+                    detector.feed(ab, ab.length, i);
+                    legacy.feed(ab, ab.length, i);
+                }
+                assertFalse(legacyRuns.found.isEmpty());
+                assertEquals(0, runs.found.size());
+            } finally {
+                cd.close();
+            }
+        } finally {
+            timImage.delete();
+        }
+    }
+
+    @Test
+    public void silenceIgnored() {
+        byte[] abData = new byte[CdSector.SECTOR_USER_DATA_SIZE_MODE1_MODE2FORM1];
+        // a valid start then nothing but zeroes
+        abData[4] = 0x01;
+        abData[4 + 16 * 20 + 1] = 1;
+        Runs runs = new Runs();
+        SpuDetector detector = new SpuDetector(runs);
+        detector.feed(abData, abData.length, 0);
+        assertTrue(runs.found.isEmpty());
+        assertTrue(detector.isIdle());
+
+        abData[4 + 16 * 5 + 10] = 0x55;
+        detector.feed(abData, abData.length, 1);
+        assertEquals("[1.4-1.339 21]", runs.found.toString());
+    }
+
+    /** Silent sound units are all zeroes, which are valid headers at every
+     * alignment, so a false start just before the silence follows the real
+     * clip to its end. That must not be mistaken for image data. */
+    @Test
+    public void silentTailKept() {
+        final int UNITS = 40, LOUD_UNITS = 5;
+        byte[] abData = new byte[CdSector.SECTOR_USER_DATA_SIZE_MODE1_MODE2FORM1];
+        for (int iUnit = 0; iUnit < UNITS; iUnit++) {
+            int iPos = 16 * iUnit;
+            abData[iPos] = (byte)(iUnit < LOUD_UNITS ? 0x12 : 0x0c);
+            if (iUnit == UNITS - 1)
+                abData[iPos + 1] = 1;
+            if (iUnit < LOUD_UNITS) {
+                for (int i = 2; i < 16; i++)
+                    abData[iPos + i] = (byte)(0x99 + iUnit + i);
+            }
+        }
+        // looks like the start of a sound unit 4 bytes into the last loud unit
+        abData[16 * (LOUD_UNITS - 1) + 4] = 0x01;
+        abData[16 * (LOUD_UNITS - 1) + 5] = 0x00;
+
+        Runs runs = new Runs();
+        SpuDetector detector = new SpuDetector(runs);
+        detector.feed(abData, abData.length, 0);
+        assertEquals("[0.0-0." + (16 * UNITS - 1) + " " + UNITS + "]", runs.found.toString());
+    }
+
+    @Test
+    public void indexed() throws Exception {
+        if (!DiscIndexerSpu.ENABLE_SPU_SUPPORT)
+            return;
+        CdFileSectorReader cd = new CdFileSectorReader(_image);
+        try {
+            DiscIndex index = new DiscIndex(cd, new QuietProgressLogger());
+            int iSpuCount = 0;
+            for (DiscItem item : index) {
+                if (item instanceof DiscItemSpu)
+                    iSpuCount++;
+            }
+            assertEquals(_iClipCount, iSpuCount);
+        } finally {
+            cd.close();
+        }
+    }
+
+    /** How SPU sound units used to be found, with an object per phase
+     * fed every 4 byte word. */
+    static class LegacySpuDetector {
+
+        private class SpuRun {
+            private boolean _blnInRun = false;
+            private int _iStartSector;
+            private int _iStartOffset;
+            private int _iEndSector;
+            private int _iEndOffset;
+            private int _iSoundUnitCount;
+            private boolean _blnLastSoundUnit;
+            private boolean _blnOnlyZeroes;
+
+            public void addQuad(int iQuadIndex, int iQuad, int iSector, int iOffset) {
+                if (iQuadIndex == 0) {
+                    int iFilterRange = (iQuad >> 24) & 0xff;
+                    int iFlagBits = (iQuad >> 16) & 0xff;
+
+                    int iFilter = (iFilterRange >> 4) & 0xf;
+                    int iRange = iFilterRange & 0xf;
+                    boolean blnIsSpuHeader = iFilter <=4 && iRange <= 12 && iFlagBits <= 7;
+                    boolean blnIsEnd = false;
+                    if (blnIsSpuHeader) {
+                        blnIsEnd = (iFlagBits & 1) != 0;
+                    }
+
+                    if (_blnInRun) {
+                        if (!blnIsSpuHeader) {
+                            _blnInRun = false;
+                        } else if (blnIsEnd) {
+                            _blnLastSoundUnit = true;
+                        }
+                    } else if (blnIsSpuHeader && iFilterRange != 0 && !blnIsEnd) {
+                        _iStartSector = iSector;
+                        _iStartOffset = iOffset;
+                        _iSoundUnitCount = 0;
+                        _blnInRun = true;
+                        _blnLastSoundUnit = false;
+                        _blnOnlyZeroes = (iQuad & 0xffff) == 0;
+                    }
+                } else if (_blnInRun) {
+                    _blnOnlyZeroes = _blnOnlyZeroes && iQuad == 0;
+                    if (iQuadIndex == 3) {
+                        _iEndSector = iSector;
+                        _iEndOffset = iOffset + 3;
+                        _iSoundUnitCount++;
+                        if (_blnLastSoundUnit) {
+                            if (_iSoundUnitCount >= SpuDetector.MIN_SOUND_UNIT_COUNT && !_blnOnlyZeroes) {
+                                _listener.runFound(_iStartSector, _iStartOffset,
+                                                   _iEndSector, _iEndOffset,
+                                                   _iSoundUnitCount);
+                            }
+                            _blnInRun = false;
+                        }
+                    }
+                }
+            }
+        }
+
+        private final SpuDetector.Listener _listener;
+        private final SpuRun[] _spuRuns = new SpuRun[4];
+        private int _iRun = 0;
+
+        public LegacySpuDetector(SpuDetector.Listener listener) {
+            _listener = listener;
+            for (int i = 0; i < _spuRuns.length; i++)
+                _spuRuns[i] = new SpuRun();
+        }
+
+        public void feed(byte[] abData, int iSize, int iSector) {
+            for (int iOfs = 0; iOfs < iSize; iOfs+=4) {
+                int iQuad = IO.readSInt32BE(abData, iOfs);
+                int iRun = _iRun;
+                int iQuadIndex = 0;
+                for (int i = 0; i < 4; i++) {
+                    _spuRuns[iRun].addQuad(iQuadIndex, iQuad, iSector, iOfs);
+                    iRun = (iRun + 1) % _spuRuns.length;
+                    iQuadIndex--;
+                    if (iQuadIndex < 0)
+                        iQuadIndex = _spuRuns.length - 1;
+                }
+                _iRun = (_iRun + 1) % _spuRuns.length;
+            }
+        }
+
+        public void reset() {
+            for (SpuRun run : _spuRuns)
+                run._blnInRun = false;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.modules.tim;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.cdreaders.CdSector;
+import jpsxdec.indexing.DiscIndex;
+import jpsxdec.modules.CdSectorDemuxPiece;
+import jpsxdec.tim.Tim;
+import jpsxdec.tim.TimInfo;
+import jpsxdec.util.DemuxPushInputStream;
+import jpsxdec.util.IO;
+import testutil.QuietProgressLogger;
+import testutil.SyntheticDisc;
+
+/** Measures how many bytes per second the Tim search covers on a synthetic
+ * image packed with Tims. Compares probing the demux stream with
+ * {@link Tim#isTim(java.io.InputStream)} at every 4 bytes (how the indexer
+ * used to search) against scanning the data with
+ * {@link Tim#findTimStart(byte[], int, int)} first, then times a full index.
+ * Not part of the test suite, run manually:
+ * <pre>java jpsxdec.modules.tim.DiscIndexerTimBenchmark [sector count]</pre> */
+public class DiscIndexerTimBenchmark {
+
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int iSectorCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        // every Tim found is logged
+        Logger.getLogger("").setLevel(Level.WARNING);
+        File image = File.createTempFile("synthetic-tim", ".bin");
+        image.deleteOnExit();
+        int iTimCount = SyntheticDisc.writeTimImage(image, iSectorCount, 1234);
+        System.out.format("%,d Tims written%n", iTimCount);
+        CdFileSectorReader cd = new CdFileSectorReader(image);
+        try {
+            CdSector[] aoSectors = new CdSector[iSectorCount];
+            long lngBytes = 0;
+            for (int i = 0; i < iSectorCount; i++) {
+                aoSectors[i] = cd.getSector(i);
+                lngBytes += aoSectors[i].getCdUserDataSize();
+            }
+            for (int iRun = 0; iRun < RUNS; iRun++) {
+                long lngStart = System.nanoTime();
+                int iFound = probeStream(aoSectors);
+                report("stream", iFound, lngBytes, System.nanoTime() - lngStart);
+                lngStart = System.nanoTime();
+                iFound = scanArray(aoSectors);
+                report("array", iFound, lngBytes, System.nanoTime() - lngStart);
+            }
+            QuietProgressLogger log = new QuietProgressLogger();
+            for (int iRun = 0; iRun < RUNS; iRun++) {
+                long lngStart = System.nanoTime();
+                DiscIndex index = new DiscIndex(cd, log);
+                report("index", index.size(), lngBytes, System.nanoTime() - lngStart);
+            }
+        } finally {
+            cd.close();
+        }
+    }
+
+    /** Every offset checked through the stream. */
+    private static int probeStream(CdSector[] aoSectors) throws IOException {
+        DemuxPushInputStream<CdSectorDemuxPiece> stream =
+                new DemuxPushInputStream<CdSectorDemuxPiece>(new CdSectorDemuxPiece(aoSectors[0]));
+        for (int i = 1; i < aoSectors.length; i++)
+            stream.addPiece(new CdSectorDemuxPiece(aoSectors[i]));
+        stream.close();
+        int iFound = 0;
+        while (stream.available() > Tim.MINIMUM_TIM_SIZE) {
+            stream.mark(Integer.MAX_VALUE);
+            TimInfo ti;
+            try {
+                ti = Tim.isTim(stream);
+            } catch (IOException ex) {
+                ti = null;
+            }
+            if (ti != null)
+                iFound++;
+            stream.reset();
+            IO.skip(stream, 4);
+        }
+        return iFound;
+    }
+
+    /** Only offsets that pass the quick check are checked through the stream. */
+    private static int scanArray(CdSector[] aoSectors) throws IOException {
+        byte[] abData = new byte[aoSectors.length * aoSectors[0].getCdUserDataSize()];
+        DemuxPushInputStream<CdSectorDemuxPiece> stream =
+                new DemuxPushInputStream<CdSectorDemuxPiece>(new CdSectorDemuxPiece(aoSectors[0]));
+        int iEnd = 0;
+        for (int i = 0; i < aoSectors.length; i++) {
+            CdSectorDemuxPiece piece = new CdSectorDemuxPiece(aoSectors[i]);
+            if (i > 0)
+                stream.addPiece(piece);
+            piece.copyDemuxPieceData(abData, iEnd);
+            iEnd += piece.getDemuxPieceSize();
+        }
+        stream.close();
+        int iFound = 0;
+        int iPos = 0;
+        while (true) {
+            int i = Tim.findTimStart(abData, iPos, iEnd - Tim.MINIMUM_TIM_SIZE);
+            if (i >= iEnd - Tim.MINIMUM_TIM_SIZE)
+                break;
+            IO.skip(stream, i - iPos);
+            stream.mark(Integer.MAX_VALUE);
+            TimInfo ti;
+            try {
+                ti = Tim.isTim(stream);
+            } catch (IOException ex) {
+                ti = null;
+            }
+            if (ti != null)
+                iFound++;
+            stream.reset();
+            IO.skip(stream, 4);
+            iPos = i + 4;
+        }
+        return iFound;
+    }
+
+    private static void report(String sWhat, int iFound, long lngBytes, long lngNanos) {
+        System.out.format("%-7s %,6d found, %,d bytes in %,8.1f ms = %,6.1f MB/sec%n",
+                          sWhat, iFound, lngBytes, lngNanos / 1e6,
+                          lngBytes / (lngNanos / 1e9) / (1024 * 1024));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.modules.tim;
+
+import java.io.File;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.discitems.DiscItem;
+import jpsxdec.indexing.DiscIndex;
+import jpsxdec.tim.Tim;
+import org.junit.*;
+import static org.junit.Assert.*;
+import testutil.QuietProgressLogger;
+import testutil.SyntheticDisc;
+
+
+public class DiscIndexerTimTest {
+
+    @Test
+    public void findsEveryTim() throws Exception {
+        File image = File.createTempFile("synthetic-tim", ".bin");
+        try {
+            int iTimCount = SyntheticDisc.writeTimImage(image, 400, 5);
+            CdFileSectorReader cd = new CdFileSectorReader(image);
+            try {
+                DiscIndex index = new DiscIndex(cd, new QuietProgressLogger());
+                int iFound = 0;
+                for (DiscItem item : index) {
+                    assertTrue(item instanceof DiscItemTim);
+                    DiscItemTim timItem = (DiscItemTim) item;
+                    Tim tim = timItem.readTim();
+                    assertEquals(timItem.getWidth(), tim.getWidth());
+                    assertEquals(timItem.getHeight(), tim.getHeight());
+                    iFound++;
+                }
+                assertEquals(iTimCount, iFound);
+            } finally {
+                cd.close();
+            }
+        } finally {
+            image.delete();
+        }
+    }
+
+    @Test
+    public void timStart() {
+        byte[] ab = new byte[16];
+        ab[0] = 0x10;
+        assertTrue(Tim.isTimStart(ab, 0));
+        ab[4] = 0x0B;
+        assertTrue(Tim.isTimStart(ab, 0));
+        ab[4] = 0x04;
+        assertFalse(Tim.isTimStart(ab, 0));
+        ab[4] = 0;
+        ab[7] = 1;
+        assertFalse(Tim.isTimStart(ab, 0));
+        assertEquals(8, Tim.findTimStart(ab, 0, 8));
+        ab[7] = 0;
+        assertEquals(0, Tim.findTimStart(ab, 0, 8));
+        assertEquals(8, Tim.findTimStart(ab, 4, 8));
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.modules.video.save;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import javax.imageio.ImageIO;
+import jpsxdec.formats.JavaImageFormat;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.i18n.UnlocalizedMessage;
+import jpsxdec.i18n.log.ILocalizedLogger;
+import jpsxdec.modules.video.framenumber.FormattedFrameNumber;
+import jpsxdec.psxvideo.mdec.MdecDecoder;
+import jpsxdec.psxvideo.mdec.MdecInputStream;
+import jpsxdec.util.Fraction;
+import jpsxdec.util.IO;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+public class Decoded2ImageFilesTest {
+
+    private static final int WIDTH = 48, HEIGHT = 32;
+
+    /** Every pixel of the frame is the frame number. */
+    private static class FakeDecoder extends MdecDecoder {
+        public int iFrame;
+
+        public FakeDecoder() {
+            super(WIDTH, HEIGHT);
+        }
+
+        public void decode(MdecInputStream mdecStream) {
+        }
+
+        public void readDecodedRgb(int iDestWidth, int iDestHeight, int[] aiDest,
+                                   int iOutStart, int iOutStride)
+        {
+            for (int y = 0; y < iDestHeight; y++)
+                Arrays.fill(aiDest, iOutStart + y * iOutStride,
+                            iOutStart + y * iOutStride + iDestWidth, iFrame);
+        }
+    }
+
+    private static class Recorder implements VDP.GeneratedFileListener, ILocalizedLogger {
+        public final List<File> files = new ArrayList<File>();
+        public int iLogged = 0;
+
+        public void fileGenerated(File f) {
+            files.add(f);
+        }
+
+        public void log(Level level, ILocalizedMessage msg) {
+            iLogged++;
+        }
+
+        public void log(Level level, ILocalizedMessage msg, Throwable debugException) {
+            iLogged++;
+        }
+    }
+
+    private File _dir;
+
+    @Before
+    public void setUp() throws IOException {
+        _dir = File.createTempFile("imgseq", "");
+        assertTrue(_dir.delete());
+        IO.makeDirs(_dir);
+    }
+
+    @After
+    public void tearDown() {
+        File[] aoFiles = _dir.listFiles();
+        if (aoFiles != null) {
+            for (File f : aoFiles)
+                f.delete();
+        }
+        _dir.delete();
+    }
+
+    private void writeFrames(JavaImageFormat eFmt, final VideoFormat vf) throws IOException {
+        VideoFileNameFormatter formatter = new VideoFileNameFormatter(_dir, "frame", vf, WIDTH, HEIGHT) {
+            @Override
+            public File format(FormattedFrameNumber frameNumber, ILocalizedLogger log) {
+                return new File(_dir, "frame" + frameNumber.getFrameValue() + vf.getExtension());
+            }
+        };
+        Recorder recorder = new Recorder();
+        VDP.Decoded2ImageFiles imageFiles = new VDP.Decoded2ImageFiles(formatter, eFmt, WIDTH, HEIGHT, 3, recorder);
+        imageFiles.setGenFileListener(recorder);
+        FakeDecoder decoder = new FakeDecoder();
+        List<File> expected = new ArrayList<File>();
+        try {
+            for (int i = 0; i < 40; i++) {
+                FormattedFrameNumber frameNumber = new FormattedFrameNumber(i);
+                if (i % 7 == 3) {
+                    imageFiles.error(new UnlocalizedMessage("bad frame"), frameNumber, new Fraction(i));
+                } else {
+                    decoder.iFrame = i * 0x010203;
+                    imageFiles.decoded(decoder, frameNumber, new Fraction(i));
+                    expected.add(formatter.format(frameNumber, null));
+                }
+            }
+            imageFiles.flush();
+        } finally {
+            imageFiles.close();
+        }
+
+        assertEquals(0, recorder.iLogged);
+        assertEquals(expected, recorder.files);
+        for (File f : expected) {
+            String sName = f.getName();
+            int iFrame = Integer.parseInt(sName.substring(5, sName.indexOf('.')));
+            BufferedImage bi = ImageIO.read(f);
+            assertEquals(WIDTH, bi.getWidth());
+            assertEquals(HEIGHT, bi.getHeight());
+            int[] aiRgb = bi.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+            for (int iRgb : aiRgb)
+                assertEquals(sName, iFrame * 0x010203, iRgb & 0xffffff);
+        }
+    }
+
+    @Test
+    public void png() throws IOException {
+        writeFrames(JavaImageFormat.PNG, VideoFormat.IMGSEQ_PNG);
+    }
+
+    @Test
+    public void bmp() throws IOException {
+        writeFrames(JavaImageFormat.BMP, VideoFormat.IMGSEQ_BMP);
+    }
+
+    /** Every file failing is logged, nothing is reported. */
+    @Test
+    public void unableToWrite() {
+        VideoFileNameFormatter formatter = new VideoFileNameFormatter(_dir, "frame", VideoFormat.IMGSEQ_PNG, WIDTH, HEIGHT) {
+            @Override
+            public File format(FormattedFrameNumber frameNumber, ILocalizedLogger log) {
+                // a directory can't be written as a file
+                return _dir;
+            }
+        };
+        Recorder recorder = new Recorder();
+        VDP.Decoded2ImageFiles imageFiles = new VDP.Decoded2ImageFiles(formatter, JavaImageFormat.PNG, WIDTH, HEIGHT, 2, recorder);
+        imageFiles.setGenFileListener(recorder);
+        try {
+            for (int i = 0; i < 10; i++)
+                imageFiles.decoded(new FakeDecoder(), new FormattedFrameNumber(i), new Fraction(i));
+            imageFiles.flush();
+        } finally {
+            imageFiles.close();
+        }
+        assertEquals(10, recorder.iLogged);
+        assertTrue(recorder.files.isEmpty());
+    }
+
+}
@@ -0,0 +1,391 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpsxdec.modules.video.save;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import javax.annotation.Nonnull;
+import javax.sound.sampled.AudioFormat;
+import jpsxdec.formats.YCbCrImage;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.i18n.UnlocalizedMessage;
+import jpsxdec.i18n.log.ILocalizedLogger;
+import jpsxdec.modules.sharedaudio.DecodedAudioPacket;
+import jpsxdec.modules.video.framenumber.FormattedFrameNumber;
+import jpsxdec.psxvideo.mdec.MdecDecoder_int;
+import jpsxdec.psxvideo.mdec.idct.SimpleIDCT;
+import jpsxdec.util.Fraction;
+import jpsxdec.util.IO;
+import jpsxdec.util.Misc;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/** The Y4M stream must have the same frames as the YUV AVI, with a
+ * timestamp for every frame, and the WAV the same audio. */
+public class Decoded2Y4mTest {
+
+    private static final int WIDTH = 32, HEIGHT = 16;
+    private static final int SECTORS_PER_FRAME = 10;
+    private static final AudioFormat AUDIO_FORMAT = new AudioFormat(37800, 16, 2, true, false);
+    /** 5 sectors of audio. */
+    private static final int PACKET_SAMPLE_FRAMES = 1260;
+
+    private static final int BLANK = -1, ERROR = -2;
+
+    private static class CountingLog implements ILocalizedLogger {
+        public int iWarnings;
+        public void log(Level level, ILocalizedMessage msg) {
+            if (level == Level.WARNING)
+                iWarnings++;
+        }
+        public void log(Level level, ILocalizedMessage msg, Throwable debugException) {
+            log(level, msg);
+        }
+    }
+
+    /** Fills the planes with a pattern unique to each frame instead of
+     * decoding anything. */
+    private static class FakeDecoder extends MdecDecoder_int {
+        public int iFrame;
+
+        public FakeDecoder() {
+            super(new SimpleIDCT(), WIDTH, HEIGHT);
+        }
+
+        @Override
+        public void readDecoded_Rec601_YCbCr420(@Nonnull YCbCrImage ycc) {
+            fill(ycc.getY(), ycc.getCb(), ycc.getCr(), iFrame);
+        }
+
+        public static void fill(@Nonnull byte[] abY, @Nonnull byte[] abCb, @Nonnull byte[] abCr, int iFrame) {
+            for (int i = 0; i < abY.length; i++)
+                abY[i] = (byte)(16 + (iFrame * 31 + i) % 220);
+            for (int i = 0; i < abCb.length; i++) {
+                abCb[i] = (byte)(16 + (iFrame * 17 + i * 3) % 225);
+                abCr[i] = (byte)(16 + (iFrame * 5 + i * 7) % 225);
+            }
+        }
+    }
+
+    /** A frame, a corrupted frame, or an audio packet. */
+    private static class Step {
+        public final int iSector;
+        /** Fake frame number, {@link #ERROR}, or for audio, the silence
+         * expected before the packet. */
+        public final int iValue;
+        public final boolean blnAudio;
+
+        private Step(int iSector, int iValue, boolean blnAudio) {
+            this.iSector = iSector;
+            this.iValue = iValue;
+            this.blnAudio = blnAudio;
+        }
+
+        public static @Nonnull Step frame(int iSector, int iFrame) {
+            return new Step(iSector, iFrame, false);
+        }
+        public static @Nonnull Step audio(int iSector, int iSilenceBefore) {
+            return new Step(iSector, iSilenceBefore, true);
+        }
+    }
+
+    private final List<File> _files = new ArrayList<File>();
+
+    @After
+    public void tearDown() {
+        for (File f : _files)
+            f.delete();
+    }
+
+    private @Nonnull File tempFile(@Nonnull String sExt) throws IOException {
+        File f = File.createTempFile("Decoded2Y4mTest", sExt);
+        _files.add(f);
+        return f;
+    }
+
+    /** Audio starts 40 sectors before the video, so the video starts with
+     * 4 blank frames. Frame 3 is late (2 duplicates) and frame 5 is
+     * presented at the same time as frame 4, so its timestamp is pushed
+     * forward. */
+    @Test
+    public void blankFramesAndDuplicates() throws Exception {
+        Step[] aoSteps = {
+            Step.audio(0, 0),
+            Step.audio(5, 0),
+            Step.audio(10, 0),
+            Step.audio(30, 3780),
+            Step.frame(40, 0),
+            Step.frame(50, 1),
+            Step.frame(60, ERROR),
+            Step.audio(60, 6300),
+            Step.frame(90, 3),
+            Step.frame(100, 4),
+            Step.frame(100, 5),
+            Step.frame(120, 6),
+            Step.frame(130, 7),
+        };
+        int[] aiExpectedFrames = {
+            BLANK, BLANK, BLANK, BLANK, 0, 1, ERROR, ERROR, ERROR, 3, 4, 5, 6, 7
+        };
+        double[] adblExpectedTimestamps = {
+            0, 66.667, 133.333, 200, 266.667, 333.333, 400, 466.667, 533.333, 600, 666.667, 667.667, 800, 866.667
+        };
+        // frame 5
+        int iExpectedWarnings = 1;
+
+        check(40, 0, aoSteps, aiExpectedFrames, adblExpectedTimestamps, iExpectedWarnings);
+    }
+
+    /** Audio starts 25 sectors after the video, so the audio starts with
+     * silence and the video has no blank frames. */
+    @Test
+    public void initialSilence() throws Exception {
+        Step[] aoSteps = {
+            Step.frame(0, 0),
+            Step.frame(10, 1),
+            Step.audio(25, 6300), // initial silence
+            Step.frame(30, 2),
+            Step.audio(30, 0),
+            Step.frame(40, 3),
+            Step.audio(50, 3780),
+        };
+        int[] aiExpectedFrames = {
+            0, 1, 1, 2, 3
+        };
+        double[] adblExpectedTimestamps = {
+            0, 66.667, 133.333, 200, 266.667
+        };
+
+        check(0, 25, aoSteps, aiExpectedFrames, adblExpectedTimestamps, 0);
+    }
+
+    private void check(int iFirstVideoSector, int iFirstAudioSector,
+                       @Nonnull Step[] aoSteps, @Nonnull int[] aiExpectedFrames,
+                       @Nonnull double[] adblExpectedTimestamps, int iExpectedWarnings)
+            throws Exception
+    {
+        File y4mFile = tempFile(".y4m"), timestampsFile = tempFile(".txt"), wavFile = tempFile(".wav");
+        CountingLog y4mLog = new CountingLog();
+        VDP.Decoded2Y4m toY4m = new VDP.Decoded2Y4m(y4mFile, timestampsFile, WIDTH, HEIGHT,
+                sync(iFirstVideoSector, iFirstAudioSector), AUDIO_FORMAT, wavFile, y4mLog);
+        toY4m.open();
+        try {
+            run(toY4m, toY4m, aoSteps);
+        } finally {
+            toY4m.close();
+        }
+
+        File aviFile = tempFile(".avi");
+        CountingLog aviLog = new CountingLog();
+        VDP.Decoded2YuvAvi toAvi = new VDP.Decoded2YuvAvi(aviFile, WIDTH, HEIGHT,
+                sync(iFirstVideoSector, iFirstAudioSector), AUDIO_FORMAT, aviLog);
+        toAvi.open();
+        try {
+            run(toAvi, toAvi, aoSteps);
+        } finally {
+            toAvi.close();
+        }
+
+        assertEquals(iExpectedWarnings, y4mLog.iWarnings);
+        assertEquals(iExpectedWarnings, aviLog.iWarnings);
+
+        List<byte[]> y4mFrames = readY4mFrames(IO.readFile(y4mFile));
+        List<byte[]> aviFrames = new ArrayList<byte[]>();
+        ByteArrayOutputStream aviAudio = new ByteArrayOutputStream();
+        readAvi(IO.readFile(aviFile), aviFrames, aviAudio);
+
+        assertEquals(aiExpectedFrames.length, y4mFrames.size());
+        assertEquals(aiExpectedFrames.length, aviFrames.size());
+
+        int iLumaSize = WIDTH * HEIGHT, iChromaSize = iLumaSize / 4;
+        for (int i = 0; i < aiExpectedFrames.length; i++) {
+            byte[] abY4m = y4mFrames.get(i), abAvi = aviFrames.get(i);
+            byte[] abY4mY = Arrays.copyOfRange(abY4m, 0, iLumaSize);
+            byte[] abY4mCb = Arrays.copyOfRange(abY4m, iLumaSize, iLumaSize + iChromaSize);
+            byte[] abY4mCr = Arrays.copyOfRange(abY4m, iLumaSize + iChromaSize, iLumaSize + iChromaSize * 2);
+            // YV12 stores Cr before Cb
+            byte[] abAviY = Arrays.copyOfRange(abAvi, 0, iLumaSize);
+            byte[] abAviCr = Arrays.copyOfRange(abAvi, iLumaSize, iLumaSize + iChromaSize);
+            byte[] abAviCb = Arrays.copyOfRange(abAvi, iLumaSize + iChromaSize, iLumaSize + iChromaSize * 2);
+
+            String sFrame = "Frame " + i;
+            assertArrayEquals(sFrame, abAviCb, abY4mCb);
+            assertArrayEquals(sFrame, abAviCr, abY4mCr);
+            if (aiExpectedFrames[i] == BLANK) {
+                // the YUV AVI blank frame has always used 0 luma,
+                // Y4M uses video black
+                assertArrayEquals(sFrame, filled(iLumaSize, 16), abY4mY);
+                assertArrayEquals(sFrame, filled(iChromaSize, 128), abY4mCb);
+                assertArrayEquals(sFrame, filled(iChromaSize, 128), abY4mCr);
+            } else {
+                assertArrayEquals(sFrame, abAviY, abY4mY);
+                if (aiExpectedFrames[i] != ERROR) {
+                    byte[] abY = new byte[iLumaSize], abCb = new byte[iChromaSize], abCr = new byte[iChromaSize];
+                    FakeDecoder.fill(abY, abCb, abCr, aiExpectedFrames[i]);
+                    assertArrayEquals(sFrame, abY, abY4mY);
+                    assertArrayEquals(sFrame, abCb, abY4mCb);
+                    assertArrayEquals(sFrame, abCr, abY4mCr);
+                }
+            }
+        }
+
+        List<String> lines = readLines(timestampsFile);
+        assertEquals("# timestamp format v2", lines.get(0));
+        assertEquals("One timestamp per frame", aiExpectedFrames.length, lines.size() - 1);
+        double dblLast = -1;
+        for (int i = 0; i < adblExpectedTimestamps.length; i++) {
+            double dblTimestamp = Double.parseDouble(lines.get(i + 1));
+            assertEquals("Frame " + i, adblExpectedTimestamps[i], dblTimestamp, 0.0005);
+            assertTrue("Frame " + i, dblTimestamp > dblLast);
+            dblLast = dblTimestamp;
+        }
+
+        ByteArrayOutputStream expectedAudio = new ByteArrayOutputStream();
+        for (Step step : aoSteps) {
+            if (!step.blnAudio)
+                continue;
+            expectedAudio.write(new byte[step.iValue * AUDIO_FORMAT.getFrameSize()]);
+            expectedAudio.write(audioData(step.iSector));
+        }
+        byte[] abWav = IO.readFile(wavFile);
+        assertEquals("data", Misc.asciiToString(abWav, 36, 4));
+        byte[] abWavData = Arrays.copyOfRange(abWav, 44, abWav.length);
+        assertEquals(abWavData.length, IO.readSInt32LE(abWav, 40));
+        assertArrayEquals(expectedAudio.toByteArray(), abWavData);
+        assertArrayEquals(aviAudio.toByteArray(), abWavData);
+    }
+
+    private static @Nonnull AudioVideoSync sync(int iFirstVideoSector, int iFirstAudioSector) {
+        return new AudioVideoSync(iFirstVideoSector, 150, new Fraction(SECTORS_PER_FRAME),
+                                  iFirstAudioSector, (int)AUDIO_FORMAT.getSampleRate(), true);
+    }
+
+    private static void run(@Nonnull VDP.IDecodedListener video, @Nonnull DecodedAudioPacket.Listener audio,
+                            @Nonnull Step[] aoSteps)
+            throws Exception
+    {
+        FakeDecoder decoder = new FakeDecoder();
+        int iFrame = 0;
+        for (Step step : aoSteps) {
+            Fraction sector = new Fraction(step.iSector);
+            if (step.blnAudio) {
+                audio.audioPacketComplete(new DecodedAudioPacket(-1, AUDIO_FORMAT, sector, audioData(step.iSector)),
+                                          new CountingLog());
+            } else {
+                FormattedFrameNumber frameNumber = new FormattedFrameNumber(iFrame);
+                if (step.iValue == ERROR) {
+                    video.error(new UnlocalizedMessage("Frame " + iFrame), frameNumber, sector);
+                } else {
+                    decoder.iFrame = step.iValue;
+                    video.decoded(decoder, frameNumber, sector);
+                }
+                iFrame++;
+            }
+        }
+    }
+
+    private static @Nonnull byte[] audioData(int iSector) {
+        byte[] ab = new byte[PACKET_SAMPLE_FRAMES * AUDIO_FORMAT.getFrameSize()];
+        for (int i = 0; i < ab.length; i++)
+            ab[i] = (byte)(iSector + i + 1);
+        return ab;
+    }
+
+    private static @Nonnull byte[] filled(int iSize, int iValue) {
+        byte[] ab = new byte[iSize];
+        Arrays.fill(ab, (byte)iValue);
+        return ab;
+    }
+
+    /** @return The planes of each frame. */
+    private static @Nonnull List<byte[]> readY4mFrames(@Nonnull byte[] ab) {
+        int iFrameSize = WIDTH * HEIGHT * 3 / 2;
+        int i = 0;
+        while (ab[i] != '\n')
+            i++;
+        assertTrue(Misc.asciiToString(ab, 0, i).startsWith("YUV4MPEG2 W" + WIDTH + " H" + HEIGHT + " "));
+        i++;
+        List<byte[]> frames = new ArrayList<byte[]>();
+        while (i < ab.length) {
+            assertEquals("FRAME\n", Misc.asciiToString(ab, i, 6));
+            i += 6;
+            frames.add(Arrays.copyOfRange(ab, i, i + iFrameSize));
+            i += iFrameSize;
+        }
+        assertEquals(ab.length, i);
+        return frames;
+    }
+
+    /** Follows the 'idx1' index to collect every frame, including
+     * duplicates, and the audio in order. */
+    private static void readAvi(@Nonnull byte[] ab, @Nonnull List<byte[]> frames,
+                                @Nonnull ByteArrayOutputStream audio)
+    {
+        // RIFF AVI { LIST hdrl, JUNK, LIST movi, idx1 }
+        int iMovi = -1, iIdx1 = -1;
+        for (int i = 12; i < ab.length; i += 8 + IO.readSInt32LE(ab, i + 4)) {
+            String sId = Misc.asciiToString(ab, i, 4);
+            if (sId.equals("LIST") && Misc.asciiToString(ab, i + 8, 4).equals("movi"))
+                iMovi = i + 8;
+            else if (sId.equals("idx1"))
+                iIdx1 = i;
+        }
+        assertTrue(iMovi > 0 && iIdx1 > 0);
+
+        int iIdx1End = iIdx1 + 8 + IO.readSInt32LE(ab, iIdx1 + 4);
+        for (int i = iIdx1 + 8; i < iIdx1End; i += 16) {
+            String sId = Misc.asciiToString(ab, i, 4);
+            int iOffset = IO.readSInt32LE(ab, i + 8);
+            int iSize = IO.readSInt32LE(ab, i + 12);
+            int iStart = iMovi + iOffset + 8;
+            if (sId.equals("00db"))
+                frames.add(Arrays.copyOfRange(ab, iStart, iStart + iSize));
+            else if (sId.equals("01wb"))
+                audio.write(ab, iStart, iSize);
+        }
+    }
+
+    private static @Nonnull List<String> readLines(@Nonnull File file) throws IOException {
+        return Arrays.asList(Misc.asciiToString(IO.readFile(file)).split("\n"));
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.modules.video.save;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import javax.sound.sampled.AudioFormat;
+import jpsxdec.formats.RgbIntImage;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.i18n.UnlocalizedMessage;
+import jpsxdec.i18n.exception.LoggedFailure;
+import jpsxdec.i18n.log.ILocalizedLogger;
+import jpsxdec.modules.sharedaudio.DecodedAudioPacket;
+import jpsxdec.modules.video.framenumber.FormattedFrameNumber;
+import jpsxdec.psxvideo.mdec.MdecCode;
+import jpsxdec.psxvideo.mdec.MdecDecoder;
+import jpsxdec.psxvideo.mdec.MdecException;
+import jpsxdec.psxvideo.mdec.MdecInputStream;
+import jpsxdec.util.Fraction;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+public class Mdec2DecodedParallelTest {
+
+    /** Stream that takes a random amount of time to "decode". */
+    private static class FakeFrame implements MdecInputStream {
+        public final int iFrame;
+        private final int _iSleepMillis;
+        private final boolean _blnIncomplete;
+
+        public FakeFrame(int iFrame, int iSleepMillis, boolean blnIncomplete) {
+            this.iFrame = iFrame;
+            _iSleepMillis = iSleepMillis;
+            _blnIncomplete = blnIncomplete;
+        }
+
+        public boolean readMdecCode(MdecCode code) throws MdecException.EndOfStream {
+            try {
+                Thread.sleep(_iSleepMillis);
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+            if (_blnIncomplete)
+                throw new MdecException.EndOfStream("incomplete");
+            return true;
+        }
+    }
+
+    /** Just remembers which frame it decoded. */
+    private static class FakeDecoder extends MdecDecoder {
+        public int iDecodedFrame = -1;
+
+        public FakeDecoder() {
+            super(16, 16);
+        }
+
+        public void decode(MdecInputStream mdecStream) throws MdecException.EndOfStream {
+            FakeFrame frame = (FakeFrame) mdecStream;
+            iDecodedFrame = frame.iFrame;
+            frame.readMdecCode(_code);
+        }
+
+        public void readDecodedRgb(int iDestWidth, int iDestHeight, int[] aiDest,
+                                   int iOutStart, int iOutStride)
+        {
+        }
+    }
+
+    private static class Recorder implements VDP.IDecodedListener, DecodedAudioPacket.Listener, ILocalizedLogger {
+        public final List<String> events = new ArrayList<String>();
+
+        public void decoded(MdecDecoder decoder, FormattedFrameNumber frameNumber,
+                            Fraction presentationSector)
+        {
+            events.add("frame " + ((FakeDecoder)decoder).iDecodedFrame + " @" + presentationSector);
+        }
+
+        public void error(ILocalizedMessage errMsg, FormattedFrameNumber frameNumber,
+                          Fraction presentationSector)
+        {
+            events.add("error @" + presentationSector);
+        }
+
+        public void assertAcceptsDecoded(MdecDecoder decoder) {}
+
+        public void audioPacketComplete(DecodedAudioPacket packet, ILocalizedLogger log) {
+            events.add("audio @" + packet.getPresentationSector());
+        }
+
+        public void log(Level level, ILocalizedMessage msg) {
+            events.add("log");
+        }
+
+        public void log(Level level, ILocalizedMessage msg, Throwable debugException) {
+            events.add("log");
+        }
+    }
+
+    private static final AudioFormat AUDIO_FORMAT = new AudioFormat(37800, 16, 2, true, false);
+
+    @Test
+    public void staysInOrder() throws LoggedFailure {
+        Random rand = new Random(1);
+        Recorder expected = new Recorder();
+        Recorder actual = new Recorder();
+
+        MdecDecoder[] aoDecoders = new MdecDecoder[6];
+        for (int i = 0; i < aoDecoders.length; i++)
+            aoDecoders[i] = new FakeDecoder();
+        VDP.Mdec2DecodedParallel parallel = new VDP.Mdec2DecodedParallel(aoDecoders, 3, actual);
+        parallel.setDecoded(actual);
+        parallel.setAudioListener(actual);
+
+        VDP.Mdec2Decoded serial = new VDP.Mdec2Decoded(new FakeDecoder(), expected);
+        serial.setDecoded(expected);
+
+        try {
+            for (int i = 0; i < 60; i++) {
+                Fraction sector = new Fraction(i);
+                switch (rand.nextInt(6)) {
+                    case 0:
+                        ILocalizedMessage err = new UnlocalizedMessage("bad frame");
+                        serial.error(err, null, sector);
+                        parallel.error(err, null, sector);
+                        break;
+                    case 1:
+                        DecodedAudioPacket packet = new DecodedAudioPacket(-1, AUDIO_FORMAT, sector, new byte[4]);
+                        expected.audioPacketComplete(packet, expected);
+                        parallel.audioPacketComplete(packet, actual);
+                        break;
+                    default:
+                        boolean blnIncomplete = rand.nextInt(8) == 0;
+                        int iSleep = rand.nextInt(20);
+                        serial.mdec(new FakeFrame(i, 0, blnIncomplete), null, sector);
+                        parallel.mdec(new FakeFrame(i, iSleep, blnIncomplete), null, sector);
+                }
+            }
+            parallel.flush();
+        } finally {
+            parallel.close();
+        }
+
+        assertEquals(expected.events, actual.events);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void needsSpareDecoder() {
+        new VDP.Mdec2DecodedParallel(new MdecDecoder[] {new FakeDecoder()}, 1, new Recorder());
+    }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpsxdec.modules.video.save;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Level;
+import javax.annotation.Nonnull;
+import javax.sound.sampled.AudioFormat;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.i18n.UnlocalizedMessage;
+import jpsxdec.i18n.log.ILocalizedLogger;
+import jpsxdec.modules.sharedaudio.DecodedAudioPacket;
+import jpsxdec.modules.video.framenumber.FormattedFrameNumber;
+import jpsxdec.psxvideo.encode.MacroBlockEncoder;
+import jpsxdec.psxvideo.encode.MdecEncoder;
+import jpsxdec.psxvideo.encode.PsxYCbCrImage;
+import jpsxdec.psxvideo.mdec.MdecInputStreamReader;
+import jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg;
+import jpsxdec.util.Fraction;
+import jpsxdec.util.IO;
+import jpsxdec.util.Misc;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/** The AVI made with several JPEG encoding threads must be identical to
+ * the one made on a single thread. */
+public class Mdec2MjpegAviParallelTest {
+
+    private static final int WIDTH = 64, HEIGHT = 48;
+    private static final int FRAMES = 40;
+    private static final int THREADS = 3;
+    private static final int SECTORS_PER_FRAME = 10;
+    private static final AudioFormat AUDIO_FORMAT = new AudioFormat(37800, 16, 2, true, false);
+
+    private static class Quiet implements ILocalizedLogger {
+        public void log(Level level, ILocalizedMessage msg) {}
+        public void log(Level level, ILocalizedMessage msg, Throwable debugException) {}
+    }
+
+    /** What happens at each step, and the JPEG that a frame should become. */
+    private static class Step {
+        @Nonnull public final Fraction sector;
+        /** MDEC data of a frame, or null for audio. */
+        public final byte[] abMdec;
+        /** Expected JPEG, or null if the frame is corrupted. */
+        public final byte[] abJpeg;
+
+        public Step(Fraction sector, byte[] abMdec, byte[] abJpeg) {
+            this.sector = sector;
+            this.abMdec = abMdec;
+            this.abJpeg = abJpeg;
+        }
+    }
+
+    private static List<Step> _steps;
+
+    /** Every frame has different MDEC data, some are cut short, and some
+     * are presented late so duplicate frames are needed. */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        Random rand = new Random(42);
+        _steps = new ArrayList<Step>();
+        int iSector = 0;
+        for (int i = 0; i < FRAMES; i++) {
+            BufferedImage bi = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++)
+                    bi.setRGB(x, y, rand.nextInt(0x1000000) & (i % 2 == 0 ? 0xffffff : 0x3f3f3f));
+            }
+            MdecEncoder encoder = new MdecEncoder(new PsxYCbCrImage(bi), WIDTH, HEIGHT);
+            int iQscale = 1 + rand.nextInt(40);
+            int[] aiQscale = { iQscale, iQscale, iQscale, iQscale, iQscale, iQscale };
+            for (MacroBlockEncoder macblk : encoder)
+                macblk.setToFullEncode(aiQscale);
+            ByteArrayOutputStream mdecOut = new ByteArrayOutputStream();
+            MdecInputStreamReader.writeMdecDims(encoder.getStream(), mdecOut, WIDTH, HEIGHT);
+            byte[] abMdec = mdecOut.toByteArray();
+
+            byte[] abJpeg;
+            if (i % 9 == 5) {
+                abMdec = Arrays.copyOf(abMdec, abMdec.length / 2);
+                abJpeg = null;
+            } else {
+                Mdec2Jpeg toJpeg = new Mdec2Jpeg(WIDTH, HEIGHT);
+                toJpeg.readMdec(new MdecInputStreamReader(abMdec));
+                ByteArrayOutputStream jpegOut = new ByteArrayOutputStream();
+                toJpeg.writeJpeg(jpegOut);
+                abJpeg = jpegOut.toByteArray();
+            }
+
+            if (i % 7 == 3)
+                iSector += SECTORS_PER_FRAME * 2; // late, so 2 duplicate frames
+            _steps.add(new Step(new Fraction(iSector), abMdec, abJpeg));
+            if (i % 3 == 0)
+                _steps.add(new Step(new Fraction(iSector), null, null));
+            iSector += SECTORS_PER_FRAME;
+        }
+    }
+
+    private final List<File> _files = new ArrayList<File>();
+
+    @After
+    public void tearDown() {
+        for (File f : _files)
+            f.delete();
+    }
+
+    private @Nonnull byte[] save(@Nonnull VDP.Mdec2MjpegAvi toAvi, @Nonnull File file)
+            throws Exception
+    {
+        toAvi.open();
+        try {
+            int iFrame = 0;
+            for (Step step : _steps) {
+                if (step.abMdec == null) {
+                    byte[] abAudio = new byte[AUDIO_FORMAT.getFrameSize() * 2520];
+                    Arrays.fill(abAudio, (byte)step.sector.asDouble());
+                    toAvi.audioPacketComplete(new DecodedAudioPacket(-1, AUDIO_FORMAT, step.sector, abAudio), toAvi.getLog());
+                } else {
+                    toAvi.mdec(new MdecInputStreamReader(step.abMdec), new FormattedFrameNumber(iFrame), step.sector);
+                    iFrame++;
+                }
+            }
+            if (toAvi instanceof VDP.Mdec2MjpegAviParallel)
+                ((VDP.Mdec2MjpegAviParallel)toAvi).flush();
+        } finally {
+            toAvi.close();
+        }
+        return IO.readFile(file);
+    }
+
+    private @Nonnull File tempFile() throws IOException {
+        File f = File.createTempFile("Mdec2MjpegAviParallelTest", ".avi");
+        _files.add(f);
+        return f;
+    }
+
+    private static @Nonnull AudioVideoSync sync() {
+        return new AudioVideoSync(0, 150, new Fraction(SECTORS_PER_FRAME),
+                                  0, (int)AUDIO_FORMAT.getSampleRate(), false);
+    }
+
+    @Test
+    public void sameAsSerial() throws Exception {
+        File serialFile = tempFile();
+        byte[] abSerial = save(new VDP.Mdec2MjpegAvi(serialFile, WIDTH, HEIGHT, sync(), AUDIO_FORMAT, new Quiet()),
+                               serialFile);
+        File parallelFile = tempFile();
+        byte[] abParallel = save(new VDP.Mdec2MjpegAviParallel(parallelFile, WIDTH, HEIGHT, sync(), AUDIO_FORMAT, THREADS, new Quiet()),
+                                 parallelFile);
+
+        checkFrameOrder(abParallel);
+        assertArrayEquals(abSerial, abParallel);
+    }
+
+    /** Follows the 'idx1' index to check every frame JPEG is in order.
+     * Duplicate frames point to the same chunk, corrupted frames
+     * become an error image. */
+    private static void checkFrameOrder(@Nonnull byte[] ab) {
+        // RIFF AVI { LIST hdrl, JUNK, LIST movi, idx1 }
+        int iMovi = -1, iIdx1 = -1;
+        for (int i = 12; i < ab.length; i += 8 + IO.readSInt32LE(ab, i + 4)) {
+            String sId = Misc.asciiToString(ab, i, 4);
+            if (sId.equals("LIST") && Misc.asciiToString(ab, i + 8, 4).equals("movi"))
+                iMovi = i + 8;
+            else if (sId.equals("idx1"))
+                iIdx1 = i;
+        }
+        assertTrue(iMovi > 0 && iIdx1 > 0);
+
+        List<byte[]> frames = new ArrayList<byte[]>();
+        Set<Integer> offsets = new HashSet<Integer>();
+        int iFramesWithRepeats = 0;
+        int iIdx1End = iIdx1 + 8 + IO.readSInt32LE(ab, iIdx1 + 4);
+        for (int i = iIdx1 + 8; i < iIdx1End; i += 16) {
+            if (!Misc.asciiToString(ab, i, 4).equals("00dc"))
+                continue;
+            iFramesWithRepeats++;
+            int iOffset = IO.readSInt32LE(ab, i + 8);
+            int iSize = IO.readSInt32LE(ab, i + 12);
+            if (offsets.add(iOffset))
+                frames.add(Arrays.copyOfRange(ab, iMovi + iOffset + 8, iMovi + iOffset + 8 + iSize));
+        }
+
+        int iFrame = 0;
+        int iLastSector = 0;
+        for (Step step : _steps) {
+            if (step.abMdec == null)
+                continue;
+            if (step.abJpeg != null) {
+                // chunks are padded to 4 bytes
+                byte[] abChunk = frames.get(iFrame);
+                assertEquals("Frame " + iFrame, (step.abJpeg.length + 3) & ~3, abChunk.length);
+                assertArrayEquals("Frame " + iFrame, step.abJpeg, Arrays.copyOf(abChunk, step.abJpeg.length));
+            }
+            iFrame++;
+            iLastSector = (int)step.sector.asDouble();
+        }
+        assertEquals(FRAMES, frames.size());
+        assertEquals("Frames plus duplicates", iLastSector / SECTORS_PER_FRAME + 1, iFramesWithRepeats);
+    }
+
+}
@@ -104,6 +104,14 @@ public class Fps {
     public void _LUNAR2_24FPS_A16_S56() throws IOException {
         test("LUNAR2_24FPS_A16(S56).dat", new Fraction(25,4), 0);
     }
+    @Test
+    public void _20_A8_looped() throws IOException {
+        testLooped("20FPS_A8.dat", new Fraction(15,2), 120, 4);
+    }
+    @Test
+    public void _DREDD15_looped() throws IOException {
+        testLooped("DREDD15FPS.dat", new Fraction(10,1), 400, 3);
+    }
     
     private static void test(String sFile, Fraction expected, int iFrameStart) throws IOException {
         System.out.println(sFile);
@@ -134,4 +142,29 @@ public class Fps {
         assertEquals(expected, actual);
     }
 
+    /** Plays the whole sequence several times in a row. */
+    private static void testLooped(String sFile, Fraction expected, int iLoopSector, int iLoops)
+            throws IOException
+    {
+        StrFrameRateCalc f = null;
+        for (int iLoop = 0; iLoop < iLoops; iLoop++) {
+            InputStream is = Fps.class.getResourceAsStream(sFile);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is));
+            reader.readLine(); // skip header
+            String sLine;
+            while ((sLine = reader.readLine()) != null) {
+                InconsistentFrameSequence.LineParse lp =
+                    new InconsistentFrameSequence.LineParse(sLine);
+                int iStart = lp.iFrameStartSector + iLoop * iLoopSector;
+                int iEnd = lp.iFrameEndSector + iLoop * iLoopSector;
+                if (f == null)
+                    f = new StrFrameRateCalc(iStart, iEnd);
+                else
+                    f.addFrame(iStart, iEnd);
+            }
+            reader.close();
+        }
+        assertEquals(expected, f.getSectorsPerFrame());
+    }
+
 }
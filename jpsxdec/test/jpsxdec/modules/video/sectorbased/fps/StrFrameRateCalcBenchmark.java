@@ -0,0 +1,115 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpsxdec.modules.video.sectorbased.fps;
+
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jpsxdec.util.Fraction;
+
+/** Measures the cost of detecting the frame rate of many short STR clips,
+ * like a disc full of them would have when indexed. Clips are a mix of
+ * whole number sectors/frame, the start of an inconsistent sequence, and
+ * frames that match nothing.
+ * Not part of the test suite, run manually:
+ * <pre>java jpsxdec.modules.video.sectorbased.fps.StrFrameRateCalcBenchmark [clip count]</pre> */
+public class StrFrameRateCalcBenchmark {
+
+    private static final int RUNS = 5;
+
+    /** So the results aren't optimized away. */
+    private static long _lngSink;
+
+    public static void main(String[] args) {
+        int iClipCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        // every frame rate chosen is logged
+        Logger.getLogger(StrFrameRateCalc.class.getName()).setLevel(Level.WARNING);
+        int[][] aaiClips = makeClips(iClipCount, 1234);
+
+        for (int iRun = 0; iRun < RUNS; iRun++) {
+            long lngStart = System.nanoTime();
+            for (int[] aiFrames : aaiClips) {
+                StrFrameRateCalc calc = new StrFrameRateCalc(aiFrames[0], aiFrames[1]);
+                for (int i = 2; i < aiFrames.length; i += 2)
+                    calc.addFrame(aiFrames[i], aiFrames[i+1]);
+                Fraction spf = calc.getSectorsPerFrame();
+                if (spf != null)
+                    _lngSink += spf.getNumerator();
+            }
+            long lngNanos = System.nanoTime() - lngStart;
+            System.out.format("%,d clips %,8.1f ms = %,8.1f us/clip%n",
+                              iClipCount, lngNanos / 1e6, lngNanos / 1e3 / iClipCount);
+        }
+    }
+
+    /** Each clip is an array of frame start and end sector pairs. */
+    private static int[][] makeClips(int iClipCount, long lngSeed) {
+        Random rand = new Random(lngSeed);
+        int[][] aaiClips = new int[iClipCount][];
+        for (int iClip = 0; iClip < iClipCount; iClip++) {
+            int iFrames = 20 + rand.nextInt(200);
+            int[] aiFrames = new int[iFrames * 2];
+            switch (iClip % 3) {
+                case 0: // whole number sectors/frame
+                    int iSectorsPerFrame = 5 + rand.nextInt(6);
+                    for (int i = 0; i < iFrames; i++) {
+                        aiFrames[i*2  ] = i * iSectorsPerFrame;
+                        aiFrames[i*2+1] = i * iSectorsPerFrame + iSectorsPerFrame - 1;
+                    }
+                    break;
+                case 1: // NTSC 15 fps with audio every 8 sectors
+                    for (int i = 0; i < iFrames; i++) {
+                        int iStart = (int)(i * 1001L / 100);
+                        int iEnd = (int)((i + 1) * 1001L / 100) - 1;
+                        aiFrames[i*2  ] = iStart;
+                        aiFrames[i*2+1] = iEnd;
+                    }
+                    break;
+                default: // nothing in particular
+                    int iSector = 0;
+                    for (int i = 0; i < iFrames; i++) {
+                        int iLength = 3 + rand.nextInt(12);
+                        aiFrames[i*2  ] = iSector;
+                        aiFrames[i*2+1] = iSector + iLength - 1;
+                        iSector += iLength;
+                    }
+            }
+            aaiClips[iClip] = aiFrames;
+        }
+        return aaiClips;
+    }
+}
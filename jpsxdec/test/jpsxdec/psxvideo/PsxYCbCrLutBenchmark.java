@@ -0,0 +1,129 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.psxvideo;
+
+import java.util.Random;
+import jpsxdec.formats.RGB;
+
+/** Compares converting a 320x240 frame to RGB through {@link PsxYCbCr_int}
+ * and {@link RGB} objects (how {@link jpsxdec.psxvideo.mdec.MdecDecoder_int}
+ * used to) against the {@link PsxYCbCrLut} tables.
+ * Not part of the test suite, run manually:
+ * <pre>java jpsxdec.psxvideo.PsxYCbCrLutBenchmark [frame count]</pre> */
+public class PsxYCbCrLutBenchmark {
+
+    private static final int RUNS = 5;
+    private static final int WIDTH = 320, HEIGHT = 240;
+
+    private static int _iSink;
+
+    public static void main(String[] args) {
+        int iFrames = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+
+        Random rand = new Random(1);
+        int[] aiLuma = new int[WIDTH * HEIGHT];
+        int[] aiCb = new int[aiLuma.length / 4], aiCr = new int[aiLuma.length / 4];
+        for (int i = 0; i < aiLuma.length; i++)
+            aiLuma[i] = rand.nextInt(300) - 150;
+        for (int i = 0; i < aiCb.length; i++) {
+            aiCb[i] = rand.nextInt(200) - 100;
+            aiCr[i] = rand.nextInt(200) - 100;
+        }
+        int[] aiRgb = new int[WIDTH * HEIGHT];
+        byte[] abDib = new byte[PsxYCbCrLut.bgr24DibRowSize(WIDTH) * HEIGHT];
+        byte[] abY = new byte[WIDTH * HEIGHT], abCb = new byte[aiCb.length], abCr = new byte[aiCr.length];
+
+        for (int iRun = 0; iRun < RUNS; iRun++) {
+            long lngStart = System.nanoTime();
+            for (int i = 0; i < iFrames; i++) {
+                objects(aiLuma, aiCb, aiCr, aiRgb);
+                _iSink += aiRgb[i % aiRgb.length];
+            }
+            report("objects", iFrames, System.nanoTime() - lngStart);
+
+            lngStart = System.nanoTime();
+            for (int i = 0; i < iFrames; i++) {
+                PsxYCbCrLut.toRgb(aiLuma, aiCb, aiCr, WIDTH, WIDTH, HEIGHT, aiRgb, 0, WIDTH);
+                _iSink += aiRgb[i % aiRgb.length];
+            }
+            report("lut rgb", iFrames, System.nanoTime() - lngStart);
+
+            lngStart = System.nanoTime();
+            for (int i = 0; i < iFrames; i++) {
+                PsxYCbCrLut.toBgr24Dib(aiLuma, aiCb, aiCr, WIDTH, WIDTH, HEIGHT, abDib, 0);
+                _iSink += abDib[i % abDib.length];
+            }
+            report("lut dib", iFrames, System.nanoTime() - lngStart);
+
+            lngStart = System.nanoTime();
+            for (int i = 0; i < iFrames; i++) {
+                PsxYCbCrLut.toRec601YCbCr420(aiLuma, aiCb, aiCr, WIDTH, WIDTH, HEIGHT, abY, abCb, abCr);
+                _iSink += abY[i % abY.length];
+            }
+            report("lut yv12", iFrames, System.nanoTime() - lngStart);
+            System.out.println();
+        }
+    }
+
+    /** The old conversion, even dimensions only. */
+    private static void objects(int[] aiLuma, int[] aiCb, int[] aiCr, int[] aiDest) {
+        PsxYCbCr_int psxycc = new PsxYCbCr_int();
+        RGB rgb1 = new RGB(), rgb2 = new RGB(), rgb3 = new RGB(), rgb4 = new RGB();
+        for (int y = 0; y < HEIGHT; y += 2) {
+            int iLuma1 = y * WIDTH, iLuma2 = iLuma1 + WIDTH, iChroma = y / 2 * WIDTH / 2;
+            int iDest1 = iLuma1, iDest2 = iLuma2;
+            for (int x = 0; x < WIDTH; x += 2, iChroma++) {
+                psxycc.cb = aiCb[iChroma];
+                psxycc.cr = aiCr[iChroma];
+                psxycc.y1 = aiLuma[iLuma1++];
+                psxycc.y2 = aiLuma[iLuma1++];
+                psxycc.y3 = aiLuma[iLuma2++];
+                psxycc.y4 = aiLuma[iLuma2++];
+                psxycc.toRgb(rgb1, rgb2, rgb3, rgb4);
+                aiDest[iDest1++] = rgb1.toInt();
+                aiDest[iDest1++] = rgb2.toInt();
+                aiDest[iDest2++] = rgb3.toInt();
+                aiDest[iDest2++] = rgb4.toInt();
+            }
+        }
+    }
+
+    private static void report(String sWhat, int iFrames, long lngNanos) {
+        System.out.format("%-8s %7.3f ms/frame%n", sWhat, lngNanos / 1e6 / iFrames);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.psxvideo;
+
+import java.util.Arrays;
+import java.util.Random;
+import jpsxdec.formats.RGB;
+import jpsxdec.formats.Rec601YCbCr;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/** Checks {@link PsxYCbCrLut} against {@link PsxYCbCr_int} and
+ * {@link PsxYCbCr}. */
+public class PsxYCbCrLutTest {
+
+    private static int expectedRgb(int y, int cb, int cr) {
+        RGB rgb = new RGB();
+        PsxYCbCr_int.toRgb(y, cb, cr, rgb);
+        return rgb.toInt();
+    }
+
+    private static int expectedRec601(double dbl) {
+        long lng = Math.round(dbl);
+        return lng < 0 ? 0 : lng > 255 ? 255 : (int)lng;
+    }
+
+    /** Every chroma pair, including values outside the tables. */
+    @Test
+    public void rgbSameAsInt() {
+        for (int cb = PsxYCbCrLut.TABLE_MIN - 50; cb <= PsxYCbCrLut.TABLE_MAX + 50; cb++) {
+            for (int cr = PsxYCbCrLut.TABLE_MIN - 50; cr <= PsxYCbCrLut.TABLE_MAX + 50; cr++) {
+                for (int y = -1100 + ((cb * 7 + cr * 13) & 255); y <= 1100; y += 256) {
+                    assertEquals(y + " " + cb + " " + cr,
+                                 expectedRgb(y, cb, cr), PsxYCbCrLut.toRgb(y, cb, cr));
+                }
+            }
+        }
+    }
+
+    /** Random planes with odd dimensions, some values outside the tables. */
+    private static class Planes {
+        public final int iSrcWidth = 36, iSrcHeight = 22;
+        public final int[] aiLuma = new int[iSrcWidth * iSrcHeight];
+        public final int[] aiCb = new int[aiLuma.length / 4], aiCr = new int[aiLuma.length / 4];
+
+        public Planes(long lngSeed) {
+            Random rand = new Random(lngSeed);
+            for (int i = 0; i < aiLuma.length; i++)
+                aiLuma[i] = value(rand);
+            for (int i = 0; i < aiCb.length; i++) {
+                aiCb[i] = value(rand);
+                aiCr[i] = value(rand);
+            }
+        }
+
+        private static int value(Random rand) {
+            return rand.nextInt(50) == 0 ? rand.nextInt(4000) - 2000 : rand.nextInt(400) - 200;
+        }
+
+        public int expectedRgb(int x, int y) {
+            int iChroma = x / 2 + (y / 2) * iSrcWidth / 2;
+            return PsxYCbCrLutTest.expectedRgb(aiLuma[x + y * iSrcWidth], aiCb[iChroma], aiCr[iChroma]);
+        }
+    }
+
+    @Test
+    public void rgbPlanes() {
+        Planes planes = new Planes(1);
+        int iWidth = 33, iHeight = 21, iStride = 40, iStart = 5;
+        int[] aiDest = new int[iStart + iStride * iHeight];
+        PsxYCbCrLut.toRgb(planes.aiLuma, planes.aiCb, planes.aiCr, planes.iSrcWidth,
+                          iWidth, iHeight, aiDest, iStart, iStride);
+        for (int y = 0; y < iHeight; y++) {
+            for (int x = 0; x < iWidth; x++)
+                assertEquals(x + "," + y, planes.expectedRgb(x, y), aiDest[iStart + x + y * iStride]);
+        }
+    }
+
+    @Test
+    public void bgr24Dib() {
+        Planes planes = new Planes(2);
+        for (int iWidth = 30; iWidth <= 33; iWidth++) {
+            int iHeight = 21;
+            int iRowSize = PsxYCbCrLut.bgr24DibRowSize(iWidth);
+            assertEquals(0, iRowSize % 4);
+            byte[] abDib = new byte[iRowSize * iHeight];
+            Arrays.fill(abDib, (byte)0x55);
+            PsxYCbCrLut.toBgr24Dib(planes.aiLuma, planes.aiCb, planes.aiCr, planes.iSrcWidth,
+                                   iWidth, iHeight, abDib, 0);
+            for (int y = 0; y < iHeight; y++) {
+                int iRow = (iHeight - 1 - y) * iRowSize;
+                for (int x = 0; x < iWidth; x++) {
+                    int iRgb = planes.expectedRgb(x, y);
+                    assertEquals((byte)iRgb,         abDib[iRow + x * 3]);
+                    assertEquals((byte)(iRgb >> 8),  abDib[iRow + x * 3 + 1]);
+                    assertEquals((byte)(iRgb >> 16), abDib[iRow + x * 3 + 2]);
+                }
+                for (int i = iWidth * 3; i < iRowSize; i++)
+                    assertEquals(0, abDib[iRow + i]);
+            }
+        }
+    }
+
+    @Test
+    public void rec601SameAsDouble() {
+        Planes planes = new Planes(3);
+        int iWidth = 34, iHeight = 20;
+        byte[] abY = new byte[iWidth * iHeight], abCb = new byte[abY.length / 4], abCr = new byte[abY.length / 4];
+        PsxYCbCrLut.toRec601YCbCr420(planes.aiLuma, planes.aiCb, planes.aiCr, planes.iSrcWidth,
+                                     iWidth, iHeight, abY, abCb, abCr);
+        PsxYCbCr psx = new PsxYCbCr();
+        Rec601YCbCr rec = new Rec601YCbCr();
+        for (int y = 0; y < iHeight; y += 2) {
+            for (int x = 0; x < iWidth; x += 2) {
+                int iSrc = x + y * planes.iSrcWidth;
+                int iChroma = x / 2 + (y / 2) * planes.iSrcWidth / 2;
+                psx.y1 = planes.aiLuma[iSrc];
+                psx.y2 = planes.aiLuma[iSrc + 1];
+                psx.y3 = planes.aiLuma[iSrc + planes.iSrcWidth];
+                psx.y4 = planes.aiLuma[iSrc + planes.iSrcWidth + 1];
+                psx.cb = planes.aiCb[iChroma];
+                psx.cr = planes.aiCr[iChroma];
+                psx.toRec_601_YCbCr(rec);
+                int iDest = x + y * iWidth;
+                assertEquals(expectedRec601(rec.y1), abY[iDest] & 0xff);
+                assertEquals(expectedRec601(rec.y2), abY[iDest + 1] & 0xff);
+                assertEquals(expectedRec601(rec.y3), abY[iDest + iWidth] & 0xff);
+                assertEquals(expectedRec601(rec.y4), abY[iDest + iWidth + 1] & 0xff);
+                assertEquals(expectedRec601(rec.cb), abCb[x / 2 + (y / 2) * iWidth / 2] & 0xff);
+                assertEquals(expectedRec601(rec.cr), abCr[x / 2 + (y / 2) * iWidth / 2] & 0xff);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rec601OddDimensions() {
+        Planes planes = new Planes(4);
+        PsxYCbCrLut.toRec601YCbCr420(planes.aiLuma, planes.aiCb, planes.aiCr, planes.iSrcWidth,
+                                     33, 20, new byte[33 * 20], new byte[200], new byte[200]);
+    }
+
+}
@@ -183,180 +183,4 @@ public class BitReader {
         assertTrue(READ_BITS, BIT_STRING.startsWith(READ_BITS));
     }
 
-    @Test
-    public void testPerformance() {
-        byte[] abData = new byte[100000];
-        long[] alngDuration = new long[MAKERS.length];
-
-        for (int i = 0; i < MAKERS.length; i++) {
-            long lngStart, lngEnd;
-            lngStart = System.currentTimeMillis();
-            for (int iTimes = 0; iTimes < 5000; iTimes++) {
-                ArrayBitReader reader = MAKERS[i].make(abData, abData.length, true, 0);
-                try {
-                    int iSkipBits = 0;
-                    for (;; iSkipBits = (iSkipBits + 1) & 0x1F) {
-                        reader.skipBits(iSkipBits);
-                    }
-                } catch (MdecException.EndOfStream ex) {
-                }
-            }
-            lngEnd = System.currentTimeMillis();
-            alngDuration[i] = lngEnd - lngStart;
-        }
-
-        for (int i = 0; i < MAKERS.length; i++) {
-            System.out.println(MAKERS[i]+" "+alngDuration[i]);
-        }
-
-        assertTrue(alngDuration[1] + " !< " + alngDuration[0] + " if this fails it's because there is a faster way to implement the bit reader",
-                   alngDuration[1] < alngDuration[0]);
-        assertTrue(alngDuration[1] + " !< " + alngDuration[2] + " if this fails it's because there is a faster way to implement the bit reader",
-                   alngDuration[1] < alngDuration[2]);
-        assertTrue(alngDuration[1] + " !< " + alngDuration[3] + " if this fails it's because there is a faster way to implement the bit reader",
-                   alngDuration[1] < alngDuration[3]);
-    }
-
-    private interface ReaderMaker {
-        ArrayBitReader make(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart);
-    }
-    private static ReaderMaker[] MAKERS = {
-        new ReaderMaker() {
-            public ArrayBitReader make(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
-                return new PreCheckBitSkip(abData, iDataSize, blnLittleEndian, iReadStart);
-            }
-            public String toString() { return PreCheckBitSkip.class.getSimpleName(); }
-        },
-        new ReaderMaker() {
-            // This is the one implemented in ArrayBitReader
-            public ArrayBitReader make(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
-                return new PostCheckBitSkip(abData, iDataSize, blnLittleEndian, iReadStart);
-            }
-            public String toString() { return PostCheckBitSkip.class.getSimpleName(); }
-        },
-        new ReaderMaker() {
-            public ArrayBitReader make(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
-                return new PreCheckModSkip(abData, iDataSize, blnLittleEndian, iReadStart);
-            }
-            public String toString() { return PreCheckModSkip.class.getSimpleName(); }
-        },
-        new ReaderMaker() {
-            public ArrayBitReader make(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
-                return new PostCheckModSkip(abData, iDataSize, blnLittleEndian, iReadStart);
-            }
-            public String toString() { return PostCheckModSkip.class.getSimpleName(); }
-        },
-    };
-
-    private static class PreCheckBitSkip extends ArrayBitReader {
-
-        public PreCheckBitSkip(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
-            super(abData, iDataSize, blnLittleEndian, iReadStart);
-        }
-
-        @Override
-        public void skipBits(int iCount) throws MdecException.EndOfStream {
-            _iBitsLeft -= iCount;
-            if (_iBitsLeft < 0) {
-                _iByteOffset += ((-_iBitsLeft) >> 4) << 1;
-                _iBitsLeft = -((-_iBitsLeft) & 0xf);
-                if (_iBitsLeft < 0) {
-                    _iBitsLeft += 16;
-                    _iByteOffset += 2;
-                }
-                if (_iByteOffset > _iDataSize) {
-                    _iBitsLeft = 0;
-                    _iByteOffset = _iDataSize;
-                    throw new MdecException.EndOfStream();
-                } else if (_iBitsLeft > 0) {
-                    _siCurrentWord = readWord(_iByteOffset-2);
-                }
-            }
-        }
-    }
-
-    // This is the one implemented in ArrayBitReader
-    private static class PostCheckBitSkip extends ArrayBitReader {
-
-        public PostCheckBitSkip(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
-            super(abData, iDataSize, blnLittleEndian, iReadStart);
-        }
-
-        @Override
-        public void skipBits(int iCount) throws MdecException.EndOfStream {
-            _iBitsLeft -= iCount;
-            if (_iBitsLeft < 0) {
-                _iByteOffset += ((-_iBitsLeft) >> 4) << 1;
-                _iBitsLeft = -((-_iBitsLeft) & 0xf);
-                if (_iByteOffset > _iDataSize) {
-                    _iBitsLeft = 0;
-                    _iByteOffset = _iDataSize;
-                    throw new MdecException.EndOfStream();
-                } else if (_iBitsLeft < 0) {
-                    if (_iByteOffset == _iDataSize) {
-                        _iBitsLeft = 0;
-                        throw new MdecException.EndOfStream();
-                    }
-                    _iBitsLeft += 16;
-                    _siCurrentWord = readWord(_iByteOffset);
-                    _iByteOffset += 2;
-                }
-            }
-        }
-    }
-
-    private static class PreCheckModSkip extends ArrayBitReader {
-        public PreCheckModSkip(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
-            super(abData, iDataSize, blnLittleEndian, iReadStart);
-        }
-
-        @Override
-        public void skipBits(int iCount) throws MdecException.EndOfStream {
-            _iBitsLeft -= iCount;
-            if (_iBitsLeft < 0) {
-                _iByteOffset += -(_iBitsLeft / 16)*2;
-                _iBitsLeft = _iBitsLeft % 16;
-                if (_iBitsLeft < 0) {
-                    _iBitsLeft += 16;
-                    _iByteOffset += 2;
-                }
-                if (_iByteOffset > _iDataSize) {
-                    _iBitsLeft = 0;
-                    _iByteOffset = _iDataSize;
-                    throw new MdecException.EndOfStream(_iByteOffset + " > " + _iDataSize);
-                } else if (_iBitsLeft > 0) {
-                    _siCurrentWord = readWord(_iByteOffset-2);
-                }
-            }
-        }
-    }
-
-    private static class PostCheckModSkip extends ArrayBitReader {
-        public PostCheckModSkip(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
-            super(abData, iDataSize, blnLittleEndian, iReadStart);
-        }
-
-        @Override
-        public void skipBits(int iCount) throws MdecException.EndOfStream {
-            _iBitsLeft -= iCount;
-            if (_iBitsLeft < 0) {
-                _iByteOffset += -(_iBitsLeft / 16)*2;
-                _iBitsLeft = _iBitsLeft % 16;
-                if (_iByteOffset > _iDataSize) {
-                    _iBitsLeft = 0;
-                    _iByteOffset = _iDataSize;
-                    throw new MdecException.EndOfStream();
-                } else if (_iBitsLeft < 0) {
-                    if (_iByteOffset == _iDataSize) {
-                        _iBitsLeft = 0;
-                        throw new MdecException.EndOfStream();
-                    }
-                    _iBitsLeft += 16;
-                    _siCurrentWord = readWord(_iByteOffset);
-                    _iByteOffset += 2;
-                }
-            }
-        }
-    }
-
 }
\ No newline at end of file
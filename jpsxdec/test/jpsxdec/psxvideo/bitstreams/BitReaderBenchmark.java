@@ -0,0 +1,233 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.psxvideo.bitstreams;
+
+import jpsxdec.psxvideo.mdec.MdecException;
+
+/** Times skipping bits with {@link ArrayBitReader} against a few ways of
+ * skipping in the word-at-a-time design it replaced.
+ * Not part of the test suite, run manually:
+ * <pre>java jpsxdec.psxvideo.bitstreams.BitReaderBenchmark</pre> */
+public class BitReaderBenchmark {
+
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        byte[] abData = new byte[100000];
+        for (int iRun = 0; iRun < RUNS; iRun++) {
+            for (ReaderMaker maker : MAKERS) {
+                long lngStart = System.nanoTime();
+                for (int iTimes = 0; iTimes < 5000; iTimes++) {
+                    ArrayBitReader reader = maker.make(abData, abData.length, true, 0);
+                    try {
+                        int iSkipBits = 0;
+                        for (;; iSkipBits = (iSkipBits + 1) & 0x1F) {
+                            reader.skipBits(iSkipBits);
+                        }
+                    } catch (MdecException.EndOfStream ex) {
+                    }
+                }
+                System.out.format("%-16s %,8.1f ms%n", maker, (System.nanoTime() - lngStart) / 1e6);
+            }
+            System.out.println();
+        }
+    }
+
+    private interface ReaderMaker {
+        ArrayBitReader make(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart);
+    }
+    private static ReaderMaker[] MAKERS = {
+        new ReaderMaker() {
+            public ArrayBitReader make(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
+                return new ArrayBitReader(abData, iDataSize, blnLittleEndian, iReadStart);
+            }
+            public String toString() { return ArrayBitReader.class.getSimpleName(); }
+        },
+        new ReaderMaker() {
+            public ArrayBitReader make(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
+                return new PreCheckBitSkip(abData, iDataSize, blnLittleEndian, iReadStart);
+            }
+            public String toString() { return PreCheckBitSkip.class.getSimpleName(); }
+        },
+        new ReaderMaker() {
+            // This was the one implemented in the old ArrayBitReader
+            public ArrayBitReader make(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
+                return new PostCheckBitSkip(abData, iDataSize, blnLittleEndian, iReadStart);
+            }
+            public String toString() { return PostCheckBitSkip.class.getSimpleName(); }
+        },
+        new ReaderMaker() {
+            public ArrayBitReader make(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
+                return new PreCheckModSkip(abData, iDataSize, blnLittleEndian, iReadStart);
+            }
+            public String toString() { return PreCheckModSkip.class.getSimpleName(); }
+        },
+        new ReaderMaker() {
+            public ArrayBitReader make(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
+                return new PostCheckModSkip(abData, iDataSize, blnLittleEndian, iReadStart);
+            }
+            public String toString() { return PostCheckModSkip.class.getSimpleName(); }
+        },
+    };
+
+    /** The state of the word-at-a-time reader that {@link ArrayBitReader}
+     * used before it switched to a 64-bit buffer. The skip variants below
+     * only compare different ways of skipping with that design. */
+    private static abstract class WordBitReader extends ArrayBitReader {
+        /** The current 16-bit word value from the source data. */
+        protected short _siCurrentWord;
+        /** Bits remaining to be read from the current word. */
+        protected int _iBitsLeft;
+
+        public WordBitReader(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
+            super(abData, iDataSize, blnLittleEndian, iReadStart);
+        }
+    }
+
+    private static class PreCheckBitSkip extends WordBitReader {
+
+        public PreCheckBitSkip(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
+            super(abData, iDataSize, blnLittleEndian, iReadStart);
+        }
+
+        @Override
+        public void skipBits(int iCount) throws MdecException.EndOfStream {
+            _iBitsLeft -= iCount;
+            if (_iBitsLeft < 0) {
+                _iByteOffset += ((-_iBitsLeft) >> 4) << 1;
+                _iBitsLeft = -((-_iBitsLeft) & 0xf);
+                if (_iBitsLeft < 0) {
+                    _iBitsLeft += 16;
+                    _iByteOffset += 2;
+                }
+                if (_iByteOffset > _iDataSize) {
+                    _iBitsLeft = 0;
+                    _iByteOffset = _iDataSize;
+                    throw new MdecException.EndOfStream();
+                } else if (_iBitsLeft > 0) {
+                    _siCurrentWord = readWord(_iByteOffset-2);
+                }
+            }
+        }
+    }
+
+    // This was the one implemented in the old ArrayBitReader
+    private static class PostCheckBitSkip extends WordBitReader {
+
+        public PostCheckBitSkip(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
+            super(abData, iDataSize, blnLittleEndian, iReadStart);
+        }
+
+        @Override
+        public void skipBits(int iCount) throws MdecException.EndOfStream {
+            _iBitsLeft -= iCount;
+            if (_iBitsLeft < 0) {
+                _iByteOffset += ((-_iBitsLeft) >> 4) << 1;
+                _iBitsLeft = -((-_iBitsLeft) & 0xf);
+                if (_iByteOffset > _iDataSize) {
+                    _iBitsLeft = 0;
+                    _iByteOffset = _iDataSize;
+                    throw new MdecException.EndOfStream();
+                } else if (_iBitsLeft < 0) {
+                    if (_iByteOffset == _iDataSize) {
+                        _iBitsLeft = 0;
+                        throw new MdecException.EndOfStream();
+                    }
+                    _iBitsLeft += 16;
+                    _siCurrentWord = readWord(_iByteOffset);
+                    _iByteOffset += 2;
+                }
+            }
+        }
+    }
+
+    private static class PreCheckModSkip extends WordBitReader {
+        public PreCheckModSkip(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
+            super(abData, iDataSize, blnLittleEndian, iReadStart);
+        }
+
+        @Override
+        public void skipBits(int iCount) throws MdecException.EndOfStream {
+            _iBitsLeft -= iCount;
+            if (_iBitsLeft < 0) {
+                _iByteOffset += -(_iBitsLeft / 16)*2;
+                _iBitsLeft = _iBitsLeft % 16;
+                if (_iBitsLeft < 0) {
+                    _iBitsLeft += 16;
+                    _iByteOffset += 2;
+                }
+                if (_iByteOffset > _iDataSize) {
+                    _iBitsLeft = 0;
+                    _iByteOffset = _iDataSize;
+                    throw new MdecException.EndOfStream(_iByteOffset + " > " + _iDataSize);
+                } else if (_iBitsLeft > 0) {
+                    _siCurrentWord = readWord(_iByteOffset-2);
+                }
+            }
+        }
+    }
+
+    private static class PostCheckModSkip extends WordBitReader {
+        public PostCheckModSkip(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
+            super(abData, iDataSize, blnLittleEndian, iReadStart);
+        }
+
+        @Override
+        public void skipBits(int iCount) throws MdecException.EndOfStream {
+            _iBitsLeft -= iCount;
+            if (_iBitsLeft < 0) {
+                _iByteOffset += -(_iBitsLeft / 16)*2;
+                _iBitsLeft = _iBitsLeft % 16;
+                if (_iByteOffset > _iDataSize) {
+                    _iBitsLeft = 0;
+                    _iByteOffset = _iDataSize;
+                    throw new MdecException.EndOfStream();
+                } else if (_iBitsLeft < 0) {
+                    if (_iByteOffset == _iDataSize) {
+                        _iBitsLeft = 0;
+                        throw new MdecException.EndOfStream();
+                    }
+                    _iBitsLeft += 16;
+                    _siCurrentWord = readWord(_iByteOffset);
+                    _iByteOffset += 2;
+                }
+            }
+        }
+    }
+
+}
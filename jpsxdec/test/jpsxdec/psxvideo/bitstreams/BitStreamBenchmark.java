@@ -0,0 +1,172 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.psxvideo.bitstreams;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import jpsxdec.psxvideo.encode.MacroBlockEncoder;
+import jpsxdec.psxvideo.encode.MdecEncoder;
+import jpsxdec.psxvideo.encode.PsxYCbCrImage;
+import jpsxdec.psxvideo.mdec.Calc;
+import jpsxdec.psxvideo.mdec.MdecCode;
+import jpsxdec.util.IO;
+
+/** Compares how many MDEC codes per second each bitstream format decodes.
+ * Not part of the test suite, run manually:
+ * <pre>java jpsxdec.psxvideo.bitstreams.BitStreamBenchmark [frame count]</pre>
+ * Frames are encoded from a noisy generated image at a range of qscales
+ * so the mix of short, long, and escape codes is close to real video. */
+public class BitStreamBenchmark {
+
+    private static final int RUNS = 5;
+    private static final int WIDTH = 320, HEIGHT = 240;
+
+    /** So the results aren't optimized away. */
+    private static long _lngSink;
+
+    private static abstract class Format {
+        public final String sName;
+        public Format(String sName) {
+            this.sName = sName;
+        }
+        abstract public BitStreamCompressor makeCompressor() throws Exception;
+        abstract public BitStreamUncompressor makeUncompressor(byte[] abFrame) throws Exception;
+    }
+
+    private static final Format[] FORMATS = {
+        new Format("STRv2") {
+            public BitStreamCompressor makeCompressor() {
+                return new BitStreamUncompressor_STRv2.BitStreamCompressor_STRv2(Calc.macroblocks(WIDTH, HEIGHT));
+            }
+            public BitStreamUncompressor makeUncompressor(byte[] abFrame) throws Exception {
+                return BitStreamUncompressor_STRv2.makeV2(abFrame);
+            }
+        },
+        new Format("STRv3") {
+            public BitStreamCompressor makeCompressor() {
+                return new BitStreamUncompressor_STRv3.BitStreamCompressor_STRv3(Calc.macroblocks(WIDTH, HEIGHT));
+            }
+            public BitStreamUncompressor makeUncompressor(byte[] abFrame) throws Exception {
+                return BitStreamUncompressor_STRv3.makeV3(abFrame);
+            }
+        },
+        new Format("Iki") {
+            public BitStreamCompressor makeCompressor() throws Exception {
+                // the Iki compressor can only be created from an existing frame
+                byte[] abLzss = BitStreamUncompressor_Iki.ikiLzssCompress(new byte[Calc.blocks(WIDTH, HEIGHT) * 2]);
+                int iLzssSize = (abLzss.length + 1) & ~1;
+                byte[] abFrame = new byte[10 + iLzssSize + 2];
+                IO.writeInt16LE(abFrame, 2, (short)0x3800);
+                IO.writeInt16LE(abFrame, 4, (short)WIDTH);
+                IO.writeInt16LE(abFrame, 6, (short)HEIGHT);
+                IO.writeInt16LE(abFrame, 8, (short)iLzssSize);
+                System.arraycopy(abLzss, 0, abFrame, 10, abLzss.length);
+                return BitStreamUncompressor_Iki.makeIki(abFrame).makeCompressor();
+            }
+            public BitStreamUncompressor makeUncompressor(byte[] abFrame) throws Exception {
+                return BitStreamUncompressor_Iki.makeIki(abFrame);
+            }
+        },
+        new Format("Lain") {
+            public BitStreamCompressor makeCompressor() {
+                return new BitStreamUncompressor_Lain.BitStreamCompressor_Lain(Calc.macroblocks(WIDTH, HEIGHT), 0x3800);
+            }
+            public BitStreamUncompressor makeUncompressor(byte[] abFrame) throws Exception {
+                return BitStreamUncompressor_Lain.makeLain(abFrame);
+            }
+        },
+    };
+
+    public static void main(String[] args) throws Exception {
+        int iFrameCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        MdecEncoder encoder = new MdecEncoder(makeImage(1234), WIDTH, HEIGHT);
+
+        byte[][][] aabFrames = new byte[FORMATS.length][][];
+        for (int iFormat = 0; iFormat < FORMATS.length; iFormat++) {
+            BitStreamCompressor compressor = FORMATS[iFormat].makeCompressor();
+            aabFrames[iFormat] = new byte[iFrameCount][];
+            for (int iFrame = 0; iFrame < iFrameCount; iFrame++) {
+                int iQscale = 3 + iFrame % 8;
+                int[] aiQscale = { iQscale, iQscale, iQscale, iQscale, iQscale, iQscale };
+                for (MacroBlockEncoder macblk : encoder)
+                    macblk.setToFullEncode(aiQscale);
+                aabFrames[iFormat][iFrame] = compressor.compress(encoder.getStream());
+            }
+        }
+
+        for (int iRun = 0; iRun < RUNS; iRun++) {
+            System.out.println("Run " + (iRun + 1));
+            for (int iFormat = 0; iFormat < FORMATS.length; iFormat++)
+                time(FORMATS[iFormat], aabFrames[iFormat]);
+        }
+    }
+
+    private static PsxYCbCrImage makeImage(long lngSeed) {
+        Random rand = new Random(lngSeed);
+        BufferedImage bi = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int r = (x * 255 / WIDTH  + rand.nextInt(16)) & 0xff;
+                int g = (y * 255 / HEIGHT + rand.nextInt(16)) & 0xff;
+                int b = ((x ^ y) + rand.nextInt(16)) & 0xff;
+                bi.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return new PsxYCbCrImage(bi);
+    }
+
+    private static void time(Format format, byte[][] aabFrames) throws Exception {
+        final int iBlocks = Calc.blocks(WIDTH, HEIGHT);
+        MdecCode code = new MdecCode();
+        long lngCodes = 0;
+        long lngStart = System.nanoTime();
+        for (byte[] abFrame : aabFrames) {
+            BitStreamUncompressor bsu = format.makeUncompressor(abFrame);
+            for (int iBlock = 0; iBlock < iBlocks; iBlock++) {
+                do {
+                    lngCodes++;
+                } while (!bsu.readMdecCode(code));
+            }
+            _lngSink += code.getBottom10Bits();
+        }
+        long lngNanos = System.nanoTime() - lngStart;
+        System.out.format("%-8s %,8.1f ms = %,14.0f codes/sec%n",
+                          format.sName, lngNanos / 1e6,
+                          lngCodes / (lngNanos / 1e9));
+    }
+}
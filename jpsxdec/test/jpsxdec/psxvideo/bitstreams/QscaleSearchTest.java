@@ -0,0 +1,112 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.psxvideo.bitstreams;
+
+import java.util.logging.Level;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.i18n.log.ILocalizedLogger;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+public class QscaleSearchTest {
+
+    private static class QuietLogger implements ILocalizedLogger {
+        public void log(@Nonnull Level level, @Nonnull ILocalizedMessage msg) {}
+        public void log(@Nonnull Level level, @Nonnull ILocalizedMessage msg, @CheckForNull Throwable debugException) {}
+    }
+
+    /** Pretends the encoded size of candidate i is aiSizes[i]. */
+    private static class FakeSearch extends QscaleSearch {
+        private final int[] _aiSizes;
+        public int iLastEncoded = -1;
+
+        public FakeSearch(int[] aiSizes, int iMaxSize) {
+            super("test", iMaxSize, new QuietLogger());
+            _aiSizes = aiSizes;
+        }
+
+        protected byte[] encode(int iCandidate) {
+            iLastEncoded = iCandidate;
+            return _aiSizes[iCandidate] < 0 ? null : new byte[_aiSizes[iCandidate]];
+        }
+    }
+
+    @Test
+    public void findsFirstThatFits() throws Exception {
+        for (int iCount = 1; iCount <= 64; iCount++) {
+            int[] aiSizes = new int[iCount];
+            for (int i = 0; i < iCount; i++)
+                aiSizes[i] = (iCount - i) * 10;
+
+            // every possible max size, including too small for any candidate
+            for (int iMaxSize = 0; iMaxSize <= (iCount + 1) * 10; iMaxSize += 5) {
+                int iExpected = -1;
+                for (int i = 0; i < iCount; i++) {
+                    if (aiSizes[i] <= iMaxSize) {
+                        iExpected = i;
+                        break;
+                    }
+                }
+
+                FakeSearch search = new FakeSearch(aiSizes, iMaxSize);
+                byte[] ab = search.findFirstThatFits(iCount);
+                assertEquals(iExpected, search.getFoundCandidate());
+                if (iExpected < 0) {
+                    assertNull(ab);
+                } else {
+                    assertEquals(aiSizes[iExpected], ab.length);
+                    // the encoders must be left at the candidate found
+                    assertEquals(iExpected, search.iLastEncoded);
+                }
+            }
+        }
+    }
+
+    /** Candidates with too much energy don't fit. */
+    @Test
+    public void tooMuchEnergy() throws Exception {
+        int[] aiSizes = { -1, -1, -1, -1, -1, 500, 400, 300, 200, 100 };
+        FakeSearch search = new FakeSearch(aiSizes, 1000);
+        assertEquals(500, search.findFirstThatFits(aiSizes.length).length);
+        assertEquals(5, search.getFoundCandidate());
+    }
+
+}
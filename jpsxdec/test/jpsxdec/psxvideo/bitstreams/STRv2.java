@@ -305,6 +305,36 @@ public class STRv2 {
         }
     }
 
+    @Test
+    public void packedLookupMatches() throws Exception {
+        ZeroRunLengthAcLookup lookup = ZeroRunLengthAcLookup_STR.AC_VARIABLE_LENGTH_CODES_MPEG1;
+        MdecCode expected = new MdecCode(), packed = new MdecCode();
+        for (int i17bits = 0; i17bits < (1 << 17); i17bits++) {
+            ZeroRunLengthAc zrlac;
+            try {
+                zrlac = lookup.lookup(i17bits);
+            } catch (MdecException.ReadCorruption ex) {
+                try {
+                    lookup.lookupPacked(i17bits);
+                    fail("Expected exception for " + i17bits);
+                } catch (MdecException.ReadCorruption ex2) {
+                    // expected fail
+                }
+                continue;
+            }
+            int iPacked = lookup.lookupPacked(i17bits);
+            assertSame(zrlac, lookup.getCode(iPacked));
+            assertEquals(zrlac.getBitLength(), ZeroRunLengthAcLookup.packedBitLength(iPacked));
+            assertEquals(zrlac.isIsEscapeCode(), ZeroRunLengthAcLookup.packedIsEscapeCode(iPacked));
+            assertEquals(zrlac.isIsEndOfBlock(), ZeroRunLengthAcLookup.packedIsEndOfBlock(iPacked));
+            if (!zrlac.isIsEscapeCode() && !zrlac.isIsEndOfBlock()) {
+                zrlac.getMdecCode(expected);
+                ZeroRunLengthAcLookup.packedMdecCode(iPacked, packed);
+                assertEquals(expected, packed);
+            }
+        }
+    }
+
 
 
 
@@ -0,0 +1,312 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.psxvideo.mdec;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import jpsxdec.psxvideo.bitstreams.BitStreamCompressor;
+import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor;
+import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor_Lain;
+import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor_STRv2;
+import jpsxdec.psxvideo.encode.MacroBlockEncoder;
+import jpsxdec.psxvideo.encode.MdecEncoder;
+import jpsxdec.psxvideo.encode.PsxYCbCrImage;
+import jpsxdec.psxvideo.mdec.idct.PsxMdecIDCT_double;
+import jpsxdec.psxvideo.mdec.idct.PsxMdecIDCT_int;
+import jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg;
+import jpsxdec.util.IncompatibleException;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/** Checks {@link MdecBlockInputStream#readBlock(int[], int[])} of each
+ * implementation, and the decoders using it, against reading the same
+ * data one {@link MdecCode} at a time. */
+public class MdecBlockInputStreamTest {
+
+    private static final int WIDTH = 64, HEIGHT = 48;
+    private static final int BLOCKS = Calc.blocks(WIDTH, HEIGHT);
+    private static final int[] QSCALES = { 1, 3, 8, 20, 63 };
+
+    private static MdecEncoder _encoder;
+
+    @BeforeClass
+    public static void setUpClass() {
+        Random rand = new Random(1234);
+        BufferedImage bi = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int r = (x * 255 / WIDTH  + rand.nextInt(64)) & 0xff;
+                int g = (y * 255 / HEIGHT + rand.nextInt(64)) & 0xff;
+                int b = ((x ^ y) * 4 + rand.nextInt(64)) & 0xff;
+                bi.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        _encoder = new MdecEncoder(new PsxYCbCrImage(bi), WIDTH, HEIGHT);
+    }
+
+    private static void encode(int iQscale) {
+        int[] aiQscale = { iQscale, iQscale, iQscale, iQscale, iQscale, iQscale };
+        for (MacroBlockEncoder macblk : _encoder)
+            macblk.setToFullEncode(aiQscale);
+    }
+
+    /** Hides {@link MdecBlockInputStream} so readers take the per-code path. */
+    private static class PerCode implements MdecInputStream {
+        private final MdecInputStream _in;
+        public PerCode(MdecInputStream in) {
+            _in = in;
+        }
+        public boolean readMdecCode(MdecCode code) throws MdecException.EndOfStream, MdecException.ReadCorruption {
+            return _in.readMdecCode(code);
+        }
+    }
+
+    /** Creates the same stream each time. */
+    private interface Source {
+        MdecInputStream open() throws Exception;
+    }
+
+    /** What {@link MdecBlockInputStream#readBlock(int[], int[])} should do,
+     * following its documentation. */
+    private static int referenceBlock(MdecInputStream in, int[] aiCoeffs, int[] aiQuantizationTable)
+            throws Exception
+    {
+        MdecCode code = new MdecCode();
+        in.readMdecCode(code);
+        int iQscale = code.getTop6Bits();
+        int iNonZeroCount = 0, iLastNonZeroPos = 0;
+        if (code.getBottom10Bits() != 0) {
+            aiCoeffs[0] = code.getBottom10Bits() * aiQuantizationTable[0];
+            iNonZeroCount++;
+        }
+        int iVectorPos = 0;
+        while (!in.readMdecCode(code)) {
+            iVectorPos += code.getTop6Bits() + 1;
+            if (code.getBottom10Bits() != 0) {
+                int iPos = MdecInputStream.REVERSE_ZIG_ZAG_LOOKUP_LIST[iVectorPos];
+                aiCoeffs[iPos] = (code.getBottom10Bits() * aiQuantizationTable[iPos] * iQscale + 4) >> 3;
+                iNonZeroCount++;
+                iLastNonZeroPos = iPos;
+            }
+        }
+        return Calc.blockResult(iNonZeroCount, iLastNonZeroPos);
+    }
+
+    private static void assertSameBlocks(String sName, Source source) throws Exception {
+        Random rand = new Random(5678);
+        int[] aiQuantizationTable = new int[64];
+        for (int i = 0; i < aiQuantizationTable.length; i++)
+            aiQuantizationTable[i] = 1 + rand.nextInt(255);
+
+        MdecInputStream expectedIn = source.open();
+        MdecInputStream actualIn = source.open();
+        assertTrue(sName, actualIn instanceof MdecBlockInputStream);
+        MdecBlockInputStream blockIn = (MdecBlockInputStream) actualIn;
+
+        int[] aiExpected = new int[64], aiActual = new int[64];
+        for (int iBlock = 0; iBlock < BLOCKS; iBlock++) {
+            Arrays.fill(aiExpected, 0);
+            Arrays.fill(aiActual, 0);
+            int iExpected = referenceBlock(expectedIn, aiExpected, aiQuantizationTable);
+            int iActual = blockIn.readBlock(aiActual, aiQuantizationTable);
+            String sBlock = sName + " block " + iBlock;
+            assertArrayEquals(sBlock, aiExpected, aiActual);
+            assertEquals(sBlock + " non-zero count", Calc.nonZeroCount(iExpected), Calc.nonZeroCount(iActual));
+            if (Calc.nonZeroCount(iExpected) > 0)
+                assertEquals(sBlock + " last position", Calc.lastNonZeroPosition(iExpected), Calc.lastNonZeroPosition(iActual));
+        }
+    }
+
+    private static void assertSameDecode(String sName, Source source) throws Exception {
+        MdecDecoder[] aoExpected = {
+            new MdecDecoder_int(new PsxMdecIDCT_int(), WIDTH, HEIGHT),
+            new MdecDecoder_double(new PsxMdecIDCT_double(), WIDTH, HEIGHT),
+        };
+        MdecDecoder[] aoActual = {
+            new MdecDecoder_int(new PsxMdecIDCT_int(), WIDTH, HEIGHT),
+            new MdecDecoder_double(new PsxMdecIDCT_double(), WIDTH, HEIGHT),
+        };
+        for (int i = 0; i < aoExpected.length; i++) {
+            aoExpected[i].decode(new PerCode(source.open()));
+            aoActual[i].decode(source.open());
+            int[] aiExpected = new int[WIDTH * HEIGHT], aiActual = new int[WIDTH * HEIGHT];
+            aoExpected[i].readDecodedRgb(WIDTH, HEIGHT, aiExpected);
+            aoActual[i].readDecodedRgb(WIDTH, HEIGHT, aiActual);
+            assertArrayEquals(sName + " " + aoExpected[i].getClass().getSimpleName(), aiExpected, aiActual);
+        }
+
+        Mdec2Jpeg expectedJpeg = new Mdec2Jpeg(WIDTH, HEIGHT);
+        Mdec2Jpeg actualJpeg = new Mdec2Jpeg(WIDTH, HEIGHT);
+        String sExpected, sActual;
+        try {
+            expectedJpeg.readMdec(new PerCode(source.open()));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            expectedJpeg.writeJpeg(out);
+            sExpected = Arrays.toString(out.toByteArray());
+        } catch (MdecException.TooMuchEnergy ex) {
+            sExpected = "too much energy";
+        }
+        try {
+            actualJpeg.readMdec(source.open());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            actualJpeg.writeJpeg(out);
+            sActual = Arrays.toString(out.toByteArray());
+        } catch (MdecException.TooMuchEnergy ex) {
+            sActual = "too much energy";
+        }
+        assertEquals(sName + " jpeg", sExpected, sActual);
+    }
+
+    private static void assertSame(String sName, Source source) throws Exception {
+        assertSameBlocks(sName, source);
+        assertSameDecode(sName, source);
+    }
+
+    @Test
+    public void encoder() throws Exception {
+        for (int iQscale : QSCALES) {
+            encode(iQscale);
+            assertSame("encoder qscale " + iQscale, new Source() {
+                public MdecInputStream open() {
+                    return _encoder.getStream();
+                }
+            });
+        }
+    }
+
+    @Test
+    public void mdecFile() throws Exception {
+        for (int iQscale : QSCALES) {
+            encode(iQscale);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            MdecInputStreamReader.writeMdecDims(_encoder.getStream(), out, WIDTH, HEIGHT);
+            final byte[] abMdec = out.toByteArray();
+            assertSame("mdec qscale " + iQscale, new Source() {
+                public MdecInputStream open() {
+                    return new MdecInputStreamReader(abMdec);
+                }
+            });
+        }
+    }
+
+    private static abstract class Format {
+        public final String sName;
+        public Format(String sName) {
+            this.sName = sName;
+        }
+        abstract public BitStreamCompressor makeCompressor();
+        abstract public BitStreamUncompressor makeUncompressor(byte[] abFrame) throws Exception;
+    }
+
+    private static final Format[] FORMATS = {
+        new Format("STRv2") {
+            public BitStreamCompressor makeCompressor() {
+                return new BitStreamUncompressor_STRv2.BitStreamCompressor_STRv2(Calc.macroblocks(WIDTH, HEIGHT));
+            }
+            public BitStreamUncompressor makeUncompressor(byte[] abFrame) throws Exception {
+                return BitStreamUncompressor_STRv2.makeV2(abFrame);
+            }
+        },
+        new Format("Lain") {
+            public BitStreamCompressor makeCompressor() {
+                return new BitStreamUncompressor_Lain.BitStreamCompressor_Lain(Calc.macroblocks(WIDTH, HEIGHT), 0x3800);
+            }
+            public BitStreamUncompressor makeUncompressor(byte[] abFrame) throws Exception {
+                return BitStreamUncompressor_Lain.makeLain(abFrame);
+            }
+        },
+    };
+
+    @Test
+    public void bitstreams() throws Exception {
+        int iCompared = 0;
+        for (int iQscale : QSCALES) {
+            encode(iQscale);
+            for (final Format format : FORMATS) {
+                final byte[] abFrame;
+                try {
+                    abFrame = format.makeCompressor().compress(_encoder.getStream());
+                } catch (IncompatibleException ex) {
+                    // some formats can't hold every qscale
+                    continue;
+                } catch (MdecException.TooMuchEnergy ex) {
+                    continue;
+                }
+                assertSame(format.sName + " qscale " + iQscale, new Source() {
+                    public MdecInputStream open() throws Exception {
+                        return format.makeUncompressor(abFrame);
+                    }
+                });
+                iCompared++;
+            }
+        }
+        assertTrue(iCompared >= QSCALES.length);
+    }
+
+    /** A stream cut short ends the same way read either way. */
+    @Test
+    public void truncated() throws Exception {
+        encode(3);
+        byte[] abFrame = new BitStreamUncompressor_STRv2.BitStreamCompressor_STRv2(Calc.macroblocks(WIDTH, HEIGHT))
+                .compress(_encoder.getStream());
+        final byte[] abTruncated = Arrays.copyOf(abFrame, abFrame.length / 2);
+        int[] aiCoeffs = new int[64];
+        int[] aiQuantizationTable = new int[64];
+        Arrays.fill(aiQuantizationTable, 16);
+
+        int iExpectedBlocks = 0;
+        MdecInputStream expectedIn = BitStreamUncompressor_STRv2.makeV2(abTruncated);
+        try {
+            for (;; iExpectedBlocks++)
+                referenceBlock(expectedIn, aiCoeffs, aiQuantizationTable);
+        } catch (MdecException.EndOfStream ex) {
+        }
+
+        int iActualBlocks = 0;
+        MdecBlockInputStream actualIn = BitStreamUncompressor_STRv2.makeV2(abTruncated);
+        try {
+            for (;; iActualBlocks++)
+                actualIn.readBlock(aiCoeffs, aiQuantizationTable);
+        } catch (MdecException.EndOfStream ex) {
+        }
+        assertEquals(iExpectedBlocks, iActualBlocks);
+        assertTrue(iActualBlocks < BLOCKS);
+    }
+}
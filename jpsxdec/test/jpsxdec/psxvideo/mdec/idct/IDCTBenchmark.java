@@ -0,0 +1,144 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.psxvideo.mdec.idct;
+
+import java.util.Random;
+
+/** Compares the speed of every IDCT implementation on blocks that look like
+ * dequantized video. Not part of the test suite, run manually:
+ * <pre>java jpsxdec.psxvideo.mdec.idct.IDCTBenchmark [block count]</pre>
+ * Blocks are dispatched the same way the MDEC decoders do, so single
+ * coefficient blocks go through IDCT_1NonZero().
+ * {@link NaiveIDCT} is left out since it is only a reference and works
+ * on 16x16 blocks. */
+public class IDCTBenchmark {
+
+    private static final int RUNS = 5;
+
+    /** So the results aren't optimized away. */
+    private static double _dblSink;
+
+    private static class Block {
+        public final int[] aiCoeffs = new int[64];
+        public final double[] adblCoeffs = new double[64];
+        public int iNonZeroCount;
+        public int iNonZeroPos;
+    }
+
+    public static void main(String[] args) {
+        int iBlockCount = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        Block[] aoBlocks = makeBlocks(iBlockCount, 1234);
+
+        IDCT_int[] aoInts = { new PsxMdecIDCT_int(), new SimpleIDCT(), new LoefflerIDCT() };
+        IDCT_double[] aoDoubles = { new PsxMdecIDCT_double(), new StephensIDCT() };
+
+        for (int iRun = 0; iRun < RUNS; iRun++) {
+            System.out.println("Run " + (iRun + 1));
+            for (IDCT_int idct : aoInts)
+                report(idct, iBlockCount, time(idct, aoBlocks));
+            for (IDCT_double idct : aoDoubles)
+                report(idct, iBlockCount, time(idct, aoBlocks));
+        }
+    }
+
+    private static Block[] makeBlocks(int iCount, long lngSeed) {
+        Random rand = new Random(lngSeed);
+        Block[] aoBlocks = new Block[iCount];
+        for (int iBlock = 0; iBlock < iCount; iBlock++) {
+            Block block = new Block();
+            int iQscale = 1 + rand.nextInt(16);
+            // about a third of video blocks are only the DC
+            block.aiCoeffs[0] = (rand.nextInt(256) - 128) * 2;
+            int iAcCount = rand.nextInt(3) == 0 ? 0 : rand.nextInt(16);
+            for (int i = 0; i < iAcCount; i++) {
+                int iPos = rand.nextInt(1 + rand.nextInt(64));
+                int iLevel = (int)Math.round(rand.nextGaussian() * 4);
+                block.aiCoeffs[iPos] = (iLevel * (16 + rand.nextInt(68)) * iQscale + 4) >> 3;
+            }
+            for (int i = 0; i < 64; i++) {
+                block.adblCoeffs[i] = block.aiCoeffs[i];
+                if (block.aiCoeffs[i] != 0) {
+                    block.iNonZeroCount++;
+                    block.iNonZeroPos = i;
+                }
+            }
+            aoBlocks[iBlock] = block;
+        }
+        return aoBlocks;
+    }
+
+    private static long time(IDCT_int idct, Block[] aoBlocks) {
+        int[] aiWork = new int[64];
+        long lngSum = 0;
+        long lngStart = System.nanoTime();
+        for (Block block : aoBlocks) {
+            System.arraycopy(block.aiCoeffs, 0, aiWork, 0, 64);
+            if (block.iNonZeroCount == 1)
+                idct.IDCT_1NonZero(aiWork, block.iNonZeroPos, 0, aiWork);
+            else if (block.iNonZeroCount > 1)
+                idct.IDCT(aiWork, 0, aiWork);
+            lngSum += aiWork[block.iNonZeroPos];
+        }
+        long lngNanos = System.nanoTime() - lngStart;
+        _dblSink += lngSum;
+        return lngNanos;
+    }
+
+    private static long time(IDCT_double idct, Block[] aoBlocks) {
+        double[] adblWork = new double[64];
+        double dblSum = 0;
+        long lngStart = System.nanoTime();
+        for (Block block : aoBlocks) {
+            System.arraycopy(block.adblCoeffs, 0, adblWork, 0, 64);
+            if (block.iNonZeroCount == 1)
+                idct.IDCT_1NonZero(adblWork, block.iNonZeroPos, 0, adblWork);
+            else if (block.iNonZeroCount > 1)
+                idct.IDCT(adblWork, 0, adblWork);
+            dblSum += adblWork[block.iNonZeroPos];
+        }
+        long lngNanos = System.nanoTime() - lngStart;
+        _dblSink += dblSum;
+        return lngNanos;
+    }
+
+    private static void report(Object idct, int iBlockCount, long lngNanos) {
+        System.out.format("%-20s %,8.1f ms = %,12.0f blocks/sec%n",
+                          idct.getClass().getSimpleName(), lngNanos / 1e6,
+                          iBlockCount / (lngNanos / 1e9));
+    }
+}
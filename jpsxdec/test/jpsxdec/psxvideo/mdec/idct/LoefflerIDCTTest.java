@@ -0,0 +1,136 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.psxvideo.mdec.idct;
+
+import java.util.Random;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+public class LoefflerIDCTTest {
+
+    /** Largest difference allowed from {@link PsxMdecIDCT_int}. */
+    private static final int TOLERANCE = 1;
+
+    @Test
+    public void dcOnly() {
+        for (int iDc = -2048; iDc <= 2048; iDc++) {
+            int[] aiBlock = new int[64];
+            aiBlock[0] = iDc;
+            compare(aiBlock);
+        }
+    }
+
+    @Test
+    public void singleCoefficient() {
+        int[] aiValues = {-16384, -1000, -255, -3, -1, 1, 2, 3, 17, 255, 1000, 16384};
+        for (int iPos = 0; iPos < 64; iPos++) {
+            for (int iValue : aiValues) {
+                int[] aiBlock = new int[64];
+                aiBlock[iPos] = iValue;
+                compare(aiBlock);
+            }
+        }
+    }
+
+    /** Blocks that look like dequantized video: a DC value plus a handful
+     * of small AC coefficients clustered in the low frequencies. */
+    @Test
+    public void typicalBlocks() {
+        Random rand = new Random(1);
+        for (int iTest = 0; iTest < 50000; iTest++) {
+            int[] aiBlock = new int[64];
+            int iQscale = 1 + rand.nextInt(16);
+            aiBlock[0] = (rand.nextInt(256) - 128) * 2;
+            int iAcCount = rand.nextInt(16);
+            for (int i = 0; i < iAcCount; i++) {
+                int iPos = rand.nextInt(1 + rand.nextInt(64));
+                int iLevel = (int)Math.round(rand.nextGaussian() * 4);
+                aiBlock[iPos] = (iLevel * (16 + rand.nextInt(68)) * iQscale + 4) >> 3;
+            }
+            compare(aiBlock);
+        }
+    }
+
+    @Test
+    public void fullRangeBlocks() {
+        Random rand = new Random(2);
+        for (int iTest = 0; iTest < 20000; iTest++) {
+            int[] aiBlock = new int[64];
+            for (int i = 0; i < 64; i++) {
+                if (rand.nextInt(4) == 0)
+                    aiBlock[i] = rand.nextInt(2048) - 1024;
+            }
+            compare(aiBlock);
+        }
+    }
+
+    private static void compare(int[] aiBlock) {
+        int iNonZeroCount = 0, iNonZeroPos = -1;
+        for (int i = 0; i < 64; i++) {
+            if (aiBlock[i] != 0) {
+                iNonZeroCount++;
+                iNonZeroPos = i;
+            }
+        }
+        if (iNonZeroCount == 0)
+            return;
+
+        int[] aiExpected = new int[64];
+        new PsxMdecIDCT_int().IDCT(aiBlock.clone(), 0, aiExpected);
+
+        // the decoder passes the same array as input and output
+        int[] aiFull = aiBlock.clone();
+        new LoefflerIDCT().IDCT(aiFull, 0, aiFull);
+        assertWithin(aiExpected, aiFull);
+
+        if (iNonZeroCount == 1) {
+            int[] aiSingle = aiBlock.clone();
+            new LoefflerIDCT().IDCT_1NonZero(aiSingle, iNonZeroPos, 0, aiSingle);
+            assertWithin(aiExpected, aiSingle);
+        }
+    }
+
+    private static void assertWithin(int[] aiExpected, int[] aiActual) {
+        for (int i = 0; i < 64; i++) {
+            if (Math.abs(aiExpected[i] - aiActual[i]) > TOLERANCE)
+                fail("Position " + i + " expected " + aiExpected[i] + " but was " + aiActual[i]);
+        }
+    }
+
+}
@@ -39,6 +39,7 @@ package jpsxdec.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import jpsxdec.i18n.exception.LocalizedFileNotFoundException;
 import org.junit.*;
 import static org.junit.Assert.*;
@@ -81,4 +82,12 @@ public class IOTest {
         } catch (LocalizedFileNotFoundException ex) {
         }
     }
+
+    @Test
+    public void zeroInputStreamOffset() throws IOException {
+        byte[] ab = new byte[10];
+        Arrays.fill(ab, (byte)1);
+        assertEquals(4, new IO.ZeroInputStream().read(ab, 6, 4));
+        assertArrayEquals(new byte[] {1,1,1,1,1,1,0,0,0,0}, ab);
+    }
 }
@@ -0,0 +1,99 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+public class MetricsTest {
+
+    @After
+    public void tearDown() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    @Test
+    public void disabledIgnored() {
+        Metrics.Metric metric = Metrics.get("test.disabled");
+        Metrics.setEnabled(false);
+        long lngStart = Metrics.start();
+        assertEquals(0, lngStart);
+        metric.stop(lngStart, 100);
+        assertEquals(0, metric.getCount());
+        assertEquals(0, metric.getBytes());
+    }
+
+    @Test
+    public void enabledCounted() throws InterruptedException {
+        Metrics.Metric metric = Metrics.get("test.enabled");
+        assertSame(metric, Metrics.get("test.enabled"));
+        Metrics.setEnabled(true);
+        for (int i = 0; i < 3; i++) {
+            long lngStart = Metrics.start();
+            Thread.sleep(1);
+            metric.stop(lngStart, 10);
+        }
+        assertEquals(3, metric.getCount());
+        assertEquals(30, metric.getBytes());
+        assertTrue(metric.getNanos() > 0);
+
+        Metrics.reset();
+        assertEquals(0, metric.getCount());
+    }
+
+    @Test
+    public void json() throws Exception {
+        Metrics.Metric metric = Metrics.get("test.\"json\"");
+        Metrics.setEnabled(true);
+        metric.stop(Metrics.start(), 5);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PrintStream ps = new PrintStream(baos, true, "UTF-8");
+        Metrics.printJson(ps);
+        String sJson = baos.toString("UTF-8");
+        assertTrue(sJson, sJson.startsWith("{\"metrics\": ["));
+        assertTrue(sJson, sJson.contains("\"name\": \"test.\\\"json\\\"\", \"count\": 1,"));
+        assertTrue(sJson, sJson.contains("\"bytes\": 5}"));
+        // unused metrics are left out
+        assertFalse(sJson, sJson.contains("cd.read"));
+    }
+
+}
@@ -0,0 +1,339 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpsxdec.util.aviwriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import jpsxdec.util.IO;
+import jpsxdec.util.Misc;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/** Writes AVIs past a small 'RIFF' size limit and follows every index
+ * back to the chunk data. */
+public class AviWriterTest {
+
+    private static final int W = 16, H = 8;
+    private static final AudioFormat AUDIO = new AudioFormat(8000, 16, 2, true, false);
+    private static final int SAMPLES_PER_CHUNK = 100;
+    private static final int FRAMES = 60;
+    /** Every 5th frame is a repeat of the one before. */
+    private static final int REPEAT_EVERY = 5;
+    private static final long RIFF_LIMIT = 8 * 1024;
+
+    private File _file;
+    /** Data of every frame in order, repeated frames included. */
+    private final List<byte[]> _frames = new ArrayList<byte[]>();
+    private final ByteArrayOutputStream _audio = new ByteArrayOutputStream();
+
+    @Before
+    public void setUp() throws IOException {
+        _file = File.createTempFile("AviWriterTest", ".avi");
+    }
+
+    @After
+    public void tearDown() {
+        _file.delete();
+    }
+
+    private @Nonnull byte[] write(boolean blnOpenDml) throws IOException {
+        AviWriterDIB avi = new AviWriterDIB(_file, W, H, 15, 1, AUDIO, blnOpenDml);
+        avi.setRiffSizeLimit(RIFF_LIMIT);
+        for (int i = 0; i < FRAMES; i++) {
+            if (i % REPEAT_EVERY == REPEAT_EVERY - 1) {
+                avi.repeatPreviousFrame();
+                _frames.add(_frames.get(_frames.size() - 1));
+            } else {
+                byte[] abFrame = new byte[avi.getFrameByteSize()];
+                Arrays.fill(abFrame, (byte)i);
+                avi.writeFrameDib(abFrame);
+                _frames.add(abFrame);
+            }
+            byte[] abAudio = new byte[SAMPLES_PER_CHUNK * AUDIO.getFrameSize()];
+            Arrays.fill(abAudio, (byte)(i + 100));
+            avi.writeAudio(new AudioInputStream(new ByteArrayInputStream(abAudio), AUDIO, SAMPLES_PER_CHUNK));
+            _audio.write(abAudio);
+        }
+        avi.close();
+        return IO.readFile(_file);
+    }
+
+    @Test
+    public void legacyIdx1() throws IOException {
+        byte[] ab = write(false);
+
+        List<Chunk> riffs = Chunk.parse(ab, 0, ab.length);
+        assertEquals("Legacy AVI is a single 'RIFF' list", 1, riffs.size());
+        Chunk riff = riffs.get(0);
+        assertEquals("RIFF", riff.id);
+        assertEquals("AVI ", riff.type);
+
+        Chunk hdrl = riff.find(ab, "LIST", "hdrl");
+        assertNull(hdrl.find(ab, "LIST", "odml"));
+        for (Chunk strl : hdrl.findAll(ab, "LIST", "strl"))
+            assertNull(strl.find(ab, "indx", null));
+        assertEquals(FRAMES, IO.readSInt32LE(ab, hdrl.find(ab, "avih", null).data() + 16));
+
+        byte[] abAudio = checkOldIndex(ab, riff, FRAMES);
+        assertArrayEquals(_audio.toByteArray(), abAudio);
+    }
+
+    @Test
+    public void openDmlIndexes() throws IOException {
+        byte[] ab = write(true);
+
+        List<Chunk> riffs = Chunk.parse(ab, 0, ab.length);
+        assertTrue("Expected several 'RIFF' lists, got " + riffs.size(), riffs.size() > 2);
+        for (int i = 0; i < riffs.size(); i++) {
+            Chunk riff = riffs.get(i);
+            assertEquals("RIFF", riff.id);
+            assertEquals(i == 0 ? "AVI " : "AVIX", riff.type);
+            assertNotNull(riff.find(ab, "LIST", "movi"));
+            if (i > 0)
+                assertNull("Only the first 'RIFF' list has 'idx1'", riff.find(ab, "idx1", null));
+        }
+
+        Chunk first = riffs.get(0);
+        Chunk hdrl = first.find(ab, "LIST", "hdrl");
+        Chunk odml = hdrl.find(ab, "LIST", "odml");
+        assertEquals(FRAMES, IO.readSInt32LE(ab, odml.find(ab, "dmlh", null).data()));
+
+        // avih and idx1 only cover the first 'RIFF' list
+        int iFirstRiffFrames = IO.readSInt32LE(ab, hdrl.find(ab, "avih", null).data() + 16);
+        assertTrue(iFirstRiffFrames > 0 && iFirstRiffFrames < FRAMES);
+        byte[] abFirstAudio = checkOldIndex(ab, first, iFirstRiffFrames);
+        assertArrayEquals(Arrays.copyOf(_audio.toByteArray(), abFirstAudio.length), abFirstAudio);
+
+        List<Chunk> strls = hdrl.findAll(ab, "LIST", "strl");
+        assertEquals(2, strls.size());
+
+        Chunk strlVid = strls.get(0);
+        assertEquals(FRAMES, IO.readSInt32LE(ab, strlVid.find(ab, "strh", null).data() + 32));
+        List<byte[]> frames = readSuperIndex(ab, strlVid.find(ab, "indx", null),
+                                             "ix00", "00dc", riffs, 0);
+        assertEquals(_frames.size(), frames.size());
+        for (int i = 0; i < frames.size(); i++)
+            assertArrayEquals("Frame " + i, _frames.get(i), frames.get(i));
+
+        Chunk strlAud = strls.get(1);
+        assertEquals(FRAMES * SAMPLES_PER_CHUNK,
+                     IO.readSInt32LE(ab, strlAud.find(ab, "strh", null).data() + 32));
+        List<byte[]> audio = readSuperIndex(ab, strlAud.find(ab, "indx", null),
+                                            "ix01", "01wb", riffs, AUDIO.getFrameSize());
+        ByteArrayOutputStream audioOut = new ByteArrayOutputStream();
+        for (byte[] abChunk : audio)
+            audioOut.write(abChunk);
+        assertArrayEquals(_audio.toByteArray(), audioOut.toByteArray());
+    }
+
+    /** Follows the 'idx1' entries of a 'RIFF' list to the chunks in its
+     * 'movi' list and checks the frames.
+     * @return the audio data in the order it was indexed. */
+    private @Nonnull byte[] checkOldIndex(@Nonnull byte[] ab, @Nonnull Chunk riff, int iExpectedFrames)
+            throws IOException
+    {
+        Chunk movi = riff.find(ab, "LIST", "movi");
+        Chunk idx1 = riff.find(ab, "idx1", null);
+        assertEquals(0, idx1.size % 16);
+
+        ByteArrayOutputStream audio = new ByteArrayOutputStream();
+        int iFrame = 0;
+        for (int i = idx1.data(); i < idx1.end(); i += 16) {
+            String sId = fourcc(ab, i);
+            int iFlags = IO.readSInt32LE(ab, i + 4);
+            // relative to the 'movi' FOURCC
+            int iPos = movi.data() + IO.readSInt32LE(ab, i + 8);
+            int iSize = IO.readSInt32LE(ab, i + 12);
+
+            assertTrue(iPos >= movi.data() + 4 && iPos + 8 + iSize <= movi.end());
+            assertEquals(sId, fourcc(ab, iPos));
+            assertEquals(iSize, IO.readSInt32LE(ab, iPos + 4));
+            byte[] abData = Arrays.copyOfRange(ab, iPos + 8, iPos + 8 + iSize);
+            if (sId.equals("00dc")) {
+                assertEquals(AVIOLDINDEX.AVIIF_KEYFRAME, iFlags);
+                assertArrayEquals("Frame " + iFrame, _frames.get(iFrame), abData);
+                iFrame++;
+            } else {
+                assertEquals("01wb", sId);
+                audio.write(abData);
+            }
+        }
+        assertEquals(iExpectedFrames, iFrame);
+        return audio.toByteArray();
+    }
+
+    /** Follows an 'indx' super index to the 'ix##' standard index in each
+     * 'RIFF' list, then to the chunk data.
+     * @param iBytesPerUnit 0 if the duration is the number of chunks,
+     *                      otherwise the size of an audio sample.
+     * @return the data of every indexed chunk in order. */
+    private static @Nonnull List<byte[]> readSuperIndex(@Nonnull byte[] ab, @Nonnull Chunk indx,
+                                                        @Nonnull String sIx, @Nonnull String sChunkId,
+                                                        @Nonnull List<Chunk> riffs, int iBytesPerUnit)
+    {
+        int i = indx.data();
+        assertEquals(4, IO.readSInt16LE(ab, i));                // wLongsPerEntry
+        assertEquals(AVISUPERINDEX.AVI_INDEX_OF_INDEXES, ab[i + 3]);
+        int iEntries = IO.readSInt32LE(ab, i + 4);
+        assertEquals(sChunkId, fourcc(ab, i + 8));
+        // a 'RIFF' list with none of the stream's chunks has no standard index
+        assertTrue(iEntries > 1 && iEntries <= riffs.size());
+
+        List<byte[]> data = new ArrayList<byte[]>();
+        int iEntry = i + 24;
+        int iPrevRiff = -1;
+        for (int iIndex = 0; iIndex < iEntries; iIndex++, iEntry += 16) {
+            long lngIxPos = readQword(ab, iEntry);
+            int iIxSize = IO.readSInt32LE(ab, iEntry + 8);
+            int iDuration = IO.readSInt32LE(ab, iEntry + 12);
+
+            // each standard index is in its own 'movi' list, in order
+            int iRiff = iPrevRiff + 1;
+            while (iRiff < riffs.size() && lngIxPos > riffs.get(iRiff).end())
+                iRiff++;
+            assertTrue(iRiff < riffs.size());
+            Chunk movi = riffs.get(iRiff).find(ab, "LIST", "movi");
+            assertTrue(lngIxPos > movi.data() && lngIxPos + iIxSize <= movi.end());
+            iPrevRiff = iRiff;
+            int iIx = (int)lngIxPos;
+            assertEquals(sIx, fourcc(ab, iIx));
+            assertEquals(iIxSize - 8, IO.readSInt32LE(ab, iIx + 4));
+            assertEquals(2, IO.readSInt16LE(ab, iIx + 8));      // wLongsPerEntry
+            assertEquals(AVISTDINDEX.AVI_INDEX_OF_CHUNKS, ab[iIx + 11]);
+            int iIxEntries = IO.readSInt32LE(ab, iIx + 12);
+            assertEquals(sChunkId, fourcc(ab, iIx + 16));
+            long lngBase = readQword(ab, iIx + 20);
+            assertEquals(32 + iIxEntries * 8, iIxSize);
+
+            int iBytes = 0;
+            for (int j = 0; j < iIxEntries; j++) {
+                // points at the data, after the chunk header
+                long lngPos = lngBase + IO.readUInt32LE(ab, iIx + 32 + j * 8);
+                assertTrue(lngPos < ab.length);
+                int iPos = (int)lngPos;
+                int iSize = IO.readSInt32LE(ab, iIx + 32 + j * 8 + 4);
+                assertEquals(sChunkId, fourcc(ab, iPos - 8));
+                assertEquals(iSize, IO.readSInt32LE(ab, iPos - 4));
+                data.add(Arrays.copyOfRange(ab, iPos, iPos + iSize));
+                iBytes += iSize;
+            }
+            assertEquals(iBytesPerUnit == 0 ? iIxEntries : iBytes / iBytesPerUnit, iDuration);
+        }
+        return data;
+    }
+
+    private static @Nonnull String fourcc(@Nonnull byte[] ab, int i) {
+        return Misc.asciiToString(ab, i, 4);
+    }
+
+    private static long readQword(@Nonnull byte[] ab, int i) {
+        return IO.readUInt32LE(ab, i) | (IO.readUInt32LE(ab, i + 4) << 32);
+    }
+
+    /** A parsed chunk or list header. */
+    private static class Chunk {
+        @Nonnull
+        public final String id;
+        /** List type of 'RIFF' and 'LIST' chunks. */
+        @CheckForNull
+        public final String type;
+        /** Position of the chunk id. */
+        public final int start;
+        public final int size;
+
+        public Chunk(@Nonnull byte[] ab, int iStart) {
+            start = iStart;
+            id = fourcc(ab, iStart);
+            size = IO.readSInt32LE(ab, iStart + 4);
+            if (id.equals("RIFF") || id.equals("LIST"))
+                type = fourcc(ab, iStart + 8);
+            else
+                type = null;
+        }
+
+        public int data() {
+            return start + 8;
+        }
+
+        public int end() {
+            return start + 8 + size;
+        }
+
+        public @Nonnull List<Chunk> findAll(@Nonnull byte[] ab, @Nonnull String sId,
+                                            @CheckForNull String sType)
+        {
+            assertNotNull("Not a list", type);
+            List<Chunk> found = new ArrayList<Chunk>();
+            for (Chunk c : parse(ab, data() + 4, end())) {
+                if (c.id.equals(sId) && (sType == null || sType.equals(c.type)))
+                    found.add(c);
+            }
+            return found;
+        }
+
+        public @CheckForNull Chunk find(@Nonnull byte[] ab, @Nonnull String sId,
+                                        @CheckForNull String sType)
+        {
+            List<Chunk> found = findAll(ab, sId, sType);
+            assertTrue(found.size() <= 1);
+            return found.isEmpty() ? null : found.get(0);
+        }
+
+        /** Every chunk must end exactly where the next one starts. */
+        public static @Nonnull List<Chunk> parse(@Nonnull byte[] ab, int iStart, int iEnd) {
+            List<Chunk> chunks = new ArrayList<Chunk>();
+            int i = iStart;
+            while (i < iEnd) {
+                Chunk c = new Chunk(ab, i);
+                chunks.add(c);
+                i = c.end();
+            }
+            assertEquals(iEnd, i);
+            return chunks;
+        }
+    }
+
+}
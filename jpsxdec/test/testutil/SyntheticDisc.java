@@ -0,0 +1,454 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package testutil;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import jpsxdec.cdreaders.CdSector;
+import jpsxdec.cdreaders.SectorErrorCorrection;
+import jpsxdec.formats.RgbIntImage;
+import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor_STRv2;
+import jpsxdec.psxvideo.encode.MacroBlockEncoder;
+import jpsxdec.psxvideo.encode.MdecEncoder;
+import jpsxdec.psxvideo.encode.PsxYCbCrImage;
+import jpsxdec.psxvideo.mdec.Calc;
+import jpsxdec.tim.Tim;
+import jpsxdec.util.IO;
+
+/** Generates synthetic raw 2352 byte/sector disc images for benchmarks
+ * and for comparing the output of different implementations.
+ * <p>
+ * The default image cycles through 4 regions:
+ * <ol>
+ * <li>A 15 fps STR v2 video with an interleaved XA audio stream.
+ * <li>Mode 2 Form 1 data sectors with random contents.
+ * <li>An XA audio stream on its own among data sectors.
+ * <li>Empty sectors.
+ * </ol>
+ * None of it is meant to be meaningful, just enough for the
+ * identifiers and indexers to have real work to do. */
+public class SyntheticDisc {
+
+    private static final byte[] SYNC_HEADER = {
+        0x00, (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF,
+        (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x00
+    };
+
+    public static final int SUBMODE_EOF = 0x80;
+    public static final int SUBMODE_FORM1_DATA = 0x08;
+    public static final int SUBMODE_FORM1_DATA_REALTIME = 0x48;
+    public static final int SUBMODE_FORM2_AUDIO_REALTIME = 0x64;
+    public static final int CODING_STEREO_37800 = 0x01;
+
+    public static final int VIDEO_WIDTH = 320, VIDEO_HEIGHT = 240;
+    private static final int VIDEO_SECTOR_HEADER_SIZE = 32;
+    private static final int VIDEO_SECTOR_PAYLOAD =
+            CdSector.SECTOR_USER_DATA_SIZE_MODE1_MODE2FORM1 - VIDEO_SECTOR_HEADER_SIZE;
+    private static final int SECTORS_PER_FRAME = 10;
+    private static final int AUDIO_STRIDE = 8;
+    private static final int REGION_SIZE = 2000;
+
+    /** Creates a temporary image of {@code iSectorCount} sectors
+     * that is deleted on exit. */
+    public static File createTempImage(int iSectorCount, long lngSeed) throws IOException {
+        File f = File.createTempFile("synthetic", ".bin");
+        f.deleteOnExit();
+        write(f, iSectorCount, lngSeed);
+        return f;
+    }
+
+    public static void write(File file, int iSectorCount, long lngSeed) throws IOException {
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(file), 1024 * 1024);
+        try {
+            SyntheticDisc disc = new SyntheticDisc(os, lngSeed);
+            int iRegion = 0;
+            while (disc.getSectorCount() < iSectorCount) {
+                int iCount = Math.min(REGION_SIZE, iSectorCount - disc.getSectorCount());
+                switch (iRegion++ % 4) {
+                    case 0: disc.writeVideo(iCount); break;
+                    case 1: disc.writeRandomData(iCount); break;
+                    case 2: disc.writeAudioAmongData(iCount); break;
+                    default: disc.writeEmpty(iCount); break;
+                }
+            }
+        } finally {
+            os.close();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+
+    private final OutputStream _os;
+    private final Random _rand;
+    private final byte[] _abSector = new byte[CdSector.SECTOR_SIZE_2352_BIN];
+    private int _iSector = 0;
+    /** A few encoded frames that are reused for every video. */
+    private byte[][] _aabFrames;
+    private int[] _aiFrameMdecCodes;
+    private int[] _aiFrameQscale;
+
+    public SyntheticDisc(OutputStream os, long lngSeed) {
+        _os = os;
+        _rand = new Random(lngSeed);
+    }
+
+    public int getSectorCount() {
+        return _iSector;
+    }
+
+    /** Writes a STR v2 video with XA audio every {@link #AUDIO_STRIDE} sectors. */
+    public void writeVideo(int iSectorCount) throws IOException {
+        encodeFrames();
+        int iStart = _iSector;
+        int iFrame = 0;
+        // only whole frames
+        int iEnd = iStart + (iSectorCount / SECTORS_PER_FRAME) * SECTORS_PER_FRAME;
+        while (_iSector < iEnd) {
+            byte[] abFrame = _aabFrames[iFrame % _aabFrames.length];
+            int iChunks = 0;
+            for (int i = 0; i < SECTORS_PER_FRAME; i++) {
+                if ((_iSector + i - iStart) % AUDIO_STRIDE != 0)
+                    iChunks++;
+            }
+            int iChunk = 0;
+            for (int i = 0; i < SECTORS_PER_FRAME; i++) {
+                boolean blnLast = _iSector + 1 == iEnd;
+                if ((_iSector - iStart) % AUDIO_STRIDE == 0) {
+                    writeAudioSector(1, blnLast);
+                } else {
+                    writeVideoSector(abFrame, iFrame, iChunk, iChunks, blnLast);
+                    iChunk++;
+                }
+            }
+            iFrame++;
+        }
+        writeEmpty(iSectorCount - (iEnd - iStart));
+    }
+
+    private void writeVideoSector(byte[] abFrame, int iFrame, int iChunk,
+                                  int iChunks, boolean blnEof) throws IOException
+    {
+        int iFrameIndex = iFrame % _aabFrames.length;
+        header(0, SUBMODE_FORM1_DATA_REALTIME | (blnEof ? SUBMODE_EOF : 0), 0);
+        int iHdr = 24;
+        IO.writeInt16LE(_abSector, iHdr + 0, (short)0x0160);
+        IO.writeInt16LE(_abSector, iHdr + 2, (short)0x8001);
+        IO.writeInt16LE(_abSector, iHdr + 4, (short)iChunk);
+        IO.writeInt16LE(_abSector, iHdr + 6, (short)iChunks);
+        IO.writeInt32LE(_abSector, iHdr + 8, iFrame + 1);
+        IO.writeInt32LE(_abSector, iHdr + 12, (abFrame.length + 3) & ~3);
+        IO.writeInt16LE(_abSector, iHdr + 16, (short)VIDEO_WIDTH);
+        IO.writeInt16LE(_abSector, iHdr + 18, (short)VIDEO_HEIGHT);
+        IO.writeInt16LE(_abSector, iHdr + 20, Calc.calculateHalfCeiling32(_aiFrameMdecCodes[iFrameIndex]));
+        IO.writeInt16LE(_abSector, iHdr + 22, (short)0x3800);
+        IO.writeInt16LE(_abSector, iHdr + 24, (short)_aiFrameQscale[iFrameIndex]);
+        IO.writeInt16LE(_abSector, iHdr + 26, (short)2);
+        int iOffset = iChunk * VIDEO_SECTOR_PAYLOAD;
+        int iLen = Math.max(0, Math.min(VIDEO_SECTOR_PAYLOAD, abFrame.length - iOffset));
+        if (iLen > 0) // trailing chunks are just padding
+            System.arraycopy(abFrame, iOffset, _abSector, iHdr + VIDEO_SECTOR_HEADER_SIZE, iLen);
+        flush();
+    }
+
+    /** Writes an XA audio stream every {@link #AUDIO_STRIDE} sectors
+     * with random data sectors between. */
+    public void writeAudioAmongData(int iSectorCount) throws IOException {
+        int iStart = _iSector;
+        int iEnd = iStart + iSectorCount;
+        while (_iSector < iEnd) {
+            if ((_iSector - iStart) % AUDIO_STRIDE == 0)
+                writeAudioSector(2, _iSector + AUDIO_STRIDE >= iEnd);
+            else
+                writeRandomData(1);
+        }
+    }
+
+    private void writeAudioSector(int iChannel, boolean blnEof) throws IOException {
+        header(iChannel, SUBMODE_FORM2_AUDIO_REALTIME | (blnEof ? SUBMODE_EOF : 0), CODING_STEREO_37800);
+        // 18 sound groups of 128 bytes: 16 bytes of sound parameters then 112 of samples
+        for (int iGroup = 0; iGroup < 18; iGroup++) {
+            int iGroupStart = 24 + iGroup * 128;
+            for (int i = 0; i < 4; i++) {
+                // range 0-11, filter 0-3
+                byte bParam = (byte)(_rand.nextInt(12) | (_rand.nextInt(4) << 4));
+                _abSector[iGroupStart + i] = _abSector[iGroupStart + 4 + i] = bParam;
+                _abSector[iGroupStart + 8 + i] = _abSector[iGroupStart + 12 + i] = (byte)(bParam + 1);
+            }
+            // stay within the 4 copies rule: params 0-3 = 4-7, 8-11 = 12-15
+            for (int i = 0; i < 4; i++)
+                _abSector[iGroupStart + 8 + i] = _abSector[iGroupStart + 12 + i] = _abSector[iGroupStart + i];
+            for (int i = 16; i < 128; i++)
+                _abSector[iGroupStart + i] = (byte)_rand.nextInt();
+        }
+        flush();
+    }
+
+    public void writeRandomData(int iSectorCount) throws IOException {
+        for (int iSector = 0; iSector < iSectorCount; iSector++) {
+            header(0, SUBMODE_FORM1_DATA, 0);
+            for (int i = 24; i < 24 + CdSector.SECTOR_USER_DATA_SIZE_MODE1_MODE2FORM1; i++)
+                _abSector[i] = (byte)_rand.nextInt();
+            flush();
+        }
+    }
+
+    /** Writes an image of {@code iSectorCount} data sectors packed with Tim
+     * images, for measuring the Tim indexer.
+     * @return the number of Tims written. */
+    public static int writeTimImage(File file, int iSectorCount, long lngSeed) throws IOException {
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(file), 1024 * 1024);
+        try {
+            return new SyntheticDisc(os, lngSeed).writeTims(iSectorCount);
+        } finally {
+            os.close();
+        }
+    }
+
+    /** Writes Mode 2 Form 1 data sectors of random data with Tims of
+     * every bits-per-pixel scattered through it, many crossing sector
+     * boundaries. There are also headers that start out like a Tim but
+     * aren't, so the full check is exercised too.
+     * @return the number of Tims written. */
+    public int writeTims(int iSectorCount) throws IOException {
+        byte[][] aabTims = makeTims();
+        final int SECTOR_SIZE = CdSector.SECTOR_USER_DATA_SIZE_MODE1_MODE2FORM1;
+        byte[] abData = new byte[iSectorCount * SECTOR_SIZE];
+        for (int i = 0; i < abData.length; i++)
+            abData[i] = (byte)_rand.nextInt();
+        int iTimCount = 0;
+        // Tims are searched for every 4 bytes from the start of the data
+        int iPos = _rand.nextInt(256) * 4;
+        while (true) {
+            if (_rand.nextInt(4) == 0) {
+                // Tim tag and flags followed by nonsense
+                if (iPos + 16 > abData.length)
+                    break;
+                IO.writeInt32LE(abData, iPos, Tim.START_MAGIC32LE);
+                IO.writeInt32LE(abData, iPos + 4, _rand.nextInt(16) & 0xB);
+                iPos += 16;
+            } else {
+                byte[] abTim = aabTims[_rand.nextInt(aabTims.length)];
+                if (iPos + abTim.length > abData.length)
+                    break;
+                System.arraycopy(abTim, 0, abData, iPos, abTim.length);
+                iPos += abTim.length;
+                iTimCount++;
+            }
+            iPos = (iPos + 3) & ~3;
+            iPos += _rand.nextInt(512) * 4;
+        }
+        for (int iSector = 0; iSector < iSectorCount; iSector++)
+            writeFormOneSector(abData, iSector * SECTOR_SIZE);
+        return iTimCount;
+    }
+
+    /** Writes an image of {@code iSectorCount} data sectors with SPU clips
+     * scattered through it, for measuring the SPU indexer.
+     * @return the number of clips written. */
+    public static int writeSpuImage(File file, int iSectorCount, long lngSeed) throws IOException {
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(file), 1024 * 1024);
+        try {
+            return new SyntheticDisc(os, lngSeed).writeSpuClips(iSectorCount);
+        } finally {
+            os.close();
+        }
+    }
+
+    /** Writes Mode 2 Form 1 data sectors of random data with SPU ADPCM
+     * clips at every 4 byte alignment, many crossing sector boundaries.
+     * @return the number of clips written. */
+    public int writeSpuClips(int iSectorCount) throws IOException {
+        final int SECTOR_SIZE = CdSector.SECTOR_USER_DATA_SIZE_MODE1_MODE2FORM1;
+        final int SOUND_UNIT_SIZE = 16;
+        byte[] abData = new byte[iSectorCount * SECTOR_SIZE];
+        for (int i = 0; i < abData.length; i++)
+            abData[i] = (byte)_rand.nextInt();
+        int iClipCount = 0;
+        int iPos = _rand.nextInt(256) * 4;
+        while (true) {
+            int iSoundUnits = 16 + _rand.nextInt(400);
+            if (iPos + iSoundUnits * SOUND_UNIT_SIZE > abData.length)
+                break;
+            for (int iUnit = 0; iUnit < iSoundUnits; iUnit++) {
+                // filter 0-4, range 0-12, but the first must be non-zero
+                int iFilterRange;
+                do {
+                    iFilterRange = (_rand.nextInt(5) << 4) | _rand.nextInt(13);
+                } while (iUnit == 0 && iFilterRange == 0);
+                abData[iPos] = (byte)iFilterRange;
+                // loop end flag (with or without repeat) on the last
+                if (iUnit == iSoundUnits - 1)
+                    abData[iPos + 1] = (byte)(_rand.nextBoolean() ? 1 : 3);
+                else
+                    abData[iPos + 1] = (byte)(_rand.nextInt(2) << 2);
+                iPos += SOUND_UNIT_SIZE;
+            }
+            iClipCount++;
+            iPos += _rand.nextInt(2048) * 4;
+        }
+        for (int iSector = 0; iSector < iSectorCount; iSector++)
+            writeFormOneSector(abData, iSector * SECTOR_SIZE);
+        return iClipCount;
+    }
+
+    private byte[][] makeTims() throws IOException {
+        int[][] aaiSizeBpp = {
+            {16, 16, 4}, {64, 64, 4}, {32, 128, 8}, {128, 64, 8},
+            {48, 32, 16}, {100, 60, 16}, {40, 40, 24},
+        };
+        byte[][] aabTims = new byte[aaiSizeBpp.length][];
+        for (int i = 0; i < aaiSizeBpp.length; i++) {
+            int iWidth = aaiSizeBpp[i][0], iHeight = aaiSizeBpp[i][1];
+            int iBpp = aaiSizeBpp[i][2];
+            BufferedImage bi = new BufferedImage(iWidth, iHeight, BufferedImage.TYPE_INT_RGB);
+            int iColors = iBpp == 4 ? 16 : 256;
+            for (int y = 0; y < iHeight; y++) {
+                for (int x = 0; x < iWidth; x++) {
+                    // few enough colors to fit in the palette
+                    int iColor = ((x / 4 + y / 4) % iColors) * (0xffffff / iColors);
+                    bi.setRGB(x, y, iColor & 0xf8f8f8);
+                }
+            }
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            Tim.create(bi, iBpp).write(baos);
+            aabTims[i] = baos.toByteArray();
+        }
+        return aabTims;
+    }
+
+    public void writeEmpty(int iSectorCount) throws IOException {
+        for (int iSector = 0; iSector < iSectorCount; iSector++) {
+            header(0, SUBMODE_FORM1_DATA, 0);
+            flush();
+        }
+    }
+
+    /** Writes the sector with the user data already filled in the buffer. */
+    public void writeFormOneSector(byte[] abUserData, int iOffset) throws IOException {
+        header(0, SUBMODE_FORM1_DATA, 0);
+        System.arraycopy(abUserData, iOffset, _abSector, 24, CdSector.SECTOR_USER_DATA_SIZE_MODE1_MODE2FORM1);
+        flush();
+    }
+
+    private void flush() throws IOException {
+        int iForm = (_abSector[18] & 0x20) == 0 ? 1 : 2;
+        SectorErrorCorrection.rebuildErrorCorrection(_abSector, iForm);
+        _os.write(_abSector);
+        _iSector++;
+    }
+
+    private void header(int iChannel, int iSubMode, int iCodingInfo) {
+        Arrays.fill(_abSector, (byte)0);
+        System.arraycopy(SYNC_HEADER, 0, _abSector, 0, SYNC_HEADER.length);
+        int iLba = _iSector + 150;
+        _abSector[12] = toBcd(iLba / (60 * 75));
+        _abSector[13] = toBcd((iLba / 75) % 60);
+        _abSector[14] = toBcd(iLba % 75);
+        _abSector[15] = 2; // mode 2
+        for (int i = 16; i < 24; i += 4) {
+            _abSector[i  ] = 1; // file
+            _abSector[i+1] = (byte)iChannel;
+            _abSector[i+2] = (byte)iSubMode;
+            _abSector[i+3] = (byte)iCodingInfo;
+        }
+    }
+
+    private static byte toBcd(int i) {
+        return (byte)(((i / 10) << 4) | (i % 10));
+    }
+
+    // -------------------------------------------------------------------------
+
+    private static final int FRAMES_TO_ENCODE = 4;
+
+    /** Makes a handful of smooth frames with a little noise,
+     * each small enough to fit in the sectors available to it. */
+    private void encodeFrames() throws IOException {
+        if (_aabFrames != null)
+            return;
+        _aabFrames = new byte[FRAMES_TO_ENCODE][];
+        _aiFrameMdecCodes = new int[FRAMES_TO_ENCODE];
+        _aiFrameQscale = new int[FRAMES_TO_ENCODE];
+        int iMaxSize = (SECTORS_PER_FRAME - 2) * VIDEO_SECTOR_PAYLOAD;
+        for (int iFrame = 0; iFrame < FRAMES_TO_ENCODE; iFrame++) {
+            RgbIntImage rgb = makeFrameImage(iFrame);
+            PsxYCbCrImage ycbcr = new PsxYCbCrImage(rgb);
+            MdecEncoder encoder = new MdecEncoder(ycbcr, VIDEO_WIDTH, VIDEO_HEIGHT);
+            for (int iQscale = 4; iQscale < 64; iQscale++) {
+                int[] aiQscale = { iQscale, iQscale, iQscale, iQscale, iQscale, iQscale };
+                for (MacroBlockEncoder macblk : encoder)
+                    macblk.setToFullEncode(aiQscale);
+                BitStreamUncompressor_STRv2.BitStreamCompressor_STRv2 compressor =
+                        new BitStreamUncompressor_STRv2.BitStreamCompressor_STRv2(encoder.getMacroBlockCount());
+                byte[] abFrame;
+                try {
+                    abFrame = compressor.compress(encoder.getStream());
+                } catch (Exception ex) {
+                    throw new IOException(ex.toString());
+                }
+                if (abFrame.length <= iMaxSize) {
+                    _aabFrames[iFrame] = abFrame;
+                    _aiFrameMdecCodes[iFrame] = compressor.getMdecCodesFromLastCompress();
+                    _aiFrameQscale[iFrame] = iQscale;
+                    break;
+                }
+            }
+        }
+    }
+
+    private RgbIntImage makeFrameImage(int iFrame) {
+        RgbIntImage rgb = new RgbIntImage(VIDEO_WIDTH, VIDEO_HEIGHT);
+        for (int y = 0; y < VIDEO_HEIGHT; y++) {
+            for (int x = 0; x < VIDEO_WIDTH; x++) {
+                int r = (x + iFrame * 16) & 0xff;
+                int g = (y * 255 / VIDEO_HEIGHT) & 0xff;
+                int b = ((x ^ y) + _rand.nextInt(16)) & 0xff;
+                rgb.set(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return rgb;
+    }
+
+}